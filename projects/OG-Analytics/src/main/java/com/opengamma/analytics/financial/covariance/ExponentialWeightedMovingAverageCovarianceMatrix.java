@@ -0,0 +1,311 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.covariance;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.apache.commons.math.linear.Array2DRowRealMatrix;
+import org.apache.commons.math.linear.EigenDecomposition;
+import org.apache.commons.math.linear.EigenDecompositionImpl;
+import org.apache.commons.math.util.MathUtils;
+
+import cern.jet.random.engine.MersenneTwister;
+import cern.jet.random.engine.MersenneTwister64;
+import cern.jet.random.engine.RandomEngine;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.statistics.distribution.NormalDistribution;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * An exponentially-weighted moving average estimate of the covariance of a set of returns that is updated one observation at a time.
+ * As in {@link ExponentialWeightedMovingAverageHistoricalVolatilityCalculator}, the returns are assumed to have zero mean, the first
+ * observation gives $\sigma_{ij} = r_i r_j$ and each later one updates the estimate to $\lambda \sigma_{ij} + (1 - \lambda) r_i r_j$.
+ * An update costs O(n<sup>2</sup>) rather than the O(n<sup>2</sup>m) of recalculating from m observations.
+ * <p>
+ * The matrix is symmetric so only the lower triangle is stored, packed row by row into a single array of n(n + 1) / 2 elements.
+ * For large numbers of risk factors a factor approximation (see {@link #getFactorApproximation}) allows portfolio variances to be
+ * calculated in O(nk) for k factors.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class ExponentialWeightedMovingAverageCovarianceMatrix {
+  /** The extra directions carried by the subspace iteration to improve the accuracy of the leading factors */
+  private static final int OVERSAMPLING = 5;
+  /** The number of subspace iterations */
+  private static final int ITERATIONS = 4;
+  private final int _n;
+  private final double _lambda;
+  private final double _lambdaM1;
+  private final double[] _packed;
+  private int _nObservations;
+
+  /**
+   * @param n The number of risk factors, greater than zero
+   * @param lambda The weight parameter, $0 < \lambda < 1$
+   */
+  public ExponentialWeightedMovingAverageCovarianceMatrix(final int n, final double lambda) {
+    ArgumentChecker.isTrue(n > 0, "need at least one risk factor");
+    ArgumentChecker.isTrue(lambda > 0 && lambda < 1, "lambda must be between 0 and 1, have {}", lambda);
+    _n = n;
+    _lambda = lambda;
+    _lambdaM1 = 1 - lambda;
+    _packed = new double[n * (n + 1) / 2];
+  }
+
+  /**
+   * Adds an observation.
+   * @param returns The return of each risk factor, not null
+   */
+  public void update(final double[] returns) {
+    ArgumentChecker.notNull(returns, "returns");
+    ArgumentChecker.isTrue(returns.length == _n, "need {} returns, have {}", _n, returns.length);
+    int k = 0;
+    if (_nObservations == 0) {
+      for (int i = 0; i < _n; i++) {
+        final double ri = returns[i];
+        for (int j = 0; j <= i; j++) {
+          _packed[k++] = ri * returns[j];
+        }
+      }
+    } else {
+      for (int i = 0; i < _n; i++) {
+        final double ri = _lambdaM1 * returns[i];
+        for (int j = 0; j <= i; j++, k++) {
+          _packed[k] = _lambda * _packed[k] + ri * returns[j];
+        }
+      }
+    }
+    _nObservations++;
+  }
+
+  /**
+   * @return The number of risk factors
+   */
+  public int getNumberOfRiskFactors() {
+    return _n;
+  }
+
+  /**
+   * @return The weight parameter
+   */
+  public double getLambda() {
+    return _lambda;
+  }
+
+  /**
+   * @return The number of observations
+   */
+  public int getNumberOfObservations() {
+    return _nObservations;
+  }
+
+  /**
+   * @param i The first risk factor
+   * @param j The second risk factor
+   * @return The covariance
+   */
+  public double getCovariance(final int i, final int j) {
+    ArgumentChecker.isTrue(i >= 0 && i < _n && j >= 0 && j < _n, "({}, {}) is not in a {} by {} matrix", i, j, _n, _n);
+    return i >= j ? _packed[i * (i + 1) / 2 + j] : _packed[j * (j + 1) / 2 + i];
+  }
+
+  /**
+   * @return A copy of the lower triangle of the covariance matrix packed by rows, i.e. $\sigma_{ij}$ for $j \leq i$ is at i(i + 1) / 2 + j
+   */
+  public double[] getPackedCovariances() {
+    return Arrays.copyOf(_packed, _packed.length);
+  }
+
+  /**
+   * @return The covariance matrix
+   */
+  public DoubleMatrix2D getCovarianceMatrix() {
+    final double[][] res = new double[_n][_n];
+    int k = 0;
+    for (int i = 0; i < _n; i++) {
+      for (int j = 0; j <= i; j++, k++) {
+        res[i][j] = _packed[k];
+        res[j][i] = _packed[k];
+      }
+    }
+    return new DoubleMatrix2D(res);
+  }
+
+  /**
+   * @param x A vector, not null
+   * @return The product of the covariance matrix and the vector
+   */
+  public double[] multiply(final double[] x) {
+    ArgumentChecker.notNull(x, "x");
+    ArgumentChecker.isTrue(x.length == _n, "need a vector of length {}, have {}", _n, x.length);
+    final double[] res = new double[_n];
+    int k = 0;
+    for (int i = 0; i < _n; i++) {
+      final double xi = x[i];
+      double sum = 0;
+      for (int j = 0; j < i; j++, k++) {
+        sum += _packed[k] * x[j];
+        res[j] += _packed[k] * xi;
+      }
+      res[i] += sum + _packed[k++] * xi;
+    }
+    return res;
+  }
+
+  /**
+   * @param w The weights (e.g. deltas), not null
+   * @return $w^T \Sigma w$
+   */
+  public double getVariance(final double[] w) {
+    ArgumentChecker.notNull(w, "w");
+    ArgumentChecker.isTrue(w.length == _n, "need a vector of length {}, have {}", _n, w.length);
+    double offDiagonal = 0;
+    double diagonal = 0;
+    int k = 0;
+    for (int i = 0; i < _n; i++) {
+      double sum = 0;
+      for (int j = 0; j < i; j++) {
+        sum += _packed[k++] * w[j];
+      }
+      offDiagonal += sum * w[i];
+      diagonal += _packed[k++] * w[i] * w[i];
+    }
+    return diagonal + 2 * offDiagonal;
+  }
+
+  /**
+   * Approximates the covariance matrix by $BB^T + D$, where B is the n by k matrix of loadings on the k largest principal components and
+   * D is the diagonal matrix that makes the variances exact. The principal components are found by subspace iteration, which costs
+   * O(n<sup>2</sup>k) rather than the O(n<sup>3</sup>) of a full eigendecomposition.
+   * @param nFactors The number of factors, greater than zero and not more than the number of risk factors
+   * @return The approximation
+   */
+  public FactorCovarianceMatrix getFactorApproximation(final int nFactors) {
+    ArgumentChecker.isTrue(nFactors > 0 && nFactors <= _n, "number of factors must be between 1 and {}, have {}", _n, nFactors);
+    final int m = Math.min(_n, nFactors + OVERSAMPLING);
+    // a fixed seed so that the same matrix always gives the same factors
+    final RandomEngine random = new MersenneTwister64(MersenneTwister.DEFAULT_SEED);
+    final NormalDistribution normal = new NormalDistribution(0, 1, random);
+    double[] q = new double[_n * m];
+    for (int i = 0; i < q.length; i++) {
+      q[i] = normal.nextRandom();
+    }
+    orthonormalize(q, m);
+    for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+      q = multiply(q, m);
+      orthonormalize(q, m);
+    }
+    // Rayleigh-Ritz: the eigenvectors of Q^T Sigma Q give the principal components within the subspace
+    final double[] sq = multiply(q, m);
+    final double[][] t = new double[m][m];
+    for (int i = 0; i < _n; i++) {
+      final int row = i * m;
+      for (int a = 0; a < m; a++) {
+        final double qia = q[row + a];
+        for (int b = 0; b <= a; b++) {
+          t[a][b] += qia * sq[row + b];
+        }
+      }
+    }
+    for (int a = 0; a < m; a++) {
+      for (int b = 0; b < a; b++) {
+        t[b][a] = t[a][b];
+      }
+    }
+    final EigenDecomposition eigen = new EigenDecompositionImpl(new Array2DRowRealMatrix(t, false), MathUtils.SAFE_MIN);
+    final double[] eigenvalues = eigen.getRealEigenvalues();
+    final Integer[] order = new Integer[m];
+    for (int a = 0; a < m; a++) {
+      order[a] = a;
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(final Integer a, final Integer b) {
+        return Double.compare(eigenvalues[b], eigenvalues[a]);
+      }
+    });
+    final double[] loadings = new double[_n * nFactors];
+    for (int f = 0; f < nFactors; f++) {
+      final int a = order[f];
+      final double scale = Math.sqrt(Math.max(eigenvalues[a], 0));
+      final double[] v = eigen.getEigenvector(a).toArray();
+      for (int i = 0; i < _n; i++) {
+        final int row = i * m;
+        double sum = 0;
+        for (int b = 0; b < m; b++) {
+          sum += q[row + b] * v[b];
+        }
+        loadings[i * nFactors + f] = scale * sum;
+      }
+    }
+    final double[] specific = new double[_n];
+    for (int i = 0; i < _n; i++) {
+      double explained = 0;
+      for (int f = 0; f < nFactors; f++) {
+        final double b = loadings[i * nFactors + f];
+        explained += b * b;
+      }
+      specific[i] = Math.max(_packed[i * (i + 1) / 2 + i] - explained, 0);
+    }
+    return new FactorCovarianceMatrix(loadings, specific, nFactors);
+  }
+
+  /**
+   * @param x An n by m matrix, row-major
+   * @param m The number of columns
+   * @return The product of the covariance matrix and x
+   */
+  private double[] multiply(final double[] x, final int m) {
+    final double[] res = new double[x.length];
+    int k = 0;
+    for (int i = 0; i < _n; i++) {
+      final int rowI = i * m;
+      for (int j = 0; j < i; j++, k++) {
+        final double a = _packed[k];
+        final int rowJ = j * m;
+        for (int c = 0; c < m; c++) {
+          res[rowI + c] += a * x[rowJ + c];
+          res[rowJ + c] += a * x[rowI + c];
+        }
+      }
+      final double a = _packed[k++];
+      for (int c = 0; c < m; c++) {
+        res[rowI + c] += a * x[rowI + c];
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Modified Gram-Schmidt on the columns of a row-major n by m matrix. A column that is (numerically) in the span of the previous ones is
+   * set to zero.
+   */
+  private void orthonormalize(final double[] x, final int m) {
+    for (int a = 0; a < m; a++) {
+      for (int b = 0; b < a; b++) {
+        double dot = 0;
+        for (int i = 0; i < _n; i++) {
+          dot += x[i * m + a] * x[i * m + b];
+        }
+        for (int i = 0; i < _n; i++) {
+          x[i * m + a] -= dot * x[i * m + b];
+        }
+      }
+      double norm = 0;
+      for (int i = 0; i < _n; i++) {
+        norm += x[i * m + a] * x[i * m + a];
+      }
+      norm = Math.sqrt(norm);
+      final double scale = norm > 1e-150 ? 1 / norm : 0;
+      for (int i = 0; i < _n; i++) {
+        x[i * m + a] *= scale;
+      }
+    }
+  }
+
+}
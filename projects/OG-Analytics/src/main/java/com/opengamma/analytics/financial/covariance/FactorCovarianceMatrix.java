@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.covariance;
+
+import java.util.Arrays;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A covariance matrix of the form $BB^T + D$, where B is an n by k matrix of factor loadings and D is a diagonal matrix of specific
+ * variances. When k is much smaller than n, products with the matrix cost O(nk) rather than O(n<sup>2</sup>).
+ */
+public class FactorCovarianceMatrix {
+  private final int _n;
+  private final int _nFactors;
+  /** The loadings, n by k, row-major */
+  private final double[] _loadings;
+  private final double[] _specific;
+
+  /**
+   * @param loadings The factor loadings, not null. Row i is the loading of risk factor i on each factor
+   * @param specificVariances The specific variances, not null, one for each risk factor
+   */
+  public FactorCovarianceMatrix(final DoubleMatrix2D loadings, final double[] specificVariances) {
+    ArgumentChecker.notNull(loadings, "loadings");
+    ArgumentChecker.notNull(specificVariances, "specific variances");
+    ArgumentChecker.isTrue(loadings.getNumberOfRows() == specificVariances.length, "have {} rows of loadings but {} specific variances", loadings.getNumberOfRows(),
+        specificVariances.length);
+    _n = loadings.getNumberOfRows();
+    _nFactors = loadings.getNumberOfColumns();
+    _loadings = new double[_n * _nFactors];
+    final double[][] data = loadings.getData();
+    for (int i = 0; i < _n; i++) {
+      System.arraycopy(data[i], 0, _loadings, i * _nFactors, _nFactors);
+    }
+    _specific = Arrays.copyOf(specificVariances, _n);
+  }
+
+  /**
+   * Uses the arrays without copying them.
+   */
+  FactorCovarianceMatrix(final double[] loadings, final double[] specificVariances, final int nFactors) {
+    _n = specificVariances.length;
+    _nFactors = nFactors;
+    _loadings = loadings;
+    _specific = specificVariances;
+  }
+
+  /**
+   * @return The number of risk factors
+   */
+  public int getNumberOfRiskFactors() {
+    return _n;
+  }
+
+  /**
+   * @return The number of factors
+   */
+  public int getNumberOfFactors() {
+    return _nFactors;
+  }
+
+  /**
+   * @return The loadings, an n by k matrix
+   */
+  public DoubleMatrix2D getLoadings() {
+    final double[][] res = new double[_n][_nFactors];
+    for (int i = 0; i < _n; i++) {
+      System.arraycopy(_loadings, i * _nFactors, res[i], 0, _nFactors);
+    }
+    return new DoubleMatrix2D(res);
+  }
+
+  /**
+   * @return A copy of the specific variances
+   */
+  public double[] getSpecificVariances() {
+    return Arrays.copyOf(_specific, _n);
+  }
+
+  /**
+   * @param i The first risk factor
+   * @param j The second risk factor
+   * @return The covariance
+   */
+  public double getCovariance(final int i, final int j) {
+    ArgumentChecker.isTrue(i >= 0 && i < _n && j >= 0 && j < _n, "({}, {}) is not in a {} by {} matrix", i, j, _n, _n);
+    double sum = i == j ? _specific[i] : 0;
+    for (int f = 0; f < _nFactors; f++) {
+      sum += _loadings[i * _nFactors + f] * _loadings[j * _nFactors + f];
+    }
+    return sum;
+  }
+
+  /**
+   * @return The full n by n covariance matrix
+   */
+  public DoubleMatrix2D getCovarianceMatrix() {
+    final double[][] res = new double[_n][_n];
+    for (int i = 0; i < _n; i++) {
+      for (int j = 0; j <= i; j++) {
+        res[i][j] = getCovariance(i, j);
+        res[j][i] = res[i][j];
+      }
+    }
+    return new DoubleMatrix2D(res);
+  }
+
+  /**
+   * @param x A vector of length n, not null
+   * @return $B^Tx$, the exposure to each factor
+   */
+  public double[] getFactorExposures(final double[] x) {
+    checkVector(x);
+    final double[] res = new double[_nFactors];
+    for (int i = 0; i < _n; i++) {
+      final double xi = x[i];
+      final int row = i * _nFactors;
+      for (int f = 0; f < _nFactors; f++) {
+        res[f] += _loadings[row + f] * xi;
+      }
+    }
+    return res;
+  }
+
+  /**
+   * @param x A vector of length n, not null
+   * @return The product of the covariance matrix and x
+   */
+  public double[] multiply(final double[] x) {
+    final double[] exposures = getFactorExposures(x);
+    final double[] res = new double[_n];
+    for (int i = 0; i < _n; i++) {
+      final int row = i * _nFactors;
+      double sum = _specific[i] * x[i];
+      for (int f = 0; f < _nFactors; f++) {
+        sum += _loadings[row + f] * exposures[f];
+      }
+      res[i] = sum;
+    }
+    return res;
+  }
+
+  /**
+   * @param w The weights (e.g. deltas), not null
+   * @return $w^T (BB^T + D) w$
+   */
+  public double getVariance(final double[] w) {
+    final double[] exposures = getFactorExposures(w);
+    double sum = 0;
+    for (int f = 0; f < _nFactors; f++) {
+      sum += exposures[f] * exposures[f];
+    }
+    for (int i = 0; i < _n; i++) {
+      sum += _specific[i] * w[i] * w[i];
+    }
+    return sum;
+  }
+
+  /**
+   * @param i The risk factor
+   * @param f The factor
+   * @return The loading
+   */
+  public double getLoading(final int i, final int f) {
+    return _loadings[i * _nFactors + f];
+  }
+
+  /**
+   * @param i The risk factor
+   * @return The specific variance
+   */
+  public double getSpecificVariance(final int i) {
+    return _specific[i];
+  }
+
+  private void checkVector(final double[] x) {
+    ArgumentChecker.notNull(x, "x");
+    ArgumentChecker.isTrue(x.length == _n, "need a vector of length {}, have {}", _n, x.length);
+  }
+
+}
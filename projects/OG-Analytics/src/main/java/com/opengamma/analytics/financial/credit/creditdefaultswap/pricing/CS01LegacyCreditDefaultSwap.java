@@ -27,6 +27,9 @@ public class CS01LegacyCreditDefaultSwap {
 
   private static final DayCount ACT365 = new ActualThreeSixtyFive();
 
+  // The engine caching the schedules of the CDS and of the calibration instruments
+  private final LegacyCreditDefaultSwapPricingEngine _engine = new LegacyCreditDefaultSwapPricingEngine();
+
   //-------------------------------------------------------------------------------------------------
 
   // TODO : Lots of ongoing work to do in this class - Work In Progress
@@ -141,6 +144,23 @@ public class CS01LegacyCreditDefaultSwap {
 
   // -------------------------------------------------------------------------------------------------
 
+  // Compute the bucketed CS01 (per bp, one per calibration tenor) analytically through the Jacobian of the hazard rate calibration (no spread bumps, no re-calibration)
+  public double[] getCS01BucketedCreditDefaultSwap(
+      LegacyCreditDefaultSwapDefinition cds,
+      ISDACurve yieldCurve,
+      ZonedDateTime[] marketTenors,
+      double[] marketSpreads) {
+
+    ArgumentChecker.notNull(cds, "LegacyCreditDefaultSwapDefinition");
+    ArgumentChecker.notNull(yieldCurve, "YieldCurve");
+    ArgumentChecker.notNull(marketTenors, "Market tenors");
+    ArgumentChecker.notNull(marketSpreads, "Market spreads");
+
+    return _engine.getCS01BucketedCreditDefaultSwap(cds, yieldCurve, marketTenors, marketSpreads);
+  }
+
+  // -------------------------------------------------------------------------------------------------
+
   public double[] getCS01BucketedCfreditDefaultSwap(LegacyCreditDefaultSwapDefinition cds, ISDACurve yieldCurve, HazardRateCurve hazardRateCurve) {
 
     // -------------------------------------------------------------
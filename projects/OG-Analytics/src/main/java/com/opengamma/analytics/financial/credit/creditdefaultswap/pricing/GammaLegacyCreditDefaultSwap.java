@@ -23,6 +23,9 @@ public class GammaLegacyCreditDefaultSwap {
 
   private static final DayCount ACT365 = new ActualThreeSixtyFive();
 
+  // The engine caching the schedules of the CDS and of the calibration instruments, shared by all the calls
+  private final LegacyCreditDefaultSwapPricingEngine _engine = new LegacyCreditDefaultSwapPricingEngine();
+
   //-------------------------------------------------------------------------------------------------
 
   // TODO : Lots of ongoing work to do in this class - Work In Progress
@@ -67,7 +70,37 @@ public class GammaLegacyCreditDefaultSwap {
 
     // -------------------------------------------------------------
 
-    double parallelGamma = 0.0;
+    ArgumentChecker.notZero(spreadBump, _tolerance, "Spread bump");
+
+    double[] bumpedUpMarketSpreads = new double[marketSpreads.length];
+    double[] bumpedDownMarketSpreads = new double[marketSpreads.length];
+
+    // Calculate the bumped spreads
+    for (int m = 0; m < marketTenors.length; m++) {
+      if (spreadBumpType == SpreadBumpType.ADDITIVE_PARALLEL) {
+        bumpedUpMarketSpreads[m] = marketSpreads[m] + spreadBump;
+        bumpedDownMarketSpreads[m] = marketSpreads[m] - spreadBump;
+      }
+
+      if (spreadBumpType == SpreadBumpType.MULTIPLICATIVE_PARALLEL) {
+        bumpedUpMarketSpreads[m] = marketSpreads[m] * (1 + spreadBump);
+        bumpedDownMarketSpreads[m] = marketSpreads[m] * (1 - spreadBump);
+      }
+    }
+
+    // -------------------------------------------------------------
+
+    // The parallel CS01 are computed analytically (calibration Jacobian), the gamma is their central difference (no full revaluation per bump)
+    double bumpedUpCS01 = _engine.getCS01ParallelShiftCreditDefaultSwap(cds, yieldCurve, marketTenors, bumpedUpMarketSpreads, spreadBumpType);
+    double bumpedDownCS01 = _engine.getCS01ParallelShiftCreditDefaultSwap(cds, yieldCurve, marketTenors, bumpedDownMarketSpreads, spreadBumpType);
+
+    // A multiplicative CS01 is weighted by the (bumped) spreads; rescale to the unbumped spreads
+    if (spreadBumpType == SpreadBumpType.MULTIPLICATIVE_PARALLEL) {
+      bumpedUpCS01 /= 1 + spreadBump;
+      bumpedDownCS01 /= 1 - spreadBump;
+    }
+
+    double parallelGamma = (bumpedUpCS01 - bumpedDownCS01) / (2 * spreadBump);
 
     return parallelGamma;
   }
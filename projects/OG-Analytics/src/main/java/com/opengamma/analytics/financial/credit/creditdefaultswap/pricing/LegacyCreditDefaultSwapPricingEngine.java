@@ -0,0 +1,447 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.credit.creditdefaultswap.pricing;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.time.calendar.ZonedDateTime;
+
+import com.opengamma.analytics.financial.credit.BuySellProtection;
+import com.opengamma.analytics.financial.credit.PriceType;
+import com.opengamma.analytics.financial.credit.SpreadBumpType;
+import com.opengamma.analytics.financial.credit.cds.ISDACurve;
+import com.opengamma.analytics.financial.credit.creditdefaultswap.definition.LegacyCreditDefaultSwapDefinition;
+import com.opengamma.analytics.financial.credit.schedulegeneration.GenerateCreditDefaultSwapPremiumLegSchedule;
+import com.opengamma.financial.convention.daycount.DayCountFactory;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Valuation, hazard rate calibration and spread sensitivities of vanilla Legacy CDS with piecewise (ISDA interpolated) hazard rate curves.
+ * <p>
+ * The valuation reproduces {@link PresentValueLegacyCreditDefaultSwap} with a {@link com.opengamma.analytics.financial.credit.hazardratemodel.HazardRateCurve} built
+ * on the same node times and hazard rates (with no offset). The premium leg, accrued leg and contingent leg schedules, the integration grids and the discount factors
+ * on them are built once per contract, yield curve and set of hazard rate node times and cached; the legs are then valued over primitive arrays. The derivatives of
+ * the legs with respect to the node hazard rates are computed by Adjoint Algorithmic Differentiation in the same pass.
+ * <p>
+ * The calibration bootstraps the hazard rates with a Newton solver using the analytic derivative of the calibration CDS PV (the schedules of the calibration CDS are
+ * cached too). The bucketed CS01 are computed analytically: the (lower triangular) Jacobian of the calibration CDS PVs with respect to the hazard rates is inverted
+ * by forward substitution (implicit function theorem), with no spread bump and no re-calibration.
+ * <p>
+ * The cache is keyed by the yield curve instance and holds at most a fixed number of schedules, the least recently used being evicted first; it can be emptied
+ * with {@link #clearCache()} when the curves are rebuilt.
+ */
+public class LegacyCreditDefaultSwapPricingEngine {
+
+  // -------------------------------------------------------------------------------------------------
+
+  private static final int DEFAULT_MAX_NUMBER_OF_ITERATIONS = 100;
+  private static final double DEFAULT_TOLERANCE = 1e-15;
+  private static final int DEFAULT_MAXIMUM_CACHED_SCHEDULES = 1000;
+
+  private final int _maximumNumberOfIterations;
+  private final double _tolerance;
+
+  private final ScheduleCache _schedules;
+
+  // -------------------------------------------------------------------------------------------------
+
+  public LegacyCreditDefaultSwapPricingEngine() {
+    this(DEFAULT_MAX_NUMBER_OF_ITERATIONS, DEFAULT_TOLERANCE);
+  }
+
+  public LegacyCreditDefaultSwapPricingEngine(final int maximumNumberOfIterations, final double tolerance) {
+    this(maximumNumberOfIterations, tolerance, DEFAULT_MAXIMUM_CACHED_SCHEDULES);
+  }
+
+  public LegacyCreditDefaultSwapPricingEngine(final int maximumNumberOfIterations, final double tolerance, final int maximumCachedSchedules) {
+    ArgumentChecker.isTrue(maximumNumberOfIterations > 0, "Need a positive number of iterations");
+    ArgumentChecker.notNegativeOrZero(tolerance, "Tolerance");
+    ArgumentChecker.isTrue(maximumCachedSchedules > 0, "Need a positive number of cached schedules");
+    _maximumNumberOfIterations = maximumNumberOfIterations;
+    _tolerance = tolerance;
+    _schedules = new ScheduleCache(maximumCachedSchedules);
+  }
+
+  // -------------------------------------------------------------------------------------------------
+
+  /**
+   * Removes all the cached schedules.
+   */
+  public void clearCache() {
+    synchronized (_schedules) {
+      _schedules.clear();
+    }
+  }
+
+  /**
+   * Gets the number of cached schedules.
+   * @return The number of cached schedules
+   */
+  public int getCacheSize() {
+    synchronized (_schedules) {
+      return _schedules.size();
+    }
+  }
+
+  // -------------------------------------------------------------------------------------------------
+
+  /**
+   * Computes the PV of a CDS.
+   * @param cds The CDS, not null
+   * @param yieldCurve The yield curve, not null
+   * @param hazardRateTimes The node times of the hazard rate curve (measured from the valuation date), not null
+   * @param hazardRates The hazard rates at the nodes, not null
+   * @return The PV
+   */
+  public double getPresentValueCreditDefaultSwap(final LegacyCreditDefaultSwapDefinition cds, final ISDACurve yieldCurve, final double[] hazardRateTimes,
+      final double[] hazardRates) {
+    ArgumentChecker.notNull(hazardRateTimes, "Hazard rate times");
+    ArgumentChecker.notNull(hazardRates, "Hazard rates");
+    ArgumentChecker.isTrue(hazardRateTimes.length == hazardRates.length, "Number of hazard rate times and hazard rates should be equal");
+    return presentValue(cds, getSchedule(cds, yieldCurve, hazardRateTimes), hazardRates, null);
+  }
+
+  /**
+   * Computes the PV of a CDS and its derivatives with respect to the node hazard rates.
+   * @param cds The CDS, not null
+   * @param yieldCurve The yield curve, not null
+   * @param hazardRateTimes The node times of the hazard rate curve (measured from the valuation date), not null
+   * @param hazardRates The hazard rates at the nodes, not null
+   * @return The PV (first element) followed by the derivatives with respect to each hazard rate
+   */
+  public double[] getPresentValueHazardRateSensitivityCreditDefaultSwap(final LegacyCreditDefaultSwapDefinition cds, final ISDACurve yieldCurve,
+      final double[] hazardRateTimes, final double[] hazardRates) {
+    ArgumentChecker.notNull(hazardRateTimes, "Hazard rate times");
+    ArgumentChecker.notNull(hazardRates, "Hazard rates");
+    ArgumentChecker.isTrue(hazardRateTimes.length == hazardRates.length, "Number of hazard rate times and hazard rates should be equal");
+    final double[] hazardRatesBar = new double[hazardRates.length];
+    final double presentValue = presentValue(cds, getSchedule(cds, yieldCurve, hazardRateTimes), hazardRates, hazardRatesBar);
+    final double[] result = new double[hazardRates.length + 1];
+    result[0] = presentValue;
+    System.arraycopy(hazardRatesBar, 0, result, 1, hazardRates.length);
+    return result;
+  }
+
+  /**
+   * Computes the par spread (in bps) of a CDS at contract inception.
+   * @param cds The CDS, not null
+   * @param yieldCurve The yield curve, not null
+   * @param hazardRateTimes The node times of the hazard rate curve (measured from the valuation date), not null
+   * @param hazardRates The hazard rates at the nodes, not null
+   * @return The par spread
+   */
+  public double getParSpreadCreditDefaultSwap(final LegacyCreditDefaultSwapDefinition cds, final ISDACurve yieldCurve, final double[] hazardRateTimes,
+      final double[] hazardRates) {
+    ArgumentChecker.notNull(hazardRateTimes, "Hazard rate times");
+    ArgumentChecker.notNull(hazardRates, "Hazard rates");
+    ArgumentChecker.isTrue(hazardRateTimes.length == hazardRates.length, "Number of hazard rate times and hazard rates should be equal");
+    final LegacyCreditDefaultSwapValuationSchedule schedule = getSchedule(cds, yieldCurve, hazardRateTimes);
+    ArgumentChecker.isTrue(schedule.isValuationDateAdjustedEffectiveDate(), "Valuation Date should equal the adjusted effective date when computing par spreads");
+    final double presentValuePremiumLeg = schedule.premiumLeg(hazardRates, null);
+    if (Double.doubleToLongBits(presentValuePremiumLeg) == 0.0) {
+      throw new IllegalStateException("Warning : The premium leg has a PV of zero - par spread cannot be computed");
+    }
+    return 10000.0 * (1 - cds.getRecoveryRate()) * schedule.contingentLeg(hazardRates, null) / presentValuePremiumLeg;
+  }
+
+  // -------------------------------------------------------------------------------------------------
+
+  /**
+   * Calibrates a piecewise hazard rate term structure to the market observed par CDS spreads. The result is the same as
+   * {@link com.opengamma.analytics.financial.credit.hazardratemodel.CalibrateHazardRateCurve#getCalibratedHazardRateTermStructure}.
+   * @param cds The CDS carrying the contract conventions of the calibration instruments, not null
+   * @param tenors The maturities of the calibration instruments, not null
+   * @param marketSpreads The par spreads (in bps) of the calibration instruments, not null
+   * @param yieldCurve The yield curve, not null
+   * @return The calibrated hazard rates, one per tenor
+   */
+  public double[] getCalibratedHazardRateTermStructure(final LegacyCreditDefaultSwapDefinition cds, final ZonedDateTime[] tenors, final double[] marketSpreads,
+      final ISDACurve yieldCurve) {
+    return calibrate(cds, tenors, marketSpreads, yieldCurve, null);
+  }
+
+  /**
+   * Computes the bucketed CS01 of a CDS: the derivatives of the PV with respect to each of the market par spreads (in bps) the hazard rate curve is calibrated to.
+   * The derivatives are computed analytically through the calibration Jacobian.
+   * @param cds The CDS, not null
+   * @param yieldCurve The yield curve, not null
+   * @param marketTenors The maturities of the calibration instruments, not null
+   * @param marketSpreads The par spreads (in bps) of the calibration instruments, not null
+   * @return The bucketed CS01 (per bp), one per tenor
+   */
+  public double[] getCS01BucketedCreditDefaultSwap(final LegacyCreditDefaultSwapDefinition cds, final ISDACurve yieldCurve, final ZonedDateTime[] marketTenors,
+      final double[] marketSpreads) {
+
+    final int n = marketTenors.length;
+    final double[][] hazardRateSpreadSensitivity = new double[n][n];
+    final double[] hazardRates = calibrate(cds, marketTenors, marketSpreads, yieldCurve, hazardRateSpreadSensitivity);
+    final double[] tenorsAsDoubles = getTenorsAsDoubles(cds, marketTenors);
+    final double[] presentValueSensitivity = getPresentValueHazardRateSensitivityCreditDefaultSwap(cds, yieldCurve, tenorsAsDoubles, hazardRates);
+
+    final double[] bucketedCS01 = new double[n];
+    for (int k = 0; k < n; k++) {
+      for (int j = k; j < n; j++) {
+        bucketedCS01[k] += presentValueSensitivity[j + 1] * hazardRateSpreadSensitivity[j][k];
+      }
+    }
+    return bucketedCS01;
+  }
+
+  /**
+   * Computes the CS01 of a CDS for a parallel shift of the market par spreads, analytically from the bucketed CS01.
+   * @param cds The CDS, not null
+   * @param yieldCurve The yield curve, not null
+   * @param marketTenors The maturities of the calibration instruments, not null
+   * @param marketSpreads The par spreads (in bps) of the calibration instruments, not null
+   * @param spreadBumpType The type of the parallel shift, additive (CS01 per bp) or multiplicative (CS01 per unit relative shift), not null
+   * @return The parallel CS01
+   */
+  public double getCS01ParallelShiftCreditDefaultSwap(final LegacyCreditDefaultSwapDefinition cds, final ISDACurve yieldCurve, final ZonedDateTime[] marketTenors,
+      final double[] marketSpreads, final SpreadBumpType spreadBumpType) {
+    ArgumentChecker.notNull(spreadBumpType, "Spread bump type");
+    final double[] bucketedCS01 = getCS01BucketedCreditDefaultSwap(cds, yieldCurve, marketTenors, marketSpreads);
+    double parallelCS01 = 0.0;
+    for (int m = 0; m < bucketedCS01.length; m++) {
+      if (spreadBumpType == SpreadBumpType.ADDITIVE_PARALLEL) {
+        parallelCS01 += bucketedCS01[m];
+      } else if (spreadBumpType == SpreadBumpType.MULTIPLICATIVE_PARALLEL) {
+        parallelCS01 += marketSpreads[m] * bucketedCS01[m];
+      } else {
+        throw new IllegalArgumentException("Cannot handle spread bump type " + spreadBumpType);
+      }
+    }
+    return parallelCS01;
+  }
+
+  // -------------------------------------------------------------------------------------------------
+
+  private LegacyCreditDefaultSwapValuationSchedule getSchedule(final LegacyCreditDefaultSwapDefinition cds, final ISDACurve yieldCurve, final double[] hazardRateTimes) {
+    ArgumentChecker.notNull(cds, "LegacyCreditDefaultSwapDefinition");
+    ArgumentChecker.notNull(yieldCurve, "YieldCurve");
+    ArgumentChecker.notNull(hazardRateTimes, "Hazard rate times");
+    final ScheduleKey key = new ScheduleKey(cds, yieldCurve, hazardRateTimes);
+    synchronized (_schedules) {
+      final LegacyCreditDefaultSwapValuationSchedule schedule = _schedules.get(key);
+      if (schedule != null) {
+        return schedule;
+      }
+    }
+    // built outside the lock; two threads may build the same schedule, the results are identical
+    final LegacyCreditDefaultSwapValuationSchedule schedule = new LegacyCreditDefaultSwapValuationSchedule(cds, yieldCurve, hazardRateTimes);
+    synchronized (_schedules) {
+      _schedules.put(key, schedule);
+    }
+    return schedule;
+  }
+
+  private double presentValue(final LegacyCreditDefaultSwapDefinition cds, final LegacyCreditDefaultSwapValuationSchedule schedule, final double[] hazardRates,
+      final double[] hazardRatesBar) {
+
+    final double spread = cds.getParSpread() / 10000.0;
+    final double sign = cds.getBuySellProtection() == BuySellProtection.SELL ? -1.0 : 1.0;
+    final double[] premiumLegBar = hazardRatesBar == null ? null : new double[hazardRates.length];
+    final double[] contingentLegBar = hazardRatesBar == null ? null : new double[hazardRates.length];
+
+    final double presentValuePremiumLeg = cds.getNotional() * schedule.premiumLeg(hazardRates, premiumLegBar);
+    final double lossGivenDefault = cds.getNotional() * (1 - cds.getRecoveryRate());
+    final double presentValueContingentLeg = lossGivenDefault * schedule.contingentLeg(hazardRates, contingentLegBar);
+
+    double presentValue = -spread * presentValuePremiumLeg + presentValueContingentLeg;
+    if (cds.getPriceType() == PriceType.CLEAN) {
+      presentValue += spread * schedule.getAccruedInterestDayCountFraction() * cds.getNotional();
+    }
+
+    if (hazardRatesBar != null) {
+      for (int j = 0; j < hazardRates.length; j++) {
+        hazardRatesBar[j] += sign * (-spread * cds.getNotional() * premiumLegBar[j] + lossGivenDefault * contingentLegBar[j]);
+      }
+    }
+    return sign * presentValue;
+  }
+
+  /**
+   * The derivative of the PV with respect to the contractual spread (in bps).
+   */
+  private double presentValueSpreadSensitivity(final LegacyCreditDefaultSwapDefinition cds, final LegacyCreditDefaultSwapValuationSchedule schedule,
+      final double[] hazardRates) {
+    final double sign = cds.getBuySellProtection() == BuySellProtection.SELL ? -1.0 : 1.0;
+    double derivative = -cds.getNotional() * schedule.premiumLeg(hazardRates, null);
+    if (cds.getPriceType() == PriceType.CLEAN) {
+      derivative += schedule.getAccruedInterestDayCountFraction() * cds.getNotional();
+    }
+    return sign * derivative / 10000.0;
+  }
+
+  /**
+   * Bootstraps the hazard rates. If hazardRateSpreadSensitivity is not null, it is filled with the derivatives of the calibrated hazard rates with respect
+   * to the market spreads (lower triangular).
+   */
+  private double[] calibrate(final LegacyCreditDefaultSwapDefinition cds, final ZonedDateTime[] tenors, final double[] marketSpreads, final ISDACurve yieldCurve,
+      final double[][] hazardRateSpreadSensitivity) {
+
+    ArgumentChecker.notNull(cds, "CDS field");
+    ArgumentChecker.notNull(yieldCurve, "YieldCurve field");
+    ArgumentChecker.notNull(tenors, "Tenors field");
+    ArgumentChecker.notNull(marketSpreads, "Market observed CDS spreads field");
+    ArgumentChecker.isTrue(tenors.length == marketSpreads.length, "Number of tenors and number of spreads should be equal");
+
+    for (int m = 0; m < tenors.length; m++) {
+      ArgumentChecker.isTrue(tenors[m].isAfter(cds.getValuationDate()), "Calibration instrument of tenor {} is before the valuation date {}", tenors[m], cds.getValuationDate());
+      if (tenors.length > 1 && m > 0) {
+        ArgumentChecker.isTrue(tenors[m].isAfter(tenors[m - 1]), "Tenors not in ascending order");
+      }
+      ArgumentChecker.notNegative(marketSpreads[m], "Market spread at tenor " + tenors[m]);
+      ArgumentChecker.notZero(marketSpreads[m], _tolerance, "Market spread at tenor " + tenors[m]);
+    }
+
+    final int n = tenors.length;
+    final double[] tenorsAsDoubles = getTenorsAsDoubles(cds, tenors);
+    final double[] hazardRates = new double[n];
+    // Jacobian of the calibration CDS PVs with respect to the hazard rates (lower triangular) and derivatives with respect to their spreads
+    final double[][] jacobian = new double[n][];
+    final double[] spreadSensitivity = new double[n];
+
+    for (int m = 0; m < n; m++) {
+
+      final double[] runningTenors = Arrays.copyOf(tenorsAsDoubles, m + 1);
+      final double[] runningHazardRates = Arrays.copyOf(hazardRates, m + 1);
+      final LegacyCreditDefaultSwapDefinition calibrationCDS = cds.withMaturityDate(tenors[m]).withSpread(marketSpreads[m]);
+      final LegacyCreditDefaultSwapValuationSchedule schedule = getSchedule(calibrationCDS, yieldCurve, runningTenors);
+
+      hazardRates[m] = calibrateHazardRate(calibrationCDS, schedule, runningHazardRates);
+
+      if (hazardRateSpreadSensitivity != null) {
+        runningHazardRates[m] = hazardRates[m];
+        jacobian[m] = new double[m + 1];
+        presentValue(calibrationCDS, schedule, runningHazardRates, jacobian[m]);
+        spreadSensitivity[m] = presentValueSpreadSensitivity(calibrationCDS, schedule, runningHazardRates);
+      }
+    }
+
+    if (hazardRateSpreadSensitivity != null) {
+      // PV_m(h(s), s_m) = 0 => J dh/ds = -diag(dPV_m/ds_m), solved column by column by forward substitution
+      for (int k = 0; k < n; k++) {
+        for (int j = k; j < n; j++) {
+          double sum = j == k ? -spreadSensitivity[k] : 0.0;
+          for (int i = k; i < j; i++) {
+            sum -= jacobian[j][i] * hazardRateSpreadSensitivity[i][k];
+          }
+          hazardRateSpreadSensitivity[j][k] = sum / jacobian[j][j];
+        }
+      }
+    }
+
+    return hazardRates;
+  }
+
+  /**
+   * Newton root search (with the analytic derivative) for the last hazard rate, falling back on bisection if a Newton step leaves the bracket.
+   */
+  private double calibrateHazardRate(final LegacyCreditDefaultSwapDefinition calibrationCDS, final LegacyCreditDefaultSwapValuationSchedule schedule,
+      final double[] hazardRates) {
+
+    final int last = hazardRates.length - 1;
+    final double[] hazardRatesBar = new double[hazardRates.length];
+    double lower = 0.0;
+    double upper = Double.POSITIVE_INFINITY;
+    double hazardRate = (calibrationCDS.getParSpread() / 10000.0) / (1 - calibrationCDS.getRecoveryRate());
+
+    for (int i = 0; i < _maximumNumberOfIterations; i++) {
+
+      hazardRates[last] = hazardRate;
+      Arrays.fill(hazardRatesBar, 0.0);
+      final double presentValue = presentValue(calibrationCDS, schedule, hazardRates, hazardRatesBar);
+      final double derivative = hazardRatesBar[last];
+
+      if (Double.doubleToLongBits(presentValue) == 0L) {
+        return hazardRate;
+      }
+
+      // Keep a bracket of the root (the PV is monotonic in the hazard rate)
+      if (presentValue * derivative > 0.0) {
+        upper = hazardRate;
+      } else {
+        lower = hazardRate;
+      }
+
+      double next = hazardRate - presentValue / derivative;
+      if (!(next > lower && next < upper)) {
+        next = Double.isInfinite(upper) ? 2.0 * hazardRate + _tolerance : 0.5 * (lower + upper);
+      }
+
+      if (Math.abs(next - hazardRate) < _tolerance * Math.max(1.0, hazardRate)) {
+        return next;
+      }
+      hazardRate = next;
+    }
+
+    throw new IllegalStateException("Could not calibrate the hazard rate for tenor " + calibrationCDS.getMaturityDate() + " in " + _maximumNumberOfIterations + " iterations");
+  }
+
+  private static double[] getTenorsAsDoubles(final LegacyCreditDefaultSwapDefinition cds, final ZonedDateTime[] tenors) {
+    return new GenerateCreditDefaultSwapPremiumLegSchedule().convertTenorsToDoubles(tenors, cds.getValuationDate(), DayCountFactory.INSTANCE.getDayCount("ACT/365"));
+  }
+
+  // -------------------------------------------------------------------------------------------------
+
+  /**
+   * Least recently used cache of the schedules, guarded by its own monitor.
+   */
+  private static final class ScheduleCache extends LinkedHashMap<ScheduleKey, LegacyCreditDefaultSwapValuationSchedule> {
+    private static final long serialVersionUID = 1L;
+    private final int _maximumSize;
+
+    ScheduleCache(final int maximumSize) {
+      super(16, 0.75f, true);
+      _maximumSize = maximumSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<ScheduleKey, LegacyCreditDefaultSwapValuationSchedule> eldest) {
+      return size() > _maximumSize;
+    }
+  }
+
+  /**
+   * The cache key of the schedules: the contract dates and conventions that the schedules depend on, the yield curve (by identity) and the hazard rate node times.
+   * The spread, notional, recovery rate, direction and price type do not change the schedules.
+   */
+  private static final class ScheduleKey {
+    private final Object[] _fields;
+    private final ISDACurve _yieldCurve;
+    private final double[] _hazardRateTimes;
+    private final int _hashCode;
+
+    ScheduleKey(final LegacyCreditDefaultSwapDefinition cds, final ISDACurve yieldCurve, final double[] hazardRateTimes) {
+      _fields = new Object[] {cds.getValuationDate(), cds.getStartDate(), cds.getEffectiveDate(), cds.getMaturityDate(), cds.getCalendar(), cds.getStubType(),
+        cds.getCouponFrequency(), cds.getDayCountFractionConvention(), cds.getBusinessDayAdjustmentConvention(), cds.getIMMAdjustMaturityDate(),
+        cds.getAdjustEffectiveDate(), cds.getAdjustMaturityDate(), cds.getIncludeAccruedPremium(), cds.getProtectionStart(), cds.getProtectionOffset() };
+      _yieldCurve = yieldCurve;
+      _hazardRateTimes = hazardRateTimes.clone();
+      _hashCode = 31 * (31 * Arrays.hashCode(_fields) + System.identityHashCode(yieldCurve)) + Arrays.hashCode(_hazardRateTimes);
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof ScheduleKey)) {
+        return false;
+      }
+      final ScheduleKey other = (ScheduleKey) obj;
+      return _yieldCurve == other._yieldCurve && Arrays.equals(_hazardRateTimes, other._hazardRateTimes) && Arrays.equals(_fields, other._fields);
+    }
+  }
+
+}
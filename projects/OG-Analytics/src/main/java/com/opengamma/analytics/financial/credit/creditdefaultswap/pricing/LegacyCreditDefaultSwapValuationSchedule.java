@@ -0,0 +1,402 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.credit.creditdefaultswap.pricing;
+
+import javax.time.calendar.ZonedDateTime;
+
+import com.opengamma.analytics.financial.credit.cds.ISDACurve;
+import com.opengamma.analytics.financial.credit.creditdefaultswap.definition.LegacyCreditDefaultSwapDefinition;
+import com.opengamma.analytics.financial.credit.hazardratemodel.HazardRateCurve;
+import com.opengamma.analytics.financial.credit.schedulegeneration.GenerateCreditDefaultSwapIntegrationSchedule;
+import com.opengamma.analytics.financial.credit.schedulegeneration.GenerateCreditDefaultSwapPremiumLegSchedule;
+import com.opengamma.analytics.util.time.TimeCalculator;
+import com.opengamma.financial.convention.daycount.DayCount;
+import com.opengamma.financial.convention.daycount.DayCountFactory;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * The premium leg, accrued leg and contingent leg schedules of a vanilla Legacy CDS, reduced to primitive arrays of times, day count fractions and discount factors.
+ * <p>
+ * The schedules are the ones used by {@link PresentValueLegacyCreditDefaultSwap}; they depend on the contract dates and conventions, on the yield curve and on the node
+ * times of the hazard rate curve, but not on the hazard rates themselves. For every time at which a survival probability is required, the weights of the
+ * piecewise linear (in t * h(t)) ISDA hazard rate interpolation are also stored, so that the survival probabilities (and their derivatives with respect to the
+ * node hazard rates) are computed with a dot product.
+ */
+final class LegacyCreditDefaultSwapValuationSchedule {
+
+  private static final DayCount ACT_365 = DayCountFactory.INSTANCE.getDayCount("ACT/365");
+
+  private static final double HALF_DAY_ACT_365F = 0.5 * (1.0 / 365.0);
+
+  // -------------------------------------------------------------------------------------------------
+
+  private final int _numberOfNodes;
+
+  // Premium leg : one entry per remaining coupon (empty if the valuation date is the adjusted maturity date)
+  private final double[] _premiumDayCountFractions;
+  private final double[] _premiumDiscountFactors;
+  private final SurvivalWeights _premiumSurvival;
+
+  // Accrued on default : integration timeline, the timeline indices bounding each coupon and the survival at the start of each sub-period
+  private final boolean _includeAccruedPremium;
+  private final double[] _accruedTimeline;
+  private final double[] _accruedDiscountFactors;
+  private final SurvivalWeights _accruedSurvival;
+  private final int[] _accruedStartIndex;
+  private final int[] _accruedEndIndex;
+  private final SurvivalWeights _accruedSubStartSurvival;
+  private final double _offsetStepinTime;
+
+  // Contingent leg : integration timeline
+  private final double[] _contingentTimeline;
+  private final double[] _contingentDiscountFactors;
+  private final SurvivalWeights _contingentSurvival;
+
+  // Accrued interest (clean price) day count fraction, NaN if there is no previous coupon
+  private final double _accruedInterestDayCountFraction;
+
+  private final boolean _valuationDateIsAdjustedEffectiveDate;
+
+  // -------------------------------------------------------------------------------------------------
+
+  LegacyCreditDefaultSwapValuationSchedule(final LegacyCreditDefaultSwapDefinition cds, final ISDACurve yieldCurve, final double[] hazardRateTimes) {
+
+    ArgumentChecker.notNull(cds, "LegacyCreditDefaultSwapDefinition");
+    ArgumentChecker.notNull(yieldCurve, "YieldCurve");
+    ArgumentChecker.notNull(hazardRateTimes, "Hazard rate times");
+    ArgumentChecker.isTrue(hazardRateTimes.length > 0, "Need at least one hazard rate time");
+
+    _numberOfNodes = hazardRateTimes.length;
+
+    // The integration schedules only use the node times of the hazard rate curve
+    final HazardRateCurve nodeCurve = new HazardRateCurve(hazardRateTimes, new double[_numberOfNodes], 0.0);
+
+    final GenerateCreditDefaultSwapPremiumLegSchedule cashflowSchedule = new GenerateCreditDefaultSwapPremiumLegSchedule();
+    final GenerateCreditDefaultSwapIntegrationSchedule integrationSchedule = new GenerateCreditDefaultSwapIntegrationSchedule();
+
+    final ZonedDateTime[] premiumLegSchedule = cashflowSchedule.constructCreditDefaultSwapPremiumLegSchedule(cds);
+    final ZonedDateTime valuationDate = cds.getValuationDate();
+    final ZonedDateTime adjustedMaturityDate = cashflowSchedule.getAdjustedMaturityDate(cds);
+
+    ArgumentChecker.isTrue(!valuationDate.isAfter(adjustedMaturityDate), "Valuation date {} must be on or before the adjusted maturity date {}", valuationDate, adjustedMaturityDate);
+
+    _valuationDateIsAdjustedEffectiveDate = valuationDate.equals(cashflowSchedule.getAdjustedEffectiveDate(cds));
+    _includeAccruedPremium = cds.getIncludeAccruedPremium();
+    _offsetStepinTime = integrationSchedule.calculateCreditDefaultSwapOffsetStepinTime(cds, ACT_365);
+
+    // -------------------------------------------------------------
+
+    // Premium leg and accrued leg
+
+    _accruedTimeline = integrationSchedule.constructCreditDefaultSwapAccruedLegIntegrationSchedule(cds, yieldCurve, nodeCurve);
+    _accruedDiscountFactors = getDiscountFactors(yieldCurve, _accruedTimeline);
+    _accruedSurvival = new SurvivalWeights(hazardRateTimes, _accruedTimeline);
+
+    if (valuationDate.equals(adjustedMaturityDate)) {
+      _premiumDayCountFractions = new double[0];
+      _premiumDiscountFactors = new double[0];
+      _premiumSurvival = new SurvivalWeights(hazardRateTimes, new double[0]);
+      _accruedStartIndex = new int[0];
+      _accruedEndIndex = new int[0];
+      _accruedSubStartSurvival = new SurvivalWeights(hazardRateTimes, new double[0]);
+    } else {
+      int startCashflowIndex = 1;
+      while (!valuationDate.isBefore(premiumLegSchedule[startCashflowIndex].minusDays(1))) {
+        startCashflowIndex++;
+      }
+      final int nCoupons = premiumLegSchedule.length - startCashflowIndex;
+      _premiumDayCountFractions = new double[nCoupons];
+      _premiumDiscountFactors = new double[nCoupons];
+      _accruedStartIndex = new int[nCoupons];
+      _accruedEndIndex = new int[nCoupons];
+      final double[] premiumTimes = new double[nCoupons];
+      final double[] subStartTimes = new double[nCoupons];
+      int endIndex = 0;
+      for (int i = startCashflowIndex; i < premiumLegSchedule.length; i++) {
+        final int c = i - startCashflowIndex;
+        ZonedDateTime accrualStart = premiumLegSchedule[i - 1];
+        ZonedDateTime accrualEnd = premiumLegSchedule[i];
+        double t = TimeCalculator.getTimeBetween(valuationDate, accrualEnd, ACT_365);
+        _premiumDiscountFactors[c] = yieldCurve.getDiscountFactor(t);
+        if (cds.getProtectionStart()) {
+          if (i < premiumLegSchedule.length - 1) {
+            t -= cds.getProtectionOffset();
+          }
+          if (i == 1) {
+            accrualStart = accrualStart.minusDays(1);
+          }
+          if (i == premiumLegSchedule.length - 1) {
+            accrualEnd = accrualEnd.plusDays(1);
+          }
+        }
+        _premiumDayCountFractions[c] = cds.getDayCountFractionConvention().getDayCountFraction(accrualStart, accrualEnd);
+        premiumTimes[c] = t;
+        if (_includeAccruedPremium) {
+          final int startIndex = endIndex;
+          while (_accruedTimeline[endIndex] < t) {
+            ++endIndex;
+          }
+          _accruedStartIndex[c] = startIndex;
+          _accruedEndIndex[c] = endIndex;
+          subStartTimes[c] = Math.max(_offsetStepinTime, _accruedTimeline[startIndex]);
+        }
+      }
+      _premiumSurvival = new SurvivalWeights(hazardRateTimes, premiumTimes);
+      _accruedSubStartSurvival = new SurvivalWeights(hazardRateTimes, subStartTimes);
+    }
+
+    // -------------------------------------------------------------
+
+    // Contingent leg
+
+    _contingentTimeline = integrationSchedule.constructCreditDefaultSwapContingentLegIntegrationSchedule(cds, yieldCurve, nodeCurve);
+    _contingentDiscountFactors = getDiscountFactors(yieldCurve, _contingentTimeline);
+    _contingentSurvival = new SurvivalWeights(hazardRateTimes, _contingentTimeline);
+
+    // -------------------------------------------------------------
+
+    // Accrued interest between the previous coupon date and the stepin date (used for clean prices)
+
+    int previousCashflowIndex = 0;
+    while (!valuationDate.isBefore(premiumLegSchedule[previousCashflowIndex].minusDays(1))) {
+      previousCashflowIndex++;
+    }
+    if (previousCashflowIndex > 0) {
+      _accruedInterestDayCountFraction = cds.getDayCountFractionConvention().getDayCountFraction(premiumLegSchedule[previousCashflowIndex - 1], valuationDate.plusDays(1));
+    } else {
+      _accruedInterestDayCountFraction = Double.NaN;
+    }
+  }
+
+  // -------------------------------------------------------------------------------------------------
+
+  int getNumberOfNodes() {
+    return _numberOfNodes;
+  }
+
+  boolean isValuationDateAdjustedEffectiveDate() {
+    return _valuationDateIsAdjustedEffectiveDate;
+  }
+
+  double getAccruedInterestDayCountFraction() {
+    if (Double.isNaN(_accruedInterestDayCountFraction)) {
+      throw new IllegalStateException("No coupon date before the valuation date - cannot compute the accrued interest");
+    }
+    return _accruedInterestDayCountFraction;
+  }
+
+  // -------------------------------------------------------------------------------------------------
+
+  /**
+   * Computes the risky value of the premium leg (per unit notional and unit spread, including the accrued on default if required) and, if hazardRatesBar is not null,
+   * adds the derivatives of that value with respect to the node hazard rates to hazardRatesBar.
+   * @param hazardRates The node hazard rates
+   * @param hazardRatesBar The derivatives, accumulated, may be null
+   * @return The premium leg value
+   */
+  double premiumLeg(final double[] hazardRates, final double[] hazardRatesBar) {
+
+    final double[] survival = _premiumSurvival.getSurvivalProbabilities(hazardRates);
+    double presentValuePremiumLeg = 0.0;
+    final double[] survivalBar = hazardRatesBar == null ? null : new double[survival.length];
+    for (int c = 0; c < survival.length; c++) {
+      presentValuePremiumLeg += _premiumDayCountFractions[c] * _premiumDiscountFactors[c] * survival[c];
+      if (survivalBar != null) {
+        survivalBar[c] = _premiumDayCountFractions[c] * _premiumDiscountFactors[c];
+      }
+    }
+    if (survivalBar != null) {
+      _premiumSurvival.addSensitivities(survival, survivalBar, hazardRatesBar);
+    }
+
+    if (!_includeAccruedPremium || survival.length == 0) {
+      return presentValuePremiumLeg;
+    }
+
+    // Accrued on default : same algorithm as the ISDA model
+
+    final double[] timelineSurvival = _accruedSurvival.getSurvivalProbabilities(hazardRates);
+    final double[] subStartSurvival = _accruedSubStartSurvival.getSurvivalProbabilities(hazardRates);
+    final double[] timelineSurvivalBar = hazardRatesBar == null ? null : new double[timelineSurvival.length];
+    final double[] subStartSurvivalBar = hazardRatesBar == null ? null : new double[subStartSurvival.length];
+    double presentValueAccruedInterest = 0.0;
+
+    for (int c = 0; c < survival.length; c++) {
+      final int startIndex = _accruedStartIndex[c];
+      final int endIndex = _accruedEndIndex[c];
+      final double startTime = _accruedTimeline[startIndex];
+      final double endTime = _accruedTimeline[endIndex];
+      final double accrualRate = _premiumDayCountFractions[c] / (endTime - startTime);
+
+      double t0 = Math.max(_offsetStepinTime, startTime) - startTime + HALF_DAY_ACT_365F;
+      double survival0 = subStartSurvival[c];
+      double discount0 = startTime < _offsetStepinTime || startTime < 0.0 ? 1.0 : _accruedDiscountFactors[startIndex];
+      // Index of the survival probability survival0 in the timeline, -1 for the sub-period start
+      int index0 = -1;
+
+      for (int i = startIndex + 1; i <= endIndex; ++i) {
+
+        if (_accruedTimeline[i] <= _offsetStepinTime) {
+          continue;
+        }
+
+        final double t1 = _accruedTimeline[i] - startTime + HALF_DAY_ACT_365F;
+        final double dt = t1 - t0;
+        final double survival1 = timelineSurvival[i];
+        final double discount1 = _accruedDiscountFactors[i];
+
+        final double lambda = Math.log(survival0 / survival1) / dt;
+        final double fwdRate = Math.log(discount0 / discount1) / dt;
+        final double lambdaFwdRate = lambda + fwdRate + 1.0e-50;
+        final double g0 = (t0 + 1.0 / lambdaFwdRate) / lambdaFwdRate;
+        final double g1 = (t1 + 1.0 / lambdaFwdRate) / lambdaFwdRate;
+
+        presentValueAccruedInterest += lambda * accrualRate * survival0 * discount0 * (g0 - g1 * survival1 / survival0 * discount1 / discount0);
+
+        if (hazardRatesBar != null) {
+          // value = accrualRate * lambda * (P0 g0 - P1 g1) with P = survival * discount, lambda and lambdaFwdRate both depend on the survival probabilities
+          final double p0 = survival0 * discount0;
+          final double p1 = survival1 * discount1;
+          final double a = p0 * g0 - p1 * g1;
+          final double aDerivative = -p0 * (t0 + 2.0 / lambdaFwdRate) / (lambdaFwdRate * lambdaFwdRate) + p1 * (t1 + 2.0 / lambdaFwdRate) / (lambdaFwdRate * lambdaFwdRate);
+          final double survival0Bar = accrualRate * ((a + lambda * aDerivative) / (survival0 * dt) + lambda * discount0 * g0);
+          final double survival1Bar = accrualRate * (-(a + lambda * aDerivative) / (survival1 * dt) - lambda * discount1 * g1);
+          if (index0 < 0) {
+            subStartSurvivalBar[c] += survival0Bar;
+          } else {
+            timelineSurvivalBar[index0] += survival0Bar;
+          }
+          timelineSurvivalBar[i] += survival1Bar;
+        }
+
+        t0 = t1;
+        survival0 = survival1;
+        discount0 = discount1;
+        index0 = i;
+      }
+    }
+
+    if (hazardRatesBar != null) {
+      _accruedSurvival.addSensitivities(timelineSurvival, timelineSurvivalBar, hazardRatesBar);
+      _accruedSubStartSurvival.addSensitivities(subStartSurvival, subStartSurvivalBar, hazardRatesBar);
+    }
+
+    return presentValuePremiumLeg + presentValueAccruedInterest;
+  }
+
+  /**
+   * Computes the value of the contingent leg (per unit notional and unit loss given default) and, if hazardRatesBar is not null, adds the derivatives of that value
+   * with respect to the node hazard rates to hazardRatesBar.
+   * @param hazardRates The node hazard rates
+   * @param hazardRatesBar The derivatives, accumulated, may be null
+   * @return The contingent leg value
+   */
+  double contingentLeg(final double[] hazardRates, final double[] hazardRatesBar) {
+
+    final double[] survival = _contingentSurvival.getSurvivalProbabilities(hazardRates);
+    final double[] survivalBar = hazardRatesBar == null ? null : new double[survival.length];
+    double presentValueContingentLeg = 0.0;
+
+    for (int i = 1; i < _contingentTimeline.length; ++i) {
+      final double deltat = _contingentTimeline[i] - _contingentTimeline[i - 1];
+      final double survivalProbabilityPrevious = survival[i - 1];
+      final double discountFactorPrevious = _contingentDiscountFactors[i - 1];
+      final double survivalProbability = survival[i];
+      final double discountFactor = _contingentDiscountFactors[i];
+      final double hazardRate = Math.log(survivalProbabilityPrevious / survivalProbability) / deltat;
+      final double interestRate = Math.log(discountFactorPrevious / discountFactor) / deltat;
+      final double ratio = hazardRate / (hazardRate + interestRate);
+
+      presentValueContingentLeg += ratio * (1.0 - Math.exp(-(hazardRate + interestRate) * deltat)) * survivalProbabilityPrevious * discountFactorPrevious;
+
+      if (survivalBar != null) {
+        // term = ratio * (P0 - P1) with P = survival * discount, the ratio depends on the survival probabilities through the hazard rate
+        final double difference = survivalProbabilityPrevious * discountFactorPrevious - survivalProbability * discountFactor;
+        final double ratioDerivative = interestRate / ((hazardRate + interestRate) * (hazardRate + interestRate));
+        survivalBar[i - 1] += ratioDerivative * difference / (survivalProbabilityPrevious * deltat) + ratio * discountFactorPrevious;
+        survivalBar[i] += -ratioDerivative * difference / (survivalProbability * deltat) - ratio * discountFactor;
+      }
+    }
+
+    if (survivalBar != null) {
+      _contingentSurvival.addSensitivities(survival, survivalBar, hazardRatesBar);
+    }
+
+    return presentValueContingentLeg;
+  }
+
+  // -------------------------------------------------------------------------------------------------
+
+  private static double[] getDiscountFactors(final ISDACurve yieldCurve, final double[] times) {
+    final double[] discountFactors = new double[times.length];
+    for (int i = 0; i < times.length; i++) {
+      discountFactors[i] = yieldCurve.getDiscountFactor(times[i]);
+    }
+    return discountFactors;
+  }
+
+  // -------------------------------------------------------------------------------------------------
+
+  /**
+   * The weights of the node hazard rates in t * h(t) for a set of times, with the ISDA interpolation (linear in t * h(t) between nodes, flat hazard rate before
+   * the first node and linear extrapolation of t * h(t) after the last node). The survival probability is exp(-t * h(t)) = exp(-w_l h_l - w_u h_{l+1}).
+   */
+  private static final class SurvivalWeights {
+    private final int[] _lowerNode;
+    private final double[] _lowerWeight;
+    private final double[] _upperWeight;
+
+    SurvivalWeights(final double[] nodes, final double[] times) {
+      final int n = nodes.length;
+      final int nTimes = times.length;
+      _lowerNode = new int[nTimes];
+      _lowerWeight = new double[nTimes];
+      _upperWeight = new double[nTimes];
+      for (int k = 0; k < nTimes; k++) {
+        final double t = times[k];
+        if (n == 1 || t <= nodes[0]) {
+          _lowerWeight[k] = t;
+          continue;
+        }
+        int lower = 0;
+        while (lower < n - 2 && t >= nodes[lower + 1]) {
+          lower++;
+        }
+        final double fraction = (t - nodes[lower]) / (nodes[lower + 1] - nodes[lower]);
+        _lowerNode[k] = lower;
+        _lowerWeight[k] = nodes[lower] * (1.0 - fraction);
+        _upperWeight[k] = nodes[lower + 1] * fraction;
+      }
+    }
+
+    double[] getSurvivalProbabilities(final double[] hazardRates) {
+      final int nTimes = _lowerNode.length;
+      final double[] survival = new double[nTimes];
+      for (int k = 0; k < nTimes; k++) {
+        final int lower = _lowerNode[k];
+        double rt = _lowerWeight[k] * hazardRates[lower];
+        if (_upperWeight[k] != 0.0) {
+          rt += _upperWeight[k] * hazardRates[lower + 1];
+        }
+        survival[k] = Math.exp(-rt);
+      }
+      return survival;
+    }
+
+    void addSensitivities(final double[] survival, final double[] survivalBar, final double[] hazardRatesBar) {
+      final int nTimes = _lowerNode.length;
+      for (int k = 0; k < nTimes; k++) {
+        final double rtBar = -survival[k] * survivalBar[k];
+        final int lower = _lowerNode[k];
+        hazardRatesBar[lower] += _lowerWeight[k] * rtBar;
+        if (_upperWeight[k] != 0.0) {
+          hazardRatesBar[lower + 1] += _upperWeight[k] * rtBar;
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,290 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.interestrate;
+
+import java.util.Arrays;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+
+/**
+ * The cash-flows of a portfolio of linear interest rate instruments, flattened by {@link CashFlowTableCompiler} into arrays. There are three kinds of row:
+ * <ul>
+ * <li> fixed amounts, which are discounted;
+ * <li> Ibor coupons, (N * &tau;<sub>p</sub> * F + spread amount) * P(t<sub>p</sub>) with F = (P(t<sub>s</sub>) / P(t<sub>e</sub>) - 1) / &tau;<sub>f</sub>;
+ * <li> FRAs, P(t<sub>p</sub>) * &tau;<sub>p</sub> * N * (F - K) / (1 + &tau;<sub>p</sub> * F).
+ * </ul>
+ * Each row refers to its trade and to the (curve, time) points at which it needs discount factors. A point is shared by all the rows that use it, so
+ * repricing the portfolio after a curve change interpolates each distinct date once and then makes one pass through each kind of row; nothing is
+ * dispatched, boxed or looked up by name per cash-flow.
+ * <p>
+ * The values are those of {@link PresentValueCalculator}, {@link ParRateCalculator} and {@link PresentValueNodeSensitivityCalculator}, up to the order in
+ * which the cash-flows are added.
+ * <p>
+ * This class is immutable and thread-safe.
+ */
+public final class CashFlowTable {
+  /** The trade has no par rate */
+  static final int PAR_NONE = 0;
+  /** The par rate is the rate of the fixed coupons that sets the present value to the par offset, e.g. swaps and bonds */
+  static final int PAR_ANNUITY = 1;
+  /** The par rate is a forward rate, e.g. FRAs, deposits and single Ibor coupons */
+  static final int PAR_FORWARD = 2;
+
+  private final String[] _curveNames;
+  private final int[] _pointCurve;
+  private final double[] _pointTime;
+  private final int _nTrades;
+
+  private final int[] _fixedTrade;
+  private final int[] _fixedPoint;
+  private final double[] _fixedAmount;
+  /** The amount per unit of rate for coupons in the par rate annuity, otherwise zero */
+  private final double[] _fixedRateAmount;
+
+  private final int[] _iborTrade;
+  private final int[] _iborPayment;
+  private final int[] _iborStart;
+  private final int[] _iborEnd;
+  private final double[] _iborNotionalAccrual;
+  private final double[] _iborFixingAccrual;
+  private final double[] _iborSpreadAmount;
+
+  private final int[] _fraTrade;
+  private final int[] _fraPayment;
+  private final int[] _fraStart;
+  private final int[] _fraEnd;
+  private final double[] _fraNotional;
+  private final double[] _fraPaymentAccrual;
+  private final double[] _fraFixingAccrual;
+  private final double[] _fraRate;
+
+  private final int[] _parType;
+  private final double[] _parOffset;
+  private final int[] _parStart;
+  private final int[] _parEnd;
+  private final double[] _parAccrual;
+
+  //CSOFF
+  /* package */CashFlowTable(final String[] curveNames, final int[] pointCurve, final double[] pointTime, final int nTrades,
+      final int[] fixedTrade, final int[] fixedPoint, final double[] fixedAmount, final double[] fixedRateAmount,
+      final int[] iborTrade, final int[] iborPayment, final int[] iborStart, final int[] iborEnd, final double[] iborNotionalAccrual, final double[] iborFixingAccrual,
+      final double[] iborSpreadAmount,
+      final int[] fraTrade, final int[] fraPayment, final int[] fraStart, final int[] fraEnd, final double[] fraNotional, final double[] fraPaymentAccrual,
+      final double[] fraFixingAccrual, final double[] fraRate,
+      final int[] parType, final double[] parOffset, final int[] parStart, final int[] parEnd, final double[] parAccrual) {
+    //CSON
+    _curveNames = curveNames;
+    _pointCurve = pointCurve;
+    _pointTime = pointTime;
+    _nTrades = nTrades;
+    _fixedTrade = fixedTrade;
+    _fixedPoint = fixedPoint;
+    _fixedAmount = fixedAmount;
+    _fixedRateAmount = fixedRateAmount;
+    _iborTrade = iborTrade;
+    _iborPayment = iborPayment;
+    _iborStart = iborStart;
+    _iborEnd = iborEnd;
+    _iborNotionalAccrual = iborNotionalAccrual;
+    _iborFixingAccrual = iborFixingAccrual;
+    _iborSpreadAmount = iborSpreadAmount;
+    _fraTrade = fraTrade;
+    _fraPayment = fraPayment;
+    _fraStart = fraStart;
+    _fraEnd = fraEnd;
+    _fraNotional = fraNotional;
+    _fraPaymentAccrual = fraPaymentAccrual;
+    _fraFixingAccrual = fraFixingAccrual;
+    _fraRate = fraRate;
+    _parType = parType;
+    _parOffset = parOffset;
+    _parStart = parStart;
+    _parEnd = parEnd;
+    _parAccrual = parAccrual;
+  }
+
+  /**
+   * @return The number of trades
+   */
+  public int getNumberOfTrades() {
+    return _nTrades;
+  }
+
+  /**
+   * @return The number of rows of all kinds
+   */
+  public int getNumberOfCashFlows() {
+    return _fixedTrade.length + _iborTrade.length + _fraTrade.length;
+  }
+
+  /**
+   * @return The number of distinct (curve, time) points at which discount factors are needed
+   */
+  public int getNumberOfPoints() {
+    return _pointTime.length;
+  }
+
+  /**
+   * @return The names of the curves used by the trades
+   */
+  public String[] getCurveNames() {
+    return Arrays.copyOf(_curveNames, _curveNames.length);
+  }
+
+  /**
+   * Computes the present value of each trade.
+   * @param curves The curves, not null. Must contain all the curves used by the trades
+   * @return The present values, in the order the trades were compiled
+   */
+  public double[] presentValues(final YieldCurveBundle curves) {
+    return presentValues(discountFactors(curves));
+  }
+
+  /**
+   * Computes the present value of the portfolio.
+   * @param curves The curves, not null. Must contain all the curves used by the trades
+   * @return The sum of the present values of the trades
+   */
+  public double presentValue(final YieldCurveBundle curves) {
+    double total = 0;
+    for (final double pv : presentValues(curves)) {
+      total += pv;
+    }
+    return total;
+  }
+
+  /**
+   * Computes the par rate of each trade: for swaps with a fixed leg the fixed rate that gives a zero present value, for fixed coupon bonds the coupon that
+   * prices the bond at par, and for FRAs, deposits and single Ibor coupons the forward rate.
+   * @param curves The curves, not null. Must contain all the curves used by the trades
+   * @return The par rates, in the order the trades were compiled; NaN for trades with no par rate
+   */
+  public double[] parRates(final YieldCurveBundle curves) {
+    final double[] df = discountFactors(curves);
+    final double[] pv = presentValues(df);
+    final double[] annuity = new double[_nTrades];
+    final double[] pvAnnuity = new double[_nTrades];
+    for (int i = 0; i < _fixedTrade.length; i++) {
+      if (_fixedRateAmount[i] != 0) {
+        final double d = df[_fixedPoint[i]];
+        annuity[_fixedTrade[i]] += _fixedRateAmount[i] * d;
+        pvAnnuity[_fixedTrade[i]] += _fixedAmount[i] * d;
+      }
+    }
+    final double[] result = new double[_nTrades];
+    for (int i = 0; i < _nTrades; i++) {
+      switch (_parType[i]) {
+        case PAR_ANNUITY:
+          result[i] = (_parOffset[i] - (pv[i] - pvAnnuity[i])) / annuity[i];
+          break;
+        case PAR_FORWARD:
+          result[i] = (df[_parStart[i]] / df[_parEnd[i]] - 1) / _parAccrual[i];
+          break;
+        default:
+          result[i] = Double.NaN;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Computes the sensitivity of the present value of the portfolio to the yields at the points used by the cash-flows. There is one sensitivity for each
+   * point, so the result does not need to be cleaned.
+   * @param curves The curves, not null. Must contain all the curves used by the trades
+   * @return The sensitivities
+   */
+  public MutableInterestRateCurveSensitivity presentValueCurveSensitivity(final YieldCurveBundle curves) {
+    final double[] df = discountFactors(curves);
+    // the derivative of the present value with respect to the discount factor at each point
+    final double[] dfBar = new double[df.length];
+    for (int i = 0; i < _fixedTrade.length; i++) {
+      dfBar[_fixedPoint[i]] += _fixedAmount[i];
+    }
+    for (int i = 0; i < _iborTrade.length; i++) {
+      final double dfStart = df[_iborStart[i]];
+      final double dfEnd = df[_iborEnd[i]];
+      final double dfPayment = df[_iborPayment[i]];
+      final double forward = (dfStart / dfEnd - 1) / _iborFixingAccrual[i];
+      final double forwardBar = _iborNotionalAccrual[i] * dfPayment;
+      dfBar[_iborPayment[i]] += _iborNotionalAccrual[i] * forward + _iborSpreadAmount[i];
+      dfBar[_iborStart[i]] += forwardBar / (_iborFixingAccrual[i] * dfEnd);
+      dfBar[_iborEnd[i]] -= forwardBar * dfStart / (_iborFixingAccrual[i] * dfEnd * dfEnd);
+    }
+    for (int i = 0; i < _fraTrade.length; i++) {
+      final double dfStart = df[_fraStart[i]];
+      final double dfEnd = df[_fraEnd[i]];
+      final double tau = _fraPaymentAccrual[i];
+      final double forward = (dfStart / dfEnd - 1) / _fraFixingAccrual[i];
+      final double denominator = 1 + tau * forward;
+      final double forwardBar = df[_fraPayment[i]] * tau * _fraNotional[i] * (1 + tau * _fraRate[i]) / (denominator * denominator);
+      dfBar[_fraPayment[i]] += tau * _fraNotional[i] * (forward - _fraRate[i]) / denominator;
+      dfBar[_fraStart[i]] += forwardBar / (_fraFixingAccrual[i] * dfEnd);
+      dfBar[_fraEnd[i]] -= forwardBar * dfStart / (_fraFixingAccrual[i] * dfEnd * dfEnd);
+    }
+    // dP/dr = -t * P
+    final MutableInterestRateCurveSensitivity result = new MutableInterestRateCurveSensitivity();
+    for (int p = 0; p < df.length; p++) {
+      final double t = _pointTime[p];
+      result.add(_curveNames[_pointCurve[p]], t, -t * df[p] * dfBar[p]);
+    }
+    return result;
+  }
+
+  /**
+   * Computes the sensitivity of the present value of the portfolio to the yields at the nodes of the interpolated curves, in the same order as
+   * {@link PresentValueNodeSensitivityCalculator}.
+   * @param fixedCurves The curves that are not perturbed, may be null
+   * @param interpolatedCurves The curves with respect to which the sensitivities are computed, not null
+   * @return The node sensitivities
+   */
+  public DoubleMatrix1D presentValueNodeSensitivity(final YieldCurveBundle fixedCurves, final YieldCurveBundle interpolatedCurves) {
+    Validate.notNull(interpolatedCurves, "interpolated curves");
+    final YieldCurveBundle allCurves = interpolatedCurves.copy();
+    if (fixedCurves != null) {
+      for (final String name : interpolatedCurves.getAllNames()) {
+        Validate.isTrue(!fixedCurves.containsName(name), "fixed curves contain a name that is also in interpolated curves");
+      }
+      allCurves.addAll(fixedCurves);
+    }
+    return PresentValueNodeSensitivityCalculator.getDefaultInstance().curveToNodeSensitivities(presentValueCurveSensitivity(allCurves), interpolatedCurves);
+  }
+
+  private double[] presentValues(final double[] df) {
+    final double[] pv = new double[_nTrades];
+    for (int i = 0; i < _fixedTrade.length; i++) {
+      pv[_fixedTrade[i]] += _fixedAmount[i] * df[_fixedPoint[i]];
+    }
+    for (int i = 0; i < _iborTrade.length; i++) {
+      final double forward = (df[_iborStart[i]] / df[_iborEnd[i]] - 1) / _iborFixingAccrual[i];
+      pv[_iborTrade[i]] += (_iborNotionalAccrual[i] * forward + _iborSpreadAmount[i]) * df[_iborPayment[i]];
+    }
+    for (int i = 0; i < _fraTrade.length; i++) {
+      final double forward = (df[_fraStart[i]] / df[_fraEnd[i]] - 1) / _fraFixingAccrual[i];
+      pv[_fraTrade[i]] += df[_fraPayment[i]] * _fraPaymentAccrual[i] * _fraNotional[i] * (forward - _fraRate[i]) / (1 + _fraPaymentAccrual[i] * forward);
+    }
+    return pv;
+  }
+
+  /**
+   * Looks up each curve by name once and computes the discount factor at each point.
+   */
+  private double[] discountFactors(final YieldCurveBundle curves) {
+    Validate.notNull(curves, "curves");
+    final YieldAndDiscountCurve[] resolved = new YieldAndDiscountCurve[_curveNames.length];
+    for (int i = 0; i < _curveNames.length; i++) {
+      resolved[i] = curves.getCurve(_curveNames[i]);
+    }
+    final double[] df = new double[_pointTime.length];
+    for (int p = 0; p < df.length; p++) {
+      df[p] = resolved[_pointCurve[p]].getDiscountFactor(_pointTime[p]);
+    }
+    return df;
+  }
+
+}
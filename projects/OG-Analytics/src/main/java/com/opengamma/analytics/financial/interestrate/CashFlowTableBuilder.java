@@ -0,0 +1,203 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.interestrate;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Collects the rows of a {@link CashFlowTable} as {@link CashFlowTableCompiler} visits the trades. The (curve, time) pairs at which discount factors are
+ * needed are numbered as they are first seen, so that a time shared by many cash-flows is only interpolated once when the table is evaluated.
+ */
+/* package */final class CashFlowTableBuilder {
+  private final Map<String, Integer> _curveIndex = new LinkedHashMap<String, Integer>();
+  private final Map<String, Map<Double, Integer>> _pointIndex = new HashMap<String, Map<Double, Integer>>();
+  private final IntColumn _pointCurve = new IntColumn();
+  private final DoubleColumn _pointTime = new DoubleColumn();
+
+  private final IntColumn _fixedTrade = new IntColumn();
+  private final IntColumn _fixedPoint = new IntColumn();
+  private final DoubleColumn _fixedAmount = new DoubleColumn();
+  private final DoubleColumn _fixedRateAmount = new DoubleColumn();
+
+  private final IntColumn _iborTrade = new IntColumn();
+  private final IntColumn _iborPayment = new IntColumn();
+  private final IntColumn _iborStart = new IntColumn();
+  private final IntColumn _iborEnd = new IntColumn();
+  private final DoubleColumn _iborNotionalAccrual = new DoubleColumn();
+  private final DoubleColumn _iborFixingAccrual = new DoubleColumn();
+  private final DoubleColumn _iborSpreadAmount = new DoubleColumn();
+
+  private final IntColumn _fraTrade = new IntColumn();
+  private final IntColumn _fraPayment = new IntColumn();
+  private final IntColumn _fraStart = new IntColumn();
+  private final IntColumn _fraEnd = new IntColumn();
+  private final DoubleColumn _fraNotional = new DoubleColumn();
+  private final DoubleColumn _fraPaymentAccrual = new DoubleColumn();
+  private final DoubleColumn _fraFixingAccrual = new DoubleColumn();
+  private final DoubleColumn _fraRate = new DoubleColumn();
+
+  private final IntColumn _parType = new IntColumn();
+  private final DoubleColumn _parOffset = new DoubleColumn();
+  private final IntColumn _parStart = new IntColumn();
+  private final IntColumn _parEnd = new IntColumn();
+  private final DoubleColumn _parAccrual = new DoubleColumn();
+
+  private int _trade = -1;
+  private boolean _annuityLeg;
+
+  /**
+   * Starts the rows of the next trade.
+   */
+  void startTrade() {
+    _trade++;
+    _parType.add(CashFlowTable.PAR_NONE);
+    _parOffset.add(0);
+    _parStart.add(-1);
+    _parEnd.add(-1);
+    _parAccrual.add(0);
+  }
+
+  /**
+   * @param annuityLeg true while the coupons whose rate is solved for in the par rate are being added
+   */
+  void setAnnuityLeg(final boolean annuityLeg) {
+    _annuityLeg = annuityLeg;
+  }
+
+  void addFixed(final String curveName, final double time, final double amount, final double rateAmount) {
+    _fixedTrade.add(_trade);
+    _fixedPoint.add(point(curveName, time));
+    _fixedAmount.add(amount);
+    _fixedRateAmount.add(_annuityLeg ? rateAmount : 0);
+  }
+
+  void addIbor(final String fundingCurveName, final double paymentTime, final String forwardCurveName, final double startTime, final double endTime,
+      final double notionalAccrual, final double fixingAccrual, final double spreadAmount) {
+    _iborTrade.add(_trade);
+    _iborPayment.add(point(fundingCurveName, paymentTime));
+    _iborStart.add(point(forwardCurveName, startTime));
+    _iborEnd.add(point(forwardCurveName, endTime));
+    _iborNotionalAccrual.add(notionalAccrual);
+    _iborFixingAccrual.add(fixingAccrual);
+    _iborSpreadAmount.add(spreadAmount);
+  }
+
+  void addFra(final String fundingCurveName, final double paymentTime, final String forwardCurveName, final double startTime, final double endTime,
+      final double notional, final double paymentAccrual, final double fixingAccrual, final double rate) {
+    _fraTrade.add(_trade);
+    _fraPayment.add(point(fundingCurveName, paymentTime));
+    _fraStart.add(point(forwardCurveName, startTime));
+    _fraEnd.add(point(forwardCurveName, endTime));
+    _fraNotional.add(notional);
+    _fraPaymentAccrual.add(paymentAccrual);
+    _fraFixingAccrual.add(fixingAccrual);
+    _fraRate.add(rate);
+  }
+
+  /**
+   * The par rate of the current trade is the rate of the annuity leg that gives a present value equal to offset.
+   * @param offset The present value at par
+   */
+  void setParAnnuity(final double offset) {
+    _parType.set(_trade, CashFlowTable.PAR_ANNUITY);
+    _parOffset.set(_trade, offset);
+  }
+
+  /**
+   * The par rate of the current trade is the forward rate between two times.
+   */
+  void setParForward(final String curveName, final double startTime, final double endTime, final double accrual) {
+    _parType.set(_trade, CashFlowTable.PAR_FORWARD);
+    _parStart.set(_trade, point(curveName, startTime));
+    _parEnd.set(_trade, point(curveName, endTime));
+    _parAccrual.set(_trade, accrual);
+  }
+
+  /**
+   * The current trade has no par rate.
+   */
+  void setParNone() {
+    _parType.set(_trade, CashFlowTable.PAR_NONE);
+  }
+
+  private int point(final String curveName, final double time) {
+    ArgumentChecker.notNull(curveName, "curve name");
+    Map<Double, Integer> points = _pointIndex.get(curveName);
+    if (points == null) {
+      points = new HashMap<Double, Integer>();
+      _pointIndex.put(curveName, points);
+      _curveIndex.put(curveName, _curveIndex.size());
+    }
+    Integer index = points.get(time);
+    if (index == null) {
+      index = _pointTime.size();
+      points.put(time, index);
+      _pointCurve.add(_curveIndex.get(curveName));
+      _pointTime.add(time);
+    }
+    return index;
+  }
+
+  CashFlowTable build() {
+    return new CashFlowTable(_curveIndex.keySet().toArray(new String[_curveIndex.size()]), _pointCurve.toArray(), _pointTime.toArray(), _trade + 1,
+        _fixedTrade.toArray(), _fixedPoint.toArray(), _fixedAmount.toArray(), _fixedRateAmount.toArray(),
+        _iborTrade.toArray(), _iborPayment.toArray(), _iborStart.toArray(), _iborEnd.toArray(), _iborNotionalAccrual.toArray(), _iborFixingAccrual.toArray(),
+        _iborSpreadAmount.toArray(),
+        _fraTrade.toArray(), _fraPayment.toArray(), _fraStart.toArray(), _fraEnd.toArray(), _fraNotional.toArray(), _fraPaymentAccrual.toArray(),
+        _fraFixingAccrual.toArray(), _fraRate.toArray(),
+        _parType.toArray(), _parOffset.toArray(), _parStart.toArray(), _parEnd.toArray(), _parAccrual.toArray());
+  }
+
+  private static final class IntColumn {
+    private int[] _data = new int[16];
+    private int _size;
+
+    void add(final int value) {
+      if (_size == _data.length) {
+        _data = Arrays.copyOf(_data, 2 * _size);
+      }
+      _data[_size++] = value;
+    }
+
+    void set(final int index, final int value) {
+      _data[index] = value;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(_data, _size);
+    }
+  }
+
+  private static final class DoubleColumn {
+    private double[] _data = new double[16];
+    private int _size;
+
+    void add(final double value) {
+      if (_size == _data.length) {
+        _data = Arrays.copyOf(_data, 2 * _size);
+      }
+      _data[_size++] = value;
+    }
+
+    void set(final int index, final double value) {
+      _data[index] = value;
+    }
+
+    int size() {
+      return _size;
+    }
+
+    double[] toArray() {
+      return Arrays.copyOf(_data, _size);
+    }
+  }
+
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.interestrate;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.analytics.financial.interestrate.annuity.derivative.Annuity;
+import com.opengamma.analytics.financial.interestrate.annuity.derivative.AnnuityCouponFixed;
+import com.opengamma.analytics.financial.interestrate.annuity.derivative.AnnuityCouponIbor;
+import com.opengamma.analytics.financial.interestrate.bond.definition.BondFixedSecurity;
+import com.opengamma.analytics.financial.interestrate.cash.derivative.Cash;
+import com.opengamma.analytics.financial.interestrate.fra.ForwardRateAgreement;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.CouponFixed;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.CouponIbor;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.CouponIborSpread;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.Payment;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.PaymentFixed;
+import com.opengamma.analytics.financial.interestrate.swap.derivative.FixedFloatSwap;
+import com.opengamma.analytics.financial.interestrate.swap.derivative.FloatingRateNote;
+import com.opengamma.analytics.financial.interestrate.swap.derivative.Swap;
+import com.opengamma.analytics.financial.interestrate.swap.derivative.SwapFixedCoupon;
+import com.opengamma.analytics.financial.interestrate.swap.derivative.TenorSwap;
+
+/**
+ * Flattens a portfolio of swaps, FRAs, deposits, fixed coupon bonds and their coupons into a {@link CashFlowTable}. The portfolio is compiled once; the
+ * table can then be revalued against each new set of curves.
+ * <p>
+ * Fixed payments and coupons, Ibor coupons (with or without spread), FRAs and cash deposits are supported, as are annuities, swaps and bonds made of them.
+ * Any other instrument causes an {@link UnsupportedOperationException}.
+ */
+public final class CashFlowTableCompiler extends AbstractInstrumentDerivativeVisitor<CashFlowTableBuilder, Void> {
+  private static final CashFlowTableCompiler INSTANCE = new CashFlowTableCompiler();
+
+  /**
+   * Gets the (singleton) instance of this compiler.
+   * @return The instance of this compiler.
+   */
+  public static CashFlowTableCompiler getInstance() {
+    return INSTANCE;
+  }
+
+  private CashFlowTableCompiler() {
+  }
+
+  /**
+   * Compiles a portfolio.
+   * @param trades The trades, not null
+   * @return The cash-flow table; trade i of the table is element i of the list
+   */
+  public CashFlowTable compile(final List<? extends InstrumentDerivative> trades) {
+    Validate.notNull(trades, "trades");
+    Validate.noNullElements(trades, "trades");
+    final CashFlowTableBuilder builder = new CashFlowTableBuilder();
+    for (final InstrumentDerivative trade : trades) {
+      builder.startTrade();
+      trade.accept(this, builder);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Compiles a portfolio.
+   * @param trades The trades, not null
+   * @return The cash-flow table; trade i of the table is element i of the array
+   */
+  public CashFlowTable compile(final InstrumentDerivative... trades) {
+    Validate.notNull(trades, "trades");
+    return compile(Arrays.asList(trades));
+  }
+
+  // Composite instruments set the par rate type after visiting their parts, so the outermost instrument decides it
+
+  @Override
+  public Void visitFixedPayment(final PaymentFixed payment, final CashFlowTableBuilder builder) {
+    builder.addFixed(payment.getFundingCurveName(), payment.getPaymentTime(), payment.getAmount(), 0);
+    return null;
+  }
+
+  @Override
+  public Void visitCouponFixed(final CouponFixed coupon, final CashFlowTableBuilder builder) {
+    builder.addFixed(coupon.getFundingCurveName(), coupon.getPaymentTime(), coupon.getAmount(), coupon.getPaymentYearFraction() * coupon.getNotional());
+    return null;
+  }
+
+  @Override
+  public Void visitCouponIbor(final CouponIbor coupon, final CashFlowTableBuilder builder) {
+    builder.addIbor(coupon.getFundingCurveName(), coupon.getPaymentTime(), coupon.getForwardCurveName(), coupon.getFixingPeriodStartTime(),
+        coupon.getFixingPeriodEndTime(), coupon.getNotional() * coupon.getPaymentYearFraction(), coupon.getFixingAccrualFactor(), 0);
+    builder.setParForward(coupon.getForwardCurveName(), coupon.getFixingPeriodStartTime(), coupon.getFixingPeriodEndTime(), coupon.getFixingAccrualFactor());
+    return null;
+  }
+
+  @Override
+  public Void visitCouponIborSpread(final CouponIborSpread coupon, final CashFlowTableBuilder builder) {
+    builder.addIbor(coupon.getFundingCurveName(), coupon.getPaymentTime(), coupon.getForwardCurveName(), coupon.getFixingPeriodStartTime(),
+        coupon.getFixingPeriodEndTime(), coupon.getNotional() * coupon.getPaymentYearFraction(), coupon.getFixingYearFraction(), coupon.getSpreadAmount());
+    builder.setParForward(coupon.getForwardCurveName(), coupon.getFixingPeriodStartTime(), coupon.getFixingPeriodEndTime(), coupon.getFixingYearFraction());
+    return null;
+  }
+
+  @Override
+  public Void visitForwardRateAgreement(final ForwardRateAgreement fra, final CashFlowTableBuilder builder) {
+    builder.addFra(fra.getFundingCurveName(), fra.getPaymentTime(), fra.getForwardCurveName(), fra.getFixingPeriodStartTime(), fra.getFixingPeriodEndTime(),
+        fra.getNotional(), fra.getPaymentYearFraction(), fra.getFixingYearFraction(), fra.getRate());
+    builder.setParForward(fra.getForwardCurveName(), fra.getFixingPeriodStartTime(), fra.getFixingPeriodEndTime(), fra.getFixingYearFraction());
+    return null;
+  }
+
+  @Override
+  public Void visitCash(final Cash deposit, final CashFlowTableBuilder builder) {
+    final String curveName = deposit.getYieldCurveName();
+    builder.addFixed(curveName, deposit.getEndTime(), deposit.getNotional() + deposit.getInterestAmount(), 0);
+    builder.addFixed(curveName, deposit.getStartTime(), -deposit.getInitialAmount(), 0);
+    if (deposit.getAccrualFactor() != 0) {
+      builder.setParForward(curveName, deposit.getStartTime(), deposit.getEndTime(), deposit.getAccrualFactor());
+    } else {
+      builder.setParNone();
+    }
+    return null;
+  }
+
+  @Override
+  public Void visitGenericAnnuity(final Annuity<? extends Payment> annuity, final CashFlowTableBuilder builder) {
+    for (final Payment payment : annuity.getPayments()) {
+      payment.accept(this, builder);
+    }
+    builder.setParNone();
+    return null;
+  }
+
+  @Override
+  public Void visitFixedCouponAnnuity(final AnnuityCouponFixed annuity, final CashFlowTableBuilder builder) {
+    return visitGenericAnnuity(annuity, builder);
+  }
+
+  @Override
+  public Void visitForwardLiborAnnuity(final AnnuityCouponIbor annuity, final CashFlowTableBuilder builder) {
+    return visitGenericAnnuity(annuity, builder);
+  }
+
+  @Override
+  public Void visitSwap(final Swap<?, ?> swap, final CashFlowTableBuilder builder) {
+    swap.getFirstLeg().accept(this, builder);
+    swap.getSecondLeg().accept(this, builder);
+    builder.setParNone();
+    return null;
+  }
+
+  @Override
+  public Void visitFixedCouponSwap(final SwapFixedCoupon<?> swap, final CashFlowTableBuilder builder) {
+    builder.setAnnuityLeg(true);
+    swap.getFixedLeg().accept(this, builder);
+    builder.setAnnuityLeg(false);
+    swap.getSecondLeg().accept(this, builder);
+    builder.setParAnnuity(0);
+    return null;
+  }
+
+  @Override
+  public Void visitFixedFloatSwap(final FixedFloatSwap swap, final CashFlowTableBuilder builder) {
+    return visitFixedCouponSwap(swap, builder);
+  }
+
+  @Override
+  public Void visitTenorSwap(final TenorSwap<? extends Payment> swap, final CashFlowTableBuilder builder) {
+    return visitSwap(swap, builder);
+  }
+
+  @Override
+  public Void visitFloatingRateNote(final FloatingRateNote frn, final CashFlowTableBuilder builder) {
+    return visitSwap(frn, builder);
+  }
+
+  @Override
+  public Void visitBondFixedSecurity(final BondFixedSecurity bond, final CashFlowTableBuilder builder) {
+    bond.getNominal().accept(this, builder);
+    builder.setAnnuityLeg(true);
+    bond.getCoupon().accept(this, builder);
+    builder.setAnnuityLeg(false);
+    builder.setParAnnuity(1);
+    return null;
+  }
+
+}
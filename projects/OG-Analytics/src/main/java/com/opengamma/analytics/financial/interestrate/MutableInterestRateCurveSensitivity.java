@@ -0,0 +1,443 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.interestrate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.tuple.DoublesPair;
+
+/**
+ * The sensitivity of a value to the yields at arbitrary times on a set of curves, held as a pair of primitive arrays (times and sensitivities) for each curve.
+ * Unlike {@link InterestRateCurveSensitivity}, the operations change this object rather than creating a new one, so the sensitivities of many cash-flows or
+ * instruments can be accumulated without allocating maps, lists or {@link DoublesPair}s for each of them.
+ * <p>
+ * The node sensitivities can be computed directly from the arrays with
+ * {@link NodeYieldSensitivityCalculator#curveToNodeSensitivities(MutableInterestRateCurveSensitivity, YieldCurveBundle)}.
+ * <p>
+ * This class is not thread-safe.
+ */
+public final class MutableInterestRateCurveSensitivity {
+  private static final int INITIAL_CAPACITY = 16;
+  /** Lists shorter than this are sorted by insertion */
+  private static final int INSERTION_SORT_THRESHOLD = 16;
+
+  /**
+   * The times and sensitivities for each curve, in the order the curves were first added.
+   */
+  private final Map<String, CurveSensitivity> _sensitivities = new LinkedHashMap<String, CurveSensitivity>();
+
+  /**
+   * Creates an empty sensitivity.
+   */
+  public MutableInterestRateCurveSensitivity() {
+  }
+
+  /**
+   * Creates a sensitivity containing a copy of a sensitivity map.
+   * @param sensitivities The sensitivities, not null
+   * @return The sensitivity
+   */
+  public static MutableInterestRateCurveSensitivity of(final Map<String, List<DoublesPair>> sensitivities) {
+    return new MutableInterestRateCurveSensitivity().add(sensitivities);
+  }
+
+  /**
+   * Creates a sensitivity containing a copy of an {@link InterestRateCurveSensitivity}.
+   * @param sensitivity The sensitivity, not null
+   * @return The sensitivity
+   */
+  public static MutableInterestRateCurveSensitivity of(final InterestRateCurveSensitivity sensitivity) {
+    ArgumentChecker.notNull(sensitivity, "sensitivity");
+    return of(sensitivity.getSensitivities());
+  }
+
+  /**
+   * Adds the sensitivity to the yield at one time.
+   * @param curveName The name of the curve, not null
+   * @param time The time
+   * @param sensitivity The sensitivity
+   * @return This sensitivity
+   */
+  public MutableInterestRateCurveSensitivity add(final String curveName, final double time, final double sensitivity) {
+    getOrCreate(curveName, 1).add(time, sensitivity);
+    return this;
+  }
+
+  /**
+   * Adds the sensitivities to one curve.
+   * @param curveName The name of the curve, not null
+   * @param sensitivities The times and sensitivities, not null
+   * @return This sensitivity
+   */
+  public MutableInterestRateCurveSensitivity add(final String curveName, final List<DoublesPair> sensitivities) {
+    return add(curveName, sensitivities, 1.0);
+  }
+
+  /**
+   * Adds a multiple of the sensitivities to one curve.
+   * @param curveName The name of the curve, not null
+   * @param sensitivities The times and sensitivities, not null
+   * @param factor The multiplicative factor
+   * @return This sensitivity
+   */
+  public MutableInterestRateCurveSensitivity add(final String curveName, final List<DoublesPair> sensitivities, final double factor) {
+    ArgumentChecker.notNull(sensitivities, "sensitivities");
+    final CurveSensitivity curve = getOrCreate(curveName, sensitivities.size());
+    for (final DoublesPair pair : sensitivities) {
+      curve.add(pair.first, pair.second * factor);
+    }
+    return this;
+  }
+
+  /**
+   * Adds the sensitivities in a sensitivity map.
+   * @param sensitivities The sensitivities, not null
+   * @return This sensitivity
+   */
+  public MutableInterestRateCurveSensitivity add(final Map<String, List<DoublesPair>> sensitivities) {
+    return add(sensitivities, 1.0);
+  }
+
+  /**
+   * Adds a multiple of the sensitivities in a sensitivity map.
+   * @param sensitivities The sensitivities, not null
+   * @param factor The multiplicative factor
+   * @return This sensitivity
+   */
+  public MutableInterestRateCurveSensitivity add(final Map<String, List<DoublesPair>> sensitivities, final double factor) {
+    ArgumentChecker.notNull(sensitivities, "sensitivities");
+    for (final Map.Entry<String, List<DoublesPair>> entry : sensitivities.entrySet()) {
+      add(entry.getKey(), entry.getValue(), factor);
+    }
+    return this;
+  }
+
+  /**
+   * Adds another sensitivity.
+   * @param other The sensitivity, not null
+   * @return This sensitivity
+   */
+  public MutableInterestRateCurveSensitivity add(final MutableInterestRateCurveSensitivity other) {
+    return add(other, 1.0);
+  }
+
+  /**
+   * Adds a multiple of another sensitivity.
+   * @param other The sensitivity, not null
+   * @param factor The multiplicative factor
+   * @return This sensitivity
+   */
+  public MutableInterestRateCurveSensitivity add(final MutableInterestRateCurveSensitivity other, final double factor) {
+    ArgumentChecker.notNull(other, "other");
+    ArgumentChecker.isTrue(other != this, "cannot add a sensitivity to itself, use multiplyBy");
+    for (final Map.Entry<String, CurveSensitivity> entry : other._sensitivities.entrySet()) {
+      final CurveSensitivity from = entry.getValue();
+      final CurveSensitivity to = getOrCreate(entry.getKey(), from._size);
+      for (int i = 0; i < from._size; i++) {
+        to.add(from._times[i], from._values[i] * factor);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Multiplies all the sensitivities by a common factor.
+   * @param factor The multiplicative factor
+   * @return This sensitivity
+   */
+  public MutableInterestRateCurveSensitivity multiplyBy(final double factor) {
+    for (final CurveSensitivity curve : _sensitivities.values()) {
+      for (int i = 0; i < curve._size; i++) {
+        curve._values[i] *= factor;
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Sorts the sensitivities to each curve by time and nets those occurring at the same time, removing any that net to zero. Curves with no remaining
+   * sensitivities are removed.
+   * @return This sensitivity
+   */
+  public MutableInterestRateCurveSensitivity clean() {
+    return clean(0.0, 0.0);
+  }
+
+  /**
+   * Sorts the sensitivities to each curve by time and nets those occurring at the same time. This is the same as
+   * {@link InterestRateCurveSensitivityUtils#clean(Map, double, double)}.
+   * @param relTol Relative tolerance - if the net divided by gross sensitivity is less than this it is removed
+   * @param absTol Absolute tolerance - if the net sensitivity is less than this it is removed
+   * @return This sensitivity
+   */
+  public MutableInterestRateCurveSensitivity clean(final double relTol, final double absTol) {
+    ArgumentChecker.isTrue(relTol >= 0.0 && absTol >= 0.0, "Tolerances must be greater than zero");
+    final Iterator<CurveSensitivity> iterator = _sensitivities.values().iterator();
+    while (iterator.hasNext()) {
+      final CurveSensitivity curve = iterator.next();
+      curve.clean(relTol, absTol);
+      if (curve._size == 0) {
+        iterator.remove();
+      }
+    }
+    return this;
+  }
+
+  /**
+   * @return The names of the curves, in the order they were first added
+   */
+  public Set<String> getCurves() {
+    return Collections.unmodifiableSet(_sensitivities.keySet());
+  }
+
+  /**
+   * @param curveName The name of the curve
+   * @return The number of sensitivities to the curve
+   */
+  public int size(final String curveName) {
+    final CurveSensitivity curve = _sensitivities.get(curveName);
+    return curve == null ? 0 : curve._size;
+  }
+
+  /**
+   * @param curveName The name of the curve
+   * @return A copy of the times of the sensitivities to the curve, empty if there are none
+   */
+  public double[] getTimes(final String curveName) {
+    final CurveSensitivity curve = _sensitivities.get(curveName);
+    return curve == null ? new double[0] : Arrays.copyOf(curve._times, curve._size);
+  }
+
+  /**
+   * @param curveName The name of the curve
+   * @return A copy of the sensitivities to the curve, in the same order as {@link #getTimes}, empty if there are none
+   */
+  public double[] getValues(final String curveName) {
+    final CurveSensitivity curve = _sensitivities.get(curveName);
+    return curve == null ? new double[0] : Arrays.copyOf(curve._values, curve._size);
+  }
+
+  /**
+   * @param curveName The name of the curve
+   * @return The sum of the sensitivities to the curve
+   */
+  public double totalSensitivity(final String curveName) {
+    final CurveSensitivity curve = _sensitivities.get(curveName);
+    double total = 0.0;
+    if (curve != null) {
+      for (int i = 0; i < curve._size; i++) {
+        total += curve._values[i];
+      }
+    }
+    return total;
+  }
+
+  /**
+   * @return The sensitivities as a map between curve names and lists of times and sensitivities
+   */
+  public Map<String, List<DoublesPair>> getSensitivities() {
+    final Map<String, List<DoublesPair>> result = new LinkedHashMap<String, List<DoublesPair>>();
+    for (final Map.Entry<String, CurveSensitivity> entry : _sensitivities.entrySet()) {
+      final CurveSensitivity curve = entry.getValue();
+      final List<DoublesPair> list = new ArrayList<DoublesPair>(curve._size);
+      for (int i = 0; i < curve._size; i++) {
+        list.add(new DoublesPair(curve._times[i], curve._values[i]));
+      }
+      result.put(entry.getKey(), list);
+    }
+    return result;
+  }
+
+  /**
+   * @return The sensitivities as an {@link InterestRateCurveSensitivity}
+   */
+  public InterestRateCurveSensitivity toInterestRateCurveSensitivity() {
+    return new InterestRateCurveSensitivity(getSensitivities());
+  }
+
+  /**
+   * Gives the node projection direct access to the arrays.
+   * @param curveName The name of the curve
+   * @return The times, the sensitivities and the number used; null if there are none
+   */
+  /* package */CurveSensitivity getCurveSensitivity(final String curveName) {
+    return _sensitivities.get(curveName);
+  }
+
+  private CurveSensitivity getOrCreate(final String curveName, final int expected) {
+    ArgumentChecker.notNull(curveName, "curve name");
+    CurveSensitivity curve = _sensitivities.get(curveName);
+    if (curve == null) {
+      curve = new CurveSensitivity(Math.max(INITIAL_CAPACITY, expected));
+      _sensitivities.put(curveName, curve);
+    } else {
+      curve.ensureCapacity(curve._size + expected);
+    }
+    return curve;
+  }
+
+  @Override
+  public int hashCode() {
+    return getSensitivities().hashCode();
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof MutableInterestRateCurveSensitivity)) {
+      return false;
+    }
+    final MutableInterestRateCurveSensitivity other = (MutableInterestRateCurveSensitivity) obj;
+    return getSensitivities().equals(other.getSensitivities());
+  }
+
+  @Override
+  public String toString() {
+    return getSensitivities().toString();
+  }
+
+  /**
+   * The growable arrays of times and sensitivities to one curve.
+   */
+  /* package */static final class CurveSensitivity {
+    private double[] _times;
+    private double[] _values;
+    private int _size;
+
+    CurveSensitivity(final int capacity) {
+      _times = new double[capacity];
+      _values = new double[capacity];
+    }
+
+    double[] getTimes() {
+      return _times;
+    }
+
+    double[] getValues() {
+      return _values;
+    }
+
+    int size() {
+      return _size;
+    }
+
+    void add(final double time, final double value) {
+      if (_size == _times.length) {
+        ensureCapacity(_size + 1);
+      }
+      _times[_size] = time;
+      _values[_size] = value;
+      _size++;
+    }
+
+    void ensureCapacity(final int capacity) {
+      if (capacity > _times.length) {
+        final int newCapacity = Math.max(capacity, 2 * _times.length);
+        _times = Arrays.copyOf(_times, newCapacity);
+        _values = Arrays.copyOf(_values, newCapacity);
+      }
+    }
+
+    /**
+     * Sorts by time then sensitivity and nets equal times, as InterestRateCurveSensitivityUtils.clean does for lists.
+     */
+    void clean(final double relTol, final double absTol) {
+      if (_size == 0) {
+        return;
+      }
+      sort(0, _size - 1);
+      int n = 0;
+      double tOld = _times[0];
+      double sum = _values[0];
+      double scale = Math.abs(sum);
+      for (int i = 1; i < _size; i++) {
+        final double t = _times[i];
+        if (t > tOld) {
+          if (Math.abs(sum) > absTol && Math.abs(sum) / scale > relTol) {
+            _times[n] = tOld;
+            _values[n++] = sum;
+          }
+          tOld = t;
+          sum = _values[i];
+          scale = Math.abs(sum);
+        } else {
+          sum += _values[i];
+          scale += Math.abs(_values[i]);
+        }
+      }
+      if (Math.abs(sum) > absTol && Math.abs(sum) / scale > relTol) {
+        _times[n] = tOld;
+        _values[n++] = sum;
+      }
+      _size = n;
+    }
+
+    private void sort(final int from, final int to) {
+      if (to - from < INSERTION_SORT_THRESHOLD) {
+        for (int i = from + 1; i <= to; i++) {
+          final double t = _times[i];
+          final double v = _values[i];
+          int j = i - 1;
+          while (j >= from && compare(_times[j], _values[j], t, v) > 0) {
+            _times[j + 1] = _times[j];
+            _values[j + 1] = _values[j];
+            j--;
+          }
+          _times[j + 1] = t;
+          _values[j + 1] = v;
+        }
+        return;
+      }
+      final int mid = (from + to) >>> 1;
+      final double pivotT = _times[mid];
+      final double pivotV = _values[mid];
+      int i = from;
+      int j = to;
+      while (i <= j) {
+        while (compare(_times[i], _values[i], pivotT, pivotV) < 0) {
+          i++;
+        }
+        while (compare(_times[j], _values[j], pivotT, pivotV) > 0) {
+          j--;
+        }
+        if (i <= j) {
+          swap(i++, j--);
+        }
+      }
+      if (from < j) {
+        sort(from, j);
+      }
+      if (i < to) {
+        sort(i, to);
+      }
+    }
+
+    private void swap(final int i, final int j) {
+      final double t = _times[i];
+      _times[i] = _times[j];
+      _times[j] = t;
+      final double v = _values[i];
+      _values[i] = _values[j];
+      _values[j] = v;
+    }
+
+    private static int compare(final double t1, final double v1, final double t2, final double v2) {
+      final int c = Double.compare(t1, t2);
+      return c != 0 ? c : Double.compare(v1, v2);
+    }
+  }
+
+}
@@ -5,7 +5,6 @@
  */
 package com.opengamma.analytics.financial.interestrate;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -14,6 +13,7 @@ import org.apache.commons.lang.Validate;
 import com.opengamma.analytics.financial.model.interestrate.curve.DiscountCurve;
 import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
 import com.opengamma.analytics.financial.model.interestrate.curve.YieldCurve;
+import com.opengamma.analytics.math.curve.Curve;
 import com.opengamma.analytics.math.curve.InterpolatedDoublesCurve;
 import com.opengamma.analytics.math.interpolation.Interpolator1D;
 import com.opengamma.analytics.math.interpolation.data.Interpolator1DDataBundle;
@@ -57,6 +57,37 @@ public abstract class NodeYieldSensitivityCalculator {
     return curveToNodeSensitivities(sensitivityMap, interpolatedCurves);
   }
 
+  /**
+   * Computes the sensitivities to the yield at the node points for a set of instruments from a yield sensitivity calculator. The point sensitivities of
+   * the instruments are accumulated and netted before being projected onto the nodes, so the interpolator is called once for each distinct time rather
+   * than once for each cash-flow of each instrument.
+   * @param derivatives The instruments, not null
+   * @param calculator The yield sensitivity calculator.
+   * @param fixedCurves The fixed curves.
+   * @param interpolatedCurves The curves with respect to which the sensitivities should be computed. The curves should be based on InterpolatedDoublesCurve.
+   * @return The sum of the yield sensitivities to the node points.
+   */
+  public DoubleMatrix1D calculateSensitivities(final List<? extends InstrumentDerivative> derivatives,
+      final InstrumentDerivativeVisitor<YieldCurveBundle, Map<String, List<DoublesPair>>> calculator, final YieldCurveBundle fixedCurves,
+      final YieldCurveBundle interpolatedCurves) {
+    Validate.notNull(derivatives, "null InterestRateDerivatives");
+    Validate.noNullElements(derivatives, "null InterestRateDerivative");
+    Validate.notNull(calculator, "null calculator");
+    Validate.notNull(interpolatedCurves, "interpolated curves");
+    final YieldCurveBundle allCurves = interpolatedCurves.copy();
+    if (fixedCurves != null) {
+      for (final String name : interpolatedCurves.getAllNames()) {
+        Validate.isTrue(!fixedCurves.containsName(name), "fixed curves contain a name that is also in interpolated curves");
+      }
+      allCurves.addAll(fixedCurves);
+    }
+    final MutableInterestRateCurveSensitivity sensitivities = new MutableInterestRateCurveSensitivity();
+    for (final InstrumentDerivative derivative : derivatives) {
+      sensitivities.add(calculator.visit(derivative, allCurves));
+    }
+    return curveToNodeSensitivities(sensitivities.clean(), interpolatedCurves);
+  }
+
   /**
    * Computes the sensitivity to the yield at the node points from the sensitivities to the yield at arbitrary points.
    * @param curveSensitivities The sensitivity to the yield at arbitrary points on the different curves.
@@ -64,95 +95,86 @@ public abstract class NodeYieldSensitivityCalculator {
    * @return The yield sensitivities to the node points.
    */
   public DoubleMatrix1D curveToNodeSensitivities(final Map<String, List<DoublesPair>> curveSensitivities, final YieldCurveBundle interpolatedCurves) {
-    final List<Double> result = new ArrayList<Double>();
-    for (final String name : interpolatedCurves.getAllNames()) { // loop over all curves (by name)
-      final YieldAndDiscountCurve curve = interpolatedCurves.getCurve(name);
-      // Split between Yield and Discount    
-      if (curve instanceof YieldCurve) {
-        result.addAll(curveToNodeSensitivity(curveSensitivities.get(name), (YieldCurve) curve));
-      } else if (curve instanceof DiscountCurve) {
-        result.addAll(curveToNodeSensitivity(curveSensitivities.get(name), (DiscountCurve) curve));
-      } else {
-        throw new IllegalArgumentException("Can only handle YieldCurve and DiscountCurve at the moment");
-      }
-    }
-    return new DoubleMatrix1D(result.toArray(new Double[0]));
+    return curveToNodeSensitivities(MutableInterestRateCurveSensitivity.of(curveSensitivities), interpolatedCurves);
   }
 
   /**
-   * Computes the node yield sensitivity for one YieldCurve.
-   * @param sensitivityList The sensitivity to the yield at arbitrary points on the curve.
-   * @param curve The YieldCurve.
-   * @return The node sensitivity.
+   * Computes the sensitivity to the yield at the node points from the sensitivities to the yield at arbitrary points held in arrays. The interpolator is
+   * called once for each sensitivity, so it is worth cleaning the sensitivities first if they contain repeated times.
+   * @param curveSensitivities The sensitivity to the yield at arbitrary points on the different curves, not null
+   * @param interpolatedCurves The curve bundle. The curves should be YieldCurve based on InterpolatedDoublesCurve.
+   * @return The yield sensitivities to the node points.
    */
-  private List<Double> curveToNodeSensitivity(final List<DoublesPair> sensitivityList, final YieldCurve curve) {
-    final List<Double> result = new ArrayList<Double>();
-    if (!(curve.getCurve() instanceof InterpolatedDoublesCurve)) {
-      throw new IllegalArgumentException("Can only handle interpolated curves at the moment");
+  public DoubleMatrix1D curveToNodeSensitivities(final MutableInterestRateCurveSensitivity curveSensitivities, final YieldCurveBundle interpolatedCurves) {
+    Validate.notNull(curveSensitivities, "curve sensitivities");
+    Validate.notNull(interpolatedCurves, "interpolated curves");
+    int nNodes = 0;
+    for (final String name : interpolatedCurves.getAllNames()) {
+      nNodes += getInterpolatedCurve(interpolatedCurves.getCurve(name)).size();
     }
-    final InterpolatedDoublesCurve interpolatedCurve = (InterpolatedDoublesCurve) curve.getCurve();
-    final Interpolator1D interpolator = interpolatedCurve.getInterpolator();
-    final Interpolator1DDataBundle data = interpolatedCurve.getDataBundle();
-    if (sensitivityList != null && sensitivityList.size() > 0) {
-      final double[][] sensitivityYY = new double[sensitivityList.size()][];
-      // Implementation note: Sensitivity of the interpolated yield to the node yields
-      int k = 0;
-      for (final DoublesPair timeAndS : sensitivityList) {
-        sensitivityYY[k++] = interpolator.getNodeSensitivitiesForValue(data, timeAndS.getFirst());
-      }
-      for (int j = 0; j < sensitivityYY[0].length; j++) {
-        double temp = 0.0;
-        k = 0;
-        for (final DoublesPair timeAndS : sensitivityList) {
-          temp += timeAndS.getSecond() * sensitivityYY[k++][j];
-        }
-        result.add(temp);
+    final double[] result = new double[nNodes];
+    int offset = 0;
+    for (final String name : interpolatedCurves.getAllNames()) { // loop over all curves (by name)
+      final YieldAndDiscountCurve curve = interpolatedCurves.getCurve(name);
+      final MutableInterestRateCurveSensitivity.CurveSensitivity sensitivity = curveSensitivities.getCurveSensitivity(name);
+      if (sensitivity != null) {
+        curveToNodeSensitivity(sensitivity.getTimes(), sensitivity.getValues(), sensitivity.size(), curve, result, offset);
       }
+      offset += getInterpolatedCurve(curve).size();
+    }
+    return new DoubleMatrix1D(result);
+  }
+
+  private static InterpolatedDoublesCurve getInterpolatedCurve(final YieldAndDiscountCurve curve) {
+    final Curve<Double, Double> underlying;
+    // Split between Yield and Discount
+    if (curve instanceof YieldCurve) {
+      underlying = ((YieldCurve) curve).getCurve();
+    } else if (curve instanceof DiscountCurve) {
+      underlying = ((DiscountCurve) curve).getCurve();
     } else {
-      for (int i = 0; i < interpolatedCurve.size(); i++) {
-        result.add(0.);
-      }
+      throw new IllegalArgumentException("Can only handle YieldCurve and DiscountCurve at the moment");
     }
-    return result;
+    if (!(underlying instanceof InterpolatedDoublesCurve)) {
+      throw new IllegalArgumentException("Can only handle interpolated curves at the moment");
+    }
+    return (InterpolatedDoublesCurve) underlying;
   }
 
   /**
-   * Computes the node yield sensitivity for one YieldCurve.
-   * @param sensitivityList The sensitivity to the yield at arbitrary points on the curve.
-   * @param curve The YieldCurve.
-   * @return The node sensitivity.
+   * Adds the node yield sensitivities of one curve to a result array.
+   * @param times The times of the sensitivities to the yield at arbitrary points on the curve.
+   * @param values The sensitivities.
+   * @param n The number of sensitivities.
+   * @param curve The YieldCurve or DiscountCurve.
+   * @param result The node sensitivities of all curves.
+   * @param offset The position of the first node of this curve in the result.
    */
-  private List<Double> curveToNodeSensitivity(final List<DoublesPair> sensitivityList, final DiscountCurve curve) {
-    final List<Double> result = new ArrayList<Double>();
-    if (!(curve.getCurve() instanceof InterpolatedDoublesCurve)) {
-      throw new IllegalArgumentException("Can only handle interpolated curves at the moment");
-    }
-    final InterpolatedDoublesCurve interpolatedCurve = (InterpolatedDoublesCurve) curve.getCurve();
+  private static void curveToNodeSensitivity(final double[] times, final double[] values, final int n, final YieldAndDiscountCurve curve, final double[] result,
+      final int offset) {
+    final InterpolatedDoublesCurve interpolatedCurve = getInterpolatedCurve(curve);
     final Interpolator1D interpolator = interpolatedCurve.getInterpolator();
     final Interpolator1DDataBundle data = interpolatedCurve.getDataBundle();
-    if (sensitivityList != null && sensitivityList.size() > 0) {
-      final double[][] sensitivityDD = new double[sensitivityList.size()][];
-      // Implementation note: Sensitivity of the interpolated discount factor to the node discount factor
-      final double[] df = new double[sensitivityList.size()];
-      int k = 0;
-      for (final DoublesPair timeAndS : sensitivityList) {
-        df[k] = interpolator.interpolate(data, timeAndS.first);
-        sensitivityDD[k++] = interpolator.getNodeSensitivitiesForValue(data, timeAndS.getFirst());
-      }
-      for (int j = 0; j < sensitivityDD[0].length; j++) {
-        double temp = 0.0;
-        k = 0;
-        for (final DoublesPair timeAndS : sensitivityList) {
-          temp += timeAndS.getSecond() / (timeAndS.first * df[k]) * sensitivityDD[k++][j] * (data.getKeys()[j] * data.getValues()[j]);
+    if (curve instanceof YieldCurve) {
+      // Implementation note: Sensitivity of the interpolated yield to the node yields
+      for (int k = 0; k < n; k++) {
+        final double[] sensitivityYY = interpolator.getNodeSensitivitiesForValue(data, times[k]);
+        for (int j = 0; j < sensitivityYY.length; j++) {
+          result[offset + j] += values[k] * sensitivityYY[j];
         }
-        result.add(temp);
       }
     } else {
-      for (int i = 0; i < interpolatedCurve.size(); i++) {
-        result.add(0.);
+      // Implementation note: Sensitivity of the interpolated discount factor to the node discount factor
+      final double[] keys = data.getKeys();
+      final double[] nodeValues = data.getValues();
+      for (int k = 0; k < n; k++) {
+        final double df = interpolator.interpolate(data, times[k]);
+        final double[] sensitivityDD = interpolator.getNodeSensitivitiesForValue(data, times[k]);
+        for (int j = 0; j < sensitivityDD.length; j++) {
+          result[offset + j] += values[k] / (times[k] * df) * sensitivityDD[j] * (keys[j] * nodeValues[j]);
+        }
       }
     }
-    return result;
   }
 
   /**
@@ -172,15 +194,19 @@ public abstract class NodeYieldSensitivityCalculator {
    * @return The node sensitivity.
    */
   public DoubleMatrix1D curveToNodeSensitivities(final List<DoublesPair> curveSensitivities, final YieldAndDiscountCurve curve) {
-    final List<Double> result = new ArrayList<Double>();
-    if (curve instanceof YieldCurve) {
-      result.addAll(curveToNodeSensitivity(curveSensitivities, (YieldCurve) curve));
-    } else if (curve instanceof DiscountCurve) {
-      result.addAll(curveToNodeSensitivity(curveSensitivities, (DiscountCurve) curve));
-    } else {
-      throw new IllegalArgumentException("Can only handle YieldCurve and DiscountCurve at the moment");
+    final double[] result = new double[getInterpolatedCurve(curve).size()];
+    if (curveSensitivities != null) {
+      final int n = curveSensitivities.size();
+      final double[] times = new double[n];
+      final double[] values = new double[n];
+      for (int k = 0; k < n; k++) {
+        final DoublesPair pair = curveSensitivities.get(k);
+        times[k] = pair.first;
+        values[k] = pair.second;
+      }
+      curveToNodeSensitivity(times, values, n, curve, result, 0);
     }
-    return new DoubleMatrix1D(result.toArray(new Double[0]));
+    return new DoubleMatrix1D(result);
   }
 
 }
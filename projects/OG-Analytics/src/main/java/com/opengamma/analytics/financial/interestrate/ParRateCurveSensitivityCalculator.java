@@ -5,9 +5,6 @@
  */
 package com.opengamma.analytics.financial.interestrate;
 
-import static com.opengamma.analytics.financial.interestrate.InterestRateCurveSensitivityUtils.addSensitivity;
-import static com.opengamma.analytics.financial.interestrate.InterestRateCurveSensitivityUtils.multiplySensitivity;
-
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -153,7 +150,7 @@ public final class ParRateCurveSensitivityCalculator extends AbstractInstrumentD
     final Map<String, List<DoublesPair>> senseA = PV_SENSITIVITY_CALCULATOR.visit(unitCouponAnnuity, curves);
     final Map<String, List<DoublesPair>> senseB = PV_SENSITIVITY_CALCULATOR.visit(floatingAnnuity, curves);
 
-    return addSensitivity(multiplySensitivity(senseA, bOveraSq), multiplySensitivity(senseB, -1 / a));
+    return new MutableInterestRateCurveSensitivity().add(senseA, bOveraSq).add(senseB, -1 / a).getSensitivities();
   }
 
   /**
@@ -193,7 +190,7 @@ public final class ParRateCurveSensitivityCalculator extends AbstractInstrumentD
     final double fx = ccs.getSpotFX(); //TODO remove having CCS holding spot FX rate 
 
     final double temp = -(dPV - fx * fPV) / fx / fAnnuityPV / fAnnuityPV;
-    return addSensitivity(multiplySensitivity(dPVSense, 1. / fx / fAnnuityPV), multiplySensitivity(fPVSense, -1. / fAnnuityPV), multiplySensitivity(fAnnuitySense, temp));
+    return new MutableInterestRateCurveSensitivity().add(dPVSense, 1. / fx / fAnnuityPV).add(fPVSense, -1. / fAnnuityPV).add(fAnnuitySense, temp).getSensitivities();
   }
 
   @Override
@@ -201,16 +198,10 @@ public final class ParRateCurveSensitivityCalculator extends AbstractInstrumentD
 
     final double fwdFX = PRC_CALCULATOR.visit(fx, curves);
     final double t = fx.getPaymentTime();
-    List<DoublesPair> temp = new ArrayList<DoublesPair>();
-    temp.add(new DoublesPair(t, t * fwdFX));
-    final Map<String, List<DoublesPair>> senseD = new HashMap<String, List<DoublesPair>>();
-    senseD.put(fx.getPaymentCurrency1().getFundingCurveName(), temp);
-    temp = new ArrayList<DoublesPair>();
-    temp.add(new DoublesPair(t, -t * fwdFX));
-    final Map<String, List<DoublesPair>> senseF = new HashMap<String, List<DoublesPair>>();
-    senseF.put(fx.getPaymentCurrency2().getFundingCurveName(), temp);
-
-    return addSensitivity(senseD, senseF);
+    final MutableInterestRateCurveSensitivity result = new MutableInterestRateCurveSensitivity();
+    result.add(fx.getPaymentCurrency1().getFundingCurveName(), t, t * fwdFX);
+    result.add(fx.getPaymentCurrency2().getFundingCurveName(), t, -t * fwdFX);
+    return result.getSensitivities();
   }
 
   /**
@@ -46,6 +46,18 @@ public class ParRateNodeSensitivityCalculator extends NodeYieldSensitivityCalcul
     return calculateSensitivities(ird, _parRateSensitivityCalculator, fixedCurves, interpolatedCurves);
   }
 
+  /**
+   * Computes the sum of the par rate node sensitivities of a set of instruments. The point sensitivities are accumulated in arrays and projected onto
+   * the nodes once, rather than instrument by instrument.
+   * @param derivatives The instruments, not null
+   * @param fixedCurves The fixed curves.
+   * @param interpolatedCurves The curves with respect to which the sensitivities should be computed.
+   * @return The sum of the node sensitivities.
+   */
+  public DoubleMatrix1D calculateSensitivities(final List<? extends InstrumentDerivative> derivatives, final YieldCurveBundle fixedCurves, final YieldCurveBundle interpolatedCurves) {
+    return calculateSensitivities(derivatives, _parRateSensitivityCalculator, fixedCurves, interpolatedCurves);
+  }
+
   @Override
   public int hashCode() {
     final int prime = 31;
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.interestrate;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.Validate;
+
+import cern.jet.random.engine.MersenneTwister;
+
+import com.opengamma.analytics.financial.interestrate.annuity.derivative.AnnuityCouponIborRatchet;
+import com.opengamma.analytics.financial.interestrate.swaption.derivative.SwaptionPhysicalFixedIbor;
+import com.opengamma.analytics.financial.model.interestrate.definition.HullWhiteOneFactorPiecewiseConstantDataBundle;
+import com.opengamma.analytics.financial.montecarlo.HullWhiteMonteCarloMethod;
+import com.opengamma.analytics.math.random.NormalRandomNumberGenerator;
+import com.opengamma.util.tuple.DoublesPair;
+
+/**
+ * Present value curve sensitivity calculator for interest rate instruments using a Hull-White one factor model with Monte Carlo simulations.
+ * The sensitivities to all the curve points are computed by Adjoint Algorithmic Differentiation in one simulation (no bump and re-simulation).
+ * Each visit simulates with a new NormalRandomNumberGenerator on a MersenneTwister random engine with the default seed, as in
+ * {@link PresentValueHullWhiteMonteCarloCalculator}, so the results are reproducible and the calculator can be shared between threads.
+ */
+public class PresentValueCurveSensitivityHullWhiteMonteCarloCalculator extends PresentValueCurveSensitivityCalculator {
+
+  /**
+   * The default number of path in the Monte Carlo simulation.
+   */
+  private static final int DEFAULT_NB_PATH = 12500;
+  /**
+   * The number of paths used in the simulation.
+   */
+  private final int _nbPath;
+
+  /**
+   * Calculator constructor using the default number of paths.
+   */
+  public PresentValueCurveSensitivityHullWhiteMonteCarloCalculator() {
+    this(DEFAULT_NB_PATH);
+  }
+
+  /**
+   * Constructor with a given number of simulation paths.
+   * @param nbPath The number of paths.
+   */
+  public PresentValueCurveSensitivityHullWhiteMonteCarloCalculator(final int nbPath) {
+    Validate.isTrue(nbPath > 0, "number of paths must be positive");
+    _nbPath = nbPath;
+  }
+
+  @Override
+  public Map<String, List<DoublesPair>> visitSwaptionPhysicalFixedIbor(final SwaptionPhysicalFixedIbor swaption, final YieldCurveBundle curves) {
+    Validate.notNull(swaption);
+    Validate.notNull(curves);
+    if (!(curves instanceof HullWhiteOneFactorPiecewiseConstantDataBundle)) {
+      throw new UnsupportedOperationException(
+          "The PresentValueCurveSensitivityHullWhiteMonteCarloCalculator visitor visitSwaptionPhysicalFixedIbor requires a HullWhiteOneFactorPiecewiseConstantDataBundle as data.");
+    }
+    return getMethod().presentValueCurveSensitivity(swaption, swaption.getUnderlyingSwap().getFirstLeg().getDiscountCurve(), (HullWhiteOneFactorPiecewiseConstantDataBundle) curves)
+        .getSensitivities();
+  }
+
+  @Override
+  public Map<String, List<DoublesPair>> visitAnnuityCouponIborRatchet(final AnnuityCouponIborRatchet annuity, final YieldCurveBundle curves) {
+    Validate.notNull(annuity);
+    Validate.notNull(curves);
+    if (!(curves instanceof HullWhiteOneFactorPiecewiseConstantDataBundle)) {
+      throw new UnsupportedOperationException(
+          "The PresentValueCurveSensitivityHullWhiteMonteCarloCalculator visitor visitAnnuityCouponIborRatchet requires a HullWhiteOneFactorPiecewiseConstantDataBundle as data.");
+    }
+    return getMethod().presentValueCurveSensitivity(annuity, annuity.getDiscountCurve(), (HullWhiteOneFactorPiecewiseConstantDataBundle) curves).getSensitivities();
+  }
+
+  /**
+   * The Monte Carlo method, with a new random number generator with the default seed.
+   * @return The method.
+   */
+  private HullWhiteMonteCarloMethod getMethod() {
+    return new HullWhiteMonteCarloMethod(new NormalRandomNumberGenerator(0.0, 1.0, new MersenneTwister(MersenneTwister.DEFAULT_SEED)), _nbPath);
+  }
+
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.interestrate;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.Validate;
+
+import cern.jet.random.engine.MersenneTwister;
+
+import com.opengamma.analytics.financial.interestrate.annuity.derivative.AnnuityCouponIborRatchet;
+import com.opengamma.analytics.financial.interestrate.annuity.derivative.AnnuityCouponIborRatchet.RatchetIborCalibrationType;
+import com.opengamma.analytics.financial.interestrate.method.SuccessiveRootFinderCalibrationEngine;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.CapFloorIbor;
+import com.opengamma.analytics.financial.interestrate.payments.method.CapFloorHullWhiteCalibrationObjective;
+import com.opengamma.analytics.financial.interestrate.payments.method.CapFloorHullWhiteSuccessiveRootFinderCalibrationEngine;
+import com.opengamma.analytics.financial.interestrate.payments.method.CapFloorIborHullWhiteMethod;
+import com.opengamma.analytics.financial.interestrate.payments.method.CapFloorIborSABRMethod;
+import com.opengamma.analytics.financial.interestrate.swaption.derivative.SwaptionPhysicalFixedIbor;
+import com.opengamma.analytics.financial.interestrate.swaption.method.SwaptionPhysicalFixedIborHullWhiteMethod;
+import com.opengamma.analytics.financial.interestrate.swaption.method.SwaptionPhysicalFixedIborSABRMethod;
+import com.opengamma.analytics.financial.interestrate.swaption.method.SwaptionPhysicalHullWhiteCalibrationObjective;
+import com.opengamma.analytics.financial.interestrate.swaption.method.SwaptionPhysicalHullWhiteSuccessiveRootFinderCalibrationEngine;
+import com.opengamma.analytics.financial.model.interestrate.definition.HullWhiteOneFactorPiecewiseConstantDataBundle;
+import com.opengamma.analytics.financial.model.interestrate.definition.HullWhiteOneFactorPiecewiseConstantParameters;
+import com.opengamma.analytics.financial.model.option.definition.SABRInterestRateDataBundle;
+import com.opengamma.analytics.financial.montecarlo.HullWhiteMonteCarloMethod;
+import com.opengamma.analytics.math.random.NormalRandomNumberGenerator;
+import com.opengamma.util.tuple.DoublesPair;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Present value curve sensitivity calculator for interest rate instruments using a Hull-White one factor model calibrated to SABR prices and Monte Carlo simulations.
+ * This is the curve sensitivity counterpart of {@link PresentValueSABRHullWhiteMonteCarloCalculator}.
+ * <p>
+ * The sensitivity is the total derivative, including the change of the calibrated Hull-White volatilities when the curves move.
+ * The Monte Carlo curve and volatility sensitivities are computed by Adjoint Algorithmic Differentiation, without re-simulation.
+ * The derivative of the calibrated volatilities with respect to the curves is obtained from the implicit function theorem applied to the
+ * calibration equations (Hull-White explicit price = SABR price): the calibration is successive, so the system is lower triangular and
+ * solved by forward substitution. The Monte Carlo curve and volatility sensitivities are computed in one simulation.
+ * <p>
+ * Each visit simulates with a new NormalRandomNumberGenerator on a MersenneTwister random engine with the default seed, as in
+ * {@link PresentValueSABRHullWhiteMonteCarloCalculator}, so the results are reproducible and the calculator can be shared between threads.
+ */
+public class PresentValueCurveSensitivitySABRHullWhiteMonteCarloCalculator extends PresentValueCurveSensitivityCalculator {
+
+  /**
+   * The default mean reversion parameter for the Hull-White one factor model.
+   */
+  private static final double DEFAULT_MEAN_REVERSION = 0.01;
+  /**
+   * The default number of path in the Monte Carlo simulation.
+   */
+  private static final int DEFAULT_NB_PATH = 50000;
+  /**
+   * The SABR method used for European swaptions with physical delivery.
+   */
+  private static final SwaptionPhysicalFixedIborSABRMethod METHOD_SWAPTION_SABR = SwaptionPhysicalFixedIborSABRMethod.getInstance();
+  /**
+   * The Hull-White method used for European swaptions with physical delivery.
+   */
+  private static final SwaptionPhysicalFixedIborHullWhiteMethod METHOD_SWAPTION_HW = new SwaptionPhysicalFixedIborHullWhiteMethod();
+  /**
+   * The SABR method used for cap/floor.
+   */
+  private static final CapFloorIborSABRMethod METHOD_CAP_SABR = CapFloorIborSABRMethod.getInstance();
+  /**
+   * The Hull-White method used for cap/floor.
+   */
+  private static final CapFloorIborHullWhiteMethod METHOD_CAP_HW = new CapFloorIborHullWhiteMethod();
+
+  /**
+   * The number of paths used in the simulation.
+   */
+  private final int _nbPath;
+
+  /**
+   * Calculator constructor using the default number of paths.
+   */
+  public PresentValueCurveSensitivitySABRHullWhiteMonteCarloCalculator() {
+    this(DEFAULT_NB_PATH);
+  }
+
+  /**
+   * Constructor with a given number of simulation paths.
+   * @param nbPath The number of paths.
+   */
+  public PresentValueCurveSensitivitySABRHullWhiteMonteCarloCalculator(final int nbPath) {
+    Validate.isTrue(nbPath > 0, "number of paths must be positive");
+    _nbPath = nbPath;
+  }
+
+  @Override
+  public Map<String, List<DoublesPair>> visitSwaptionPhysicalFixedIbor(final SwaptionPhysicalFixedIbor swaption, final YieldCurveBundle curves) {
+    Validate.notNull(swaption);
+    Validate.notNull(curves);
+    if (!(curves instanceof SABRInterestRateDataBundle)) {
+      throw new UnsupportedOperationException(
+          "The PresentValueCurveSensitivitySABRHullWhiteMonteCarloCalculator visitor visitSwaptionPhysicalFixedIbor requires a SABRInterestRateDataBundle as data.");
+    }
+    final SABRInterestRateDataBundle sabr = (SABRInterestRateDataBundle) curves;
+    final HullWhiteOneFactorPiecewiseConstantParameters hwParameters = new HullWhiteOneFactorPiecewiseConstantParameters(DEFAULT_MEAN_REVERSION, new double[] {0.01}, new double[0]);
+    final SwaptionPhysicalHullWhiteCalibrationObjective objective = new SwaptionPhysicalHullWhiteCalibrationObjective(hwParameters);
+    final SuccessiveRootFinderCalibrationEngine calibrationEngine = new SwaptionPhysicalHullWhiteSuccessiveRootFinderCalibrationEngine(objective);
+    calibrationEngine.addInstrument(swaption, METHOD_SWAPTION_SABR);
+    calibrationEngine.calibrate(curves);
+    final HullWhiteOneFactorPiecewiseConstantDataBundle hwBundle = new HullWhiteOneFactorPiecewiseConstantDataBundle(hwParameters, curves);
+    // Calibrated volatility sensitivity: d(sigma)/d(curves) = (d(SABR)/d(curves) - d(HW)/d(curves)) / (d(HW)/d(sigma))
+    final double hwVega = METHOD_SWAPTION_HW.presentValueHullWhiteSensitivity(swaption, hwBundle)[0];
+    final InterestRateCurveSensitivity sigmaSensitivity = METHOD_SWAPTION_SABR.presentValueCurveSensitivity(swaption, sabr)
+        .plus(METHOD_SWAPTION_HW.presentValueCurveSensitivity(swaption, hwBundle).multipliedBy(-1.0)).multipliedBy(1.0 / hwVega);
+    // Monte Carlo sensitivities
+    final String dscName = swaption.getUnderlyingSwap().getFirstLeg().getDiscountCurve();
+    final Pair<InterestRateCurveSensitivity, double[]> sensiMC = getMethod().presentValueCurveAndHullWhiteSensitivity(swaption, dscName, hwBundle);
+    return sensiMC.getFirst().plus(sigmaSensitivity.multipliedBy(sensiMC.getSecond()[0])).cleaned().getSensitivities();
+  }
+
+  @Override
+  public Map<String, List<DoublesPair>> visitAnnuityCouponIborRatchet(final AnnuityCouponIborRatchet annuity, final YieldCurveBundle curves) {
+    Validate.notNull(annuity);
+    Validate.notNull(curves);
+    if (!(curves instanceof SABRInterestRateDataBundle)) {
+      throw new UnsupportedOperationException(
+          "The PresentValueCurveSensitivitySABRHullWhiteMonteCarloCalculator visitor visitAnnuityCouponIborRatchet requires a SABRInterestRateDataBundle as data.");
+    }
+    final SABRInterestRateDataBundle sabr = (SABRInterestRateDataBundle) curves;
+    final HullWhiteOneFactorPiecewiseConstantParameters hwParameters = new HullWhiteOneFactorPiecewiseConstantParameters(DEFAULT_MEAN_REVERSION, new double[] {0.01}, new double[0]);
+    final CapFloorHullWhiteCalibrationObjective objective = new CapFloorHullWhiteCalibrationObjective(hwParameters);
+    final SuccessiveRootFinderCalibrationEngine calibrationEngine = new CapFloorHullWhiteSuccessiveRootFinderCalibrationEngine(objective);
+    final InstrumentDerivative[] calibrationBasket = annuity.calibrationBasket(RatchetIborCalibrationType.FORWARD_COUPON, curves);
+    calibrationEngine.addInstrument(calibrationBasket, METHOD_CAP_SABR);
+    calibrationEngine.calibrate(curves);
+    final HullWhiteOneFactorPiecewiseConstantDataBundle hwBundle = new HullWhiteOneFactorPiecewiseConstantDataBundle(hwParameters, curves);
+    // Calibrated volatilities sensitivity: volatility i is calibrated to cap i, which only depends on volatilities 0 to i.
+    final int nbCalibration = calibrationBasket.length;
+    final InterestRateCurveSensitivity[] sigmaSensitivity = new InterestRateCurveSensitivity[nbCalibration];
+    for (int loopcal = 0; loopcal < nbCalibration; loopcal++) {
+      final CapFloorIbor cap = (CapFloorIbor) calibrationBasket[loopcal];
+      final double[] hwVega = METHOD_CAP_HW.presentValueHullWhiteSensitivity(cap, hwBundle);
+      InterestRateCurveSensitivity rhs = METHOD_CAP_SABR.presentValueSensitivity(cap, sabr).plus(METHOD_CAP_HW.presentValueCurveSensitivity(cap, hwBundle).multipliedBy(-1.0));
+      for (int loopprev = 0; loopprev < loopcal; loopprev++) {
+        rhs = rhs.plus(sigmaSensitivity[loopprev].multipliedBy(-hwVega[loopprev]));
+      }
+      sigmaSensitivity[loopcal] = rhs.multipliedBy(1.0 / hwVega[loopcal]);
+    }
+    // Monte Carlo sensitivities
+    final String dscName = annuity.getDiscountCurve();
+    final Pair<InterestRateCurveSensitivity, double[]> sensiMC = getMethod().presentValueCurveAndHullWhiteSensitivity(annuity, dscName, hwBundle);
+    InterestRateCurveSensitivity result = sensiMC.getFirst();
+    final double[] pvhwsMC = sensiMC.getSecond();
+    for (int loopcal = 0; loopcal < nbCalibration; loopcal++) {
+      result = result.plus(sigmaSensitivity[loopcal].multipliedBy(pvhwsMC[loopcal]));
+    }
+    return result.cleaned().getSensitivities();
+  }
+
+  /**
+   * The Monte Carlo method, with a new random number generator with the default seed.
+   * @return The method.
+   */
+  private HullWhiteMonteCarloMethod getMethod() {
+    return new HullWhiteMonteCarloMethod(new NormalRandomNumberGenerator(0.0, 1.0, new MersenneTwister(MersenneTwister.DEFAULT_SEED)), _nbPath);
+  }
+
+}
@@ -46,6 +46,18 @@ public class PresentValueNodeSensitivityCalculator extends NodeYieldSensitivityC
     return calculateSensitivities(ird, _presentValueSensitivityCalculator, fixedCurves, interpolatedCurves);
   }
 
+  /**
+   * Computes the sum of the present value node sensitivities of a set of instruments. The point sensitivities are accumulated in arrays and projected onto
+   * the nodes once, rather than instrument by instrument.
+   * @param derivatives The instruments, not null
+   * @param fixedCurves The fixed curves.
+   * @param interpolatedCurves The curves with respect to which the sensitivities should be computed.
+   * @return The sum of the node sensitivities.
+   */
+  public DoubleMatrix1D calculateSensitivities(final List<? extends InstrumentDerivative> derivatives, final YieldCurveBundle fixedCurves, final YieldCurveBundle interpolatedCurves) {
+    return calculateSensitivities(derivatives, _presentValueSensitivityCalculator, fixedCurves, interpolatedCurves);
+  }
+
   @Override
   public int hashCode() {
     final int prime = 31;
@@ -0,0 +1,348 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.finitedifference;
+
+import java.util.Arrays;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.analytics.math.linearalgebra.Decomposition;
+import com.opengamma.analytics.math.linearalgebra.DecompositionResult;
+import com.opengamma.analytics.math.linearalgebra.LUDecompositionCommons;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+
+/**
+ * The adjoint of the theta scheme of {@link ThetaMethodFiniteDifference}. For a function J of the solution at the final time step, one backward sweep
+ * through the time steps gives the sensitivity of J to the PDE coefficients a, b and c at <b>every</b> node of the grid, i.e. the discrete derivatives
+ * of the scheme exactly as it is stepped forward (including the exponential fitting). The sensitivity of J to any perturbation of the coefficients
+ * is then the sum over the grid of these sensitivities times the changes in the coefficients, with no further PDE solves.
+ * <p>
+ * Only standard coefficients (a, b and c) without a free boundary are handled, and the boundary conditions are taken to be independent of the
+ * coefficients (as are {@link DirichletBoundaryCondition} and {@link NeumannBoundaryCondition}).
+ */
+public class ThetaMethodFiniteDifferenceAdjoint {
+  private static final Decomposition<?> DCOMP = new LUDecompositionCommons();
+  /** The index of the sensitivities to the coefficient a (the diffusion) */
+  public static final int A = 0;
+  /** The index of the sensitivities to the coefficient b (the convection) */
+  public static final int B = 1;
+  /** The index of the sensitivities to the coefficient c (the reaction) */
+  public static final int C = 2;
+
+  private final double _theta;
+  private final ThetaMethodFiniteDifference _solver;
+
+  /**
+   * @param theta The weight. theta = 0 - fully explicit, theta = 0.5 - Crank-Nicolson, theta = 1.0 - fully implicit
+   */
+  public ThetaMethodFiniteDifferenceAdjoint(final double theta) {
+    _solver = new ThetaMethodFiniteDifference(theta, true);
+    _theta = theta;
+  }
+
+  /**
+   * Runs the forward scheme, keeping the solution at every time step (which is needed by the adjoint sweep).
+   * @param pdeData The PDE data, not null
+   * @return The full results
+   */
+  public PDEFullResults1D solve(final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> pdeData) {
+    Validate.notNull(pdeData, "pde data");
+    return (PDEFullResults1D) _solver.solve(pdeData);
+  }
+
+  /**
+   * Computes the sensitivities of a function J of the final time step to the PDE coefficients at every grid node.
+   * @param pdeData The PDE data, not null. The coefficients must be {@link ConvectionDiffusionPDE1DStandardCoefficients}
+   * @param solution The solution of the PDE from {@link #solve}, not null
+   * @param terminalSensitivity The derivatives of J with respect to the solution at each space node of the final time step, not null
+   * @return The sensitivities, indexed by {@link #A}, {@link #B} or {@link #C}, then by time index, then by space index. The sensitivities are zero on the
+   * boundary nodes
+   */
+  public double[][][] getCoefficientSensitivities(final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> pdeData, final PDEFullResults1D solution,
+      final double[] terminalSensitivity) {
+    Validate.notNull(pdeData, "pde data");
+    Validate.isTrue(pdeData.getCoefficients() instanceof ConvectionDiffusionPDE1DStandardCoefficients, "only standard coefficients are handled");
+    return getCoefficientSensitivities(pdeData, solution, getCoefficientValues((ConvectionDiffusionPDE1DStandardCoefficients) pdeData.getCoefficients(), pdeData.getGrid()),
+        terminalSensitivity);
+  }
+
+  /**
+   * Computes the sensitivities of a function J of the final time step to the PDE coefficients at every grid node, with the coefficients already
+   * evaluated on the grid.
+   * @param pdeData The PDE data, not null. The coefficients must be {@link ConvectionDiffusionPDE1DStandardCoefficients}
+   * @param solution The solution of the PDE from {@link #solve}, not null
+   * @param coefficientValues The coefficients of the PDE on the grid from {@link #getCoefficientValues}, not null
+   * @param terminalSensitivity The derivatives of J with respect to the solution at each space node of the final time step, not null
+   * @return The sensitivities, indexed by {@link #A}, {@link #B} or {@link #C}, then by time index, then by space index. The sensitivities are zero on the
+   * boundary nodes
+   */
+  public double[][][] getCoefficientSensitivities(final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> pdeData, final PDEFullResults1D solution,
+      final double[][][] coefficientValues, final double[] terminalSensitivity) {
+    Validate.notNull(pdeData, "pde data");
+    Validate.notNull(solution, "solution");
+    Validate.notNull(coefficientValues, "coefficient values");
+    Validate.notNull(terminalSensitivity, "terminal sensitivity");
+    Validate.isTrue(pdeData.getCoefficients() instanceof ConvectionDiffusionPDE1DStandardCoefficients, "only standard coefficients are handled");
+    Validate.isTrue(pdeData.getFreeBoundary() == null, "free boundaries are not handled");
+    final ConvectionDiffusionPDE1DStandardCoefficients coefficients = (ConvectionDiffusionPDE1DStandardCoefficients) pdeData.getCoefficients();
+    final PDEGrid1D grid = pdeData.getGrid();
+    final BoundaryCondition lowerBoundary = pdeData.getLowerBoundary();
+    final BoundaryCondition upperBoundary = pdeData.getUpperBoundary();
+    final int tNodes = grid.getNumTimeNodes();
+    final int xNodes = grid.getNumSpaceNodes();
+    Validate.isTrue(terminalSensitivity.length == xNodes, "terminal sensitivity must have one value per space node");
+    Validate.isTrue(coefficientValues.length == 3 && coefficientValues[A].length == tNodes, "coefficient values not consistent with grid");
+    final double[][] f = solution.getF();
+
+    // the fitting parameter (with its derivatives) at every interior node, as used by the forward scheme
+    final double[][] b = coefficientValues[B];
+    final double[][] c = coefficientValues[C];
+    final double[][] rho = new double[tNodes][xNodes];
+    final double[][] rhoDa = new double[tNodes][xNodes];
+    final double[][] rhoDb = new double[tNodes][xNodes];
+    final double[] rhoAdjoint = new double[2];
+    for (int n = 0; n < tNodes; n++) {
+      for (int i = 1; i < xNodes - 1; i++) {
+        rho[n][i] = getFittingParameter(grid, coefficientValues[A][n][i], b[n][i], i, rhoAdjoint);
+        rhoDa[n][i] = rhoAdjoint[0];
+        rhoDb[n][i] = rhoAdjoint[1];
+      }
+    }
+
+    final double[][] rhoBar = new double[tNodes][xNodes];
+    final double[][] bBar = new double[tNodes][xNodes];
+    final double[][] cBar = new double[tNodes][xNodes];
+    double[] fBar = terminalSensitivity.clone();
+    final double[][] m = new double[xNodes][xNodes];
+    for (int n = tNodes - 1; n > 0; n--) {
+      final double t1 = grid.getTimeNode(n - 1);
+      final double t2 = grid.getTimeNode(n);
+      final double dt = t2 - t1;
+
+      // the transpose of the left hand side matrix of the step from n - 1 to n
+      for (int i = 0; i < xNodes; i++) {
+        for (int j = 0; j < xNodes; j++) {
+          m[i][j] = 0.0;
+        }
+      }
+      for (int i = 1; i < xNodes - 1; i++) {
+        final double[] x1st = grid.getFirstDerivativeCoefficients(i);
+        final double[] x2nd = grid.getSecondDerivativeCoefficients(i);
+        for (int k = 0; k < 3; k++) {
+          m[i - 1 + k][i] = _theta * dt * (x2nd[k] * rho[n][i] + x1st[k] * b[n][i] + (k == 1 ? c[n][i] : 0.0)) + (k == 1 ? 1.0 : 0.0);
+        }
+      }
+      double[] temp = lowerBoundary.getLeftMatrixCondition(coefficients, grid, t2);
+      for (int k = 0; k < temp.length; k++) {
+        m[k][0] = temp[k];
+      }
+      temp = upperBoundary.getLeftMatrixCondition(coefficients, grid, t2);
+      for (int k = 0; k < temp.length; k++) {
+        m[xNodes - temp.length + k][xNodes - 1] = temp[k];
+      }
+      final DecompositionResult decomposition = DCOMP.evaluate(new DoubleMatrix2D(m));
+      final double[] qBar = decomposition.solve(fBar);
+
+      final double[] fBarPrevious = new double[xNodes];
+      for (int i = 1; i < xNodes - 1; i++) {
+        final double[] x1st = grid.getFirstDerivativeCoefficients(i);
+        final double[] x2nd = grid.getSecondDerivativeCoefficients(i);
+        fBarPrevious[i] += qBar[i];
+        for (int k = 0; k < 3; k++) {
+          // left hand side: M(n) f(n) = q
+          final double lhsBar = -_theta * dt * qBar[i] * f[n][i - 1 + k];
+          // right hand side: q = f(n - 1) - (1 - theta) dt L(n - 1) f(n - 1)
+          final double rhsBar = -(1 - _theta) * dt * qBar[i] * f[n - 1][i - 1 + k];
+          rhoBar[n][i] += x2nd[k] * lhsBar;
+          bBar[n][i] += x1st[k] * lhsBar;
+          rhoBar[n - 1][i] += x2nd[k] * rhsBar;
+          bBar[n - 1][i] += x1st[k] * rhsBar;
+          if (k == 1) {
+            cBar[n][i] += lhsBar;
+            cBar[n - 1][i] += rhsBar;
+          }
+          final double l = x2nd[k] * rho[n - 1][i] + x1st[k] * b[n - 1][i] + (k == 1 ? c[n - 1][i] : 0.0);
+          fBarPrevious[i - 1 + k] -= (1 - _theta) * dt * l * qBar[i];
+        }
+      }
+      temp = lowerBoundary.getRightMatrixCondition(coefficients, grid, t1);
+      for (int k = 0; k < temp.length; k++) {
+        fBarPrevious[k] += temp[k] * qBar[0];
+      }
+      temp = upperBoundary.getRightMatrixCondition(coefficients, grid, t1);
+      for (int k = 0; k < temp.length; k++) {
+        fBarPrevious[xNodes - 1 - k] += temp[k] * qBar[xNodes - 1];
+      }
+      fBar = fBarPrevious;
+    }
+
+    final double[][] aBar = new double[tNodes][xNodes];
+    for (int n = 0; n < tNodes; n++) {
+      for (int i = 1; i < xNodes - 1; i++) {
+        aBar[n][i] = rhoDa[n][i] * rhoBar[n][i];
+        bBar[n][i] += rhoDb[n][i] * rhoBar[n][i];
+      }
+    }
+    return new double[][][] {aBar, bBar, cBar };
+  }
+
+  /**
+   * Evaluates the coefficients at every interior node of the grid.
+   * @param coefficients The coefficients, not null
+   * @param grid The grid, not null
+   * @return The coefficient values, indexed by {@link #A}, {@link #B} or {@link #C}, then by time index, then by space index. The values are zero on the
+   * boundary nodes
+   */
+  public double[][][] getCoefficientValues(final ConvectionDiffusionPDE1DStandardCoefficients coefficients, final PDEGrid1D grid) {
+    Validate.notNull(coefficients, "coefficients");
+    Validate.notNull(grid, "grid");
+    final int tNodes = grid.getNumTimeNodes();
+    final int xNodes = grid.getNumSpaceNodes();
+    final double[][][] res = new double[3][tNodes][xNodes];
+    for (int n = 0; n < tNodes; n++) {
+      final double t = grid.getTimeNode(n);
+      for (int i = 1; i < xNodes - 1; i++) {
+        final double x = grid.getSpaceNode(i);
+        res[A][n][i] = coefficients.getA(t, x);
+        res[B][n][i] = coefficients.getB(t, x);
+        res[C][n][i] = coefficients.getC(t, x);
+      }
+    }
+    return res;
+  }
+
+  /**
+   * The first order change in J when the coefficients are changed, i.e. the sum over the grid of the coefficient sensitivities times the changes
+   * in the coefficients. The perturbed coefficients are only evaluated where the corresponding sensitivity is non-zero.
+   * @param sensitivities The coefficient sensitivities from {@link #getCoefficientSensitivities}, not null
+   * @param grid The grid used to compute the sensitivities, not null
+   * @param coefficientValues The coefficients used to compute the sensitivities, evaluated on the grid by {@link #getCoefficientValues}, not null
+   * @param perturbedCoefficients The changed coefficients, not null
+   * @return The change in J
+   */
+  public double getSensitivity(final double[][][] sensitivities, final PDEGrid1D grid, final double[][][] coefficientValues,
+      final ConvectionDiffusionPDE1DStandardCoefficients perturbedCoefficients) {
+    Validate.notNull(sensitivities, "sensitivities");
+    Validate.notNull(grid, "grid");
+    Validate.notNull(coefficientValues, "coefficient values");
+    Validate.notNull(perturbedCoefficients, "perturbed coefficients");
+    final int tNodes = grid.getNumTimeNodes();
+    final int xNodes = grid.getNumSpaceNodes();
+    double sum = 0;
+    for (int n = 0; n < tNodes; n++) {
+      final double t = grid.getTimeNode(n);
+      for (int i = 1; i < xNodes - 1; i++) {
+        final double x = grid.getSpaceNode(i);
+        if (sensitivities[A][n][i] != 0.0) {
+          sum += sensitivities[A][n][i] * (perturbedCoefficients.getA(t, x) - coefficientValues[A][n][i]);
+        }
+        if (sensitivities[B][n][i] != 0.0) {
+          sum += sensitivities[B][n][i] * (perturbedCoefficients.getB(t, x) - coefficientValues[B][n][i]);
+        }
+        if (sensitivities[C][n][i] != 0.0) {
+          sum += sensitivities[C][n][i] * (perturbedCoefficients.getC(t, x) - coefficientValues[C][n][i]);
+        }
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Sets to zero the smallest sensitivities to each coefficient, such that the sum of the absolute values of those set to zero is no more than
+   * the tolerance times the sum of the absolute values of all of them. The sensitivities are usually concentrated around the region of the grid that
+   * determines J, and {@link #getSensitivity} only evaluates the perturbed coefficients where the sensitivity is non-zero, so this saves most of the
+   * work when the perturbed coefficients are expensive to evaluate.
+   * @param sensitivities The coefficient sensitivities from {@link #getCoefficientSensitivities}, not null
+   * @param tolerance The tolerance, not negative
+   * @return The truncated sensitivities
+   */
+  public double[][][] truncate(final double[][][] sensitivities, final double tolerance) {
+    Validate.notNull(sensitivities, "sensitivities");
+    Validate.isTrue(tolerance >= 0, "negative tolerance");
+    final double[][][] res = new double[sensitivities.length][][];
+    for (int k = 0; k < sensitivities.length; k++) {
+      final int tNodes = sensitivities[k].length;
+      final int xNodes = tNodes == 0 ? 0 : sensitivities[k][0].length;
+      final double[] sorted = new double[tNodes * xNodes];
+      double total = 0;
+      for (int n = 0; n < tNodes; n++) {
+        for (int i = 0; i < xNodes; i++) {
+          sorted[n * xNodes + i] = Math.abs(sensitivities[k][n][i]);
+          total += sorted[n * xNodes + i];
+        }
+      }
+      Arrays.sort(sorted);
+      double dropped = 0;
+      double cutoff = 0;
+      for (int j = 0; j < sorted.length; j++) {
+        dropped += sorted[j];
+        if (dropped > tolerance * total) {
+          cutoff = sorted[j];
+          break;
+        }
+      }
+      res[k] = new double[tNodes][xNodes];
+      for (int n = 0; n < tNodes; n++) {
+        for (int i = 0; i < xNodes; i++) {
+          if (Math.abs(sensitivities[k][n][i]) >= cutoff) {
+            res[k][n][i] = sensitivities[k][n][i];
+          }
+        }
+      }
+    }
+    return res;
+  }
+
+  /**
+   * The exponential fitting parameter of {@link ThetaMethodFiniteDifference}, with its derivatives.
+   * @param grid The grid
+   * @param a The diffusion coefficient
+   * @param b The convection coefficient
+   * @param i The space index
+   * @param derivatives Output: the derivatives with respect to a and b
+   * @return The fitting parameter
+   */
+  private static double getFittingParameter(final PDEGrid1D grid, final double a, final double b, final int i, final double[] derivatives) {
+    derivatives[0] = 0.0;
+    derivatives[1] = 0.0;
+    if (a == 0 && b == 0) {
+      return 0.0;
+    }
+    final double[] x1st = grid.getFirstDerivativeCoefficients(i);
+    final double[] x2nd = grid.getSecondDerivativeCoefficients(i);
+    final double dx1 = grid.getSpaceStep(i - 1);
+    final double dx2 = grid.getSpaceStep(i);
+    final double bdx1 = b * dx1;
+    final double bdx2 = b * dx2;
+
+    if (Math.abs(bdx1) > 10 * Math.abs(a) || Math.abs(bdx2) > 10 * Math.abs(a)) {
+      // convection dominated
+      final double sign = (a > 0.0 ? -1.0 : 1.0);
+      if (b > 0) {
+        derivatives[1] = sign * x1st[0] / x2nd[0];
+      } else {
+        derivatives[1] = -sign * x1st[2] / x2nd[2];
+      }
+      return derivatives[1] * b;
+    } else if (Math.abs(a) > 10 * Math.abs(bdx1) || Math.abs(a) > 10 * Math.abs(bdx2)) {
+      // diffusion dominated
+      derivatives[0] = 1.0;
+      return a;
+    }
+    final double expo1 = Math.exp(bdx1 / a);
+    final double expo2 = Math.exp(-bdx2 / a);
+    final double num = x1st[0] * expo1 + x1st[1] + x1st[2] * expo2;
+    final double den = x2nd[0] * expo1 + x2nd[1] + x2nd[2] * expo2;
+    final double rho = -b * num / den;
+    // rho = -b num(expo1, expo2) / den(expo1, expo2)
+    final double expo1Bar = -b * (x1st[0] * den - num * x2nd[0]) / (den * den);
+    final double expo2Bar = -b * (x1st[2] * den - num * x2nd[2]) / (den * den);
+    derivatives[0] = -expo1Bar * expo1 * bdx1 / (a * a) + expo2Bar * expo2 * bdx2 / (a * a);
+    derivatives[1] = -num / den + expo1Bar * expo1 * dx1 / a - expo2Bar * expo2 * dx2 / a;
+    return rho;
+  }
+
+}
@@ -180,6 +180,56 @@ public class HullWhiteOneFactorPiecewiseConstantInterestRateModel {
     return Math.sqrt(denominator / numerator);
   }
 
+  /**
+   * The adjoint version of the method beta. Computes the standard deviation of the state variable between the start and end expiries and its derivatives.
+   * @param data Hull-White model data.
+   * @param startExpiry Start time of the expiry period.
+   * @param endExpiry End time of the expiry period.
+   * @param derivatives Array used for return the derivatives with respect to the input. The array is changed by the method. The derivatives of the function beta
+   * with respect to the piecewise constant volatilities.
+   * @return The standard deviation.
+   */
+  public double beta(final HullWhiteOneFactorPiecewiseConstantParameters data, final double startExpiry, final double endExpiry, double[] derivatives) {
+    int nbSigma = data.getVolatility().length;
+    for (int loopperiod = 0; loopperiod < nbSigma; loopperiod++) { // To clean derivatives
+      derivatives[loopperiod] = 0.0;
+    }
+    // Forward sweep
+    double numerator = 2 * data.getMeanReversion();
+    int indexStart = 1; // Period in which the time startExpiry is; _volatilityTime[i-1] <= startExpiry < _volatilityTime[i];
+    while (startExpiry > data.getVolatilityTime()[indexStart]) {
+      indexStart++;
+    }
+    int indexEnd = indexStart; // Period in which the time endExpiry is; _volatilityTime[i-1] <= endExpiry < _volatilityTime[i];
+    while (endExpiry > data.getVolatilityTime()[indexEnd]) {
+      indexEnd++;
+    }
+    int sLen = indexEnd - indexStart + 1;
+    double[] s = new double[sLen + 1];
+    s[0] = startExpiry;
+    System.arraycopy(data.getVolatilityTime(), indexStart, s, 1, sLen - 1);
+    s[sLen] = endExpiry;
+    double[] exp2as = new double[sLen + 1];
+    for (int loopperiod = 0; loopperiod < sLen + 1; loopperiod++) {
+      exp2as[loopperiod] = Math.exp(2 * data.getMeanReversion() * s[loopperiod]);
+    }
+    double denominator = 0.0;
+    for (int loopperiod = 0; loopperiod < sLen; loopperiod++) {
+      denominator += data.getVolatility()[loopperiod + indexStart - 1] * data.getVolatility()[loopperiod + indexStart - 1] * (exp2as[loopperiod + 1] - exp2as[loopperiod]);
+    }
+    double beta = Math.sqrt(denominator / numerator);
+    if (beta == 0.0) { // No variance on the period: the derivative is not defined, set to 0.
+      return beta;
+    }
+    // Backward sweep
+    double betaBar = 1.0;
+    double denominatorBar = 0.5 / (beta * numerator) * betaBar;
+    for (int loopperiod = 0; loopperiod < sLen; loopperiod++) {
+      derivatives[loopperiod + indexStart - 1] = 2 * data.getVolatility()[loopperiod + indexStart - 1] * (exp2as[loopperiod + 1] - exp2as[loopperiod]) * denominatorBar;
+    }
+    return beta;
+  }
+
   /**
    * Compute the common part of the exercise boundary of European swaptions
    * forward. Used in particular for Bermudan swaption first step of the
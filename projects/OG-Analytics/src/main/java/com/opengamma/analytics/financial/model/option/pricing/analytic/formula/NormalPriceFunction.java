@@ -10,6 +10,7 @@ import org.apache.commons.lang.Validate;
 import com.opengamma.analytics.math.function.Function1D;
 import com.opengamma.analytics.math.statistics.distribution.NormalDistribution;
 import com.opengamma.analytics.math.statistics.distribution.ProbabilityDistribution;
+import com.opengamma.analytics.math.statistics.distribution.fnlib.DERFC;
 
 /**
  * Computes the price of an option in the normally distributed assets hypothesis (Bachelier model).
@@ -20,6 +21,8 @@ public class NormalPriceFunction implements OptionPriceFunction<NormalFunctionDa
    * The normal distribution implementation.
    */
   private static final ProbabilityDistribution<Double> NORMAL = new NormalDistribution(0, 1);
+  private static final double ROOT2 = Math.sqrt(2);
+  private static final double INV_ROOT2PI = 1 / Math.sqrt(2 * Math.PI);
 
   @Override
   public Function1D<NormalFunctionData, Double> getPriceFunction(final EuropeanVanillaOption option) {
@@ -99,4 +102,68 @@ public class NormalPriceFunction implements OptionPriceFunction<NormalFunctionDa
     }
     return price;
   }
+
+  /**
+   * Computes the prices of a set of options in the normally distributed assets hypothesis (Bachelier model), with the first and second order price derivatives,
+   * in one pass over primitive arrays. The results are written into caller-supplied arrays, so repeated calls do not allocate.
+   * @param forwards The forwards.
+   * @param strikes The strikes.
+   * @param timesToExpiry The times to expiry.
+   * @param numeraires The numeraires.
+   * @param normalVols The normal volatilities.
+   * @param isCall The call (true) / put (false) flags.
+   * @param prices Array used to output the prices, same length as the inputs.
+   * @param priceDerivatives Arrays used to output the derivatives of the prices with respect to [0] forward, [1] volatility, [2] strike, [3] forward twice,
+   * [4] forward and volatility, [5] volatility twice. There should be six arrays, each the same length as the inputs.
+   */
+  public void getPriceAdjoint(final double[] forwards, final double[] strikes, final double[] timesToExpiry, final double[] numeraires, final double[] normalVols,
+      final boolean[] isCall, final double[] prices, final double[][] priceDerivatives) {
+    Validate.notNull(forwards, "forwards");
+    Validate.notNull(strikes, "strikes");
+    Validate.notNull(timesToExpiry, "times to expiry");
+    Validate.notNull(numeraires, "numeraires");
+    Validate.notNull(normalVols, "volatilities");
+    Validate.notNull(isCall, "is call");
+    Validate.notNull(prices, "prices");
+    Validate.notNull(priceDerivatives, "derivatives");
+    final int n = forwards.length;
+    Validate.isTrue(strikes.length == n && timesToExpiry.length == n && numeraires.length == n && normalVols.length == n && isCall.length == n && prices.length == n,
+        "array size");
+    Validate.isTrue(priceDerivatives.length == 6, "array size");
+    for (int j = 0; j < 6; j++) {
+      Validate.isTrue(priceDerivatives[j] != null && priceDerivatives[j].length == n, "array size");
+    }
+    final double[] forwardBar = priceDerivatives[0];
+    final double[] volBar = priceDerivatives[1];
+    final double[] strikeBar = priceDerivatives[2];
+    final double[] forwardForward = priceDerivatives[3];
+    final double[] forwardVol = priceDerivatives[4];
+    final double[] volVol = priceDerivatives[5];
+    for (int i = 0; i < n; i++) {
+      final double numeraire = numeraires[i];
+      final double rootT = Math.sqrt(timesToExpiry[i]);
+      final double sigmaRootT = normalVols[i] * rootT;
+      final int sign = isCall[i] ? 1 : -1;
+      final double x = sign * (forwards[i] - strikes[i]);
+      if (sigmaRootT < 1e-16) {
+        prices[i] = (x > 0 ? numeraire * x : 0.0);
+        forwardBar[i] = (x > 0 ? sign * numeraire : 0.0);
+        volBar[i] = 0.0;
+        forwardForward[i] = 0.0;
+        forwardVol[i] = 0.0;
+        volVol[i] = 0.0;
+      } else {
+        final double arg = x / sigmaRootT;
+        final double nCDF = 0.5 * DERFC.getErfc(-arg / ROOT2);
+        final double nPDF = INV_ROOT2PI * Math.exp(-0.5 * arg * arg);
+        prices[i] = numeraire * (x * nCDF + sigmaRootT * nPDF);
+        forwardBar[i] = numeraire * sign * nCDF;
+        volBar[i] = numeraire * rootT * nPDF;
+        forwardForward[i] = numeraire * nPDF / sigmaRootT;
+        forwardVol[i] = -numeraire * sign * nPDF * arg / normalVols[i];
+        volVol[i] = volBar[i] * arg * arg / normalVols[i];
+      }
+      strikeBar[i] = -forwardBar[i];
+    }
+  }
 }
@@ -31,7 +31,7 @@ import com.opengamma.analytics.math.number.ComplexNumber;
  * \end{align*}
  * $$
  */
-public class CGMYCharacteristicExponent implements CharacteristicExponent {
+public class CGMYCharacteristicExponent implements PrimitiveCharacteristicExponent {
   private static final GammaFunction GAMMA_FUNCTION = new GammaFunction();
   private final double _c;
   private final double _g;
@@ -97,6 +97,39 @@ public class CGMYCharacteristicExponent implements CharacteristicExponent {
     return res;
   }
 
+  /**
+   * {@inheritDoc}
+   * The complex powers are computed from the modulus and argument on primitive doubles, so no object is created per point.
+   */
+  @Override
+  public void getValues(final double[] u, final double t, final double[] res) {
+    Validate.notNull(u, "u");
+    Validate.notNull(res, "res");
+    Validate.isTrue(u.length == res.length, "u and res must have the same length");
+    final double r2 = t * _r2;
+    final int n = u.length / 2;
+    for (int j = 0; j < n; j++) {
+      final double x = u[2 * j];
+      final double y = u[2 * j + 1];
+      if (x == 0.0 && (y == 0.0 || y == -1.0)) {
+        res[2 * j] = y == 0.0 ? 0.0 : r2 * _r3;
+        res[2 * j + 1] = 0.0;
+        continue;
+      }
+      // iu = (-y, x); (M - iu)^Y and (G + iu)^Y
+      final double mRe = _m + y;
+      final double mIm = -x;
+      final double gRe = _g - y;
+      final double gIm = x;
+      final double mMult = Math.pow(Math.hypot(mRe, mIm), _y);
+      final double mArg = _y * Math.atan2(mIm, mRe);
+      final double gMult = Math.pow(Math.hypot(gRe, gIm), _y);
+      final double gArg = _y * Math.atan2(gIm, gRe);
+      res[2 * j] = r2 * (mMult * Math.cos(mArg) + gMult * Math.cos(gArg) - _r1);
+      res[2 * j + 1] = r2 * (mMult * Math.sin(mArg) + gMult * Math.sin(gArg));
+    }
+  }
+
   /**
    * Gets C
    * @return C
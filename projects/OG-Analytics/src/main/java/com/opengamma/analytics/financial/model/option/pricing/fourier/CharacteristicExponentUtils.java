@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.option.pricing.fourier;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.analytics.math.number.ComplexNumber;
+
+/**
+ * Utilities for the evaluation of characteristic exponents on arrays of points.
+ */
+public final class CharacteristicExponentUtils {
+
+  private CharacteristicExponentUtils() {
+  }
+
+  /**
+   * Evaluates a characteristic exponent at an array of points held as interleaved real and imaginary parts. If the characteristic exponent is a
+   * {@link PrimitiveCharacteristicExponent}, no object is created; otherwise the values are computed point by point with {@link CharacteristicExponent#getValue}.
+   * @param ce The characteristic exponent, not null
+   * @param u The points, interleaved real and imaginary parts, not null
+   * @param t The time
+   * @param res The array where the values are written, same length as u and not the same array
+   */
+  public static void getValues(final CharacteristicExponent ce, final double[] u, final double t, final double[] res) {
+    Validate.notNull(ce, "characteristic exponent");
+    Validate.notNull(u, "u");
+    Validate.notNull(res, "res");
+    Validate.isTrue(u.length == res.length, "u and res must have the same length");
+    Validate.isTrue(u != res, "u and res must be different arrays");
+    if (ce instanceof PrimitiveCharacteristicExponent) {
+      ((PrimitiveCharacteristicExponent) ce).getValues(u, t, res);
+      return;
+    }
+    final int n = u.length / 2;
+    for (int j = 0; j < n; j++) {
+      final ComplexNumber value = ce.getValue(new ComplexNumber(u[2 * j], u[2 * j + 1]), t);
+      res[2 * j] = value.getReal();
+      res[2 * j + 1] = value.getImaginary();
+    }
+  }
+
+}
@@ -5,11 +5,12 @@
  */
 package com.opengamma.analytics.financial.model.option.pricing.fourier;
 
-import static com.opengamma.analytics.math.number.ComplexNumber.ZERO;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.commons.lang.Validate;
 
-import com.opengamma.analytics.math.ComplexMathUtils;
 import com.opengamma.analytics.math.fft.JTransformsWrapper;
 import com.opengamma.analytics.math.function.Function1D;
 import com.opengamma.analytics.math.number.ComplexNumber;
@@ -168,7 +169,36 @@ public class FFTPricer {
    */
   public double[][] price(final double forward, final double discountFactor, final double t, final boolean isCall, final MartingaleCharacteristicExponent ce, final int nStrikesBelowATM,
       final int nStrikesAboveATM, final double alpha, final double delta, final int n, final int m) {
+    return price(new double[] {forward}, new double[] {discountFactor}, new double[] {t}, isCall, ce, nStrikesBelowATM, nStrikesAboveATM, alpha, delta, n, m)[0];
+  }
 
+  /**
+   * Price European options across a range of strikes and expiries (a strip for each expiry) using a FFT. The terminal price at each expiry is assumed to be of the
+   * form S = F*exp(x), where F is the forward, and x is a random variable with a known characteristic function. <b>Note: this method is for expert use only</b>
+   * <p>
+   * The sampled function and its transform are held as interleaved real and imaginary parts in primitive arrays, and the FFT is done in place; the work arrays
+   * are shared by all the expiries. The transform does not depend on the forward or the discount factor, so it is computed once per distinct expiry.
+   * @param forwards The forward values of the underlying, one per expiry
+   * @param discountFactors The discount factors, one per expiry
+   * @param expiries The times to expiry
+   * @param isCall true for call 
+   * @param ce The Characteristic Exponent (log of characteristic function) of the returns of the underlying
+   * @param nStrikesBelowATM maximum number of strikes below ATM to be returned 
+   * @param nStrikesAboveATM maximum number of strikes above ATM to be returned 
+   * @param alpha Regularization factor. Values of 0 or -1 are not allowed. -0.5 is recommended  
+   * @param delta The spacing for sampling the function 
+   * @param n The (zero padded) array of sample values. <b>Use a power of 2</b>
+   * @param m The actual number of samples. Need n >= 2m-1
+   * @return for each expiry, array of arrays of strikes and prices 
+   */
+  public double[][][] price(final double[] forwards, final double[] discountFactors, final double[] expiries, final boolean isCall, final MartingaleCharacteristicExponent ce,
+      final int nStrikesBelowATM, final int nStrikesAboveATM, final double alpha, final double delta, final int n, final int m) {
+
+    Validate.notNull(forwards, "forwards");
+    Validate.notNull(discountFactors, "discount factors");
+    Validate.notNull(expiries, "expiries");
+    Validate.isTrue(forwards.length == expiries.length, "need a forward per expiry");
+    Validate.isTrue(discountFactors.length == expiries.length, "need a discount factor per expiry");
     Validate.notNull(ce, "characteristic exponent");
     Validate.isTrue(nStrikesBelowATM >= 0, "nStrikesBelowATM >= 0");
     Validate.isTrue(nStrikesAboveATM >= 0, "nStrikesAboveATM >= 0");
@@ -177,59 +207,85 @@ public class FFTPricer {
     Validate.isTrue(m > 0, "need m > 0");
     Validate.isTrue(n >= 2 * m - 1, "need n > 2m-1");
 
-    final Function1D<ComplexNumber, ComplexNumber> func = new EuropeanCallFourierTransform(ce).getFunction(t);
     final int halfN = n % 2 == 0 ? n / 2 : (n + 1) / 2;
     final double a = -(halfN - 1) * delta;
-    final ComplexNumber[] z = getPaddedArray(alpha, delta, n, m, func, halfN);
-    final ComplexNumber[] x = JTransformsWrapper.transform1DComplex(z);
     final int nLowStrikes = Math.min(halfN, nStrikesBelowATM);
     final int nHighStrikes = Math.min(n - halfN, nStrikesAboveATM);
     final int p = 1 + nLowStrikes + nHighStrikes;
-    final double[][] res = new double[p][2];
     final double deltaK = 2 * Math.PI / delta / n;
-    for (int i = 0; i < nLowStrikes; i++) {
-      final double k = (i - nLowStrikes) * deltaK;
-      res[i][0] = forward * Math.exp(k);
-      res[i][1] = discountFactor * forward * getReducedPrice(x[i + n - nLowStrikes], alpha, delta, k, a, isCall);
-    }
-    for (int i = nLowStrikes; i < p; i++) {
-      final double k = (i - nLowStrikes) * deltaK;
-      res[i][0] = forward * Math.exp(k);
-      res[i][1] = discountFactor * forward * getReducedPrice(x[i - nLowStrikes], alpha, delta, k, a, isCall);
+    final double[] expK = new double[p];
+    for (int i = 0; i < p; i++) {
+      expK[i] = Math.exp((i - nLowStrikes) * deltaK);
     }
-    return res;
-  }
-
-  private ComplexNumber[] getPaddedArray(final double alpha, final double delta, final int n, final int m, final Function1D<ComplexNumber, ComplexNumber> func, final int halfN) {
-    final ComplexNumber[] z = new ComplexNumber[n];
-
-    final int lowerPadOutSize = halfN - m;
-    final int upperPadOutSize = n - halfN + 1 - m;
 
-    for (int i = 0; i < lowerPadOutSize; i++) {
-      z[i] = ZERO;
+    // sample points u_i = i * delta - i(1 + alpha), i = 0, ..., m - 1
+    final double[] u = new double[2 * m];
+    for (int i = 0; i < m; i++) {
+      u[2 * i] = i * delta;
+      u[2 * i + 1] = -(1 + alpha);
     }
-
-    for (int i = n - upperPadOutSize; i < n; i++) {
-      z[i] = ZERO;
+    final double[] psi = new double[2 * m];
+    final double[] z = new double[2 * n];
+    final Map<Double, double[]> reducedPrices = new HashMap<Double, double[]>();
+
+    final int nExpiries = expiries.length;
+    final double[][][] res = new double[nExpiries][p][2];
+    for (int e = 0; e < nExpiries; e++) {
+      double[] reduced = reducedPrices.get(expiries[e]);
+      if (reduced == null) {
+        fillTransform(ce, expiries[e], u, psi, z, halfN);
+        reduced = new double[p];
+        for (int i = 0; i < p; i++) {
+          final int index = i < nLowStrikes ? i + n - nLowStrikes : i - nLowStrikes;
+          reduced[i] = getReducedPrice(z[2 * index], z[2 * index + 1], alpha, delta, (i - nLowStrikes) * deltaK, a, isCall);
+        }
+        reducedPrices.put(expiries[e], reduced);
+      }
+      final double scale = discountFactors[e] * forwards[e];
+      for (int i = 0; i < p; i++) {
+        res[e][i][0] = forwards[e] * expK[i];
+        res[e][i][1] = scale * reduced[i];
+      }
     }
+    return res;
+  }
 
-    ComplexNumber u = new ComplexNumber(0.0, -(1 + alpha));
+  /**
+   * Samples the Fourier transform of the (modified) call price, $-e^{\psi(u)}/(u(u + i))$, at the points u, writes the samples and their conjugates into z about
+   * the centre, zero pads the rest, and transforms z in place.
+   */
+  private void fillTransform(final MartingaleCharacteristicExponent ce, final double t, final double[] u, final double[] psi, final double[] z, final int halfN) {
+    final int m = u.length / 2;
+    CharacteristicExponentUtils.getValues(ce, u, t, psi);
+    Arrays.fill(z, 0.0);
     final int offset = halfN - 1;
-    z[offset] = func.evaluate(u);
-
-    for (int i = 1; i < m; i++) {
-      u = new ComplexNumber(i * delta, -(1 + alpha));
-      final ComplexNumber f = func.evaluate(u);
-      z[offset + i] = f;
-      z[offset - i] = ComplexMathUtils.conjugate(f); //TODO the FFT should take care of this
+    for (int i = 0; i < m; i++) {
+      final double x = u[2 * i];
+      final double y = u[2 * i + 1];
+      // num = exp(psi)
+      final double mult = Math.exp(psi[2 * i]);
+      final double numRe = mult * Math.cos(psi[2 * i + 1]);
+      final double numIm = mult * Math.sin(psi[2 * i + 1]);
+      // denom = u(u + i)
+      final double denomRe = x * x - y * (y + 1);
+      final double denomIm = x * (2 * y + 1);
+      final double mod2 = denomRe * denomRe + denomIm * denomIm;
+      final double fRe = -(numRe * denomRe + numIm * denomIm) / mod2;
+      final double fIm = -(numIm * denomRe - numRe * denomIm) / mod2;
+      z[2 * (offset + i)] = fRe;
+      z[2 * (offset + i) + 1] = fIm;
+      if (i > 0) {
+        z[2 * (offset - i)] = fRe;
+        z[2 * (offset - i) + 1] = -fIm;
+      }
     }
-    return z;
+    JTransformsWrapper.transform1DComplexInPlace(z);
   }
 
-  private double getReducedPrice(final ComplexNumber x, final double alpha, final double delta, final double k, final double a, final boolean isCall) {
-    final ComplexNumber temp = ComplexMathUtils.multiply(ComplexMathUtils.exp(new ComplexNumber(-alpha * k, -k * a)), x);
-    final double y = delta * temp.getReal() / 2 / Math.PI;
+  private double getReducedPrice(final double xRe, final double xIm, final double alpha, final double delta, final double k, final double a, final boolean isCall) {
+    // Re(exp(-alpha k - i k a) x)
+    final double theta = -k * a;
+    final double y = delta * Math.exp(-alpha * k) * (Math.cos(theta) * xRe - Math.sin(theta) * xIm) / 2 / Math.PI;
     if (isCall) {
       if (alpha > 0.0) {
         return y;
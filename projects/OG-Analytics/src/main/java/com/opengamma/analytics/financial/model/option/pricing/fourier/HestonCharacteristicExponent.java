@@ -46,7 +46,7 @@ import com.opengamma.analytics.math.number.ComplexNumber;
  * \end{align*}
  * $$
  */
-public class HestonCharacteristicExponent implements MartingaleCharacteristicExponent {
+public class HestonCharacteristicExponent implements MartingaleCharacteristicExponent, PrimitiveCharacteristicExponent {
   private final double _kappa;
   private final double _theta;
   private final double _vol0;
@@ -122,6 +122,102 @@ public class HestonCharacteristicExponent implements MartingaleCharacteristicExp
     return add(c, dv0);
   }
 
+  /**
+   * {@inheritDoc}
+   * The complex arithmetic of {@link #getValue} is carried out on primitive doubles, so no object is created per point.
+   */
+  @Override
+  public void getValues(final double[] u, final double t, final double[] res) {
+    Validate.notNull(u, "u");
+    Validate.notNull(res, "res");
+    Validate.isTrue(u.length == res.length, "u and res must have the same length");
+    final int n = u.length / 2;
+    final double omega2 = _omega * _omega;
+    final double rhoOmega = _rho * _omega;
+    final double cMult = _kappa * _theta / omega2;
+    final double var = _kappa * t < 1e-6 ? _vol0 * t : _theta * t + (_vol0 - _theta) * (1 - Math.exp(-_kappa * t)) / _kappa;
+    for (int j = 0; j < n; j++) {
+      final double x = u[2 * j];
+      final double y = u[2 * j + 1];
+      if (x == 0.0 && (y == 0.0 || y == -1.0)) {
+        res[2 * j] = 0.0;
+        res[2 * j + 1] = 0.0;
+        continue;
+      }
+      // z = u(i + u)
+      final double zRe = x * x - y - y * y;
+      final double zIm = x + 2 * x * y;
+      if (_omega == 0.0 || Math.abs(_omega / _kappa) * Math.hypot(zRe, zIm) < 1e-6) {
+        res[2 * j] = -var / 2 * zRe;
+        res[2 * j + 1] = -var / 2 * zIm;
+        continue;
+      }
+      // c1 = i rho omega u; d = sqrt((c1 - kappa)^2 + omega^2 u(i + u))
+      final double c1Re = -rhoOmega * y;
+      final double c1Im = rhoOmega * x;
+      final double pRe = c1Re - _kappa;
+      final double d2Re = pRe * pRe - c1Im * c1Im + omega2 * zRe;
+      final double d2Im = 2 * pRe * c1Im + omega2 * zIm;
+      final double dRe;
+      final double dIm;
+      if (d2Re == 0.0 && d2Im == 0.0) {
+        dRe = 0.0;
+        dIm = 0.0;
+      } else {
+        final double w;
+        if (Math.abs(d2Re) > Math.abs(d2Im)) {
+          final double ratio = d2Im / d2Re;
+          w = Math.sqrt(Math.abs(d2Re)) * Math.sqrt((1 + Math.sqrt(1 + ratio * ratio)) / 2);
+        } else {
+          final double ratio = d2Re / d2Im;
+          w = Math.sqrt(Math.abs(d2Im)) * Math.sqrt((Math.abs(ratio) + Math.sqrt(1 + ratio * ratio)) / 2);
+        }
+        if (d2Re >= 0.0) {
+          dRe = w;
+          dIm = d2Im / 2 / w;
+        } else if (d2Im >= 0.0) {
+          dRe = d2Im / 2 / w;
+          dIm = w;
+        } else {
+          dRe = -d2Im / 2 / w;
+          dIm = -w;
+        }
+      }
+      // num = kappa + d - c1, denom = kappa - d - c1, c = num / denom
+      final double numRe = _kappa + dRe - c1Re;
+      final double numIm = dIm - c1Im;
+      final double denomRe = _kappa - dRe - c1Re;
+      final double denomIm = -dIm - c1Im;
+      double mod2 = denomRe * denomRe + denomIm * denomIm;
+      final double cRe = (numRe * denomRe + numIm * denomIm) / mod2;
+      final double cIm = (numIm * denomRe - numRe * denomIm) / mod2;
+      // e = exp(-t d)
+      final double eMod = Math.exp(-t * dRe);
+      final double eRe = eMod * Math.cos(-t * dIm);
+      final double eIm = eMod * Math.sin(-t * dIm);
+      // log((c - e) / (c - 1))
+      final double aRe = cRe - eRe;
+      final double aIm = cIm - eIm;
+      final double bRe = cRe - 1;
+      mod2 = bRe * bRe + cIm * cIm;
+      final double qRe = (aRe * bRe + aIm * cIm) / mod2;
+      final double qIm = (aIm * bRe - aRe * cIm) / mod2;
+      final double logRe = Math.log(Math.hypot(qRe, qIm));
+      final double logIm = Math.atan2(qIm, qRe);
+      // C = kappa theta / omega^2 (t denom - 2 log(...))
+      final double bigCRe = cMult * (t * denomRe - 2 * logRe);
+      final double bigCIm = cMult * (t * denomIm - 2 * logIm);
+      // D = num (1 - e) / (c - e) / omega^2
+      final double fRe = numRe * (1 - eRe) + numIm * eIm;
+      final double fIm = numIm * (1 - eRe) - numRe * eIm;
+      mod2 = (aRe * aRe + aIm * aIm) * omega2;
+      final double bigDRe = (fRe * aRe + fIm * aIm) / mod2;
+      final double bigDIm = (fIm * aRe - fRe * aIm) / mod2;
+      res[2 * j] = bigCRe + _vol0 * bigDRe;
+      res[2 * j + 1] = bigCIm + _vol0 * bigDIm;
+    }
+  }
+
   @Override
   public Function1D<ComplexNumber, ComplexNumber[]> getAdjointFunction(final double t) {
     return new Function1D<ComplexNumber, ComplexNumber[]>() {
@@ -17,7 +17,7 @@ import com.opengamma.analytics.math.number.ComplexNumber;
 /**
  * 
  */
-public abstract class MeanCorrection implements MartingaleCharacteristicExponent {
+public abstract class MeanCorrection implements MartingaleCharacteristicExponent, PrimitiveCharacteristicExponent {
   private CharacteristicExponent _base;
 
   public MeanCorrection(CharacteristicExponent base) {
@@ -54,6 +54,23 @@ public abstract class MeanCorrection implements MartingaleCharacteristicExponent
     return add(_base.getValue(u, t), multiply(w, u));
   }
 
+  @Override
+  public void getValues(final double[] u, final double t, final double[] res) {
+    Validate.notNull(u, "u");
+    Validate.notNull(res, "res");
+    Validate.isTrue(u.length == res.length, "u and res must have the same length");
+    final ComplexNumber temp = _base.getValue(MINUS_I, t);
+    Validate.isTrue(Math.abs(temp.getImaginary()) < 1e-12, "problem with CharacteristicExponent");
+    final double c = temp.getReal();
+    CharacteristicExponentUtils.getValues(_base, u, t, res);
+    final int n = u.length / 2;
+    for (int j = 0; j < n; j++) {
+      // w * u with w = -ic
+      res[2 * j] += c * u[2 * j + 1];
+      res[2 * j + 1] -= c * u[2 * j];
+    }
+  }
+
   @Override
   public Function1D<ComplexNumber, ComplexNumber[]> getAdjointFunction(double t) {
     final Function1D<ComplexNumber, ComplexNumber[]> func = _base.getAdjointFunction(t);
@@ -0,0 +1,25 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.option.pricing.fourier;
+
+/**
+ * A characteristic exponent that can be evaluated on an array of points held as primitive doubles, without creating
+ * a {@link com.opengamma.analytics.math.number.ComplexNumber} per point. The complex values are interleaved: the point $j$ is
+ * $u_j = a_{2j} + i a_{2j+1}$.
+ * <p>
+ * The values must be the same as those returned by {@link #getValue}.
+ */
+public interface PrimitiveCharacteristicExponent extends CharacteristicExponent {
+
+  /**
+   * Evaluates the characteristic exponent at an array of (complex) points, and time t.
+   * @param u The points, interleaved real and imaginary parts, not null
+   * @param t The time
+   * @param res The array where the values are written, interleaved real and imaginary parts. Same length as u and <b>not</b> the same array as u
+   */
+  void getValues(final double[] u, final double t, final double[] res);
+
+}
@@ -39,7 +39,7 @@ import com.opengamma.analytics.math.number.ComplexNumber;
  * \end{align*}
  * $$
  */
-public class TimeChangedCharacteristicExponent implements CharacteristicExponent {
+public class TimeChangedCharacteristicExponent implements PrimitiveCharacteristicExponent {
   private final CharacteristicExponent _base;
   private final CharacteristicExponent _timeChange;
 
@@ -75,6 +75,23 @@ public class TimeChangedCharacteristicExponent implements CharacteristicExponent
     return func.evaluate(u);
   }
 
+  @Override
+  public void getValues(final double[] u, final double t, final double[] res) {
+    Validate.notNull(u, "u");
+    Validate.notNull(res, "res");
+    Validate.isTrue(u.length == res.length, "u and res must have the same length");
+    final double[] z = new double[u.length];
+    CharacteristicExponentUtils.getValues(_base, u, 1, z);
+    final int n = u.length / 2;
+    for (int j = 0; j < n; j++) {
+      // z = -i psi_X(u)
+      final double re = z[2 * j];
+      z[2 * j] = z[2 * j + 1];
+      z[2 * j + 1] = -re;
+    }
+    CharacteristicExponentUtils.getValues(_timeChange, z, t, res);
+  }
+
   /**
    * 
    * @return the smaller $alpha_{max}$ of the base characteristic exponent and the time-changed characteristic exponent
@@ -0,0 +1,200 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.option.pricing.tree;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Prices European and American vanilla options by backward induction on a Cox-Ross-Rubinstein recombining binomial lattice.
+ * <p>
+ * Unlike {@link BinomialOptionModel}, no tree object is built: the option values are rolled back in place in one primitive array per option (O(n) memory) and the
+ * spot at a node is read from a pre-computed array of powers of the up factor. The delta, gamma and theta are read from the first two time steps of the same
+ * backward induction, so no second tree is required for the greeks.
+ * <p>
+ * Several options (strikes and expiries) on the same underlying share one lattice and are rolled back together in one pass. The time step is the longest expiry divided by the
+ * number of steps. An expiry which is not a whole number of time steps is not rounded: the option is rolled back from the two time steps around its expiry and the
+ * price and greeks are linearly interpolated in expiry between them. Every expiry must be at least two time steps, required for the gamma and theta.
+ */
+public class BinomialLatticeOptionPricer {
+
+  /** The index of the price in the results. */
+  public static final int PRICE = 0;
+  /** The index of the delta in the results. */
+  public static final int DELTA = 1;
+  /** The index of the gamma in the results. */
+  public static final int GAMMA = 2;
+  /** The index of the theta in the results. */
+  public static final int THETA = 3;
+  /** The tolerance, in number of time steps, for an expiry to be considered on a time step. */
+  private static final double STEP_TOLERANCE = 1.0E-9;
+
+  /**
+   * The number of time steps in the lattice (for the longest expiry).
+   */
+  private final int _nSteps;
+
+  /**
+   * Constructor with the default number of steps (1000).
+   */
+  public BinomialLatticeOptionPricer() {
+    this(1000);
+  }
+
+  /**
+   * @param nSteps The number of time steps in the lattice, at least 2.
+   */
+  public BinomialLatticeOptionPricer(final int nSteps) {
+    Validate.isTrue(nSteps >= 2, "Need at least 2 steps");
+    _nSteps = nSteps;
+  }
+
+  /**
+   * Gets the number of time steps.
+   * @return The number of steps
+   */
+  public int getNumberOfSteps() {
+    return _nSteps;
+  }
+
+  /**
+   * Computes the price, delta, gamma and theta of one option.
+   * @param spot The spot
+   * @param expiry The time to expiry
+   * @param strike The strike
+   * @param isCall True for a call, false for a put
+   * @param isAmerican True for American exercise, false for European
+   * @param interestRate The continuously compounded interest rate
+   * @param costOfCarry The cost of carry
+   * @param volatility The log-normal volatility
+   * @return The price and greeks, in the order {@link #PRICE}, {@link #DELTA}, {@link #GAMMA}, {@link #THETA}
+   */
+  public double[] getPriceAndGreeks(final double spot, final double expiry, final double strike, final boolean isCall, final boolean isAmerican, final double interestRate,
+      final double costOfCarry, final double volatility) {
+    return getPricesAndGreeks(spot, new double[] {expiry}, new double[] {strike}, new boolean[] {isCall}, isAmerican, interestRate, costOfCarry, volatility)[0];
+  }
+
+  /**
+   * Computes the price, delta, gamma and theta of several options on the same underlying. All the options are rolled back together on one lattice.
+   * @param spot The spot
+   * @param expiries The times to expiry, one per option, each at least two time steps (the longest expiry divided by the number of steps)
+   * @param strikes The strikes, one per option
+   * @param isCall For each option, true for a call, false for a put
+   * @param isAmerican True for American exercise, false for European
+   * @param interestRate The continuously compounded interest rate
+   * @param costOfCarry The cost of carry
+   * @param volatility The log-normal volatility
+   * @return For each option, the price and greeks in the order {@link #PRICE}, {@link #DELTA}, {@link #GAMMA}, {@link #THETA}
+   */
+  public double[][] getPricesAndGreeks(final double spot, final double[] expiries, final double[] strikes, final boolean[] isCall, final boolean isAmerican,
+      final double interestRate, final double costOfCarry, final double volatility) {
+    ArgumentChecker.notNegativeOrZero(spot, "spot");
+    ArgumentChecker.notNegativeOrZero(volatility, "volatility");
+    Validate.notNull(expiries, "expiries");
+    Validate.notNull(strikes, "strikes");
+    Validate.notNull(isCall, "is call");
+    final int nOptions = strikes.length;
+    Validate.isTrue(nOptions > 0, "no options");
+    Validate.isTrue(expiries.length == nOptions, "expiries and strikes must have the same length");
+    Validate.isTrue(isCall.length == nOptions, "is call and strikes must have the same length");
+    double maxExpiry = 0;
+    for (int k = 0; k < nOptions; k++) {
+      ArgumentChecker.notNegativeOrZero(expiries[k], "expiry");
+      maxExpiry = Math.max(maxExpiry, expiries[k]);
+    }
+    final double dt = maxExpiry / _nSteps;
+    final double sigmaSqrtDt = volatility * Math.sqrt(dt);
+    final double u = Math.exp(sigmaSqrtDt);
+    final double d = 1. / u;
+    final double p = (Math.exp(costOfCarry * dt) - d) / (u - d);
+    Validate.isTrue(p > 0 && p < 1, "Up probability outside (0, 1); increase the number of steps");
+    final double df = Math.exp(-interestRate * dt);
+    final double pUp = df * p;
+    final double pDown = df * (1 - p);
+    // spots[i + _nSteps] is the spot after i net up moves (i from -_nSteps to _nSteps)
+    final double[] spots = new double[2 * _nSteps + 1];
+    for (int i = 0; i <= 2 * _nSteps; i++) {
+      spots[i] = spot * Math.exp((i - _nSteps) * sigmaSqrtDt);
+    }
+    // each option is rolled back from one time step, or from the two time steps around its expiry with linear interpolation weights
+    final int[] legOption = new int[2 * nOptions];
+    final int[] legStep = new int[2 * nOptions];
+    final double[] legWeight = new double[2 * nOptions];
+    int nLegs = 0;
+    for (int k = 0; k < nOptions; k++) {
+      final double steps = Math.min(_nSteps, expiries[k] / dt);
+      final int lower = (int) Math.floor(steps + STEP_TOLERANCE);
+      Validate.isTrue(lower >= 2, "Expiry " + expiries[k] + " is shorter than two time steps; increase the number of steps");
+      if (steps - lower <= STEP_TOLERANCE) {
+        legOption[nLegs] = k;
+        legStep[nLegs] = lower;
+        legWeight[nLegs++] = 1;
+      } else {
+        legOption[nLegs] = k;
+        legStep[nLegs] = lower;
+        legWeight[nLegs++] = lower + 1 - steps;
+        legOption[nLegs] = k;
+        legStep[nLegs] = lower + 1;
+        legWeight[nLegs++] = steps - lower;
+      }
+    }
+    final double[][] values = new double[nLegs][];
+    for (int l = 0; l < nLegs; l++) {
+      values[l] = new double[legStep[l] + 1];
+    }
+    final double[] prices = new double[nLegs];
+    final double[][] step1 = new double[nLegs][2];
+    final double[][] step2 = new double[nLegs][3];
+    for (int i = _nSteps; i >= 0; i--) {
+      for (int l = 0; l < nLegs; l++) {
+        if (legStep[l] < i) {
+          continue;
+        }
+        final double[] v = values[l];
+        final double sign = isCall[legOption[l]] ? 1 : -1;
+        final double strike = strikes[legOption[l]];
+        if (legStep[l] == i) {
+          for (int j = 0; j <= i; j++) {
+            v[j] = Math.max(sign * (spots[2 * j - i + _nSteps] - strike), 0);
+          }
+        } else if (isAmerican) {
+          for (int j = 0; j <= i; j++) {
+            v[j] = Math.max(pDown * v[j] + pUp * v[j + 1], sign * (spots[2 * j - i + _nSteps] - strike));
+          }
+        } else {
+          for (int j = 0; j <= i; j++) {
+            v[j] = pDown * v[j] + pUp * v[j + 1];
+          }
+        }
+        if (i == 2) {
+          System.arraycopy(v, 0, step2[l], 0, 3);
+        } else if (i == 1) {
+          System.arraycopy(v, 0, step1[l], 0, 2);
+        } else if (i == 0) {
+          prices[l] = v[0];
+        }
+      }
+    }
+    final double s10 = spots[_nSteps - 1];
+    final double s11 = spots[_nSteps + 1];
+    final double s20 = spots[_nSteps - 2];
+    final double s21 = spots[_nSteps];
+    final double s22 = spots[_nSteps + 2];
+    final double[][] results = new double[nOptions][4];
+    for (int l = 0; l < nLegs; l++) {
+      final double[] result = results[legOption[l]];
+      final double w = legWeight[l];
+      result[PRICE] += w * prices[l];
+      result[DELTA] += w * (step1[l][1] - step1[l][0]) / (s11 - s10);
+      final double gamma = (step2[l][2] - step2[l][1]) / (s22 - s21) - (step2[l][1] - step2[l][0]) / (s21 - s20);
+      result[GAMMA] += w * gamma / (0.5 * (s22 - s20));
+      result[THETA] += w * (step2[l][1] - prices[l]) / (2 * dt);
+    }
+    return results;
+  }
+
+}
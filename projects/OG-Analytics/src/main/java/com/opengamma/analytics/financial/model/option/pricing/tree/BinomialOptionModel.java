@@ -87,7 +87,8 @@ public class BinomialOptionModel<T extends StandardOptionDataBundle> extends Tre
       @SuppressWarnings({"synthetic-access" })
       @Override
       public RecombiningBinomialTree<DoublesPair> evaluate(final T data) {
-        final DoublesPair[] tempResults = new DoublesPair[_j];
+        final double[] spots = new double[_j];
+        final double[] optionValues = new double[_j];
         final DoublesPair[][] spotAndOptionPrices = new DoublesPair[_maxDepthToSave + 1][_maxWidthToSave];
         final OptionPayoffFunction<T> payoffFunction = definition.getPayoffFunction();
         final OptionExerciseFunction<T> exerciseFunction = definition.getExerciseFunction();
@@ -99,9 +100,10 @@ public class BinomialOptionModel<T extends StandardOptionDataBundle> extends Tre
         final double r = data.getInterestRate(t);
         double newSpot = spot * Math.pow(d, _n);
         for (int i = 0; i < _j; i++) {
-          tempResults[i] = DoublesPair.of(newSpot, payoffFunction.getPayoff((T) data.withSpot(newSpot), 0.));
+          spots[i] = newSpot;
+          optionValues[i] = payoffFunction.getPayoff((T) data.withSpot(newSpot), 0.);
           if (_n == _maxDepthToSave) {
-            spotAndOptionPrices[_n][i] = tempResults[i];
+            spotAndOptionPrices[_n][i] = DoublesPair.of(spots[i], optionValues[i]);
           }
           newSpot *= u / d;
         }
@@ -109,15 +111,17 @@ public class BinomialOptionModel<T extends StandardOptionDataBundle> extends Tre
         double optionValue, spotValue;
         T newData;
         double p;
+        // The values are rolled back in place: node j at step i only depends on nodes j and j + 1 at step i + 1.
         for (int i = _n - 1; i >= 0; i--) {
           for (int j = 0; j < RecombiningBinomialTree.NODES.evaluate(i); j++) {
             p = pTree.getNode(i, j);
-            optionValue = df * ((1 - p) * tempResults[j].second + p * tempResults[j + 1].second);
-            spotValue = tempResults[j].first / d;
+            optionValue = df * ((1 - p) * optionValues[j] + p * optionValues[j + 1]);
+            spotValue = spots[j] / d;
             newData = (T) data.withSpot(spotValue);
-            tempResults[j] = DoublesPair.of(spotValue, exerciseFunction.shouldExercise(newData, optionValue) ? payoffFunction.getPayoff(newData, optionValue) : optionValue);
+            spots[j] = spotValue;
+            optionValues[j] = exerciseFunction.shouldExercise(newData, optionValue) ? payoffFunction.getPayoff(newData, optionValue) : optionValue;
             if (i <= _maxDepthToSave) {
-              spotAndOptionPrices[i][j] = tempResults[j];
+              spotAndOptionPrices[i][j] = DoublesPair.of(spotValue, optionValues[j]);
             }
           }
         }
@@ -140,6 +144,11 @@ public class BinomialOptionModel<T extends StandardOptionDataBundle> extends Tre
       _dt = definition.getTimeToExpiry(data.getDate()) / _n;
     }
 
+    @Override
+    public Double visitPrice() {
+      return _tree.getNode(0, 0).second;
+    }
+
     @Override
     public Double visitDelta() {
       final DoublesPair node11 = _tree.getNode(1, 1);
@@ -95,24 +95,28 @@ public class TrinomialOptionModel<T extends StandardOptionDataBundle> extends Tr
         final double edx = Math.exp(_model.getDX(definition, data, _n, _j));
         final double df = Math.exp(-r * t / _n);
         double newSpot = spot * Math.pow(edx, -_n);
-        final DoublesPair[] tempResults = new DoublesPair[_j];
+        final double[] spots = new double[_j];
+        final double[] optionValues = new double[_j];
         for (int i = 0; i < _j; i++) {
-          tempResults[i] = DoublesPair.of(newSpot, payoffFunction.getPayoff((T) data.withSpot(newSpot), 0.));
+          spots[i] = newSpot;
+          optionValues[i] = payoffFunction.getPayoff((T) data.withSpot(newSpot), 0.);
           if (_n == _maxDepthToSave) {
-            spotAndOptionPrices[_n][i] = tempResults[i];
+            spotAndOptionPrices[_n][i] = DoublesPair.of(spots[i], optionValues[i]);
           }
           newSpot *= edx;
         }
         double optionValue, spotValue;
         T newData;
+        // The values are rolled back in place: node j - 1 at step i only depends on nodes j - 1, j and j + 1 at step i + 1.
         for (int i = _n - 1; i >= 0; i--) {
           for (int j = 1; j <= RecombiningTrinomialTree.NODES.evaluate(i); j++) {
-            optionValue = df * (u * tempResults[j + 1].second + m * tempResults[j].second + d * tempResults[j - 1].second);
-            spotValue = df * tempResults[j].first;
+            optionValue = df * (u * optionValues[j + 1] + m * optionValues[j] + d * optionValues[j - 1]);
+            spotValue = df * spots[j];
             newData = (T) data.withSpot(spotValue);
-            tempResults[j - 1] = DoublesPair.of(spotValue, exerciseFunction.shouldExercise(newData, optionValue) ? payoffFunction.getPayoff(newData, optionValue) : optionValue);
+            spots[j - 1] = spotValue;
+            optionValues[j - 1] = exerciseFunction.shouldExercise(newData, optionValue) ? payoffFunction.getPayoff(newData, optionValue) : optionValue;
             if (i <= _maxDepthToSave) {
-              spotAndOptionPrices[i][j - 1] = tempResults[j - 1];
+              spotAndOptionPrices[i][j - 1] = DoublesPair.of(spotValue, optionValues[j - 1]);
             }
           }
         }
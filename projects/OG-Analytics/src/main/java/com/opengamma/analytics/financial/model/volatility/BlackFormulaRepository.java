@@ -13,6 +13,7 @@ import com.opengamma.analytics.math.rootfinding.BisectionSingleRootFinder;
 import com.opengamma.analytics.math.rootfinding.BracketRoot;
 import com.opengamma.analytics.math.statistics.distribution.NormalDistribution;
 import com.opengamma.analytics.math.statistics.distribution.ProbabilityDistribution;
+import com.opengamma.analytics.math.statistics.distribution.fnlib.DERFC;
 import com.opengamma.lang.annotation.ExternalFunction;
 import com.opengamma.util.ArgumentChecker;
 
@@ -29,6 +30,31 @@ public abstract class BlackFormulaRepository {
   private static final double SMALL = 1.0E-12;
   private static final int MAX_ITERATIONS = 15; //something's wrong if Newton-Raphson taking longer than this
   private static final double VOL_TOL = 1e-9; // 1 part in 100,000 basis points will do for implied vol
+  private static final double ROOT2 = Math.sqrt(2);
+  private static final double INV_ROOT2PI = 1 / Math.sqrt(2 * Math.PI);
+  private static final int MAX_HALLEY_ITERATIONS = 30;
+  private static final double HALLEY_TOL = 1e-14;
+
+  /** The row of the price in the results of {@link #priceAndGreeks}. */
+  public static final int PRICE = 0;
+  /** The row of the forward delta in the results of {@link #priceAndGreeks}. */
+  public static final int DELTA = 1;
+  /** The row of the dual delta in the results of {@link #priceAndGreeks}. */
+  public static final int DUAL_DELTA = 2;
+  /** The row of the forward gamma in the results of {@link #priceAndGreeks}. */
+  public static final int GAMMA = 3;
+  /** The row of the dual gamma in the results of {@link #priceAndGreeks}. */
+  public static final int DUAL_GAMMA = 4;
+  /** The row of the forward vega in the results of {@link #priceAndGreeks}. */
+  public static final int VEGA = 5;
+  /** The row of the vanna in the results of {@link #priceAndGreeks}. */
+  public static final int VANNA = 6;
+  /** The row of the vomma in the results of {@link #priceAndGreeks}. */
+  public static final int VOMMA = 7;
+  /** The row of the forward theta in the results of {@link #priceAndGreeks}. */
+  public static final int THETA = 8;
+  /** The number of rows in the results of {@link #priceAndGreeks}. */
+  public static final int NUMBER_OF_GREEKS = 9;
 
   /**
    * The <b>forward</b> price of an option using the Black formula
@@ -366,6 +392,115 @@ public abstract class BlackFormulaRepository {
     return vomma(forward, strike, timeToExpiry, lognormalVol);
   }
 
+  /**
+   * The <b>forward</b> prices of a set of options using the Black formula. This is the array version of {@link #price(double, double, double, double, boolean)}:
+   * the results are written into a caller-supplied array, so repeated calls do not allocate.
+   * @param forwards The forward values of the underlying
+   * @param strikes The strikes
+   * @param timesToExpiry The times-to-expiry
+   * @param lognormalVols The log-normal volatilities
+   * @param isCall True for calls, false for puts
+   * @param res The array to which the <b>forward</b> prices are written, same length as the inputs
+   */
+  public static void price(final double[] forwards, final double[] strikes, final double[] timesToExpiry, final double[] lognormalVols, final boolean[] isCall,
+      final double[] res) {
+    final int n = checkArrays(forwards, strikes, timesToExpiry, lognormalVols, isCall);
+    ArgumentChecker.notNull(res, "res");
+    ArgumentChecker.isTrue(res.length == n, "results must have length {}; have {}", n, res.length);
+    for (int i = 0; i < n; i++) {
+      final double forward = forwards[i];
+      final double strike = strikes[i];
+      if (!(lognormalVols[i] >= 0.0)) {
+        throw new IllegalArgumentException("negative volatility; have " + lognormalVols[i]);
+      }
+      final double sigmaRootT = lognormalVols[i] * Math.sqrt(timesToExpiry[i]);
+      final double sign = isCall[i] ? 1 : -1;
+      if (strike < SMALL) {
+        res[i] = isCall[i] ? forward : 0.0;
+      } else if (sigmaRootT < SMALL) {
+        res[i] = Math.max(sign * (forward - strike), 0.0);
+      } else {
+        final double d1 = Math.log(forward / strike) / sigmaRootT + 0.5 * sigmaRootT;
+        res[i] = sign * (forward * normalCDF(sign * d1) - strike * normalCDF(sign * (d1 - sigmaRootT)));
+      }
+    }
+  }
+
+  /**
+   * The <b>forward</b> prices and the driftless first and second order greeks of a set of options, computed in one pass over the inputs. The greeks are those of
+   * {@link #delta}, {@link #dualDelta}, {@link #gamma}, {@link #dualGamma}, {@link #vega}, {@link #vanna}, {@link #vomma} and {@link #theta}. The results are
+   * written into caller-supplied arrays, so repeated calls do not allocate.
+   * <p>
+   * For a zero strike, or a zero standard deviation, the price is the intrinsic value, the deltas are the limiting step functions and the other greeks are zero.
+   * @param forwards The forward values of the underlying
+   * @param strikes The strikes
+   * @param timesToExpiry The times-to-expiry
+   * @param lognormalVols The log-normal volatilities
+   * @param isCall True for calls, false for puts
+   * @param res The arrays to which the results are written: {@link #NUMBER_OF_GREEKS} rows indexed by {@link #PRICE}, {@link #DELTA}, {@link #DUAL_DELTA},
+   * {@link #GAMMA}, {@link #DUAL_GAMMA}, {@link #VEGA}, {@link #VANNA}, {@link #VOMMA} and {@link #THETA}, each the same length as the inputs
+   */
+  public static void priceAndGreeks(final double[] forwards, final double[] strikes, final double[] timesToExpiry, final double[] lognormalVols,
+      final boolean[] isCall, final double[][] res) {
+    final int n = checkArrays(forwards, strikes, timesToExpiry, lognormalVols, isCall);
+    ArgumentChecker.notNull(res, "res");
+    ArgumentChecker.isTrue(res.length == NUMBER_OF_GREEKS, "results must have {} rows; have {}", NUMBER_OF_GREEKS, res.length);
+    for (int j = 0; j < NUMBER_OF_GREEKS; j++) {
+      ArgumentChecker.notNull(res[j], "res row");
+      ArgumentChecker.isTrue(res[j].length == n, "results rows must have length {}; have {}", n, res[j].length);
+    }
+    final double[] price = res[PRICE];
+    final double[] delta = res[DELTA];
+    final double[] dualDelta = res[DUAL_DELTA];
+    final double[] gamma = res[GAMMA];
+    final double[] dualGamma = res[DUAL_GAMMA];
+    final double[] vega = res[VEGA];
+    final double[] vanna = res[VANNA];
+    final double[] vomma = res[VOMMA];
+    final double[] theta = res[THETA];
+    for (int i = 0; i < n; i++) {
+      final double forward = forwards[i];
+      final double strike = strikes[i];
+      final double vol = lognormalVols[i];
+      if (!(vol >= 0.0)) {
+        throw new IllegalArgumentException("negative volatility; have " + vol);
+      }
+      final double rootT = Math.sqrt(timesToExpiry[i]);
+      final double sigmaRootT = vol * rootT;
+      final boolean call = isCall[i];
+      final double sign = call ? 1 : -1;
+      if (strike < SMALL || sigmaRootT < SMALL) {
+        final boolean itm = forward > strike;
+        price[i] = Math.max(sign * (forward - strike), 0.0);
+        delta[i] = call ? (itm ? 1.0 : 0.0) : (itm ? 0.0 : -1.0);
+        dualDelta[i] = -delta[i];
+        gamma[i] = 0.0;
+        dualGamma[i] = 0.0;
+        vega[i] = 0.0;
+        vanna[i] = 0.0;
+        vomma[i] = 0.0;
+        theta[i] = 0.0;
+        continue;
+      }
+      final double d1 = Math.log(forward / strike) / sigmaRootT + 0.5 * sigmaRootT;
+      final double d2 = d1 - sigmaRootT;
+      final double nD1 = normalCDF(sign * d1);
+      final double nD2 = normalCDF(sign * d2);
+      final double pdfD1 = normalPDF(d1);
+      // K n(d2) = F n(d1)
+      final double pdfD2 = pdfD1 * forward / strike;
+      price[i] = sign * (forward * nD1 - strike * nD2);
+      delta[i] = sign * nD1;
+      dualDelta[i] = -sign * nD2;
+      gamma[i] = pdfD1 / forward / sigmaRootT;
+      dualGamma[i] = pdfD2 / strike / sigmaRootT;
+      vega[i] = forward * rootT * pdfD1;
+      vanna[i] = -pdfD1 * d2 / vol;
+      vomma[i] = vega[i] * d1 * d2 / vol;
+      theta[i] = -forward * pdfD1 * vol / 2 / rootT;
+    }
+  }
+
   public static double impliedVolatility(final double price, final double forward, final double strike, final double timeToExpiry, final boolean isCall) {
     final double intrinsicPrice = Math.max(0, (isCall ? 1 : -1) * (forward - strike));
     Validate.isTrue(strike > 0, "Cannot find an implied volatility when strike is zero as there is no optionality");
@@ -546,6 +681,129 @@ public abstract class BlackFormulaRepository {
     return sigma;
   }
 
+  /**
+   * The log-normal (Black) implied volatilities of a set of options. This is the array version of
+   * {@link #impliedVolatility(double, double, double, double, boolean)}: the results are written into a caller-supplied array.
+   * <p>
+   * Each option is inverted on its time value (the price of the out-the-money option with the same strike). The iterations are Halley steps on a
+   * function of the total standard deviation $\sigma\sqrt{T}$, started at the inflection point of the out-the-money price, sqrt(2|ln(F/K)|), from
+   * which they are monotone; at-the-money options are inverted in closed form. The root is kept bracketed and
+   * the iterations typically converge in three or four steps. If they do not, the scalar solver is used for that option.
+   * @param prices The <b>forward</b> prices, i.e. the market prices divided by the numeraire
+   * @param forwards The forward values of the underlying
+   * @param strikes The strikes
+   * @param timesToExpiry The times-to-expiry
+   * @param isCall True for calls, false for puts
+   * @param res The array to which the implied volatilities are written, same length as the inputs
+   */
+  public static void impliedVolatility(final double[] prices, final double[] forwards, final double[] strikes, final double[] timesToExpiry, final boolean[] isCall,
+      final double[] res) {
+    final int n = checkArrays(forwards, strikes, timesToExpiry, prices, isCall);
+    ArgumentChecker.notNull(res, "res");
+    ArgumentChecker.isTrue(res.length == n, "results must have length {}; have {}", n, res.length);
+    for (int i = 0; i < n; i++) {
+      final double forward = forwards[i];
+      final double strike = strikes[i];
+      final double timeToExpiry = timesToExpiry[i];
+      Validate.isTrue(strike > 0, "Cannot find an implied volatility when strike is zero as there is no optionality");
+      if (!(timeToExpiry > 0)) {
+        throw new IllegalArgumentException("time to expiry must be positive; have " + timeToExpiry);
+      }
+      final double otmPrice = prices[i] - Math.max(0, (isCall[i] ? 1 : -1) * (forward - strike));
+      // deep in-the-money prices can fall below the intrinsic value by rounding
+      if (otmPrice <= 0 && otmPrice > -SMALL * Math.max(forward, strike)) {
+        res[i] = 0;
+        continue;
+      }
+      if (!(otmPrice > 0.0)) {
+        throw new IllegalArgumentException("negative OTM price of " + otmPrice + " given");
+      }
+      if (!(otmPrice < Math.min(forward, strike))) {
+        throw new IllegalArgumentException("otmPrice of " + otmPrice + " exceeded upper bound of " + Math.min(forward, strike));
+      }
+      final double rootT = Math.sqrt(timeToExpiry);
+      final double sigmaRootT = impliedStandardDeviation(otmPrice, forward, strike);
+      res[i] = Double.isNaN(sigmaRootT) ? impliedVolatility(otmPrice, forward, strike, timeToExpiry, 0.3) : sigmaRootT / rootT;
+    }
+  }
+
+  /**
+   * Solves for the total standard deviation that reproduces an out-the-money price.
+   * <p>
+   * The out-the-money price is convex in the total standard deviation s below the inflection point s<sub>c</sub> = sqrt(2|ln(F/K)|) and concave above it.
+   * Above, Halley iterations on the price started at s<sub>c</sub> increase monotonically to the root. Below, the price is dominated by exp(-ln(F/K)<sup>2</sup>/2s<sup>2</sup>),
+   * so the iterations are done on 1/ln(price / sqrt(FK)), which is nearly quadratic in s, and started at s<sub>c</sub> they decrease monotonically to the root.
+   * @param otmPrice The out-the-money <b>forward</b> price, positive and less than the forward and the strike
+   * @param forward The forward
+   * @param strike The strike
+   * @return The total standard deviation, or NaN if the iterations did not converge
+   */
+  private static double impliedStandardDeviation(final double otmPrice, final double forward, final double strike) {
+    final double x = Math.log(forward / strike);
+    if (Math.abs(x) < SMALL) {
+      return 2 * NORMAL.getInverseCDF(0.5 * (otmPrice / forward + 1));
+    }
+    final double sign = strike >= forward ? 1 : -1;
+    final double rootFK = Math.sqrt(forward * strike);
+    final double sC = Math.sqrt(2 * Math.abs(x));
+    final boolean lowerBranch = otmPrice < otmPrice(forward, strike, x, sign, sC);
+    final double target = lowerBranch ? 1 / Math.log(otmPrice / rootFK) : otmPrice;
+    // the root lies between the bounds; the iterations are monotone in exact arithmetic, the bounds guard against rounding
+    double lower = lowerBranch ? 0 : sC;
+    double upper = lowerBranch ? sC : Double.POSITIVE_INFINITY;
+    double s = sC;
+    for (int count = 0; count < MAX_HALLEY_ITERATIONS; count++) {
+      final double d1 = x / s + 0.5 * s;
+      final double d2 = d1 - s;
+      final double price = otmPrice(forward, strike, x, sign, s);
+      final double vega = forward * normalPDF(d1);
+      if (!(price > 0) || vega == 0) {
+        return Double.NaN;
+      }
+      // value and first two derivatives of the objective
+      double f;
+      double f1;
+      double f2;
+      if (lowerBranch) {
+        final double logPrice = Math.log(price / rootFK);
+        final double l1 = vega / price;
+        final double l2 = l1 * d1 * d2 / s - l1 * l1;
+        f = 1 / logPrice - target;
+        f1 = -l1 / (logPrice * logPrice);
+        f2 = (2 * l1 * l1 / logPrice - l2) / (logPrice * logPrice);
+        // 1/ln(price) is decreasing in ln(price), so the objective decreases in s
+        f = -f;
+        f1 = -f1;
+        f2 = -f2;
+      } else {
+        f = price - target;
+        f1 = vega;
+        f2 = vega * d1 * d2 / s;
+      }
+      if (f > 0) {
+        upper = Math.min(upper, s);
+      } else {
+        lower = Math.max(lower, s);
+      }
+      final double newton = -f / f1;
+      final double halley = 1 + 0.5 * newton * f2 / f1;
+      final double change = halley > 0.5 ? newton / halley : newton;
+      if (Math.abs(change) <= HALLEY_TOL * s) {
+        return s + change;
+      }
+      s += change;
+      if (!(s > lower && s < upper)) {
+        s = Double.isInfinite(upper) ? 2 * lower : 0.5 * (lower + upper);
+      }
+    }
+    return Double.NaN;
+  }
+
+  private static double otmPrice(final double forward, final double strike, final double x, final double sign, final double sigmaRootT) {
+    final double d1 = x / sigmaRootT + 0.5 * sigmaRootT;
+    return sign * (forward * normalCDF(sign * d1) - strike * normalCDF(sign * (d1 - sigmaRootT)));
+  }
+
   /**
    * Computes the implied strike from delta and volatility in the Black formula.
    * @param delta The option delta
@@ -596,6 +854,29 @@ public abstract class BlackFormulaRepository {
     return strike;
   }
 
+  private static int checkArrays(final double[] forwards, final double[] strikes, final double[] timesToExpiry, final double[] values, final boolean[] isCall) {
+    ArgumentChecker.notNull(forwards, "forwards");
+    ArgumentChecker.notNull(strikes, "strikes");
+    ArgumentChecker.notNull(timesToExpiry, "times to expiry");
+    ArgumentChecker.notNull(values, "values");
+    ArgumentChecker.notNull(isCall, "is call");
+    final int n = forwards.length;
+    ArgumentChecker.isTrue(strikes.length == n, "strikes must have length {}; have {}", n, strikes.length);
+    ArgumentChecker.isTrue(timesToExpiry.length == n, "times to expiry must have length {}; have {}", n, timesToExpiry.length);
+    ArgumentChecker.isTrue(values.length == n, "values must have length {}; have {}", n, values.length);
+    ArgumentChecker.isTrue(isCall.length == n, "is call must have length {}; have {}", n, isCall.length);
+    return n;
+  }
+
+  // primitive versions of NORMAL.getCDF and NORMAL.getPDF for the array kernels
+  private static double normalCDF(final double x) {
+    return 0.5 * DERFC.getErfc(-x / ROOT2);
+  }
+
+  private static double normalPDF(final double x) {
+    return INV_ROOT2PI * Math.exp(-0.5 * x * x);
+  }
+
   private static double[] priceAndVega(final double forward, final double strike, final double timeToExpiry, final double lognormalVol, final boolean isCall) {
 
     final double rootT = Math.sqrt(timeToExpiry);
@@ -30,4 +30,37 @@ public class BlackImpliedVolatilityFormula {
 
   }
 
+  /**
+   * Computes the implied volatilities of a set of options on the same forward (typically one expiry of a smile) in one call, using the array solver
+   * {@link BlackFormulaRepository#impliedVolatility(double[], double[], double[], double[], boolean[], double[])}.
+   * @param data The model data, not null. The volatility is not used.
+   * @param options The options, not null
+   * @param optionPrices The option prices, same length as the options
+   * @return The implied volatilities
+   */
+  public double[] getImpliedVolatility(final BlackFunctionData data, final EuropeanVanillaOption[] options, final double[] optionPrices) {
+    Validate.notNull(data, "null data");
+    Validate.notNull(options, "null options");
+    Validate.notNull(optionPrices, "null option prices");
+    final int n = options.length;
+    Validate.isTrue(optionPrices.length == n, "number of prices must equal the number of options");
+    final double discountFactor = data.getDiscountFactor();
+    final double[] forwards = new double[n];
+    final double[] strikes = new double[n];
+    final double[] timesToExpiry = new double[n];
+    final double[] fwdPrices = new double[n];
+    final boolean[] isCall = new boolean[n];
+    for (int i = 0; i < n; i++) {
+      Validate.notNull(options[i], "null option");
+      forwards[i] = data.getForward();
+      strikes[i] = options[i].getStrike();
+      timesToExpiry[i] = options[i].getTimeToExpiry();
+      fwdPrices[i] = optionPrices[i] / discountFactor;
+      isCall[i] = options[i].isCall();
+    }
+    final double[] res = new double[n];
+    BlackFormulaRepository.impliedVolatility(fwdPrices, forwards, strikes, timesToExpiry, isCall, res);
+    return res;
+  }
+
 }
@@ -13,6 +13,7 @@ import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.N
 import com.opengamma.analytics.math.function.Function1D;
 import com.opengamma.analytics.math.rootfinding.BisectionSingleRootFinder;
 import com.opengamma.analytics.math.rootfinding.BracketRoot;
+import com.opengamma.analytics.math.statistics.distribution.fnlib.DERFC;
 import com.opengamma.util.CompareUtils;
 
 /**
@@ -32,6 +33,12 @@ public class NormalImpliedVolatilityFormula {
    * The solution precision.
    */
   private static final double EPS = 1e-15;
+  /**
+   * The relative precision of the array solver.
+   */
+  private static final double RELATIVE_TOLERANCE = 1e-14;
+  private static final double ROOT2 = Math.sqrt(2);
+  private static final double ROOT2PI = Math.sqrt(2 * Math.PI);
 
   /**
    * Computes the implied volatility from the price in a normally distributed asset price world.
@@ -92,4 +99,72 @@ public class NormalImpliedVolatilityFormula {
     }
     return sigma;
   }
+
+  /**
+   * Computes the implied volatilities of a set of options on the same forward (typically one expiry of a smile) in a normally distributed asset price world.
+   * <p>
+   * Each option is inverted on its time value, which is an increasing convex function of the total standard deviation. Newton iterations started from the upper
+   * bound (time value + |forward - strike|) * sqrt(2 pi) therefore converge monotonically; they run on primitives with no allocation. If they do not converge, the
+   * single option solver is used for that option.
+   * @param data The model data. The volatility is not used.
+   * @param options The options.
+   * @param optionPrices The option prices, same length as the options.
+   * @return The implied volatilities.
+   */
+  public double[] getImpliedVolatility(final NormalFunctionData data, final EuropeanVanillaOption[] options, final double[] optionPrices) {
+    Validate.notNull(data, "data");
+    Validate.notNull(options, "options");
+    Validate.notNull(optionPrices, "option prices");
+    final int n = options.length;
+    Validate.isTrue(optionPrices.length == n, "number of prices must equal the number of options");
+    final double numeraire = data.getNumeraire();
+    final double f = data.getForward();
+    final double[] res = new double[n];
+    for (int i = 0; i < n; i++) {
+      final EuropeanVanillaOption option = options[i];
+      Validate.notNull(option, "option");
+      final double k = option.getStrike();
+      final double intrinsicPrice = numeraire * Math.max(0, (option.isCall() ? 1 : -1) * (f - k));
+      Validate.isTrue(optionPrices[i] > intrinsicPrice || CompareUtils.closeEquals(optionPrices[i], intrinsicPrice, 1e-6), "option price (" + optionPrices[i]
+          + ") less than intrinsic value (" + intrinsicPrice + ")");
+      final double timeValue = (optionPrices[i] - intrinsicPrice) / numeraire;
+      if (!(timeValue > 0)) {
+        res[i] = 0.0;
+        continue;
+      }
+      final double sigmaRootT = impliedStandardDeviation(timeValue, Math.abs(f - k));
+      res[i] = Double.isNaN(sigmaRootT) ? getImpliedVolatility(data, option, optionPrices[i]) : sigmaRootT / Math.sqrt(option.getTimeToExpiry());
+    }
+    return res;
+  }
+
+  /**
+   * Solves vol * n(d / vol) - d * N(-d / vol) = timeValue for vol.
+   * @param timeValue The time value (price of the out-of-the-money option) divided by the numeraire, positive.
+   * @param distance The absolute distance between the forward and the strike.
+   * @return The total standard deviation, or NaN if the iterations did not converge.
+   */
+  private static double impliedStandardDeviation(final double timeValue, final double distance) {
+    if (distance == 0) {
+      return timeValue * ROOT2PI;
+    }
+    double sigmaRootT = (timeValue + distance) * ROOT2PI;
+    for (int count = 0; count < MAX_ITERATIONS; count++) {
+      final double arg = distance / sigmaRootT;
+      final double nPDF = Math.exp(-0.5 * arg * arg) / ROOT2PI;
+      final double value = sigmaRootT * nPDF - distance * 0.5 * DERFC.getErfc(arg / ROOT2);
+      if (nPDF == 0) {
+        return Double.NaN;
+      }
+      final double change = (value - timeValue) / nPDF;
+      sigmaRootT -= change;
+      if (Math.abs(change) <= RELATIVE_TOLERANCE * sigmaRootT) {
+        return sigmaRootT;
+      }
+      if (!(sigmaRootT > 0)) {
+        return Double.NaN;
+      }
+    }
+    return Double.NaN;
+  }
 }
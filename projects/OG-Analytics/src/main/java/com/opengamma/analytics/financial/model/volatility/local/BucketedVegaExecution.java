@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.volatility.local;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.opengamma.OpenGammaRuntimeException;
+
+/**
+ * Runs the independent per-bucket computations of the bucketed vega calculators, either in the calling thread or on an executor.
+ */
+final class BucketedVegaExecution {
+
+  private BucketedVegaExecution() {
+  }
+
+  /**
+   * @param tasks The bucket computations, not null
+   * @param executor The executor, null to run the tasks in the calling thread
+   * @return The results of the tasks, in the same order
+   */
+  static double[] run(final List<Callable<Double>> tasks, final ExecutorService executor) {
+    final int n = tasks.size();
+    final double[] res = new double[n];
+    try {
+      if (executor == null) {
+        for (int k = 0; k < n; k++) {
+          res[k] = tasks.get(k).call();
+        }
+      } else {
+        final List<Future<Double>> futures = executor.invokeAll(tasks);
+        for (int k = 0; k < n; k++) {
+          res[k] = futures.get(k).get();
+        }
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OpenGammaRuntimeException("Interrupted while computing bucketed vega", e);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new OpenGammaRuntimeException("Bucketed vega failed", e.getCause());
+    } catch (final RuntimeException e) {
+      throw e;
+    } catch (final Exception e) {
+      throw new OpenGammaRuntimeException("Bucketed vega failed", e);
+    }
+    return res;
+  }
+
+}
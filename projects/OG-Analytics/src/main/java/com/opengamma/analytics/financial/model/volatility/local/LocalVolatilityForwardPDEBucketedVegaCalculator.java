@@ -5,7 +5,17 @@
  */
 package com.opengamma.analytics.financial.model.volatility.local;
 
-import com.opengamma.analytics.financial.model.finitedifference.PDETerminalResults1D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import com.opengamma.analytics.financial.model.finitedifference.ConvectionDiffusionPDE1DCoefficients;
+import com.opengamma.analytics.financial.model.finitedifference.ConvectionDiffusionPDE1DStandardCoefficients;
+import com.opengamma.analytics.financial.model.finitedifference.PDE1DDataBundle;
+import com.opengamma.analytics.financial.model.finitedifference.PDEFullResults1D;
+import com.opengamma.analytics.financial.model.finitedifference.PDEGrid1D;
+import com.opengamma.analytics.financial.model.finitedifference.ThetaMethodFiniteDifferenceAdjoint;
 import com.opengamma.analytics.financial.model.interestrate.curve.ForwardCurve;
 import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
 import com.opengamma.analytics.financial.model.volatility.BlackFormulaRepository;
@@ -17,82 +27,69 @@ import com.opengamma.analytics.math.interpolation.Interpolator1D;
 import com.opengamma.analytics.math.interpolation.data.Interpolator1DDataBundle;
 
 /**
- * 
+ * Computes the sensitivity of the implied volatility of an option priced by the forward PDE to each market implied volatility (bucketed vega).
+ * <p>
+ * The PDE is solved once, and one adjoint sweep ({@link ThetaMethodFiniteDifferenceAdjoint}) gives the sensitivity of the implied volatility to the PDE coefficient at
+ * every grid node. For each market volatility the bumped local volatility surface only has to be evaluated on the part of the grid where that sensitivity
+ * is material, rather than the PDE being solved again. Each market volatility still needs a bumped smile fit and Dupire surface; these are independent and run
+ * on the executor if one is supplied (the executor is owned by the caller).
  */
 public class LocalVolatilityForwardPDEBucketedVegaCalculator {
+  /** The bump (1bp) of each market volatility; the bumped and base local volatility surfaces are built by the same chain, as for bump and re-price */
   private static final double SHIFT = 1e-4;
+  /** Only the grid nodes that carry all but this fraction of the (absolute) coefficient sensitivity are used for the bumped surfaces */
+  private static final double TRUNCATION = 1e-12;
   private final LocalVolatilityForwardPDECalculator _pdeCalculator;
   private final Interpolator1D _interpolator;
   private final DupireLocalVolatilityCalculator _dupireCalculator;
   private final VolatilitySurfaceInterpolator _surfaceInterpolator;
+  private final ThetaMethodFiniteDifferenceAdjoint _adjoint;
+  private final ExecutorService _executor;
 
   public LocalVolatilityForwardPDEBucketedVegaCalculator(final LocalVolatilityForwardPDECalculator pdeCalculator, final Interpolator1D interpolator,
       final DupireLocalVolatilityCalculator dupireCalculator, final VolatilitySurfaceInterpolator surfaceInterpolator) {
+    this(pdeCalculator, interpolator, dupireCalculator, surfaceInterpolator, null);
+  }
+
+  /**
+   * @param pdeCalculator The PDE calculator
+   * @param interpolator The interpolator of the implied volatility between the space nodes
+   * @param dupireCalculator The local volatility calculator
+   * @param surfaceInterpolator The interpolator used to build the bumped implied volatility surfaces
+   * @param executor The executor on which the buckets are computed, null to compute them in the calling thread
+   */
+  public LocalVolatilityForwardPDEBucketedVegaCalculator(final LocalVolatilityForwardPDECalculator pdeCalculator, final Interpolator1D interpolator,
+      final DupireLocalVolatilityCalculator dupireCalculator, final VolatilitySurfaceInterpolator surfaceInterpolator, final ExecutorService executor) {
     _pdeCalculator = pdeCalculator;
     _interpolator = interpolator;
     _dupireCalculator = dupireCalculator;
     _surfaceInterpolator = surfaceInterpolator;
+    _adjoint = new ThetaMethodFiniteDifferenceAdjoint(pdeCalculator.getTheta());
+    _executor = executor;
   }
 
   public double[][] getResult(final LocalVolatilitySurfaceMoneyness localVolatility, final ForwardCurve forwardCurve, final EuropeanVanillaOption option,
       final StandardSmileSurfaceDataBundle marketData) {
-    final int n = marketData.getNumExpiries();
-    final double[][] strikes = marketData.getStrikes();
-    final double expiry = option.getTimeToExpiry();
-    final double forward = forwardCurve.getForward(expiry);
-    final double x = option.getStrike() / forward;
-    final PDETerminalResults1D pdeGrid = _pdeCalculator.runPDESolver(localVolatility, option);
-    final int spaceSteps = _pdeCalculator.getNSpaceSteps();
-    final double[] xNodes = pdeGrid.getGrid().getSpaceNodes();
-    int index = SurfaceArrayUtils.getLowerBoundIndex(xNodes, x);
-    if (index >= 1) {
-      index--;
-    }
-    if (index >= spaceSteps - 1) {
-      index--;
-      if (index >= spaceSteps - 1) {
-        index--;
-      }
-    }
-    final double[] vols = new double[4];
-    final double[] moneyness = new double[4];
-    System.arraycopy(xNodes, index, moneyness, 0, 4);
-    for (int i = 0; i < 4; i++) {
-      vols[i] = BlackFormulaRepository.impliedVolatility(pdeGrid.getFunctionValue(index + i), 1.0, moneyness[i],
-          expiry, option.isCall());
-    }
-    Interpolator1DDataBundle db = _interpolator.getDataBundle(moneyness, vols);
-    final double exampleVol = _interpolator.interpolate(db, x);
-    final double[][] res = new double[n][];
-    for (int i = 0; i < n; i++) {
-      final int m = strikes[i].length;
-      res[i] = new double[m];
-      for (int j = 0; j < m; j++) {
-        final BlackVolatilitySurfaceMoneyness bumpedSurface = _surfaceInterpolator.getBumpedVolatilitySurface(marketData, i, j, SHIFT);
-        final LocalVolatilitySurfaceMoneyness bumpedLV = _dupireCalculator.getLocalVolatility(bumpedSurface);
-        final PDETerminalResults1D pdeResBumped = _pdeCalculator.runPDESolver(bumpedLV, option);
-        for (int k = 0; k < 4; k++) {
-          vols[k] = BlackFormulaRepository.impliedVolatility(pdeResBumped.getFunctionValue(index + k), 1.0, moneyness[k],
-              expiry, option.isCall());
-        }
-        db = _interpolator.getDataBundle(moneyness, vols);
-        final double vol = _interpolator.interpolate(db, x);
-        res[i][j] = (vol - exampleVol) / SHIFT;
-      }
-    }
-    return res;
+    return getResult(_pdeCalculator.getPDEDataBundle(localVolatility, option), forwardCurve, option, marketData);
   }
 
   public double[][] getResult(final LocalVolatilitySurfaceStrike localVolatility, final ForwardCurve forwardCurve, final EuropeanVanillaOption option,
       final StandardSmileSurfaceDataBundle marketData) {
+    return getResult(_pdeCalculator.getPDEDataBundle(localVolatility, forwardCurve, option), forwardCurve, option, marketData);
+  }
+
+  private double[][] getResult(final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> pdeData, final ForwardCurve forwardCurve, final EuropeanVanillaOption option,
+      final StandardSmileSurfaceDataBundle marketData) {
     final int n = marketData.getNumExpiries();
     final double[][] strikes = marketData.getStrikes();
     final double expiry = option.getTimeToExpiry();
     final double forward = forwardCurve.getForward(expiry);
     final double x = option.getStrike() / forward;
-    final PDETerminalResults1D pdeGrid = _pdeCalculator.runPDESolver(localVolatility, forwardCurve, option);
+    final PDEFullResults1D pdeGrid = _adjoint.solve(pdeData);
+    final PDEGrid1D grid = pdeData.getGrid();
     final int spaceSteps = _pdeCalculator.getNSpaceSteps();
-    final double[] xNodes = pdeGrid.getGrid().getSpaceNodes();
+    final double[] xNodes = grid.getSpaceNodes();
+    final int tIndex = grid.getNumTimeNodes() - 1;
     int index = SurfaceArrayUtils.getLowerBoundIndex(xNodes, x);
     if (index >= 1) {
       index--;
@@ -107,28 +104,49 @@ public class LocalVolatilityForwardPDEBucketedVegaCalculator {
     final double[] moneyness = new double[4];
     System.arraycopy(xNodes, index, moneyness, 0, 4);
     for (int i = 0; i < 4; i++) {
-      vols[i] = BlackFormulaRepository.impliedVolatility(pdeGrid.getFunctionValue(index + i), 1.0, moneyness[i],
+      vols[i] = BlackFormulaRepository.impliedVolatility(pdeGrid.getFunctionValue(index + i, tIndex), 1.0, moneyness[i],
           expiry, option.isCall());
     }
-    Interpolator1DDataBundle db = _interpolator.getDataBundle(moneyness, vols);
-    final double exampleVol = _interpolator.interpolate(db, x);
+    final Interpolator1DDataBundle db = _interpolator.getDataBundle(moneyness, vols);
+    // d(vol)/d(price) at the final time step: the interpolation weights divided by the Black vegas
+    final double[] volSensitivity = _interpolator.getNodeSensitivitiesForValue(db, x);
+    final double[] terminalSensitivity = new double[xNodes.length];
+    for (int i = 0; i < 4; i++) {
+      terminalSensitivity[index + i] = volSensitivity[i] / BlackFormulaRepository.vega(1.0, moneyness[i], expiry, vols[i]);
+    }
+    final double[][][] coefficients = _adjoint.getCoefficientValues((ConvectionDiffusionPDE1DStandardCoefficients) pdeData.getCoefficients(), grid);
+    final double[][][] coefficientSensitivity = _adjoint.truncate(_adjoint.getCoefficientSensitivities(pdeData, pdeGrid, coefficients, terminalSensitivity), TRUNCATION);
+    // the bumped coefficients are differenced against the coefficients of the unbumped market surface built by the same chain (smile fit, Dupire, PDE)
+    final LocalVolatilitySurfaceMoneyness baseLV = _dupireCalculator.getLocalVolatility(_surfaceInterpolator.getVolatilitySurface(marketData));
+    final double[][][] baseCoefficients = _adjoint.getCoefficientValues(
+        (ConvectionDiffusionPDE1DStandardCoefficients) _pdeCalculator.getPDEDataBundle(baseLV, option).getCoefficients(), grid);
+    final List<Callable<Double>> tasks = new ArrayList<Callable<Double>>();
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < strikes[i].length; j++) {
+        final int expiryIndex = i;
+        final int strikeIndex = j;
+        tasks.add(new Callable<Double>() {
+          @Override
+          public Double call() {
+            final BlackVolatilitySurfaceMoneyness bumpedSurface = _surfaceInterpolator.getBumpedVolatilitySurface(marketData, expiryIndex, strikeIndex, SHIFT);
+            final LocalVolatilitySurfaceMoneyness bumpedLV = _dupireCalculator.getLocalVolatility(bumpedSurface);
+            final ConvectionDiffusionPDE1DStandardCoefficients bumpedCoefficients =
+                (ConvectionDiffusionPDE1DStandardCoefficients) _pdeCalculator.getPDEDataBundle(bumpedLV, option).getCoefficients();
+            return _adjoint.getSensitivity(coefficientSensitivity, grid, baseCoefficients, bumpedCoefficients) / SHIFT;
+          }
+        });
+      }
+    }
+    final double[] vegas = BucketedVegaExecution.run(tasks, _executor);
     final double[][] res = new double[n][];
+    int k = 0;
     for (int i = 0; i < n; i++) {
       final int m = strikes[i].length;
       res[i] = new double[m];
-      for (int j = 0; j < m; j++) {
-        final BlackVolatilitySurfaceMoneyness bumpedSurface = _surfaceInterpolator.getBumpedVolatilitySurface(marketData, i, j, SHIFT);
-        final LocalVolatilitySurfaceMoneyness bumpedLV = _dupireCalculator.getLocalVolatility(bumpedSurface);
-        final PDETerminalResults1D pdeResBumped = _pdeCalculator.runPDESolver(bumpedLV, option);
-        for (int k = 0; k < 4; k++) {
-          vols[k] = BlackFormulaRepository.impliedVolatility(pdeResBumped.getFunctionValue(index + k), 1.0, moneyness[k],
-              expiry, option.isCall());
-        }
-        db = _interpolator.getDataBundle(moneyness, vols);
-        final double vol = _interpolator.interpolate(db, x);
-        res[i][j] = (vol - exampleVol) / SHIFT;
-      }
+      System.arraycopy(vegas, k, res[i], 0, m);
+      k += m;
     }
     return res;
   }
+
 }
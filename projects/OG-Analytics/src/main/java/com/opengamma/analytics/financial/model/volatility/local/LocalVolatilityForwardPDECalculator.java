@@ -43,21 +43,39 @@ public class LocalVolatilityForwardPDECalculator extends LocalVolatilityPDECalcu
 
   @Override
   public PDETerminalResults1D runPDESolver(final LocalVolatilitySurfaceMoneyness localVolatility, final EuropeanVanillaOption option) {
-    final boolean isCall = option.isCall();
-    final double expiry = option.getTimeToExpiry();
-    final double minMoneyness = Math.exp(-_maxProxyDelta * Math.sqrt(expiry));
-    final double maxMoneyness = 1.0 / minMoneyness;
-    final PDEGrid1D grid = getGrid(getTimeMesh(expiry), getSpaceMesh(minMoneyness, maxMoneyness));
-    final BoundaryCondition lower = getLowerBoundaryCondition(option, minMoneyness);
-    final BoundaryCondition upper = getUpperBoundaryCondition(option, maxMoneyness);
-    final ConvectionDiffusionPDE1DCoefficients pde = getPDEProvider().getForwardLocalVol(localVolatility);
-    final Function1D<Double, Double> intCond = getInitialConditionProvider().getForwardCallPut(isCall);
-    final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> db = new PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>(pde, intCond, lower, upper, grid);
-    return (PDETerminalResults1D) getSolver().solve(db);
+    return (PDETerminalResults1D) getSolver().solve(getPDEDataBundle(localVolatility, option));
   }
 
   @Override
   public PDETerminalResults1D runPDESolver(final LocalVolatilitySurfaceStrike localVolatility, final ForwardCurve forwardCurve, final EuropeanVanillaOption option) {
+    return (PDETerminalResults1D) getSolver().solve(getPDEDataBundle(localVolatility, forwardCurve, option));
+  }
+
+  /**
+   * Sets up the forward PDE (in expiry and moneyness) that {@link #runPDESolver(LocalVolatilitySurfaceMoneyness, EuropeanVanillaOption)} solves.
+   * The grid depends only on the option, so PDEs for different local volatility surfaces and the same option share one grid.
+   * @param localVolatility The local volatility surface parameterised by moneyness
+   * @param option The option
+   * @return The PDE data
+   */
+  public PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> getPDEDataBundle(final LocalVolatilitySurfaceMoneyness localVolatility, final EuropeanVanillaOption option) {
+    return getPDEDataBundle(getPDEProvider().getForwardLocalVol(localVolatility), option);
+  }
+
+  /**
+   * Sets up the forward PDE (in expiry and moneyness) that {@link #runPDESolver(LocalVolatilitySurfaceStrike, ForwardCurve, EuropeanVanillaOption)} solves.
+   * The grid depends only on the option, so PDEs for different local volatility surfaces and the same option share one grid.
+   * @param localVolatility The local volatility surface parameterised by strike
+   * @param forwardCurve The forward curve
+   * @param option The option
+   * @return The PDE data
+   */
+  public PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> getPDEDataBundle(final LocalVolatilitySurfaceStrike localVolatility, final ForwardCurve forwardCurve,
+      final EuropeanVanillaOption option) {
+    return getPDEDataBundle(getPDEProvider().getForwardLocalVol(forwardCurve, localVolatility), option);
+  }
+
+  private PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> getPDEDataBundle(final ConvectionDiffusionPDE1DCoefficients pde, final EuropeanVanillaOption option) {
     final boolean isCall = option.isCall();
     final double expiry = option.getTimeToExpiry();
     final double minMoneyness = Math.exp(-_maxProxyDelta * Math.sqrt(expiry));
@@ -65,10 +83,8 @@ public class LocalVolatilityForwardPDECalculator extends LocalVolatilityPDECalcu
     final PDEGrid1D grid = getGrid(getTimeMesh(expiry), getSpaceMesh(minMoneyness, maxMoneyness));
     final BoundaryCondition lower = getLowerBoundaryCondition(option, minMoneyness);
     final BoundaryCondition upper = getUpperBoundaryCondition(option, maxMoneyness);
-    final ConvectionDiffusionPDE1DCoefficients pde = getPDEProvider().getForwardLocalVol(forwardCurve, localVolatility);
     final Function1D<Double, Double> intCond = getInitialConditionProvider().getForwardCallPut(isCall);
-    final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> db = new PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>(pde, intCond, lower, upper, grid);
-    return (PDETerminalResults1D) getSolver().solve(db);
+    return new PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>(pde, intCond, lower, upper, grid);
   }
 
   public int getNTimeSteps() {
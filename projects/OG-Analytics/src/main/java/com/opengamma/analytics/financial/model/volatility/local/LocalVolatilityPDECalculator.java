@@ -21,8 +21,10 @@ public abstract class LocalVolatilityPDECalculator {
   private final PDE1DCoefficientsProvider _pdeProvider;
   private final InitialConditionsProvider _initialCondProvider;
   private final ThetaMethodFiniteDifference _solver;
+  private final double _theta;
 
   public LocalVolatilityPDECalculator(final double theta) {
+    _theta = theta;
     _pdeProvider = new PDE1DCoefficientsProvider();
     _initialCondProvider = new InitialConditionsProvider();
     _solver = new ThetaMethodFiniteDifference(theta, false);
@@ -44,6 +46,14 @@ public abstract class LocalVolatilityPDECalculator {
     return _solver;
   }
 
+  /**
+   * Gets the theta of the finite difference scheme.
+   * @return The theta
+   */
+  public double getTheta() {
+    return _theta;
+  }
+
   protected InitialConditionsProvider getInitialConditionProvider() {
     return _initialCondProvider;
   }
@@ -21,6 +21,7 @@ import com.opengamma.analytics.math.minimization.NonLinearParameterTransforms;
 import com.opengamma.analytics.math.minimization.NonLinearTransformFunction;
 import com.opengamma.analytics.math.statistics.leastsquare.LeastSquareResults;
 import com.opengamma.analytics.math.statistics.leastsquare.LeastSquareResultsWithTransform;
+import com.opengamma.analytics.math.statistics.leastsquare.LevenbergMarquardtWorkspace;
 import com.opengamma.analytics.math.statistics.leastsquare.NonLinearLeastSquare;
 
 /**
@@ -99,10 +100,34 @@ public abstract class SmileModelFitter<T extends SmileModelData> {
    * @return The LeastSquareResults
    */
   public LeastSquareResultsWithTransform solve(final DoubleMatrix1D start, final NonLinearParameterTransforms transform) {
+    return solve(start, transform, new LevenbergMarquardtWorkspace());
+  }
+
+  /**
+   * Solve using the default NonLinearParameterTransforms for the concrete implementation, with some parameters fixed to their initial
+   * values (indicated by fixed), and with the working storage of the solver supplied by the caller (so it can be reused between fits)
+   * @param start The first guess at the parameter values
+   * @param fixed Indicates which parameters are fixed
+   * @param workspace The working storage of the solver, not null
+   * @return The LeastSquareResults
+   */
+  public LeastSquareResultsWithTransform solve(final DoubleMatrix1D start, final BitSet fixed, final LevenbergMarquardtWorkspace workspace) {
+    final NonLinearParameterTransforms transform = getTransform(start, fixed);
+    return solve(start, transform, workspace);
+  }
+
+  /**
+   * Solve using a user supplied NonLinearParameterTransforms, with the working storage of the solver supplied by the caller
+   * @param start The first guess at the parameter values
+   * @param transform Transform from model parameters to fitting parameters, and vice versa
+   * @param workspace The working storage of the solver, not null
+   * @return The LeastSquareResults
+   */
+  public LeastSquareResultsWithTransform solve(final DoubleMatrix1D start, final NonLinearParameterTransforms transform, final LevenbergMarquardtWorkspace workspace) {
     final NonLinearTransformFunction transFunc = new NonLinearTransformFunction(getModelValueFunction(), getModelJacobianFunction(), transform);
 
     final LeastSquareResults solRes = SOLVER.solve(_marketValues, _errors, transFunc.getFittingFunction(), transFunc.getFittingJacobian(),
-        transform.transform(start), getConstraintFunction(transform), getMaximumStep());
+        transform.transform(start), getConstraintFunction(transform), getMaximumStep(), workspace);
     return new LeastSquareResultsWithTransform(solRes, transform);
   }
 
@@ -28,6 +28,7 @@ import com.opengamma.analytics.math.function.ParameterizedFunction;
 import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
 import com.opengamma.analytics.math.statistics.leastsquare.LeastSquareResults;
 import com.opengamma.analytics.math.statistics.leastsquare.LeastSquareResultsWithTransform;
+import com.opengamma.analytics.math.statistics.leastsquare.LevenbergMarquardtWorkspace;
 import com.opengamma.analytics.math.statistics.leastsquare.NonLinearLeastSquare;
 import com.opengamma.util.ArgumentChecker;
 
@@ -38,11 +39,8 @@ import com.opengamma.util.ArgumentChecker;
  * @param <T> The type of the smile model data
  */
 public abstract class SmileInterpolator<T extends SmileModelData> implements GeneralSmileInterpolator {
-  /**
-   * Random number generator with default seed
-   */
-  protected static final RandomEngine RANDOM = new MersenneTwister64(MersenneTwister.DEFAULT_SEED);
   private static final double FIT_ERROR = 1e-4; //1bps
+  private static final double LOCAL_CHI_SQR_LIMIT = 3.0;
   private static final double LARGE_ERROR = 0.1;
   private static final WeightingFunction DEFAULT_WEIGHTING_FUNCTION = WeightingFunctionFactory.SINE_WEIGHTING_FUNCTION;
 
@@ -78,8 +76,11 @@ public abstract class SmileInterpolator<T extends SmileModelData> implements Gen
     final double[] errors = new double[n];
     Arrays.fill(errors, FIT_ERROR);
 
+    //each fit has its own random number generator with the default seed, so the result does not depend on what else is being fitted concurrently
+    final RandomEngine random = new MersenneTwister64(MersenneTwister.DEFAULT_SEED);
     final SmileModelFitter<T> globalFitter = getFitter(forward, strikes, expiry, impliedVols, errors);
     final BitSet gFixed = getGlobalFixedValues();
+    final LevenbergMarquardtWorkspace workspace = new LevenbergMarquardtWorkspace();
     LeastSquareResultsWithTransform gBest = null;
     double chiSqr = Double.POSITIVE_INFINITY;
 
@@ -87,9 +88,9 @@ public abstract class SmileInterpolator<T extends SmileModelData> implements Gen
     int tries = 0;
     int count = 0;
     while (chiSqr > 100.0 * n && count < 5) { //10bps average error
-      final DoubleMatrix1D gStart = getGlobalStart(forward, strikes, expiry, impliedVols);
+      final DoubleMatrix1D gStart = getGlobalStart(forward, strikes, expiry, impliedVols, random);
       try {
-        final LeastSquareResultsWithTransform glsRes = globalFitter.solve(gStart, gFixed);
+        final LeastSquareResultsWithTransform glsRes = globalFitter.solve(gStart, gFixed, workspace);
         if (glsRes.getChiSq() < chiSqr) {
           gBest = glsRes;
           chiSqr = gBest.getChiSq();
@@ -119,20 +120,20 @@ public abstract class SmileInterpolator<T extends SmileModelData> implements Gen
         final double[] tVols = temp[1];
         final double[] tErrors = temp[2];
         final SmileModelFitter<T> localFitter = getFitter(forward, tStrikes, expiry, tVols, tErrors);
-        LeastSquareResultsWithTransform lRes = localFitter.solve(lStart, lFixed);
+        LeastSquareResultsWithTransform lRes = localFitter.solve(lStart, lFixed, workspace);
         LeastSquareResultsWithTransform best = lRes;
 
         count = 0;
-        while (lRes.getChiSq() > 3.0 && count < 10) {
-          lStart = getGlobalStart(forward, strikes, expiry, impliedVols);
-          lRes = localFitter.solve(lStart, lFixed);
+        while (lRes.getChiSq() > LOCAL_CHI_SQR_LIMIT && count < 10) {
+          lStart = getGlobalStart(forward, strikes, expiry, impliedVols, random);
+          lRes = localFitter.solve(lStart, lFixed, workspace);
           if (lRes.getChiSq() < best.getChiSq()) {
             best = lRes;
           }
           count++;
         }
 
-        if (best.getChiSq() > 3.0) {
+        if (best.getChiSq() > LOCAL_CHI_SQR_LIMIT) {
           s_logger.debug("chi^2 on 3-point fit #" + i + " is " + best.getChiSq());
         }
         modelParameters.add(toSmileModelData(best.getModelParameters()));
@@ -141,6 +142,60 @@ public abstract class SmileInterpolator<T extends SmileModelData> implements Gen
     return modelParameters;
   }
 
+  /**
+   * Fits the smile starting from a previous set of fitted model parameters (e.g. from the last calibration of the same smile), rather than from a global
+   * multi-start fit. If the previous parameters do not match the structure of the data (a different number of strikes) or any of the fits from them
+   * is not good, this falls back to {@link #getFittedModelParameters(double, double[], double, double[])}.
+   * @param forward The forward
+   * @param strikes The strikes, in ascending order, not null
+   * @param expiry The expiry
+   * @param impliedVols The implied volatilities, not null
+   * @param previous The previously fitted model parameters, not null
+   * @return The fitted model parameters, one set for each 3-point fit (or one set if there are only 3 strikes)
+   */
+  public List<T> getFittedModelParameters(final double forward, final double[] strikes, final double expiry, final double[] impliedVols, final List<T> previous) {
+    ArgumentChecker.notNull(strikes, "strikes");
+    ArgumentChecker.notNull(impliedVols, "implied volatilities");
+    ArgumentChecker.notNull(previous, "previous model parameters");
+    final int n = strikes.length;
+    ArgumentChecker.isTrue(n > 2, "cannot fit less than three points; have {}", n);
+    ArgumentChecker.isTrue(impliedVols.length == n, "#strikes != # vols; have {} and {}", impliedVols.length, n);
+    validateStrikes(strikes);
+    final int nFits = n == 3 ? 1 : n - 2;
+    if (previous.size() != nFits) {
+      return getFittedModelParameters(forward, strikes, expiry, impliedVols);
+    }
+    final double[] errors = new double[n];
+    Arrays.fill(errors, FIT_ERROR);
+    final List<T> modelParameters = new ArrayList<T>(nFits);
+    final LevenbergMarquardtWorkspace workspace = new LevenbergMarquardtWorkspace();
+    try {
+      if (n == 3) {
+        final LeastSquareResultsWithTransform res = getFitter(forward, strikes, expiry, impliedVols, errors).solve(toParameters(previous.get(0)), getGlobalFixedValues(), workspace);
+        if (res.getChiSq() > LOCAL_CHI_SQR_LIMIT) {
+          return getFittedModelParameters(forward, strikes, expiry, impliedVols);
+        }
+        modelParameters.add(toSmileModelData(res.getModelParameters()));
+      } else {
+        final BitSet lFixed = getLocalFixedValues();
+        for (int i = 0; i < nFits; i++) {
+          final double[][] temp = getStrikesVolsAndErrors(i, strikes, impliedVols, errors);
+          final SmileModelFitter<T> localFitter = getFitter(forward, temp[0], expiry, temp[1], temp[2]);
+          final LeastSquareResultsWithTransform lRes = localFitter.solve(toParameters(previous.get(i)), lFixed, workspace);
+          if (lRes.getChiSq() > LOCAL_CHI_SQR_LIMIT) {
+            s_logger.debug("chi^2 on warm-started 3-point fit #" + i + " is " + lRes.getChiSq() + "; refitting from global start");
+            return getFittedModelParameters(forward, strikes, expiry, impliedVols);
+          }
+          modelParameters.add(toSmileModelData(lRes.getModelParameters()));
+        }
+      }
+    } catch (final Exception e) {
+      s_logger.debug("Warm-started fit failed; refitting from global start", e);
+      return getFittedModelParameters(forward, strikes, expiry, impliedVols);
+    }
+    return modelParameters;
+  }
+
   public VolatilityFunctionProvider<T> getModel() {
     return _model;
   }
@@ -198,7 +253,16 @@ public abstract class SmileInterpolator<T extends SmileModelData> implements Gen
     return res;
   }
 
-  protected abstract DoubleMatrix1D getGlobalStart(final double forward, final double[] strikes, final double expiry, final double[] impliedVols);
+  /**
+   * Gets a (randomised) starting point for the global fit.
+   * @param forward The forward
+   * @param strikes The strikes
+   * @param expiry The expiry
+   * @param impliedVols The implied volatilities
+   * @param random The random number generator for this fit; it is not shared with any other fit
+   * @return The starting model parameters
+   */
+  protected abstract DoubleMatrix1D getGlobalStart(final double forward, final double[] strikes, final double expiry, final double[] impliedVols, final RandomEngine random);
 
   protected BitSet getGlobalFixedValues() {
     return new BitSet();
@@ -215,7 +279,20 @@ public abstract class SmileInterpolator<T extends SmileModelData> implements Gen
   @Override
   public Function1D<Double, Double> getVolatilityFunction(final double forward, final double[] strikes, final double expiry, final double[] impliedVols) {
 
-    final List<T> modelParams = getFittedModelParameters(forward, strikes, expiry, impliedVols);
+    return getVolatilityFunction(forward, strikes, expiry, getFittedModelParameters(forward, strikes, expiry, impliedVols));
+  }
+
+  /**
+   * Builds the interpolated smile from already fitted model parameters, e.g. those returned from {@link #getFittedModelParameters}.
+   * @param forward The forward
+   * @param strikes The strikes the model parameters were fitted to, not null
+   * @param expiry The expiry
+   * @param modelParams The fitted model parameters, not null
+   * @return The smile as a function of strike
+   */
+  public Function1D<Double, Double> getVolatilityFunction(final double forward, final double[] strikes, final double expiry, final List<T> modelParams) {
+    ArgumentChecker.notNull(strikes, "strikes");
+    ArgumentChecker.notNull(modelParams, "model parameters");
     final int n = strikes.length;
 
     return new Function1D<Double, Double>() {
@@ -267,6 +344,15 @@ public abstract class SmileInterpolator<T extends SmileModelData> implements Gen
     return fitP;
   }
 
+  private static DoubleMatrix1D toParameters(final SmileModelData data) {
+    final int n = data.getNumberOfparameters();
+    final double[] res = new double[n];
+    for (int i = 0; i < n; i++) {
+      res[i] = data.getParameter(i);
+    }
+    return new DoubleMatrix1D(res);
+  }
+
   private void validateStrikes(final double[] strikes) {
     final int n = strikes.length;
     for (int i = 1; i < n; i++) {
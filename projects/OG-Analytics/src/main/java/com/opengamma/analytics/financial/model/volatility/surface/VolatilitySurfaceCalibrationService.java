@@ -0,0 +1,351 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.volatility.surface;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.analytics.financial.model.volatility.smile.fitting.interpolation.SmileInterpolator;
+import com.opengamma.analytics.financial.model.volatility.smile.fitting.sabr.SmileSurfaceDataBundle;
+import com.opengamma.analytics.financial.model.volatility.smile.function.SmileModelData;
+import com.opengamma.analytics.math.function.Function1D;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.NamedThreadPoolFactory;
+
+/**
+ * Calibrates the independent smiles of one or more volatility surfaces (see {@link VolatilitySurfaceInterpolator#getIndependentSmileFits}) on a bounded
+ * thread pool, one task per expiry. The fitted model parameters of each surface are cached against an identifier supplied by the caller, and on the next
+ * calibration of that surface: <ul>
+ * <li> an expiry whose forward, strikes and volatilities are unchanged (within the tolerance) is not refitted at all;
+ * <li> an expiry whose quotes have moved is fitted starting from the previous parameters (see
+ * {@link SmileInterpolator#getFittedModelParameters(double, double[], double, double[], List)});
+ * <li> any other expiry is fitted from a cold start.
+ * </ul>
+ * The forwards are compared relative to their size and the volatilities absolutely; the strikes must be identical.
+ * <p>
+ * A service that creates its own (daemon) thread pool should be {@link #shutdown() shut down} when it is no longer needed; an executor supplied by the caller
+ * remains the caller's responsibility.
+ * @param <T> The type of the smile model data
+ */
+public class VolatilitySurfaceCalibrationService<T extends SmileModelData> {
+  private final SmileInterpolator<T> _smileInterpolator;
+  private final VolatilitySurfaceInterpolator _surfaceInterpolator;
+  private final ExecutorService _executor;
+  private final boolean _ownsExecutor;
+  private final double _tolerance;
+  private final ConcurrentMap<Object, SmileFit<T>[]> _cache = new ConcurrentHashMap<Object, SmileFit<T>[]>();
+
+  /**
+   * @param smileInterpolator The smile interpolator, not null
+   * @param nThreads The number of threads used for the calibration, greater than zero
+   * @param tolerance The amount by which the quotes must move before an expiry is refitted, not negative
+   */
+  public VolatilitySurfaceCalibrationService(final SmileInterpolator<T> smileInterpolator, final int nThreads, final double tolerance) {
+    this(smileInterpolator, new VolatilitySurfaceInterpolator(smileInterpolator), getExecutor(nThreads), true, tolerance);
+  }
+
+  /**
+   * @param smileInterpolator The smile interpolator, not null
+   * @param surfaceInterpolator Combines the fitted smiles into a surface; must use the same smile interpolator, not null
+   * @param executor The executor that runs the fits; this should be bounded, not null
+   * @param tolerance The amount by which the quotes must move before an expiry is refitted, not negative
+   */
+  public VolatilitySurfaceCalibrationService(final SmileInterpolator<T> smileInterpolator, final VolatilitySurfaceInterpolator surfaceInterpolator,
+      final ExecutorService executor, final double tolerance) {
+    this(smileInterpolator, surfaceInterpolator, executor, false, tolerance);
+  }
+
+  private VolatilitySurfaceCalibrationService(final SmileInterpolator<T> smileInterpolator, final VolatilitySurfaceInterpolator surfaceInterpolator,
+      final ExecutorService executor, final boolean ownsExecutor, final double tolerance) {
+    ArgumentChecker.notNull(smileInterpolator, "smile interpolator");
+    ArgumentChecker.notNull(surfaceInterpolator, "surface interpolator");
+    ArgumentChecker.notNull(executor, "executor");
+    ArgumentChecker.notNegative(tolerance, "tolerance");
+    ArgumentChecker.isTrue(smileInterpolator.equals(surfaceInterpolator.getSmileInterpolator()), "surface interpolator does not use {}", smileInterpolator);
+    _smileInterpolator = smileInterpolator;
+    _surfaceInterpolator = surfaceInterpolator;
+    _executor = executor;
+    _ownsExecutor = ownsExecutor;
+    _tolerance = tolerance;
+  }
+
+  private static ExecutorService getExecutor(final int nThreads) {
+    ArgumentChecker.isTrue(nThreads > 0, "need at least one thread; have {}", nThreads);
+    return Executors.newFixedThreadPool(nThreads, new NamedThreadPoolFactory("SmileCalibration"));
+  }
+
+  /**
+   * Calibrates a single surface.
+   * @param surfaceId The identifier of the surface in the cache, not null
+   * @param marketData The market data, not null
+   * @return The fitted model parameters for each expiry (see {@link SmileInterpolator#getFittedModelParameters(double, double[], double, double[])})
+   */
+  public List<List<T>> getFittedModelParameters(final Object surfaceId, final SmileSurfaceDataBundle marketData) {
+    return getFittedModelParameters(Collections.singletonMap(surfaceId, marketData)).get(surfaceId);
+  }
+
+  /**
+   * Calibrates a set of surfaces; the expiries of all surfaces are fitted concurrently.
+   * @param <K> The type of the surface identifiers
+   * @param marketData The market data for each surface, not null
+   * @return The fitted model parameters for each expiry of each surface
+   */
+  public <K> Map<K, List<List<T>>> getFittedModelParameters(final Map<K, ? extends SmileSurfaceDataBundle> marketData) {
+    final Map<K, SmileFit<T>[]> fits = calibrate(marketData);
+    final Map<K, List<List<T>>> res = new LinkedHashMap<K, List<List<T>>>(fits.size());
+    for (final Map.Entry<K, SmileFit<T>[]> entry : fits.entrySet()) {
+      final SmileFit<T>[] surfaceFits = entry.getValue();
+      final List<List<T>> parameters = new ArrayList<List<T>>(surfaceFits.length);
+      for (final SmileFit<T> fit : surfaceFits) {
+        parameters.add(fit.getModelParameters());
+      }
+      res.put(entry.getKey(), parameters);
+    }
+    return res;
+  }
+
+  /**
+   * Calibrates a single surface.
+   * @param surfaceId The identifier of the surface in the cache, not null
+   * @param marketData The market data, not null
+   * @return The volatility surface
+   */
+  public BlackVolatilitySurfaceMoneynessFcnBackedByGrid getVolatilitySurface(final Object surfaceId, final SmileSurfaceDataBundle marketData) {
+    return getVolatilitySurfaces(Collections.singletonMap(surfaceId, marketData)).get(surfaceId);
+  }
+
+  /**
+   * Calibrates a set of surfaces; the expiries of all surfaces are fitted concurrently.
+   * @param <K> The type of the surface identifiers
+   * @param marketData The market data for each surface, not null
+   * @return The volatility surfaces
+   */
+  public <K> Map<K, BlackVolatilitySurfaceMoneynessFcnBackedByGrid> getVolatilitySurfaces(final Map<K, ? extends SmileSurfaceDataBundle> marketData) {
+    final Map<K, SmileFit<T>[]> fits = calibrate(marketData);
+    final Map<K, BlackVolatilitySurfaceMoneynessFcnBackedByGrid> res = new LinkedHashMap<K, BlackVolatilitySurfaceMoneynessFcnBackedByGrid>(fits.size());
+    for (final Map.Entry<K, SmileFit<T>[]> entry : fits.entrySet()) {
+      final SmileFit<T>[] surfaceFits = entry.getValue();
+      final int n = surfaceFits.length;
+      @SuppressWarnings("unchecked")
+      final Function1D<Double, Double>[] smileFunctions = new Function1D[n];
+      for (int i = 0; i < n; i++) {
+        final SmileFit<T> fit = surfaceFits[i];
+        smileFunctions[i] = _smileInterpolator.getVolatilityFunction(fit.getForward(), fit.getStrikes(), fit.getExpiry(), fit.getModelParameters());
+      }
+      res.put(entry.getKey(), _surfaceInterpolator.combineIndependentSmileFits(smileFunctions, marketData.get(entry.getKey())));
+    }
+    return res;
+  }
+
+  /**
+   * Removes a surface from the cache, so that its next calibration is from a cold start.
+   * @param surfaceId The identifier of the surface, not null
+   */
+  public void invalidate(final Object surfaceId) {
+    ArgumentChecker.notNull(surfaceId, "surface id");
+    _cache.remove(surfaceId);
+  }
+
+  /**
+   * Removes all surfaces from the cache.
+   */
+  public void clear() {
+    _cache.clear();
+  }
+
+  /**
+   * Shuts down the thread pool if it was created by this service; an executor supplied by the caller is left running. The service cannot calibrate
+   * any more surfaces once it has been shut down.
+   */
+  public void shutdown() {
+    if (_ownsExecutor) {
+      _executor.shutdown();
+    }
+  }
+
+  public SmileInterpolator<T> getSmileInterpolator() {
+    return _smileInterpolator;
+  }
+
+  public VolatilitySurfaceInterpolator getSurfaceInterpolator() {
+    return _surfaceInterpolator;
+  }
+
+  public double getTolerance() {
+    return _tolerance;
+  }
+
+  private <K> Map<K, SmileFit<T>[]> calibrate(final Map<K, ? extends SmileSurfaceDataBundle> marketData) {
+    ArgumentChecker.notNull(marketData, "market data");
+    // submit every fit before waiting on any of them
+    final Map<K, Object[]> pending = new LinkedHashMap<K, Object[]>(marketData.size());
+    for (final Map.Entry<K, ? extends SmileSurfaceDataBundle> entry : marketData.entrySet()) {
+      ArgumentChecker.notNull(entry.getKey(), "surface id");
+      ArgumentChecker.notNull(entry.getValue(), "market data");
+      pending.put(entry.getKey(), submit(_cache.get(entry.getKey()), entry.getValue()));
+    }
+    final Map<K, SmileFit<T>[]> res = new LinkedHashMap<K, SmileFit<T>[]>(pending.size());
+    for (final Map.Entry<K, Object[]> entry : pending.entrySet()) {
+      final Object[] surfacePending = entry.getValue();
+      final int n = surfacePending.length;
+      @SuppressWarnings("unchecked")
+      final SmileFit<T>[] fits = new SmileFit[n];
+      for (int i = 0; i < n; i++) {
+        fits[i] = getFit(surfacePending[i]);
+      }
+      _cache.put(entry.getKey(), fits);
+      res.put(entry.getKey(), fits);
+    }
+    return res;
+  }
+
+  /**
+   * @return For each expiry, either the previous fit (if the quotes have not changed) or the future of the new fit
+   */
+  private Object[] submit(final SmileFit<T>[] previous, final SmileSurfaceDataBundle marketData) {
+    final int n = marketData.getNumExpiries();
+    final double[] forwards = marketData.getForwards();
+    final double[] expiries = marketData.getExpiries();
+    final double[][] strikes = marketData.getStrikes();
+    final double[][] vols = marketData.getVolatilities();
+    final Object[] res = new Object[n];
+    for (int i = 0; i < n; i++) {
+      final SmileFit<T> previousFit = getPreviousFit(previous, i, expiries[i]);
+      if (previousFit != null && previousFit.isUnchanged(forwards[i], expiries[i], strikes[i], vols[i], _tolerance)) {
+        res[i] = previousFit;
+      } else {
+        res[i] = _executor.submit(new SmileFitTask<T>(_smileInterpolator, forwards[i], expiries[i], strikes[i], vols[i], previousFit));
+      }
+    }
+    return res;
+  }
+
+  /**
+   * The previous fit at the same expiry or, if there is none (e.g. because the expiries have rolled), at the same index
+   */
+  private SmileFit<T> getPreviousFit(final SmileFit<T>[] previous, final int index, final double expiry) {
+    if (previous == null) {
+      return null;
+    }
+    for (final SmileFit<T> fit : previous) {
+      if (fit.getExpiry() == expiry) {
+        return fit;
+      }
+    }
+    return index < previous.length ? previous[index] : null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private SmileFit<T> getFit(final Object pending) {
+    if (pending instanceof SmileFit) {
+      return (SmileFit<T>) pending;
+    }
+    try {
+      return ((Future<SmileFit<T>>) pending).get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OpenGammaRuntimeException("Interrupted while waiting for smile calibration", e);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new OpenGammaRuntimeException("Smile calibration failed", e.getCause());
+    }
+  }
+
+  /**
+   * Fits a single smile, starting from the previous parameters if there are any
+   */
+  private static final class SmileFitTask<T extends SmileModelData> implements Callable<SmileFit<T>> {
+    private final SmileInterpolator<T> _smileInterpolator;
+    private final double _forward;
+    private final double _expiry;
+    private final double[] _strikes;
+    private final double[] _vols;
+    private final SmileFit<T> _previous;
+
+    private SmileFitTask(final SmileInterpolator<T> smileInterpolator, final double forward, final double expiry, final double[] strikes, final double[] vols,
+        final SmileFit<T> previous) {
+      _smileInterpolator = smileInterpolator;
+      _forward = forward;
+      _expiry = expiry;
+      _strikes = strikes.clone();
+      _vols = vols.clone();
+      _previous = previous;
+    }
+
+    @Override
+    public SmileFit<T> call() {
+      final List<T> parameters;
+      if (_previous == null) {
+        parameters = _smileInterpolator.getFittedModelParameters(_forward, _strikes, _expiry, _vols);
+      } else {
+        parameters = _smileInterpolator.getFittedModelParameters(_forward, _strikes, _expiry, _vols, _previous.getModelParameters());
+      }
+      return new SmileFit<T>(_forward, _expiry, _strikes, _vols, parameters);
+    }
+  }
+
+  /**
+   * The quotes that a smile was fitted to, and the fitted model parameters
+   */
+  private static final class SmileFit<T extends SmileModelData> {
+    private final double _forward;
+    private final double _expiry;
+    private final double[] _strikes;
+    private final double[] _vols;
+    private final List<T> _modelParameters;
+
+    private SmileFit(final double forward, final double expiry, final double[] strikes, final double[] vols, final List<T> modelParameters) {
+      _forward = forward;
+      _expiry = expiry;
+      _strikes = strikes;
+      _vols = vols;
+      _modelParameters = Collections.unmodifiableList(modelParameters);
+    }
+
+    public double getForward() {
+      return _forward;
+    }
+
+    public double getExpiry() {
+      return _expiry;
+    }
+
+    public double[] getStrikes() {
+      return _strikes;
+    }
+
+    public List<T> getModelParameters() {
+      return _modelParameters;
+    }
+
+    public boolean isUnchanged(final double forward, final double expiry, final double[] strikes, final double[] vols, final double tolerance) {
+      if (expiry != _expiry || !Arrays.equals(strikes, _strikes) || Math.abs(forward - _forward) > tolerance * Math.abs(_forward)) {
+        return false;
+      }
+      for (int i = 0; i < vols.length; i++) {
+        if (Math.abs(vols[i] - _vols[i]) > tolerance) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+}
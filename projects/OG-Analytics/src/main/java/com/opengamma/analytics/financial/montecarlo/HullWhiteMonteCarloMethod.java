@@ -25,6 +25,7 @@ import com.opengamma.analytics.math.random.RandomNumberGenerator;
 import com.opengamma.util.money.Currency;
 import com.opengamma.util.money.CurrencyAmount;
 import com.opengamma.util.tuple.DoublesPair;
+import com.opengamma.util.tuple.Pair;
 
 /**
  * Monte Carlo pricing method in the hull-White one factor model.
@@ -68,7 +69,7 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
   /**
    * Computes the present value in the Hull-White one factor model by Monte-Carlo.
    * Implementation note: The total number of paths is divided in blocks of maximum size BLOCK_SIZE=1000. The Monte Carlo is run on each block and the average of each
-   * block price is the total price. 
+   * block price is the total price.
    * @param instrument The swaption.
    * @param ccy The currency
    * @param dscName The discounting curve name.
@@ -79,241 +80,216 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
     // TODO: remove currency and dsc curve name (should be available from the instrument)
     YieldAndDiscountCurve dsc = hwData.getCurve(dscName);
     DecisionSchedule decision = DC.visit(instrument, hwData);
-    double[] decisionTime = decision.getDecisionTime();
-    double[][] impactTime = decision.getImpactTime();
-    int nbJump = decisionTime.length;
-    double numeraireTime = decisionTime[nbJump - 1];
-    double pDN = dsc.getDiscountFactor(numeraireTime);
-    // Discount factor to numeraire date for rebasing.
-    double[][] pDI = new double[nbJump][];
-    // Initial discount factors to each impact date.
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      pDI[loopjump] = new double[impactTime[loopjump].length];
-      for (int i = 0; i < impactTime[loopjump].length; i++) {
-        pDI[loopjump][i] = dsc.getDiscountFactor(impactTime[loopjump][i]) / pDN;
-      }
-    }
-    double[] gamma = new double[nbJump];
-    double[][] cov = new double[nbJump][nbJump];
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      gamma[loopjump] = MODEL.beta(hwData.getHullWhiteParameter(), 0.0, decisionTime[loopjump]);
-      gamma[loopjump] = gamma[loopjump] * gamma[loopjump];
-      cov[loopjump][loopjump] = gamma[loopjump];
-      for (int j = loopjump + 1; j < nbJump; j++) {
-        cov[j][loopjump] = gamma[loopjump];
-        cov[loopjump][j] = gamma[loopjump];
-      }
-    }
-    double[][] h = MODEL.volatilityMaturityPart(hwData.getHullWhiteParameter(), numeraireTime, impactTime); // jump/cf
-    double[][] h2 = new double[nbJump][];
-    for (int i = 0; i < nbJump; i++) {
-      h2[i] = new double[h[i].length];
-      for (int j = 0; j < h[i].length; j++) {
-        h2[i][j] = h[i][j] * h[i][j] / 2;
-      }
-    }
-    // To remove the 0 (fixed coupons)
-    int nbZero = 0;
-    while (cov[nbZero][nbZero] < 1.0E-12) {
-      nbZero++;
-    }
-    double[][] cov2 = new double[nbJump - nbZero][nbJump - nbZero];
-    for (int loopjump = 0; loopjump < nbJump - nbZero; loopjump++) {
-      for (int loopjump2 = 0; loopjump2 < nbJump - nbZero; loopjump2++) {
-        cov2[loopjump][loopjump2] = cov[loopjump + nbZero][loopjump2 + nbZero];
-      }
-    }
-    CholeskyDecompositionCommons cd = new CholeskyDecompositionCommons();
-    CholeskyDecompositionResult cdr2 = cd.evaluate(new DoubleMatrix2D(cov2));
-    double[][] covCD2 = cdr2.getL().toArray();
-    double[][] covCD = new double[nbJump][nbJump];
-    for (int loopjump = 0; loopjump < nbJump - nbZero; loopjump++) {
-      for (int loopjump2 = 0; loopjump2 < nbJump - nbZero; loopjump2++) {
-        covCD[loopjump + nbZero][loopjump2 + nbZero] = covCD2[loopjump][loopjump2];
-      }
-    }
-    int nbBlock = (int) Math.round(Math.ceil(getNbPath() / ((double) BLOCK_SIZE)));
-    int[] nbPath2 = new int[nbBlock];
-    for (int i = 0; i < nbBlock - 1; i++) {
-      nbPath2[i] = BLOCK_SIZE;
-    }
-    nbPath2[nbBlock - 1] = getNbPath() - (nbBlock - 1) * BLOCK_SIZE;
+    PathModel model = new PathModel(decision, dsc, hwData, false);
+    int[] nbPath2 = getBlockSizes();
     double[][] impactAmount = decision.getImpactAmount();
     double pv = 0;
-    for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
-      double[][] x = getNormalArray(nbJump, nbPath2[loopblock]);
-      double[][] y = new double[nbJump][nbPath2[loopblock]]; // jump/path
-      for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
-        for (int i = 0; i < nbJump; i++) {
-          for (int j = 0; j < nbJump; j++) {
-            y[i][looppath] += x[j][looppath] * covCD[i][j];
-          }
-        }
-      }
-      Double[][][] pD = pathGeneratorDiscount(pDI, y, h, h2, gamma);
+    for (int loopblock = 0; loopblock < nbPath2.length; loopblock++) {
+      double[][] x = getNormalArray(model._nbJump, nbPath2[loopblock]);
+      double[][] y = model.correlate(x);
+      Double[][][] pD = pathGeneratorDiscount(model._pDI, y, model._h, model._h2, model._gamma);
       pv += MCC.visit(instrument, new MonteCarloDiscountFactorDataBundle(pD, impactAmount)) * nbPath2[loopblock];
     }
-    pv *= pDN / getNbPath(); // Multiply by the numeraire.
+    pv *= model._pDN / getNbPath(); // Multiply by the numeraire.
     return CurrencyAmount.of(ccy, pv);
   }
 
   /**
-   * Computes the present value curve sensitivity in the Hull-White one factor model by Monte-Carlo. The sensitivity is computed by Adjoint Algorithmic Differentiation. 
+   * Computes the present value curve sensitivity in the Hull-White one factor model by Monte-Carlo. The sensitivity is computed by Adjoint Algorithmic Differentiation.
    * Implementation note: The total number of paths is divided in blocks of maximum size BLOCK_SIZE=1000. The Monte Carlo is run on each block and the average of each
-   * block price is the total price. 
+   * block price is the total price.
    * @param instrument The swaption.
    * @param dscName The discounting curve name.
    * @param hwData The Hull-White data (curves and Hull-White parameters).
    * @return The curve sensitivity.
    */
   public InterestRateCurveSensitivity presentValueCurveSensitivity(final InstrumentDerivative instrument, final String dscName, final HullWhiteOneFactorPiecewiseConstantDataBundle hwData) {
-    YieldAndDiscountCurve dsc = hwData.getCurve(dscName);
     // TODO: remove dsc curve name
+    return presentValueSensitivities(instrument, dscName, hwData, true, false).getFirst();
+  }
+
+  /**
+   * Computes the present value sensitivity to the Hull-White volatility parameters by Monte-Carlo. The sensitivity is computed by Adjoint Algorithmic Differentiation
+   * (pathwise derivatives): all the volatility sensitivities are obtained from the same paths as the present value, without re-simulation.
+   * The covariance matrix of the state variables has the structure cov(i,j) = gamma(min(i,j)); its Cholesky decomposition is given by the square roots
+   * of the variance increments, which are differentiated explicitly.
+   * Implementation note: The total number of paths is divided in blocks of maximum size BLOCK_SIZE=1000.
+   * @param instrument The swaption.
+   * @param dscName The discounting curve name.
+   * @param hwData The Hull-White data (curves and Hull-White parameters).
+   * @return The sensitivity to the piecewise constant volatilities.
+   */
+  public double[] presentValueHullWhiteSensitivity(final InstrumentDerivative instrument, final String dscName, final HullWhiteOneFactorPiecewiseConstantDataBundle hwData) {
+    return presentValueSensitivities(instrument, dscName, hwData, false, true).getSecond();
+  }
+
+  /**
+   * Computes the present value curve sensitivity and the sensitivity to the Hull-White volatility parameters by Monte-Carlo, both by Adjoint Algorithmic
+   * Differentiation in one simulation (the two backward sweeps are run on the same paths).
+   * @param instrument The swaption.
+   * @param dscName The discounting curve name.
+   * @param hwData The Hull-White data (curves and Hull-White parameters).
+   * @return The curve sensitivity and the sensitivity to the piecewise constant volatilities.
+   */
+  public Pair<InterestRateCurveSensitivity, double[]> presentValueCurveAndHullWhiteSensitivity(final InstrumentDerivative instrument, final String dscName,
+      final HullWhiteOneFactorPiecewiseConstantDataBundle hwData) {
+    return presentValueSensitivities(instrument, dscName, hwData, true, true);
+  }
+
+  /**
+   * Runs the simulation with the backward sweeps for the requested sensitivities.
+   * @param instrument The swaption.
+   * @param dscName The discounting curve name.
+   * @param hwData The Hull-White data (curves and Hull-White parameters).
+   * @param curveSensitivity Whether the curve sensitivity is computed.
+   * @param volatilitySensitivity Whether the volatility sensitivity is computed.
+   * @return The curve sensitivity and the volatility sensitivities, null when not requested.
+   */
+  private Pair<InterestRateCurveSensitivity, double[]> presentValueSensitivities(final InstrumentDerivative instrument, final String dscName,
+      final HullWhiteOneFactorPiecewiseConstantDataBundle hwData, final boolean curveSensitivity, final boolean volatilitySensitivity) {
+    YieldAndDiscountCurve dsc = hwData.getCurve(dscName);
     // Forward sweep
-    DecisionScheduleDerivative decision = DDC.visit(instrument, hwData);
-    double[] decisionTime = decision.getDecisionTime();
+    DecisionSchedule decision = curveSensitivity ? DDC.visit(instrument, hwData) : DC.visit(instrument, hwData);
+    PathModel model = new PathModel(decision, dsc, hwData, volatilitySensitivity);
     double[][] impactTime = decision.getImpactTime();
-    int nbJump = decisionTime.length;
-    double numeraireTime = decisionTime[nbJump - 1];
-    double pDN = dsc.getDiscountFactor(numeraireTime);
-    // Discount factor to numeraire date for rebasing.
-    double[][] pDI = new double[nbJump][];
-    // Initial discount factors to each impact date.
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      pDI[loopjump] = new double[impactTime[loopjump].length];
-      for (int i = 0; i < impactTime[loopjump].length; i++) {
-        pDI[loopjump][i] = dsc.getDiscountFactor(impactTime[loopjump][i]) / pDN;
-      }
-    }
-    double[] gamma = new double[nbJump];
-    double[][] cov = new double[nbJump][nbJump];
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      gamma[loopjump] = MODEL.beta(hwData.getHullWhiteParameter(), 0.0, decisionTime[loopjump]);
-      gamma[loopjump] = gamma[loopjump] * gamma[loopjump];
-      cov[loopjump][loopjump] = gamma[loopjump];
-      for (int j = loopjump + 1; j < nbJump; j++) {
-        cov[j][loopjump] = gamma[loopjump];
-        cov[loopjump][j] = gamma[loopjump];
-      }
-    }
-    double[][] h = MODEL.volatilityMaturityPart(hwData.getHullWhiteParameter(), numeraireTime, impactTime); // jump/cf
-    double[][] h2 = new double[nbJump][];
-    for (int i = 0; i < nbJump; i++) {
-      h2[i] = new double[h[i].length];
-      for (int j = 0; j < h[i].length; j++) {
-        h2[i][j] = h[i][j] * h[i][j] / 2;
-      }
-    }
-    // To remove the 0 (fixed coupons)
-    int nbZero = 0;
-    while (cov[nbZero][nbZero] < 1.0E-12) {
-      nbZero++;
-    }
-    double[][] cov2 = new double[nbJump - nbZero][nbJump - nbZero];
-    for (int loopjump = 0; loopjump < nbJump - nbZero; loopjump++) {
-      for (int loopjump2 = 0; loopjump2 < nbJump - nbZero; loopjump2++) {
-        cov2[loopjump][loopjump2] = cov[loopjump + nbZero][loopjump2 + nbZero];
-      }
-    }
-    CholeskyDecompositionCommons cd = new CholeskyDecompositionCommons();
-    CholeskyDecompositionResult cdr2 = cd.evaluate(new DoubleMatrix2D(cov2));
-    double[][] covCD2 = cdr2.getL().toArray();
-    double[][] covCD = new double[nbJump][nbJump];
-    for (int loopjump = 0; loopjump < nbJump - nbZero; loopjump++) {
-      for (int loopjump2 = 0; loopjump2 < nbJump - nbZero; loopjump2++) {
-        covCD[loopjump + nbZero][loopjump2 + nbZero] = covCD2[loopjump][loopjump2];
-      }
-    }
-    int nbBlock = (int) Math.round(Math.ceil(getNbPath() / ((double) BLOCK_SIZE)));
-    int[] nbPath2 = new int[nbBlock];
-    for (int i = 0; i < nbBlock - 1; i++) {
-      nbPath2[i] = BLOCK_SIZE;
-    }
-    nbPath2[nbBlock - 1] = getNbPath() - (nbBlock - 1) * BLOCK_SIZE;
+    int nbJump = model._nbJump;
+    double pDN = model._pDN;
+    double[][] pDI = model._pDI;
+    int[] nbPath2 = getBlockSizes();
+    int nbBlock = nbPath2.length;
     double[][] impactAmount = decision.getImpactAmount();
     double pv = 0;
-    double[] pvBlock = new double[nbBlock];
     // Backward sweep (init)
     double pvBar = 1.0;
-    double[] pvBlockBar = new double[nbBlock];
-    for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
-      pvBlockBar[loopblock] = pDN / getNbPath() * pvBar;
-    }
+    double pvBlockBar = pDN / getNbPath() * pvBar;
     double[][] impactAmountBar = new double[nbJump][];
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      impactAmountBar[loopjump] = new double[impactAmount[loopjump].length];
-    }
-    // Forward sweep (end) and backward sweep (main)
     double[][] pDIBar = new double[nbJump][];
     for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+      impactAmountBar[loopjump] = new double[impactAmount[loopjump].length];
       pDIBar[loopjump] = new double[impactAmount[loopjump].length];
     }
+    double[] gammaBar = new double[nbJump];
+    double[][] covCDBar = new double[nbJump][nbJump];
+    // Forward sweep (end) and backward sweep (main)
     for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
       double[][] x = getNormalArray(nbJump, nbPath2[loopblock]);
-      double[][] y = new double[nbJump][nbPath2[loopblock]]; // jump/path
-      for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
-        for (int i = 0; i < nbJump; i++) {
-          for (int j = 0; j < nbJump; j++) {
-            y[i][looppath] += x[j][looppath] * covCD[i][j];
-          }
-        }
-      }
-      Double[][][] pD = pathGeneratorDiscount(pDI, y, h, h2, gamma);
+      double[][] y = model.correlate(x);
+      Double[][][] pD = pathGeneratorDiscount(pDI, y, model._h, model._h2, model._gamma);
       MonteCarloDiscountFactorDerivativeDataBundle mcdDB = new MonteCarloDiscountFactorDerivativeDataBundle(pD, impactAmount);
-      pvBlock[loopblock] = MCDC.visit(instrument, mcdDB) * nbPath2[loopblock];
-      pv += pvBlock[loopblock];
+      pv += MCDC.visit(instrument, mcdDB) * nbPath2[loopblock];
       // Backward sweep (in block loop)
-      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-        for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
-          impactAmountBar[loopjump][loopimp] += mcdDB.getImpactAmountDerivative()[loopjump][loopimp] * nbPath2[loopblock] * pvBlockBar[loopblock];
+      if (curveSensitivity) {
+        for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+          for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
+            impactAmountBar[loopjump][loopimp] += mcdDB.getImpactAmountDerivative()[loopjump][loopimp] * nbPath2[loopblock] * pvBlockBar;
+          }
         }
-      }
-      Double[][][] pDBar = new Double[nbPath2[loopblock]][nbJump][];
-      for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
+        Double[][][] pDBar = new Double[nbPath2[loopblock]][nbJump][];
+        for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
+          for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+            pDBar[looppath][loopjump] = new Double[impactAmount[loopjump].length];
+            for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
+              pDBar[looppath][loopjump][loopimp] = mcdDB.getPathDiscountingFactorDerivative()[looppath][loopjump][loopimp] * nbPath2[loopblock] * pvBlockBar;
+            }
+          }
+        }
+        double[][] pDIBarTemp = pathGeneratorDiscountAdjointIDF(pDI, y, model._h, model._h2, model._gamma, pDBar);
         for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-          pDBar[looppath][loopjump] = new Double[impactAmount[loopjump].length];
           for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
-            pDBar[looppath][loopjump][loopimp] = mcdDB.getPathDiscountingFactorDerivative()[looppath][loopjump][loopimp] * nbPath2[loopblock] * pvBlockBar[loopblock];
+            pDIBar[loopjump][loopimp] += pDIBarTemp[loopjump][loopimp];
           }
         }
       }
-      double[][] pDIBarTemp = pathGeneratorDiscountAdjointIDF(pDI, y, h, h2, gamma, pDBar);
-      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-        for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
-          pDIBar[loopjump][loopimp] += pDIBarTemp[loopjump][loopimp];
+      if (volatilitySensitivity) {
+        double[][] yBar = new double[nbJump][nbPath2[loopblock]];
+        for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
+          for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+            for (int loopimp = 0; loopimp < impactAmount[loopjump].length; loopimp++) {
+              double pDpDBar = pD[looppath][loopjump][loopimp] * mcdDB.getPathDiscountingFactorDerivative()[looppath][loopjump][loopimp] * nbPath2[loopblock] * pvBlockBar;
+              yBar[loopjump][looppath] += -model._h[loopjump][loopimp] * pDpDBar;
+              gammaBar[loopjump] += -model._h2[loopjump][loopimp] * pDpDBar;
+            }
+          }
+        }
+        for (int i = 0; i < nbJump; i++) {
+          for (int j = 0; j <= i; j++) {
+            for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
+              covCDBar[i][j] += x[j][looppath] * yBar[i][looppath];
+            }
+          }
         }
       }
     }
     pv *= pDN / getNbPath(); // Multiply by the numeraire.
     // Backward sweep (end)
-    double pDNBar = pv / pDN * pvBar;
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      for (int loopimp = 0; loopimp < impactTime[loopjump].length; loopimp++) {
-        pDNBar += -dsc.getDiscountFactor(impactTime[loopjump][loopimp]) / (pDN * pDN) * pDIBar[loopjump][loopimp];
+    InterestRateCurveSensitivity curveResult = null;
+    if (curveSensitivity) {
+      double pDNBar = pv / pDN * pvBar;
+      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+        for (int loopimp = 0; loopimp < impactTime[loopjump].length; loopimp++) {
+          pDNBar += -dsc.getDiscountFactor(impactTime[loopjump][loopimp]) / (pDN * pDN) * pDIBar[loopjump][loopimp];
+        }
       }
-    }
-    final Map<String, List<DoublesPair>> resultMap = new HashMap<String, List<DoublesPair>>();
-    final List<DoublesPair> listDiscounting = new ArrayList<DoublesPair>();
-    listDiscounting.add(new DoublesPair(numeraireTime, -numeraireTime * pDN * pDNBar));
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      for (int loopimp = 0; loopimp < impactTime[loopjump].length; loopimp++) {
-        listDiscounting.add(new DoublesPair(impactTime[loopjump][loopimp], -impactTime[loopjump][loopimp] * pDI[loopjump][loopimp] * pDIBar[loopjump][loopimp]));
+      final Map<String, List<DoublesPair>> resultMap = new HashMap<String, List<DoublesPair>>();
+      final List<DoublesPair> listDiscounting = new ArrayList<DoublesPair>();
+      listDiscounting.add(new DoublesPair(model._numeraireTime, -model._numeraireTime * pDN * pDNBar));
+      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+        for (int loopimp = 0; loopimp < impactTime[loopjump].length; loopimp++) {
+          listDiscounting.add(new DoublesPair(impactTime[loopjump][loopimp], -impactTime[loopjump][loopimp] * pDI[loopjump][loopimp] * pDIBar[loopjump][loopimp]));
+        }
+      }
+      resultMap.put(dscName, listDiscounting);
+      curveResult = new InterestRateCurveSensitivity(resultMap);
+      // Adding sensitivity due to cash flow equivalent sensitivity to curves.
+      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+        Map<Double, InterestRateCurveSensitivity> impactAmountDerivative = ((DecisionScheduleDerivative) decision).getImpactAmountDerivative().get(loopjump);
+        for (int loopimp = 0; loopimp < impactTime[loopjump].length; loopimp++) {
+          InterestRateCurveSensitivity sensiCfe = impactAmountDerivative.get(impactTime[loopjump][loopimp]);
+          if (!(sensiCfe == null)) { // There is some sensitivity to that cfe.
+            curveResult = curveResult.plus(sensiCfe.multipliedBy(impactAmountBar[loopjump][loopimp]));
+          }
+        }
       }
+      curveResult = curveResult.cleaned();
     }
-    resultMap.put(dscName, listDiscounting);
-    InterestRateCurveSensitivity result = new InterestRateCurveSensitivity(resultMap);
-    // Adding sensitivity due to cash flow equivalent sensitivity to curves.
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      Map<Double, InterestRateCurveSensitivity> impactAmountDerivative = decision.getImpactAmountDerivative().get(loopjump);
-      for (int loopimp = 0; loopimp < impactTime[loopjump].length; loopimp++) {
-        InterestRateCurveSensitivity sensiCfe = impactAmountDerivative.get(impactTime[loopjump][loopimp]);
-        if (!(sensiCfe == null)) { // There is some sensitivity to that cfe.
-          result = result.plus(sensiCfe.multipliedBy(impactAmountBar[loopjump][loopimp]));
+    double[] sigmaBar = null;
+    if (volatilitySensitivity) {
+      // covCD(i,j) = sqrt(gamma(j) - gamma(j-1)) for j <= i.
+      for (int loopjump = model._nbZero; loopjump < nbJump; loopjump++) {
+        double incrementSqrtBar = 0.0;
+        for (int i = loopjump; i < nbJump; i++) {
+          incrementSqrtBar += covCDBar[i][loopjump];
+        }
+        double incrementBar = 0.5 / model._covCD[loopjump][loopjump] * incrementSqrtBar;
+        gammaBar[loopjump] += incrementBar;
+        if (loopjump > model._nbZero) {
+          gammaBar[loopjump - 1] -= incrementBar;
+        }
+      }
+      int nbSigma = hwData.getHullWhiteParameter().getVolatility().length;
+      sigmaBar = new double[nbSigma];
+      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+        double betaBar = 2 * model._beta[loopjump] * gammaBar[loopjump];
+        for (int loopsigma = 0; loopsigma < nbSigma; loopsigma++) {
+          sigmaBar[loopsigma] += model._betaDerivatives[loopjump][loopsigma] * betaBar;
         }
       }
     }
-    result = result.cleaned();
-    return result;
+    return Pair.of(curveResult, sigmaBar);
+  }
+
+  /**
+   * The sizes of the blocks in which the paths are simulated: blocks of BLOCK_SIZE, the last one with the remaining paths.
+   * @return The number of paths in each block.
+   */
+  private int[] getBlockSizes() {
+    int nbBlock = (int) Math.round(Math.ceil(getNbPath() / ((double) BLOCK_SIZE)));
+    int[] nbPath2 = new int[nbBlock];
+    for (int i = 0; i < nbBlock - 1; i++) {
+      nbPath2[i] = BLOCK_SIZE;
+    }
+    nbPath2[nbBlock - 1] = getNbPath() - (nbBlock - 1) * BLOCK_SIZE;
+    return nbPath2;
   }
 
   /**
@@ -467,4 +443,104 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
     return null;
   }
 
+  /**
+   * The model quantities shared by all the paths: initial discount factors rebased to the numeraire date, variances of the state variable at the decision dates,
+   * volatility parts of the discount factors and Cholesky decomposition of the covariance.
+   */
+  private static final class PathModel {
+    private final int _nbJump;
+    private final double _numeraireTime;
+    /** Discount factor to numeraire date for rebasing. */
+    private final double _pDN;
+    /** Initial discount factors to each impact date, rebased (jump/cf). */
+    private final double[][] _pDI;
+    private final double[] _beta;
+    /** The derivatives of beta with respect to the volatilities (jump/sigma), null if not requested. */
+    private final double[][] _betaDerivatives;
+    private final double[] _gamma;
+    /** jump/cf */
+    private final double[][] _h;
+    private final double[][] _h2;
+    /** The number of decision dates with zero variance (fixed coupons). */
+    private final int _nbZero;
+    private final double[][] _covCD;
+
+    private PathModel(final DecisionSchedule decision, final YieldAndDiscountCurve dsc, final HullWhiteOneFactorPiecewiseConstantDataBundle hwData,
+        final boolean betaDerivatives) {
+      double[] decisionTime = decision.getDecisionTime();
+      double[][] impactTime = decision.getImpactTime();
+      _nbJump = decisionTime.length;
+      _numeraireTime = decisionTime[_nbJump - 1];
+      _pDN = dsc.getDiscountFactor(_numeraireTime);
+      _pDI = new double[_nbJump][];
+      for (int loopjump = 0; loopjump < _nbJump; loopjump++) {
+        _pDI[loopjump] = new double[impactTime[loopjump].length];
+        for (int i = 0; i < impactTime[loopjump].length; i++) {
+          _pDI[loopjump][i] = dsc.getDiscountFactor(impactTime[loopjump][i]) / _pDN;
+        }
+      }
+      _beta = new double[_nbJump];
+      _betaDerivatives = betaDerivatives ? new double[_nbJump][hwData.getHullWhiteParameter().getVolatility().length] : null;
+      _gamma = new double[_nbJump];
+      double[][] cov = new double[_nbJump][_nbJump];
+      for (int loopjump = 0; loopjump < _nbJump; loopjump++) {
+        _beta[loopjump] = betaDerivatives ? MODEL.beta(hwData.getHullWhiteParameter(), 0.0, decisionTime[loopjump], _betaDerivatives[loopjump])
+            : MODEL.beta(hwData.getHullWhiteParameter(), 0.0, decisionTime[loopjump]);
+        _gamma[loopjump] = _beta[loopjump] * _beta[loopjump];
+        cov[loopjump][loopjump] = _gamma[loopjump];
+        for (int j = loopjump + 1; j < _nbJump; j++) {
+          cov[j][loopjump] = _gamma[loopjump];
+          cov[loopjump][j] = _gamma[loopjump];
+        }
+      }
+      _h = MODEL.volatilityMaturityPart(hwData.getHullWhiteParameter(), _numeraireTime, impactTime);
+      _h2 = new double[_nbJump][];
+      for (int i = 0; i < _nbJump; i++) {
+        _h2[i] = new double[_h[i].length];
+        for (int j = 0; j < _h[i].length; j++) {
+          _h2[i][j] = _h[i][j] * _h[i][j] / 2;
+        }
+      }
+      // To remove the 0 (fixed coupons)
+      int nbZero = 0;
+      while (cov[nbZero][nbZero] < 1.0E-12) {
+        nbZero++;
+      }
+      _nbZero = nbZero;
+      double[][] cov2 = new double[_nbJump - nbZero][_nbJump - nbZero];
+      for (int loopjump = 0; loopjump < _nbJump - nbZero; loopjump++) {
+        for (int loopjump2 = 0; loopjump2 < _nbJump - nbZero; loopjump2++) {
+          cov2[loopjump][loopjump2] = cov[loopjump + nbZero][loopjump2 + nbZero];
+        }
+      }
+      CholeskyDecompositionCommons cd = new CholeskyDecompositionCommons();
+      CholeskyDecompositionResult cdr2 = cd.evaluate(new DoubleMatrix2D(cov2));
+      double[][] covCD2 = cdr2.getL().toArray();
+      _covCD = new double[_nbJump][_nbJump];
+      for (int loopjump = 0; loopjump < _nbJump - nbZero; loopjump++) {
+        for (int loopjump2 = 0; loopjump2 < _nbJump - nbZero; loopjump2++) {
+          _covCD[loopjump + nbZero][loopjump2 + nbZero] = covCD2[loopjump][loopjump2];
+        }
+      }
+    }
+
+    /**
+     * Correlates independent normal variables with the Cholesky decomposition of the covariance.
+     * @param x The independent variables (jump/path).
+     * @return The correlated variables (jump/path).
+     */
+    private double[][] correlate(final double[][] x) {
+      int nbPath = x[0].length;
+      double[][] y = new double[_nbJump][nbPath];
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        for (int i = 0; i < _nbJump; i++) {
+          for (int j = 0; j < _nbJump; j++) {
+            y[i][looppath] += x[j][looppath] * _covCD[i][j];
+          }
+        }
+      }
+      return y;
+    }
+  }
+
 }
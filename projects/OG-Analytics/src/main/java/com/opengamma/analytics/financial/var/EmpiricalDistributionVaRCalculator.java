@@ -5,13 +5,11 @@
  */
 package com.opengamma.analytics.financial.var;
 
-import java.util.Arrays;
-
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.timeseries.DoubleTimeSeries;
 
 /**
- *
+ * Historical VaR of a single P&L series, see {@link com.opengamma.analytics.financial.var.historical.HistoricalSimulationVaRTree} for portfolios.
  */
 public class EmpiricalDistributionVaRCalculator implements VaRCalculator<EmpiricalDistributionVaRParameters, DoubleTimeSeries<?>> {
 
@@ -21,8 +19,8 @@ public class EmpiricalDistributionVaRCalculator implements VaRCalculator<Empiric
     ArgumentChecker.notNull(returns, "time series");
     ArgumentChecker.notNull(returns, "returns");
     ArgumentChecker.isTrue(returns.length > 0, "No return series data");
+    // the series' own array, so the percentile is taken of a copy
     final double[] data = returns[0].valuesArrayFast();
-    Arrays.sort(data);
     final double result = -parameters.getMult() * parameters.getPercentileCalculator().evaluate(data);
     return new VaRCalculationResult(result, null);
   }
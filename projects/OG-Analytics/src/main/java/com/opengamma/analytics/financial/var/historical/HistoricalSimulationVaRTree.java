@@ -0,0 +1,299 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.var.historical;
+
+import java.util.Arrays;
+
+import com.opengamma.analytics.financial.var.EmpiricalDistributionVaRCalculator;
+import com.opengamma.analytics.financial.var.EmpiricalDistributionVaRParameters;
+import com.opengamma.analytics.math.statistics.descriptive.PercentileCalculator;
+import com.opengamma.analytics.math.statistics.descriptive.QuickSelect;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Historical simulation VaR for every node of a portfolio tree. Each node holds its P&L under every scenario in one
+ * node-by-scenario array; the P&L of a position is set directly and that of any other node is the sum of its children's.
+ * <p>
+ * Changing the P&L of a position recomputes each of its ancestors as the sum of its children and marks them for recalculation, so nothing
+ * else in the tree is touched. The children are always summed in the same order, so however many times the positions are changed the P&L
+ * of a node is exactly that of a tree built from the current positions; accumulating the differences instead would drift. VaR is
+ * calculated on demand and cached until the node changes. The percentile is found by selection rather than a sort (see
+ * {@link QuickSelect}) and agrees exactly with {@link EmpiricalDistributionVaRCalculator}.
+ * <p>
+ * The VaR of a node is an interpolation between its P&L in two scenarios, so the VaR of a node can be split exactly between its children by
+ * taking their P&L in those scenarios (the component VaR, see {@link #getComponentVaR}). The marginal VaR of a node is the change in its parent's
+ * VaR if the node were removed.
+ * <p>
+ * This class is not thread-safe.
+ */
+public final class HistoricalSimulationVaRTree {
+  private static final int ROOT = 0;
+  private static final int NONE = -1;
+  private final int _nScenarios;
+  private final double _mult;
+  private final int _lowerIndex;
+  private final double _weight;
+  private int _nNodes;
+  private int[] _parent;
+  private int[] _firstChild;
+  private int[] _nextSibling;
+  private boolean[] _isPosition;
+  /** The P&L, node by scenario, row-major */
+  private double[] _pnl;
+  /** The cached VaR, NaN if the node has changed */
+  private double[] _var;
+  /** The scenarios of the lower and upper order statistics used to calculate the VaR */
+  private int[] _lowerScenario;
+  private int[] _upperScenario;
+  private final double[] _scratch;
+
+  /**
+   * @param parameters The VaR parameters, not null
+   * @param nScenarios The number of scenarios, greater than zero
+   */
+  public HistoricalSimulationVaRTree(final EmpiricalDistributionVaRParameters parameters, final int nScenarios) {
+    ArgumentChecker.notNull(parameters, "parameters");
+    ArgumentChecker.isTrue(nScenarios > 0, "need at least one scenario");
+    final PercentileCalculator percentile = parameters.getPercentileCalculator();
+    _nScenarios = nScenarios;
+    _mult = parameters.getMult();
+    _lowerIndex = percentile.getLowerIndex(nScenarios);
+    _weight = percentile.getWeight(nScenarios);
+    _scratch = new double[nScenarios];
+    final int capacity = 16;
+    _parent = new int[capacity];
+    _firstChild = new int[capacity];
+    _nextSibling = new int[capacity];
+    _isPosition = new boolean[capacity];
+    _var = new double[capacity];
+    _lowerScenario = new int[capacity];
+    _upperScenario = new int[capacity];
+    _pnl = new double[capacity * nScenarios];
+    newNode(NONE);
+  }
+
+  /**
+   * @return The root node, whose P&L is that of the whole portfolio
+   */
+  public int getRoot() {
+    return ROOT;
+  }
+
+  /**
+   * @return The number of scenarios
+   */
+  public int getNumberOfScenarios() {
+    return _nScenarios;
+  }
+
+  /**
+   * @return The number of nodes, including the root
+   */
+  public int getNumberOfNodes() {
+    return _nNodes;
+  }
+
+  /**
+   * Adds a node with no P&L.
+   * @param parent The parent node, not a position
+   * @return The new node
+   */
+  public int addNode(final int parent) {
+    checkNode(parent);
+    ArgumentChecker.isFalse(_isPosition[parent], "node {} is a position so cannot have children", parent);
+    return newNode(parent);
+  }
+
+  /**
+   * Adds a position.
+   * @param parent The parent node, not a position
+   * @param pnl The P&L under each scenario, not null
+   * @return The new node
+   */
+  public int addPosition(final int parent, final double[] pnl) {
+    final int node = addNode(parent);
+    setPnL(node, pnl);
+    return node;
+  }
+
+  /**
+   * Sets the P&L of a position, or of a node without children which then becomes a position. Every ancestor is recomputed from its
+   * children; no other node is changed.
+   * @param node The node, not one with children
+   * @param pnl The P&L under each scenario, not null
+   */
+  public void setPnL(final int node, final double[] pnl) {
+    checkNode(node);
+    ArgumentChecker.notNull(pnl, "pnl");
+    ArgumentChecker.isTrue(pnl.length == _nScenarios, "need P&L for {} scenarios, have {}", _nScenarios, pnl.length);
+    ArgumentChecker.isTrue(_firstChild[node] == NONE, "node {} has children so its P&L is the sum of theirs", node);
+    System.arraycopy(pnl, 0, _pnl, node * _nScenarios, _nScenarios);
+    _isPosition[node] = true;
+    _var[node] = Double.NaN;
+    for (int n = _parent[node]; n != NONE; n = _parent[n]) {
+      final int row = n * _nScenarios;
+      Arrays.fill(_pnl, row, row + _nScenarios, 0);
+      for (int child = _firstChild[n]; child != NONE; child = _nextSibling[child]) {
+        final int childRow = child * _nScenarios;
+        for (int s = 0; s < _nScenarios; s++) {
+          _pnl[row + s] += _pnl[childRow + s];
+        }
+      }
+      _var[n] = Double.NaN;
+    }
+  }
+
+  /**
+   * @param node The node
+   * @return The parent, -1 for the root
+   */
+  public int getParent(final int node) {
+    checkNode(node);
+    return _parent[node];
+  }
+
+  /**
+   * @param node The node
+   * @return The children, in the order they were added
+   */
+  public int[] getChildren(final int node) {
+    checkNode(node);
+    int count = 0;
+    for (int child = _firstChild[node]; child != NONE; child = _nextSibling[child]) {
+      count++;
+    }
+    final int[] children = new int[count];
+    for (int child = _firstChild[node], i = count - 1; child != NONE; child = _nextSibling[child], i--) {
+      children[i] = child;
+    }
+    return children;
+  }
+
+  /**
+   * @param node The node
+   * @return A copy of the P&L of the node under each scenario
+   */
+  public double[] getPnL(final int node) {
+    checkNode(node);
+    return Arrays.copyOfRange(_pnl, node * _nScenarios, (node + 1) * _nScenarios);
+  }
+
+  /**
+   * @param node The node
+   * @return The VaR of the node
+   */
+  public double getVaR(final int node) {
+    checkNode(node);
+    if (Double.isNaN(_var[node])) {
+      calculate(node);
+    }
+    return _var[node];
+  }
+
+  /**
+   * The contribution of a node to the VaR of its parent. This is minus the node's P&L in the scenarios that determine the parent's VaR,
+   * so the component VaRs of the children of a node sum to its VaR. The component VaR of the root is its VaR.
+   * @param node The node
+   * @return The component VaR
+   */
+  public double getComponentVaR(final int node) {
+    checkNode(node);
+    final int parent = _parent[node];
+    if (parent == NONE) {
+      return getVaR(node);
+    }
+    getVaR(parent);
+    final int row = node * _nScenarios;
+    final double lower = _pnl[row + _lowerScenario[parent]];
+    if (_weight == 0) {
+      return -_mult * lower;
+    }
+    return -_mult * (lower + _weight * (_pnl[row + _upperScenario[parent]] - lower));
+  }
+
+  /**
+   * The VaR of the parent of a node less the VaR the parent would have without it. The marginal VaR of the root is its VaR.
+   * @param node The node
+   * @return The marginal VaR
+   */
+  public double getMarginalVaR(final int node) {
+    checkNode(node);
+    final int parent = _parent[node];
+    if (parent == NONE) {
+      return getVaR(node);
+    }
+    final double var = getVaR(parent);
+    final int parentRow = parent * _nScenarios;
+    final int row = node * _nScenarios;
+    for (int s = 0; s < _nScenarios; s++) {
+      _scratch[s] = _pnl[parentRow + s] - _pnl[row + s];
+    }
+    return var + _mult * percentile(_scratch);
+  }
+
+  private void calculate(final int node) {
+    final int row = node * _nScenarios;
+    System.arraycopy(_pnl, row, _scratch, 0, _nScenarios);
+    final double lower = QuickSelect.select(_scratch, _lowerIndex);
+    final double upper = _weight == 0 ? lower : QuickSelect.min(_scratch, _lowerIndex + 1, _nScenarios);
+    _lowerScenario[node] = findScenario(row, lower, NONE);
+    _upperScenario[node] = findScenario(row, upper, _lowerScenario[node]);
+    _var[node] = -_mult * (_weight == 0 ? lower : lower + _weight * (upper - lower));
+  }
+
+  private double percentile(final double[] x) {
+    final double lower = QuickSelect.select(x, _lowerIndex);
+    if (_weight == 0) {
+      return lower;
+    }
+    return lower + _weight * (QuickSelect.min(x, _lowerIndex + 1, _nScenarios) - lower);
+  }
+
+  /**
+   * Finds a scenario with the given P&L, avoiding the excluded scenario if another has the same P&L.
+   */
+  private int findScenario(final int row, final double value, final int excluded) {
+    int found = NONE;
+    for (int s = 0; s < _nScenarios; s++) {
+      if (Double.compare(_pnl[row + s], value) == 0) {
+        if (s != excluded) {
+          return s;
+        }
+        found = s;
+      }
+    }
+    return found;
+  }
+
+  private int newNode(final int parent) {
+    if (_nNodes == _parent.length) {
+      final int capacity = 2 * _nNodes;
+      _parent = Arrays.copyOf(_parent, capacity);
+      _firstChild = Arrays.copyOf(_firstChild, capacity);
+      _nextSibling = Arrays.copyOf(_nextSibling, capacity);
+      _isPosition = Arrays.copyOf(_isPosition, capacity);
+      _var = Arrays.copyOf(_var, capacity);
+      _lowerScenario = Arrays.copyOf(_lowerScenario, capacity);
+      _upperScenario = Arrays.copyOf(_upperScenario, capacity);
+      _pnl = Arrays.copyOf(_pnl, capacity * _nScenarios);
+    }
+    final int node = _nNodes++;
+    _parent[node] = parent;
+    _firstChild[node] = NONE;
+    // children are held as a linked list, newest first
+    _nextSibling[node] = parent == NONE ? NONE : _firstChild[parent];
+    if (parent != NONE) {
+      _firstChild[parent] = node;
+    }
+    _var[node] = Double.NaN;
+    return node;
+  }
+
+  private void checkNode(final int node) {
+    ArgumentChecker.isTrue(node >= 0 && node < _nNodes, "no node {}", node);
+  }
+
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.var.parametric;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.analytics.math.function.Function1D;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+
+/**
+ * The mean of the delta-gamma approximation to the P&L, $\frac{1}{2}tr(\Gamma\Sigma)$, for a covariance matrix in factor form. This is the
+ * same as {@link DeltaGammaCovarianceMatrixMeanCalculator} but costs O(n<sup>2</sup>k) for k factors rather than O(n<sup>3</sup>).
+ */
+public class DeltaGammaFactorCovarianceMeanCalculator extends Function1D<FactorCovarianceVaRDataBundle, Double> {
+
+  @Override
+  public Double evaluate(final FactorCovarianceVaRDataBundle data) {
+    Validate.notNull(data, "data");
+    final DoubleMatrix2D gamma = data.getGamma();
+    if (gamma == null) {
+      return 0.;
+    }
+    return 0.5 * FactorCovarianceUtils.getTrace(gamma.getData(), data.getCovariance());
+  }
+
+  @Override
+  public int hashCode() {
+    return getClass().hashCode();
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    return obj != null && getClass() == obj.getClass();
+  }
+
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.var.parametric;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.analytics.math.function.Function1D;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+
+/**
+ * The standard deviation of the delta-gamma approximation to the P&L, $\sqrt{\delta^T\Sigma\delta + \frac{1}{2}tr((\Gamma\Sigma)^2)}$, for
+ * a covariance matrix in factor form. This is the same as {@link DeltaGammaCovarianceMatrixStandardDeviationCalculator} (and, with no gammas,
+ * {@link DeltaCovarianceMatrixStandardDeviationCalculator}) but costs O(nk) for deltas and O(n<sup>2</sup>k) for gammas with k factors
+ * rather than O(n<sup>2</sup>) and O(n<sup>3</sup>).
+ */
+public class DeltaGammaFactorCovarianceStandardDeviationCalculator extends Function1D<FactorCovarianceVaRDataBundle, Double> {
+
+  @Override
+  public Double evaluate(final FactorCovarianceVaRDataBundle data) {
+    Validate.notNull(data, "data");
+    final double deltaVariance = data.getCovariance().getVariance(data.getDelta().getData());
+    final DoubleMatrix2D gamma = data.getGamma();
+    if (gamma == null) {
+      return Math.sqrt(deltaVariance);
+    }
+    return Math.sqrt(deltaVariance + 0.5 * FactorCovarianceUtils.getTraceOfSquare(gamma.getData(), data.getCovariance()));
+  }
+
+  @Override
+  public int hashCode() {
+    return getClass().hashCode();
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    return obj != null && getClass() == obj.getClass();
+  }
+
+}
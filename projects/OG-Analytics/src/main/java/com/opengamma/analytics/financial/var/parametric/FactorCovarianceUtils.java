@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.var.parametric;
+
+import com.opengamma.analytics.financial.covariance.FactorCovarianceMatrix;
+
+/**
+ * Products of a gamma matrix with a covariance matrix in factor form, $\Sigma = BB^T + D$.
+ */
+final class FactorCovarianceUtils {
+
+  private FactorCovarianceUtils() {
+  }
+
+  /**
+   * @param gamma The gamma matrix, n by n
+   * @param covariance The covariance matrix
+   * @return $\Gamma B$, n by k, row-major
+   */
+  static double[] getGammaTimesLoadings(final double[][] gamma, final FactorCovarianceMatrix covariance) {
+    final int n = covariance.getNumberOfRiskFactors();
+    final int k = covariance.getNumberOfFactors();
+    final double[] loadings = new double[n * k];
+    for (int j = 0; j < n; j++) {
+      for (int f = 0; f < k; f++) {
+        loadings[j * k + f] = covariance.getLoading(j, f);
+      }
+    }
+    final double[] res = new double[n * k];
+    for (int i = 0; i < n; i++) {
+      final double[] row = gamma[i];
+      final int offset = i * k;
+      for (int j = 0; j < n; j++) {
+        final double g = row[j];
+        if (g == 0) {
+          continue;
+        }
+        final int loadingOffset = j * k;
+        for (int f = 0; f < k; f++) {
+          res[offset + f] += g * loadings[loadingOffset + f];
+        }
+      }
+    }
+    return res;
+  }
+
+  /**
+   * @param gamma The gamma matrix, n by n
+   * @param covariance The covariance matrix
+   * @return $tr(\Gamma\Sigma) = tr(B^T\Gamma B) + \sum_i \Gamma_{ii}D_i$
+   */
+  static double getTrace(final double[][] gamma, final FactorCovarianceMatrix covariance) {
+    final int n = covariance.getNumberOfRiskFactors();
+    final int k = covariance.getNumberOfFactors();
+    final double[] gammaB = getGammaTimesLoadings(gamma, covariance);
+    double sum = 0;
+    for (int i = 0; i < n; i++) {
+      sum += gamma[i][i] * covariance.getSpecificVariance(i);
+      for (int f = 0; f < k; f++) {
+        sum += covariance.getLoading(i, f) * gammaB[i * k + f];
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * For symmetric $\Gamma$, $tr((\Gamma\Sigma)^2) = tr(M^2) + 2\sum_i D_i |(\Gamma B)_i|^2 + \sum_{ij} \Gamma_{ij}^2 D_i D_j$ where
+   * $M = B^T\Gamma B$.
+   * @param gamma The gamma matrix, n by n
+   * @param covariance The covariance matrix
+   * @return $tr((\Gamma\Sigma)^2)$
+   */
+  static double getTraceOfSquare(final double[][] gamma, final FactorCovarianceMatrix covariance) {
+    final int n = covariance.getNumberOfRiskFactors();
+    final int k = covariance.getNumberOfFactors();
+    final double[] gammaB = getGammaTimesLoadings(gamma, covariance);
+    final double[][] m = new double[k][k];
+    double specificCross = 0;
+    double specificSquare = 0;
+    for (int i = 0; i < n; i++) {
+      final int offset = i * k;
+      double norm = 0;
+      for (int a = 0; a < k; a++) {
+        final double c = gammaB[offset + a];
+        norm += c * c;
+        final double b = covariance.getLoading(i, a);
+        for (int f = 0; f < k; f++) {
+          m[a][f] += b * gammaB[offset + f];
+        }
+      }
+      final double di = covariance.getSpecificVariance(i);
+      specificCross += di * norm;
+      if (di != 0) {
+        final double[] row = gamma[i];
+        for (int j = 0; j < n; j++) {
+          specificSquare += row[j] * row[j] * di * covariance.getSpecificVariance(j);
+        }
+      }
+    }
+    double traceM2 = 0;
+    for (int a = 0; a < k; a++) {
+      for (int f = 0; f < k; f++) {
+        traceM2 += m[a][f] * m[f][a];
+      }
+    }
+    return traceM2 + 2 * specificCross + specificSquare;
+  }
+
+}
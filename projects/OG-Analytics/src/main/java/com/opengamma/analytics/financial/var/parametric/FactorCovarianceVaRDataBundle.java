@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.var.parametric;
+
+import org.apache.commons.lang.ObjectUtils;
+
+import com.opengamma.analytics.financial.covariance.FactorCovarianceMatrix;
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * The deltas and (optionally) gammas of a portfolio with respect to a set of risk factors whose returns have a covariance matrix in
+ * factor form. This is the equivalent of {@link ParametricVaRDataBundle} for large numbers of risk factors.
+ */
+public class FactorCovarianceVaRDataBundle {
+  private final DoubleMatrix1D _delta;
+  private final DoubleMatrix2D _gamma;
+  private final FactorCovarianceMatrix _covariance;
+
+  /**
+   * @param delta The deltas, not null
+   * @param covariance The covariance matrix of the risk factor returns, not null
+   */
+  public FactorCovarianceVaRDataBundle(final DoubleMatrix1D delta, final FactorCovarianceMatrix covariance) {
+    this(delta, null, covariance);
+  }
+
+  /**
+   * @param delta The deltas, not null
+   * @param gamma The gammas, a symmetric matrix. May be null if there is no second-order risk
+   * @param covariance The covariance matrix of the risk factor returns, not null
+   */
+  public FactorCovarianceVaRDataBundle(final DoubleMatrix1D delta, final DoubleMatrix2D gamma, final FactorCovarianceMatrix covariance) {
+    ArgumentChecker.notNull(delta, "delta");
+    ArgumentChecker.notNull(covariance, "covariance");
+    final int n = covariance.getNumberOfRiskFactors();
+    ArgumentChecker.isTrue(delta.getNumberOfElements() == n, "have {} deltas for {} risk factors", delta.getNumberOfElements(), n);
+    if (gamma != null) {
+      ArgumentChecker.isTrue(gamma.getNumberOfRows() == n && gamma.getNumberOfColumns() == n, "gamma matrix must be {} by {}", n, n);
+    }
+    _delta = delta;
+    _gamma = gamma;
+    _covariance = covariance;
+  }
+
+  public DoubleMatrix1D getDelta() {
+    return _delta;
+  }
+
+  public DoubleMatrix2D getGamma() {
+    return _gamma;
+  }
+
+  public FactorCovarianceMatrix getCovariance() {
+    return _covariance;
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + _covariance.hashCode();
+    result = prime * result + _delta.hashCode();
+    result = prime * result + ((_gamma == null) ? 0 : _gamma.hashCode());
+    return result;
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null) {
+      return false;
+    }
+    if (getClass() != obj.getClass()) {
+      return false;
+    }
+    final FactorCovarianceVaRDataBundle other = (FactorCovarianceVaRDataBundle) obj;
+    if (!ObjectUtils.equals(_covariance, other._covariance)) {
+      return false;
+    }
+    if (!ObjectUtils.equals(_delta, other._delta)) {
+      return false;
+    }
+    return ObjectUtils.equals(_gamma, other._gamma);
+  }
+
+}
@@ -6,8 +6,8 @@
 package com.opengamma.analytics.math.fft;
 
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang.Validate;
 
@@ -19,8 +19,7 @@ import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
  * Class wrapping the 1D FFT methods of the JTransforms library.
  */
 public class JTransformsWrapper {
-  // TODO this needs to be changed
-  private static final Map<Integer, DoubleFFT_1D> CACHE_1D = new HashMap<Integer, DoubleFFT_1D>();
+  private static final ConcurrentMap<Integer, DoubleFFT_1D> CACHE_1D = new ConcurrentHashMap<Integer, DoubleFFT_1D>();
 
   /**
    * The forward discrete Fourier transform. *Note:* In this definition $-i$
@@ -44,15 +43,23 @@ public class JTransformsWrapper {
     Validate.notNull(z, "array of complex number");
     int n = z.length;
     double[] a = packFull(z);
-    DoubleFFT_1D fft = CACHE_1D.get(n);
-    if (fft == null) {
-      fft = new DoubleFFT_1D(n);
-      CACHE_1D.put(n, fft);
-    }
+    final DoubleFFT_1D fft = getFFT(n);
     fft.complexForward(a);
     return unpackFull(a);
   }
 
+  /**
+   * The forward discrete Fourier transform, computed in place on an array of interleaved real and imaginary parts
+   * (i.e. $z_j = a_{2j} + i a_{2j+1}$). No object is created for the complex values. The transform is the same as
+   * {@link #transform1DComplex(ComplexNumber[])}.
+   * @param a Array of 2N doubles holding N complex values; overwritten by the transform
+   */
+  public static void transform1DComplexInPlace(final double[] a) {
+    Validate.notNull(a, "array of interleaved complex values");
+    Validate.isTrue(a.length > 0 && a.length % 2 == 0, "need an even, non-zero number of entries");
+    getFFT(a.length / 2).complexForward(a);
+  }
+
   /**
    * The inverse (backward) discrete Fourier transform. *Note:* In this
    * definition $i$ appears in the exponential rather than $-i$.
@@ -76,11 +83,7 @@ public class JTransformsWrapper {
     Validate.notNull(z, "array of complex number");
     final int n = z.length;
     double[] a = packFull(z);
-    DoubleFFT_1D fft = CACHE_1D.get(n);
-    if (fft == null) {
-      fft = new DoubleFFT_1D(n);
-      CACHE_1D.put(n, fft);
-    }
+    final DoubleFFT_1D fft = getFFT(n);
     fft.complexInverse(a, scale);
     return unpackFull(a);
   }
@@ -111,11 +114,7 @@ public class JTransformsWrapper {
     final int n = h.length;
     Validate.isTrue(n > 0);
     final double[] a = Arrays.copyOf(h, 2 * n);
-    DoubleFFT_1D fft = CACHE_1D.get(n);
-    if (fft == null) {
-      fft = new DoubleFFT_1D(n);
-      CACHE_1D.put(n, fft);
-    }
+    final DoubleFFT_1D fft = getFFT(n);
     fft.realForwardFull(a);
     return unpackFull(a);
   }
@@ -147,11 +146,7 @@ public class JTransformsWrapper {
     final int n = x.length;
     Validate.isTrue(n > 0);
     final double[] a = Arrays.copyOf(x, 2 * n);
-    DoubleFFT_1D fft = CACHE_1D.get(n);
-    if (fft == null) {
-      fft = new DoubleFFT_1D(n);
-      CACHE_1D.put(n, fft);
-    }
+    final DoubleFFT_1D fft = getFFT(n);
     fft.realInverseFull(a, scale);
     return unpackFull(a);
   }
@@ -177,11 +172,7 @@ public class JTransformsWrapper {
     final int n = h.length;
     Validate.isTrue(n > 0);
     final double[] a = Arrays.copyOf(h, n);
-    DoubleFFT_1D fft = CACHE_1D.get(n);
-    if (fft == null) {
-      fft = new DoubleFFT_1D(n);
-      CACHE_1D.put(n, fft);
-    }
+    final DoubleFFT_1D fft = getFFT(n);
     fft.realForward(a);
     return unpack(a);
   }
@@ -209,13 +200,21 @@ public class JTransformsWrapper {
     final int n = x.length;
     Validate.isTrue(n > 0);
     final double[] a = Arrays.copyOf(x, n);
+    final DoubleFFT_1D fft = getFFT(n);
+    fft.realInverse(a, scale);
+    return unpack(a);
+  }
+
+  private static DoubleFFT_1D getFFT(final int n) {
     DoubleFFT_1D fft = CACHE_1D.get(n);
     if (fft == null) {
       fft = new DoubleFFT_1D(n);
-      CACHE_1D.put(n, fft);
+      final DoubleFFT_1D previous = CACHE_1D.putIfAbsent(n, fft);
+      if (previous != null) {
+        fft = previous;
+      }
     }
-    fft.realInverse(a, scale);
-    return unpack(a);
+    return fft;
   }
 
   private static double[] packFull(final ComplexNumber[] z) {
@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.function;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * A real function of one real variable that is evaluated at many points in one call, avoiding boxing each argument and value and allowing
+ * anything that does not depend on the argument to be calculated once. For example, an integrand can be evaluated at every abscissa of a
+ * quadrature rule at once (see
+ * {@link com.opengamma.analytics.math.integration.GaussianQuadratureIntegrator1D#integrate(ArrayFunction1D, double, double)}).
+ */
+public abstract class ArrayFunction1D extends Function1D<double[], double[]> {
+
+  /**
+   * @param x The points at which to evaluate the function, not null. Implementations must not modify this array
+   * @return The values of the function, in a new array of the same length
+   */
+  @Override
+  public abstract double[] evaluate(double[] x);
+
+  /**
+   * @param function A function, not null
+   * @return An array function that evaluates the function at each point in turn
+   */
+  public static ArrayFunction1D from(final Function1D<Double, Double> function) {
+    Validate.notNull(function, "function");
+    return new ArrayFunction1D() {
+
+      @Override
+      public double[] evaluate(final double[] x) {
+        final double[] res = new double[x.length];
+        for (int i = 0; i < x.length; i++) {
+          res[i] = function.evaluate(x[i]);
+        }
+        return res;
+      }
+
+    };
+  }
+
+}
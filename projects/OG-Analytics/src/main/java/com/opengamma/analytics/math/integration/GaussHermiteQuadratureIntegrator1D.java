@@ -41,6 +41,26 @@ public class GaussHermiteQuadratureIntegrator1D extends GaussianQuadratureIntegr
     return LIMITS;
   }
 
+  /**
+   * {@inheritDoc}
+   * The weights are $w_i e^{x_i^2}$.
+   * @throws UnsupportedOperationException If the lower limit is not $-\infty$ or the upper limit is not $\infty$
+   */
+  @Override
+  public GaussianQuadratureData getQuadratureData(final double lower, final double upper) {
+    if (lower != LIMITS[0] || upper != LIMITS[1]) {
+      throw new UnsupportedOperationException("Limits for this integration method are +/-infinity");
+    }
+    final GaussianQuadratureData quadrature = getCachedQuadratureData();
+    final double[] x = quadrature.getAbscissas();
+    final double[] w = quadrature.getWeights();
+    final double[] weights = new double[x.length];
+    for (int i = 0; i < x.length; i++) {
+      weights[i] = w[i] * Math.exp(x[i] * x[i]);
+    }
+    return new GaussianQuadratureData(x.clone(), weights);
+  }
+
   /**
    * {@inheritDoc}
    * The function $f(x)$ that is to be integrated is transformed into a form
@@ -70,4 +70,17 @@ public class GaussHermiteWeightAndAbscissaFunction implements QuadratureWeightAn
     }
     return 2 * previousRoot - x[i - 2];
   }
+
+  @Override
+  public int hashCode() {
+    return getClass().hashCode();
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    return obj != null && getClass() == obj.getClass();
+  }
 }
@@ -113,4 +113,34 @@ public class GaussJacobiWeightAndAbscissaFunction implements QuadratureWeightAnd
     }
     return 3. * x[i - 1] - 3. * x[i - 2] + x[i - 3];
   }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    long temp;
+    temp = Double.doubleToLongBits(_alpha);
+    result = prime * result + (int) (temp ^ (temp >>> 32));
+    temp = Double.doubleToLongBits(_beta);
+    result = prime * result + (int) (temp ^ (temp >>> 32));
+    return result;
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null) {
+      return false;
+    }
+    if (getClass() != obj.getClass()) {
+      return false;
+    }
+    final GaussJacobiWeightAndAbscissaFunction other = (GaussJacobiWeightAndAbscissaFunction) obj;
+    if (Double.doubleToLongBits(_alpha) != Double.doubleToLongBits(other._alpha)) {
+      return false;
+    }
+    return Double.doubleToLongBits(_beta) == Double.doubleToLongBits(other._beta);
+  }
 }
@@ -80,4 +80,28 @@ public class GaussLaguerreWeightAndAbscissaFunction implements QuadratureWeightA
     final int j = i - 1;
     return previousRoot + ((1 + 2.55 * j) / 1.9 / j + 1.26 * j * _alpha / (1 + 3.5 * j)) * (previousRoot - x[i - 2]) / (1 + 0.3 * _alpha);
   }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    final long temp = Double.doubleToLongBits(_alpha);
+    result = prime * result + (int) (temp ^ (temp >>> 32));
+    return result;
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null) {
+      return false;
+    }
+    if (getClass() != obj.getClass()) {
+      return false;
+    }
+    final GaussLaguerreWeightAndAbscissaFunction other = (GaussLaguerreWeightAndAbscissaFunction) obj;
+    return Double.doubleToLongBits(_alpha) == Double.doubleToLongBits(other._alpha);
+  }
 }
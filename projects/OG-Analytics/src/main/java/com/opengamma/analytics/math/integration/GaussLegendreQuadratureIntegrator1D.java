@@ -36,6 +36,26 @@ public class GaussLegendreQuadratureIntegrator1D extends GaussianQuadratureInteg
     return LIMITS;
   }
 
+  /**
+   * {@inheritDoc}
+   * The abscissas are $\frac{b - a}{2} x_i + \frac{a + b}{2}$ and the weights $\frac{b - a}{2} w_i$.
+   */
+  @Override
+  public GaussianQuadratureData getQuadratureData(final double lower, final double upper) {
+    final GaussianQuadratureData quadrature = getCachedQuadratureData();
+    final double[] x = quadrature.getAbscissas();
+    final double[] w = quadrature.getWeights();
+    final double m = (upper - lower) / 2;
+    final double c = (upper + lower) / 2;
+    final double[] abscissas = new double[x.length];
+    final double[] weights = new double[x.length];
+    for (int i = 0; i < x.length; i++) {
+      abscissas[i] = m * x[i] + c;
+      weights[i] = m * w[i];
+    }
+    return new GaussianQuadratureData(abscissas, weights);
+  }
+
   /**
    * {@inheritDoc}
    * To evaluate an integral over $[a, b]$, a change of interval must be performed:
@@ -56,4 +56,17 @@ public class GaussLegendreWeightAndAbscissaFunction implements QuadratureWeightA
   private double getInitialRootGuess(final int i, final int n) {
     return Math.cos(Math.PI * (i + 0.75) / (n + 0.5));
   }
+
+  @Override
+  public int hashCode() {
+    return getClass().hashCode();
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    return obj != null && getClass() == obj.getClass();
+  }
 }
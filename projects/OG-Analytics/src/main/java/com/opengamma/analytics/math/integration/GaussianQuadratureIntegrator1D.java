@@ -8,6 +8,7 @@ package com.opengamma.analytics.math.integration;
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.Validate;
 
+import com.opengamma.analytics.math.function.ArrayFunction1D;
 import com.opengamma.analytics.math.function.Function1D;
 
 /**
@@ -30,6 +31,7 @@ import com.opengamma.analytics.math.function.Function1D;
 public abstract class GaussianQuadratureIntegrator1D extends Integrator1D<Double, Double> {
   private final int _n;
   private final QuadratureWeightAndAbscissaFunction _generator;
+  private final GaussianQuadratureData _quadrature;
 
   /**
    * @param n The number of sample points to be used in the integration, not negative or zero
@@ -40,6 +42,7 @@ public abstract class GaussianQuadratureIntegrator1D extends Integrator1D<Double
     Validate.notNull(generator, "generating function");
     _n = n;
     _generator = generator;
+    _quadrature = QuadratureRuleCache.getRule(generator, n);
   }
 
   /**
@@ -51,10 +54,9 @@ public abstract class GaussianQuadratureIntegrator1D extends Integrator1D<Double
     Validate.notNull(lower);
     Validate.notNull(upper);
     final Function1D<Double, Double> integral = getIntegralFunction(function, lower, upper);
-    final GaussianQuadratureData quadrature = _generator.generate(_n);
-    final double[] abscissas = quadrature.getAbscissas();
+    final double[] abscissas = _quadrature.getAbscissas();
     final int n = abscissas.length;
-    final double[] weights = quadrature.getWeights();
+    final double[] weights = _quadrature.getWeights();
     double sum = 0;
     for (int i = 0; i < n; i++) {
       sum += integral.evaluate(abscissas[i]) * weights[i];
@@ -62,6 +64,49 @@ public abstract class GaussianQuadratureIntegrator1D extends Integrator1D<Double
     return sum;
   }
 
+  /**
+   * Integrates a function that is evaluated at all of the abscissas in one call.
+   * @param function The function to be integrated, not null
+   * @param lower The lower integration limit
+   * @param upper The upper integration limit
+   * @return The result of the integration
+   */
+  public double integrate(final ArrayFunction1D function, final double lower, final double upper) {
+    Validate.notNull(function, "function");
+    final GaussianQuadratureData quadrature = getQuadratureData(lower, upper);
+    final double[] weights = quadrature.getWeights();
+    final double[] values = function.evaluate(quadrature.getAbscissas());
+    Validate.isTrue(values.length == weights.length, "function returned " + values.length + " values for " + weights.length + " points");
+    double sum = 0;
+    for (int i = 0; i < weights.length; i++) {
+      sum += values[i] * weights[i];
+    }
+    return sum;
+  }
+
+  /**
+   * @return A copy of the weights and abscissas for the limits given by {@link #getLimits()}
+   */
+  public GaussianQuadratureData getQuadratureData() {
+    return new GaussianQuadratureData(_quadrature.getAbscissas().clone(), _quadrature.getWeights().clone());
+  }
+
+  /**
+   * @return The shared cached weights and abscissas, which must not be modified
+   */
+  GaussianQuadratureData getCachedQuadratureData() {
+    return _quadrature;
+  }
+
+  /**
+   * Returns the weights and abscissas for integration between two limits, with any change of interval and weighting function included,
+   * i.e. $\int_a^b f(x)dx \approx \sum_i w_i f(x_i)$. If the same limits are used many times this can be calculated once and used directly.
+   * @param lower The lower integration limit
+   * @param upper The upper integration limit
+   * @return The weights and abscissas
+   */
+  public abstract GaussianQuadratureData getQuadratureData(final double lower, final double upper);
+
   /**
    * @return The lower and upper limits for which the quadrature is valid
    */
@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.integration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * A thread-safe cache of Gaussian quadrature rules, keyed by the generating function (e.g. Gauss-Laguerre with a particular $\alpha$) and
+ * the number of points. Generating a rule means finding the roots of an orthogonal polynomial, which is far more expensive than using it.
+ * <p>
+ * The generating functions in this package compare by value, so the key is the type of rule, its parameters and the number of points.
+ * The cache holds at most {@link #MAXIMUM_SIZE} rules, the least recently used being evicted first, so that callers that build rules
+ * from many different parameters cannot grow it without limit.
+ * <p>
+ * The cached rules are shared and must not be modified; {@link GaussianQuadratureIntegrator1D#getQuadratureData()} returns a copy.
+ */
+final class QuadratureRuleCache {
+  /** The maximum number of cached rules */
+  static final int MAXIMUM_SIZE = 256;
+  private static final RuleMap s_rules = new RuleMap();
+
+  private QuadratureRuleCache() {
+  }
+
+  /**
+   * Returns the rule from the cache, generating it if it is not there. Generating functions that do not implement equals() and hashCode()
+   * are cached by identity.
+   * @param generator The generator of weights and abscissas, not null
+   * @param n The number of points, greater than zero
+   * @return The weights and abscissas, which must not be modified
+   */
+  static GaussianQuadratureData getRule(final QuadratureWeightAndAbscissaFunction generator, final int n) {
+    Validate.notNull(generator, "generator");
+    Validate.isTrue(n > 0, "number of points must be greater than zero");
+    final RuleKey key = new RuleKey(generator, n);
+    synchronized (s_rules) {
+      final GaussianQuadratureData rule = s_rules.get(key);
+      if (rule != null) {
+        return rule;
+      }
+    }
+    // generated outside the lock; two threads may both generate the same rule, which is harmless
+    final GaussianQuadratureData generated = generator.generate(n);
+    synchronized (s_rules) {
+      final GaussianQuadratureData existing = s_rules.get(key);
+      if (existing != null) {
+        return existing;
+      }
+      s_rules.put(key, generated);
+    }
+    return generated;
+  }
+
+  /**
+   * @return The number of cached rules
+   */
+  static int size() {
+    synchronized (s_rules) {
+      return s_rules.size();
+    }
+  }
+
+  /**
+   * Least recently used map of the rules, guarded by its own monitor.
+   */
+  private static final class RuleMap extends LinkedHashMap<RuleKey, GaussianQuadratureData> {
+    private static final long serialVersionUID = 1L;
+
+    RuleMap() {
+      super(16, 0.75f, true);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<RuleKey, GaussianQuadratureData> eldest) {
+      return size() > MAXIMUM_SIZE;
+    }
+  }
+
+  private static final class RuleKey {
+    private final QuadratureWeightAndAbscissaFunction _generator;
+    private final int _n;
+
+    RuleKey(final QuadratureWeightAndAbscissaFunction generator, final int n) {
+      _generator = generator;
+      _n = n;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * _generator.hashCode() + _n;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof RuleKey)) {
+        return false;
+      }
+      final RuleKey other = (RuleKey) obj;
+      return _n == other._n && _generator.equals(other._generator);
+    }
+  }
+
+}
@@ -12,6 +12,7 @@ import org.apache.commons.math.linear.RealMatrix;
 
 import com.opengamma.analytics.math.MathException;
 import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.StridedDoubleMatrix2D;
 import com.opengamma.analytics.math.util.wrapper.CommonsMathWrapper;
 
 /**
@@ -26,7 +27,20 @@ public class CholeskyDecompositionCommons extends Decomposition<CholeskyDecompos
   @Override
   public CholeskyDecompositionResult evaluate(final DoubleMatrix2D x) {
     Validate.notNull(x);
-    final RealMatrix temp = CommonsMathWrapper.wrap(x);
+    return decompose(CommonsMathWrapper.wrap(x));
+  }
+
+  /**
+   * Decomposes a strided matrix, which is wrapped in place rather than copied into an array of arrays.
+   * @param x The matrix, not null
+   * @return The Cholesky decomposition
+   */
+  public CholeskyDecompositionResult evaluate(final StridedDoubleMatrix2D x) {
+    Validate.notNull(x);
+    return decompose(CommonsMathWrapper.wrap(x));
+  }
+
+  private CholeskyDecompositionResult decompose(final RealMatrix temp) {
     CholeskyDecomposition cholesky;
     try {
       cholesky = new CholeskyDecompositionImpl(temp);
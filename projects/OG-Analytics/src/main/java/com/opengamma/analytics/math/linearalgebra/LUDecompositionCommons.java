@@ -11,6 +11,7 @@ import org.apache.commons.math.linear.LUDecompositionImpl;
 import org.apache.commons.math.linear.RealMatrix;
 
 import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.StridedDoubleMatrix2D;
 import com.opengamma.analytics.math.util.wrapper.CommonsMathWrapper;
 
 /**
@@ -25,7 +26,20 @@ public class LUDecompositionCommons extends Decomposition<LUDecompositionResult>
   @Override
   public LUDecompositionResult evaluate(final DoubleMatrix2D x) {
     Validate.notNull(x);
-    final RealMatrix temp = CommonsMathWrapper.wrap(x);
+    return decompose(CommonsMathWrapper.wrap(x));
+  }
+
+  /**
+   * Decomposes a strided matrix, which is wrapped in place rather than copied into an array of arrays.
+   * @param x The matrix, not null
+   * @return The LU decomposition
+   */
+  public LUDecompositionResult evaluate(final StridedDoubleMatrix2D x) {
+    Validate.notNull(x);
+    return decompose(CommonsMathWrapper.wrap(x));
+  }
+
+  private LUDecompositionResult decompose(final RealMatrix temp) {
     final LUDecomposition lu = new LUDecompositionImpl(temp);
     return new LUDecompositionCommonsResult(lu);
   }
@@ -7,6 +7,7 @@ package com.opengamma.analytics.math.linearalgebra;
 
 import com.opengamma.analytics.math.MathException;
 import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.StridedDoubleMatrix2D;
 
 /**
  * 
@@ -28,4 +29,20 @@ public abstract class MatrixValidate {
       }
     }
   }
+
+  public static void notNaNOrInfinite(final StridedDoubleMatrix2D x) {
+    final int rows = x.getNumberOfRows();
+    final int cols = x.getNumberOfColumns();
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < cols; j++) {
+        final double temp = x.get(i, j);
+        if (Double.isNaN(temp)) {
+          throw new MathException("Matrix contains a NaN");
+        }
+        if (Double.isInfinite(temp)) {
+          throw new MathException("Matrix contains an infinite");
+        }
+      }
+    }
+  }
 }
@@ -11,6 +11,7 @@ import org.apache.commons.math.linear.QRDecompositionImpl;
 import org.apache.commons.math.linear.RealMatrix;
 
 import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.StridedDoubleMatrix2D;
 import com.opengamma.analytics.math.util.wrapper.CommonsMathWrapper;
 
 /**
@@ -25,7 +26,20 @@ public class QRDecompositionCommons extends Decomposition<QRDecompositionResult>
   @Override
   public QRDecompositionResult evaluate(final DoubleMatrix2D x) {
     Validate.notNull(x);
-    final RealMatrix temp = CommonsMathWrapper.wrap(x);
+    return decompose(CommonsMathWrapper.wrap(x));
+  }
+
+  /**
+   * Decomposes a strided matrix, which is wrapped in place rather than copied into an array of arrays.
+   * @param x The matrix, not null
+   * @return The QR decomposition
+   */
+  public QRDecompositionResult evaluate(final StridedDoubleMatrix2D x) {
+    Validate.notNull(x);
+    return decompose(CommonsMathWrapper.wrap(x));
+  }
+
+  private QRDecompositionResult decompose(final RealMatrix temp) {
     final QRDecomposition qr = new QRDecompositionImpl(temp);
     return new QRDecompositionCommonsResult(qr);
   }
@@ -10,6 +10,7 @@ import org.apache.commons.lang.Validate;
 import cern.colt.matrix.linalg.SingularValueDecomposition;
 
 import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.StridedDoubleMatrix2D;
 import com.opengamma.analytics.math.util.wrapper.ColtMathWrapper;
 
 /**
@@ -22,7 +23,21 @@ public class SVDecompositionColt extends Decomposition<SVDecompositionResult> {
   public SVDecompositionResult evaluate(final DoubleMatrix2D x) {
     Validate.notNull(x);
     MatrixValidate.notNaNOrInfinite(x);
-    final cern.colt.matrix.DoubleMatrix2D coltMatrix = ColtMathWrapper.wrap(x);
+    return decompose(ColtMathWrapper.wrap(x));
+  }
+
+  /**
+   * Decomposes a strided matrix, which is wrapped in place rather than copied into an array of arrays.
+   * @param x The matrix, not null
+   * @return The singular value decomposition
+   */
+  public SVDecompositionResult evaluate(final StridedDoubleMatrix2D x) {
+    Validate.notNull(x);
+    MatrixValidate.notNaNOrInfinite(x);
+    return decompose(ColtMathWrapper.wrap(x));
+  }
+
+  private SVDecompositionResult decompose(final cern.colt.matrix.DoubleMatrix2D coltMatrix) {
     final SingularValueDecomposition svd = new SingularValueDecomposition(coltMatrix);
     return new SVDecompositionColtResult(svd);
   }
@@ -11,6 +11,7 @@ import org.apache.commons.math.linear.SingularValueDecomposition;
 import org.apache.commons.math.linear.SingularValueDecompositionImpl;
 
 import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.StridedDoubleMatrix2D;
 import com.opengamma.analytics.math.util.wrapper.CommonsMathWrapper;
 
 /**
@@ -26,7 +27,21 @@ public class SVDecompositionCommons extends Decomposition<SVDecompositionResult>
   public SVDecompositionResult evaluate(final DoubleMatrix2D x) {
     Validate.notNull(x);
     MatrixValidate.notNaNOrInfinite(x);
-    final RealMatrix commonsMatrix = CommonsMathWrapper.wrap(x);
+    return decompose(CommonsMathWrapper.wrap(x));
+  }
+
+  /**
+   * Decomposes a strided matrix, which is wrapped in place rather than copied into an array of arrays.
+   * @param x The matrix, not null
+   * @return The singular value decomposition
+   */
+  public SVDecompositionResult evaluate(final StridedDoubleMatrix2D x) {
+    Validate.notNull(x);
+    MatrixValidate.notNaNOrInfinite(x);
+    return decompose(CommonsMathWrapper.wrap(x));
+  }
+
+  private SVDecompositionResult decompose(final RealMatrix commonsMatrix) {
     final SingularValueDecomposition svd = new SingularValueDecompositionImpl(commonsMatrix);
     return new SVDecompositionCommonsResult(svd);
   }
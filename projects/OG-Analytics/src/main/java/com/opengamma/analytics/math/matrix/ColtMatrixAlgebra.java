@@ -12,6 +12,8 @@ import cern.colt.matrix.DoubleFactory1D;
 import cern.colt.matrix.DoubleFactory2D;
 import cern.colt.matrix.linalg.Algebra;
 
+import com.opengamma.analytics.math.util.wrapper.ColtMathWrapper;
+
 /**
  * Provides matrix algebra by using the <a href = "http://acs.lbl.gov/software/colt/api/cern/colt/matrix/linalg/Algebra.html">Colt matrix algebra library</a>. 
  */
@@ -24,8 +26,8 @@ public class ColtMatrixAlgebra extends MatrixAlgebra {
   @Override
   public double getCondition(final Matrix<?> m) {
     Validate.notNull(m, "m");
-    if (m instanceof DoubleMatrix2D) {
-      return ALGEBRA.cond(DoubleFactory2D.dense.make(((DoubleMatrix2D) m).getData()));
+    if (is2D(m)) {
+      return ALGEBRA.cond(wrap2D(m));
     }
     throw new IllegalArgumentException("Can only find condition of DoubleMatrix2D; have " + m.getClass());
   }
@@ -36,8 +38,8 @@ public class ColtMatrixAlgebra extends MatrixAlgebra {
   @Override
   public double getDeterminant(final Matrix<?> m) {
     Validate.notNull(m, "m");
-    if (m instanceof DoubleMatrix2D) {
-      return ALGEBRA.det(DoubleFactory2D.dense.make(((DoubleMatrix2D) m).getData()));
+    if (is2D(m)) {
+      return ALGEBRA.det(wrap2D(m));
     }
     throw new IllegalArgumentException("Can only find determinant of DoubleMatrix2D; have " + m.getClass());
   }
@@ -48,8 +50,8 @@ public class ColtMatrixAlgebra extends MatrixAlgebra {
   @Override
   public DoubleMatrix2D getInverse(final Matrix<?> m) {
     Validate.notNull(m, "m");
-    if (m instanceof DoubleMatrix2D) {
-      return new DoubleMatrix2D(ALGEBRA.inverse(DoubleFactory2D.dense.make(((DoubleMatrix2D) m).getData())).toArray());
+    if (is2D(m)) {
+      return new DoubleMatrix2D(ALGEBRA.inverse(wrap2D(m)).toArray());
     }
     throw new IllegalArgumentException("Can only find inverse of DoubleMatrix2D; have " + m.getClass());
   }
@@ -82,12 +84,12 @@ public class ColtMatrixAlgebra extends MatrixAlgebra {
     if (m1 instanceof DoubleMatrix1D) {
       return new OGMatrixAlgebra().multiply(m1, m2);
     }
-    if (m1 instanceof DoubleMatrix2D) {
-      final DoubleMatrix2D x = (DoubleMatrix2D) m1;
+    if (is2D(m1)) {
+      final cern.colt.matrix.DoubleMatrix2D x = wrap2D(m1);
       if (m2 instanceof DoubleMatrix1D) {
-        return new DoubleMatrix1D(ALGEBRA.mult(DoubleFactory2D.dense.make(x.getData()), DoubleFactory1D.dense.make(((DoubleMatrix1D) m2).getData())).toArray());
-      } else if (m2 instanceof DoubleMatrix2D) {
-        return new DoubleMatrix2D(ALGEBRA.mult(DoubleFactory2D.dense.make(x.getData()), DoubleFactory2D.dense.make(((DoubleMatrix2D) m2).getData())).toArray());
+        return new DoubleMatrix1D(ALGEBRA.mult(x, DoubleFactory1D.dense.make(((DoubleMatrix1D) m2).getData())).toArray());
+      } else if (is2D(m2)) {
+        return new DoubleMatrix2D(ALGEBRA.mult(x, wrap2D(m2)).toArray());
       }
       throw new IllegalArgumentException("Can only have 1D or 2D matrix as second argument");
     }
@@ -117,8 +119,8 @@ public class ColtMatrixAlgebra extends MatrixAlgebra {
     Validate.notNull(m, "m");
     if (m instanceof DoubleMatrix1D) {
       return ALGEBRA.norm1(DoubleFactory1D.dense.make(((DoubleMatrix1D) m).getData()));
-    } else if (m instanceof DoubleMatrix2D) {
-      return ALGEBRA.norm1(DoubleFactory2D.dense.make(((DoubleMatrix2D) m).getData()));
+    } else if (is2D(m)) {
+      return ALGEBRA.norm1(wrap2D(m));
     }
     throw new IllegalArgumentException("Can only find norm1 of DoubleMatrix1D or DoubleMatrix2D; have " + m.getClass());
   }
@@ -131,8 +133,8 @@ public class ColtMatrixAlgebra extends MatrixAlgebra {
     Validate.notNull(m, "m");
     if (m instanceof DoubleMatrix1D) {
       return Math.sqrt(ALGEBRA.norm2(DoubleFactory1D.dense.make(((DoubleMatrix1D) m).getData())));
-    } else if (m instanceof DoubleMatrix2D) {
-      return ALGEBRA.norm2(DoubleFactory2D.dense.make(((DoubleMatrix2D) m).getData()));
+    } else if (is2D(m)) {
+      return ALGEBRA.norm2(wrap2D(m));
     }
     throw new IllegalArgumentException("Can only find norm2 of DoubleMatrix1D or DoubleMatrix2D; have " + m.getClass());
   }
@@ -145,8 +147,8 @@ public class ColtMatrixAlgebra extends MatrixAlgebra {
     Validate.notNull(m, "m");
     if (m instanceof DoubleMatrix1D) {
       return ALGEBRA.normInfinity(DoubleFactory1D.dense.make(((DoubleMatrix1D) m).getData()));
-    } else if (m instanceof DoubleMatrix2D) {
-      return ALGEBRA.normInfinity(DoubleFactory2D.dense.make(((DoubleMatrix2D) m).getData()));
+    } else if (is2D(m)) {
+      return ALGEBRA.normInfinity(wrap2D(m));
     }
     throw new IllegalArgumentException("Can only find normInfinity of DoubleMatrix1D or DoubleMatrix2D; have " + m.getClass());
   }
@@ -157,8 +159,8 @@ public class ColtMatrixAlgebra extends MatrixAlgebra {
   @Override
   public DoubleMatrix2D getPower(final Matrix<?> m, final int p) {
     Validate.notNull(m, "m");
-    if (m instanceof DoubleMatrix2D) {
-      return new DoubleMatrix2D(ALGEBRA.pow(DoubleFactory2D.dense.make(((DoubleMatrix2D) m).getData()), p).toArray());
+    if (is2D(m)) {
+      return new DoubleMatrix2D(ALGEBRA.pow(wrap2D(m), p).toArray());
     }
     throw new IllegalArgumentException("Can only find transpose of DoubleMatrix2D; have " + m.getClass());
   }
@@ -178,8 +180,8 @@ public class ColtMatrixAlgebra extends MatrixAlgebra {
   @Override
   public double getTrace(final Matrix<?> m) {
     Validate.notNull(m, "m");
-    if (m instanceof DoubleMatrix2D) {
-      return ALGEBRA.trace(DoubleFactory2D.dense.make(((DoubleMatrix2D) m).getData()));
+    if (is2D(m)) {
+      return ALGEBRA.trace(wrap2D(m));
     }
     throw new IllegalArgumentException("Can only find trace of DoubleMatrix2D; have " + m.getClass());
   }
@@ -190,9 +192,24 @@ public class ColtMatrixAlgebra extends MatrixAlgebra {
   @Override
   public DoubleMatrix2D getTranspose(final Matrix<?> m) {
     Validate.notNull(m, "m");
-    if (m instanceof DoubleMatrix2D) {
-      return new DoubleMatrix2D(ALGEBRA.transpose(DoubleFactory2D.dense.make(((DoubleMatrix2D) m).getData())).toArray());
+    if (is2D(m)) {
+      return new DoubleMatrix2D(ALGEBRA.transpose(wrap2D(m)).toArray());
     }
     throw new IllegalArgumentException("Can only find transpose of DoubleMatrix2D; have " + m.getClass());
   }
+
+  private static boolean is2D(final Matrix<?> m) {
+    return m instanceof DoubleMatrix2D || m instanceof StridedDoubleMatrix2D;
+  }
+
+  /**
+   * A {@link StridedDoubleMatrix2D} is wrapped without copying
+   */
+  private static cern.colt.matrix.DoubleMatrix2D wrap2D(final Matrix<?> m) {
+    if (m instanceof StridedDoubleMatrix2D) {
+      return ColtMathWrapper.wrap((StridedDoubleMatrix2D) m);
+    }
+    return ColtMathWrapper.wrap((DoubleMatrix2D) m);
+  }
+
 }
@@ -30,8 +30,8 @@ public class CommonsMatrixAlgebra extends MatrixAlgebra {
   @Override
   public double getCondition(final Matrix<?> m) {
     Validate.notNull(m, "m");
-    if (m instanceof DoubleMatrix2D) {
-      final RealMatrix temp = CommonsMathWrapper.wrap((DoubleMatrix2D) m);
+    if (is2D(m)) {
+      final RealMatrix temp = wrap2D(m);
       final SingularValueDecomposition svd = new SingularValueDecompositionImpl(temp);
       return svd.getConditionNumber();
     }
@@ -44,8 +44,8 @@ public class CommonsMatrixAlgebra extends MatrixAlgebra {
   @Override
   public double getDeterminant(final Matrix<?> m) {
     Validate.notNull(m, "m");
-    if (m instanceof DoubleMatrix2D) {
-      final RealMatrix temp = CommonsMathWrapper.wrap((DoubleMatrix2D) m);
+    if (is2D(m)) {
+      final RealMatrix temp = wrap2D(m);
       final LUDecomposition lud = new LUDecompositionImpl(temp);
       return lud.getDeterminant();
     }
@@ -73,8 +73,8 @@ public class CommonsMatrixAlgebra extends MatrixAlgebra {
   @Override
   public DoubleMatrix2D getInverse(final Matrix<?> m) {
     Validate.notNull(m, "matrix was null");
-    if (m instanceof DoubleMatrix2D) {
-      final RealMatrix temp = CommonsMathWrapper.wrap((DoubleMatrix2D) m);
+    if (is2D(m)) {
+      final RealMatrix temp = wrap2D(m);
       final SingularValueDecomposition sv = new SingularValueDecompositionImpl(temp);
       final RealMatrix inv = sv.getSolver().getInverse();
       return CommonsMathWrapper.unwrap(inv);
@@ -91,8 +91,8 @@ public class CommonsMatrixAlgebra extends MatrixAlgebra {
     if (m instanceof DoubleMatrix1D) {
       final RealVector temp = CommonsMathWrapper.wrap((DoubleMatrix1D) m);
       return temp.getL1Norm();
-    } else if (m instanceof DoubleMatrix2D) {
-      final RealMatrix temp = CommonsMathWrapper.wrap((DoubleMatrix2D) m);
+    } else if (is2D(m)) {
+      final RealMatrix temp = wrap2D(m);
       // TODO find if commons implements this anywhere, so we are not doing it
       // by hand
       double max = 0.0;
@@ -114,8 +114,8 @@ public class CommonsMatrixAlgebra extends MatrixAlgebra {
     if (m instanceof DoubleMatrix1D) {
       final RealVector temp = CommonsMathWrapper.wrap((DoubleMatrix1D) m);
       return temp.getNorm();
-    } else if (m instanceof DoubleMatrix2D) {
-      final RealMatrix temp = CommonsMathWrapper.wrap((DoubleMatrix2D) m);
+    } else if (is2D(m)) {
+      final RealMatrix temp = wrap2D(m);
       final SingularValueDecomposition svd = new SingularValueDecompositionImpl(temp);
       return svd.getNorm();
     }
@@ -131,8 +131,8 @@ public class CommonsMatrixAlgebra extends MatrixAlgebra {
     if (m instanceof DoubleMatrix1D) {
       final RealVector temp = CommonsMathWrapper.wrap((DoubleMatrix1D) m);
       return temp.getLInfNorm();
-    } else if (m instanceof DoubleMatrix2D) {
-      final RealMatrix temp = CommonsMathWrapper.wrap((DoubleMatrix2D) m);
+    } else if (is2D(m)) {
+      final RealMatrix temp = wrap2D(m);
       //REVIEW Commons getNorm() is wrong - it returns the column norm
       // TODO find if commons implements this anywhere, so we are not doing it
       // by hand
@@ -178,8 +178,8 @@ public class CommonsMatrixAlgebra extends MatrixAlgebra {
    */
   @Override
   public DoubleMatrix2D getPower(final Matrix<?> m, final double p) {
-    if (m instanceof DoubleMatrix2D) {
-      final RealMatrix temp = CommonsMathWrapper.wrap((DoubleMatrix2D) m);
+    if (is2D(m)) {
+      final RealMatrix temp = wrap2D(m);
       final EigenDecomposition eigen = new EigenDecompositionImpl(temp, 0.0);
       final double[] rEigenValues = eigen.getRealEigenvalues();
       final double[] iEigenValues = eigen.getImagEigenvalues();
@@ -203,8 +203,8 @@ public class CommonsMatrixAlgebra extends MatrixAlgebra {
   @Override
   public double getTrace(final Matrix<?> m) {
     Validate.notNull(m, "m");
-    if (m instanceof DoubleMatrix2D) {
-      final RealMatrix temp = CommonsMathWrapper.wrap((DoubleMatrix2D) m);
+    if (is2D(m)) {
+      final RealMatrix temp = wrap2D(m);
       return temp.getTrace();
     }
     throw new IllegalArgumentException("Can only find trace of DoubleMatrix2D; have " + m.getClass());
@@ -216,8 +216,8 @@ public class CommonsMatrixAlgebra extends MatrixAlgebra {
   @Override
   public DoubleMatrix2D getTranspose(final Matrix<?> m) {
     Validate.notNull(m, "m");
-    if (m instanceof DoubleMatrix2D) {
-      final RealMatrix temp = CommonsMathWrapper.wrap((DoubleMatrix2D) m);
+    if (is2D(m)) {
+      final RealMatrix temp = wrap2D(m);
       return CommonsMathWrapper.unwrap(temp.transpose());
     }
     throw new IllegalArgumentException("Can only find transpose of DoubleMatrix2D; have " + m.getClass());
@@ -236,13 +236,13 @@ public class CommonsMatrixAlgebra extends MatrixAlgebra {
     Validate.notNull(m1, "m1");
     Validate.notNull(m2, "m2");
     Validate.isTrue(!(m1 instanceof DoubleMatrix1D), "Cannot have 1D matrix as first argument");
-    if (m1 instanceof DoubleMatrix2D) {
-      final RealMatrix t1 = CommonsMathWrapper.wrap((DoubleMatrix2D) m1);
+    if (is2D(m1)) {
+      final RealMatrix t1 = wrap2D(m1);
       RealMatrix t2;
       if (m2 instanceof DoubleMatrix1D) {
         t2 = CommonsMathWrapper.wrapAsMatrix((DoubleMatrix1D) m2);
-      } else if (m2 instanceof DoubleMatrix2D) {
-        t2 = CommonsMathWrapper.wrap((DoubleMatrix2D) m2);
+      } else if (is2D(m2)) {
+        t2 = wrap2D(m2);
       } else {
         throw new IllegalArgumentException("Can only have 1D or 2D matrix as second argument");
       }
@@ -251,4 +251,18 @@ public class CommonsMatrixAlgebra extends MatrixAlgebra {
     throw new IllegalArgumentException("Can only multiply 2D and 1D matrices");
   }
 
+  private static boolean is2D(final Matrix<?> m) {
+    return m instanceof DoubleMatrix2D || m instanceof StridedDoubleMatrix2D;
+  }
+
+  /**
+   * A {@link StridedDoubleMatrix2D} is wrapped without copying
+   */
+  private static RealMatrix wrap2D(final Matrix<?> m) {
+    if (m instanceof StridedDoubleMatrix2D) {
+      return CommonsMathWrapper.wrap((StridedDoubleMatrix2D) m);
+    }
+    return CommonsMathWrapper.wrap((DoubleMatrix2D) m);
+  }
+
 }
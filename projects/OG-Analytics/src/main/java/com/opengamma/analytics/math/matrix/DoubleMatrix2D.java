@@ -37,6 +37,19 @@ public class DoubleMatrix2D implements Matrix<Double> {
     _elements = _rows * _columns;
   }
 
+  /**
+   * Wraps the data without copying it, for results computed in this package that are not shared with anything else.
+   * @param rows Number of rows
+   * @param columns Number of columns
+   * @param data The data, rows by columns, not copied
+   */
+  DoubleMatrix2D(final int rows, final int columns, final double[][] data) {
+    _rows = rows;
+    _columns = columns;
+    _elements = rows * columns;
+    _data = data;
+  }
+
   // REVIEW could do with a constructor that does NOT copy the data
   /**
    * @param data The data, not null. The data is expected in row-column form.
@@ -5,14 +5,65 @@
  */
 package com.opengamma.analytics.math.matrix;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.apache.commons.lang.NotImplementedException;
 import org.apache.commons.lang.Validate;
 
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.NamedThreadPoolFactory;
+
 /**
  * An absolutely minimal implementation of matrix algebra - only various multiplications covered. For more advanced stuff (e.g. calculating the inverse) use {@link ColtMatrixAlgebra} or
  * {@link CommonsMatrixAlgebra}
+ * <p>
+ * Matrix-matrix products are cache blocked and, above about 128 x 128 x 128, split into bands of rows that are computed in parallel. Each element of
+ * the product is still summed in order of the inner index, so the result does not depend on the blocking or the number of threads.
+ * The thread pool is created on the first parallel product; {@link #shutdown()} releases its threads.
+ * <p>
+ * {@link StridedDoubleMatrix2D} is read in place; the results of all operations are plain {@link DoubleMatrix2D}.
  */
 public class OGMatrixAlgebra extends MatrixAlgebra {
+  /** Rows of the second matrix in a block */
+  private static final int BLOCK_ROWS = 128;
+  /** Columns of the second matrix in a block */
+  private static final int BLOCK_COLUMNS = 256;
+  /** Rows of the result updated together */
+  private static final int TILE = 4;
+  /** The number of multiplications above which the product is done in parallel */
+  private static final long PARALLEL_THRESHOLD = 1L << 21;
+  private static final int N_THREADS = Runtime.getRuntime().availableProcessors();
+  private static ExecutorService s_executor;
+  /** The block of the second matrix and the rows of the result used by strided products, allocated once per thread */
+  private static final ThreadLocal<double[][][]> STRIDED_BUFFERS = new ThreadLocal<double[][][]>() {
+    @Override
+    protected double[][][] initialValue() {
+      return new double[][][] {new double[BLOCK_ROWS][BLOCK_COLUMNS], new double[TILE][BLOCK_COLUMNS] };
+    }
+  };
+
+  /**
+   * Shuts down the thread pool used for parallel products. A later parallel product starts a new pool.
+   */
+  public static synchronized void shutdown() {
+    if (s_executor != null) {
+      s_executor.shutdown();
+      s_executor = null;
+    }
+  }
+
+  private static synchronized ExecutorService getExecutor() {
+    if (s_executor == null) {
+      s_executor = Executors.newFixedThreadPool(N_THREADS, new NamedThreadPoolFactory("OGMatrixAlgebra", true));
+    }
+    return s_executor;
+  }
 
   /**
    * {@inheritDoc}
@@ -141,6 +192,15 @@ public class OGMatrixAlgebra extends MatrixAlgebra {
   @Override
   public double getTrace(final Matrix<?> m) {
     Validate.notNull(m, "m");
+    if (m instanceof StridedDoubleMatrix2D) {
+      final StridedDoubleMatrix2D x = (StridedDoubleMatrix2D) m;
+      Validate.isTrue(x.getNumberOfRows() == x.getNumberOfColumns(), "Matrix not square");
+      double sum = 0.0;
+      for (int i = 0; i < x.getNumberOfRows(); i++) {
+        sum += x.get(i, i);
+      }
+      return sum;
+    }
     if (m instanceof DoubleMatrix2D) {
       final double[][] data = ((DoubleMatrix2D) m).getData();
       final int rows = data.length;
@@ -160,6 +220,9 @@ public class OGMatrixAlgebra extends MatrixAlgebra {
   @Override
   public DoubleMatrix2D getTranspose(final Matrix<?> m) {
     Validate.notNull(m, "m");
+    if (m instanceof StridedDoubleMatrix2D) {
+      return ((StridedDoubleMatrix2D) m).getTransposeView().toDoubleMatrix2D();
+    }
     if (m instanceof DoubleMatrix2D) {
       final double[][] data = ((DoubleMatrix2D) m).getData();
       final int rows = data.length;
@@ -184,11 +247,15 @@ public class OGMatrixAlgebra extends MatrixAlgebra {
    * <li> m1 = 2-D matrix, m2 = 1-D matrix, returns $\mathbf{C} = \mathbf{A}b$
    * <li> m1 = 1-D matrix, m2 = 2-D matrix, returns $\mathbf{C} = a^T\mathbf{B}$
    * </ul>
+   * Either 2-D matrix can be a {@link StridedDoubleMatrix2D}.
    */
   @Override
   public Matrix<?> multiply(final Matrix<?> m1, final Matrix<?> m2) {
     Validate.notNull(m1, "m1");
     Validate.notNull(m2, "m2");
+    if (m1 instanceof StridedDoubleMatrix2D || m2 instanceof StridedDoubleMatrix2D) {
+      return multiplyStrided(m1, m2);
+    }
     if (m1 instanceof DoubleMatrix2D && m2 instanceof DoubleMatrix2D) {
       return multiply((DoubleMatrix2D) m1, (DoubleMatrix2D) m2);
     } else if (m1 instanceof DoubleMatrix2D && m2 instanceof DoubleMatrix1D) {
@@ -209,27 +276,248 @@ public class OGMatrixAlgebra extends MatrixAlgebra {
     throw new NotImplementedException();
   }
 
+  private Matrix<?> multiplyStrided(final Matrix<?> m1, final Matrix<?> m2) {
+    if (m2 instanceof DoubleMatrix1D) {
+      return multiply((StridedDoubleMatrix2D) m1, (DoubleMatrix1D) m2);
+    } else if (m1 instanceof DoubleMatrix1D) {
+      // a^T * B = (B^T * a)^T
+      return multiply(((StridedDoubleMatrix2D) m2).getTransposeView(), (DoubleMatrix1D) m1);
+    }
+    final StridedDoubleMatrix2D a = asStrided(m1);
+    final StridedDoubleMatrix2D b = asStrided(m2);
+    Validate.isTrue(a.getNumberOfColumns() == b.getNumberOfRows(), "Matrix size mismatch. m1 is " + a.getNumberOfRows() + " by "
+        + a.getNumberOfColumns() + ", but m2 is " + b.getNumberOfRows() + " by " + b.getNumberOfColumns());
+    return multiply(a, b);
+  }
+
   private DoubleMatrix2D multiply(final DoubleMatrix2D m1, final DoubleMatrix2D m2) {
+    Validate.isTrue(m1.getNumberOfColumns() == m2.getNumberOfRows(), "Matrix size mismatch. m1 is " + m1.getNumberOfRows() + " by "
+        + m1.getNumberOfColumns() + ", but m2 is " + m2.getNumberOfRows() + " by " + m2.getNumberOfColumns());
     final double[][] a = m1.getData();
     final double[][] b = m2.getData();
-    final int p = b.length;
-    Validate.isTrue(a[0].length == p, "Matrix size mismatch. m1 is " + m1.getNumberOfRows() + " by "
-        + m1.getNumberOfColumns() + ", but m2 is " + m2.getNumberOfRows() + " by " + m2.getNumberOfColumns());
     final int m = a.length;
     final int n = b[0].length;
-    double sum;
     final double[][] res = new double[m][n];
-    int i, j, k;
-    for (i = 0; i < m; i++) {
-      for (j = 0; j < n; j++) {
-        sum = 0.0;
-        for (k = 0; k < p; k++) {
-          sum += a[i][k] * b[k][j];
+    runInBands(m, (long) m * n * b.length, new Band() {
+      @Override
+      public void multiply(final int rowStart, final int rowEnd) {
+        OGMatrixAlgebra.multiply(a, b, res, rowStart, rowEnd);
+      }
+    });
+    return new DoubleMatrix2D(m, n, res);
+  }
+
+  private static DoubleMatrix2D multiply(final StridedDoubleMatrix2D a, final StridedDoubleMatrix2D b) {
+    final int m = a.getNumberOfRows();
+    final int n = b.getNumberOfColumns();
+    final double[][] res = new double[m][n];
+    runInBands(m, (long) m * n * b.getNumberOfRows(), new Band() {
+      @Override
+      public void multiply(final int rowStart, final int rowEnd) {
+        OGMatrixAlgebra.multiply(a, b, res, rowStart, rowEnd);
+      }
+    });
+    return new DoubleMatrix2D(m, n, res);
+  }
+
+  private static StridedDoubleMatrix2D asStrided(final Matrix<?> m) {
+    if (m instanceof StridedDoubleMatrix2D) {
+      return (StridedDoubleMatrix2D) m;
+    } else if (m instanceof DoubleMatrix2D) {
+      return StridedDoubleMatrix2D.copyOf((DoubleMatrix2D) m);
+    }
+    throw new IllegalArgumentException("Can only multiply a StridedDoubleMatrix2D by a 2D matrix or a DoubleMatrix1D; have " + m.getClass());
+  }
+
+  /**
+   * Computes rows of a product.
+   */
+  private interface Band {
+    void multiply(int rowStart, int rowEnd);
+  }
+
+  /**
+   * Computes the rows of a product with m rows and the given number of multiplications, in bands of rows in parallel if it is big enough
+   */
+  private static void runInBands(final int m, final long multiplications, final Band band) {
+    if (multiplications < PARALLEL_THRESHOLD || N_THREADS < 2 || m < 2 * TILE) {
+      band.multiply(0, m);
+      return;
+    }
+    final int nBands = Math.min(N_THREADS, m / TILE);
+    final int bandSize = ((m / nBands + TILE - 1) / TILE) * TILE;
+    final ExecutorService executor = getExecutor();
+    final List<Future<?>> futures = new ArrayList<Future<?>>(nBands);
+    for (int start = 0; start < m; start += bandSize) {
+      final int rowStart = start;
+      final int rowEnd = Math.min(m, start + bandSize);
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() {
+          band.multiply(rowStart, rowEnd);
+          return null;
+        }
+      }));
+    }
+    try {
+      for (final Future<?> future : futures) {
+        future.get();
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OpenGammaRuntimeException("Interrupted while multiplying matrices", e);
+    } catch (final ExecutionException e) {
+      throw new OpenGammaRuntimeException("Error while multiplying matrices", e.getCause());
+    }
+  }
+
+  /**
+   * Adds rows rowStart to rowEnd - 1 of a * b to res. As for the array of arrays version, but each block of b is first copied out of the (possibly
+   * strided) storage into this thread's buffers; every entry of them that is read is written first.
+   */
+  private static void multiply(final StridedDoubleMatrix2D a, final StridedDoubleMatrix2D b, final double[][] res, final int rowStart, final int rowEnd) {
+    final double[] aData = a.getStorage();
+    final int aOffset = a.getOffset();
+    final int aRowStride = a.getRowStride();
+    final int aColumnStride = a.getColumnStride();
+    final double[] bData = b.getStorage();
+    final int bOffset = b.getOffset();
+    final int bRowStride = b.getRowStride();
+    final int bColumnStride = b.getColumnStride();
+    final int p = b.getNumberOfRows();
+    final int n = b.getNumberOfColumns();
+    final double[][][] buffers = STRIDED_BUFFERS.get();
+    final double[][] block = buffers[0];
+    final double[][] r = buffers[1];
+    for (int kk = 0; kk < p; kk += BLOCK_ROWS) {
+      final int kEnd = Math.min(p, kk + BLOCK_ROWS);
+      for (int jj = 0; jj < n; jj += BLOCK_COLUMNS) {
+        final int width = Math.min(n, jj + BLOCK_COLUMNS) - jj;
+        for (int k = kk; k < kEnd; k++) {
+          final double[] row = block[k - kk];
+          int index = bOffset + k * bRowStride + jj * bColumnStride;
+          for (int j = 0; j < width; j++) {
+            row[j] = bData[index];
+            index += bColumnStride;
+          }
+        }
+        for (int i = rowStart; i < rowEnd; i += TILE) {
+          final int rows = Math.min(TILE, rowEnd - i);
+          for (int t = 0; t < rows; t++) {
+            System.arraycopy(res[i + t], jj, r[t], 0, width);
+          }
+          if (rows == TILE) {
+            final double[] r0 = r[0];
+            final double[] r1 = r[1];
+            final double[] r2 = r[2];
+            final double[] r3 = r[3];
+            final int a0 = aOffset + i * aRowStride;
+            final int a1 = a0 + aRowStride;
+            final int a2 = a1 + aRowStride;
+            final int a3 = a2 + aRowStride;
+            for (int k = kk; k < kEnd; k++) {
+              final int ak = k * aColumnStride;
+              final double s0 = aData[a0 + ak];
+              final double s1 = aData[a1 + ak];
+              final double s2 = aData[a2 + ak];
+              final double s3 = aData[a3 + ak];
+              final double[] bk = block[k - kk];
+              for (int j = 0; j < width; j++) {
+                final double bkj = bk[j];
+                r0[j] += s0 * bkj;
+                r1[j] += s1 * bkj;
+                r2[j] += s2 * bkj;
+                r3[j] += s3 * bkj;
+              }
+            }
+          } else {
+            for (int t = 0; t < rows; t++) {
+              final double[] rt = r[t];
+              final int at = aOffset + (i + t) * aRowStride;
+              for (int k = kk; k < kEnd; k++) {
+                final double s = aData[at + k * aColumnStride];
+                final double[] bk = block[k - kk];
+                for (int j = 0; j < width; j++) {
+                  rt[j] += s * bk[j];
+                }
+              }
+            }
+          }
+          for (int t = 0; t < rows; t++) {
+            System.arraycopy(r[t], 0, res[i + t], jj, width);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds rows rowStart to rowEnd - 1 of a * b to res. A block of b is reused for every row of a, and four rows of res are updated from each row of the block.
+   */
+  private static void multiply(final double[][] a, final double[][] b, final double[][] res, final int rowStart, final int rowEnd) {
+    final int p = b.length;
+    final int n = res[0].length;
+    final int tiledEnd = rowStart + ((rowEnd - rowStart) / TILE) * TILE;
+    for (int kk = 0; kk < p; kk += BLOCK_ROWS) {
+      final int kEnd = Math.min(p, kk + BLOCK_ROWS);
+      for (int jj = 0; jj < n; jj += BLOCK_COLUMNS) {
+        final int jEnd = Math.min(n, jj + BLOCK_COLUMNS);
+        for (int i = rowStart; i < tiledEnd; i += TILE) {
+          final double[] a0 = a[i];
+          final double[] a1 = a[i + 1];
+          final double[] a2 = a[i + 2];
+          final double[] a3 = a[i + 3];
+          final double[] r0 = res[i];
+          final double[] r1 = res[i + 1];
+          final double[] r2 = res[i + 2];
+          final double[] r3 = res[i + 3];
+          for (int k = kk; k < kEnd; k++) {
+            final double s0 = a0[k];
+            final double s1 = a1[k];
+            final double s2 = a2[k];
+            final double s3 = a3[k];
+            final double[] bk = b[k];
+            for (int j = jj; j < jEnd; j++) {
+              final double bkj = bk[j];
+              r0[j] += s0 * bkj;
+              r1[j] += s1 * bkj;
+              r2[j] += s2 * bkj;
+              r3[j] += s3 * bkj;
+            }
+          }
         }
-        res[i][j] = sum;
+        for (int i = tiledEnd; i < rowEnd; i++) {
+          final double[] ai = a[i];
+          final double[] ri = res[i];
+          for (int k = kk; k < kEnd; k++) {
+            final double s = ai[k];
+            final double[] bk = b[k];
+            for (int j = jj; j < jEnd; j++) {
+              ri[j] += s * bk[j];
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private static DoubleMatrix1D multiply(final StridedDoubleMatrix2D a, final DoubleMatrix1D vector) {
+    final double[] b = vector.getData();
+    final int n = b.length;
+    Validate.isTrue(a.getNumberOfColumns() == n, "Matrix/vector size mismatch");
+    final int m = a.getNumberOfRows();
+    final double[] data = a.getStorage();
+    final double[] res = new double[m];
+    for (int i = 0; i < m; i++) {
+      int index = a.getOffset() + i * a.getRowStride();
+      double sum = 0.0;
+      for (int j = 0; j < n; j++) {
+        sum += data[index] * b[j];
+        index += a.getColumnStride();
       }
+      res[i] = sum;
     }
-    return new DoubleMatrix2D(res);
+    return new DoubleMatrix1D(res);
   }
 
   private DoubleMatrix1D multiply(final DoubleMatrix2D matrix, final DoubleMatrix1D vector) {
@@ -0,0 +1,364 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.matrix;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A 2D matrix of doubles held in a single array. Element (i, j) is at {@code offset + i * rowStride + j * columnStride}, so a newly created matrix is
+ * contiguous and row-major, and rows, columns, sub-matrices and the transpose can all be viewed without copying. A view shares its storage with the
+ * matrix it was taken from, so changes made through either are seen by both.
+ * <p>
+ * This is not a {@link DoubleMatrix2D}, as there is no array of arrays behind it. The matrix algebras and the Colt and Commons wrappers accept it
+ * directly and work on the storage; {@link #toDoubleMatrix2D()} copies it into a {@code DoubleMatrix2D} for anything else. Results of the matrix
+ * algebras are always returned as {@code DoubleMatrix2D}.
+ */
+public class StridedDoubleMatrix2D implements Matrix<Double> {
+  private final int _rows;
+  private final int _columns;
+  private final double[] _storage;
+  private final int _offset;
+  private final int _rowStride;
+  private final int _columnStride;
+
+  /**
+   * Sets up a matrix of zeros
+   * @param rows Number of rows, greater than zero
+   * @param columns Number of columns, greater than zero
+   */
+  public StridedDoubleMatrix2D(final int rows, final int columns) {
+    this(new double[checkSize(rows, columns)], rows, columns);
+  }
+
+  /**
+   * Wraps row-major data without copying it.
+   * @param data The data, not null, of length rows * columns. Later changes to the array are seen by the matrix
+   * @param rows Number of rows, greater than zero
+   * @param columns Number of columns, greater than zero
+   */
+  public StridedDoubleMatrix2D(final double[] data, final int rows, final int columns) {
+    this(data, 0, rows, columns, columns, 1);
+    Validate.notNull(data, "data");
+    checkSize(rows, columns);
+    Validate.isTrue(data.length == rows * columns, "data has " + data.length + " elements, but a " + rows + " by " + columns + " matrix needs " + rows * columns);
+  }
+
+  private StridedDoubleMatrix2D(final double[] storage, final int offset, final int rows, final int columns, final int rowStride, final int columnStride) {
+    _rows = rows;
+    _columns = columns;
+    _storage = storage;
+    _offset = offset;
+    _rowStride = rowStride;
+    _columnStride = columnStride;
+  }
+
+  /**
+   * Copies a matrix into contiguous row-major storage.
+   * @param matrix The matrix, not null
+   * @return A new matrix that does not share storage with the original
+   */
+  public static StridedDoubleMatrix2D copyOf(final DoubleMatrix2D matrix) {
+    Validate.notNull(matrix, "matrix");
+    final int rows = matrix.getNumberOfRows();
+    final int columns = matrix.getNumberOfColumns();
+    final double[] data = new double[rows * columns];
+    final double[][] x = matrix.getData();
+    for (int i = 0; i < rows; i++) {
+      System.arraycopy(x[i], 0, data, i * columns, columns);
+    }
+    return new StridedDoubleMatrix2D(data, 0, rows, columns, columns, 1);
+  }
+
+  /**
+   * Copies a matrix, or a view of one, into new contiguous row-major storage.
+   * @param matrix The matrix, not null
+   * @return A new matrix that does not share storage with the original
+   */
+  public static StridedDoubleMatrix2D copyOf(final StridedDoubleMatrix2D matrix) {
+    Validate.notNull(matrix, "matrix");
+    final double[] data = new double[matrix.getNumberOfElements()];
+    matrix.copyTo(data);
+    return new StridedDoubleMatrix2D(data, 0, matrix.getNumberOfRows(), matrix.getNumberOfColumns(), matrix.getNumberOfColumns(), 1);
+  }
+
+  private static int checkSize(final int rows, final int columns) {
+    Validate.isTrue(rows > 0, "row number cannot be negative or zero");
+    Validate.isTrue(columns > 0, "column number cannot be negative or zero");
+    return rows * columns;
+  }
+
+  /**
+   * @return The number of rows
+   */
+  public int getNumberOfRows() {
+    return _rows;
+  }
+
+  /**
+   * @return The number of columns
+   */
+  public int getNumberOfColumns() {
+    return _columns;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getNumberOfElements() {
+    return _rows * _columns;
+  }
+
+  /**
+   * @param row The row index
+   * @param column The column index
+   * @return The element
+   */
+  public double get(final int row, final int column) {
+    return _storage[index(row, column)];
+  }
+
+  /**
+   * @param row The row index
+   * @param column The column index
+   * @param value The new value of the element
+   */
+  public void set(final int row, final int column, final double value) {
+    _storage[index(row, column)] = value;
+  }
+
+  private int index(final int row, final int column) {
+    if (row < 0 || row >= getNumberOfRows() || column < 0 || column >= getNumberOfColumns()) {
+      throw new IndexOutOfBoundsException("(" + row + ", " + column + ") is outside a " + getNumberOfRows() + " by " + getNumberOfColumns() + " matrix");
+    }
+    return _offset + row * _rowStride + column * _columnStride;
+  }
+
+  /**
+   * @param index The row index
+   * @return A 1 by n view of the row
+   */
+  public StridedDoubleMatrix2D getRowView(final int index) {
+    return getSubMatrixView(index, index + 1, 0, getNumberOfColumns());
+  }
+
+  /**
+   * @param index The column index
+   * @return A m by 1 view of the column
+   */
+  public StridedDoubleMatrix2D getColumnView(final int index) {
+    return getSubMatrixView(0, getNumberOfRows(), index, index + 1);
+  }
+
+  /**
+   * @param rowStart The first row, inclusive
+   * @param rowEnd The last row, exclusive
+   * @param columnStart The first column, inclusive
+   * @param columnEnd The last column, exclusive
+   * @return A view of the block
+   */
+  public StridedDoubleMatrix2D getSubMatrixView(final int rowStart, final int rowEnd, final int columnStart, final int columnEnd) {
+    ArgumentChecker.isTrue(rowStart >= 0 && rowStart < rowEnd && rowEnd <= getNumberOfRows(), "rows {} to {} are not in a matrix with {} rows", rowStart, rowEnd, getNumberOfRows());
+    ArgumentChecker.isTrue(columnStart >= 0 && columnStart < columnEnd && columnEnd <= getNumberOfColumns(), "columns {} to {} are not in a matrix with {} columns", columnStart,
+        columnEnd, getNumberOfColumns());
+    return new StridedDoubleMatrix2D(_storage, _offset + rowStart * _rowStride + columnStart * _columnStride, rowEnd - rowStart, columnEnd - columnStart, _rowStride, _columnStride);
+  }
+
+  /**
+   * @return A view of the transpose
+   */
+  public StridedDoubleMatrix2D getTransposeView() {
+    return new StridedDoubleMatrix2D(_storage, _offset, getNumberOfColumns(), getNumberOfRows(), _columnStride, _rowStride);
+  }
+
+  /**
+   * @return true if the elements are stored row by row with no gaps, i.e. the matrix occupies {@code getStorage()[getOffset()]} to
+   * {@code getStorage()[getOffset() + getNumberOfElements() - 1]} in row-major order
+   */
+  public boolean isContiguous() {
+    return (_columnStride == 1 || getNumberOfColumns() == 1) && (_rowStride == getNumberOfColumns() || getNumberOfRows() == 1);
+  }
+
+  /**
+   * Returns the underlying storage, which may be shared with other views. If this is changed so is the matrix.
+   * @return The storage
+   */
+  public double[] getStorage() {
+    return _storage;
+  }
+
+  /**
+   * @return The position of element (0, 0) in the storage
+   */
+  public int getOffset() {
+    return _offset;
+  }
+
+  /**
+   * @return The distance in the storage between an element and the one below it
+   */
+  public int getRowStride() {
+    return _rowStride;
+  }
+
+  /**
+   * @return The distance in the storage between an element and the one to its right
+   */
+  public int getColumnStride() {
+    return _columnStride;
+  }
+
+  /**
+   * Copies the elements in row-major order.
+   * @param destination The destination, with at least as many elements as this matrix
+   */
+  public void copyTo(final double[] destination) {
+    final int rows = getNumberOfRows();
+    final int columns = getNumberOfColumns();
+    if (isContiguous()) {
+      System.arraycopy(_storage, _offset, destination, 0, rows * columns);
+      return;
+    }
+    int k = 0;
+    for (int i = 0; i < rows; i++) {
+      int index = _offset + i * _rowStride;
+      for (int j = 0; j < columns; j++) {
+        destination[k++] = _storage[index];
+        index += _columnStride;
+      }
+    }
+  }
+
+  /**
+   * @param index The row index
+   * @return A copy of the row
+   */
+  public DoubleMatrix1D getRowVector(final int index) {
+    final int columns = getNumberOfColumns();
+    final double[] res = new double[columns];
+    int k = index(index, 0);
+    for (int j = 0; j < columns; j++) {
+      res[j] = _storage[k];
+      k += _columnStride;
+    }
+    return new DoubleMatrix1D(res);
+  }
+
+  /**
+   * @param index The column index
+   * @return A copy of the column
+   */
+  public DoubleMatrix1D getColumnVector(final int index) {
+    final int rows = getNumberOfRows();
+    final double[] res = new double[rows];
+    int k = index(0, index);
+    for (int i = 0; i < rows; i++) {
+      res[i] = _storage[k];
+      k += _rowStride;
+    }
+    return new DoubleMatrix1D(res);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Double getEntry(final int... index) {
+    ArgumentChecker.notNull(index, "indices");
+    return get(index[0], index[1]);
+  }
+
+  /**
+   * @return A copy of the matrix as a {@link DoubleMatrix2D}
+   */
+  public DoubleMatrix2D toDoubleMatrix2D() {
+    return new DoubleMatrix2D(getNumberOfRows(), getNumberOfColumns(), toArray());
+  }
+
+  /**
+   * @return An array of arrays containing a copy of the matrix elements
+   */
+  public double[][] toArray() {
+    final int rows = getNumberOfRows();
+    final int columns = getNumberOfColumns();
+    final double[][] res = new double[rows][columns];
+    for (int i = 0; i < rows; i++) {
+      int k = _offset + i * _rowStride;
+      if (_columnStride == 1) {
+        System.arraycopy(_storage, k, res[i], 0, columns);
+      } else {
+        for (int j = 0; j < columns; j++) {
+          res[i][j] = _storage[k];
+          k += _columnStride;
+        }
+      }
+    }
+    return res;
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + getNumberOfColumns();
+    result = prime * result + getNumberOfRows();
+    final int n = Math.min(11, getNumberOfElements());
+    for (int k = 0; k < n; k++) {
+      result = prime * result + Double.valueOf(get(k / getNumberOfColumns(), k % getNumberOfColumns())).hashCode();
+    }
+    return result;
+  }
+
+  /**
+   * Two strided matrices are equal if they have the same elements, whatever their storage layout. A strided matrix is never equal to a
+   * {@link DoubleMatrix2D}; compare with {@link #toDoubleMatrix2D()}.
+   * @param obj The object
+   * @return true if the object is a strided matrix with the same elements
+   */
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null) {
+      return false;
+    }
+    if (getClass() != obj.getClass()) {
+      return false;
+    }
+    final StridedDoubleMatrix2D other = (StridedDoubleMatrix2D) obj;
+    if (getNumberOfColumns() != other.getNumberOfColumns()) {
+      return false;
+    }
+    if (getNumberOfRows() != other.getNumberOfRows()) {
+      return false;
+    }
+    for (int i = 0; i < getNumberOfRows(); i++) {
+      for (int j = 0; j < getNumberOfColumns(); j++) {
+        if (Double.doubleToLongBits(get(i, j)) != Double.doubleToLongBits(other.get(i, j))) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuffer sb = new StringBuffer();
+    for (int i = 0; i < getNumberOfRows(); i++) {
+      sb.append("(");
+      for (int j = 0; j < getNumberOfColumns() - 1; j++) {
+        sb.append(get(i, j) + "\t");
+      }
+      sb.append(get(i, getNumberOfColumns() - 1) + ")\n");
+    }
+    return sb.toString();
+  }
+
+}
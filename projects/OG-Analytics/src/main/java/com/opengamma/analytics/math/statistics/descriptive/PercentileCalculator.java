@@ -14,6 +14,8 @@ import com.opengamma.analytics.math.function.Function1D;
 /**
  * For a series of data $x_1, x_2, \dots, x_n$, the percentile is the value $x$
  * below which a certain percentage of the data fall. 
+ * <p>
+ * The data are not sorted: the two order statistics either side of the percentile are found by selection (see {@link QuickSelect}).
  */
 public class PercentileCalculator extends Function1D<double[], Double> {
   private double _percentile;
@@ -34,26 +36,71 @@ public class PercentileCalculator extends Function1D<double[], Double> {
     _percentile = percentile;
   }
 
+  /**
+   * @return The percentile
+   */
+  public double getPercentile() {
+    return _percentile;
+  }
+
   /**
    * @param x The data, not null or empty
    * @return The percentile
    */
   @Override
   public Double evaluate(final double[] x) {
+    Validate.notNull(x, "x");
+    Validate.isTrue(x.length > 0, "x cannot be empty");
+    return evaluateInPlace(Arrays.copyOf(x, x.length));
+  }
+
+  /**
+   * Calculates the percentile without copying the data, which is partially reordered.
+   * @param x The data, not null or empty
+   * @return The percentile
+   */
+  public double evaluateInPlace(final double[] x) {
     Validate.notNull(x, "x");
     Validate.isTrue(x.length > 0, "x cannot be empty");
     final int length = x.length;
-    final double[] copy = Arrays.copyOf(x, length);
-    Arrays.sort(copy);
-    final double n = _percentile * (length - 1) + 1;
-    if (Math.round(n) == 1) {
-      return copy[0];
+    final int k = getLowerIndex(length);
+    final double lower = QuickSelect.select(x, k);
+    final double weight = getWeight(length);
+    if (weight == 0) {
+      return lower;
+    }
+    // everything after x[k] is no smaller than it, so the next order statistic is the smallest of those
+    return lower + weight * (QuickSelect.min(x, k + 1, length) - lower);
+  }
+
+  /**
+   * The percentile of n points is x<sub>(i)</sub> + w * (x<sub>(i + 1)</sub> - x<sub>(i)</sub>), where x<sub>(i)</sub> is the i<sup>th</sup>
+   * smallest (counting from zero), i is given by this method and w by {@link #getWeight}.
+   * @param n The number of data points, greater than zero
+   * @return The index of the lower order statistic
+   */
+  public int getLowerIndex(final int n) {
+    Validate.isTrue(n > 0, "n must be greater than zero");
+    final double position = _percentile * (n - 1) + 1;
+    if (Math.round(position) == 1) {
+      return 0;
     }
-    if (Math.round(n) == length) {
-      return copy[length - 1];
+    if (Math.round(position) == n) {
+      return n - 1;
+    }
+    return (int) Math.round(position - position % 1) - 1;
+  }
+
+  /**
+   * @param n The number of data points, greater than zero
+   * @return The weight of the upper order statistic, see {@link #getLowerIndex}
+   */
+  public double getWeight(final int n) {
+    Validate.isTrue(n > 0, "n must be greater than zero");
+    final double position = _percentile * (n - 1) + 1;
+    if (Math.round(position) == 1 || Math.round(position) == n) {
+      return 0;
     }
-    final double d = n % 1;
-    final int k = (int) Math.round(n - d);
-    return copy[k - 1] + d * (copy[k] - copy[k - 1]);
+    return position % 1;
   }
 }
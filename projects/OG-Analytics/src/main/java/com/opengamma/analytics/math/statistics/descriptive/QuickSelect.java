@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.statistics.descriptive;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Finds order statistics without sorting. {@link #select} rearranges part of an array so that the k<sup>th</sup> element is the one that
+ * would be there if the array were sorted, with no larger element before it and no smaller one after it. This takes O(n) time on average,
+ * against O(n log n) for a sort.
+ */
+public final class QuickSelect {
+
+  private QuickSelect() {
+  }
+
+  /**
+   * @param x The data, not null. This is reordered
+   * @param k The index of the order statistic, zero-based
+   * @return The k<sup>th</sup> smallest element
+   */
+  public static double select(final double[] x, final int k) {
+    Validate.notNull(x, "x");
+    return select(x, 0, x.length, k);
+  }
+
+  /**
+   * @param x The data, not null. Only x[from] to x[to - 1] are read or reordered
+   * @param from The first index of the range, inclusive
+   * @param to The last index of the range, exclusive
+   * @param k The index of the order statistic, between from and to - 1
+   * @return The (k - from)<sup>th</sup> smallest element of the range
+   */
+  public static double select(final double[] x, final int from, final int to, final int k) {
+    Validate.notNull(x, "x");
+    Validate.isTrue(from >= 0 && to <= x.length && from < to, "invalid range");
+    Validate.isTrue(k >= from && k < to, "k must be in the range");
+    int left = from;
+    int right = to - 1;
+    while (right > left) {
+      // median of three, which also leaves sentinels at both ends for the scans below
+      final int mid = (left + right) >>> 1;
+      if (x[mid] < x[left]) {
+        swap(x, left, mid);
+      }
+      if (x[right] < x[left]) {
+        swap(x, left, right);
+      }
+      if (x[right] < x[mid]) {
+        swap(x, mid, right);
+      }
+      final double pivot = x[mid];
+      int i = left;
+      int j = right;
+      while (i <= j) {
+        while (x[i] < pivot) {
+          i++;
+        }
+        while (x[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swap(x, i, j);
+          i++;
+          j--;
+        }
+      }
+      // [left, j] <= pivot, [i, right] >= pivot and anything between is equal to the pivot
+      if (k <= j) {
+        right = j;
+      } else if (k >= i) {
+        left = i;
+      } else {
+        return x[k];
+      }
+    }
+    return x[k];
+  }
+
+  /**
+   * @param x The data, not null
+   * @param from The first index of the range, inclusive
+   * @param to The last index of the range, exclusive
+   * @return The smallest element of the range
+   */
+  public static double min(final double[] x, final int from, final int to) {
+    Validate.notNull(x, "x");
+    Validate.isTrue(from >= 0 && to <= x.length && from < to, "invalid range");
+    double min = x[from];
+    for (int i = from + 1; i < to; i++) {
+      if (x[i] < min) {
+        min = x[i];
+      }
+    }
+    return min;
+  }
+
+  private static void swap(final double[] x, final int i, final int j) {
+    final double temp = x[i];
+    x[i] = x[j];
+    x[j] = temp;
+  }
+
+}
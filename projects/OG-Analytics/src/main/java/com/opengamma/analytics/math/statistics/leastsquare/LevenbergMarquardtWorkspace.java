@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.statistics.leastsquare;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * The working storage used by each iteration of {@link NonLinearLeastSquare}. A workspace can be passed to successive solves (e.g. when the same model
+ * is calibrated many times) and is only reallocated when the number of data points or parameters changes.
+ * <p>
+ * A workspace must not be used by more than one thread at a time.
+ */
+public final class LevenbergMarquardtWorkspace {
+  private int _nObs = -1;
+  private int _nParms = -1;
+  /** The weighted residuals, (observed - model) / sigma, at the current parameters */
+  private double[] _error;
+  /** The weighted residuals at the trial parameters */
+  private double[] _trialError;
+  /** The Jacobian divided by sigma, row-major */
+  private double[][] _jacobian;
+  /** The squares of the column norms of the Jacobian, i.e. the diagonal of J<sup>T</sup>J */
+  private double[] _diagonal;
+  /** The Householder vectors and R of the QR decomposition of the augmented Jacobian, column-major */
+  private double[][] _qr;
+  /** The diagonal of R */
+  private double[] _rDiagonal;
+  /** The right hand side of the augmented least squares problem */
+  private double[] _rhs;
+  /** The gradient of chi^2 / 2 */
+  private double[] _beta;
+  /** The step */
+  private double[] _delta;
+
+  /**
+   * Creates an empty workspace; the storage is allocated on first use.
+   */
+  public LevenbergMarquardtWorkspace() {
+  }
+
+  /**
+   * @param nObs The number of data points, greater than zero
+   * @param nParms The number of fit parameters, greater than zero
+   */
+  public LevenbergMarquardtWorkspace(final int nObs, final int nParms) {
+    ensureSize(nObs, nParms);
+  }
+
+  /**
+   * Reallocates the storage if the dimensions differ from those of the previous use.
+   * @param nObs The number of data points, greater than zero
+   * @param nParms The number of fit parameters, greater than zero
+   */
+  void ensureSize(final int nObs, final int nParms) {
+    if (nObs == _nObs && nParms == _nParms) {
+      return;
+    }
+    ArgumentChecker.isTrue(nObs > 0, "need at least one data point");
+    ArgumentChecker.isTrue(nParms > 0, "need at least one parameter");
+    _nObs = nObs;
+    _nParms = nParms;
+    _error = new double[nObs];
+    _trialError = new double[nObs];
+    _jacobian = new double[nObs][nParms];
+    _diagonal = new double[nParms];
+    _qr = new double[nParms][nObs + nParms];
+    _rDiagonal = new double[nParms];
+    _rhs = new double[nObs + nParms];
+    _beta = new double[nParms];
+    _delta = new double[nParms];
+  }
+
+  /**
+   * Makes the trial residuals the current ones.
+   */
+  void acceptTrialError() {
+    final double[] temp = _error;
+    _error = _trialError;
+    _trialError = temp;
+  }
+
+  double[] getError() {
+    return _error;
+  }
+
+  double[] getTrialError() {
+    return _trialError;
+  }
+
+  double[][] getJacobian() {
+    return _jacobian;
+  }
+
+  double[] getDiagonal() {
+    return _diagonal;
+  }
+
+  double[][] getQR() {
+    return _qr;
+  }
+
+  double[] getRDiagonal() {
+    return _rDiagonal;
+  }
+
+  double[] getRHS() {
+    return _rhs;
+  }
+
+  double[] getBeta() {
+    return _beta;
+  }
+
+  double[] getDelta() {
+    return _delta;
+  }
+
+}
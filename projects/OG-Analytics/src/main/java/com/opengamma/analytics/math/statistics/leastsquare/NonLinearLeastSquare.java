@@ -35,6 +35,8 @@ import com.opengamma.util.ArgumentChecker;
 public class NonLinearLeastSquare {
   private static final Logger LOGGER = LoggerFactory.getLogger(NonLinearLeastSquare.class);
   private static final int MAX_ATTEMPTS = 10000;
+  /** If the smallest diagonal element of R is less than this fraction of the largest, the step is found from the decomposition rather than QR */
+  private static final double QR_CONDITION_LIMIT = 1e-8;
   private static final Function1D<DoubleMatrix1D, Boolean> UNCONSTAINED = new Function1D<DoubleMatrix1D, Boolean>() {
     @Override
     public Boolean evaluate(final DoubleMatrix1D x) {
@@ -319,43 +321,64 @@ public class NonLinearLeastSquare {
   public LeastSquareResults solve(final DoubleMatrix1D observedValues, final DoubleMatrix1D sigma, final Function1D<DoubleMatrix1D, DoubleMatrix1D> func,
       final Function1D<DoubleMatrix1D, DoubleMatrix2D> jac, final DoubleMatrix1D startPos, final Function1D<DoubleMatrix1D, Boolean> constraints,
       final DoubleMatrix1D maxJumps) {
+    return solve(observedValues, sigma, func, jac, startPos, constraints, maxJumps, new LevenbergMarquardtWorkspace());
+  }
+
+  /**
+   * Use this when the model is given as a function of its parameters only (i.e. a function that takes a set of parameters and return a set of model values,
+   * so the measurement points are already known to the function), and  analytic parameter sensitivity is available (e.g. from a model adjoint, such as
+   * {@link com.opengamma.analytics.financial.model.volatility.smile.function.VolatilityFunctionProvider#getModelAdjointFunction}), and the same model is to be
+   * fitted many times.
+   * <p>
+   * Each step is found from a QR decomposition of the Jacobian augmented by the Levenberg-Marquardt damping, which avoids forming the curvature matrix;
+   * only when the Jacobian is (close to) rank deficient is the step found by the decomposition given in the constructor. The working storage is
+   * taken from the workspace, which can be reused between calls.
+   * @param observedValues Set of measurement values
+   * @param sigma Set of measurement errors
+   * @param func The model as a function of its parameters only
+   * @param jac The model sensitivity to its parameters (i.e. the Jacobian matrix) as a function of its parameters only
+   * @param startPos  Initial value of the parameters
+   * @param constraints A function that returns true if the trial point is within the constraints of the model
+   * @param maxJumps A vector containing the maximum absolute allowed step in a particular direction in each iteration. Can be null, in which case on constant
+   * on the step size is applied.
+   * @param workspace The working storage, not null
+   * @return value of the fitted parameters
+   */
+  public LeastSquareResults solve(final DoubleMatrix1D observedValues, final DoubleMatrix1D sigma, final Function1D<DoubleMatrix1D, DoubleMatrix1D> func,
+      final Function1D<DoubleMatrix1D, DoubleMatrix2D> jac, final DoubleMatrix1D startPos, final Function1D<DoubleMatrix1D, Boolean> constraints,
+      final DoubleMatrix1D maxJumps, final LevenbergMarquardtWorkspace workspace) {
 
     Validate.notNull(observedValues, "observedValues");
     Validate.notNull(sigma, " sigma");
     Validate.notNull(func, " func");
     Validate.notNull(jac, " jac");
     Validate.notNull(startPos, "startPos");
+    Validate.notNull(workspace, "workspace");
     final int nObs = observedValues.getNumberOfElements();
     final int nParms = startPos.getNumberOfElements();
     Validate.isTrue(nObs == sigma.getNumberOfElements(), "observedValues and sigma must be same length");
     ArgumentChecker.isTrue(nObs >= nParms, "must have data points greater or equal to number of parameters. #date points = {}, #parameters = {}", nObs, nParms);
     ArgumentChecker.isTrue(constraints.evaluate(startPos), "The inital value of the parameters (startPos) is {} - this is not an allowed value", startPos);
+    workspace.ensureSize(nObs, nParms);
     DoubleMatrix2D alpha;
     DecompositionResult decmp;
     DoubleMatrix1D theta = startPos;
 
     double lambda = 0.0; //TODO debug if the model is linear, it will be solved in 1 step
     double newChiSqr, oldChiSqr;
-    DoubleMatrix1D error = getError(func, observedValues, sigma, theta);
-
-    DoubleMatrix1D newError;
-    DoubleMatrix2D jacobian = getJacobian(jac, sigma, theta);
-    oldChiSqr = getChiSqr(error);
+    getError(func, observedValues, sigma, theta, workspace.getError());
+    getJacobian(jac, sigma, theta, workspace);
+    oldChiSqr = getChiSqr(workspace.getError());
 
     //If we start at the solution we are done
     if (oldChiSqr == 0.0) {
-      return finish(oldChiSqr, jacobian, theta, sigma);
+      return finish(oldChiSqr, new DoubleMatrix2D(workspace.getJacobian()), theta, sigma);
     }
 
-    DoubleMatrix1D beta = getChiSqrGrad(error, jacobian);
-
     for (int count = 0; count < MAX_ATTEMPTS; count++) {
-      alpha = getModifiedCurvatureMatrix(jacobian, lambda);
-
       DoubleMatrix1D deltaTheta;
       try {
-        decmp = _decomposition.evaluate(alpha);
-        deltaTheta = decmp.solve(beta);
+        deltaTheta = getStep(workspace, lambda);
       } catch (final Exception e) {
         throw new MathException(e);
       }
@@ -368,21 +391,21 @@ public class NonLinearLeastSquare {
         continue;
       }
 
-      newError = getError(func, observedValues, sigma, trialTheta);
-      newChiSqr = getChiSqr(newError);
+      getError(func, observedValues, sigma, trialTheta, workspace.getTrialError());
+      newChiSqr = getChiSqr(workspace.getTrialError());
 
       //Check for convergence when no improvement in chiSqr occurs
       if (Math.abs(newChiSqr - oldChiSqr) / (1 + oldChiSqr) < _eps) {
-
+        final DoubleMatrix2D jacobian = new DoubleMatrix2D(workspace.getJacobian());
+        alpha = getModifiedCurvatureMatrix(jacobian, lambda);
         final DoubleMatrix2D alpha0 = lambda == 0.0 ? alpha : getModifiedCurvatureMatrix(jacobian, 0.0);
 
         //if the model is an exact fit to the data, then no more improvement is possible
         if (newChiSqr < _eps) {
-          if (lambda > 0.0) {
-            decmp = _decomposition.evaluate(alpha0);
-          }
+          decmp = _decomposition.evaluate(alpha0);
           return finish(alpha0, decmp, newChiSqr, jacobian, trialTheta, sigma);
         }
+        decmp = _decomposition.evaluate(alpha);
 
         final SVDecompositionCommons svd = (SVDecompositionCommons) DecompositionFactory.SV_COMMONS;
 
@@ -390,11 +413,12 @@ public class NonLinearLeastSquare {
         final VectorFieldSecondOrderDifferentiator diff = new VectorFieldSecondOrderDifferentiator();
         final Function1D<DoubleMatrix1D, DoubleMatrix2D[]> secDivFunc = diff.differentiate(func, constraints);
         final DoubleMatrix2D[] secDiv = secDivFunc.evaluate(trialTheta);
+        final double[] newError = workspace.getTrialError();
         final double[][] temp = new double[nParms][nParms];
         for (int i = 0; i < nObs; i++) {
           for (int j = 0; j < nParms; j++) {
             for (int k = 0; k < nParms; k++) {
-              temp[j][k] -= newError.getEntry(i) * secDiv[i].getEntry(j, k) / sigma.getEntry(i);
+              temp[j][k] -= newError[i] * secDiv[i].getEntry(j, k) / sigma.getEntry(i);
             }
           }
         }
@@ -449,8 +473,8 @@ public class NonLinearLeastSquare {
             }
           }
 
-          newError = getError(func, observedValues, sigma, trialTheta);
-          newChiSqr = getChiSqr(newError);
+          getError(func, observedValues, sigma, trialTheta, workspace.getTrialError());
+          newChiSqr = getChiSqr(workspace.getTrialError());
 
           int counter = 0;
           while (newChiSqr > oldChiSqr) {
@@ -462,8 +486,8 @@ public class NonLinearLeastSquare {
             scale /= 2.0;
             deltaTheta = (DoubleMatrix1D) _algebra.scale(direction, scale);
             trialTheta = (DoubleMatrix1D) _algebra.add(theta, deltaTheta);
-            newError = getError(func, observedValues, sigma, trialTheta);
-            newChiSqr = getChiSqr(newError);
+            getError(func, observedValues, sigma, trialTheta, workspace.getTrialError());
+            newChiSqr = getChiSqr(workspace.getTrialError());
             counter++;
           }
         } else {
@@ -475,14 +499,8 @@ public class NonLinearLeastSquare {
       if (newChiSqr < oldChiSqr) {
         lambda = decreaseLambda(lambda);
         theta = trialTheta;
-        error = newError;
-        jacobian = getJacobian(jac, sigma, trialTheta);
-        beta = getChiSqrGrad(error, jacobian);
-
-        // check for convergence
-        //        if (_algebra.getNorm2(beta) < _eps * g0) {
-        //          return finish(newChiSqr, jacobian, trialTheta, sigma);
-        //        }
+        workspace.acceptTrialError();
+        getJacobian(jac, sigma, trialTheta, workspace);
         oldChiSqr = newChiSqr;
       } else {
         lambda = increaseLambda(lambda);
@@ -491,6 +509,98 @@ public class NonLinearLeastSquare {
     throw new MathException("Could not converge in " + MAX_ATTEMPTS + " attempts");
   }
 
+  /**
+   * The Levenberg-Marquardt step solves (J<sup>T</sup>J + lambda * diag(J<sup>T</sup>J)) * delta = J<sup>T</sup>e, which is the least squares
+   * solution of [J; sqrt(lambda * diag(J<sup>T</sup>J))] * delta = [e; 0]. This is found by Householder QR unless R is (close to) singular, in which case
+   * the curvature matrix is formed and passed to the decomposition.
+   */
+  private DoubleMatrix1D getStep(final LevenbergMarquardtWorkspace workspace, final double lambda) {
+    final double[][] jacobian = workspace.getJacobian();
+    final double[] error = workspace.getError();
+    final double[] diagonal = workspace.getDiagonal();
+    final double[][] qr = workspace.getQR();
+    final double[] rDiag = workspace.getRDiagonal();
+    final double[] rhs = workspace.getRHS();
+    final double[] delta = workspace.getDelta();
+    final int nObs = error.length;
+    final int nParms = delta.length;
+    final int nRows = nObs + nParms;
+    //as in the curvature matrix, where (1 + lambda) * sum == sum, no damping is applied (this also keeps denormals out of the decomposition)
+    final double damping = 1.0 + lambda == 1.0 ? 0.0 : lambda;
+
+    for (int j = 0; j < nParms; j++) {
+      final double[] col = qr[j];
+      for (int i = 0; i < nObs; i++) {
+        col[i] = jacobian[i][j];
+      }
+      Arrays.fill(col, nObs, nRows, 0.0);
+      col[nObs + j] = Math.sqrt(damping * diagonal[j]);
+    }
+    System.arraycopy(error, 0, rhs, 0, nObs);
+    Arrays.fill(rhs, nObs, nRows, 0.0);
+
+    double maxR = 0.0;
+    double minR = Double.POSITIVE_INFINITY;
+    for (int k = 0; k < nParms; k++) {
+      final double[] v = qr[k];
+      double norm2 = 0.0;
+      for (int i = k; i < nRows; i++) {
+        norm2 += v[i] * v[i];
+      }
+      final double norm = Math.sqrt(norm2);
+      final double r = v[k] > 0.0 ? -norm : norm;
+      rDiag[k] = r;
+      maxR = Math.max(maxR, norm);
+      minR = Math.min(minR, norm);
+      if (norm == 0.0) {
+        break;
+      }
+      v[k] -= r;
+      final double vNorm2 = 2.0 * (norm2 - (v[k] + r) * r);
+      for (int j = k + 1; j < nParms; j++) {
+        final double[] col = qr[j];
+        double sum = 0.0;
+        for (int i = k; i < nRows; i++) {
+          sum += v[i] * col[i];
+        }
+        final double f = 2.0 * sum / vNorm2;
+        for (int i = k; i < nRows; i++) {
+          col[i] -= f * v[i];
+        }
+      }
+      double sum = 0.0;
+      for (int i = k; i < nRows; i++) {
+        sum += v[i] * rhs[i];
+      }
+      final double f = 2.0 * sum / vNorm2;
+      for (int i = k; i < nRows; i++) {
+        rhs[i] -= f * v[i];
+      }
+    }
+
+    if (minR <= QR_CONDITION_LIMIT * maxR) {
+      final double[] beta = workspace.getBeta();
+      for (int j = 0; j < nParms; j++) {
+        double sum = 0.0;
+        for (int i = 0; i < nObs; i++) {
+          sum += error[i] * jacobian[i][j];
+        }
+        beta[j] = sum;
+      }
+      final DoubleMatrix2D alpha = getModifiedCurvatureMatrix(new DoubleMatrix2D(jacobian), lambda);
+      return _decomposition.evaluate(alpha).solve(new DoubleMatrix1D(beta));
+    }
+
+    for (int k = nParms - 1; k >= 0; k--) {
+      double sum = rhs[k];
+      for (int j = k + 1; j < nParms; j++) {
+        sum -= qr[j][k] * delta[j];
+      }
+      delta[k] = sum / rDiag[k];
+    }
+    return new DoubleMatrix1D(delta);
+  }
+
   private double decreaseLambda(final double lambda) {
     return lambda / 10;
   }
@@ -547,18 +657,14 @@ public class NonLinearLeastSquare {
     return new LeastSquareResults(newChiSqr, newTheta, covariance, inverseJacobian);
   }
 
-  private DoubleMatrix1D getError(final Function1D<DoubleMatrix1D, DoubleMatrix1D> func, final DoubleMatrix1D observedValues, final DoubleMatrix1D sigma,
-      final DoubleMatrix1D theta) {
+  private void getError(final Function1D<DoubleMatrix1D, DoubleMatrix1D> func, final DoubleMatrix1D observedValues, final DoubleMatrix1D sigma,
+      final DoubleMatrix1D theta, final double[] res) {
     final int n = observedValues.getNumberOfElements();
     final DoubleMatrix1D modelValues = func.evaluate(theta);
-    Validate.isTrue(n == modelValues.getNumberOfElements(), "Number of data points different between model (" + modelValues.getNumberOfElements() + ") and observed ("
-        + n + ")");
-    final double[] res = new double[n];
+    ArgumentChecker.isTrue(n == modelValues.getNumberOfElements(), "Number of data points different between model ({}) and observed ({})", modelValues.getNumberOfElements(), n);
     for (int i = 0; i < n; i++) {
       res[i] = (observedValues.getEntry(i) - modelValues.getEntry(i)) / sigma.getEntry(i);
     }
-
-    return new DoubleMatrix1D(res);
   }
 
   private DoubleMatrix2D getBTranspose(final DoubleMatrix2D jacobian, final DoubleMatrix1D sigma) {
@@ -591,12 +697,36 @@ public class NonLinearLeastSquare {
     return res;
   }
 
-  private double getChiSqr(final DoubleMatrix1D error) {
-    return _algebra.getInnerProduct(error, error);
+  /**
+   * Copies the Jacobian, divided by sigma, into the workspace, and sets the diagonal of J<sup>T</sup>J
+   */
+  private void getJacobian(final Function1D<DoubleMatrix1D, DoubleMatrix2D> jac, final DoubleMatrix1D sigma, final DoubleMatrix1D theta,
+      final LevenbergMarquardtWorkspace workspace) {
+    final DoubleMatrix2D res = jac.evaluate(theta);
+    final int n = res.getNumberOfRows();
+    final int m = res.getNumberOfColumns();
+    Validate.isTrue(theta.getNumberOfElements() == m, "Jacobian is wrong size");
+    Validate.isTrue(sigma.getNumberOfElements() == n, "Jacobian is wrong size");
+    final double[][] data = res.getData();
+    final double[][] jacobian = workspace.getJacobian();
+    final double[] diagonal = workspace.getDiagonal();
+    Arrays.fill(diagonal, 0.0);
+    for (int i = 0; i < n; i++) {
+      final double s = sigma.getEntry(i);
+      for (int j = 0; j < m; j++) {
+        final double temp = data[i][j] / s;
+        jacobian[i][j] = temp;
+        diagonal[j] += temp * temp;
+      }
+    }
   }
 
-  private DoubleMatrix1D getChiSqrGrad(final DoubleMatrix1D error, final DoubleMatrix2D jacobian) {
-    return (DoubleMatrix1D) _algebra.multiply(error, jacobian);
+  private double getChiSqr(final double[] error) {
+    double sum = 0.0;
+    for (final double e : error) {
+      sum += e * e;
+    }
+    return sum;
   }
 
   @SuppressWarnings("unused")
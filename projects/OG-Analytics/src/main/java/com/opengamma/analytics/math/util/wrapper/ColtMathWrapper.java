@@ -8,6 +8,7 @@ package com.opengamma.analytics.math.util.wrapper;
 import org.apache.commons.lang.Validate;
 
 import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.StridedDoubleMatrix2D;
 
 /**
  * Utility class for converting OpenGamma mathematical objects into <a href="http://acs.lbl.gov/software/colt/api/index.html">Colt</a> objects and vice versa.
@@ -35,4 +36,18 @@ public final class ColtMathWrapper {
     return cern.colt.matrix.DoubleFactory2D.dense.make(x.getData());
 
   }
+
+  /**
+   * Wraps a strided matrix without copying it, so the Colt matrix shares its storage.
+   * @param x An OG strided 2D matrix of doubles, not null
+   * @return A Colt 2D matrix
+   */
+  public static cern.colt.matrix.DoubleMatrix2D wrap(final StridedDoubleMatrix2D x) {
+    Validate.notNull(x, "x");
+    // the constructor that takes the storage and strides is protected
+    return new cern.colt.matrix.impl.DenseDoubleMatrix2D(x.getNumberOfRows(), x.getNumberOfColumns(), x.getStorage(), x.getOffset(), 0, x.getRowStride(),
+        x.getColumnStride()) {
+      private static final long serialVersionUID = 1L;
+    };
+  }
 }
@@ -24,6 +24,7 @@ import com.opengamma.analytics.math.function.Function1D;
 import com.opengamma.analytics.math.function.FunctionND;
 import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
 import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.StridedDoubleMatrix2D;
 import com.opengamma.analytics.math.number.ComplexNumber;
 
 /**
@@ -94,6 +95,16 @@ public final class CommonsMathWrapper {
     return new Array2DRowRealMatrix(x.getData());
   }
 
+  /**
+   * Wraps a strided matrix without copying it, so the Commons matrix shares its storage.
+   * @param x An OG strided 2-D matrix of doubles, not null
+   * @return A Commons matrix
+   */
+  public static RealMatrix wrap(final StridedDoubleMatrix2D x) {
+    Validate.notNull(x);
+    return new StridedRealMatrix(x);
+  }
+
   /**
    * @param x An OG 1-D vector of doubles, not null
    * @return A Commons matrix 
@@ -114,6 +125,10 @@ public final class CommonsMathWrapper {
    */
   public static DoubleMatrix2D unwrap(final RealMatrix x) {
     Validate.notNull(x);
+    if (x instanceof Array2DRowRealMatrix) {
+      // getData() would copy the data before the constructor copies it again
+      return new DoubleMatrix2D(((Array2DRowRealMatrix) x).getDataRef());
+    }
     return new DoubleMatrix2D(x.getData());
   }
 
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.util.wrapper;
+
+import org.apache.commons.math.linear.AbstractRealMatrix;
+import org.apache.commons.math.linear.Array2DRowRealMatrix;
+import org.apache.commons.math.linear.MatrixUtils;
+import org.apache.commons.math.linear.RealMatrix;
+
+import com.opengamma.analytics.math.matrix.StridedDoubleMatrix2D;
+
+/**
+ * A Commons matrix that reads and writes the storage of a {@link StridedDoubleMatrix2D} directly rather than copying it.
+ */
+final class StridedRealMatrix extends AbstractRealMatrix {
+  private final StridedDoubleMatrix2D _matrix;
+
+  StridedRealMatrix(final StridedDoubleMatrix2D matrix) {
+    _matrix = matrix;
+  }
+
+  @Override
+  public RealMatrix createMatrix(final int rowDimension, final int columnDimension) {
+    return new Array2DRowRealMatrix(rowDimension, columnDimension);
+  }
+
+  @Override
+  public RealMatrix copy() {
+    return new StridedRealMatrix(StridedDoubleMatrix2D.copyOf(_matrix));
+  }
+
+  @Override
+  public double getEntry(final int row, final int column) {
+    checkIndices(row, column);
+    return _matrix.get(row, column);
+  }
+
+  @Override
+  public void setEntry(final int row, final int column, final double value) {
+    checkIndices(row, column);
+    _matrix.set(row, column, value);
+  }
+
+  @Override
+  public void addToEntry(final int row, final int column, final double increment) {
+    checkIndices(row, column);
+    _matrix.set(row, column, _matrix.get(row, column) + increment);
+  }
+
+  @Override
+  public void multiplyEntry(final int row, final int column, final double factor) {
+    checkIndices(row, column);
+    _matrix.set(row, column, _matrix.get(row, column) * factor);
+  }
+
+  @Override
+  public int getRowDimension() {
+    return _matrix.getNumberOfRows();
+  }
+
+  @Override
+  public int getColumnDimension() {
+    return _matrix.getNumberOfColumns();
+  }
+
+  @Override
+  public double[][] getData() {
+    return _matrix.toArray();
+  }
+
+  @Override
+  public RealMatrix transpose() {
+    return new StridedRealMatrix(StridedDoubleMatrix2D.copyOf(_matrix.getTransposeView()));
+  }
+
+  private void checkIndices(final int row, final int column) {
+    MatrixUtils.checkRowIndex(this, row);
+    MatrixUtils.checkColumnIndex(this, column);
+  }
+
+}
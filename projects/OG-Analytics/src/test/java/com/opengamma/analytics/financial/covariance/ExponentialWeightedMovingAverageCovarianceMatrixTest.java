@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.covariance;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+import cern.jet.random.engine.MersenneTwister;
+import cern.jet.random.engine.MersenneTwister64;
+import cern.jet.random.engine.RandomEngine;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.MatrixAlgebra;
+import com.opengamma.analytics.math.matrix.OGMatrixAlgebra;
+
+/**
+ * 
+ */
+public class ExponentialWeightedMovingAverageCovarianceMatrixTest {
+  private static final RandomEngine RANDOM = new MersenneTwister64(MersenneTwister.DEFAULT_SEED);
+  private static final MatrixAlgebra ALGEBRA = new OGMatrixAlgebra();
+  private static final double LAMBDA = 0.94;
+  private static final double EPS = 1e-14;
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testLambda() {
+    new ExponentialWeightedMovingAverageCovarianceMatrix(3, 1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWrongLength() {
+    new ExponentialWeightedMovingAverageCovarianceMatrix(3, LAMBDA).update(new double[2]);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testTooManyFactors() {
+    new ExponentialWeightedMovingAverageCovarianceMatrix(3, LAMBDA).getFactorApproximation(4);
+  }
+
+  @Test
+  public void testUpdate() {
+    final int n = 7;
+    final int m = 30;
+    final double[][] returns = getReturns(m, n, 0);
+    final ExponentialWeightedMovingAverageCovarianceMatrix covariance = new ExponentialWeightedMovingAverageCovarianceMatrix(n, LAMBDA);
+    for (final double[] r : returns) {
+      covariance.update(r);
+    }
+    assertEquals(m, covariance.getNumberOfObservations());
+    final double[][] expected = new double[n][n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        double sigma = returns[0][i] * returns[0][j];
+        for (int t = 1; t < m; t++) {
+          sigma = LAMBDA * sigma + (1 - LAMBDA) * returns[t][i] * returns[t][j];
+        }
+        expected[i][j] = sigma;
+        assertEquals(sigma, covariance.getCovariance(i, j), EPS);
+      }
+    }
+    final DoubleMatrix2D dense = covariance.getCovarianceMatrix();
+    assertMatrixEquals(new DoubleMatrix2D(expected), dense, EPS);
+    final double[] w = returns[3];
+    final double[] product = covariance.multiply(w);
+    final DoubleMatrix1D expectedProduct = (DoubleMatrix1D) ALGEBRA.multiply(dense, new DoubleMatrix1D(w));
+    for (int i = 0; i < n; i++) {
+      assertEquals(expectedProduct.getEntry(i), product[i], EPS);
+    }
+    assertEquals(ALGEBRA.getInnerProduct(new DoubleMatrix1D(w), expectedProduct), covariance.getVariance(w), EPS);
+  }
+
+  @Test
+  public void testFullRankFactors() {
+    final int n = 6;
+    final ExponentialWeightedMovingAverageCovarianceMatrix covariance = new ExponentialWeightedMovingAverageCovarianceMatrix(n, LAMBDA);
+    for (final double[] r : getReturns(50, n, 0)) {
+      covariance.update(r);
+    }
+    final FactorCovarianceMatrix factors = covariance.getFactorApproximation(n);
+    assertEquals(n, factors.getNumberOfFactors());
+    assertMatrixEquals(covariance.getCovarianceMatrix(), factors.getCovarianceMatrix(), 1e-12);
+  }
+
+  @Test
+  public void testLowRankFactors() {
+    // returns driven by three factors plus small independent noise
+    final int n = 200;
+    final int k = 3;
+    final double[][] returns = getReturns(400, n, k);
+    final ExponentialWeightedMovingAverageCovarianceMatrix covariance = new ExponentialWeightedMovingAverageCovarianceMatrix(n, 0.99);
+    for (final double[] r : returns) {
+      covariance.update(r);
+    }
+    final FactorCovarianceMatrix factors = covariance.getFactorApproximation(k);
+    final DoubleMatrix2D exact = covariance.getCovarianceMatrix();
+    for (int i = 0; i < n; i++) {
+      // variances are exact
+      assertEquals(exact.getEntry(i, i), factors.getCovariance(i, i), 1e-12);
+    }
+    final double[] w = new double[n];
+    for (int i = 0; i < n; i++) {
+      w[i] = RANDOM.nextDouble() - 0.3;
+    }
+    final double variance = covariance.getVariance(w);
+    assertEquals(variance, factors.getVariance(w), 1e-2 * variance);
+    final double[] product = factors.multiply(w);
+    double expected = 0;
+    for (int i = 0; i < n; i++) {
+      expected += w[i] * product[i];
+    }
+    assertEquals(expected, factors.getVariance(w), 1e-12 * variance);
+  }
+
+  private static double[][] getReturns(final int m, final int n, final int nFactors) {
+    final double[][] loadings = new double[n][nFactors];
+    for (int i = 0; i < n; i++) {
+      for (int f = 0; f < nFactors; f++) {
+        loadings[i][f] = RANDOM.nextDouble();
+      }
+    }
+    final double noise = nFactors == 0 ? 0.01 : 0.001;
+    final double[][] returns = new double[m][n];
+    for (int t = 0; t < m; t++) {
+      final double[] z = new double[nFactors];
+      for (int f = 0; f < nFactors; f++) {
+        z[f] = 0.01 * (RANDOM.nextDouble() - 0.5);
+      }
+      for (int i = 0; i < n; i++) {
+        double r = noise * (RANDOM.nextDouble() - 0.5);
+        for (int f = 0; f < nFactors; f++) {
+          r += loadings[i][f] * z[f];
+        }
+        returns[t][i] = r;
+      }
+    }
+    return returns;
+  }
+
+  private static void assertMatrixEquals(final DoubleMatrix2D expected, final DoubleMatrix2D actual, final double eps) {
+    assertEquals(expected.getNumberOfRows(), actual.getNumberOfRows());
+    assertEquals(expected.getNumberOfColumns(), actual.getNumberOfColumns());
+    for (int i = 0; i < expected.getNumberOfRows(); i++) {
+      for (int j = 0; j < expected.getNumberOfColumns(); j++) {
+        assertEquals(expected.getEntry(i, j), actual.getEntry(i, j), eps);
+      }
+    }
+  }
+
+}
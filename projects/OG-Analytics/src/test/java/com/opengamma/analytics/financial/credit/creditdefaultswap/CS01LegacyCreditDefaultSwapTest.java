@@ -5,6 +5,8 @@
  */
 package com.opengamma.analytics.financial.credit.creditdefaultswap;
 
+import static org.testng.AssertJUnit.assertEquals;
+
 import javax.time.calendar.TimeZone;
 import javax.time.calendar.ZonedDateTime;
 
@@ -19,6 +21,7 @@ import com.opengamma.analytics.financial.credit.StubType;
 import com.opengamma.analytics.financial.credit.cds.ISDACurve;
 import com.opengamma.analytics.financial.credit.creditdefaultswap.definition.LegacyCreditDefaultSwapDefinition;
 import com.opengamma.analytics.financial.credit.creditdefaultswap.pricing.CS01LegacyCreditDefaultSwap;
+import com.opengamma.analytics.financial.credit.creditdefaultswap.pricing.LegacyCreditDefaultSwapPricingEngine;
 import com.opengamma.analytics.financial.credit.creditdefaultswap.pricing.PresentValueLegacyCreditDefaultSwap;
 import com.opengamma.analytics.financial.credit.hazardratemodel.CalibrateHazardRateCurve;
 import com.opengamma.analytics.financial.credit.hazardratemodel.HazardRateCurve;
@@ -602,4 +605,79 @@ public class CS01LegacyCreditDefaultSwapTest {
     // -------------------------------------------------------------------------------------
   }
 
+  // -----------------------------------------------------------------------------------------------
+
+  @Test
+  public void testPricingEngine() {
+
+    final LegacyCreditDefaultSwapPricingEngine engine = new LegacyCreditDefaultSwapPricingEngine();
+
+    // The engine must reproduce the PV of the leg-by-leg calculator
+    final PresentValueLegacyCreditDefaultSwap creditDefaultSwap = new PresentValueLegacyCreditDefaultSwap();
+    final double presentValue = creditDefaultSwap.getPresentValueCreditDefaultSwap(cds, yieldCurve, hazardRateCurve);
+    assertEquals(presentValue, engine.getPresentValueCreditDefaultSwap(cds, yieldCurve, hazardRateTimes, hazardRates), 1.0e-8 * cds.getNotional());
+
+    // The analytic hazard rate sensitivities must match finite differences
+    final double[] sensitivities = engine.getPresentValueHazardRateSensitivityCreditDefaultSwap(cds, yieldCurve, hazardRateTimes, hazardRates);
+    assertEquals(presentValue, sensitivities[0], 1.0e-8 * cds.getNotional());
+    final double hazardRateBump = 1.0e-6;
+    for (int i = 0; i < hazardRates.length; i++) {
+      final double[] bumpedHazardRates = hazardRates.clone();
+      bumpedHazardRates[i] += hazardRateBump;
+      final double up = engine.getPresentValueCreditDefaultSwap(cds, yieldCurve, hazardRateTimes, bumpedHazardRates);
+      bumpedHazardRates[i] -= 2 * hazardRateBump;
+      final double down = engine.getPresentValueCreditDefaultSwap(cds, yieldCurve, hazardRateTimes, bumpedHazardRates);
+      assertEquals((up - down) / (2 * hazardRateBump), sensitivities[i + 1], 1.0e-5 * cds.getNotional());
+    }
+
+    final int numberOfCalibrationCDS = 8;
+    final ZonedDateTime[] tenors = new ZonedDateTime[] {DateUtils.getUTCDate(2008, 12, 20), DateUtils.getUTCDate(2009, 6, 20), DateUtils.getUTCDate(2010, 6, 20),
+      DateUtils.getUTCDate(2011, 6, 20), DateUtils.getUTCDate(2012, 6, 20), DateUtils.getUTCDate(2013, 6, 20), DateUtils.getUTCDate(2015, 6, 20),
+      DateUtils.getUTCDate(2018, 6, 20) };
+    final double[] marketSpreads = new double[] {100.0, 150.0, 200.0, 250.0, 300.0, 350.0, 400.0, 450.0 };
+
+    // The engine must reproduce the calibration of the bootstrapper
+    final double[] calibratedHazardRates = new CalibrateHazardRateCurve().getCalibratedHazardRateTermStructure(cds, tenors, marketSpreads, yieldCurve);
+    final double[] engineHazardRates = engine.getCalibratedHazardRateTermStructure(cds, tenors, marketSpreads, yieldCurve);
+    for (int m = 0; m < numberOfCalibrationCDS; m++) {
+      assertEquals(calibratedHazardRates[m], engineHazardRates[m], 1.0e-8);
+    }
+
+    // The analytic bucketed CS01 must match a recalibration with bumped spreads
+    final double[] times = new double[numberOfCalibrationCDS];
+    for (int m = 0; m < numberOfCalibrationCDS; m++) {
+      times[m] = s_act365.getDayCountFraction(cds.getValuationDate(), tenors[m]);
+    }
+    final double[] bucketedCS01 = engine.getCS01BucketedCreditDefaultSwap(cds, yieldCurve, tenors, marketSpreads);
+    final double spreadBump = 1.0e-3;
+    double parallelCS01 = 0.0;
+    for (int m = 0; m < numberOfCalibrationCDS; m++) {
+      final double[] bumpedMarketSpreads = marketSpreads.clone();
+      bumpedMarketSpreads[m] += spreadBump;
+      final double up = engine.getPresentValueCreditDefaultSwap(cds, yieldCurve, times, engine.getCalibratedHazardRateTermStructure(cds, tenors, bumpedMarketSpreads, yieldCurve));
+      bumpedMarketSpreads[m] -= 2 * spreadBump;
+      final double down = engine.getPresentValueCreditDefaultSwap(cds, yieldCurve, times, engine.getCalibratedHazardRateTermStructure(cds, tenors, bumpedMarketSpreads, yieldCurve));
+      assertEquals((up - down) / (2 * spreadBump), bucketedCS01[m], 1.0e-6 * cds.getNotional());
+      parallelCS01 += bucketedCS01[m];
+    }
+    assertEquals(parallelCS01, engine.getCS01ParallelShiftCreditDefaultSwap(cds, yieldCurve, tenors, marketSpreads, SpreadBumpType.ADDITIVE_PARALLEL), 1.0e-10 * cds.getNotional());
+  }
+
+  @Test
+  public void testPricingEngineCacheBound() {
+
+    final LegacyCreditDefaultSwapPricingEngine engine = new LegacyCreditDefaultSwapPricingEngine(100, 1e-15, 2);
+    final double presentValue = engine.getPresentValueCreditDefaultSwap(cds, yieldCurve, hazardRateTimes, hazardRates);
+    for (int i = 0; i < 5; i++) {
+      final double[] times = hazardRateTimes.clone();
+      times[times.length - 1] += 0.1 * (i + 1);
+      engine.getPresentValueCreditDefaultSwap(cds, yieldCurve, times, hazardRates);
+      assertEquals(true, engine.getCacheSize() <= 2);
+    }
+    // An evicted schedule is rebuilt with the same result
+    assertEquals(presentValue, engine.getPresentValueCreditDefaultSwap(cds, yieldCurve, hazardRateTimes, hazardRates), 0.0);
+    engine.clearCache();
+    assertEquals(0, engine.getCacheSize());
+  }
+
 }
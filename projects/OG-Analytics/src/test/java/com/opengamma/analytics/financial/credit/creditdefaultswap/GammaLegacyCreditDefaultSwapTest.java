@@ -5,6 +5,8 @@
  */
 package com.opengamma.analytics.financial.credit.creditdefaultswap;
 
+import static org.testng.AssertJUnit.assertEquals;
+
 import javax.time.calendar.TimeZone;
 import javax.time.calendar.ZonedDateTime;
 
@@ -19,6 +21,8 @@ import com.opengamma.analytics.financial.credit.StubType;
 import com.opengamma.analytics.financial.credit.cds.ISDACurve;
 import com.opengamma.analytics.financial.credit.creditdefaultswap.definition.LegacyCreditDefaultSwapDefinition;
 import com.opengamma.analytics.financial.credit.creditdefaultswap.pricing.CS01LegacyCreditDefaultSwap;
+import com.opengamma.analytics.financial.credit.creditdefaultswap.pricing.GammaLegacyCreditDefaultSwap;
+import com.opengamma.analytics.financial.credit.creditdefaultswap.pricing.LegacyCreditDefaultSwapPricingEngine;
 import com.opengamma.analytics.financial.credit.hazardratemodel.HazardRateCurve;
 import com.opengamma.analytics.financial.credit.obligormodel.CreditRating;
 import com.opengamma.analytics.financial.credit.obligormodel.CreditRatingFitch;
@@ -459,4 +463,39 @@ public class GammaLegacyCreditDefaultSwapTest {
     // -------------------------------------------------------------------------------------
   }
 
+  // -----------------------------------------------------------------------------------------------
+
+  @Test
+  public void testGammaAgainstRecalibration() {
+
+    final int numberOfCalibrationCDS = 8;
+    final ZonedDateTime[] tenors = new ZonedDateTime[] {DateUtils.getUTCDate(2008, 12, 20), DateUtils.getUTCDate(2009, 6, 20), DateUtils.getUTCDate(2010, 6, 20),
+      DateUtils.getUTCDate(2011, 6, 20), DateUtils.getUTCDate(2012, 6, 20), DateUtils.getUTCDate(2013, 6, 20), DateUtils.getUTCDate(2015, 6, 20),
+      DateUtils.getUTCDate(2018, 6, 20) };
+    final double[] marketSpreads = new double[] {100.0, 150.0, 200.0, 250.0, 300.0, 350.0, 400.0, 450.0 };
+    final double spreadBump = 1.0;
+
+    final GammaLegacyCreditDefaultSwap gamma = new GammaLegacyCreditDefaultSwap();
+    final double parallelGamma = gamma.getGammaParallelShiftCreditDefaultSwap(cds, yieldCurve, tenors, marketSpreads, spreadBump, SpreadBumpType.ADDITIVE_PARALLEL);
+
+    // The gamma must match the second difference of the PV with the hazard rates recalibrated to the bumped spreads
+    final LegacyCreditDefaultSwapPricingEngine engine = new LegacyCreditDefaultSwapPricingEngine();
+    final double[] times = new double[numberOfCalibrationCDS];
+    final double[] bumpedUpMarketSpreads = new double[numberOfCalibrationCDS];
+    final double[] bumpedDownMarketSpreads = new double[numberOfCalibrationCDS];
+    for (int m = 0; m < numberOfCalibrationCDS; m++) {
+      times[m] = s_act365.getDayCountFraction(cds.getValuationDate(), tenors[m]);
+      bumpedUpMarketSpreads[m] = marketSpreads[m] + spreadBump;
+      bumpedDownMarketSpreads[m] = marketSpreads[m] - spreadBump;
+    }
+    final double up = engine.getPresentValueCreditDefaultSwap(cds, yieldCurve, times, engine.getCalibratedHazardRateTermStructure(cds, tenors, bumpedUpMarketSpreads, yieldCurve));
+    final double base = engine.getPresentValueCreditDefaultSwap(cds, yieldCurve, times, engine.getCalibratedHazardRateTermStructure(cds, tenors, marketSpreads, yieldCurve));
+    final double down = engine.getPresentValueCreditDefaultSwap(cds, yieldCurve, times, engine.getCalibratedHazardRateTermStructure(cds, tenors, bumpedDownMarketSpreads, yieldCurve));
+    final double secondDifference = (up - 2 * base + down) / (spreadBump * spreadBump);
+    assertEquals(secondDifference, parallelGamma, 1.0e-3 * Math.abs(secondDifference) + 1.0e-10 * cds.getNotional());
+
+    // A second call reuses the cached schedules and gives the same gamma
+    assertEquals(parallelGamma, gamma.getGammaParallelShiftCreditDefaultSwap(cds, yieldCurve, tenors, marketSpreads, spreadBump, SpreadBumpType.ADDITIVE_PARALLEL), 0.0);
+  }
+
 }
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.interestrate;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.time.calendar.Period;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.financial.instrument.index.IborIndex;
+import com.opengamma.analytics.financial.interestrate.annuity.derivative.AnnuityCouponFixed;
+import com.opengamma.analytics.financial.interestrate.annuity.derivative.AnnuityPaymentFixed;
+import com.opengamma.analytics.financial.interestrate.bond.definition.BondFixedSecurity;
+import com.opengamma.analytics.financial.interestrate.cash.derivative.Cash;
+import com.opengamma.analytics.financial.interestrate.fra.ForwardRateAgreement;
+import com.opengamma.analytics.financial.interestrate.future.derivative.InterestRateFuture;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.PaymentFixed;
+import com.opengamma.analytics.financial.interestrate.swap.derivative.FixedFloatSwap;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldCurve;
+import com.opengamma.analytics.math.curve.InterpolatedDoublesCurve;
+import com.opengamma.analytics.math.interpolation.CombinedInterpolatorExtrapolatorFactory;
+import com.opengamma.analytics.math.interpolation.Interpolator1D;
+import com.opengamma.analytics.math.interpolation.Interpolator1DFactory;
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.financial.convention.businessday.BusinessDayConventionFactory;
+import com.opengamma.financial.convention.calendar.MondayToFridayCalendar;
+import com.opengamma.financial.convention.daycount.DayCountFactory;
+import com.opengamma.financial.convention.yield.SimpleYieldConvention;
+import com.opengamma.util.money.Currency;
+
+/**
+ *
+ */
+public class CashFlowTableTest {
+  private static final Currency CUR = Currency.USD;
+  private static final String FUNDING_CURVE_NAME = "Funding";
+  private static final String FORWARD_CURVE_NAME = "Forward";
+  private static final YieldCurveBundle CURVES = new YieldCurveBundle();
+  private static final IborIndex INDEX = new IborIndex(CUR, Period.ofMonths(3), 2, new MondayToFridayCalendar("A"), DayCountFactory.INSTANCE.getDayCount("Actual/360"),
+      BusinessDayConventionFactory.INSTANCE.getBusinessDayConvention("Modified Following"), true);
+  private static final List<InstrumentDerivative> TRADES = new ArrayList<InstrumentDerivative>();
+  private static final PresentValueCalculator PVC = PresentValueCalculator.getInstance();
+  private static final ParRateCalculator PRC = ParRateCalculator.getInstance();
+  private static final double EPS = 1e-10;
+
+  static {
+    final Interpolator1D interpolator = CombinedInterpolatorExtrapolatorFactory.getInterpolator(Interpolator1DFactory.DOUBLE_QUADRATIC, Interpolator1DFactory.LINEAR_EXTRAPOLATOR,
+        Interpolator1DFactory.FLAT_EXTRAPOLATOR);
+    final double[] nodes = new double[] {0.25, 0.5, 1, 2, 3, 5, 7, 10};
+    final double[] funding = new double[nodes.length];
+    final double[] forward = new double[nodes.length];
+    for (int i = 0; i < nodes.length; i++) {
+      funding[i] = 0.01 + 0.002 * nodes[i];
+      forward[i] = 0.012 + 0.0025 * nodes[i] - 0.0001 * nodes[i] * nodes[i];
+    }
+    CURVES.setCurve(FUNDING_CURVE_NAME, YieldCurve.from(InterpolatedDoublesCurve.fromSorted(nodes, funding, interpolator)));
+    CURVES.setCurve(FORWARD_CURVE_NAME, YieldCurve.from(InterpolatedDoublesCurve.fromSorted(nodes, forward, interpolator)));
+
+    for (int k = 1; k <= 10; k++) {
+      final double[] fixedPaymentTimes = new double[k];
+      final double[] floatPaymentTimes = new double[2 * k];
+      for (int i = 0; i < 2 * k; i++) {
+        if (i % 2 == 1) {
+          fixedPaymentTimes[i / 2] = (i + 1) * 0.5;
+        }
+        floatPaymentTimes[i] = (i + 1) * 0.5;
+      }
+      TRADES.add(new FixedFloatSwap(CUR, fixedPaymentTimes, floatPaymentTimes, INDEX, 0.02 + 0.001 * k, FUNDING_CURVE_NAME, FORWARD_CURVE_NAME, k % 2 == 0));
+    }
+    for (int k = 1; k <= 6; k++) {
+      final double start = 0.25 * k;
+      TRADES.add(new ForwardRateAgreement(CUR, start, FUNDING_CURVE_NAME, 0.25, 1000 * k, INDEX, start - 0.01, start, start + 0.25, 0.26, 0.015, FORWARD_CURVE_NAME));
+      TRADES.add(new Cash(CUR, 0.01, start, 100, 0.011, start - 0.01, FUNDING_CURVE_NAME));
+    }
+    final AnnuityPaymentFixed nominal = new AnnuityPaymentFixed(new PaymentFixed[] {new PaymentFixed(CUR, 3, 1, FUNDING_CURVE_NAME)});
+    final AnnuityCouponFixed coupon = new AnnuityCouponFixed(CUR, new double[] {0.5, 1, 1.5, 2, 2.5, 3}, 0.03, FUNDING_CURVE_NAME, false);
+    TRADES.add(new BondFixedSecurity(nominal, coupon, 0, 0, 0.5, SimpleYieldConvention.TRUE, 2, FUNDING_CURVE_NAME, "S"));
+  }
+
+  @Test(expectedExceptions = UnsupportedOperationException.class)
+  public void testUnsupported() {
+    CashFlowTableCompiler.getInstance().compile(new InterestRateFuture(1.453, INDEX, 1.453, 1.75, 0.267, 0.0, 1000000, 0.25, 1, "name", FUNDING_CURVE_NAME, FORWARD_CURVE_NAME));
+  }
+
+  @Test
+  public void testSharedPoints() {
+    final CashFlowTable table = CashFlowTableCompiler.getInstance().compile(TRADES);
+    assertEquals(TRADES.size(), table.getNumberOfTrades());
+    assertEquals(2, table.getCurveNames().length);
+    // the swaps all pay on the same half-yearly grid
+    assertTrue(table.getNumberOfPoints() < table.getNumberOfCashFlows());
+  }
+
+  @Test
+  public void testPresentValue() {
+    final CashFlowTable table = CashFlowTableCompiler.getInstance().compile(TRADES);
+    final double[] pv = table.presentValues(CURVES);
+    double total = 0;
+    for (int i = 0; i < TRADES.size(); i++) {
+      final double expected = PVC.visit(TRADES.get(i), CURVES);
+      assertEquals(expected, pv[i], EPS * Math.max(1, Math.abs(expected)));
+      total += expected;
+    }
+    assertEquals(total, table.presentValue(CURVES), EPS * Math.abs(total));
+  }
+
+  @Test
+  public void testParRate() {
+    final CashFlowTable table = CashFlowTableCompiler.getInstance().compile(TRADES);
+    final double[] parRates = table.parRates(CURVES);
+    for (int i = 0; i < TRADES.size(); i++) {
+      assertEquals(PRC.visit(TRADES.get(i), CURVES), parRates[i], EPS);
+    }
+  }
+
+  @Test
+  public void testNodeSensitivity() {
+    final CashFlowTable table = CashFlowTableCompiler.getInstance().compile(TRADES);
+    final DoubleMatrix1D expected = PresentValueNodeSensitivityCalculator.getDefaultInstance().calculateSensitivities(TRADES, null, CURVES);
+    final DoubleMatrix1D result = table.presentValueNodeSensitivity(null, CURVES);
+    assertEquals(expected.getNumberOfElements(), result.getNumberOfElements());
+    for (int i = 0; i < expected.getNumberOfElements(); i++) {
+      assertEquals(expected.getEntry(i), result.getEntry(i), 1e-8);
+    }
+  }
+
+}
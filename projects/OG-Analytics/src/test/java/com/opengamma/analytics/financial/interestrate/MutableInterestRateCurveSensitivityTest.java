@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.interestrate;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import cern.jet.random.engine.MersenneTwister;
+import cern.jet.random.engine.MersenneTwister64;
+import cern.jet.random.engine.RandomEngine;
+
+import com.opengamma.analytics.financial.model.interestrate.curve.DiscountCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldCurve;
+import com.opengamma.analytics.math.curve.InterpolatedDoublesCurve;
+import com.opengamma.analytics.math.interpolation.CombinedInterpolatorExtrapolatorFactory;
+import com.opengamma.analytics.math.interpolation.Interpolator1D;
+import com.opengamma.analytics.math.interpolation.Interpolator1DFactory;
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.util.tuple.DoublesPair;
+
+/**
+ *
+ */
+public class MutableInterestRateCurveSensitivityTest {
+  private static final RandomEngine RANDOM = new MersenneTwister64(MersenneTwister.DEFAULT_SEED);
+  private static final String YIELD_NAME = "Yield";
+  private static final String DISCOUNT_NAME = "Discount";
+  private static final double[] NODES = new double[] {0.25, 0.5, 1, 2, 3, 5, 7, 10};
+  private static final YieldCurveBundle CURVES = new YieldCurveBundle();
+  private static final double EPS = 1e-12;
+
+  static {
+    final Interpolator1D interpolator = CombinedInterpolatorExtrapolatorFactory.getInterpolator(Interpolator1DFactory.NATURAL_CUBIC_SPLINE, Interpolator1DFactory.LINEAR_EXTRAPOLATOR,
+        Interpolator1DFactory.FLAT_EXTRAPOLATOR);
+    final double[] yields = new double[NODES.length];
+    final double[] dfs = new double[NODES.length];
+    for (int i = 0; i < NODES.length; i++) {
+      yields[i] = 0.01 + 0.003 * NODES[i];
+      dfs[i] = Math.exp(-yields[i] * NODES[i]);
+    }
+    CURVES.setCurve(YIELD_NAME, YieldCurve.from(InterpolatedDoublesCurve.fromSorted(NODES, yields, interpolator)));
+    CURVES.setCurve(DISCOUNT_NAME, DiscountCurve.from(InterpolatedDoublesCurve.fromSorted(NODES, dfs, interpolator)));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullName() {
+    new MutableInterestRateCurveSensitivity().add(null, 1, 1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testAddToSelf() {
+    final MutableInterestRateCurveSensitivity sensitivity = new MutableInterestRateCurveSensitivity().add(YIELD_NAME, 1, 1);
+    sensitivity.add(sensitivity);
+  }
+
+  @Test
+  public void testAccumulation() {
+    final Map<String, List<DoublesPair>> map1 = randomSensitivities(40);
+    final Map<String, List<DoublesPair>> map2 = randomSensitivities(30);
+    final MutableInterestRateCurveSensitivity sensitivity = MutableInterestRateCurveSensitivity.of(map1);
+    sensitivity.add(MutableInterestRateCurveSensitivity.of(map2), -2.0).multiplyBy(3.0);
+    final InterestRateCurveSensitivity expected = new InterestRateCurveSensitivity(map1).plus(new InterestRateCurveSensitivity(map2).multipliedBy(-2.0)).multipliedBy(3.0);
+    for (final String name : expected.getCurves()) {
+      assertEquals(expected.getSensitivities().get(name).size(), sensitivity.size(name));
+      assertEquals(expected.totalSensitivityByCurve().get(name), sensitivity.totalSensitivity(name), EPS);
+    }
+    assertTrue(InterestRateCurveSensitivityUtils.compare(expected.cleaned().getSensitivities(), sensitivity.clean().getSensitivities(), EPS));
+  }
+
+  @Test
+  public void testClean() {
+    final MutableInterestRateCurveSensitivity sensitivity = new MutableInterestRateCurveSensitivity();
+    sensitivity.add(YIELD_NAME, 0.23, 12.3).add(YIELD_NAME, 0.231, -12.3).add(YIELD_NAME, 1.23, 1.0).add(YIELD_NAME, 0.23, -12.3);
+    sensitivity.add(YIELD_NAME, 1.23, 3.24).add(YIELD_NAME, 1.78, -3.24).add(YIELD_NAME, 1.23, -1.0).add(YIELD_NAME, 1.23, 1.0);
+    sensitivity.add(DISCOUNT_NAME, 2.0, 1.0).add(DISCOUNT_NAME, 2.0, -1.0);
+    sensitivity.clean(1e-9, 1e-12);
+    assertEquals(1, sensitivity.getCurves().size());
+    assertEquals(0, sensitivity.size(DISCOUNT_NAME));
+    final double[] times = sensitivity.getTimes(YIELD_NAME);
+    final double[] values = sensitivity.getValues(YIELD_NAME);
+    assertEquals(3, times.length);
+    assertEquals(0.231, times[0], 0);
+    assertEquals(1.23, times[1], 0);
+    assertEquals(1.78, times[2], 0);
+    assertEquals(-12.3, values[0], EPS);
+    assertEquals(4.24, values[1], EPS);
+    assertEquals(-3.24, values[2], EPS);
+  }
+
+  @Test
+  public void testCleanLarge() {
+    final Map<String, List<DoublesPair>> map = randomSensitivities(500);
+    final Map<String, List<DoublesPair>> expected = InterestRateCurveSensitivityUtils.clean(map, 0, 0);
+    final Map<String, List<DoublesPair>> result = MutableInterestRateCurveSensitivity.of(map).clean().getSensitivities();
+    assertEquals(expected.keySet(), result.keySet());
+    assertTrue(InterestRateCurveSensitivityUtils.compare(expected, result, EPS));
+  }
+
+  @Test
+  public void testNodeSensitivities() {
+    final PresentValueNodeSensitivityCalculator calculator = PresentValueNodeSensitivityCalculator.getDefaultInstance();
+    final Map<String, List<DoublesPair>> map1 = randomSensitivities(25);
+    final Map<String, List<DoublesPair>> map2 = randomSensitivities(25);
+    final MutableInterestRateCurveSensitivity sensitivity = MutableInterestRateCurveSensitivity.of(map1).add(map2);
+    final double[] expected = calculator.curveToNodeSensitivities(map1, CURVES).getData();
+    final double[] expected2 = calculator.curveToNodeSensitivities(map2, CURVES).getData();
+    final DoubleMatrix1D result = calculator.curveToNodeSensitivities(sensitivity, CURVES);
+    final DoubleMatrix1D cleaned = calculator.curveToNodeSensitivities(sensitivity.clean(), CURVES);
+    assertEquals(2 * NODES.length, result.getNumberOfElements());
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i] + expected2[i], result.getEntry(i), 1e-9);
+      assertEquals(result.getEntry(i), cleaned.getEntry(i), 1e-9);
+    }
+    // one curve at a time
+    final double[] yieldNodes = calculator.curveToNodeSensitivities(map1.get(YIELD_NAME), CURVES.getCurve(YIELD_NAME)).getData();
+    final double[] discountNodes = calculator.curveToNodeSensitivities(map1.get(DISCOUNT_NAME), CURVES.getCurve(DISCOUNT_NAME)).getData();
+    for (int i = 0; i < NODES.length; i++) {
+      assertEquals(expected[i], yieldNodes[i], 0);
+      assertEquals(expected[NODES.length + i], discountNodes[i], 0);
+    }
+  }
+
+  @Test
+  public void testMissingCurve() {
+    final MutableInterestRateCurveSensitivity sensitivity = new MutableInterestRateCurveSensitivity().add(DISCOUNT_NAME, 1.5, 100);
+    final DoubleMatrix1D result = PresentValueNodeSensitivityCalculator.getDefaultInstance().curveToNodeSensitivities(sensitivity, CURVES);
+    for (int i = 0; i < NODES.length; i++) {
+      assertEquals(0, result.getEntry(i), 0);
+    }
+  }
+
+  private static Map<String, List<DoublesPair>> randomSensitivities(final int n) {
+    final Map<String, List<DoublesPair>> result = new HashMap<String, List<DoublesPair>>();
+    for (final String name : new String[] {YIELD_NAME, DISCOUNT_NAME}) {
+      final List<DoublesPair> list = new ArrayList<DoublesPair>();
+      for (int i = 0; i < n; i++) {
+        // times on a coarse grid so that some coincide
+        list.add(new DoublesPair(0.25 * (1 + (int) (48 * RANDOM.nextDouble())), RANDOM.nextDouble() - 0.5));
+      }
+      result.put(name, list);
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.interestrate;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.List;
+
+import javax.time.calendar.Period;
+import javax.time.calendar.ZonedDateTime;
+
+import org.testng.annotations.Test;
+
+import cern.jet.random.engine.MersenneTwister;
+
+import com.opengamma.analytics.financial.instrument.index.IborIndex;
+import com.opengamma.analytics.financial.instrument.index.IndexSwap;
+import com.opengamma.analytics.financial.instrument.swap.SwapFixedIborDefinition;
+import com.opengamma.analytics.financial.instrument.swaption.SwaptionPhysicalFixedIborDefinition;
+import com.opengamma.analytics.financial.interestrate.method.PricingMethod;
+import com.opengamma.analytics.financial.interestrate.method.SensitivityFiniteDifference;
+import com.opengamma.analytics.financial.interestrate.swaption.derivative.SwaptionPhysicalFixedIbor;
+import com.opengamma.analytics.financial.model.interestrate.TestsDataSetHullWhite;
+import com.opengamma.analytics.financial.model.interestrate.definition.HullWhiteOneFactorPiecewiseConstantDataBundle;
+import com.opengamma.analytics.financial.montecarlo.HullWhiteMonteCarloMethod;
+import com.opengamma.analytics.financial.schedule.ScheduleCalculator;
+import com.opengamma.analytics.math.random.NormalRandomNumberGenerator;
+import com.opengamma.financial.convention.businessday.BusinessDayConvention;
+import com.opengamma.financial.convention.businessday.BusinessDayConventionFactory;
+import com.opengamma.financial.convention.calendar.Calendar;
+import com.opengamma.financial.convention.calendar.MondayToFridayCalendar;
+import com.opengamma.financial.convention.daycount.DayCount;
+import com.opengamma.financial.convention.daycount.DayCountFactory;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.money.CurrencyAmount;
+import com.opengamma.util.time.DateUtils;
+import com.opengamma.util.tuple.DoublesPair;
+
+/**
+ * Tests the present value curve sensitivity calculator in the Hull-White one factor model by Monte Carlo.
+ */
+public class PresentValueCurveSensitivityHullWhiteMonteCarloCalculatorTest {
+  // Swaption 5Yx5Y
+  private static final Currency CUR = Currency.USD;
+  private static final Calendar CALENDAR = new MondayToFridayCalendar("A");
+  private static final BusinessDayConvention BUSINESS_DAY = BusinessDayConventionFactory.INSTANCE.getBusinessDayConvention("Modified Following");
+  private static final int SETTLEMENT_DAYS = 2;
+  private static final DayCount IBOR_DAY_COUNT = DayCountFactory.INSTANCE.getDayCount("Actual/360");
+  private static final IborIndex IBOR_INDEX = new IborIndex(CUR, Period.ofMonths(3), SETTLEMENT_DAYS, CALENDAR, IBOR_DAY_COUNT, BUSINESS_DAY, true);
+  private static final IndexSwap CMS_INDEX = new IndexSwap(Period.ofMonths(6), DayCountFactory.INSTANCE.getDayCount("30/360"), IBOR_INDEX, Period.ofYears(5));
+  private static final ZonedDateTime EXPIRY_DATE = DateUtils.getUTCDate(2016, 7, 7);
+  private static final ZonedDateTime SETTLEMENT_DATE = ScheduleCalculator.getAdjustedDate(EXPIRY_DATE, SETTLEMENT_DAYS, CALENDAR);
+  private static final double NOTIONAL = 100000000; //100m
+  private static final double RATE = 0.0325;
+  private static final SwapFixedIborDefinition SWAP_PAYER_DEFINITION = SwapFixedIborDefinition.from(SETTLEMENT_DATE, CMS_INDEX, NOTIONAL, RATE, true);
+  private static final SwaptionPhysicalFixedIborDefinition SWAPTION_PAYER_LONG_DEFINITION = SwaptionPhysicalFixedIborDefinition.from(EXPIRY_DATE, SWAP_PAYER_DEFINITION, true);
+  private static final ZonedDateTime REFERENCE_DATE = DateUtils.getUTCDate(2011, 7, 7);
+  private static final String[] CURVES_NAME = {"Funding", "Forward"};
+  private static final String BUMPED_CURVE_NAME = "Bumped Curve";
+  private static final SwaptionPhysicalFixedIbor SWAPTION_PAYER_LONG = SWAPTION_PAYER_LONG_DEFINITION.toDerivative(REFERENCE_DATE, CURVES_NAME);
+
+  private static final int NB_PATH = 2000;
+  private static final double SHIFT = 1.0E-6;
+
+  private static HullWhiteOneFactorPiecewiseConstantDataBundle createBundle() {
+    return new HullWhiteOneFactorPiecewiseConstantDataBundle(TestsDataSetHullWhite.createHullWhiteParameters(), TestsDataSetsSABR.createCurves1());
+  }
+
+  /**
+   * Monte Carlo present value using a new generator with the calculator's seed for each valuation, so that the bumped valuations use the same paths.
+   */
+  private static final PricingMethod METHOD_MC_SAME_PATHS = new PricingMethod() {
+    @Override
+    public CurrencyAmount presentValue(final InstrumentDerivative instrument, final YieldCurveBundle curves) {
+      final SwaptionPhysicalFixedIbor swaption = (SwaptionPhysicalFixedIbor) instrument;
+      final HullWhiteMonteCarloMethod methodMC = new HullWhiteMonteCarloMethod(new NormalRandomNumberGenerator(0.0, 1.0, new MersenneTwister(MersenneTwister.DEFAULT_SEED)), NB_PATH);
+      return methodMC.presentValue(swaption, swaption.getCurrency(), swaption.getUnderlyingSwap().getFirstLeg().getDiscountCurve(), (HullWhiteOneFactorPiecewiseConstantDataBundle) curves);
+    }
+  };
+
+  @Test
+  /**
+   * Tests the curve sensitivity against the finite difference of the Monte Carlo present value with the same paths.
+   */
+  public void presentValueCurveSensitivityFiniteDifference() {
+    final PresentValueCurveSensitivityHullWhiteMonteCarloCalculator calculator = new PresentValueCurveSensitivityHullWhiteMonteCarloCalculator(NB_PATH);
+    final InterestRateCurveSensitivity pvcs = new InterestRateCurveSensitivity(SWAPTION_PAYER_LONG.accept(calculator, createBundle())).cleaned();
+    final double tolerance = 1.0E+2;
+    for (int loopcurve = 0; loopcurve < CURVES_NAME.length; loopcurve++) {
+      final String[] bumpedNames = CURVES_NAME.clone();
+      bumpedNames[loopcurve] = BUMPED_CURVE_NAME;
+      final SwaptionPhysicalFixedIbor swaptionBumped = SWAPTION_PAYER_LONG_DEFINITION.toDerivative(REFERENCE_DATE, bumpedNames);
+      final List<DoublesPair> sensi = pvcs.getSensitivities().get(CURVES_NAME[loopcurve]);
+      final double[] nodeTimes = nodeTimes(sensi);
+      final double[] sensiFD = SensitivityFiniteDifference.curveSensitivity(swaptionBumped, createBundle(), CURVES_NAME[loopcurve], BUMPED_CURVE_NAME, nodeTimes, SHIFT,
+          METHOD_MC_SAME_PATHS);
+      for (int loopnode = 0; loopnode < nodeTimes.length; loopnode++) {
+        assertEquals("Curve sensitivity MC: " + CURVES_NAME[loopcurve] + " node " + loopnode, sensiFD[loopnode], sensi.get(sensi.size() - nodeTimes.length + loopnode).second, tolerance);
+      }
+    }
+  }
+
+  @Test
+  /**
+   * Tests that each visit uses a new generator with the same seed, so that repeated visits give the same result.
+   */
+  public void reproducible() {
+    final PresentValueCurveSensitivityHullWhiteMonteCarloCalculator calculator = new PresentValueCurveSensitivityHullWhiteMonteCarloCalculator(NB_PATH);
+    assertEquals(SWAPTION_PAYER_LONG.accept(calculator, createBundle()), SWAPTION_PAYER_LONG.accept(calculator, createBundle()));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void nbPath() {
+    new PresentValueCurveSensitivityHullWhiteMonteCarloCalculator(0);
+  }
+
+  /**
+   * The strictly positive times of a cleaned sensitivity, used as finite difference nodes.
+   * @param sensi The sensitivity.
+   * @return The times.
+   */
+  static double[] nodeTimes(final List<DoublesPair> sensi) {
+    int start = 0;
+    while (start < sensi.size() && sensi.get(start).first <= 0.0) {
+      start++;
+    }
+    assertTrue("No sensitivity", start < sensi.size());
+    final double[] result = new double[sensi.size() - start];
+    for (int loopnode = 0; loopnode < result.length; loopnode++) {
+      result[loopnode] = sensi.get(start + loopnode).first;
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.interestrate;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.List;
+
+import javax.time.calendar.Period;
+import javax.time.calendar.ZonedDateTime;
+
+import org.testng.annotations.Test;
+
+import cern.jet.random.engine.MersenneTwister;
+
+import com.opengamma.analytics.financial.instrument.index.IborIndex;
+import com.opengamma.analytics.financial.instrument.index.IndexSwap;
+import com.opengamma.analytics.financial.instrument.swap.SwapFixedIborDefinition;
+import com.opengamma.analytics.financial.instrument.swaption.SwaptionPhysicalFixedIborDefinition;
+import com.opengamma.analytics.financial.interestrate.method.PricingMethod;
+import com.opengamma.analytics.financial.interestrate.method.SensitivityFiniteDifference;
+import com.opengamma.analytics.financial.interestrate.method.SuccessiveRootFinderCalibrationEngine;
+import com.opengamma.analytics.financial.interestrate.swaption.derivative.SwaptionPhysicalFixedIbor;
+import com.opengamma.analytics.financial.interestrate.swaption.method.SwaptionPhysicalFixedIborSABRMethod;
+import com.opengamma.analytics.financial.interestrate.swaption.method.SwaptionPhysicalHullWhiteCalibrationObjective;
+import com.opengamma.analytics.financial.interestrate.swaption.method.SwaptionPhysicalHullWhiteSuccessiveRootFinderCalibrationEngine;
+import com.opengamma.analytics.financial.model.interestrate.definition.HullWhiteOneFactorPiecewiseConstantDataBundle;
+import com.opengamma.analytics.financial.model.interestrate.definition.HullWhiteOneFactorPiecewiseConstantParameters;
+import com.opengamma.analytics.financial.model.option.definition.SABRInterestRateDataBundle;
+import com.opengamma.analytics.financial.montecarlo.HullWhiteMonteCarloMethod;
+import com.opengamma.analytics.financial.schedule.ScheduleCalculator;
+import com.opengamma.analytics.math.random.NormalRandomNumberGenerator;
+import com.opengamma.financial.convention.businessday.BusinessDayConvention;
+import com.opengamma.financial.convention.businessday.BusinessDayConventionFactory;
+import com.opengamma.financial.convention.calendar.Calendar;
+import com.opengamma.financial.convention.calendar.MondayToFridayCalendar;
+import com.opengamma.financial.convention.daycount.DayCount;
+import com.opengamma.financial.convention.daycount.DayCountFactory;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.money.CurrencyAmount;
+import com.opengamma.util.time.DateUtils;
+import com.opengamma.util.tuple.DoublesPair;
+
+/**
+ * Tests the present value curve sensitivity calculator in the Hull-White one factor model calibrated to SABR prices by Monte Carlo.
+ */
+public class PresentValueCurveSensitivitySABRHullWhiteMonteCarloCalculatorTest {
+  // Swaption 5Yx5Y
+  private static final Currency CUR = Currency.USD;
+  private static final Calendar CALENDAR = new MondayToFridayCalendar("A");
+  private static final BusinessDayConvention BUSINESS_DAY = BusinessDayConventionFactory.INSTANCE.getBusinessDayConvention("Modified Following");
+  private static final int SETTLEMENT_DAYS = 2;
+  private static final DayCount IBOR_DAY_COUNT = DayCountFactory.INSTANCE.getDayCount("Actual/360");
+  private static final IborIndex IBOR_INDEX = new IborIndex(CUR, Period.ofMonths(3), SETTLEMENT_DAYS, CALENDAR, IBOR_DAY_COUNT, BUSINESS_DAY, true);
+  private static final IndexSwap CMS_INDEX = new IndexSwap(Period.ofMonths(6), DayCountFactory.INSTANCE.getDayCount("30/360"), IBOR_INDEX, Period.ofYears(5));
+  private static final ZonedDateTime EXPIRY_DATE = DateUtils.getUTCDate(2016, 7, 7);
+  private static final ZonedDateTime SETTLEMENT_DATE = ScheduleCalculator.getAdjustedDate(EXPIRY_DATE, SETTLEMENT_DAYS, CALENDAR);
+  private static final double NOTIONAL = 100000000; //100m
+  private static final double RATE = 0.0325;
+  private static final SwapFixedIborDefinition SWAP_PAYER_DEFINITION = SwapFixedIborDefinition.from(SETTLEMENT_DATE, CMS_INDEX, NOTIONAL, RATE, true);
+  private static final SwaptionPhysicalFixedIborDefinition SWAPTION_PAYER_LONG_DEFINITION = SwaptionPhysicalFixedIborDefinition.from(EXPIRY_DATE, SWAP_PAYER_DEFINITION, true);
+  private static final ZonedDateTime REFERENCE_DATE = DateUtils.getUTCDate(2011, 7, 7);
+  private static final String[] CURVES_NAME = {"Funding", "Forward"};
+  private static final String BUMPED_CURVE_NAME = "Bumped Curve";
+  private static final SwaptionPhysicalFixedIbor SWAPTION_PAYER_LONG = SWAPTION_PAYER_LONG_DEFINITION.toDerivative(REFERENCE_DATE, CURVES_NAME);
+
+  private static final double MEAN_REVERSION = 0.01;
+  private static final int NB_PATH = 2000;
+  private static final double SHIFT = 1.0E-5;
+
+  private static SABRInterestRateDataBundle createBundle() {
+    return new SABRInterestRateDataBundle(TestsDataSetsSABR.createSABR1(), TestsDataSetsSABR.createCurves1());
+  }
+
+  /**
+   * Calibration of the Hull-White model to the SABR price followed by the Monte Carlo present value, using a new generator with the calculator's seed for each
+   * valuation so that the bumped valuations use the same paths. The calibration accuracy is increased to be negligible with respect to the shift.
+   */
+  private static final PricingMethod METHOD_SABR_HW_MC_SAME_PATHS = new PricingMethod() {
+    @Override
+    public CurrencyAmount presentValue(final InstrumentDerivative instrument, final YieldCurveBundle curves) {
+      final SwaptionPhysicalFixedIbor swaption = (SwaptionPhysicalFixedIbor) instrument;
+      final HullWhiteOneFactorPiecewiseConstantParameters hwParameters = new HullWhiteOneFactorPiecewiseConstantParameters(MEAN_REVERSION, new double[] {0.01}, new double[0]);
+      final SwaptionPhysicalHullWhiteCalibrationObjective objective = new SwaptionPhysicalHullWhiteCalibrationObjective(hwParameters);
+      objective.setVariableAbsoluteAccuracy(1.0E-14);
+      final SuccessiveRootFinderCalibrationEngine calibrationEngine = new SwaptionPhysicalHullWhiteSuccessiveRootFinderCalibrationEngine(objective);
+      calibrationEngine.addInstrument(swaption, SwaptionPhysicalFixedIborSABRMethod.getInstance());
+      calibrationEngine.calibrate(curves);
+      final HullWhiteMonteCarloMethod methodMC = new HullWhiteMonteCarloMethod(new NormalRandomNumberGenerator(0.0, 1.0, new MersenneTwister(MersenneTwister.DEFAULT_SEED)), NB_PATH);
+      return methodMC.presentValue(swaption, swaption.getCurrency(), swaption.getUnderlyingSwap().getFirstLeg().getDiscountCurve(),
+          new HullWhiteOneFactorPiecewiseConstantDataBundle(hwParameters, curves));
+    }
+  };
+
+  @Test
+  /**
+   * Tests the curve sensitivity, including the change of the calibrated volatility, against the finite difference of the calibrated Monte Carlo present value
+   * with the same paths.
+   */
+  public void presentValueCurveSensitivityFiniteDifference() {
+    final PresentValueCurveSensitivitySABRHullWhiteMonteCarloCalculator calculator = new PresentValueCurveSensitivitySABRHullWhiteMonteCarloCalculator(NB_PATH);
+    final InterestRateCurveSensitivity pvcs = new InterestRateCurveSensitivity(SWAPTION_PAYER_LONG.accept(calculator, createBundle())).cleaned();
+    final double tolerance = 1.0E+3;
+    for (int loopcurve = 0; loopcurve < CURVES_NAME.length; loopcurve++) {
+      final String[] bumpedNames = CURVES_NAME.clone();
+      bumpedNames[loopcurve] = BUMPED_CURVE_NAME;
+      final SwaptionPhysicalFixedIbor swaptionBumped = SWAPTION_PAYER_LONG_DEFINITION.toDerivative(REFERENCE_DATE, bumpedNames);
+      final List<DoublesPair> sensi = pvcs.getSensitivities().get(CURVES_NAME[loopcurve]);
+      final double[] nodeTimes = PresentValueCurveSensitivityHullWhiteMonteCarloCalculatorTest.nodeTimes(sensi);
+      final double[] sensiFD = SensitivityFiniteDifference.curveSensitivity(swaptionBumped, createBundle(), CURVES_NAME[loopcurve], BUMPED_CURVE_NAME, nodeTimes, SHIFT,
+          METHOD_SABR_HW_MC_SAME_PATHS);
+      for (int loopnode = 0; loopnode < nodeTimes.length; loopnode++) {
+        assertEquals("Curve sensitivity SABR/HW MC: " + CURVES_NAME[loopcurve] + " node " + loopnode, sensiFD[loopnode], sensi.get(sensi.size() - nodeTimes.length + loopnode).second,
+            tolerance);
+      }
+    }
+  }
+
+  @Test(expectedExceptions = UnsupportedOperationException.class)
+  public void wrongData() {
+    SWAPTION_PAYER_LONG.accept(new PresentValueCurveSensitivitySABRHullWhiteMonteCarloCalculator(), TestsDataSetsSABR.createCurves1());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void nbPath() {
+    new PresentValueCurveSensitivitySABRHullWhiteMonteCarloCalculator(-1);
+  }
+
+}
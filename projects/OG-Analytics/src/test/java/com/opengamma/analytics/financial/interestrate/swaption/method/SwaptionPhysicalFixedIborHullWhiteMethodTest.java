@@ -58,6 +58,7 @@ import com.opengamma.util.money.Currency;
 import com.opengamma.util.money.CurrencyAmount;
 import com.opengamma.util.time.DateUtils;
 import com.opengamma.util.tuple.DoublesPair;
+import com.opengamma.util.tuple.Pair;
 
 /**
  * Tests related to the pricing of physical delivery swaption in Hull-White one factor model.
@@ -281,6 +282,64 @@ public class SwaptionPhysicalFixedIborHullWhiteMethodTest {
     }
   }
 
+  @Test
+  /**
+   * Tests the Hull-White parameters sensitivity in Monte Carlo approach (adjoint algorithmic differentiation) against finite difference on the same paths and against the explicit formula.
+   */
+  public void presentValueHullWhiteSensitivityMonteCarlo() {
+    int nbPath = 12500;
+    HullWhiteMonteCarloMethod methodMC = new HullWhiteMonteCarloMethod(new NormalRandomNumberGenerator(0.0, 1.0, new MersenneTwister()), nbPath);
+    double[] hwSensitivityMC = methodMC.presentValueHullWhiteSensitivity(SWAPTION_PAYER_LONG, FUNDING_CURVE_NAME, BUNDLE_HW);
+    double[] hwSensitivityExplicit = METHOD_HW.presentValueHullWhiteSensitivity(SWAPTION_PAYER_LONG, BUNDLE_HW);
+    int nbVolatility = PARAMETERS_HW.getVolatility().length;
+    assertEquals("Swaption - Hull-White sensitivity Monte Carlo: number of volatilities", nbVolatility, hwSensitivityMC.length);
+    double shiftVol = 1.0E-6;
+    double[] volatilityBumped = new double[nbVolatility];
+    System.arraycopy(PARAMETERS_HW.getVolatility(), 0, volatilityBumped, 0, nbVolatility);
+    double[] volatilityTime = new double[nbVolatility - 1];
+    System.arraycopy(PARAMETERS_HW.getVolatilityTime(), 1, volatilityTime, 0, nbVolatility - 1);
+    HullWhiteOneFactorPiecewiseConstantParameters parametersBumped = new HullWhiteOneFactorPiecewiseConstantParameters(PARAMETERS_HW.getMeanReversion(), volatilityBumped, volatilityTime);
+    HullWhiteOneFactorPiecewiseConstantDataBundle bundleBumped = new HullWhiteOneFactorPiecewiseConstantDataBundle(parametersBumped, CURVES);
+    for (int loopvol = 0; loopvol < nbVolatility; loopvol++) {
+      // Same seed for all the runs: the finite difference is computed on the same paths.
+      volatilityBumped[loopvol] += shiftVol;
+      parametersBumped.setVolatility(volatilityBumped);
+      methodMC = new HullWhiteMonteCarloMethod(new NormalRandomNumberGenerator(0.0, 1.0, new MersenneTwister()), nbPath);
+      double pvBumpedPlus = methodMC.presentValue(SWAPTION_PAYER_LONG, CUR, FUNDING_CURVE_NAME, bundleBumped).getAmount();
+      volatilityBumped[loopvol] -= 2 * shiftVol;
+      parametersBumped.setVolatility(volatilityBumped);
+      methodMC = new HullWhiteMonteCarloMethod(new NormalRandomNumberGenerator(0.0, 1.0, new MersenneTwister()), nbPath);
+      double pvBumpedMinus = methodMC.presentValue(SWAPTION_PAYER_LONG, CUR, FUNDING_CURVE_NAME, bundleBumped).getAmount();
+      double hwSensitivityFD = (pvBumpedPlus - pvBumpedMinus) / (2 * shiftVol);
+      assertEquals("Swaption - Hull-White sensitivity Monte Carlo: adjoint v finite difference " + loopvol, hwSensitivityFD, hwSensitivityMC[loopvol], 1.0E-4 * Math.abs(hwSensitivityFD) + 1.0E+1);
+      assertEquals("Swaption - Hull-White sensitivity Monte Carlo: Monte Carlo v explicit " + loopvol, hwSensitivityExplicit[loopvol], hwSensitivityMC[loopvol],
+          2.0E-2 * Math.abs(hwSensitivityExplicit[loopvol]) + 1.0E+1);
+      volatilityBumped[loopvol] = PARAMETERS_HW.getVolatility()[loopvol];
+    }
+  }
+
+  @Test
+  /**
+   * Tests that the curve and Hull-White parameters sensitivities computed in one simulation are the ones computed separately on the same paths.
+   */
+  public void presentValueCurveAndHullWhiteSensitivityMonteCarlo() {
+    int nbPath = 2500;
+    HullWhiteMonteCarloMethod methodMC = new HullWhiteMonteCarloMethod(new NormalRandomNumberGenerator(0.0, 1.0, new MersenneTwister()), nbPath);
+    Pair<InterestRateCurveSensitivity, double[]> sensitivities = methodMC.presentValueCurveAndHullWhiteSensitivity(SWAPTION_PAYER_LONG, FUNDING_CURVE_NAME, BUNDLE_HW);
+    methodMC = new HullWhiteMonteCarloMethod(new NormalRandomNumberGenerator(0.0, 1.0, new MersenneTwister()), nbPath);
+    InterestRateCurveSensitivity pvcs = methodMC.presentValueCurveSensitivity(SWAPTION_PAYER_LONG, FUNDING_CURVE_NAME, BUNDLE_HW);
+    methodMC = new HullWhiteMonteCarloMethod(new NormalRandomNumberGenerator(0.0, 1.0, new MersenneTwister()), nbPath);
+    double[] hwSensitivity = methodMC.presentValueHullWhiteSensitivity(SWAPTION_PAYER_LONG, FUNDING_CURVE_NAME, BUNDLE_HW);
+    assertEquals("Swaption - curve sensitivity Monte Carlo: curves", pvcs.getSensitivities().keySet(), sensitivities.getFirst().getSensitivities().keySet());
+    for (String curveName : pvcs.getSensitivities().keySet()) {
+      assertSensitivityEquals(pvcs.getSensitivities().get(curveName), sensitivities.getFirst().getSensitivities().get(curveName), 1.0E-2);
+    }
+    assertEquals("Swaption - Hull-White sensitivity Monte Carlo: number of volatilities", hwSensitivity.length, sensitivities.getSecond().length);
+    for (int loopvol = 0; loopvol < hwSensitivity.length; loopvol++) {
+      assertEquals("Swaption - Hull-White sensitivity Monte Carlo: one simulation " + loopvol, hwSensitivity[loopvol], sensitivities.getSecond()[loopvol], 1.0E-2);
+    }
+  }
+
   @Test
   /**
    * Tests the curve sensitivity for the explicit formula.
@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.finitedifference;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.math.function.Function;
+import com.opengamma.analytics.math.function.Function1D;
+import com.opengamma.analytics.math.surface.FunctionalDoublesSurface;
+
+/**
+ * Tests the coefficient sensitivities from {@link ThetaMethodFiniteDifferenceAdjoint} against bumping the coefficients and solving the PDE again.
+ */
+public class ThetaMethodFiniteDifferenceAdjointTest {
+  private static final double VOL = 0.3;
+  private static final double STRIKE = 1.1;
+  private static final double EPS = 1e-6;
+  private static final PDEGrid1D GRID = new PDEGrid1D(new ExponentialMeshing(0, 2.0, 25, 0.0), new HyperbolicMeshing(0.2, 4.0, STRIKE, 60, 0.1));
+  private static final BoundaryCondition LOWER = new DirichletBoundaryCondition(0.0, 0.2);
+  private static final BoundaryCondition UPPER = new NeumannBoundaryCondition(1.0, 4.0, false);
+  private static final Function1D<Double, Double> PAYOFF = new Function1D<Double, Double>() {
+    @Override
+    public Double evaluate(final Double x) {
+      return Math.max(x - STRIKE, 0.0);
+    }
+  };
+
+  @Test
+  public void testDiffusionDominated() {
+    testSensitivities(0.5, 0.05);
+    testSensitivities(1.0, 0.05);
+  }
+
+  @Test
+  public void testExponentialFitting() {
+    testSensitivities(0.5, 2.0);
+    testSensitivities(0.55, 2.0);
+  }
+
+  /**
+   * Crank-Nicolson is unstable here, so only the more implicit schemes are tested
+   */
+  @Test
+  public void testConvectionDominated() {
+    testSensitivities(0.8, 30.0);
+    testSensitivities(1.0, 30.0);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWrongTerminalSensitivityLength() {
+    final ThetaMethodFiniteDifferenceAdjoint adjoint = new ThetaMethodFiniteDifferenceAdjoint(0.5);
+    final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> pdeData = getPDEData(0.05, 0, 0, 0);
+    adjoint.getCoefficientSensitivities(pdeData, adjoint.solve(pdeData), new double[3]);
+  }
+
+  @Test
+  public void testTruncate() {
+    final ThetaMethodFiniteDifferenceAdjoint adjoint = new ThetaMethodFiniteDifferenceAdjoint(0.5);
+    final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> pdeData = getPDEData(0.05, 0, 0, 0);
+    final double[] weights = new double[GRID.getNumSpaceNodes()];
+    weights[30] = 1.0;
+    final double[][][] sensitivities = adjoint.getCoefficientSensitivities(pdeData, adjoint.solve(pdeData), weights);
+    final double tol = 1e-8;
+    final double[][][] truncated = adjoint.truncate(sensitivities, tol);
+    for (int k = 0; k < 3; k++) {
+      double total = 0;
+      double dropped = 0;
+      int count = 0;
+      for (int n = 0; n < GRID.getNumTimeNodes(); n++) {
+        for (int i = 0; i < GRID.getNumSpaceNodes(); i++) {
+          total += Math.abs(sensitivities[k][n][i]);
+          if (truncated[k][n][i] == 0.0) {
+            dropped += Math.abs(sensitivities[k][n][i]);
+            count++;
+          } else {
+            assertEquals(sensitivities[k][n][i], truncated[k][n][i], 0.0);
+          }
+        }
+      }
+      assertTrue(dropped <= tol * total);
+      assertTrue(count > 0);
+    }
+  }
+
+  private void testSensitivities(final double theta, final double drift) {
+    final ThetaMethodFiniteDifferenceAdjoint adjoint = new ThetaMethodFiniteDifferenceAdjoint(theta);
+    final int xNodes = GRID.getNumSpaceNodes();
+    final double[] weights = new double[xNodes];
+    for (int i = 0; i < xNodes; i++) {
+      weights[i] = Math.sin(0.3 * i) * GRID.getSpaceNode(i);
+    }
+    final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> pdeData = getPDEData(drift, 0, 0, 0);
+    final double[][][] coefficients = adjoint.getCoefficientValues((ConvectionDiffusionPDE1DStandardCoefficients) pdeData.getCoefficients(), GRID);
+    final double[][][] sensitivities = adjoint.getCoefficientSensitivities(pdeData, adjoint.solve(pdeData), coefficients, weights);
+    for (int k = 0; k < 3; k++) {
+      final double[] bump = new double[3];
+      bump[k] = EPS;
+      final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> up = getPDEData(drift, bump[0], bump[1], bump[2]);
+      final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> down = getPDEData(drift, -bump[0], -bump[1], -bump[2]);
+      final double fd = (getValue(adjoint.solve(up), weights) - getValue(adjoint.solve(down), weights)) / 2 / EPS;
+      final double sense = (adjoint.getSensitivity(sensitivities, GRID, coefficients, (ConvectionDiffusionPDE1DStandardCoefficients) up.getCoefficients())
+          - adjoint.getSensitivity(sensitivities, GRID, coefficients, (ConvectionDiffusionPDE1DStandardCoefficients) down.getCoefficients())) / 2 / EPS;
+      assertEquals("theta " + theta + ", drift " + drift + ", coefficient " + k, fd, sense, 1e-6 * Math.max(1.0, Math.abs(fd)));
+    }
+  }
+
+  private static double getValue(final PDEFullResults1D results, final double[] weights) {
+    double sum = 0;
+    for (int i = 0; i < weights.length; i++) {
+      sum += weights[i] * results.getFunctionValue(i, results.getNumberTimeNodes() - 1);
+    }
+    return sum;
+  }
+
+  /**
+   * The PDE a = -0.5 * (vol * x)^2, b = - drift * x, c = 0.05, with each coefficient perturbed by an amount that varies over the grid
+   */
+  private static PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> getPDEData(final double drift, final double aBump, final double bBump, final double cBump) {
+    final Function<Double, Double> a = new Function<Double, Double>() {
+      @Override
+      public Double evaluate(final Double... tx) {
+        final double t = tx[0];
+        final double x = tx[1];
+        return -0.5 * VOL * VOL * x * x * (1 + aBump * Math.exp(-t - (x - STRIKE) * (x - STRIKE)));
+      }
+    };
+    final Function<Double, Double> b = new Function<Double, Double>() {
+      @Override
+      public Double evaluate(final Double... tx) {
+        final double t = tx[0];
+        final double x = tx[1];
+        return -drift * x * (1 + bBump * (1 + t * x));
+      }
+    };
+    final Function<Double, Double> c = new Function<Double, Double>() {
+      @Override
+      public Double evaluate(final Double... tx) {
+        final double t = tx[0];
+        final double x = tx[1];
+        return 0.05 + cBump * Math.cos(t + x);
+      }
+    };
+    final ConvectionDiffusionPDE1DStandardCoefficients coefficients = new ConvectionDiffusionPDE1DStandardCoefficients(FunctionalDoublesSurface.from(a),
+        FunctionalDoublesSurface.from(b), FunctionalDoublesSurface.from(c));
+    return new PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>(coefficients, PAYOFF, LOWER, UPPER, GRID);
+  }
+
+}
@@ -10,6 +10,8 @@ import static org.testng.AssertJUnit.assertFalse;
 
 import org.testng.annotations.Test;
 
+import com.opengamma.analytics.math.number.ComplexNumber;
+
 /**
  * 
  */
@@ -58,4 +60,27 @@ public class CGMYCharacteristicExponentTest {
     other = new CGMYCharacteristicExponent(C, G, M, Y - 10);
     assertFalse(other.equals(EXPONENT));
   }
+  @Test
+  public void testPrimitiveValues() {
+    final double t = 0.75;
+    final CharacteristicExponent martingale = new CGMYMartingaleCharacteristicExponent(C, G, M, 0.6);
+    final double[] re = new double[] {0.0, 0.0, 0.0, 0.3, -2.5, 7.0, 40.0};
+    final double[] im = new double[] {0.0, -1.0, -1.5, -0.5, 0.25, -1.5, -1.2};
+    final int n = re.length;
+    final double[] u = new double[2 * n];
+    for (int i = 0; i < n; i++) {
+      u[2 * i] = re[i];
+      u[2 * i + 1] = im[i];
+    }
+    final double[] values = new double[2 * n];
+    for (final CharacteristicExponent ce : new CharacteristicExponent[] {EXPONENT, martingale}) {
+      CharacteristicExponentUtils.getValues(ce, u, t, values);
+      for (int i = 0; i < n; i++) {
+        final ComplexNumber expected = ce.getValue(new ComplexNumber(re[i], im[i]), t);
+        assertEquals(expected.getReal(), values[2 * i], 1e-12 * (1 + Math.abs(expected.getReal())));
+        assertEquals(expected.getImaginary(), values[2 * i + 1], 1e-12 * (1 + Math.abs(expected.getImaginary())));
+      }
+    }
+  }
+
 }
@@ -225,6 +225,34 @@ public class FFTPricerTest {
 
   }
 
+  @Test
+  public void testStrikeExpirySurface() {
+    final boolean isCall = false;
+    final MartingaleCharacteristicExponent heston = new HestonCharacteristicExponent(1.2, 0.1, 0.18, 0.4, -0.7);
+    final double[] expiries = new double[] {0.25, 0.5, 1.0, 1.0, 2.0};
+    final double[] forwards = new double[] {100, 101, 102, 98, 104};
+    final double[] dfs = new double[] {0.99, 0.98, 0.96, 0.96, 0.92};
+    final double alpha = -0.5;
+    final double delta = 0.2;
+    final int n = 256;
+    final int m = 100;
+    final double[][][] surface = PRICER.price(forwards, dfs, expiries, isCall, heston, 20, 25, alpha, delta, n, m);
+    assertEquals(expiries.length, surface.length);
+    for (int i = 0; i < expiries.length; i++) {
+      final double[][] strip = PRICER.price(forwards[i], dfs[i], expiries[i], isCall, heston, 20, 25, alpha, delta, n, m);
+      assertEquals(strip.length, surface[i].length);
+      for (int j = 0; j < strip.length; j++) {
+        assertEquals(strip[j][0], surface[i][j][0], 1e-12);
+        assertEquals(strip[j][1], surface[i][j][1], 1e-12);
+      }
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testSurfaceWrongForwards() {
+    PRICER.price(new double[] {FORWARD}, new double[] {DF, DF}, new double[] {T, 2 * T}, true, CEF, 10, 10, ALPHA, 0.5, 64, 20);
+  }
+
   @Test
   public void testDirect() {
     final double alpha = 0.5;
@@ -216,4 +216,24 @@ public class HestonCharacteristicExponentTest {
     return res;
   }
 
+  @Test
+  public void testPrimitiveValues() {
+    final double t = 1.3;
+    final double[] re = new double[] {0.0, 0.0, 0.0, 1e-7, 0.3, -2.5, 7.0, 40.0};
+    final double[] im = new double[] {0.0, -1.0, -1.5, 0.0, -0.5, 0.25, -1.5, -1.2};
+    final int n = re.length;
+    final double[] u = new double[2 * n];
+    for (int i = 0; i < n; i++) {
+      u[2 * i] = re[i];
+      u[2 * i + 1] = im[i];
+    }
+    final double[] values = new double[2 * n];
+    EXPONENT.getValues(u, t, values);
+    for (int i = 0; i < n; i++) {
+      final ComplexNumber expected = EXPONENT.getValue(new ComplexNumber(re[i], im[i]), t);
+      assertEquals(expected.getReal(), values[2 * i], 1e-12 * (1 + Math.abs(expected.getReal())));
+      assertEquals(expected.getImaginary(), values[2 * i + 1], 1e-12 * (1 + Math.abs(expected.getImaginary())));
+    }
+  }
+
 }
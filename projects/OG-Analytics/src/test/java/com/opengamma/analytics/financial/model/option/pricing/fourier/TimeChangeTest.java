@@ -63,4 +63,55 @@ public class TimeChangeTest {
 
   }
 
+  @Test
+  public void testPrimitiveValues() {
+    assertPrimitiveValues((PrimitiveCharacteristicExponent) NORMAL_CIR);
+    assertPrimitiveValues(new TimeChangedCharacteristicExponent(HESTON, CIR));
+    assertPrimitiveValues((PrimitiveCharacteristicExponent) NORMAL);
+    assertPrimitiveValues(new CGMYMartingaleCharacteristicExponent(0.3, 4.0, 7.0, 0.5));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullPointsMeanCorrection() {
+    ((PrimitiveCharacteristicExponent) NORMAL).getValues(null, T, new double[4]);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullResultMeanCorrection() {
+    ((PrimitiveCharacteristicExponent) NORMAL).getValues(new double[4], T, null);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWrongLengthMeanCorrection() {
+    ((PrimitiveCharacteristicExponent) NORMAL).getValues(new double[4], T, new double[6]);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullResultTimeChanged() {
+    ((PrimitiveCharacteristicExponent) NORMAL_CIR).getValues(new double[4], T, null);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWrongLengthTimeChanged() {
+    ((PrimitiveCharacteristicExponent) NORMAL_CIR).getValues(new double[4], T, new double[6]);
+  }
+
+  private static void assertPrimitiveValues(final PrimitiveCharacteristicExponent ce) {
+    final double[] re = new double[] {0.0, 0.0, 0.0, 1e-7, 0.3, -2.5, 7.0, 40.0};
+    final double[] im = new double[] {0.0, -1.0, -1.5, 0.0, -0.5, 0.25, -1.5, -1.2};
+    final int n = re.length;
+    final double[] u = new double[2 * n];
+    for (int i = 0; i < n; i++) {
+      u[2 * i] = re[i];
+      u[2 * i + 1] = im[i];
+    }
+    final double[] values = new double[2 * n];
+    ce.getValues(u, T, values);
+    for (int i = 0; i < n; i++) {
+      final ComplexNumber expected = ce.getValue(new ComplexNumber(re[i], im[i]), T);
+      assertEquals(expected.getReal(), values[2 * i], 1e-12 * (1 + Math.abs(expected.getReal())));
+      assertEquals(expected.getImaginary(), values[2 * i + 1], 1e-12 * (1 + Math.abs(expected.getImaginary())));
+    }
+  }
+
 }
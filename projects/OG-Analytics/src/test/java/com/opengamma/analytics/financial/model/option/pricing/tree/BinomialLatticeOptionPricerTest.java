@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.option.pricing.tree;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.financial.model.volatility.BlackFormulaRepository;
+
+/**
+ * 
+ */
+public class BinomialLatticeOptionPricerTest {
+  private static final double SPOT = 100;
+  private static final double EXPIRY = 1.5;
+  private static final double RATE = 0.05;
+  private static final double CARRY = 0.02;
+  private static final double VOL = 0.3;
+  private static final double[] STRIKES = new double[] {70, 85, 100, 115, 130};
+  private static final BinomialLatticeOptionPricer PRICER = new BinomialLatticeOptionPricer(1000);
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testTooFewSteps() {
+    new BinomialLatticeOptionPricer(1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNegativeSpot() {
+    PRICER.getPriceAndGreeks(-SPOT, EXPIRY, 100, true, false, RATE, CARRY, VOL);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testZeroExpiry() {
+    PRICER.getPriceAndGreeks(SPOT, 0, 100, true, false, RATE, CARRY, VOL);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWrongLength() {
+    PRICER.getPricesAndGreeks(SPOT, new double[] {EXPIRY}, STRIKES, new boolean[STRIKES.length], false, RATE, CARRY, VOL);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testExpiryShorterThanTwoSteps() {
+    PRICER.getPricesAndGreeks(SPOT, new double[] {EXPIRY, 1.5 * EXPIRY / 1000}, new double[] {100, 100}, new boolean[] {true, true}, false, RATE, CARRY, VOL);
+  }
+
+  @Test
+  public void testOffGridExpiry() {
+    // 1000 steps of 0.0015 for the longest expiry; 0.30045 is 200.3 steps
+    final double dt = EXPIRY / 1000;
+    final double expiry = 200.3 * dt;
+    final boolean[] isCall = new boolean[] {true, true, true};
+    final double[][] results = PRICER.getPricesAndGreeks(SPOT, new double[] {EXPIRY, expiry, 200 * dt}, new double[] {100, 100, 100}, isCall, true, RATE, CARRY, VOL);
+    final double[] upper = PRICER.getPricesAndGreeks(SPOT, new double[] {EXPIRY, 201 * dt}, new double[] {100, 100}, new boolean[] {true, true}, true, RATE, CARRY, VOL)[1];
+    for (int i = 0; i < 4; i++) {
+      assertEquals(0.7 * results[2][i] + 0.3 * upper[i], results[1][i], 1e-9);
+    }
+    final double forward = SPOT * Math.exp(CARRY * expiry);
+    assertEquals(Math.exp(-RATE * expiry) * BlackFormulaRepository.price(forward, 100, expiry, VOL, true), results[1][BinomialLatticeOptionPricer.PRICE], 5e-2);
+    assertTrue(results[1][BinomialLatticeOptionPricer.PRICE] > results[2][BinomialLatticeOptionPricer.PRICE]);
+    assertTrue(results[1][BinomialLatticeOptionPricer.PRICE] < upper[BinomialLatticeOptionPricer.PRICE]);
+  }
+
+  @Test
+  public void testEuropeanAgainstBlack() {
+    final double df = Math.exp(-RATE * EXPIRY);
+    final double forward = SPOT * Math.exp(CARRY * EXPIRY);
+    for (final double strike : STRIKES) {
+      for (final boolean isCall : new boolean[] {true, false}) {
+        final double[] result = PRICER.getPriceAndGreeks(SPOT, EXPIRY, strike, isCall, false, RATE, CARRY, VOL);
+        assertEquals(df * BlackFormulaRepository.price(forward, strike, EXPIRY, VOL, isCall), result[BinomialLatticeOptionPricer.PRICE], 2e-2);
+        assertEquals(df * forward / SPOT * BlackFormulaRepository.delta(forward, strike, EXPIRY, VOL, isCall), result[BinomialLatticeOptionPricer.DELTA], 2e-3);
+        assertEquals(df * forward * forward / SPOT / SPOT * BlackFormulaRepository.gamma(forward, strike, EXPIRY, VOL), result[BinomialLatticeOptionPricer.GAMMA], 2e-4);
+      }
+    }
+  }
+
+  @Test
+  public void testEuropeanTheta() {
+    final double strike = 105;
+    final double shift = 1e-4;
+    final double forwardUp = SPOT * Math.exp(CARRY * (EXPIRY - shift));
+    final double forwardDown = SPOT * Math.exp(CARRY * (EXPIRY + shift));
+    final double priceUp = Math.exp(-RATE * (EXPIRY - shift)) * BlackFormulaRepository.price(forwardUp, strike, EXPIRY - shift, VOL, true);
+    final double priceDown = Math.exp(-RATE * (EXPIRY + shift)) * BlackFormulaRepository.price(forwardDown, strike, EXPIRY + shift, VOL, true);
+    final double[] result = PRICER.getPriceAndGreeks(SPOT, EXPIRY, strike, true, false, RATE, CARRY, VOL);
+    assertEquals((priceUp - priceDown) / (2 * shift), result[BinomialLatticeOptionPricer.THETA], 2e-2);
+  }
+
+  @Test
+  public void testAmerican() {
+    for (final double strike : STRIKES) {
+      final double[] americanPut = PRICER.getPriceAndGreeks(SPOT, EXPIRY, strike, false, true, RATE, CARRY, VOL);
+      final double[] europeanPut = PRICER.getPriceAndGreeks(SPOT, EXPIRY, strike, false, false, RATE, CARRY, VOL);
+      assertTrue(americanPut[BinomialLatticeOptionPricer.PRICE] > europeanPut[BinomialLatticeOptionPricer.PRICE]);
+      assertTrue(americanPut[BinomialLatticeOptionPricer.PRICE] >= strike - SPOT);
+      // no early exercise of a call without dividends
+      final double[] americanCall = PRICER.getPriceAndGreeks(SPOT, EXPIRY, strike, true, true, RATE, RATE, VOL);
+      final double[] europeanCall = PRICER.getPriceAndGreeks(SPOT, EXPIRY, strike, true, false, RATE, RATE, VOL);
+      for (int i = 0; i < 4; i++) {
+        assertEquals(europeanCall[i], americanCall[i], 1e-12);
+      }
+    }
+  }
+
+  @Test
+  public void testSharedLattice() {
+    final int n = STRIKES.length;
+    final double[] expiries = new double[] {0.3, 0.6, 0.9, 1.2, 1.5};
+    final boolean[] isCall = new boolean[] {false, false, true, false, true};
+    final double[][] results = PRICER.getPricesAndGreeks(SPOT, expiries, STRIKES, isCall, true, RATE, CARRY, VOL);
+    assertEquals(n, results.length);
+    for (int k = 0; k < n; k++) {
+      // same time step as the shared lattice
+      final BinomialLatticeOptionPricer pricer = new BinomialLatticeOptionPricer((int) Math.round(1000 * expiries[k] / 1.5));
+      final double[] single = pricer.getPriceAndGreeks(SPOT, expiries[k], STRIKES[k], isCall[k], true, RATE, CARRY, VOL);
+      for (int i = 0; i < 4; i++) {
+        assertEquals(single[i], results[k][i], 1e-9);
+      }
+    }
+  }
+
+}
@@ -109,4 +109,77 @@ public class BlackFormulaRepositotyTest {
     // Performance note: strike+derivatives: 18-Jul-12: On Mac Pro 3.2 GHz Quad-Core Intel Xeon: 80 ms for 100000.
   }
 
+  @Test
+  /**
+   * Tests the array price and greeks against the single option functions.
+   */
+  public void priceAndGreeksArray() {
+    final int nbStrike = STRIKES_INPUT.length;
+    final double[] forwards = new double[2 * nbStrike];
+    final double[] strikes = new double[2 * nbStrike];
+    final double[] times = new double[2 * nbStrike];
+    final double[] vols = new double[2 * nbStrike];
+    final boolean[] isCall = new boolean[2 * nbStrike];
+    for (int i = 0; i < 2 * nbStrike; i++) {
+      forwards[i] = FORWARD;
+      strikes[i] = STRIKES_INPUT[i / 2];
+      times[i] = TIME_TO_EXPIRY;
+      vols[i] = VOLS[i / 2];
+      isCall[i] = i % 2 == 0;
+    }
+    final double[][] res = new double[BlackFormulaRepository.NUMBER_OF_GREEKS][2 * nbStrike];
+    BlackFormulaRepository.priceAndGreeks(forwards, strikes, times, vols, isCall, res);
+    final double[] prices = new double[2 * nbStrike];
+    BlackFormulaRepository.price(forwards, strikes, times, vols, isCall, prices);
+    final double tol = 1.0E-12;
+    for (int i = 0; i < 2 * nbStrike; i++) {
+      final double price = BlackFormulaRepository.price(FORWARD, strikes[i], TIME_TO_EXPIRY, vols[i], isCall[i]);
+      assertEquals(price, prices[i], tol);
+      assertEquals(price, res[BlackFormulaRepository.PRICE][i], tol);
+      assertEquals(BlackFormulaRepository.delta(FORWARD, strikes[i], TIME_TO_EXPIRY, vols[i], isCall[i]), res[BlackFormulaRepository.DELTA][i], tol);
+      assertEquals(BlackFormulaRepository.dualDelta(FORWARD, strikes[i], TIME_TO_EXPIRY, vols[i], isCall[i]), res[BlackFormulaRepository.DUAL_DELTA][i], tol);
+      assertEquals(BlackFormulaRepository.gamma(FORWARD, strikes[i], TIME_TO_EXPIRY, vols[i]), res[BlackFormulaRepository.GAMMA][i], tol);
+      assertEquals(BlackFormulaRepository.dualGamma(FORWARD, strikes[i], TIME_TO_EXPIRY, vols[i]), res[BlackFormulaRepository.DUAL_GAMMA][i], tol);
+      assertEquals(BlackFormulaRepository.vega(FORWARD, strikes[i], TIME_TO_EXPIRY, vols[i]), res[BlackFormulaRepository.VEGA][i], tol);
+      assertEquals(BlackFormulaRepository.vanna(FORWARD, strikes[i], TIME_TO_EXPIRY, vols[i]), res[BlackFormulaRepository.VANNA][i], tol);
+      assertEquals(BlackFormulaRepository.vomma(FORWARD, strikes[i], TIME_TO_EXPIRY, vols[i]), res[BlackFormulaRepository.VOMMA][i], tol);
+      assertEquals(BlackFormulaRepository.theta(FORWARD, strikes[i], TIME_TO_EXPIRY, vols[i]), res[BlackFormulaRepository.THETA][i], tol);
+    }
+  }
+
+  @Test
+  /**
+   * Tests the array implied volatility on calls and puts, in and out of the money, and over a wide range of expiries.
+   */
+  public void impliedVolatilityArray() {
+    final double[] expiries = new double[] {0.25, 1.0, 4.5, 30.0};
+    final int nbStrike = STRIKES_INPUT.length;
+    final int n = 2 * nbStrike * expiries.length;
+    final double[] forwards = new double[n];
+    final double[] strikes = new double[n];
+    final double[] times = new double[n];
+    final double[] vols = new double[n];
+    final boolean[] isCall = new boolean[n];
+    int k = 0;
+    for (final double expiry : expiries) {
+      for (int i = 0; i < nbStrike; i++) {
+        for (int j = 0; j < 2; j++) {
+          forwards[k] = FORWARD;
+          strikes[k] = STRIKES_INPUT[i];
+          times[k] = expiry;
+          vols[k] = VOLS[i];
+          isCall[k] = j == 0;
+          k++;
+        }
+      }
+    }
+    final double[] prices = new double[n];
+    BlackFormulaRepository.price(forwards, strikes, times, vols, isCall, prices);
+    final double[] impliedVols = new double[n];
+    BlackFormulaRepository.impliedVolatility(prices, forwards, strikes, times, isCall, impliedVols);
+    for (int i = 0; i < n; i++) {
+      assertEquals("Implied volatility: (data " + i + ")", vols[i], impliedVols[i], 1.0E-9);
+    }
+  }
+
 }
@@ -52,4 +52,57 @@ public class NormalImpliedVolatilityFormulaTest {
       assertEquals(SIGMA[i], impliedVolatility[i], 1e-6);
     }
   }
+
+  @Test
+  public void testImpliedVolatilityArray() {
+    final NormalImpliedVolatilityFormula formula = new NormalImpliedVolatilityFormula();
+    final EuropeanVanillaOption[] options = new EuropeanVanillaOption[2 * N];
+    final double[] prices = new double[2 * N];
+    for (int i = 0; i < N; i++) {
+      options[2 * i] = OPTIONS[i];
+      options[2 * i + 1] = OPTIONS[i].withIsCall(false);
+      final NormalFunctionData data = new NormalFunctionData(FORWARD, DF, SIGMA[0]);
+      prices[2 * i] = FUNCTION.getPriceFunction(options[2 * i]).evaluate(data);
+      prices[2 * i + 1] = FUNCTION.getPriceFunction(options[2 * i + 1]).evaluate(data);
+    }
+    final double[] impliedVolatility = formula.getImpliedVolatility(new NormalFunctionData(FORWARD, DF, 0.0), options, prices);
+    for (int i = 0; i < 2 * N; i++) {
+      assertEquals(SIGMA[0], impliedVolatility[i], 1e-9);
+    }
+  }
+
+  @Test
+  public void testPriceAdjointArray() {
+    final double[] forwards = new double[N];
+    final double[] timesToExpiry = new double[N];
+    final double[] numeraires = new double[N];
+    final boolean[] isCall = new boolean[N];
+    for (int i = 0; i < N; i++) {
+      forwards[i] = FORWARD;
+      timesToExpiry[i] = T;
+      numeraires[i] = DF;
+      isCall[i] = i % 2 == 0;
+    }
+    final double[] prices = new double[N];
+    final double[][] derivatives = new double[6][N];
+    FUNCTION.getPriceAdjoint(forwards, STRIKES, timesToExpiry, numeraires, SIGMA, isCall, prices, derivatives);
+    final double shift = 1e-4;
+    final double[] d = new double[3];
+    final double[] dUp = new double[3];
+    final double[] dDown = new double[3];
+    for (int i = 0; i < N; i++) {
+      final EuropeanVanillaOption option = new EuropeanVanillaOption(STRIKES[i], T, isCall[i]);
+      assertEquals(FUNCTION.getPriceAdjoint(option, DATA[i], d), prices[i], 1e-10);
+      for (int j = 0; j < 3; j++) {
+        assertEquals(d[j], derivatives[j][i], 1e-10);
+      }
+      FUNCTION.getPriceAdjoint(option, new NormalFunctionData(FORWARD + shift, DF, SIGMA[i]), dUp);
+      FUNCTION.getPriceAdjoint(option, new NormalFunctionData(FORWARD - shift, DF, SIGMA[i]), dDown);
+      assertEquals((dUp[0] - dDown[0]) / (2 * shift), derivatives[3][i], 1e-6);
+      FUNCTION.getPriceAdjoint(option, new NormalFunctionData(FORWARD, DF, SIGMA[i] + shift), dUp);
+      FUNCTION.getPriceAdjoint(option, new NormalFunctionData(FORWARD, DF, SIGMA[i] - shift), dDown);
+      assertEquals((dUp[0] - dDown[0]) / (2 * shift), derivatives[4][i], 1e-6);
+      assertEquals((dUp[1] - dDown[1]) / (2 * shift), derivatives[5][i], 1e-6);
+    }
+  }
 }
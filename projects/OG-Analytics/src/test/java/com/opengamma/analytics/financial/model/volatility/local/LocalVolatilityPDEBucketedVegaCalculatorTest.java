@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.volatility.local;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.financial.model.finitedifference.PDETerminalResults1D;
+import com.opengamma.analytics.financial.model.interestrate.curve.ForwardCurve;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.analytics.financial.model.volatility.BlackFormulaRepository;
+import com.opengamma.analytics.financial.model.volatility.smile.fitting.interpolation.SurfaceArrayUtils;
+import com.opengamma.analytics.financial.model.volatility.smile.fitting.sabr.StandardSmileSurfaceDataBundle;
+import com.opengamma.analytics.financial.model.volatility.surface.VolatilitySurfaceInterpolator;
+import com.opengamma.analytics.math.interpolation.DoubleQuadraticInterpolator1D;
+import com.opengamma.analytics.math.interpolation.Interpolator1D;
+
+/**
+ * Tests the adjoint bucketed vega calculators against bumping each market volatility and solving the PDE again.
+ */
+public class LocalVolatilityPDEBucketedVegaCalculatorTest {
+  private static final double SHIFT = 1e-4;
+  /** The adjoint is a linearisation of the PDE solution, so it only agrees with bump and re-price to first order */
+  private static final double TOLERANCE = 5e-3;
+  private static final ForwardCurve FORWARD_CURVE = new ForwardCurve(1.0, 0.02);
+  private static final double[] EXPIRIES = new double[] {0.25, 0.5, 0.75, 1.0 };
+  private static final double[][] STRIKES = new double[][] { {0.8, 0.9, 1.0, 1.1, 1.2 }, {0.8, 0.9, 1.0, 1.1, 1.2 }, {0.75, 0.9, 1.0, 1.1, 1.25 },
+      {0.7, 0.85, 1.0, 1.15, 1.3 } };
+  private static final double[][] VOLS = new double[][] { {0.28, 0.24, 0.21, 0.2, 0.205 }, {0.27, 0.235, 0.21, 0.2, 0.2 }, {0.27, 0.232, 0.208, 0.198, 0.197 },
+      {0.27, 0.23, 0.205, 0.195, 0.195 } };
+  private static final StandardSmileSurfaceDataBundle MARKET_DATA = new StandardSmileSurfaceDataBundle(FORWARD_CURVE, EXPIRIES, STRIKES, VOLS);
+  private static final EuropeanVanillaOption OPTION = new EuropeanVanillaOption(1.05, 0.5, true);
+  private static final Interpolator1D INTERPOLATOR = new DoubleQuadraticInterpolator1D();
+  private static final DupireLocalVolatilityCalculator DUPIRE = new DupireLocalVolatilityCalculator();
+  private static final VolatilitySurfaceInterpolator SURFACE_INTERPOLATOR = new VolatilitySurfaceInterpolator();
+  private static final LocalVolatilityForwardPDECalculator PDE_CALCULATOR = new LocalVolatilityForwardPDECalculator(0.5, 50, 80, 5.0, 0.05, 1.5, 1.0);
+  private static final LocalVolatilitySurfaceMoneyness LOCAL_VOLATILITY = DUPIRE.getLocalVolatility(SURFACE_INTERPOLATOR.getVolatilitySurface(MARKET_DATA));
+
+  @Test
+  public void testForwardAgainstBumpAndReprice() {
+    final LocalVolatilityForwardPDEBucketedVegaCalculator calculator = new LocalVolatilityForwardPDEBucketedVegaCalculator(PDE_CALCULATOR, INTERPOLATOR, DUPIRE,
+        SURFACE_INTERPOLATOR);
+    assertVegas(getBumpAndRepriceVegas(true), calculator.getResult(LOCAL_VOLATILITY, FORWARD_CURVE, OPTION, MARKET_DATA));
+    assertVegas(getBumpAndRepriceVegas(true),
+        calculator.getResult(LocalVolatilitySurfaceConverter.toStrikeSurface(LOCAL_VOLATILITY), FORWARD_CURVE, OPTION, MARKET_DATA));
+  }
+
+  @Test
+  public void testBackwardAgainstBumpAndReprice() {
+    final LocalVolatilityBackwardPDEBucketedVegaCalculator calculator = new LocalVolatilityBackwardPDEBucketedVegaCalculator(PDE_CALCULATOR, INTERPOLATOR, DUPIRE,
+        SURFACE_INTERPOLATOR);
+    assertVegas(getBumpAndRepriceVegas(false), calculator.getResult(LOCAL_VOLATILITY, FORWARD_CURVE, OPTION, MARKET_DATA));
+    assertVegas(getBumpAndRepriceVegas(false),
+        calculator.getResult(LocalVolatilitySurfaceConverter.toStrikeSurface(LOCAL_VOLATILITY), FORWARD_CURVE, OPTION, MARKET_DATA));
+  }
+
+  private static void assertVegas(final double[][] expected, final double[][] actual) {
+    assertEquals(expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i].length, actual[i].length);
+      for (int j = 0; j < expected[i].length; j++) {
+        assertEquals("expiry " + i + ", strike " + j, expected[i][j], actual[i][j], TOLERANCE);
+      }
+    }
+  }
+
+  /**
+   * Bumps each market volatility, rebuilds the local volatility surface and solves the PDE again
+   * @param moneyness true to read the implied volatility as the forward calculator does, false as the backward calculator does
+   * @return The bucketed vegas
+   */
+  private static double[][] getBumpAndRepriceVegas(final boolean moneyness) {
+    final double base = getImpliedVolatility(PDE_CALCULATOR.runPDESolver(LOCAL_VOLATILITY, OPTION), moneyness);
+    final double[][] res = new double[EXPIRIES.length][];
+    for (int i = 0; i < EXPIRIES.length; i++) {
+      res[i] = new double[STRIKES[i].length];
+      for (int j = 0; j < STRIKES[i].length; j++) {
+        final LocalVolatilitySurfaceMoneyness bumpedLV = DUPIRE.getLocalVolatility(SURFACE_INTERPOLATOR.getBumpedVolatilitySurface(MARKET_DATA, i, j, SHIFT));
+        res[i][j] = (getImpliedVolatility(PDE_CALCULATOR.runPDESolver(bumpedLV, OPTION), moneyness) - base) / SHIFT;
+      }
+    }
+    return res;
+  }
+
+  private static double getImpliedVolatility(final PDETerminalResults1D pdeResults, final boolean moneyness) {
+    final double expiry = OPTION.getTimeToExpiry();
+    final double x = OPTION.getStrike() / FORWARD_CURVE.getForward(expiry);
+    final double[] xNodes = pdeResults.getGrid().getSpaceNodes();
+    final int spaceSteps = PDE_CALCULATOR.getNSpaceSteps();
+    int index = SurfaceArrayUtils.getLowerBoundIndex(xNodes, x);
+    if (index >= 1) {
+      index--;
+    }
+    if (index >= spaceSteps - 1) {
+      index--;
+      if (index >= spaceSteps - 1) {
+        index--;
+      }
+    }
+    final double[] nodes = new double[4];
+    final double[] vols = new double[4];
+    System.arraycopy(xNodes, index, nodes, 0, 4);
+    for (int k = 0; k < 4; k++) {
+      final double price = pdeResults.getFunctionValue(index + k);
+      vols[k] = moneyness ? BlackFormulaRepository.impliedVolatility(price, 1.0, nodes[k], expiry, OPTION.isCall())
+          : BlackFormulaRepository.impliedVolatility(price, nodes[k], OPTION.getStrike(), expiry, OPTION.isCall());
+    }
+    return INTERPOLATOR.interpolate(INTERPOLATOR.getDataBundle(nodes, vols), x);
+  }
+
+}
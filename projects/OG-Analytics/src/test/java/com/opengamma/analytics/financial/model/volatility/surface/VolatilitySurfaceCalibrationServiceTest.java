@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.volatility.surface;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.financial.model.volatility.smile.fitting.interpolation.SmileInterpolatorSABR;
+import com.opengamma.analytics.financial.model.volatility.smile.fitting.interpolation.SmileInterpolatorSpline;
+import com.opengamma.analytics.financial.model.volatility.smile.fitting.sabr.ForexSmileDeltaSurfaceDataBundle;
+import com.opengamma.analytics.financial.model.volatility.smile.fitting.sabr.SmileSurfaceDataBundle;
+import com.opengamma.analytics.financial.model.volatility.smile.function.SABRFormulaData;
+import com.opengamma.analytics.math.interpolation.CombinedInterpolatorExtrapolator;
+import com.opengamma.analytics.math.interpolation.DoubleQuadraticInterpolator1D;
+import com.opengamma.analytics.math.interpolation.LinearExtrapolator1D;
+
+/**
+ * 
+ */
+public class VolatilitySurfaceCalibrationServiceTest {
+  private static final DoubleQuadraticInterpolator1D INTERPOLATOR_1D = new DoubleQuadraticInterpolator1D();
+  private static final CombinedInterpolatorExtrapolator EXTRAPOLATOR_1D = new CombinedInterpolatorExtrapolator(INTERPOLATOR_1D, new LinearExtrapolator1D(INTERPOLATOR_1D));
+  private static final SmileInterpolatorSABR SMILE_INTERPOLATOR = new SmileInterpolatorSABR(0.9);
+  private static final double TOLERANCE = 1e-6;
+  private static final double[] DELTAS = new double[] {0.15, 0.25 };
+  private static final double[] FORWARDS = new double[] {1.34, 1.35, 1.36, 1.38, 1.4, 1.43, 1.45, 1.48, 1.5, 1.52 };
+  private static final double[] EXPIRIES = new double[] {7. / 365, 14 / 365., 21 / 365., 1 / 12., 3 / 12., 0.5, 0.75, 1, 5, 10 };
+  private static final double[] ATM = new double[] {0.17045, 0.1688, 0.167425, 0.1697, 0.1641, 0.1642, 0.1641, 0.1642, 0.138, 0.12515 };
+  private static final double[][] RR = new double[][] { {-0.0168, -0.02935, -0.039125, -0.047325, -0.058325, -0.06055, -0.0621, -0.063, -0.032775, -0.023925 },
+      {-0.012025, -0.02015, -0.026, -0.0314, -0.0377, -0.03905, -0.0396, -0.0402, -0.02085, -0.015175 } };
+  private static final double[][] BUTT = new double[][] { {0.00665, 0.00725, 0.00835, 0.009075, 0.013175, 0.01505, 0.01565, 0.0163, 0.009275, 0.007075, },
+      {0.002725, 0.00335, 0.0038, 0.004, 0.0056, 0.0061, 0.00615, 0.00635, 0.00385, 0.002575 } };
+  private static final SmileSurfaceDataBundle MARKET_DATA = new ForexSmileDeltaSurfaceDataBundle(FORWARDS, EXPIRIES, DELTAS, ATM, RR, BUTT, true, EXTRAPOLATOR_1D);
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullSmileInterpolator() {
+    new VolatilitySurfaceCalibrationService<SABRFormulaData>(null, 2, TOLERANCE);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNoThreads() {
+    new VolatilitySurfaceCalibrationService<SABRFormulaData>(SMILE_INTERPOLATOR, 0, TOLERANCE);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNegativeTolerance() {
+    new VolatilitySurfaceCalibrationService<SABRFormulaData>(SMILE_INTERPOLATOR, 2, -TOLERANCE);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWrongSurfaceInterpolator() {
+    new VolatilitySurfaceCalibrationService<SABRFormulaData>(SMILE_INTERPOLATOR, new VolatilitySurfaceInterpolator(new SmileInterpolatorSpline()),
+        Executors.newSingleThreadExecutor(), TOLERANCE);
+  }
+
+  @Test
+  public void testFitsMarketData() {
+    final VolatilitySurfaceCalibrationService<SABRFormulaData> service = new VolatilitySurfaceCalibrationService<SABRFormulaData>(SMILE_INTERPOLATOR, 4, TOLERANCE);
+    final BlackVolatilitySurfaceMoneynessFcnBackedByGrid surface = service.getVolatilitySurface("EURUSD", MARKET_DATA);
+    assertMarketVolatilities(surface, MARKET_DATA);
+  }
+
+  @Test
+  public void testUnchangedQuotesAreNotRefitted() {
+    final VolatilitySurfaceCalibrationService<SABRFormulaData> service = new VolatilitySurfaceCalibrationService<SABRFormulaData>(SMILE_INTERPOLATOR, 4, TOLERANCE);
+    final List<List<SABRFormulaData>> first = service.getFittedModelParameters("EURUSD", MARKET_DATA);
+    final List<List<SABRFormulaData>> second = service.getFittedModelParameters("EURUSD", MARKET_DATA.withBumpedPoint(3, 2, 0.1 * TOLERANCE));
+    for (int i = 0; i < EXPIRIES.length; i++) {
+      assertSame(first.get(i), second.get(i));
+    }
+    service.invalidate("EURUSD");
+    final List<List<SABRFormulaData>> third = service.getFittedModelParameters("EURUSD", MARKET_DATA);
+    for (int i = 0; i < EXPIRIES.length; i++) {
+      assertFalse(first.get(i) == third.get(i));
+    }
+  }
+
+  @Test
+  public void testChangedQuotesAreRefitted() {
+    final VolatilitySurfaceCalibrationService<SABRFormulaData> service = new VolatilitySurfaceCalibrationService<SABRFormulaData>(SMILE_INTERPOLATOR, 4, TOLERANCE);
+    final List<List<SABRFormulaData>> first = service.getFittedModelParameters("EURUSD", MARKET_DATA);
+    final SmileSurfaceDataBundle bumped = MARKET_DATA.withBumpedPoint(3, 2, 1e-3);
+    final List<List<SABRFormulaData>> second = service.getFittedModelParameters("EURUSD", bumped);
+    for (int i = 0; i < EXPIRIES.length; i++) {
+      if (i == 3) {
+        assertFalse(first.get(i) == second.get(i));
+      } else {
+        assertSame(first.get(i), second.get(i));
+      }
+    }
+    assertMarketVolatilities(service.getVolatilitySurface("EURUSD", bumped), bumped);
+  }
+
+  @Test
+  public void testSeveralSurfaces() {
+    final VolatilitySurfaceCalibrationService<SABRFormulaData> service = new VolatilitySurfaceCalibrationService<SABRFormulaData>(SMILE_INTERPOLATOR, 4, TOLERANCE);
+    final Map<String, SmileSurfaceDataBundle> data = new LinkedHashMap<String, SmileSurfaceDataBundle>();
+    data.put("A", MARKET_DATA);
+    data.put("B", MARKET_DATA.withBumpedPoint(5, 0, 2e-3));
+    final Map<String, BlackVolatilitySurfaceMoneynessFcnBackedByGrid> surfaces = service.getVolatilitySurfaces(data);
+    assertEquals(2, surfaces.size());
+    for (final Map.Entry<String, SmileSurfaceDataBundle> entry : data.entrySet()) {
+      assertMarketVolatilities(surfaces.get(entry.getKey()), entry.getValue());
+    }
+  }
+
+  @Test
+  public void testParallelFitsAreReproducible() {
+    final VolatilitySurfaceCalibrationService<SABRFormulaData> parallel = new VolatilitySurfaceCalibrationService<SABRFormulaData>(SMILE_INTERPOLATOR, 4, TOLERANCE);
+    final VolatilitySurfaceCalibrationService<SABRFormulaData> sequential = new VolatilitySurfaceCalibrationService<SABRFormulaData>(SMILE_INTERPOLATOR, 1, TOLERANCE);
+    try {
+      final Map<String, SmileSurfaceDataBundle> data = new LinkedHashMap<String, SmileSurfaceDataBundle>();
+      data.put("A", MARKET_DATA);
+      data.put("B", MARKET_DATA.withBumpedPoint(5, 0, 2e-3));
+      final Map<String, List<List<SABRFormulaData>>> parallelFits = parallel.getFittedModelParameters(data);
+      // the fits of B no longer depend on the fits of A that run at the same time
+      assertEquals(parallelFits.get("B"), sequential.getFittedModelParameters("B", data.get("B")));
+      assertEquals(parallelFits.get("A"), sequential.getFittedModelParameters("A", data.get("A")));
+    } finally {
+      parallel.shutdown();
+      sequential.shutdown();
+    }
+  }
+
+  @Test(expectedExceptions = RejectedExecutionException.class)
+  public void testShutdown() {
+    final VolatilitySurfaceCalibrationService<SABRFormulaData> service = new VolatilitySurfaceCalibrationService<SABRFormulaData>(SMILE_INTERPOLATOR, 2, TOLERANCE);
+    service.shutdown();
+    service.getFittedModelParameters("EURUSD", MARKET_DATA);
+  }
+
+  @Test
+  public void testShutdownLeavesSuppliedExecutor() {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final VolatilitySurfaceCalibrationService<SABRFormulaData> service = new VolatilitySurfaceCalibrationService<SABRFormulaData>(SMILE_INTERPOLATOR,
+          new VolatilitySurfaceInterpolator(SMILE_INTERPOLATOR), executor, TOLERANCE);
+      service.shutdown();
+      assertFalse(executor.isShutdown());
+      assertTrue(service.getFittedModelParameters("EURUSD", MARKET_DATA).size() == EXPIRIES.length);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static void assertMarketVolatilities(final BlackVolatilitySurfaceMoneynessFcnBackedByGrid surface, final SmileSurfaceDataBundle data) {
+    final double[][] strikes = data.getStrikes();
+    final double[][] vols = data.getVolatilities();
+    for (int i = 0; i < data.getNumExpiries(); i++) {
+      for (int j = 0; j < strikes[i].length; j++) {
+        assertEquals(vols[i][j], surface.getVolatility(data.getExpiries()[i], strikes[i][j]), 1e-5);
+      }
+    }
+  }
+
+}
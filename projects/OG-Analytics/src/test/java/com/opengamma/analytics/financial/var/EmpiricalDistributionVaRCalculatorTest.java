@@ -45,4 +45,14 @@ public class EmpiricalDistributionVaRCalculatorTest {
     final DoubleTimeSeries<?> ts = new FastArrayLongDoubleTimeSeries(DateTimeNumericEncoding.DATE_EPOCH_DAYS, t, pnl);
     assertEquals(CALCULATOR.evaluate(PARAMETERS, ts).getVaRValue(), 0.082, 1e-7);
   }
+
+  @Test
+  public void testSeriesUnchanged() {
+    final double[] pnl = new double[] {0.3, -0.1, 0.2, -0.4, 0.0 };
+    final DoubleTimeSeries<?> ts = new FastArrayLongDoubleTimeSeries(DateTimeNumericEncoding.DATE_EPOCH_DAYS, new long[] {1, 2, 3, 4, 5 }, pnl.clone());
+    CALCULATOR.evaluate(PARAMETERS, ts);
+    for (int i = 0; i < pnl.length; i++) {
+      assertEquals(pnl[i], ts.getValueAt(i), 0);
+    }
+  }
 }
@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.var.historical;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.internal.junit.ArrayAsserts.assertArrayEquals;
+
+import org.testng.annotations.Test;
+
+import cern.jet.random.engine.MersenneTwister;
+import cern.jet.random.engine.MersenneTwister64;
+import cern.jet.random.engine.RandomEngine;
+
+import com.opengamma.analytics.financial.var.EmpiricalDistributionVaRParameters;
+
+/**
+ * 
+ */
+public class HistoricalSimulationVaRTreeTest {
+  private static final RandomEngine RANDOM = new MersenneTwister64(MersenneTwister.DEFAULT_SEED);
+  private static final EmpiricalDistributionVaRParameters PARAMETERS = new EmpiricalDistributionVaRParameters(10, 250, 0.99);
+  private static final int N = 250;
+  private static final double EPS = 1e-12;
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullParameters() {
+    new HistoricalSimulationVaRTree(null, N);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWrongLength() {
+    new HistoricalSimulationVaRTree(PARAMETERS, N).addPosition(0, new double[N - 1]);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testChildOfPosition() {
+    final HistoricalSimulationVaRTree tree = new HistoricalSimulationVaRTree(PARAMETERS, N);
+    tree.addNode(tree.addPosition(0, getPnL()));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testPnLOfNodeWithChildren() {
+    final HistoricalSimulationVaRTree tree = new HistoricalSimulationVaRTree(PARAMETERS, N);
+    tree.addPosition(0, getPnL());
+    tree.setPnL(0, getPnL());
+  }
+
+  @Test
+  public void test() {
+    final HistoricalSimulationVaRTree tree = new HistoricalSimulationVaRTree(PARAMETERS, N);
+    final int root = tree.getRoot();
+    final int book1 = tree.addNode(root);
+    final int book2 = tree.addNode(root);
+    final int[] positions = new int[6];
+    final double[][] pnl = new double[6][];
+    for (int i = 0; i < 6; i++) {
+      pnl[i] = getPnL();
+      positions[i] = tree.addPosition(i < 4 ? book1 : book2, pnl[i]);
+    }
+    assertArrayEquals(new int[] {positions[0], positions[1], positions[2], positions[3] }, tree.getChildren(book1));
+    assertEquals(book1, tree.getParent(positions[2]));
+    assertCalculator(tree, root);
+    assertCalculator(tree, book1);
+    assertCalculator(tree, book2);
+    assertCalculator(tree, positions[5]);
+    assertComponents(tree, root);
+    assertComponents(tree, book1);
+    // change one position
+    pnl[1] = getPnL();
+    tree.setPnL(positions[1], pnl[1]);
+    assertArrayEquals(pnl[1], tree.getPnL(positions[1]), 0);
+    assertCalculator(tree, root);
+    assertCalculator(tree, book1);
+    assertCalculator(tree, book2);
+    assertComponents(tree, root);
+    assertComponents(tree, book1);
+    // the marginal VaR is the VaR of the parent less that of the parent without the node
+    final double[] withoutFirstBook = new double[N];
+    for (int s = 0; s < N; s++) {
+      withoutFirstBook[s] = pnl[4][s] + pnl[5][s];
+    }
+    assertEquals(tree.getVaR(root) - var(PARAMETERS, withoutFirstBook), tree.getMarginalVaR(book1), EPS);
+    assertEquals(tree.getVaR(root), tree.getMarginalVaR(root), 0);
+    assertEquals(tree.getVaR(root), tree.getComponentVaR(root), 0);
+  }
+
+  @Test
+  public void testInterpolated() {
+    // 0.95 of 250 scenarios falls between two of them
+    final EmpiricalDistributionVaRParameters parameters = new EmpiricalDistributionVaRParameters(1, 1, 0.95);
+    final HistoricalSimulationVaRTree tree = new HistoricalSimulationVaRTree(parameters, N);
+    final int node = tree.addNode(0);
+    tree.addPosition(node, getPnL());
+    tree.addPosition(node, getPnL());
+    tree.addPosition(0, getPnL());
+    assertEquals(var(parameters, tree.getPnL(0)), tree.getVaR(0), 0);
+    assertComponents(tree, 0);
+    assertComponents(tree, node);
+  }
+
+  @Test
+  public void testRepeatedChangesDoNotDrift() {
+    final HistoricalSimulationVaRTree tree = new HistoricalSimulationVaRTree(PARAMETERS, N);
+    final int book1 = tree.addNode(0);
+    final int book2 = tree.addNode(book1);
+    final int[] positions = new int[5];
+    final double[][] pnl = new double[5][];
+    for (int i = 0; i < 5; i++) {
+      pnl[i] = getPnL();
+      positions[i] = tree.addPosition(i < 3 ? book2 : book1, pnl[i]);
+    }
+    // values of very different sizes, so that adding and subtracting the changes would not cancel exactly
+    for (int k = 0; k < 1000; k++) {
+      final int i = k % 5;
+      pnl[i] = getPnL();
+      for (int s = 0; s < N; s++) {
+        pnl[i][s] *= k % 2 == 0 ? 1e8 : 1e-4;
+      }
+      tree.setPnL(positions[i], pnl[i]);
+    }
+    final HistoricalSimulationVaRTree fresh = new HistoricalSimulationVaRTree(PARAMETERS, N);
+    final int freshBook1 = fresh.addNode(0);
+    final int freshBook2 = fresh.addNode(freshBook1);
+    for (int i = 0; i < 5; i++) {
+      fresh.addPosition(i < 3 ? freshBook2 : freshBook1, pnl[i]);
+    }
+    assertArrayEquals(fresh.getPnL(0), tree.getPnL(0), 0);
+    assertArrayEquals(fresh.getPnL(freshBook1), tree.getPnL(book1), 0);
+    assertArrayEquals(fresh.getPnL(freshBook2), tree.getPnL(book2), 0);
+    assertEquals(fresh.getVaR(0), tree.getVaR(0), 0);
+  }
+
+  private static void assertCalculator(final HistoricalSimulationVaRTree tree, final int node) {
+    assertEquals(var(PARAMETERS, tree.getPnL(node)), tree.getVaR(node), 0);
+  }
+
+  private static void assertComponents(final HistoricalSimulationVaRTree tree, final int node) {
+    double sum = 0;
+    for (final int child : tree.getChildren(node)) {
+      sum += tree.getComponentVaR(child);
+    }
+    assertEquals(tree.getVaR(node), sum, EPS);
+  }
+
+  // as calculated by EmpiricalDistributionVaRCalculator
+  private static double var(final EmpiricalDistributionVaRParameters parameters, final double[] pnl) {
+    return -parameters.getMult() * parameters.getPercentileCalculator().evaluate(pnl);
+  }
+
+  private static double[] getPnL() {
+    final double[] pnl = new double[N];
+    for (int i = 0; i < N; i++) {
+      pnl[i] = RANDOM.nextDouble() - 0.5;
+    }
+    return pnl;
+  }
+
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.var.parametric;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import cern.jet.random.engine.MersenneTwister;
+import cern.jet.random.engine.MersenneTwister64;
+import cern.jet.random.engine.RandomEngine;
+
+import com.opengamma.analytics.financial.covariance.FactorCovarianceMatrix;
+import com.opengamma.analytics.math.matrix.ColtMatrixAlgebra;
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.MatrixAlgebra;
+
+/**
+ * 
+ */
+public class DeltaGammaFactorCovarianceCalculatorTest {
+  private static final RandomEngine RANDOM = new MersenneTwister64(MersenneTwister.DEFAULT_SEED);
+  private static final MatrixAlgebra ALGEBRA = new ColtMatrixAlgebra();
+  private static final DeltaGammaFactorCovarianceMeanCalculator MEAN = new DeltaGammaFactorCovarianceMeanCalculator();
+  private static final DeltaGammaFactorCovarianceStandardDeviationCalculator STD = new DeltaGammaFactorCovarianceStandardDeviationCalculator();
+  private static final int N = 12;
+  private static final int K = 3;
+  private static final FactorCovarianceMatrix COVARIANCE;
+  private static final DoubleMatrix1D DELTA;
+  private static final DoubleMatrix2D GAMMA;
+
+  static {
+    final double[][] loadings = new double[N][K];
+    final double[] specific = new double[N];
+    final double[] delta = new double[N];
+    final double[][] gamma = new double[N][N];
+    for (int i = 0; i < N; i++) {
+      for (int f = 0; f < K; f++) {
+        loadings[i][f] = 0.1 * (RANDOM.nextDouble() - 0.5);
+      }
+      specific[i] = i % 3 == 0 ? 0 : 0.001 * RANDOM.nextDouble();
+      delta[i] = 100 * (RANDOM.nextDouble() - 0.5);
+      for (int j = 0; j <= i; j++) {
+        gamma[i][j] = 10 * (RANDOM.nextDouble() - 0.5);
+        gamma[j][i] = gamma[i][j];
+      }
+    }
+    COVARIANCE = new FactorCovarianceMatrix(new DoubleMatrix2D(loadings), specific);
+    DELTA = new DoubleMatrix1D(delta);
+    GAMMA = new DoubleMatrix2D(gamma);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWrongDelta() {
+    new FactorCovarianceVaRDataBundle(new DoubleMatrix1D(new double[N - 1]), COVARIANCE);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWrongGamma() {
+    new FactorCovarianceVaRDataBundle(DELTA, new DoubleMatrix2D(new double[N][N - 1]), COVARIANCE);
+  }
+
+  @Test
+  public void testDeltaOnly() {
+    final FactorCovarianceVaRDataBundle data = new FactorCovarianceVaRDataBundle(DELTA, COVARIANCE);
+    assertEquals(0, MEAN.evaluate(data), 0);
+    final Map<Integer, ParametricVaRDataBundle> dense = new HashMap<Integer, ParametricVaRDataBundle>();
+    dense.put(1, new ParametricVaRDataBundle(DELTA, COVARIANCE.getCovarianceMatrix(), 1));
+    final double expected = new DeltaCovarianceMatrixStandardDeviationCalculator(ALGEBRA).evaluate(dense);
+    assertEquals(expected, STD.evaluate(data), 1e-12 * expected);
+  }
+
+  @Test
+  public void testDeltaGamma() {
+    final FactorCovarianceVaRDataBundle data = new FactorCovarianceVaRDataBundle(DELTA, GAMMA, COVARIANCE);
+    final DoubleMatrix2D covariance = COVARIANCE.getCovarianceMatrix();
+    final Map<Integer, ParametricVaRDataBundle> dense = new HashMap<Integer, ParametricVaRDataBundle>();
+    dense.put(1, new ParametricVaRDataBundle(DELTA, covariance, 1));
+    dense.put(2, new ParametricVaRDataBundle(GAMMA, covariance, 2));
+    final double mean = new DeltaGammaCovarianceMatrixMeanCalculator(ALGEBRA).evaluate(dense);
+    final double std = new DeltaGammaCovarianceMatrixStandardDeviationCalculator(ALGEBRA).evaluate(dense);
+    assertEquals(mean, MEAN.evaluate(data), 1e-12 * Math.abs(mean));
+    assertEquals(std, STD.evaluate(data), 1e-12 * std);
+  }
+
+}
@@ -6,9 +6,13 @@
 package com.opengamma.analytics.math.integration;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
 
 import org.testng.annotations.Test;
 
+import com.opengamma.analytics.math.function.ArrayFunction1D;
 import com.opengamma.analytics.math.function.Function1D;
 
 /**
@@ -93,4 +97,80 @@ public class GaussianQuadratureIntegrator1DTest {
     final Integrator1D<Double, Double> integrator = new GaussHermiteQuadratureIntegrator1D(10);
     //assertEquals(1, integrator.integrate(DF3, lower, upper), EPS);
   }
+
+  @Test
+  public void testArrayFunction() {
+    final ArrayFunction1D df1 = ArrayFunction1D.from(DF1);
+    final ArrayFunction1D df2 = new ArrayFunction1D() {
+
+      @Override
+      public double[] evaluate(final double[] x) {
+        final double[] res = new double[x.length];
+        for (int i = 0; i < x.length; i++) {
+          res[i] = Math.exp(-2 * x[i]);
+        }
+        return res;
+      }
+
+    };
+    final GaussianQuadratureIntegrator1D legendre = new GaussLegendreQuadratureIntegrator1D(6);
+    assertEquals(legendre.integrate(DF1, -0.56, 1.4), legendre.integrate(df1, -0.56, 1.4), 1e-14);
+    final GaussianQuadratureIntegrator1D jacobi = new GaussJacobiQuadratureIntegrator1D(7);
+    assertEquals(jacobi.integrate(DF1, -1., 12.), jacobi.integrate(df1, -1., 12.), 1e-10);
+    final GaussianQuadratureIntegrator1D laguerre = new GaussLaguerreQuadratureIntegrator1D(15);
+    assertEquals(laguerre.integrate(DF2, 0., Double.POSITIVE_INFINITY), laguerre.integrate(df2, 0., Double.POSITIVE_INFINITY), 1e-14);
+    final GaussianQuadratureIntegrator1D hermite = new GaussHermiteQuadratureIntegrator1D(10);
+    final Function1D<Double, Double> df3 = new Function1D<Double, Double>() {
+
+      @Override
+      public Double evaluate(final Double x) {
+        return Math.exp(-x * x / 2);
+      }
+
+    };
+    final double inf = Double.POSITIVE_INFINITY;
+    assertEquals(hermite.integrate(df3, -inf, inf), hermite.integrate(ArrayFunction1D.from(df3), -inf, inf), 1e-12);
+  }
+
+  @Test(expectedExceptions = UnsupportedOperationException.class)
+  public void testArrayFunctionLimits() {
+    new GaussLaguerreQuadratureIntegrator1D(15).getQuadratureData(1, Double.POSITIVE_INFINITY);
+  }
+
+  @Test
+  public void testCache() {
+    final GaussianQuadratureIntegrator1D laguerre = new GaussLaguerreQuadratureIntegrator1D(12, 0.5);
+    assertSame(laguerre.getCachedQuadratureData(), new GaussLaguerreQuadratureIntegrator1D(12, 0.5).getCachedQuadratureData());
+    assertEquals(laguerre, new GaussLaguerreQuadratureIntegrator1D(12, 0.5));
+    assertFalse(laguerre.equals(new GaussLaguerreQuadratureIntegrator1D(12, 0.25)));
+    assertFalse(laguerre.getCachedQuadratureData() == new GaussLaguerreQuadratureIntegrator1D(13, 0.5).getCachedQuadratureData());
+    assertSame(QuadratureRuleCache.getRule(new GaussJacobiWeightAndAbscissaFunction(0, 0), 7), new GaussJacobiQuadratureIntegrator1D(7).getCachedQuadratureData());
+    assertEquals(new GaussLaguerreWeightAndAbscissaFunction(0.5).generate(12), laguerre.getQuadratureData());
+  }
+
+  @Test
+  public void testQuadratureDataIsCopied() {
+    final GaussianQuadratureIntegrator1D legendre = new GaussLegendreQuadratureIntegrator1D(8);
+    final GaussianQuadratureData data = legendre.getQuadratureData();
+    assertFalse(data.getWeights() == legendre.getCachedQuadratureData().getWeights());
+    data.getWeights()[0] = 100;
+    data.getAbscissas()[0] = 100;
+    assertEquals(new GaussLegendreWeightAndAbscissaFunction().generate(8), new GaussLegendreQuadratureIntegrator1D(8).getQuadratureData());
+    assertEquals(2, legendre.integrate(ArrayFunction1D.from(new Function1D<Double, Double>() {
+
+      @Override
+      public Double evaluate(final Double x) {
+        return 1.;
+      }
+
+    }), -1, 1), 1e-14);
+  }
+
+  @Test
+  public void testCacheIsBounded() {
+    for (int i = 0; i < QuadratureRuleCache.MAXIMUM_SIZE + 10; i++) {
+      QuadratureRuleCache.getRule(new GaussLaguerreWeightAndAbscissaFunction(i / 1000.), 4);
+    }
+    assertTrue(QuadratureRuleCache.size() <= QuadratureRuleCache.MAXIMUM_SIZE);
+  }
 }
@@ -67,6 +67,51 @@ public class OGMatrixAlgebraTest {
     assertEquals(-3, d.getEntry(2), 1e-15);
   }
 
+  /**
+   * Large enough to be blocked (and done in parallel with more than one processor), with remainders in every direction; the sums are done in the same
+   * order as the textbook triple loop so the results are identical
+   */
+  @Test
+  public void testMultiplyLarge() {
+    assertLargeProduct();
+  }
+
+  @Test
+  public void testMultiplyLargeAfterShutdown() {
+    OGMatrixAlgebra.shutdown();
+    assertLargeProduct();
+    OGMatrixAlgebra.shutdown();
+    OGMatrixAlgebra.shutdown();
+  }
+
+  private static void assertLargeProduct() {
+    final int m = 203;
+    final int p = 131;
+    final int n = 259;
+    final double[][] a = new double[m][p];
+    final double[][] b = new double[p][n];
+    for (int i = 0; i < m; i++) {
+      for (int k = 0; k < p; k++) {
+        a[i][k] = Math.sin(0.37 * i + 1.13 * k);
+      }
+    }
+    for (int k = 0; k < p; k++) {
+      for (int j = 0; j < n; j++) {
+        b[k][j] = Math.cos(0.71 * k - 0.29 * j);
+      }
+    }
+    final DoubleMatrix2D c = (DoubleMatrix2D) ALGEBRA.multiply(new DoubleMatrix2D(a), new DoubleMatrix2D(b));
+    for (int i = 0; i < m; i++) {
+      for (int j = 0; j < n; j++) {
+        double sum = 0;
+        for (int k = 0; k < p; k++) {
+          sum += a[i][k] * b[k][j];
+        }
+        assertEquals(sum, c.getEntry(i, j), 0);
+      }
+    }
+  }
+
   @Test
   public void testTranspose() {
     final DoubleMatrix2D a = new DoubleMatrix2D(new double[][] { {1, 2 }, {3, 4 }, {5, 6 } });
@@ -0,0 +1,222 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.matrix;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import org.apache.commons.math.linear.RealMatrix;
+import org.apache.commons.math.linear.SingularValueDecompositionImpl;
+import org.testng.annotations.Test;
+
+import cern.colt.matrix.linalg.SingularValueDecomposition;
+
+import com.opengamma.analytics.math.linearalgebra.CholeskyDecompositionCommons;
+import com.opengamma.analytics.math.linearalgebra.LUDecompositionCommons;
+import com.opengamma.analytics.math.linearalgebra.QRDecompositionCommons;
+import com.opengamma.analytics.math.linearalgebra.SVDecompositionColt;
+import com.opengamma.analytics.math.linearalgebra.SVDecompositionCommons;
+import com.opengamma.analytics.math.util.wrapper.ColtMathWrapper;
+import com.opengamma.analytics.math.util.wrapper.CommonsMathWrapper;
+
+/**
+ * 
+ */
+public class StridedDoubleMatrix2DTest {
+  private static final double[][] DATA = new double[][] { {1, 2, 3, 4 }, {5, 6, 7, 8 }, {9, 10, 11, 12 } };
+  private static final MatrixAlgebra OG = new OGMatrixAlgebra();
+  private static final MatrixAlgebra COLT = new ColtMatrixAlgebra();
+  private static final MatrixAlgebra COMMONS = new CommonsMatrixAlgebra();
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullData() {
+    new StridedDoubleMatrix2D(null, 1, 1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWrongLength() {
+    new StridedDoubleMatrix2D(new double[5], 2, 3);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testBadView() {
+    getMatrix().getSubMatrixView(1, 1, 0, 2);
+  }
+
+  @Test(expectedExceptions = IndexOutOfBoundsException.class)
+  public void testBadIndex() {
+    getMatrix().getRowView(1).get(1, 0);
+  }
+
+  @Test
+  public void testNoCopy() {
+    final double[] data = new double[] {1, 2, 3, 4, 5, 6 };
+    final StridedDoubleMatrix2D m = new StridedDoubleMatrix2D(data, 2, 3);
+    data[4] = 50;
+    assertEquals(50, m.get(1, 1), 0);
+    assertTrue(m.isContiguous());
+    assertEquals(6, m.getNumberOfElements());
+  }
+
+  @Test
+  public void testCopyOf() {
+    final StridedDoubleMatrix2D m = getMatrix();
+    assertEquals(new DoubleMatrix2D(DATA), m.toDoubleMatrix2D());
+    assertEquals(DoubleMatrix2D.class, m.toDoubleMatrix2D().getClass());
+    assertFalse(m.equals(new DoubleMatrix2D(DATA)));
+    assertEquals(m, StridedDoubleMatrix2D.copyOf(new DoubleMatrix2D(DATA)));
+    assertEquals(m.hashCode(), StridedDoubleMatrix2D.copyOf(new DoubleMatrix2D(DATA)).hashCode());
+    final StridedDoubleMatrix2D copy = StridedDoubleMatrix2D.copyOf(m);
+    copy.set(0, 0, 100);
+    assertEquals(1, m.get(0, 0), 0);
+    m.toDoubleMatrix2D().getData()[0][0] = 100;
+    m.toArray()[0][0] = 100;
+    assertEquals(1, m.get(0, 0), 0);
+    // a copy of a view is contiguous
+    final StridedDoubleMatrix2D column = StridedDoubleMatrix2D.copyOf(m.getColumnView(1));
+    assertTrue(column.isContiguous());
+    assertEquals(m.getColumnView(1), column);
+  }
+
+  @Test
+  public void testViews() {
+    final StridedDoubleMatrix2D m = getMatrix();
+    final StridedDoubleMatrix2D row = m.getRowView(1);
+    assertEquals(1, row.getNumberOfRows());
+    assertEquals(4, row.getNumberOfColumns());
+    assertTrue(row.isContiguous());
+    assertEquals(new DoubleMatrix1D(5, 6, 7, 8), row.getRowVector(0));
+    assertEquals(new DoubleMatrix1D(5, 6, 7, 8), m.getRowVector(1));
+    final StridedDoubleMatrix2D column = m.getColumnView(2);
+    assertEquals(3, column.getNumberOfRows());
+    assertEquals(1, column.getNumberOfColumns());
+    assertFalse(column.isContiguous());
+    assertEquals(new DoubleMatrix1D(3, 7, 11), column.getColumnVector(0));
+    assertEquals(new DoubleMatrix1D(3, 7, 11), m.getColumnVector(2));
+    final StridedDoubleMatrix2D block = m.getSubMatrixView(1, 3, 1, 3);
+    assertFalse(block.isContiguous());
+    assertEquals(new DoubleMatrix2D(new double[][] { {6, 7 }, {10, 11 } }), new DoubleMatrix2D(block.toArray()));
+    final StridedDoubleMatrix2D transpose = m.getTransposeView();
+    assertEquals(4, transpose.getNumberOfRows());
+    assertEquals(3, transpose.getNumberOfColumns());
+    assertEquals(12., transpose.getEntry(3, 2));
+    assertEquals(new DoubleMatrix2D(transpose.toArray()), OG.getTranspose(new DoubleMatrix2D(DATA)));
+    // views write through to the storage
+    block.set(0, 0, -6);
+    assertEquals(-6, m.get(1, 1), 0);
+    assertEquals(-6, transpose.get(1, 1), 0);
+    final double[] flat = new double[6];
+    block.getTransposeView().copyTo(flat);
+    assertEquals(-6, flat[0], 0);
+    assertEquals(10, flat[1], 0);
+    assertEquals(7, flat[2], 0);
+  }
+
+  @Test
+  public void testWrappersShareStorage() {
+    final StridedDoubleMatrix2D m = getMatrix();
+    final StridedDoubleMatrix2D block = m.getSubMatrixView(1, 3, 1, 4);
+    final RealMatrix commons = CommonsMathWrapper.wrap(block);
+    assertEquals(2, commons.getRowDimension());
+    assertEquals(3, commons.getColumnDimension());
+    assertEquals(12, commons.getEntry(1, 2), 0);
+    commons.setEntry(0, 0, 60);
+    assertEquals(60, m.get(1, 1), 0);
+    final cern.colt.matrix.DoubleMatrix2D colt = ColtMathWrapper.wrap(block.getTransposeView());
+    assertEquals(3, colt.rows());
+    assertEquals(2, colt.columns());
+    assertEquals(60, colt.get(0, 0), 0);
+    assertEquals(12, colt.get(2, 1), 0);
+    colt.set(2, 1, 120);
+    assertEquals(120, m.get(2, 3), 0);
+  }
+
+  @Test
+  public void testAlgebra() {
+    final double[][] a = new double[][] { {4, 1, 2 }, {1, 5, 3 }, {2, 3, 6 } };
+    final DoubleMatrix2D jagged = new DoubleMatrix2D(a);
+    // a strided view of the same matrix: the transpose of the top left of a larger one
+    final StridedDoubleMatrix2D big = new StridedDoubleMatrix2D(4, 5);
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        big.set(j, i, a[i][j]);
+      }
+    }
+    final StridedDoubleMatrix2D strided = big.getSubMatrixView(0, 3, 0, 3).getTransposeView();
+    final DoubleMatrix1D v = new DoubleMatrix1D(1, -2, 3);
+    for (final MatrixAlgebra algebra : new MatrixAlgebra[] {OG, COLT, COMMONS }) {
+      assertEquals(algebra.getTrace(jagged), algebra.getTrace(strided), 0);
+      assertDense(algebra.getTranspose(jagged), algebra.getTranspose(strided));
+      assertDense(algebra.multiply(jagged, jagged), algebra.multiply(strided, strided));
+      assertDense(algebra.multiply(jagged, jagged), algebra.multiply(jagged, strided));
+      assertEquals(algebra.multiply(jagged, v), algebra.multiply(strided, v));
+      if (algebra != OG) {
+        assertEquals(algebra.getDeterminant(jagged), algebra.getDeterminant(strided), 1e-12);
+        final double[][] inverse = algebra.getInverse(jagged).getData();
+        final double[][] stridedInverse = algebra.getInverse(strided).getData();
+        for (int i = 0; i < 3; i++) {
+          for (int j = 0; j < 3; j++) {
+            assertEquals(inverse[i][j], stridedInverse[i][j], 1e-14);
+          }
+        }
+      }
+    }
+    assertEquals(OG.multiply(v, jagged), OG.multiply(v, strided));
+    assertDense(OG.multiply(jagged, jagged), OG.multiply(strided, jagged));
+  }
+
+  @Test
+  public void testDecompositionOfView() {
+    final StridedDoubleMatrix2D m = StridedDoubleMatrix2D.copyOf(new DoubleMatrix2D(new double[][] { {0, 4, 1, 2 }, {0, 1, 5, 3 }, {0, 2, 3, 7 } }));
+    final StridedDoubleMatrix2D view = m.getSubMatrixView(0, 3, 1, 4);
+    final double[] expected = new SingularValueDecompositionImpl(CommonsMathWrapper.wrap(view.toDoubleMatrix2D())).getSingularValues();
+    final double[] commons = new SingularValueDecompositionImpl(CommonsMathWrapper.wrap(view)).getSingularValues();
+    final double[] colt = new SingularValueDecomposition(ColtMathWrapper.wrap(view.getTransposeView())).getSingularValues();
+    final double[] commonsDecomposition = new SVDecompositionCommons().evaluate(view).getSingularValues();
+    final double[] coltDecomposition = new SVDecompositionColt().evaluate(view.getTransposeView()).getSingularValues();
+    for (int i = 0; i < 3; i++) {
+      assertEquals(expected[i], commons[i], 1e-12);
+      assertEquals(expected[i], colt[i], 1e-12);
+      assertEquals(expected[i], commonsDecomposition[i], 1e-12);
+      assertEquals(expected[i], coltDecomposition[i], 1e-12);
+    }
+  }
+
+  @Test
+  public void testDecompositionsOfStrided() {
+    final DoubleMatrix2D dense = new DoubleMatrix2D(new double[][] { {4, 2, 0.6 }, {2, 5, 1 }, {0.6, 1, 3 } });
+    final StridedDoubleMatrix2D strided = StridedDoubleMatrix2D.copyOf(dense);
+    assertEquals(new LUDecompositionCommons().evaluate(dense).getU(), new LUDecompositionCommons().evaluate(strided).getU());
+    assertEquals(new QRDecompositionCommons().evaluate(dense).getR(), new QRDecompositionCommons().evaluate(strided).getR());
+    assertEquals(new CholeskyDecompositionCommons().evaluate(dense).getL(), new CholeskyDecompositionCommons().evaluate(strided).getL());
+  }
+
+  @Test
+  public void testRepeatedStridedProducts() {
+    // the block buffers are reused between products, so a small product after a large one must not see stale entries
+    final StridedDoubleMatrix2D big = new StridedDoubleMatrix2D(200, 300);
+    for (int i = 0; i < 200; i++) {
+      for (int j = 0; j < 300; j++) {
+        big.set(i, j, i - j);
+      }
+    }
+    OG.multiply(big.getTransposeView(), big);
+    final StridedDoubleMatrix2D small = getMatrix();
+    assertDense(OG.multiply(new DoubleMatrix2D(DATA), small.getTransposeView().toDoubleMatrix2D()), OG.multiply(small, small.getTransposeView()));
+  }
+
+  // results of the algebras are plain DoubleMatrix2D, never strided
+  private static void assertDense(final Matrix<?> expected, final Matrix<?> actual) {
+    assertEquals(DoubleMatrix2D.class, actual.getClass());
+    assertEquals(expected, actual);
+  }
+
+  private static StridedDoubleMatrix2D getMatrix() {
+    return StridedDoubleMatrix2D.copyOf(new DoubleMatrix2D(DATA));
+  }
+
+}
@@ -6,6 +6,8 @@
 package com.opengamma.analytics.math.statistics.descriptive;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.internal.junit.ArrayAsserts.assertArrayEquals;
 
 import java.util.Arrays;
 
@@ -77,6 +79,42 @@ public class PercentileCalculatorTest {
     assertResult(X, 50);
   }
 
+  @Test
+  public void testAgainstSort() {
+    final double[] y = Arrays.copyOf(X, X.length);
+    Arrays.sort(y);
+    final PercentileCalculator calculator = new PercentileCalculator(0.37);
+    final double n = 0.37 * (N - 1) + 1;
+    final double d = n % 1;
+    final int k = (int) Math.round(n - d);
+    assertEquals(y[k - 1] + d * (y[k] - y[k - 1]), calculator.evaluate(X), 0);
+    assertEquals(k - 1, calculator.getLowerIndex(N));
+    assertEquals(d, calculator.getWeight(N), 0);
+    final double[] copy = Arrays.copyOf(X, X.length);
+    calculator.evaluate(copy);
+    assertArrayEquals(X, copy, 0);
+  }
+
+  @Test
+  public void testSelect() {
+    final double[] y = Arrays.copyOf(X, X.length);
+    Arrays.sort(y);
+    for (int k = 0; k < N; k++) {
+      final double[] copy = Arrays.copyOf(X, X.length);
+      assertEquals(y[k], QuickSelect.select(copy, k), 0);
+      for (int i = 0; i < N; i++) {
+        assertTrue(i < k ? copy[i] <= y[k] : copy[i] >= y[k]);
+      }
+    }
+    final double[] ties = new double[] {3, 1, 2, 2, 2, 1, 3, 2 };
+    assertEquals(1., QuickSelect.select(Arrays.copyOf(ties, 8), 1), 0);
+    assertEquals(2., QuickSelect.select(Arrays.copyOf(ties, 8), 5), 0);
+    assertEquals(3., QuickSelect.select(Arrays.copyOf(ties, 8), 6), 0);
+    assertEquals(1., QuickSelect.select(Arrays.copyOf(ties, 8), 2, 6, 2), 0);
+    assertEquals(2., QuickSelect.select(Arrays.copyOf(ties, 8), 2, 6, 3), 0);
+    assertEquals(1., QuickSelect.min(ties, 0, 8), 0);
+  }
+
   private void assertResult(final double[] x, final int percentile) {
     final double[] copy = Arrays.copyOf(x, N);
     Arrays.sort(copy);
@@ -19,6 +19,7 @@ import cern.jet.random.engine.MersenneTwister64;
 import com.opengamma.analytics.math.FunctionUtils;
 import com.opengamma.analytics.math.function.Function1D;
 import com.opengamma.analytics.math.function.ParameterizedFunction;
+import com.opengamma.analytics.math.linearalgebra.DecompositionFactory;
 import com.opengamma.analytics.math.linearalgebra.LUDecompositionCommons;
 import com.opengamma.analytics.math.linearalgebra.LUDecompositionResult;
 import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
@@ -157,6 +158,75 @@ public class NonLinearLeastSquareTest {
     assertEquals(0.0, result.getFitParameters().getEntry(3), 1e-8);
   }
 
+  @Test
+  public void reuseWorkspaceTest() {
+    final LevenbergMarquardtWorkspace workspace = new LevenbergMarquardtWorkspace();
+    final Function1D<DoubleMatrix1D, Boolean> unconstrained = new Function1D<DoubleMatrix1D, Boolean>() {
+      @Override
+      public Boolean evaluate(final DoubleMatrix1D x) {
+        return true;
+      }
+    };
+    final DoubleMatrix1D[] starts = new DoubleMatrix1D[] {new DoubleMatrix1D(new double[] {1.2, 0.8, -0.2, -0.3 }), new DoubleMatrix1D(new double[] {0.9, 1.1, 0.1, 0.2 }) };
+    for (final DoubleMatrix1D start : starts) {
+      final LeastSquareResults expected = LS.solve(Y, SIGMA, FUNCTION, GRAD, start);
+      final LeastSquareResults result = LS.solve(Y, SIGMA, FUNCTION, GRAD, start, unconstrained, null, workspace);
+      assertEquals(expected.getChiSq(), result.getChiSq(), 0.0);
+      for (int i = 0; i < 4; i++) {
+        assertEquals(expected.getFitParameters().getEntry(i), result.getFitParameters().getEntry(i), 0.0);
+      }
+    }
+    //a problem of a different size in the same workspace
+    final DoubleMatrix1D start = new DoubleMatrix1D(new double[] {0.5, 1.0 });
+    final LeastSquareResults result = LS.solve(new DoubleMatrix1D(new double[] {1.0, 2.0, 3.0 }), new DoubleMatrix1D(new double[] {1.0, 1.0, 1.0 }),
+        new Function1D<DoubleMatrix1D, DoubleMatrix1D>() {
+          @Override
+          public DoubleMatrix1D evaluate(final DoubleMatrix1D a) {
+            return new DoubleMatrix1D(new double[] {a.getEntry(0) + a.getEntry(1), a.getEntry(0) + 2 * a.getEntry(1), a.getEntry(0) + 3 * a.getEntry(1) });
+          }
+        }, new Function1D<DoubleMatrix1D, DoubleMatrix2D>() {
+          @Override
+          public DoubleMatrix2D evaluate(final DoubleMatrix1D a) {
+            return new DoubleMatrix2D(new double[][] { {1.0, 1.0 }, {1.0, 2.0 }, {1.0, 3.0 } });
+          }
+        }, start, unconstrained, null, workspace);
+    assertEquals(0.0, result.getChiSq(), 1e-12);
+    assertEquals(0.0, result.getFitParameters().getEntry(0), 1e-8);
+    assertEquals(1.0, result.getFitParameters().getEntry(1), 1e-8);
+  }
+
+  /**
+   * The first two parameters only enter as a sum, so the Jacobian is rank deficient and the steps cannot be found by QR
+   */
+  @Test
+  public void rankDeficientTest() {
+    final Function1D<DoubleMatrix1D, DoubleMatrix1D> func = new Function1D<DoubleMatrix1D, DoubleMatrix1D>() {
+      @SuppressWarnings("synthetic-access")
+      @Override
+      public DoubleMatrix1D evaluate(final DoubleMatrix1D a) {
+        return FUNCTION.evaluate(new DoubleMatrix1D(new double[] {a.getEntry(0) + a.getEntry(1), a.getEntry(2), a.getEntry(3), 0.0 }));
+      }
+    };
+    final Function1D<DoubleMatrix1D, DoubleMatrix2D> grad = new Function1D<DoubleMatrix1D, DoubleMatrix2D>() {
+      @SuppressWarnings("synthetic-access")
+      @Override
+      public DoubleMatrix2D evaluate(final DoubleMatrix1D a) {
+        final double[][] temp = GRAD.evaluate(new DoubleMatrix1D(new double[] {a.getEntry(0) + a.getEntry(1), a.getEntry(2), a.getEntry(3), 0.0 })).getData();
+        final double[][] res = new double[temp.length][];
+        for (int i = 0; i < temp.length; i++) {
+          res[i] = new double[] {temp[i][0], temp[i][0], temp[i][1], temp[i][2] };
+        }
+        return new DoubleMatrix2D(res);
+      }
+    };
+    final NonLinearLeastSquare ls = new NonLinearLeastSquare(DecompositionFactory.SV_COLT, new OGMatrixAlgebra(), 1e-8);
+    final LeastSquareResults result = ls.solve(Y, SIGMA, func, grad, new DoubleMatrix1D(new double[] {0.6, 0.5, 0.8, -0.2 }));
+    assertEquals(0.0, result.getChiSq(), 1e-8);
+    assertEquals(1.0, result.getFitParameters().getEntry(0) + result.getFitParameters().getEntry(1), 1e-8);
+    assertEquals(1.0, result.getFitParameters().getEntry(2), 1e-8);
+    assertEquals(0.0, result.getFitParameters().getEntry(3), 1e-8);
+  }
+
   public void solveExactFromChiSqTest() {
     final DoubleMatrix1D start = new DoubleMatrix1D(new double[] {1.2, 0.8, -0.2, -0.3 });
     final Function1D<DoubleMatrix1D, Double> f = getChiSqFunction(X, Y, SIGMA, PARAM_FUNCTION);
@@ -268,6 +268,12 @@ public class BloombergHistoricalTimeSeriesSource implements HistoricalTimeSeries
     return result;
   }
 
+  @Override
+  public Map<UniqueId, HistoricalTimeSeries> getHistoricalTimeSeries(
+      Set<UniqueId> uniqueIds, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    throw new UnsupportedOperationException("Unable to retrieve historical time-series from Bloomberg using unique identifier");
+  }
+
   @Override
   public ExternalIdBundle getExternalIdBundle(UniqueId uniqueId) {
     throw new UnsupportedOperationException("Unable to retrieve historical time-series from Bloomberg using config");
@@ -7,6 +7,7 @@ package com.opengamma.bbg;
 
 import static com.opengamma.bbg.BloombergConstants.FIELD_SECURITY_TYPE;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
@@ -162,6 +163,20 @@ public final class BloombergSecuritySource implements SecuritySource {
     return result;
   }
 
+  @Override
+  public Map<ObjectId, Security> get(Collection<ObjectId> objectIds, VersionCorrection versionCorrection) {
+    // Bloomberg securities are not versioned
+    final Collection<UniqueId> uniqueIds = new ArrayList<UniqueId>(objectIds.size());
+    for (ObjectId objectId : objectIds) {
+      uniqueIds.add(objectId.atLatestVersion());
+    }
+    final Map<ObjectId, Security> result = Maps.newHashMap();
+    for (Entry<UniqueId, Security> entry : get(uniqueIds).entrySet()) {
+      result.put(entry.getKey().getObjectId(), entry.getValue());
+    }
+    return result;
+  }
+
   private Map<ExternalIdBundle, UniqueId> createBundle2UniqueIdMap(Collection<UniqueId> uniqueIds) {
     Map<ExternalIdBundle, UniqueId> result = Maps.newHashMap();
     for (UniqueId uniqueId : uniqueIds) {
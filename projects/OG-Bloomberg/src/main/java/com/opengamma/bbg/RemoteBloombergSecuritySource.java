@@ -266,4 +266,9 @@ public class RemoteBloombergSecuritySource implements SecuritySource {
     throw new UnsupportedOperationException("Bulk loading of security not supported yet!");
   }
 
+  @Override
+  public Map<ObjectId, Security> get(Collection<ObjectId> objectIds, VersionCorrection versionCorrection) {
+    throw new UnsupportedOperationException("Bulk loading of security not supported yet!");
+  }
+
 }
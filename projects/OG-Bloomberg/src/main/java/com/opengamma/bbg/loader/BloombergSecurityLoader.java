@@ -5,8 +5,12 @@
  */
 package com.opengamma.bbg.loader;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -17,6 +21,7 @@ import com.opengamma.financial.security.FinancialSecurity;
 import com.opengamma.id.ExternalId;
 import com.opengamma.id.ExternalIdBundle;
 import com.opengamma.id.UniqueId;
+import com.opengamma.master.MasterUtils;
 import com.opengamma.master.security.ManageableSecurity;
 import com.opengamma.master.security.SecurityDocument;
 import com.opengamma.master.security.SecurityLoader;
@@ -31,6 +36,11 @@ import com.opengamma.util.ArgumentChecker;
  */
 public class BloombergSecurityLoader implements SecurityLoader {
 
+  /**
+   * The number of identifiers to search for at once, within the bind parameter limits of the databases.
+   */
+  private static final int SEARCH_SIZE = 500;
+
   /**
    * The security provider to load from.
    */
@@ -64,22 +74,22 @@ public class BloombergSecurityLoader implements SecurityLoader {
     
     UnderlyingIdentifierCollector identifierCollector = new UnderlyingIdentifierCollector();
         
-    for (Entry<ExternalIdBundle, Security> entry : securities.entrySet()) {
-      ExternalIdBundle requestBundle = entry.getKey();
-      Security security = entry.getValue();
-      
+    for (Security security : securities.values()) {
       //getUnderlying identifiers
       if (security instanceof FinancialSecurity) {
         FinancialSecurity financialSecurity = (FinancialSecurity) security;
         financialSecurity.accept(identifierCollector.getFinancialSecurityVisitor());
       }
-      
+    }
+    
+    Map<ExternalId, UniqueId> uids = addOrUpdate(securities.values());
+    for (Entry<ExternalIdBundle, Security> entry : securities.entrySet()) {
+      Security security = entry.getValue();
       UniqueId uid = null;
-      if (security != null && security instanceof ManageableSecurity) {
-        ExternalId buid = security.getExternalIdBundle().getExternalId(ExternalSchemes.BLOOMBERG_BUID);
-        uid = addOrUpdate((ManageableSecurity) security, getUid(buid));
+      if (security instanceof ManageableSecurity) {
+        uid = uids.get(security.getExternalIdBundle().getExternalId(ExternalSchemes.BLOOMBERG_BUID));
       }
-      result.put(requestBundle, uid);
+      result.put(entry.getKey(), uid);
     }
     
     addOrUpdateUnderlying(identifierCollector.getUnderlyings());
@@ -89,49 +99,76 @@ public class BloombergSecurityLoader implements SecurityLoader {
 
   private void addOrUpdateUnderlying(Set<ExternalIdBundle> underlyingIdentifiers) {
     Map<ExternalIdBundle, Security> securities = _securityProvider.getSecurities(underlyingIdentifiers);
-    for (Entry<ExternalIdBundle, Security> entry : securities.entrySet()) {
-      Security security = entry.getValue();
-      if (security != null && security instanceof ManageableSecurity) {
+    addOrUpdate(securities.values());
+  }
+
+  /**
+   * Adds or updates the securities, keyed by Bloomberg unique identifier.
+   * <p>
+   * The new and the changed securities are each written with one bulk call, which
+   * a master that supports bulk writes performs in a single operation.
+   * 
+   * @param securities  the securities, null and non-manageable securities ignored
+   * @return the unique identifiers of the stored securities, keyed by Bloomberg unique identifier, not null
+   */
+  private Map<ExternalId, UniqueId> addOrUpdate(Collection<Security> securities) {
+    Map<ExternalId, SecurityDocument> documents = new LinkedHashMap<ExternalId, SecurityDocument>();
+    for (Security security : securities) {
+      if (security instanceof ManageableSecurity) {
         ExternalId buid = security.getExternalIdBundle().getExternalId(ExternalSchemes.BLOOMBERG_BUID);
-        UniqueId uid = getUid(buid);
-        addOrUpdate((ManageableSecurity) security, uid);
+        documents.put(buid, new SecurityDocument((ManageableSecurity) security));
       }
     }
-  }
-
-  private UniqueId addOrUpdate(ManageableSecurity security, UniqueId uid) {
-    if (uid == null) {
-      return addSecurity(security);
-    } else {
-      return updateSecurity(security, uid);
+    Map<ExternalId, UniqueId> existing = getUids(documents.keySet());
+    Map<ExternalId, SecurityDocument> toAdd = new LinkedHashMap<ExternalId, SecurityDocument>();
+    Map<ExternalId, SecurityDocument> toUpdate = new LinkedHashMap<ExternalId, SecurityDocument>();
+    for (Entry<ExternalId, SecurityDocument> entry : documents.entrySet()) {
+      UniqueId uid = existing.get(entry.getKey());
+      if (uid == null) {
+        toAdd.put(entry.getKey(), entry.getValue());
+      } else {
+        entry.getValue().setUniqueId(uid);
+        toUpdate.put(entry.getKey(), entry.getValue());
+      }
     }
- 
-  }
-
-  private UniqueId updateSecurity(ManageableSecurity security, UniqueId uid) {
-    final SecurityDocument document = new SecurityDocument();
-    document.setSecurity(security);
-    document.setUniqueId(uid);
-    getSecurityMaster().update(document);
-    return document.getUniqueId();
+    Map<ExternalId, UniqueId> result = new HashMap<ExternalId, UniqueId>();
+    putUids(result, toAdd.keySet(), MasterUtils.addAll(getSecurityMaster(), toAdd.values()));
+    putUids(result, toUpdate.keySet(), MasterUtils.updateAll(getSecurityMaster(), toUpdate.values()));
+    return result;
   }
 
-  private UniqueId addSecurity(ManageableSecurity security) {
-    final SecurityDocument document = new SecurityDocument();
-    document.setSecurity(security);
-    SecurityDocument addedSecurity = getSecurityMaster().add(document);
-    return addedSecurity.getUniqueId();
+  private static void putUids(Map<ExternalId, UniqueId> result, Collection<ExternalId> buids, List<SecurityDocument> documents) {
+    int i = 0;
+    for (ExternalId buid : buids) {
+      result.put(buid, documents.get(i++).getUniqueId());
+    }
   }
 
-  private UniqueId getUid(ExternalId identifier) {
-    SecuritySearchRequest request = new SecuritySearchRequest(ExternalIdBundle.of(identifier));
-    SecuritySearchResult result = getSecurityMaster().search(request);
-    UniqueId uid = null;
-    if (!result.getDocuments().isEmpty()) {
-      SecurityDocument document = result.getFirstDocument();
-      uid = document.getUniqueId();
+  /**
+   * Finds the stored securities with any of the identifiers, searching in chunks.
+   * 
+   * @param identifiers  the identifiers, null ignored
+   * @return the unique identifier of the first security found for each identifier, missing if none, not null
+   */
+  private Map<ExternalId, UniqueId> getUids(Collection<ExternalId> identifiers) {
+    Map<ExternalId, UniqueId> result = new HashMap<ExternalId, UniqueId>();
+    List<ExternalId> ids = new ArrayList<ExternalId>(identifiers);
+    ids.remove(null);
+    for (int start = 0; start < ids.size(); start += SEARCH_SIZE) {
+      Set<ExternalId> chunk = new HashSet<ExternalId>(ids.subList(start, Math.min(ids.size(), start + SEARCH_SIZE)));
+      SecuritySearchRequest request = new SecuritySearchRequest();
+      request.addExternalIds(chunk);
+      request.setFullDetail(false);
+      SecuritySearchResult searchResult = getSecurityMaster().search(request);
+      for (SecurityDocument document : searchResult.getDocuments()) {
+        for (ExternalId id : document.getSecurity().getExternalIdBundle()) {
+          if (chunk.contains(id) && !result.containsKey(id)) {
+            result.put(id, document.getUniqueId());
+          }
+        }
+      }
     }
-    return uid;
+    return result;
   }
 
   @Override
@@ -70,6 +70,11 @@ public class DbHistoricalTimeSeriesMasterComponentFactory extends AbstractDbMast
    */
   @PropertyDefinition
   private Integer _maxRetries;
+  /**
+   * The flag determining whether the data points are stored in compressed yearly blocks (default false).
+   */
+  @PropertyDefinition
+  private boolean _blockStorage;
 
   //-------------------------------------------------------------------------
   @Override
@@ -84,6 +89,7 @@ public class DbHistoricalTimeSeriesMasterComponentFactory extends AbstractDbMast
     if (getMaxRetries() != null) {
       master.setMaxRetries(getMaxRetries());
     }
+    master.setBlockStorage(isBlockStorage());
     if (getJmsChangeManagerTopic() != null) {
       JmsChangeManager cm = new JmsChangeManager(getJmsConnector(), getJmsChangeManagerTopic());
       master.setChangeManager(cm);
@@ -142,6 +148,8 @@ public class DbHistoricalTimeSeriesMasterComponentFactory extends AbstractDbMast
         return getUniqueIdScheme();
       case -2022653118:  // maxRetries
         return getMaxRetries();
+      case 1657949486:  // blockStorage
+        return isBlockStorage();
     }
     return super.propertyGet(propertyName, quiet);
   }
@@ -170,6 +178,9 @@ public class DbHistoricalTimeSeriesMasterComponentFactory extends AbstractDbMast
       case -2022653118:  // maxRetries
         setMaxRetries((Integer) newValue);
         return;
+      case 1657949486:  // blockStorage
+        setBlockStorage((Boolean) newValue);
+        return;
     }
     super.propertySet(propertyName, newValue, quiet);
   }
@@ -195,6 +206,7 @@ public class DbHistoricalTimeSeriesMasterComponentFactory extends AbstractDbMast
           JodaBeanUtils.equal(getJmsChangeManagerTopic(), other.getJmsChangeManagerTopic()) &&
           JodaBeanUtils.equal(getUniqueIdScheme(), other.getUniqueIdScheme()) &&
           JodaBeanUtils.equal(getMaxRetries(), other.getMaxRetries()) &&
+          JodaBeanUtils.equal(isBlockStorage(), other.isBlockStorage()) &&
           super.equals(obj);
     }
     return false;
@@ -210,6 +222,7 @@ public class DbHistoricalTimeSeriesMasterComponentFactory extends AbstractDbMast
     hash += hash * 31 + JodaBeanUtils.hashCode(getJmsChangeManagerTopic());
     hash += hash * 31 + JodaBeanUtils.hashCode(getUniqueIdScheme());
     hash += hash * 31 + JodaBeanUtils.hashCode(getMaxRetries());
+    hash += hash * 31 + JodaBeanUtils.hashCode(isBlockStorage());
     return hash ^ super.hashCode();
   }
 
@@ -390,6 +403,31 @@ public class DbHistoricalTimeSeriesMasterComponentFactory extends AbstractDbMast
     return metaBean().maxRetries().createProperty(this);
   }
 
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the flag determining whether the data points are stored in compressed yearly blocks (default false).
+   * @return the value of the property
+   */
+  public boolean isBlockStorage() {
+    return _blockStorage;
+  }
+
+  /**
+   * Sets the flag determining whether the data points are stored in compressed yearly blocks (default false).
+   * @param blockStorage  the new value of the property
+   */
+  public void setBlockStorage(boolean blockStorage) {
+    this._blockStorage = blockStorage;
+  }
+
+  /**
+   * Gets the the {@code blockStorage} property.
+   * @return the property, not null
+   */
+  public final Property<Boolean> blockStorage() {
+    return metaBean().blockStorage().createProperty(this);
+  }
+
   //-----------------------------------------------------------------------
   /**
    * The meta-bean for {@code DbHistoricalTimeSeriesMasterComponentFactory}.
@@ -435,6 +473,11 @@ public class DbHistoricalTimeSeriesMasterComponentFactory extends AbstractDbMast
      */
     private final MetaProperty<Integer> _maxRetries = DirectMetaProperty.ofReadWrite(
         this, "maxRetries", DbHistoricalTimeSeriesMasterComponentFactory.class, Integer.class);
+    /**
+     * The meta-property for the {@code blockStorage} property.
+     */
+    private final MetaProperty<Boolean> _blockStorage = DirectMetaProperty.ofReadWrite(
+        this, "blockStorage", DbHistoricalTimeSeriesMasterComponentFactory.class, Boolean.TYPE);
     /**
      * The meta-properties.
      */
@@ -446,7 +489,8 @@ public class DbHistoricalTimeSeriesMasterComponentFactory extends AbstractDbMast
         "jmsConnector",
         "jmsChangeManagerTopic",
         "uniqueIdScheme",
-        "maxRetries");
+        "maxRetries",
+        "blockStorage");
 
     /**
      * Restricted constructor.
@@ -471,6 +515,8 @@ public class DbHistoricalTimeSeriesMasterComponentFactory extends AbstractDbMast
           return _uniqueIdScheme;
         case -2022653118:  // maxRetries
           return _maxRetries;
+        case 1657949486:  // blockStorage
+          return _blockStorage;
       }
       return super.metaPropertyGet(propertyName);
     }
@@ -547,6 +593,14 @@ public class DbHistoricalTimeSeriesMasterComponentFactory extends AbstractDbMast
       return _maxRetries;
     }
 
+    /**
+     * The meta-property for the {@code blockStorage} property.
+     * @return the meta-property, not null
+     */
+    public final MetaProperty<Boolean> blockStorage() {
+      return _blockStorage;
+    }
+
   }
 
   ///CLOVER:ON
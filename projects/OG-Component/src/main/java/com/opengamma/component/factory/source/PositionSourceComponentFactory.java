@@ -24,6 +24,7 @@ import com.opengamma.component.ComponentInfo;
 import com.opengamma.component.ComponentRepository;
 import com.opengamma.component.factory.AbstractComponentFactory;
 import com.opengamma.component.factory.ComponentInfoAttributes;
+import com.opengamma.core.NearCache;
 import com.opengamma.core.position.PositionSource;
 import com.opengamma.core.position.impl.DataPositionSourceResource;
 import com.opengamma.core.position.impl.EHCachingPositionSource;
@@ -53,6 +54,11 @@ public class PositionSourceComponentFactory extends AbstractComponentFactory {
    */
   @PropertyDefinition
   private CacheManager _cacheManager;
+  /**
+   * The maximum total number of portfolios, nodes, positions and trades held in memory in front of the cache manager.
+   */
+  @PropertyDefinition
+  private long _nearCacheMaximumWeight = NearCache.DEFAULT_MAXIMUM_WEIGHT;
   /**
    * The portfolio master.
    */
@@ -73,7 +79,7 @@ public class PositionSourceComponentFactory extends AbstractComponentFactory {
     
     PositionSource source = new MasterPositionSource(getPortfolioMaster(), getPositionMaster());
     if (getCacheManager() != null) {
-      source = new EHCachingPositionSource(source, getCacheManager());
+      source = new EHCachingPositionSource(source, getCacheManager(), getNearCacheMaximumWeight());
     }
     
     repo.registerComponent(info, source);
@@ -109,6 +115,8 @@ public class PositionSourceComponentFactory extends AbstractComponentFactory {
         return isPublishRest();
       case -1452875317:  // cacheManager
         return getCacheManager();
+      case 1542363806:  // nearCacheMaximumWeight
+        return getNearCacheMaximumWeight();
       case -772274742:  // portfolioMaster
         return getPortfolioMaster();
       case -1840419605:  // positionMaster
@@ -129,6 +137,9 @@ public class PositionSourceComponentFactory extends AbstractComponentFactory {
       case -1452875317:  // cacheManager
         setCacheManager((CacheManager) newValue);
         return;
+      case 1542363806:  // nearCacheMaximumWeight
+        setNearCacheMaximumWeight((Long) newValue);
+        return;
       case -772274742:  // portfolioMaster
         setPortfolioMaster((PortfolioMaster) newValue);
         return;
@@ -157,6 +168,7 @@ public class PositionSourceComponentFactory extends AbstractComponentFactory {
       return JodaBeanUtils.equal(getClassifier(), other.getClassifier()) &&
           JodaBeanUtils.equal(isPublishRest(), other.isPublishRest()) &&
           JodaBeanUtils.equal(getCacheManager(), other.getCacheManager()) &&
+          JodaBeanUtils.equal(getNearCacheMaximumWeight(), other.getNearCacheMaximumWeight()) &&
           JodaBeanUtils.equal(getPortfolioMaster(), other.getPortfolioMaster()) &&
           JodaBeanUtils.equal(getPositionMaster(), other.getPositionMaster()) &&
           super.equals(obj);
@@ -170,6 +182,7 @@ public class PositionSourceComponentFactory extends AbstractComponentFactory {
     hash += hash * 31 + JodaBeanUtils.hashCode(getClassifier());
     hash += hash * 31 + JodaBeanUtils.hashCode(isPublishRest());
     hash += hash * 31 + JodaBeanUtils.hashCode(getCacheManager());
+    hash += hash * 31 + JodaBeanUtils.hashCode(getNearCacheMaximumWeight());
     hash += hash * 31 + JodaBeanUtils.hashCode(getPortfolioMaster());
     hash += hash * 31 + JodaBeanUtils.hashCode(getPositionMaster());
     return hash ^ super.hashCode();
@@ -251,6 +264,31 @@ public class PositionSourceComponentFactory extends AbstractComponentFactory {
     return metaBean().cacheManager().createProperty(this);
   }
 
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the maximum total number of portfolios, nodes, positions and trades held in memory in front of the cache manager.
+   * @return the value of the property
+   */
+  public long getNearCacheMaximumWeight() {
+    return _nearCacheMaximumWeight;
+  }
+
+  /**
+   * Sets the maximum total number of portfolios, nodes, positions and trades held in memory in front of the cache manager.
+   * @param nearCacheMaximumWeight  the new value of the property
+   */
+  public void setNearCacheMaximumWeight(long nearCacheMaximumWeight) {
+    this._nearCacheMaximumWeight = nearCacheMaximumWeight;
+  }
+
+  /**
+   * Gets the the {@code nearCacheMaximumWeight} property.
+   * @return the property, not null
+   */
+  public final Property<Long> nearCacheMaximumWeight() {
+    return metaBean().nearCacheMaximumWeight().createProperty(this);
+  }
+
   //-----------------------------------------------------------------------
   /**
    * Gets the portfolio master.
@@ -328,6 +366,11 @@ public class PositionSourceComponentFactory extends AbstractComponentFactory {
      */
     private final MetaProperty<CacheManager> _cacheManager = DirectMetaProperty.ofReadWrite(
         this, "cacheManager", PositionSourceComponentFactory.class, CacheManager.class);
+    /**
+     * The meta-property for the {@code nearCacheMaximumWeight} property.
+     */
+    private final MetaProperty<Long> _nearCacheMaximumWeight = DirectMetaProperty.ofReadWrite(
+        this, "nearCacheMaximumWeight", PositionSourceComponentFactory.class, Long.TYPE);
     /**
      * The meta-property for the {@code portfolioMaster} property.
      */
@@ -346,6 +389,7 @@ public class PositionSourceComponentFactory extends AbstractComponentFactory {
         "classifier",
         "publishRest",
         "cacheManager",
+        "nearCacheMaximumWeight",
         "portfolioMaster",
         "positionMaster");
 
@@ -364,6 +408,8 @@ public class PositionSourceComponentFactory extends AbstractComponentFactory {
           return _publishRest;
         case -1452875317:  // cacheManager
           return _cacheManager;
+        case 1542363806:  // nearCacheMaximumWeight
+          return _nearCacheMaximumWeight;
         case -772274742:  // portfolioMaster
           return _portfolioMaster;
         case -1840419605:  // positionMaster
@@ -412,6 +458,14 @@ public class PositionSourceComponentFactory extends AbstractComponentFactory {
       return _cacheManager;
     }
 
+    /**
+     * The meta-property for the {@code nearCacheMaximumWeight} property.
+     * @return the meta-property, not null
+     */
+    public final MetaProperty<Long> nearCacheMaximumWeight() {
+      return _nearCacheMaximumWeight;
+    }
+
     /**
      * The meta-property for the {@code portfolioMaster} property.
      * @return the meta-property, not null
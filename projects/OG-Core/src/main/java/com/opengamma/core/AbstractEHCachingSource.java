@@ -8,10 +8,10 @@ package com.opengamma.core;
 import static com.google.common.collect.Maps.newHashMap;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentMap;
 
 import javax.time.Instant;
 import javax.time.calendar.Period;
@@ -23,8 +23,6 @@ import net.sf.ehcache.Element;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.MapMaker;
-import com.opengamma.DataNotFoundException;
 import com.opengamma.core.change.BasicChangeManager;
 import com.opengamma.core.change.ChangeEvent;
 import com.opengamma.core.change.ChangeListener;
@@ -36,7 +34,6 @@ import com.opengamma.id.UniqueIdentifiable;
 import com.opengamma.id.VersionCorrection;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.ehcache.EHCacheUtils;
-import com.opengamma.util.map.HashDeepMap2;
 import com.opengamma.util.map.Map2;
 import com.opengamma.util.map.SoftValueHashMap2;
 import com.opengamma.util.tuple.Pair;
@@ -62,9 +59,9 @@ public abstract class AbstractEHCachingSource<V extends UniqueIdentifiable, S ex
 
   /**
    * EHCache doesn't like being hammered repeatedly for the same objects. Also, if the window of objects being requested is bigger than the in memory window then new objects get created as the on-disk
-   * values get deserialized. The solution is to maintain a soft referenced buffer so that all the while the objects we have previously returned are in use we won't requery EHCache for them.
+   * values get deserialized. The solution is to maintain a bounded near cache, invalidated precisely from change events, so that we won't requery EHCache for the objects most recently used.
    */
-  private final ConcurrentMap<UniqueId, V> _frontCache = new MapMaker().weakValues().makeMap();
+  private final NearCache<V> _nearCache = new NearCache<V>();
 
   /**
    * EHCache doesn't like being hammered repeatedly for the same objects. Also, if the window of objects being requested is bigger than the in memory window then new objects get created as the on-disk
@@ -72,12 +69,6 @@ public abstract class AbstractEHCachingSource<V extends UniqueIdentifiable, S ex
    */
   private final Map2<Object, VersionCorrection, V> _frontCache2 = new SoftValueHashMap2<Object, VersionCorrection, V>();
 
-  private final HashDeepMap2<ObjectId, UniqueId, V> _frontCache3 = new HashDeepMap2<ObjectId, UniqueId, V>() {
-    protected MapMaker mapMaker() {
-      return super.mapMaker().softValues();
-    }
-  };
-
   /**
    * The underlying cache.
    */
@@ -153,12 +144,12 @@ public abstract class AbstractEHCachingSource<V extends UniqueIdentifiable, S ex
   }
 
   /**
-   * Gets the front cache.
+   * Gets the near cache, holding objects by unique identifier and by object identifier and version-correction.
    *
-   * @return the front cache, not null
+   * @return the near cache, not null
    */
-  protected ConcurrentMap<UniqueId, V> getFrontCache() {
-    return _frontCache;
+  protected NearCache<V> getNearCache() {
+    return _nearCache;
   }
 
   /**
@@ -193,15 +184,16 @@ public abstract class AbstractEHCachingSource<V extends UniqueIdentifiable, S ex
   @Override
   public V get(UniqueId uid) {
     ArgumentChecker.notNull(uid, "uid");
-    V result = _frontCache.get(uid);
+    V result = _nearCache.get(uid);
     if (result != null) {
       return result;
     }
+    final long changeCount = _nearCache.getChangeCount();
     Element e = _uidCache.get(uid);
     if (e != null) {
       result = (V) e.getValue();
       s_logger.debug("retrieved object: {} from uid-cache", result);
-      final V existing = _frontCache.putIfAbsent(uid, result);
+      final V existing = _nearCache.putIfAbsent(uid, result, changeCount);
       if (existing != null) {
         return existing;
       } else {
@@ -209,7 +201,7 @@ public abstract class AbstractEHCachingSource<V extends UniqueIdentifiable, S ex
       }
     } else {
       result = getUnderlying().get(uid);
-      final V existing = _frontCache.putIfAbsent(uid, result);
+      final V existing = _nearCache.putIfAbsent(uid, result, changeCount);
       if (existing != null) {
         return existing;
       } else {
@@ -234,15 +226,16 @@ public abstract class AbstractEHCachingSource<V extends UniqueIdentifiable, S ex
   public V get(final ObjectId objectId, final VersionCorrection versionCorrection) {
     ArgumentChecker.notNull(objectId, "objectId");
     ArgumentChecker.notNull(versionCorrection, "versionCorrection");
-    V result = _frontCache2.get(objectId, versionCorrection);
+    V result = _nearCache.get(objectId, versionCorrection);
     if (result != null) {
       return result;
     }
+    final long changeCount = _nearCache.getChangeCount();
     Map<VersionCorrection, V> items = getObjectIdCacheEntry(objectId);
     if (items != null) {
       result = items.get(versionCorrection);
       if (result != null) {
-        final V existing = _frontCache2.putIfAbsent(objectId, versionCorrection, result);
+        final V existing = _nearCache.putIfAbsent(objectId, versionCorrection, result, changeCount);
         if (existing != null) {
           return existing;
         }
@@ -251,39 +244,76 @@ public abstract class AbstractEHCachingSource<V extends UniqueIdentifiable, S ex
     if (result == null) {
       result = getUnderlying().get(objectId, versionCorrection);
       if (result != null) {
-        final V existing = _frontCache2.putIfAbsent(objectId, versionCorrection, result);
+        final V existing = _nearCache.putIfAbsent(objectId, versionCorrection, result, changeCount);
         if (existing != null) {
           return existing;
         }
         _uidCache.put(new Element(result.getUniqueId(), result));
       }
-      final Map<VersionCorrection, V> newitems = new HashMap<VersionCorrection, V>();
-      synchronized (this) {
-        items = getObjectIdCacheEntry(objectId);
-        if (items != null) {
-          newitems.putAll(items);
-        }
-        newitems.put(versionCorrection, result);
-        _oidCache.put(new Element(objectId, newitems));
-      }
+      cacheObjectIdEntry(objectId, versionCorrection, result);
     }
     return result;
   }
 
+  /**
+   * Stores an object in the oid cache against a version-correction.
+   *
+   * @param objectId  the object identifier, not null
+   * @param versionCorrection  the version-correction, not null
+   * @param result  the object, may be null
+   */
+  protected void cacheObjectIdEntry(final ObjectId objectId, final VersionCorrection versionCorrection, final V result) {
+    final Map<VersionCorrection, V> newitems = new HashMap<VersionCorrection, V>();
+    synchronized (this) {
+      final Map<VersionCorrection, V> items = getObjectIdCacheEntry(objectId);
+      if (items != null) {
+        newitems.putAll(items);
+      }
+      newitems.put(versionCorrection, result);
+      _oidCache.put(new Element(objectId, newitems));
+    }
+  }
+
   static final Period s_versionCorrectionBucketSize = Period.ofDays(1); //This is an attempt to avoid thrashing if we get conflicting queries
   static final BigInteger s_versionCorrectionBucketSizeInNanos = BigInteger.valueOf(s_versionCorrectionBucketSize.totalNanosWith24HourDays());
   static final int s_versionCorrectionBucketSizeInSeconds = (int) Period.ofDays(1).totalSecondsWith24HourDays();
   static final BigInteger s_latestBucket = BigInteger.valueOf(-1);
 
+  @SuppressWarnings("unchecked")
   @Override
   public Map<UniqueId, V> get(Collection<UniqueId> uniqueIds) {
-    Map<UniqueId, V> result = newHashMap();
+    final Map<UniqueId, V> result = newHashMap();
+    final long changeCount = _nearCache.getChangeCount();
+    final Collection<UniqueId> missed = new ArrayList<UniqueId>();
     for (UniqueId uniqueId : uniqueIds) {
-      try {
-        V object = get(uniqueId);
-        result.put(uniqueId, object);
-      } catch (DataNotFoundException ex) {
-        // do nothing
+      V object = _nearCache.get(uniqueId);
+      if (object == null) {
+        final Element e = _uidCache.get(uniqueId);
+        if (e == null) {
+          missed.add(uniqueId);
+          continue;
+        }
+        object = (V) e.getValue();
+        final V existing = _nearCache.putIfAbsent(uniqueId, object, changeCount);
+        if (existing != null) {
+          object = existing;
+        }
+      }
+      result.put(uniqueId, object);
+    }
+    if (!missed.isEmpty()) {
+      // all misses can be passed to underlying as one request
+      for (Map.Entry<UniqueId, V> underlying : getUnderlying().get(missed).entrySet()) {
+        V object = underlying.getValue();
+        if (object != null) {
+          final V existing = _nearCache.putIfAbsent(underlying.getKey(), object, changeCount);
+          if (existing != null) {
+            object = existing;
+          } else {
+            _uidCache.put(new Element(underlying.getKey(), object));
+          }
+          result.put(underlying.getKey(), object);
+        }
       }
     }
     return result;
@@ -305,28 +335,19 @@ public abstract class AbstractEHCachingSource<V extends UniqueIdentifiable, S ex
 
   //-------------------------------------------------------------------------
   protected void cleanCaches(ObjectId oid, Instant versionFrom, Instant versionTo) {
-    _frontCache3.remove(oid);
-    
-    // Note: this is very inefficient
-    for (Pair<Object, VersionCorrection> key : _frontCache2.keySet()) {
-      if (key.getFirst() instanceof ObjectId) {
-        ObjectId objectId = (ObjectId) key.getFirst();
-        VersionCorrection vc = key.getSecond();
-        if (objectId.equals(oid) && vc.getCorrectedTo() == null &&
-            !vc.getVersionAsOf().isBefore(versionFrom) && !vc.getVersionAsOf().isAfter(versionTo)) {
-          _frontCache2.remove(key);
-        }
-      } else {
-        _frontCache2.remove(key);
+    _nearCache.invalidate(oid, versionFrom, versionTo);
+
+    // Bundles resolved to the object may no longer match it; where a bundle also matches the changed object the resolution is already
+    // an arbitrary choice among the matches, so bundles resolved to other objects are kept
+    for (Map.Entry<Pair<Object, VersionCorrection>, V> entry : _frontCache2.entrySet()) {
+      final V value = entry.getValue();
+      if (value != null && oid.equals(value.getUniqueId().getObjectId())) {
+        _frontCache2.remove(entry.getKey());
       }
     }
     
-    for (Object key : _uidCache.getKeys()) {
-      if (key instanceof UniqueId && ((UniqueId) key).getObjectId().equals(oid)) {
-        _uidCache.remove(key);
-        _frontCache.remove(key);
-      }
-    }
+    // Only the latest version can change, versioned unique identifiers are immutable
+    _uidCache.remove(oid.atLatestVersion());
     
     // Destroy all version/correction cached values for the object
     _oidCache.remove(oid);
@@ -0,0 +1,351 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.core;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.time.Instant;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.opengamma.core.change.ChangeEvent;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * An in-memory cache of objects held in front of a source, keyed by unique identifier
+ * or by object identifier and version-correction.
+ * <p>
+ * Reads do not lock. The cache is bounded by the total weight of the objects held, with the
+ * least recently used evicted first, and entries are invalidated individually from change events.
+ * Only entries that a change could affect are removed: those for the latest version of the
+ * object, and those for a version-correction with the latest correction whose version falls
+ * within the changed range. Objects cached by a versioned unique identifier never change so
+ * are only ever evicted.
+ * <p>
+ * A change may be notified while an object is being fetched from the underlying source. To avoid
+ * caching a stale object, callers take {@link #getChangeCount()} before fetching and pass it when
+ * storing the result; the result is not kept if a change to the same object was notified in the
+ * meantime. Changes are tracked against a fixed number of stripes of object identifiers so an
+ * unrelated change only rarely stops a result being kept, and never causes a stale one to be kept.
+ *
+ * @param <V> the type of the cached objects
+ */
+public final class NearCache<V> {
+
+  /**
+   * The default maximum total weight of the cached objects.
+   */
+  public static final long DEFAULT_MAXIMUM_WEIGHT = 100000;
+  /**
+   * The number of stripes the last change to each object is tracked against.
+   */
+  private static final int CHANGE_STRIPES = 1024;
+
+  /**
+   * The cached objects, keyed by {@link UniqueId} or by a pair of {@link ObjectId} and {@link VersionCorrection}.
+   */
+  private final Cache<Object, V> _cache;
+  /**
+   * The keys cached for each object, used to find the entries to invalidate.
+   */
+  private final ConcurrentMap<ObjectId, Keys> _keys = new ConcurrentHashMap<ObjectId, Keys>();
+  /**
+   * Keys removed from the cache that may need removing from the index.
+   */
+  private final Queue<Object> _removed = new ConcurrentLinkedQueue<Object>();
+  /**
+   * The number of changes notified.
+   */
+  private final AtomicLong _changeCount = new AtomicLong();
+  /**
+   * The change count of the last change notified to an object in each stripe.
+   */
+  private final AtomicLongArray _lastChange = new AtomicLongArray(CHANGE_STRIPES);
+  /**
+   * The change count of the last invalidation of all entries.
+   */
+  private volatile long _lastChangeAll;
+  /**
+   * The maximum total weight of the cached objects.
+   */
+  private final long _maximumWeight;
+
+  /**
+   * The keys cached for an object. Once emptied and removed from the index the instance is retired.
+   */
+  private static final class Keys extends HashSet<Object> {
+    private static final long serialVersionUID = 1L;
+    private boolean _retired;
+  }
+
+  /**
+   * Creates an instance giving each object a weight of one.
+   */
+  public NearCache() {
+    this(DEFAULT_MAXIMUM_WEIGHT, null);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param maximumWeight  the maximum total weight of the cached objects, not negative
+   * @param weigher  the weigher of the cached objects, null to give each object a weight of one
+   */
+  public NearCache(final long maximumWeight, final Weigher<Object, ? super V> weigher) {
+    ArgumentChecker.notNegative(maximumWeight, "maximumWeight");
+    _maximumWeight = maximumWeight;
+    final RemovalListener<Object, V> listener = new RemovalListener<Object, V>() {
+      @Override
+      public void onRemoval(final RemovalNotification<Object, V> notification) {
+        if (notification.getCause() != RemovalCause.REPLACED) {
+          // Don't take any locks here, this may be called from within a read
+          _removed.add(notification.getKey());
+        }
+      }
+    };
+    if (weigher != null) {
+      _cache = CacheBuilder.newBuilder().maximumWeight(maximumWeight).weigher(weigher).removalListener(listener).build();
+    } else {
+      _cache = CacheBuilder.newBuilder().maximumSize(maximumWeight).removalListener(listener).build();
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets an object by unique identifier.
+   *
+   * @param uniqueId  the unique identifier, not null
+   * @return the cached object, null if not cached
+   */
+  public V get(final UniqueId uniqueId) {
+    return _cache.getIfPresent(uniqueId);
+  }
+
+  /**
+   * Gets an object by object identifier and version-correction.
+   *
+   * @param objectId  the object identifier, not null
+   * @param versionCorrection  the version-correction, not null
+   * @return the cached object, null if not cached
+   */
+  public V get(final ObjectId objectId, final VersionCorrection versionCorrection) {
+    return _cache.getIfPresent(Pair.of(objectId, versionCorrection));
+  }
+
+  /**
+   * Gets the maximum total weight of the cached objects.
+   *
+   * @return the maximum weight, not negative
+   */
+  public long getMaximumWeight() {
+    return _maximumWeight;
+  }
+
+  /**
+   * Gets the number of changes notified so far, to be taken before fetching an object to store.
+   *
+   * @return the change count
+   */
+  public long getChangeCount() {
+    return _changeCount.get();
+  }
+
+  /**
+   * Stores an object by unique identifier unless another is already cached.
+   *
+   * @param uniqueId  the unique identifier, not null
+   * @param value  the object, null is not cached
+   * @param changeCount  the change count taken before the object was fetched
+   * @return the object already cached, null if none
+   */
+  public V putIfAbsent(final UniqueId uniqueId, final V value, final long changeCount) {
+    return putIfAbsent(uniqueId.getObjectId(), uniqueId, value, changeCount);
+  }
+
+  /**
+   * Stores an object by object identifier and version-correction unless another is already cached.
+   *
+   * @param objectId  the object identifier, not null
+   * @param versionCorrection  the version-correction, not null
+   * @param value  the object, null is not cached
+   * @param changeCount  the change count taken before the object was fetched
+   * @return the object already cached, null if none
+   */
+  public V putIfAbsent(final ObjectId objectId, final VersionCorrection versionCorrection, final V value, final long changeCount) {
+    return putIfAbsent(objectId, Pair.of(objectId, versionCorrection), value, changeCount);
+  }
+
+  private V putIfAbsent(final ObjectId objectId, final Object key, final V value, final long changeCount) {
+    if (value == null) {
+      return null;
+    }
+    final V existing = _cache.asMap().putIfAbsent(key, value);
+    if (existing != null) {
+      return existing;
+    }
+    addKey(objectId, key);
+    if (isChangedSince(objectId, changeCount)) {
+      // A change to the object was notified while the value was being fetched
+      _cache.asMap().remove(key, value);
+    }
+    pruneKeys();
+    return null;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Invalidates the entries a change event could affect.
+   *
+   * @param event  the change event, not null
+   */
+  public void invalidate(final ChangeEvent event) {
+    invalidate(event.getObjectId(), event.getVersionFrom(), event.getVersionTo());
+  }
+
+  /**
+   * Invalidates the entries a change to an object could affect.
+   *
+   * @param objectId  the object identifier, not null
+   * @param versionFrom  the start of the changed range of versions, null if from the earliest
+   * @param versionTo  the end of the changed range of versions, null if to the latest
+   */
+  public void invalidate(final ObjectId objectId, final Instant versionFrom, final Instant versionTo) {
+    ArgumentChecker.notNull(objectId, "objectId");
+    // The change must be visible to concurrent stores before the index is read
+    final long changeCount = _changeCount.incrementAndGet();
+    final int stripe = getStripe(objectId);
+    long last = _lastChange.get(stripe);
+    while (last < changeCount && !_lastChange.compareAndSet(stripe, last, changeCount)) {
+      last = _lastChange.get(stripe);
+    }
+    final Keys keys = _keys.get(objectId);
+    if (keys == null) {
+      return;
+    }
+    final List<Object> affected = new ArrayList<Object>();
+    synchronized (keys) {
+      for (Object key : keys) {
+        if (isAffected(key, versionFrom, versionTo)) {
+          affected.add(key);
+        }
+      }
+    }
+    _cache.invalidateAll(affected);
+    pruneKeys();
+  }
+
+  /**
+   * Invalidates all entries.
+   */
+  public void invalidateAll() {
+    _lastChangeAll = _changeCount.incrementAndGet();
+    _cache.invalidateAll();
+    pruneKeys();
+  }
+
+  private static boolean isAffected(final Object key, final Instant versionFrom, final Instant versionTo) {
+    if (key instanceof UniqueId) {
+      return ((UniqueId) key).isLatest();
+    }
+    @SuppressWarnings("unchecked")
+    final VersionCorrection versionCorrection = ((Pair<ObjectId, VersionCorrection>) key).getSecond();
+    if (versionCorrection.getCorrectedTo() != null) {
+      // Changes are made now so never alter what was visible at a fixed correction instant
+      return false;
+    }
+    final Instant versionAsOf = versionCorrection.getVersionAsOf();
+    if (versionAsOf == null) {
+      return true;
+    }
+    return (versionFrom == null || !versionAsOf.isBefore(versionFrom)) && (versionTo == null || !versionAsOf.isAfter(versionTo));
+  }
+
+  /**
+   * Gets the number of cached objects.
+   *
+   * @return the approximate number of cached objects
+   */
+  public long size() {
+    return _cache.size();
+  }
+
+  //-------------------------------------------------------------------------
+  private static int getStripe(final ObjectId objectId) {
+    final int hash = objectId.hashCode();
+    return (hash ^ (hash >>> 16)) & (CHANGE_STRIPES - 1);
+  }
+
+  private boolean isChangedSince(final ObjectId objectId, final long changeCount) {
+    return _lastChange.get(getStripe(objectId)) > changeCount || _lastChangeAll > changeCount;
+  }
+
+  private static ObjectId getObjectId(final Object key) {
+    if (key instanceof UniqueId) {
+      return ((UniqueId) key).getObjectId();
+    }
+    return (ObjectId) ((Pair<?, ?>) key).getFirst();
+  }
+
+  private void addKey(final ObjectId objectId, final Object key) {
+    do {
+      Keys keys = _keys.get(objectId);
+      if (keys == null) {
+        keys = new Keys();
+        final Keys existing = _keys.putIfAbsent(objectId, keys);
+        if (existing != null) {
+          keys = existing;
+        }
+      }
+      synchronized (keys) {
+        if (!keys._retired) {
+          keys.add(key);
+          return;
+        }
+      }
+    } while (true);
+  }
+
+  /**
+   * Removes the keys of evicted and invalidated entries from the index.
+   */
+  private void pruneKeys() {
+    Object key = _removed.poll();
+    while (key != null) {
+      final ObjectId objectId = getObjectId(key);
+      final Keys keys = _keys.get(objectId);
+      if (keys != null) {
+        synchronized (keys) {
+          // The key may have been stored again since it was removed
+          if (!_cache.asMap().containsKey(key)) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+              keys._retired = true;
+              _keys.remove(objectId, keys);
+            }
+          }
+        }
+      }
+      key = _removed.poll();
+    }
+  }
+
+}
@@ -499,6 +499,24 @@ public interface HistoricalTimeSeriesSource extends ChangeProvider {
       Set<ExternalIdBundle> identifierSet, String dataSource, String dataProvider, String dataField,
       LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd);
 
+  /**
+   * Finds multiple time-series by unique identifier, with all data points between start and end date.
+   * <p>
+   * This is the bulk form of {@link #getHistoricalTimeSeries(UniqueId, LocalDate, boolean, LocalDate, boolean)}.
+   * Each unique identifier already refers to the series of a single data field. Remote and caching
+   * implementations should satisfy the whole set with as few underlying requests as possible.
+   * 
+   * @param uniqueIds  the unique identifiers of the time-series required, not null
+   * @param start  the start date, null will load the earliest date 
+   * @param includeStart  whether or not the start date is included in the result
+   * @param end  the end date, null will load the latest date
+   * @param includeEnd  whether or not the end date is included in the result
+   * @return a map of each unique identifier found to the corresponding time-series, not null
+   * @throws IllegalArgumentException if a unique identifier is invalid
+   */
+  Map<UniqueId, HistoricalTimeSeries> getHistoricalTimeSeries(
+      Set<UniqueId> uniqueIds, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd);
+
   //-------------------------------------------------------------------------
   
   /**
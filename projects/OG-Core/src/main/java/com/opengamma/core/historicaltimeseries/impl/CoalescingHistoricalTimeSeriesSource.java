@@ -0,0 +1,381 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.core.historicaltimeseries.impl;
+
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.time.calendar.LocalDate;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.core.change.ChangeManager;
+import com.opengamma.core.historicaltimeseries.HistoricalTimeSeries;
+import com.opengamma.core.historicaltimeseries.HistoricalTimeSeriesSource;
+import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.tuple.ObjectsPair;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Wrapper around an existing {@link HistoricalTimeSeriesSource} that coalesces concurrent calls for single time-series by unique identifier
+ * into calls to the bulk operation on the underlying, one for each distinct date range requested. This can improve efficiency where the
+ * underlying uses network or database resources and the round trip of multiple single calls is less desirable than a single bulk call.
+ */
+public class CoalescingHistoricalTimeSeriesSource implements HistoricalTimeSeriesSource {
+
+  private final HistoricalTimeSeriesSource _underlying;
+
+  private static final class Request {
+
+    private final UniqueId _uniqueId;
+    /** The inclusive start and end dates, either may be null. */
+    private final Pair<LocalDate, LocalDate> _range;
+    private HistoricalTimeSeries _result;
+    private boolean _done;
+
+    public Request(final UniqueId uniqueId, final LocalDate start, final LocalDate end) {
+      _uniqueId = uniqueId;
+      _range = ObjectsPair.of(start, end);
+    }
+
+    public UniqueId getUniqueId() {
+      return _uniqueId;
+    }
+
+    public Pair<LocalDate, LocalDate> getRange() {
+      return _range;
+    }
+
+    public synchronized void found(final HistoricalTimeSeries result) {
+      _result = result;
+      _done = true;
+      notify();
+    }
+
+    public synchronized void missed() {
+      _done = true;
+      notify();
+    }
+
+    /**
+     * Blocks until the result is out, or the write lock could be claimed.
+     */
+    public synchronized boolean waitForResult(final AtomicBoolean writing) {
+      try {
+        while (!_done && !writing.compareAndSet(false, true)) {
+          wait();
+        }
+        return _done;
+      } catch (InterruptedException e) {
+        throw new OpenGammaRuntimeException("Interrupted", e);
+      }
+    }
+
+    public synchronized void release() {
+      notify();
+    }
+
+    public synchronized HistoricalTimeSeries getResult() {
+      return _result;
+    }
+
+  }
+
+  private final AtomicBoolean _fetching = new AtomicBoolean();
+  private final Queue<Request> _pending = new ConcurrentLinkedQueue<Request>();
+
+  public CoalescingHistoricalTimeSeriesSource(final HistoricalTimeSeriesSource underlying) {
+    ArgumentChecker.notNull(underlying, "underlying");
+    _underlying = underlying;
+  }
+
+  protected HistoricalTimeSeriesSource getUnderlying() {
+    return _underlying;
+  }
+
+  @Override
+  public ChangeManager changeManager() {
+    return getUnderlying().changeManager();
+  }
+
+  private Collection<Request> drainPending() {
+    final Collection<Request> pending = new LinkedList<Request>();
+    Request entry = _pending.poll();
+    while (entry != null) {
+      pending.add(entry);
+      entry = _pending.poll();
+    }
+    return pending;
+  }
+
+  /**
+   * Fetches the pending requests with one bulk call to the underlying for each distinct date range, and then releases the write lock.
+   */
+  private void fetchPending(final Collection<Request> pending) {
+    final Map<Pair<LocalDate, LocalDate>, Set<UniqueId>> requests = Maps.newHashMap();
+    for (Request request : pending) {
+      Set<UniqueId> uniqueIds = requests.get(request.getRange());
+      if (uniqueIds == null) {
+        uniqueIds = Sets.newHashSet();
+        requests.put(request.getRange(), uniqueIds);
+      }
+      uniqueIds.add(request.getUniqueId());
+    }
+    final Map<Pair<LocalDate, LocalDate>, Map<UniqueId, HistoricalTimeSeries>> results = Maps.newHashMapWithExpectedSize(requests.size());
+    try {
+      for (Map.Entry<Pair<LocalDate, LocalDate>, Set<UniqueId>> request : requests.entrySet()) {
+        final Pair<LocalDate, LocalDate> range = request.getKey();
+        results.put(range, getUnderlying().getHistoricalTimeSeries(request.getValue(), range.getFirst(), true, range.getSecond(), true));
+      }
+      for (Request request : pending) {
+        final Map<UniqueId, HistoricalTimeSeries> result = results.get(request.getRange());
+        final HistoricalTimeSeries hts = (result != null) ? result.get(request.getUniqueId()) : null;
+        if (hts != null) {
+          request.found(hts);
+        } else {
+          request.missed();
+        }
+      }
+    } catch (RuntimeException t) {
+      for (Request request : pending) {
+        request.missed();
+      }
+      throw t;
+    } finally {
+      _fetching.set(false);
+      releaseOtherWritingThreads();
+    }
+  }
+
+  protected void releaseOtherWritingThreads() {
+    final Request otherThread = _pending.peek();
+    if (otherThread != null) {
+      // Notify the thread that it might be able to claim the write lock
+      otherThread.release();
+    }
+  }
+
+  private HistoricalTimeSeries get(final Request request) {
+    if (!_fetching.compareAndSet(false, true)) {
+      _pending.add(request);
+      if (request.waitForResult(_fetching)) {
+        return request.getResult();
+      }
+      // Request the pending queue, which will include our own request
+      fetchPending(drainPending());
+      return request.getResult();
+    } else {
+      final Collection<Request> pending = drainPending();
+      if (pending.isEmpty()) {
+        // Single request
+        try {
+          final Pair<LocalDate, LocalDate> range = request.getRange();
+          if (range.getFirst() == null && range.getSecond() == null) {
+            return getUnderlying().getHistoricalTimeSeries(request.getUniqueId());
+          } else {
+            return getUnderlying().getHistoricalTimeSeries(request.getUniqueId(), range.getFirst(), true, range.getSecond(), true);
+          }
+        } finally {
+          _fetching.set(false);
+          releaseOtherWritingThreads();
+        }
+      } else {
+        // Our request and the content of the pending queue
+        pending.add(request);
+        fetchPending(pending);
+        return request.getResult();
+      }
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final UniqueId uniqueId) {
+    ArgumentChecker.notNull(uniqueId, "uniqueId");
+    return get(new Request(uniqueId, null, null));
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final UniqueId uniqueId, final LocalDate start, final boolean includeStart, final LocalDate end,
+      final boolean includeEnd) {
+    ArgumentChecker.notNull(uniqueId, "uniqueId");
+    return get(new Request(uniqueId, (start != null && !includeStart) ? start.plusDays(1) : start, (end != null && !includeEnd) ? end.minusDays(1) : end));
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final UniqueId uniqueId, final LocalDate start, final boolean includeStart, final LocalDate end,
+      final boolean includeEnd, final int maxPoints) {
+    return getUnderlying().getHistoricalTimeSeries(uniqueId, start, includeStart, end, includeEnd, maxPoints);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(final UniqueId uniqueId) {
+    return getUnderlying().getLatestDataPoint(uniqueId);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(final UniqueId uniqueId, final LocalDate start, final boolean includeStart, final LocalDate end,
+      final boolean includeEnd) {
+    return getUnderlying().getLatestDataPoint(uniqueId, start, includeStart, end, includeEnd);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final ExternalIdBundle identifierBundle, final String dataSource, final String dataProvider,
+      final String dataField) {
+    return getUnderlying().getHistoricalTimeSeries(identifierBundle, dataSource, dataProvider, dataField);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final ExternalIdBundle identifierBundle, final String dataSource, final String dataProvider,
+      final String dataField, final LocalDate start, final boolean includeStart, final LocalDate end, final boolean includeEnd) {
+    return getUnderlying().getHistoricalTimeSeries(identifierBundle, dataSource, dataProvider, dataField, start, includeStart, end, includeEnd);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final ExternalIdBundle identifierBundle, final String dataSource, final String dataProvider,
+      final String dataField, final LocalDate start, final boolean includeStart, final LocalDate end, final boolean includeEnd, final int maxPoints) {
+    return getUnderlying().getHistoricalTimeSeries(identifierBundle, dataSource, dataProvider, dataField, start, includeStart, end, includeEnd, maxPoints);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(final ExternalIdBundle identifierBundle, final String dataSource, final String dataProvider,
+      final String dataField) {
+    return getUnderlying().getLatestDataPoint(identifierBundle, dataSource, dataProvider, dataField);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(final ExternalIdBundle identifierBundle, final String dataSource, final String dataProvider,
+      final String dataField, final LocalDate start, final boolean includeStart, final LocalDate end, final boolean includeEnd) {
+    return getUnderlying().getLatestDataPoint(identifierBundle, dataSource, dataProvider, dataField, start, includeStart, end, includeEnd);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final ExternalIdBundle identifierBundle, final LocalDate identifierValidityDate,
+      final String dataSource, final String dataProvider, final String dataField) {
+    return getUnderlying().getHistoricalTimeSeries(identifierBundle, identifierValidityDate, dataSource, dataProvider, dataField);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final ExternalIdBundle identifierBundle, final LocalDate identifierValidityDate,
+      final String dataSource, final String dataProvider, final String dataField, final LocalDate start, final boolean includeStart,
+      final LocalDate end, final boolean includeEnd) {
+    return getUnderlying().getHistoricalTimeSeries(identifierBundle, identifierValidityDate, dataSource, dataProvider, dataField, start, includeStart,
+        end, includeEnd);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final ExternalIdBundle identifierBundle, final LocalDate identifierValidityDate,
+      final String dataSource, final String dataProvider, final String dataField, final LocalDate start, final boolean includeStart,
+      final LocalDate end, final boolean includeEnd, final int maxPoints) {
+    return getUnderlying().getHistoricalTimeSeries(identifierBundle, identifierValidityDate, dataSource, dataProvider, dataField, start, includeStart,
+        end, includeEnd, maxPoints);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(final ExternalIdBundle identifierBundle, final LocalDate identifierValidityDate,
+      final String dataSource, final String dataProvider, final String dataField) {
+    return getUnderlying().getLatestDataPoint(identifierBundle, identifierValidityDate, dataSource, dataProvider, dataField);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(final ExternalIdBundle identifierBundle, final LocalDate identifierValidityDate,
+      final String dataSource, final String dataProvider, final String dataField, final LocalDate start, final boolean includeStart,
+      final LocalDate end, final boolean includeEnd) {
+    return getUnderlying().getLatestDataPoint(identifierBundle, identifierValidityDate, dataSource, dataProvider, dataField, start, includeStart,
+        end, includeEnd);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final String dataField, final ExternalIdBundle identifierBundle, final String resolutionKey) {
+    return getUnderlying().getHistoricalTimeSeries(dataField, identifierBundle, resolutionKey);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final String dataField, final ExternalIdBundle identifierBundle, final String resolutionKey,
+      final LocalDate start, final boolean includeStart, final LocalDate end, final boolean includeEnd) {
+    return getUnderlying().getHistoricalTimeSeries(dataField, identifierBundle, resolutionKey, start, includeStart, end, includeEnd);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final String dataField, final ExternalIdBundle identifierBundle, final String resolutionKey,
+      final LocalDate start, final boolean includeStart, final LocalDate end, final boolean includeEnd, final int maxPoints) {
+    return getUnderlying().getHistoricalTimeSeries(dataField, identifierBundle, resolutionKey, start, includeStart, end, includeEnd, maxPoints);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(final String dataField, final ExternalIdBundle identifierBundle, final String resolutionKey) {
+    return getUnderlying().getLatestDataPoint(dataField, identifierBundle, resolutionKey);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(final String dataField, final ExternalIdBundle identifierBundle, final String resolutionKey,
+      final LocalDate start, final boolean includeStart, final LocalDate end, final boolean includeEnd) {
+    return getUnderlying().getLatestDataPoint(dataField, identifierBundle, resolutionKey, start, includeStart, end, includeEnd);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final String dataField, final ExternalIdBundle identifierBundle,
+      final LocalDate identifierValidityDate, final String resolutionKey) {
+    return getUnderlying().getHistoricalTimeSeries(dataField, identifierBundle, identifierValidityDate, resolutionKey);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final String dataField, final ExternalIdBundle identifierBundle,
+      final LocalDate identifierValidityDate, final String resolutionKey, final LocalDate start, final boolean includeStart, final LocalDate end,
+      final boolean includeEnd) {
+    return getUnderlying().getHistoricalTimeSeries(dataField, identifierBundle, identifierValidityDate, resolutionKey, start, includeStart, end,
+        includeEnd);
+  }
+
+  @Override
+  public HistoricalTimeSeries getHistoricalTimeSeries(final String dataField, final ExternalIdBundle identifierBundle,
+      final LocalDate identifierValidityDate, final String resolutionKey, final LocalDate start, final boolean includeStart, final LocalDate end,
+      final boolean includeEnd, final int maxPoints) {
+    return getUnderlying().getHistoricalTimeSeries(dataField, identifierBundle, identifierValidityDate, resolutionKey, start, includeStart, end,
+        includeEnd, maxPoints);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(final String dataField, final ExternalIdBundle identifierBundle,
+      final LocalDate identifierValidityDate, final String resolutionKey) {
+    return getUnderlying().getLatestDataPoint(dataField, identifierBundle, identifierValidityDate, resolutionKey);
+  }
+
+  @Override
+  public Pair<LocalDate, Double> getLatestDataPoint(final String dataField, final ExternalIdBundle identifierBundle,
+      final LocalDate identifierValidityDate, final String resolutionKey, final LocalDate start, final boolean includeStart, final LocalDate end,
+      final boolean includeEnd) {
+    return getUnderlying().getLatestDataPoint(dataField, identifierBundle, identifierValidityDate, resolutionKey, start, includeStart, end,
+        includeEnd);
+  }
+
+  @Override
+  public Map<ExternalIdBundle, HistoricalTimeSeries> getHistoricalTimeSeries(final Set<ExternalIdBundle> identifierSet, final String dataSource,
+      final String dataProvider, final String dataField, final LocalDate start, final boolean includeStart, final LocalDate end,
+      final boolean includeEnd) {
+    return getUnderlying().getHistoricalTimeSeries(identifierSet, dataSource, dataProvider, dataField, start, includeStart, end, includeEnd);
+  }
+
+  @Override
+  public Map<UniqueId, HistoricalTimeSeries> getHistoricalTimeSeries(final Set<UniqueId> uniqueIds, final LocalDate start, final boolean includeStart,
+      final LocalDate end, final boolean includeEnd) {
+    return getUnderlying().getHistoricalTimeSeries(uniqueIds, start, includeStart, end, includeEnd);
+  }
+
+  @Override
+  public ExternalIdBundle getExternalIdBundle(final UniqueId uniqueId) {
+    return getUnderlying().getExternalIdBundle(uniqueId);
+  }
+
+}
@@ -34,6 +34,7 @@ import com.opengamma.id.UniqueId;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.OpenGammaClock;
 import com.opengamma.util.ehcache.EHCacheUtils;
+import com.opengamma.util.timeseries.localdate.ArrayLocalDateDoubleTimeSeries;
 import com.opengamma.util.timeseries.localdate.ListLocalDateDoubleTimeSeries;
 import com.opengamma.util.timeseries.localdate.LocalDateDoubleTimeSeries;
 import com.opengamma.util.tuple.ObjectsPair;
@@ -158,6 +159,7 @@ public class EHCachingHistoricalTimeSeriesSource implements HistoricalTimeSeries
   private void cleanCaches(ObjectId oid) {
     // Only care where the unversioned ID has been cached since it now represents something else
     _dataCache.remove(oid);
+    _dataCache.remove(new RangeKey(oid.atLatestVersion()));
     _identifierBundleCache.remove(oid);
     // Destroy all version/correction cached values for the object
     _dataCache.remove(oid);
@@ -271,12 +273,15 @@ public class EHCachingHistoricalTimeSeriesSource implements HistoricalTimeSeries
       Element fullHtsElement = _dataCache.get(uniqueId);
       if (fullHtsElement != null) {
         hts = getSubSeries((HistoricalTimeSeries) fullHtsElement.getObjectValue(), start, includeStart, end, includeEnd, maxPoints);
-      } else {
-        if (maxPoints == null) {
-          hts = _underlying.getHistoricalTimeSeries(uniqueId, start, includeStart, end, includeEnd);
-        } else {
-          hts = _underlying.getHistoricalTimeSeries(uniqueId, start, includeStart, end, includeEnd, maxPoints);
+      } else if (maxPoints == null) {
+        // Serve from, or extend, the cached window of dates for the series
+        hts = getFromRangeCache(uniqueId, inclusiveStart(start, includeStart), inclusiveEnd(end, includeEnd));
+        if (hts == null) {
+          s_logger.debug("Caching miss {}", key);
+          _dataCache.put(new Element(key, MISS));
         }
+      } else {
+        hts = _underlying.getHistoricalTimeSeries(uniqueId, start, includeStart, end, includeEnd, maxPoints);
         if (hts != null) {
           s_logger.debug("Caching sub time-series {}", hts);
           _dataCache.put(new Element(key, hts));
@@ -667,6 +672,232 @@ public class EHCachingHistoricalTimeSeriesSource implements HistoricalTimeSeries
     return result;
   }
 
+  @Override
+  public Map<UniqueId, HistoricalTimeSeries> getHistoricalTimeSeries(
+      Set<UniqueId> uniqueIds, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    ArgumentChecker.notNull(uniqueIds, "uniqueIds");
+    final LocalDate rangeStart = inclusiveStart(start, includeStart);
+    final LocalDate rangeEnd = inclusiveEnd(end, includeEnd);
+    final SubSeriesKey subseriesKey = new SubSeriesKey(start, includeStart, end, includeEnd, null);
+    Map<UniqueId, HistoricalTimeSeries> result = new HashMap<UniqueId, HistoricalTimeSeries>();
+    Set<UniqueId> remainingIds = new HashSet<UniqueId>();
+    // caching works individually but all misses can be passed to underlying as one request
+    for (UniqueId uniqueId : uniqueIds) {
+      Element element = _dataCache.get(Pair.of(uniqueId, subseriesKey));
+      if (element != null) {
+        HistoricalTimeSeries hts = (HistoricalTimeSeries) element.getObjectValue();
+        if (!MISS.equals(hts)) {
+          result.put(uniqueId, hts);
+        }
+        continue;
+      }
+      HistoricalTimeSeries hts = getFromDataCache(uniqueId);
+      if (hts != null) {
+        if (!MISS.equals(hts)) {
+          result.put(uniqueId, getSubSeries(hts, start, includeStart, end, includeEnd, null));
+        }
+        continue;
+      }
+      element = _dataCache.get(new RangeKey(uniqueId));
+      if (element != null && ((CachedRange) element.getObjectValue()).covers(rangeStart, rangeEnd)) {
+        result.put(uniqueId, ((CachedRange) element.getObjectValue()).getSubSeries(rangeStart, rangeEnd));
+      } else {
+        remainingIds.add(uniqueId);
+      }
+    }
+    if (remainingIds.size() > 0) {
+      Map<UniqueId, HistoricalTimeSeries> remainingTsResults = _underlying.getHistoricalTimeSeries(remainingIds, rangeStart, true, rangeEnd, true);
+      for (UniqueId uniqueId : remainingIds) {
+        HistoricalTimeSeries hts = remainingTsResults.get(uniqueId);
+        if (hts != null) {
+          s_logger.debug("Caching sub time-series {}", hts);
+          putInRangeCache(uniqueId, rangeStart, rangeEnd, hts);
+          result.put(uniqueId, hts);
+        } else {
+          s_logger.debug("Caching miss {}", uniqueId);
+          _dataCache.put(new Element(Pair.of(uniqueId, subseriesKey), MISS));
+        }
+      }
+    }
+    return result;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets a time-series from the cached window of dates for the series, fetching only the dates not already held.
+   * <p>
+   * If the requested dates overlap or adjoin the cached window only the missing dates either side are fetched
+   * from the underlying and the window is extended. Otherwise the requested dates replace the window.
+   * 
+   * @param uniqueId  the unique identifier, not null
+   * @param start  the inclusive start date, null for the earliest date
+   * @param end  the inclusive end date, null for the latest date
+   * @return the time-series, null if not found
+   */
+  private HistoricalTimeSeries getFromRangeCache(UniqueId uniqueId, LocalDate start, LocalDate end) {
+    final Element element = _dataCache.get(new RangeKey(uniqueId));
+    CachedRange range = (element != null) ? (CachedRange) element.getObjectValue() : null;
+    if (range != null && range.adjoins(start, end)) {
+      if (range.covers(start, end)) {
+        s_logger.debug("Cache hit on range of {}", uniqueId);
+        return range.getSubSeries(start, end);
+      }
+      if (range.getStart() != null && (start == null || start.isBefore(range.getStart()))) {
+        final HistoricalTimeSeries prefix = _underlying.getHistoricalTimeSeries(uniqueId, start, true, range.getStart().minusDays(1), true);
+        range = (prefix != null) ? range.extend(start, range.getStart().minusDays(1), prefix.getTimeSeries()) : null;
+      }
+      if (range != null && range.getEnd() != null && (end == null || end.isAfter(range.getEnd()))) {
+        final HistoricalTimeSeries suffix = _underlying.getHistoricalTimeSeries(uniqueId, range.getEnd().plusDays(1), true, end, true);
+        range = (suffix != null) ? range.extend(range.getEnd().plusDays(1), end, suffix.getTimeSeries()) : null;
+      }
+      if (range != null) {
+        s_logger.debug("Extending cached range of {}", uniqueId);
+        _dataCache.put(new Element(new RangeKey(uniqueId), range));
+        return range.getSubSeries(start, end);
+      }
+    }
+    final HistoricalTimeSeries hts = _underlying.getHistoricalTimeSeries(uniqueId, start, true, end, true);
+    if (hts != null) {
+      s_logger.debug("Caching sub time-series {}", hts);
+      _dataCache.put(new Element(new RangeKey(uniqueId), new CachedRange(hts.getUniqueId(), start, end, hts.getTimeSeries())));
+    }
+    return hts;
+  }
+
+  /**
+   * Stores a fetched time-series in the cached window of dates for the series, extending the window if possible.
+   * 
+   * @param uniqueId  the unique identifier, not null
+   * @param start  the inclusive start date, null for the earliest date
+   * @param end  the inclusive end date, null for the latest date
+   * @param hts  the time-series holding the data points between the dates, not null
+   */
+  private void putInRangeCache(UniqueId uniqueId, LocalDate start, LocalDate end, HistoricalTimeSeries hts) {
+    final Element element = _dataCache.get(new RangeKey(uniqueId));
+    final CachedRange range = (element != null) ? (CachedRange) element.getObjectValue() : null;
+    if (range != null && range.adjoins(start, end)) {
+      _dataCache.put(new Element(new RangeKey(uniqueId), range.extend(start, end, hts.getTimeSeries())));
+    } else {
+      _dataCache.put(new Element(new RangeKey(uniqueId), new CachedRange(hts.getUniqueId(), start, end, hts.getTimeSeries())));
+    }
+  }
+
+  private static LocalDate inclusiveStart(LocalDate start, boolean includeStart) {
+    return (start != null && !includeStart) ? start.plusDays(1) : start;
+  }
+
+  private static LocalDate inclusiveEnd(LocalDate end, boolean includeEnd) {
+    return (end != null && !includeEnd) ? end.minusDays(1) : end;
+  }
+
+  /**
+   * Cache key for the window of dates held for a series.
+   */
+  private static final class RangeKey implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final UniqueId _uniqueId;
+
+    public RangeKey(UniqueId uniqueId) {
+      _uniqueId = uniqueId;
+    }
+
+    @Override
+    public int hashCode() {
+      return _uniqueId.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof RangeKey && _uniqueId.equals(((RangeKey) obj)._uniqueId);
+    }
+  }
+
+  /**
+   * A contiguous window of dates of a series, holding every data point between the dates.
+   */
+  private static final class CachedRange implements Serializable {
+    private static final long serialVersionUID = 1L;
+    /** The unique identifier of the series, as returned by the underlying source. */
+    private final UniqueId _uniqueId;
+    /** The inclusive start date, null if from the earliest date. */
+    private final LocalDate _start;
+    /** The inclusive end date, null if to the latest date. */
+    private final LocalDate _end;
+    private final LocalDateDoubleTimeSeries _timeSeries;
+
+    public CachedRange(UniqueId uniqueId, LocalDate start, LocalDate end, LocalDateDoubleTimeSeries timeSeries) {
+      _uniqueId = uniqueId;
+      _start = start;
+      _end = end;
+      _timeSeries = timeSeries;
+    }
+
+    public LocalDate getStart() {
+      return _start;
+    }
+
+    public LocalDate getEnd() {
+      return _end;
+    }
+
+    public boolean covers(LocalDate start, LocalDate end) {
+      return (_start == null || (start != null && !start.isBefore(_start))) && (_end == null || (end != null && !end.isAfter(_end)));
+    }
+
+    public boolean adjoins(LocalDate start, LocalDate end) {
+      return (start == null || _end == null || !start.isAfter(_end.plusDays(1))) && (end == null || _start == null || !end.isBefore(_start.minusDays(1)));
+    }
+
+    /**
+     * Combines this window with the data points of an adjoining window, the new data points taking precedence.
+     */
+    public CachedRange extend(LocalDate start, LocalDate end, LocalDateDoubleTimeSeries timeSeries) {
+      final LocalDate[] times = _timeSeries.timesArray();
+      final Double[] values = _timeSeries.valuesArray();
+      int before = 0;
+      while (start != null && before < times.length && times[before].isBefore(start)) {
+        before++;
+      }
+      int after = times.length;
+      while (end != null && after > before && times[after - 1].isAfter(end)) {
+        after--;
+      }
+      final LocalDate[] newTimes = timeSeries.timesArray();
+      final Double[] newValues = timeSeries.valuesArray();
+      final int size = before + newTimes.length + times.length - after;
+      final LocalDate[] mergedTimes = new LocalDate[size];
+      final double[] mergedValues = new double[size];
+      int i = 0;
+      for (int j = 0; j < before; j++, i++) {
+        mergedTimes[i] = times[j];
+        mergedValues[i] = values[j];
+      }
+      for (int j = 0; j < newTimes.length; j++, i++) {
+        mergedTimes[i] = newTimes[j];
+        mergedValues[i] = newValues[j];
+      }
+      for (int j = after; j < times.length; j++, i++) {
+        mergedTimes[i] = times[j];
+        mergedValues[i] = values[j];
+      }
+      final LocalDate mergedStart = (_start == null || start == null) ? null : (start.isBefore(_start) ? start : _start);
+      final LocalDate mergedEnd = (_end == null || end == null) ? null : (end.isAfter(_end) ? end : _end);
+      return new CachedRange(_uniqueId, mergedStart, mergedEnd, new ArrayLocalDateDoubleTimeSeries(mergedTimes, mergedValues));
+    }
+
+    public HistoricalTimeSeries getSubSeries(LocalDate start, LocalDate end) {
+      if (_timeSeries.isEmpty() || (start == null && end == null)) {
+        return new SimpleHistoricalTimeSeries(_uniqueId, _timeSeries);
+      }
+      final LocalDate first = (start == null || start.isBefore(_timeSeries.getEarliestTime())) ? _timeSeries.getEarliestTime() : start;
+      final LocalDate last = (end == null || end.isAfter(_timeSeries.getLatestTime())) ? _timeSeries.getLatestTime() : end;
+      if (first.isAfter(last)) {
+        return new SimpleHistoricalTimeSeries(_uniqueId, new ArrayLocalDateDoubleTimeSeries());
+      }
+      return new SimpleHistoricalTimeSeries(_uniqueId, _timeSeries.subSeries(first, true, last, true));
+    }
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Attempts to retrieve the time-series with the given key from the cache.
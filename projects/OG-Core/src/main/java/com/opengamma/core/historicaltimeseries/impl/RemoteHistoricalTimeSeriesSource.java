@@ -6,6 +6,7 @@
 package com.opengamma.core.historicaltimeseries.impl;
 
 import java.net.URI;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -290,6 +291,19 @@ public class RemoteHistoricalTimeSeriesSource extends AbstractRemoteClient imple
     }
   }
 
+  @SuppressWarnings("unchecked")
+  @Override
+  public Map<UniqueId, HistoricalTimeSeries> getHistoricalTimeSeries(Set<UniqueId> uniqueIds, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    ArgumentChecker.notNull(uniqueIds, "uniqueIds");
+    try {
+      URI uri = DataHistoricalTimeSeriesSourceResource.uriGetBulk(getBaseUri());
+      FudgeMsg msg = DataHistoricalTimeSeriesSourceResource.uriGetBulkData(uniqueIds, start, includeStart, end, includeEnd);
+      return accessRemote(uri).post(FudgeMapWrapper.class, msg).getMap();
+    } catch (UniformInterfaceException404NotFound ex) {
+      return new HashMap<UniqueId, HistoricalTimeSeries>();
+    }
+  }
+
   //-------------------------------------------------------------------------
   private Pair<LocalDate, Double> extractPair(HistoricalTimeSeries historicalTimeSeries) {
     if (historicalTimeSeries == null) {
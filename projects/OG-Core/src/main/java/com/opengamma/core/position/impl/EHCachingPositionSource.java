@@ -5,13 +5,12 @@
  */
 package com.opengamma.core.position.impl;
 
-import java.util.concurrent.ConcurrentMap;
-
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.Element;
 
-import com.google.common.collect.MapMaker;
+import com.google.common.cache.Weigher;
+import com.opengamma.core.NearCache;
 import com.opengamma.core.change.BasicChangeManager;
 import com.opengamma.core.change.ChangeEvent;
 import com.opengamma.core.change.ChangeListener;
@@ -23,6 +22,7 @@ import com.opengamma.core.position.PositionSource;
 import com.opengamma.core.position.Trade;
 import com.opengamma.id.ObjectId;
 import com.opengamma.id.UniqueId;
+import com.opengamma.id.UniqueIdentifiable;
 import com.opengamma.id.VersionCorrection;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.ehcache.EHCacheUtils;
@@ -51,6 +51,16 @@ public class EHCachingPositionSource implements PositionSource {
    */
   private static final String TRADE_CACHE = "trade";
 
+  /**
+   * Weighs the near cache entries by the number of objects they hold that are not entries of their own.
+   */
+  private static final Weigher<Object, UniqueIdentifiable> WEIGHER = new Weigher<Object, UniqueIdentifiable>() {
+    @Override
+    public int weigh(final Object key, final UniqueIdentifiable value) {
+      return EHCachingPositionSource.weigh(value);
+    }
+  };
+
   /**
    * The underlying position source.
    */
@@ -84,7 +94,10 @@ public class EHCachingPositionSource implements PositionSource {
    */
   private final ChangeManager _changeManager;
 
-  private final ConcurrentMap<UniqueId, Object> _frontCache = new MapMaker().weakValues().makeMap();
+  /**
+   * The near cache, in front of EHCache, holding the most recently used objects of all types.
+   */
+  private final NearCache<UniqueIdentifiable> _nearCache;
 
   /**
    * Creates the cache around an underlying position source.
@@ -93,8 +106,24 @@ public class EHCachingPositionSource implements PositionSource {
    * @param cacheManager  the cache manager, not null
    */
   public EHCachingPositionSource(final PositionSource underlying, final CacheManager cacheManager) {
+    this(underlying, cacheManager, NearCache.DEFAULT_MAXIMUM_WEIGHT);
+  }
+
+  /**
+   * Creates the cache around an underlying position source.
+   * <p>
+   * The near cache weight is the total number of portfolios, nodes, positions and trades held
+   * by its entries. Each object is counted once: an object within a tree that is held as an
+   * entry of its own is not counted again for the entries above it.
+   * 
+   * @param underlying  the underlying data, not null
+   * @param cacheManager  the cache manager, not null
+   * @param nearCacheMaximumWeight  the maximum total weight of the near cache, not negative
+   */
+  public EHCachingPositionSource(final PositionSource underlying, final CacheManager cacheManager, final long nearCacheMaximumWeight) {
     ArgumentChecker.notNull(underlying, "underlying");
     ArgumentChecker.notNull(cacheManager, "cacheManager");
+    _nearCache = new NearCache<UniqueIdentifiable>(nearCacheMaximumWeight, WEIGHER);
     _underlying = underlying;
     _cacheManager = cacheManager;
     EHCacheUtils.addCache(cacheManager, PORTFOLIO_CACHE);
@@ -109,7 +138,8 @@ public class EHCachingPositionSource implements PositionSource {
     _changeListener = new ChangeListener() {
       @Override
       public void entityChanged(ChangeEvent event) {
-        cleanCaches(event.getObjectId());        
+        cleanCaches(event.getObjectId());
+        _nearCache.invalidate(event);
         changeManager().entityChanged(event.getType(), event.getObjectId(), event.getVersionFrom(), event.getVersionTo(), event.getVersionInstant());
       }
     };
@@ -138,36 +168,40 @@ public class EHCachingPositionSource implements PositionSource {
   //-------------------------------------------------------------------------
   @Override
   public Portfolio getPortfolio(UniqueId uniqueId) {
-    Object f = _frontCache.get(uniqueId);
+    Object f = _nearCache.get(uniqueId);
     if (f instanceof Portfolio) {
       return (Portfolio) f;
     }
+    final long changeCount = _nearCache.getChangeCount();
     if (uniqueId.isLatest()) {
       Portfolio portfolio = getUnderlying().getPortfolio(uniqueId);
-      f = _frontCache.putIfAbsent(portfolio.getUniqueId(), portfolio);
+      f = _nearCache.putIfAbsent(portfolio.getUniqueId(), portfolio, changeCount);
       if (f instanceof Portfolio) {
         return (Portfolio) f;
       } else {
         _portfolioCache.put(new Element(portfolio.getUniqueId(), portfolio));
+        cacheTree(portfolio.getRootNode(), changeCount);
         return portfolio;
       }
     }
     Element e = _portfolioCache.get(uniqueId);
     if (e != null) {
       final Portfolio portfolio = (Portfolio) e.getObjectValue();
-      f = _frontCache.putIfAbsent(uniqueId, portfolio);
+      f = _nearCache.putIfAbsent(uniqueId, portfolio, changeCount);
       if (f instanceof Portfolio) {
         return (Portfolio) f;
       } else {
+        cacheTree(portfolio.getRootNode(), changeCount);
         return portfolio;
       }
     } else {
       Portfolio portfolio = getUnderlying().getPortfolio(uniqueId);
-      f = _frontCache.putIfAbsent(uniqueId, portfolio);
+      f = _nearCache.putIfAbsent(uniqueId, portfolio, changeCount);
       if (f instanceof Portfolio) {
         return (Portfolio) f;
       } else {
         _portfolioCache.put(new Element(portfolio.getUniqueId(), portfolio));
+        cacheTree(portfolio.getRootNode(), changeCount);
         return portfolio;
       }
     }
@@ -175,36 +209,53 @@ public class EHCachingPositionSource implements PositionSource {
 
   @Override
   public Portfolio getPortfolio(ObjectId objectId, VersionCorrection versionCorrection) {
+    Object f = _nearCache.get(objectId, versionCorrection);
+    if (f instanceof Portfolio) {
+      return (Portfolio) f;
+    }
+    final long changeCount = _nearCache.getChangeCount();
     Portfolio portfolio = getUnderlying().getPortfolio(objectId, versionCorrection);
     _portfolioCache.put(new Element(portfolio.getUniqueId(), portfolio));
+    if (!versionCorrection.containsLatest()) {
+      // The tree can only be held while it cannot change, the positions within it are not notified as changes to the portfolio
+      f = _nearCache.putIfAbsent(objectId, versionCorrection, portfolio, changeCount);
+      if (f instanceof Portfolio) {
+        return (Portfolio) f;
+      }
+      _nearCache.putIfAbsent(portfolio.getUniqueId(), portfolio, changeCount);
+    }
+    cacheTree(portfolio.getRootNode(), changeCount);
     return portfolio;
   }
 
   @Override
   public PortfolioNode getPortfolioNode(UniqueId uniqueId) {
-    Object f = _frontCache.get(uniqueId);
+    Object f = _nearCache.get(uniqueId);
     if (f instanceof PortfolioNode) {
       return (PortfolioNode) f;
     }
     if (uniqueId.isLatest()) {
       return getUnderlying().getPortfolioNode(uniqueId);
     }
+    final long changeCount = _nearCache.getChangeCount();
     Element e = _portfolioNodeCache.get(uniqueId);
     if (e != null) {
       final PortfolioNode node = (PortfolioNode) e.getObjectValue();
-      f = _frontCache.putIfAbsent(uniqueId, node);
+      f = _nearCache.putIfAbsent(uniqueId, node, changeCount);
       if (f instanceof PortfolioNode) {
         return (PortfolioNode) f;
       } else {
-        return (PortfolioNode) e.getObjectValue();
+        cacheTree(node, changeCount);
+        return node;
       }
     } else {
       PortfolioNode node = getUnderlying().getPortfolioNode(uniqueId);
-      f = _frontCache.putIfAbsent(uniqueId, node);
+      f = _nearCache.putIfAbsent(uniqueId, node, changeCount);
       if (f instanceof PortfolioNode) {
         return (PortfolioNode) f;
       } else {
         _portfolioNodeCache.put(new Element(node.getUniqueId(), node));
+        cacheTree(node, changeCount);
         return node;
       }
     }
@@ -212,17 +263,18 @@ public class EHCachingPositionSource implements PositionSource {
 
   @Override
   public Position getPosition(UniqueId uniqueId) {
-    Object f = _frontCache.get(uniqueId);
+    Object f = _nearCache.get(uniqueId);
     if (f instanceof Position) {
       return (Position) f;
     }
     if (uniqueId.isLatest()) {
       return getUnderlying().getPosition(uniqueId);
     }
+    final long changeCount = _nearCache.getChangeCount();
     Element e = _positionCache.get(uniqueId);
     if (e != null) {
       final Position position = (Position) e.getObjectValue();
-      f = _frontCache.putIfAbsent(uniqueId, position);
+      f = _nearCache.putIfAbsent(uniqueId, position, changeCount);
       if (f instanceof Position) {
         return (Position) f;
       } else {
@@ -230,7 +282,7 @@ public class EHCachingPositionSource implements PositionSource {
       }
     } else {
       final Position position = getUnderlying().getPosition(uniqueId);
-      f = _frontCache.putIfAbsent(uniqueId, position);
+      f = _nearCache.putIfAbsent(uniqueId, position, changeCount);
       if (f instanceof Position) {
         return (Position) f;
       } else {
@@ -242,17 +294,18 @@ public class EHCachingPositionSource implements PositionSource {
 
   @Override
   public Trade getTrade(UniqueId uniqueId) {
-    Object f = _frontCache.get(uniqueId);
+    Object f = _nearCache.get(uniqueId);
     if (f instanceof Trade) {
       return (Trade) f;
     }
     if (uniqueId.isLatest()) {
       return getUnderlying().getTrade(uniqueId);
     }
+    final long changeCount = _nearCache.getChangeCount();
     Element e = _tradeCache.get(uniqueId);
     if (e != null) {
       final Trade trade = (Trade) e.getObjectValue();
-      f = _frontCache.putIfAbsent(uniqueId, trade);
+      f = _nearCache.putIfAbsent(uniqueId, trade, changeCount);
       if (f instanceof Trade) {
         return (Trade) f;
       } else {
@@ -260,7 +313,7 @@ public class EHCachingPositionSource implements PositionSource {
       }
     } else {
       final Trade trade = getUnderlying().getTrade(uniqueId);
-      f = _frontCache.putIfAbsent(uniqueId, trade);
+      f = _nearCache.putIfAbsent(uniqueId, trade, changeCount);
       if (f instanceof Trade) {
         return (Trade) f;
       } else {
@@ -270,6 +323,114 @@ public class EHCachingPositionSource implements PositionSource {
     }
   }
 
+  /**
+   * Holds the nodes, positions and trades of a tree in the near cache so that walking the
+   * tree by identifier doesn't query the underlying for each of them.
+   * <p>
+   * The near cache is only warmed up to half of its capacity so that a large tree doesn't
+   * evict its own entries, or everything else, as it is stored.
+   * 
+   * @param node  the root of the tree, not null
+   * @param changeCount  the change count taken before the tree was fetched
+   */
+  private void cacheTree(final PortfolioNode node, final long changeCount) {
+    cacheTree(node, changeCount, _nearCache.getMaximumWeight() / 2);
+  }
+
+  /**
+   * Holds the nodes, positions and trades of a tree in the near cache, within a weight budget.
+   * 
+   * @param node  the root of the tree, not null
+   * @param changeCount  the change count taken before the tree was fetched
+   * @param budget  the remaining weight that may be stored
+   * @return the weight still remaining, negative once the budget is used up
+   */
+  private long cacheTree(final PortfolioNode node, final long changeCount, long budget) {
+    if (isEntry(node)) {
+      budget -= weigh(node);
+      if (budget < 0) {
+        return budget;
+      }
+      _nearCache.putIfAbsent(node.getUniqueId(), node, changeCount);
+    }
+    for (Position position : node.getPositions()) {
+      if (isEntry(position)) {
+        budget -= weigh(position);
+        if (budget < 0) {
+          return budget;
+        }
+        _nearCache.putIfAbsent(position.getUniqueId(), position, changeCount);
+        for (Trade trade : position.getTrades()) {
+          if (isEntry(trade)) {
+            budget--;
+            if (budget < 0) {
+              return budget;
+            }
+            _nearCache.putIfAbsent(trade.getUniqueId(), trade, changeCount);
+          }
+        }
+      }
+    }
+    for (PortfolioNode child : node.getChildNodes()) {
+      budget = cacheTree(child, changeCount, budget);
+      if (budget < 0) {
+        return budget;
+      }
+    }
+    return budget;
+  }
+
+  /**
+   * Checks whether an object within a tree is held by {@link #cacheTree} as a near cache entry of its own.
+   * 
+   * @param value  the object, not null
+   * @return true if the object has a versioned identifier
+   */
+  private static boolean isEntry(final UniqueIdentifiable value) {
+    return value.getUniqueId() != null && value.getUniqueId().isVersioned();
+  }
+
+  /**
+   * Weighs an object by the number of portfolios, nodes, positions and trades it holds,
+   * counting itself but not the objects within it that are entries of their own.
+   * 
+   * @param value  the object, not null
+   * @return the weight, at least one
+   */
+  private static int weigh(final UniqueIdentifiable value) {
+    if (value instanceof Portfolio) {
+      return 1 + weighContent(((Portfolio) value).getRootNode());
+    } else if (value instanceof PortfolioNode) {
+      final PortfolioNode node = (PortfolioNode) value;
+      int weight = 1;
+      for (Position position : node.getPositions()) {
+        weight += weighContent(position);
+      }
+      for (PortfolioNode child : node.getChildNodes()) {
+        weight += weighContent(child);
+      }
+      return weight;
+    } else if (value instanceof Position) {
+      int weight = 1;
+      for (Trade trade : ((Position) value).getTrades()) {
+        weight += weighContent(trade);
+      }
+      return weight;
+    } else {
+      return 1;
+    }
+  }
+
+  /**
+   * Weighs an object held within another, zero if it is an entry of its own.
+   * 
+   * @param value  the object, not null
+   * @return the weight
+   */
+  private static int weighContent(final UniqueIdentifiable value) {
+    return isEntry(value) ? 0 : weigh(value);
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public ChangeManager changeManager() {
@@ -289,12 +450,13 @@ public class EHCachingPositionSource implements PositionSource {
   }
 
   //-------------------------------------------------------------------------
-  private void cleanCaches(ObjectId oid) {    
-    _portfolioNodeCache.remove(oid);
-    _portfolioCache.remove(oid);
-    _positionCache.remove(oid);
-    _tradeCache.remove(oid);
-    _frontCache.remove(oid);
+  private void cleanCaches(ObjectId oid) {
+    // The caches are keyed by unique identifier, only the latest version can change
+    final UniqueId latest = oid.atLatestVersion();
+    _portfolioNodeCache.remove(latest);
+    _portfolioCache.remove(latest);
+    _positionCache.remove(latest);
+    _tradeCache.remove(latest);
   }
 
   //-------------------------------------------------------------------------
@@ -10,7 +10,9 @@ import java.util.HashMap;
 import java.util.Map;
 
 import com.opengamma.DataNotFoundException;
+import com.opengamma.id.ObjectId;
 import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
 import com.opengamma.util.ArgumentChecker;
 
 /**
@@ -35,4 +37,22 @@ public abstract class AbstractSecuritySource implements SecuritySource {
     return result;
   }
 
+  @Override
+  public Map<ObjectId, Security> get(Collection<ObjectId> objectIds, VersionCorrection versionCorrection) {
+    ArgumentChecker.notNull(objectIds, "objectIds");
+    ArgumentChecker.notNull(versionCorrection, "versionCorrection");
+    Map<ObjectId, Security> result = new HashMap<ObjectId, Security>(objectIds.size());
+    for (ObjectId objectId : objectIds) {
+      try {
+        Security security = get(objectId, versionCorrection);
+        if (security != null) {
+          result.put(objectId, security);
+        }
+      } catch (DataNotFoundException ex) {
+        // Ignore
+      }
+    }
+    return result;
+  }
+
 }
@@ -5,7 +5,12 @@
  */
 package com.opengamma.core.security;
 
+import java.util.Collection;
+import java.util.Map;
+
 import com.opengamma.core.SourceWithExternalBundle;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.VersionCorrection;
 import com.opengamma.util.PublicSPI;
 
 /**
@@ -20,4 +25,17 @@ import com.opengamma.util.PublicSPI;
 @PublicSPI
 public interface SecuritySource extends SourceWithExternalBundle<Security> {
 
+  /**
+   * Gets the securities with the specified object identifiers at a version-correction.
+   * <p>
+   * A source that can fetch several securities in one request should do so.
+   * Object identifiers that cannot be found are omitted from the result.
+   *
+   * @param objectIds  the object identifiers to find, not null
+   * @param versionCorrection  the version-correction, not null
+   * @return the securities found keyed by object identifier, not null
+   * @throws RuntimeException if an error occurs
+   */
+  Map<ObjectId, Security> get(Collection<ObjectId> objectIds, VersionCorrection versionCorrection);
+
 }
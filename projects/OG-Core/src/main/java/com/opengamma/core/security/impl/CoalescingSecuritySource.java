@@ -309,6 +309,11 @@ public class CoalescingSecuritySource implements SecuritySource {
     return getUnderlying().get(objectId, versionCorrection);
   }
 
+  @Override
+  public Map<ObjectId, Security> get(final Collection<ObjectId> objectIds, final VersionCorrection versionCorrection) {
+    return getUnderlying().get(objectIds, versionCorrection);
+  }
+
   @Override
   public Collection<Security> get(final ExternalIdBundle bundle, final VersionCorrection versionCorrection) {
     return getUnderlying().get(bundle, versionCorrection);
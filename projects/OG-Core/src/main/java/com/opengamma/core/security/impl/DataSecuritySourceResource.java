@@ -112,6 +112,18 @@ public class DataSecuritySourceResource extends AbstractDataResource {
     return responseOkFudge(FudgeListWrapper.of(result.values()));
   }
 
+  @GET
+  @Path("securitySearches/objects")
+  public Response getBulkObjects(
+      @QueryParam("versionAsOf") String versionAsOf,
+      @QueryParam("correctedTo") String correctedTo,
+      @QueryParam("id") List<String> objectIdStrs) {
+    final VersionCorrection vc = VersionCorrection.parse(versionAsOf, correctedTo);
+    final List<ObjectId> oids = IdUtils.parseObjectIds(objectIdStrs);
+    Map<ObjectId, Security> result = getSecuritySource().get(oids, vc);
+    return responseOkFudge(FudgeListWrapper.of(result.values()));
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Builds a URI.
@@ -176,6 +188,24 @@ public class DataSecuritySourceResource extends AbstractDataResource {
     return bld.build();
   }
 
+  /**
+   * Builds a URI.
+   * 
+   * @param baseUri  the base URI, not null
+   * @param objectIds  the object identifiers, not null
+   * @param vc  the version-correction, null means latest
+   * @return the URI, not null
+   */
+  public static URI uriBulkObjects(URI baseUri, Iterable<ObjectId> objectIds, VersionCorrection vc) {
+    UriBuilder bld = UriBuilder.fromUri(baseUri).path("securitySearches/objects");
+    if (vc != null) {
+      bld.queryParam("versionAsOf", vc.getVersionAsOfString());
+      bld.queryParam("correctedTo", vc.getCorrectedToString());
+    }
+    bld.queryParam("id", IdUtils.toStringList(objectIds).toArray());
+    return bld.build();
+  }
+
   // deprecated
   //-------------------------------------------------------------------------
   @GET
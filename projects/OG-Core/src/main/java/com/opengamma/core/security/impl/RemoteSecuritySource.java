@@ -98,6 +98,21 @@ public class RemoteSecuritySource extends AbstractRemoteSource<Security> impleme
     return result;
   }
 
+  @SuppressWarnings("unchecked")
+  @Override
+  public Map<ObjectId, Security> get(final Collection<ObjectId> objectIds, final VersionCorrection versionCorrection) {
+    ArgumentChecker.notNull(objectIds, "objectIds");
+    ArgumentChecker.notNull(versionCorrection, "versionCorrection");
+    
+    URI uri = DataSecuritySourceResource.uriBulkObjects(getBaseUri(), objectIds, versionCorrection);
+    List<Security> list = accessRemote(uri).get(FudgeListWrapper.class).getList();
+    Map<ObjectId, Security> result = new HashMap<ObjectId, Security>(list.size());
+    for (Security security : list) {
+      result.put(security.getUniqueId().getObjectId(), security);
+    }
+    return result;
+  }
+
   @Override
   public ChangeManager changeManager() {
     return _changeManager;
@@ -41,6 +41,11 @@ public class MockSecuritySource implements SecuritySource {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public Map<ObjectId, Security> get(Collection<ObjectId> objectIds, VersionCorrection versionCorrection) {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public Collection<Security> get(ExternalIdBundle bundle, VersionCorrection versionCorrection) {
     throw new UnsupportedOperationException();
@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.core;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import javax.time.Instant;
+
+import org.testng.annotations.Test;
+
+import com.google.common.cache.Weigher;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+
+/**
+ * Test NearCache.
+ */
+@Test
+public class NearCacheTest {
+
+  private static final ObjectId OID = ObjectId.of("Test", "A");
+  private static final ObjectId OTHER_OID = ObjectId.of("Test", "B");
+  private static final Instant T1 = Instant.ofEpochSeconds(1000);
+  private static final Instant T2 = Instant.ofEpochSeconds(2000);
+  private static final Instant T3 = Instant.ofEpochSeconds(3000);
+
+  public void testPutIfAbsent() {
+    final NearCache<String> cache = new NearCache<String>();
+    final UniqueId uid = OID.atVersion("1");
+    assertNull(cache.get(uid));
+    final String value = new String("A");
+    assertNull(cache.putIfAbsent(uid, value, cache.getChangeCount()));
+    assertSame(value, cache.putIfAbsent(uid, new String("A"), cache.getChangeCount()));
+    assertSame(value, cache.get(uid));
+    assertNull(cache.get(OID, VersionCorrection.LATEST));
+    assertNull(cache.putIfAbsent(OID, VersionCorrection.LATEST, value, cache.getChangeCount()));
+    assertSame(value, cache.get(OID, VersionCorrection.LATEST));
+    assertNull(cache.putIfAbsent(uid, null, cache.getChangeCount()));
+  }
+
+  public void testInvalidateUniqueId() {
+    final NearCache<String> cache = new NearCache<String>();
+    final long changeCount = cache.getChangeCount();
+    cache.putIfAbsent(OID.atLatestVersion(), "latest", changeCount);
+    cache.putIfAbsent(OID.atVersion("1"), "v1", changeCount);
+    cache.putIfAbsent(OTHER_OID.atLatestVersion(), "other", changeCount);
+    cache.invalidate(OID, T1, null);
+    assertNull(cache.get(OID.atLatestVersion()));
+    assertEquals("v1", cache.get(OID.atVersion("1")));
+    assertEquals("other", cache.get(OTHER_OID.atLatestVersion()));
+  }
+
+  public void testInvalidateVersionCorrection() {
+    final NearCache<String> cache = new NearCache<String>();
+    final long changeCount = cache.getChangeCount();
+    final VersionCorrection latest = VersionCorrection.LATEST;
+    final VersionCorrection beforeChange = VersionCorrection.of(T1, null);
+    final VersionCorrection duringChange = VersionCorrection.of(T2, null);
+    final VersionCorrection afterChange = VersionCorrection.of(T3, null);
+    final VersionCorrection corrected = VersionCorrection.of(T2, T2);
+    cache.putIfAbsent(OID, latest, "latest", changeCount);
+    cache.putIfAbsent(OID, beforeChange, "before", changeCount);
+    cache.putIfAbsent(OID, duringChange, "during", changeCount);
+    cache.putIfAbsent(OID, afterChange, "after", changeCount);
+    cache.putIfAbsent(OID, corrected, "corrected", changeCount);
+    cache.putIfAbsent(OTHER_OID, latest, "other", changeCount);
+    cache.invalidate(OID, Instant.ofEpochSeconds(1500), Instant.ofEpochSeconds(2500));
+    assertNull(cache.get(OID, latest));
+    assertEquals("before", cache.get(OID, beforeChange));
+    assertNull(cache.get(OID, duringChange));
+    assertEquals("after", cache.get(OID, afterChange));
+    assertEquals("corrected", cache.get(OID, corrected));
+    assertEquals("other", cache.get(OTHER_OID, latest));
+    cache.invalidate(OID, null, null);
+    assertNull(cache.get(OID, beforeChange));
+    assertNull(cache.get(OID, afterChange));
+    assertEquals("corrected", cache.get(OID, corrected));
+  }
+
+  public void testChangeDuringFetch() {
+    final NearCache<String> cache = new NearCache<String>();
+    final long changeCount = cache.getChangeCount();
+    cache.invalidate(OID, null, null);
+    assertNull(cache.putIfAbsent(OID.atLatestVersion(), "stale", changeCount));
+    assertNull(cache.get(OID.atLatestVersion()));
+    assertNull(cache.putIfAbsent(OID.atLatestVersion(), "fresh", cache.getChangeCount()));
+    assertEquals("fresh", cache.get(OID.atLatestVersion()));
+  }
+
+  public void testChangeToOtherObjectDuringFetch() {
+    final NearCache<String> cache = new NearCache<String>();
+    final long changeCount = cache.getChangeCount();
+    cache.invalidate(OTHER_OID, null, null);
+    assertNull(cache.putIfAbsent(OID.atLatestVersion(), "value", changeCount));
+    assertEquals("value", cache.get(OID.atLatestVersion()));
+    assertNull(cache.putIfAbsent(OTHER_OID.atLatestVersion(), "stale", changeCount));
+    assertNull(cache.get(OTHER_OID.atLatestVersion()));
+  }
+
+  public void testInvalidateAllDuringFetch() {
+    final NearCache<String> cache = new NearCache<String>();
+    final long changeCount = cache.getChangeCount();
+    cache.invalidateAll();
+    assertNull(cache.putIfAbsent(OID.atLatestVersion(), "stale", changeCount));
+    assertNull(cache.get(OID.atLatestVersion()));
+  }
+
+  public void testReinsertAfterInvalidate() {
+    final NearCache<String> cache = new NearCache<String>();
+    cache.putIfAbsent(OID, VersionCorrection.LATEST, "1", cache.getChangeCount());
+    cache.invalidate(OID, null, null);
+    cache.putIfAbsent(OID, VersionCorrection.LATEST, "2", cache.getChangeCount());
+    cache.invalidate(OTHER_OID, null, null);
+    assertEquals("2", cache.get(OID, VersionCorrection.LATEST));
+    // the key must still be found after being stored again
+    cache.invalidate(OID, null, null);
+    assertNull(cache.get(OID, VersionCorrection.LATEST));
+  }
+
+  public void testWeightBound() {
+    final NearCache<String> cache = new NearCache<String>(100, new Weigher<Object, String>() {
+      @Override
+      public int weigh(final Object key, final String value) {
+        return value.length();
+      }
+    });
+    for (int i = 0; i < 100; i++) {
+      cache.putIfAbsent(ObjectId.of("Test", Integer.toString(i)).atVersion("1"), "0123456789", cache.getChangeCount());
+    }
+    assertEquals(100, cache.getMaximumWeight());
+    assertTrue(cache.size() <= 10);
+    assertEquals("0123456789", cache.get(ObjectId.of("Test", "99").atVersion("1")));
+  }
+
+  public void testInvalidateAll() {
+    final NearCache<String> cache = new NearCache<String>();
+    cache.putIfAbsent(OID.atVersion("1"), "v1", cache.getChangeCount());
+    cache.invalidateAll();
+    assertNull(cache.get(OID.atVersion("1")));
+    assertEquals(0, cache.size());
+  }
+
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.core.historicaltimeseries.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.time.calendar.LocalDate;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Maps;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.core.historicaltimeseries.HistoricalTimeSeries;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.test.Timeout;
+import com.opengamma.util.timeseries.localdate.ArrayLocalDateDoubleTimeSeries;
+
+/**
+ * Tests the {@link CoalescingHistoricalTimeSeriesSource} class.
+ */
+@Test
+public class CoalescingHistoricalTimeSeriesSourceTest {
+
+  private static final LocalDate START = LocalDate.of(2010, 1, 1);
+  private static final LocalDate END = LocalDate.of(2012, 1, 1);
+
+  private static void join(final CyclicBarrier barrier) {
+    try {
+      barrier.await(Timeout.standardTimeoutMillis(), TimeUnit.MILLISECONDS);
+    } catch (Exception e) {
+      throw new OpenGammaRuntimeException("interrupted", e);
+    }
+  }
+
+  private static void sleep() {
+    try {
+      Thread.sleep(Timeout.standardTimeoutMillis() / 4);
+    } catch (InterruptedException e) {
+      throw new OpenGammaRuntimeException("interrupted", e);
+    }
+  }
+
+  private static HistoricalTimeSeries hts(final UniqueId uid) {
+    return new SimpleHistoricalTimeSeries(uid, new ArrayLocalDateDoubleTimeSeries(new LocalDate[] {START }, new double[] {1d }));
+  }
+
+  public void testGetHistoricalTimeSeries_byUniqueId() throws Exception {
+    final UniqueId uidA = UniqueId.of("Test", "A");
+    final HistoricalTimeSeries htsA = hts(uidA);
+    final UniqueId uidB = UniqueId.of("Test", "B");
+    final HistoricalTimeSeries htsB = hts(uidB);
+    final UniqueId uidC = UniqueId.of("Test", "C");
+    final HistoricalTimeSeries htsC = hts(uidC);
+    final CyclicBarrier barrier = new CyclicBarrier(4);
+    final MockHistoricalTimeSeriesSource underlying = new MockHistoricalTimeSeriesSource() {
+
+      int _state;
+
+      @Override
+      public HistoricalTimeSeries getHistoricalTimeSeries(final UniqueId uid, final LocalDate start, final boolean includeStart, final LocalDate end,
+          final boolean includeEnd) {
+        assertEquals(_state++, 0);
+        join(barrier); //1
+        assertEquals(uid, uidA);
+        // Pause for a bit to make sure that the other threads get blocked in their get methods
+        sleep();
+        return htsA;
+      }
+
+      @Override
+      public Map<UniqueId, HistoricalTimeSeries> getHistoricalTimeSeries(final Set<UniqueId> uids, final LocalDate start, final boolean includeStart,
+          final LocalDate end, final boolean includeEnd) {
+        assertEquals(_state++, 1);
+        assertEquals(uids.size(), 2);
+        assertTrue(uids.contains(uidB));
+        assertTrue(uids.contains(uidC));
+        assertEquals(start, START);
+        assertEquals(end, END.minusDays(1));
+        final Map<UniqueId, HistoricalTimeSeries> result = Maps.newHashMapWithExpectedSize(2);
+        result.put(uidB, htsB);
+        result.put(uidC, htsC);
+        return result;
+      }
+
+    };
+    final CoalescingHistoricalTimeSeriesSource coalescing = new CoalescingHistoricalTimeSeriesSource(underlying);
+    // Start three threads. One will do the first fetch, the other two will be blocked. Then one of the other two will do a bulk
+    // fetch that includes the series required by the third. The third will do no I/O itself.
+    final ExecutorService exec = Executors.newCachedThreadPool();
+    try {
+      final Future<?> a = exec.submit(new Runnable() {
+        @Override
+        public void run() {
+          assertSame(coalescing.getHistoricalTimeSeries(uidA, START, true, END, false), htsA);
+        }
+      });
+      final Future<?> b = exec.submit(new Runnable() {
+        @Override
+        public void run() {
+          join(barrier);
+          assertSame(coalescing.getHistoricalTimeSeries(uidB, START, true, END, false), htsB);
+        }
+      });
+      final Future<?> c = exec.submit(new Runnable() {
+        @Override
+        public void run() {
+          join(barrier);
+          assertSame(coalescing.getHistoricalTimeSeries(uidC, START.minusDays(1), false, END.minusDays(1), true), htsC);
+        }
+      });
+      join(barrier);
+      a.get(Timeout.standardTimeoutMillis(), TimeUnit.MILLISECONDS);
+      b.get(Timeout.standardTimeoutMillis(), TimeUnit.MILLISECONDS);
+      c.get(Timeout.standardTimeoutMillis(), TimeUnit.MILLISECONDS);
+    } finally {
+      exec.shutdownNow();
+    }
+  }
+
+  public void testGetHistoricalTimeSeries_missing() {
+    final MockHistoricalTimeSeriesSource underlying = new MockHistoricalTimeSeriesSource();
+    final CoalescingHistoricalTimeSeriesSource coalescing = new CoalescingHistoricalTimeSeriesSource(underlying);
+    assertNull(coalescing.getHistoricalTimeSeries(UniqueId.of("Test", "A")));
+    assertNull(coalescing.getHistoricalTimeSeries(UniqueId.of("Test", "A"), START, true, END, true));
+  }
+
+}
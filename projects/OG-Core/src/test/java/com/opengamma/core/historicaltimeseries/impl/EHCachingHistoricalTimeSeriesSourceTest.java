@@ -5,20 +5,35 @@
  */
 package com.opengamma.core.historicaltimeseries.impl;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.time.Instant;
 import javax.time.calendar.LocalDate;
 
 import net.sf.ehcache.CacheManager;
 
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.opengamma.core.change.BasicChangeManager;
+import com.opengamma.core.change.ChangeType;
 import com.opengamma.core.historicaltimeseries.HistoricalTimeSeries;
 import com.opengamma.core.historicaltimeseries.HistoricalTimeSeriesSource;
 import com.opengamma.core.id.ExternalSchemes;
@@ -27,6 +42,7 @@ import com.opengamma.id.ExternalIdBundle;
 import com.opengamma.id.UniqueId;
 import com.opengamma.util.ehcache.EHCacheUtils;
 import com.opengamma.util.timeseries.localdate.ArrayLocalDateDoubleTimeSeries;
+import com.opengamma.util.timeseries.localdate.LocalDateDoubleTimeSeries;
 
 /**
  * Test {@link EHCachingHistoricalTimeSeriesSource}.
@@ -35,14 +51,28 @@ import com.opengamma.util.timeseries.localdate.ArrayLocalDateDoubleTimeSeries;
 public class EHCachingHistoricalTimeSeriesSourceTest {
 
   private HistoricalTimeSeriesSource _underlyingSource;
+  private BasicChangeManager _underlyingChangeManager;
   private EHCachingHistoricalTimeSeriesSource _cachingSource;
 
   private static final UniqueId UID = UniqueId.of("A", "B");
+  private static final UniqueId UID2 = UniqueId.of("A", "C");
+  /** A point every day of January 2012, the value being the day of the month. */
+  private static final LocalDateDoubleTimeSeries DATA;
+  static {
+    final LocalDate[] dates = new LocalDate[31];
+    final double[] values = new double[31];
+    for (int i = 0; i < 31; i++) {
+      dates[i] = day(i + 1);
+      values[i] = i + 1;
+    }
+    DATA = new ArrayLocalDateDoubleTimeSeries(dates, values);
+  }
 
   @BeforeMethod
   public void setUp() throws Exception {
     _underlyingSource = mock(HistoricalTimeSeriesSource.class);
-    when(_underlyingSource.changeManager()).thenReturn(new BasicChangeManager());
+    _underlyingChangeManager = new BasicChangeManager();
+    when(_underlyingSource.changeManager()).thenReturn(_underlyingChangeManager);
     CacheManager cm = EHCacheUtils.createCacheManager();
     cm.clearAllStartingWith(EHCachingHistoricalTimeSeriesSource.CACHE_PREFIX);
     _cachingSource = new EHCachingHistoricalTimeSeriesSource(_underlyingSource, cm);
@@ -86,5 +116,151 @@ public class EHCachingHistoricalTimeSeriesSourceTest {
     verify(_underlyingSource, times(1)).getExternalIdBundle(UID);
   }
 
+  //-------------------------------------------------------------------------
+  private static LocalDate day(final int dayOfMonth) {
+    return LocalDate.of(2012, 1, dayOfMonth);
+  }
+
+  private static LocalDateDoubleTimeSeries data(final LocalDate start, final boolean includeStart, final LocalDate end, final boolean includeEnd) {
+    return DATA.subSeries(start != null ? start : DATA.getEarliestTime(), start == null || includeStart,
+        end != null ? end : DATA.getLatestTime(), end == null || includeEnd);
+  }
+
+  private void mockRanges() {
+    when(_underlyingSource.getHistoricalTimeSeries(eq(UID), any(LocalDate.class), anyBoolean(), any(LocalDate.class), anyBoolean())).thenAnswer(
+        new Answer<HistoricalTimeSeries>() {
+          @Override
+          public HistoricalTimeSeries answer(final InvocationOnMock invocation) {
+            final Object[] args = invocation.getArguments();
+            return new SimpleHistoricalTimeSeries(UID, data((LocalDate) args[1], (Boolean) args[2], (LocalDate) args[3], (Boolean) args[4]));
+          }
+        });
+  }
+
+  private void verifyRangeFetches(final int count) {
+    verify(_underlyingSource, times(count)).getHistoricalTimeSeries(eq(UID), any(LocalDate.class), anyBoolean(), any(LocalDate.class), anyBoolean());
+  }
+
+  private static void assertSeries(final int firstDay, final int lastDay, final HistoricalTimeSeries hts) {
+    final LocalDateDoubleTimeSeries expected = data(day(firstDay), true, day(lastDay), true);
+    assertEquals(UID, hts.getUniqueId());
+    assertEquals(Arrays.asList(expected.timesArray()), Arrays.asList(hts.getTimeSeries().timesArray()));
+    assertEquals(Arrays.asList(expected.valuesArray()), Arrays.asList(hts.getTimeSeries().valuesArray()));
+  }
+
+  public void getHistoricalTimeSeries_range_overlapping() {
+    mockRanges();
+    assertSeries(10, 20, _cachingSource.getHistoricalTimeSeries(UID, day(10), true, day(20), true));
+    // only the dates either side of the cached window are fetched
+    assertSeries(15, 25, _cachingSource.getHistoricalTimeSeries(UID, day(15), true, day(25), true));
+    assertSeries(5, 18, _cachingSource.getHistoricalTimeSeries(UID, day(5), true, day(18), true));
+    assertSeries(5, 25, _cachingSource.getHistoricalTimeSeries(UID, day(5), true, day(25), true));
+    verify(_underlyingSource, times(1)).getHistoricalTimeSeries(UID, day(10), true, day(20), true);
+    verify(_underlyingSource, times(1)).getHistoricalTimeSeries(UID, day(21), true, day(25), true);
+    verify(_underlyingSource, times(1)).getHistoricalTimeSeries(UID, day(5), true, day(9), true);
+    verifyRangeFetches(3);
+  }
+
+  public void getHistoricalTimeSeries_range_adjacent() {
+    mockRanges();
+    assertSeries(10, 20, _cachingSource.getHistoricalTimeSeries(UID, day(10), true, day(20), true));
+    assertSeries(21, 30, _cachingSource.getHistoricalTimeSeries(UID, day(21), true, day(30), true));
+    assertSeries(1, 9, _cachingSource.getHistoricalTimeSeries(UID, day(1), true, day(9), true));
+    assertSeries(1, 30, _cachingSource.getHistoricalTimeSeries(UID, day(1), true, day(30), true));
+    verify(_underlyingSource, times(1)).getHistoricalTimeSeries(UID, day(21), true, day(30), true);
+    verify(_underlyingSource, times(1)).getHistoricalTimeSeries(UID, day(1), true, day(9), true);
+    verifyRangeFetches(3);
+  }
+
+  public void getHistoricalTimeSeries_range_disjoint() {
+    mockRanges();
+    assertSeries(1, 5, _cachingSource.getHistoricalTimeSeries(UID, day(1), true, day(5), true));
+    // replaces the cached window
+    assertSeries(20, 25, _cachingSource.getHistoricalTimeSeries(UID, day(20), true, day(25), true));
+    assertSeries(1, 5, _cachingSource.getHistoricalTimeSeries(UID, day(1), true, day(5), true));
+    verify(_underlyingSource, times(2)).getHistoricalTimeSeries(UID, day(1), true, day(5), true);
+    verifyRangeFetches(3);
+  }
+
+  public void getHistoricalTimeSeries_range_includeFlags() {
+    mockRanges();
+    // exclusive dates are converted to the inclusive dates fetched
+    assertSeries(10, 20, _cachingSource.getHistoricalTimeSeries(UID, day(9), false, day(21), false));
+    assertSeries(10, 20, _cachingSource.getHistoricalTimeSeries(UID, day(10), true, day(20), true));
+    assertSeries(11, 20, _cachingSource.getHistoricalTimeSeries(UID, day(10), false, day(20), true));
+    assertSeries(10, 19, _cachingSource.getHistoricalTimeSeries(UID, day(10), true, day(20), false));
+    verify(_underlyingSource, times(1)).getHistoricalTimeSeries(UID, day(10), true, day(20), true);
+    verifyRangeFetches(1);
+    // one day beyond the window on each side
+    assertSeries(9, 21, _cachingSource.getHistoricalTimeSeries(UID, day(8), false, day(22), false));
+    verify(_underlyingSource, times(1)).getHistoricalTimeSeries(UID, day(9), true, day(9), true);
+    verify(_underlyingSource, times(1)).getHistoricalTimeSeries(UID, day(21), true, day(21), true);
+    verifyRangeFetches(3);
+  }
+
+  public void getHistoricalTimeSeries_range_openEnded() {
+    mockRanges();
+    assertSeries(1, 20, _cachingSource.getHistoricalTimeSeries(UID, null, true, day(20), true));
+    assertSeries(5, 10, _cachingSource.getHistoricalTimeSeries(UID, day(5), true, day(10), true));
+    assertSeries(15, 31, _cachingSource.getHistoricalTimeSeries(UID, day(15), true, null, true));
+    assertSeries(1, 31, _cachingSource.getHistoricalTimeSeries(UID, null, true, null, true));
+    verify(_underlyingSource, times(1)).getHistoricalTimeSeries(UID, null, true, day(20), true);
+    verify(_underlyingSource, times(1)).getHistoricalTimeSeries(UID, day(21), true, null, true);
+    verifyRangeFetches(2);
+  }
+
+  public void getHistoricalTimeSeries_range_invalidated() {
+    mockRanges();
+    assertSeries(10, 20, _cachingSource.getHistoricalTimeSeries(UID, day(10), true, day(20), true));
+    assertSeries(10, 20, _cachingSource.getHistoricalTimeSeries(UID, day(10), true, day(20), true));
+    verifyRangeFetches(1);
+    _underlyingChangeManager.entityChanged(ChangeType.CHANGED, UID.getObjectId(), null, null, Instant.now());
+    assertSeries(10, 20, _cachingSource.getHistoricalTimeSeries(UID, day(10), true, day(20), true));
+    verify(_underlyingSource, times(2)).getHistoricalTimeSeries(UID, day(10), true, day(20), true);
+    verifyRangeFetches(2);
+  }
+
+  public void getHistoricalTimeSeries_range_versionedUniqueId() {
+    final UniqueId latest = UniqueId.of("A", "D");
+    final UniqueId versioned = UniqueId.of("A", "D", "1");
+    when(_underlyingSource.getHistoricalTimeSeries(latest, day(10), true, day(20), true)).thenReturn(
+        new SimpleHistoricalTimeSeries(versioned, data(day(10), true, day(20), true)));
+    assertEquals(versioned, _cachingSource.getHistoricalTimeSeries(latest, day(10), true, day(20), true).getUniqueId());
+    // the sub-series served from the cached window keeps the identifier of the underlying series
+    final HistoricalTimeSeries hts = _cachingSource.getHistoricalTimeSeries(latest, day(12), true, day(15), true);
+    assertEquals(versioned, hts.getUniqueId());
+    assertEquals(4, hts.getTimeSeries().size());
+    verify(_underlyingSource, times(1)).getHistoricalTimeSeries(eq(latest), any(LocalDate.class), anyBoolean(), any(LocalDate.class), anyBoolean());
+  }
+
+  public void getHistoricalTimeSeries_bulk_range() {
+    mockRanges();
+    final Set<UniqueId> uids = new HashSet<UniqueId>(Arrays.asList(UID, UID2));
+    final HistoricalTimeSeries series2 = new SimpleHistoricalTimeSeries(UID2, data(day(12), true, day(15), true));
+    when(_underlyingSource.getHistoricalTimeSeries(Collections.singleton(UID2), day(12), true, day(15), true)).thenReturn(
+        Collections.singletonMap(UID2, series2));
+    assertSeries(10, 20, _cachingSource.getHistoricalTimeSeries(UID, day(10), true, day(20), true));
+    // UID is served from its cached window, only UID2 is fetched
+    Map<UniqueId, HistoricalTimeSeries> result = _cachingSource.getHistoricalTimeSeries(uids, day(11), false, day(15), true);
+    assertEquals(2, result.size());
+    assertSeries(12, 15, result.get(UID));
+    assertEquals(series2, result.get(UID2));
+    result = _cachingSource.getHistoricalTimeSeries(uids, day(12), true, day(15), true);
+    assertEquals(2, result.size());
+    assertSeries(12, 15, result.get(UID));
+    assertEquals(series2.getTimeSeries().size(), result.get(UID2).getTimeSeries().size());
+    verify(_underlyingSource, times(1)).getHistoricalTimeSeries(Collections.singleton(UID2), day(12), true, day(15), true);
+    verifyRangeFetches(1);
+  }
+
+  public void getHistoricalTimeSeries_bulk_missing() {
+    when(_underlyingSource.getHistoricalTimeSeries(Collections.singleton(UID2), day(12), true, day(15), true)).thenReturn(
+        Collections.<UniqueId, HistoricalTimeSeries>emptyMap());
+    final Map<UniqueId, HistoricalTimeSeries> result = _cachingSource.getHistoricalTimeSeries(Collections.singleton(UID2), day(12), true, day(15), true);
+    assertTrue(result.isEmpty());
+    // the miss is cached
+    assertFalse(_cachingSource.getHistoricalTimeSeries(Collections.singleton(UID2), day(12), true, day(15), true).containsKey(UID2));
+    verify(_underlyingSource, times(1)).getHistoricalTimeSeries(Collections.singleton(UID2), day(12), true, day(15), true);
+  }
 
 }
@@ -13,6 +13,8 @@ import static org.testng.AssertJUnit.assertSame;
 
 import java.net.URI;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 
 import javax.time.Instant;
 import javax.ws.rs.core.Response;
@@ -22,6 +24,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.opengamma.core.security.Security;
 import com.opengamma.core.security.SecuritySource;
 import com.opengamma.id.ExternalIdBundle;
@@ -94,4 +97,18 @@ public class DataSecuritySourceResourceTest {
     assertEquals(FudgeListWrapper.of(targetColl), test.getEntity());
   }
 
+  @Test
+  public void testGetBulkObjects() {
+    final SimpleSecurity target = new SimpleSecurity("TEST");
+    target.setUniqueId(UID);
+    target.setName("Test");
+    Map<ObjectId, Security> targetMap = ImmutableMap.<ObjectId, Security>of(OID, target);
+    
+    when(_underlying.get(eq(Collections.singletonList(OID)), eq(VC))).thenReturn(targetMap);
+    
+    Response test = _resource.getBulkObjects(VC.getVersionAsOfString(), VC.getCorrectedToString(), Collections.singletonList(OID.toString()));
+    assertEquals(Status.OK.getStatusCode(), test.getStatus());
+    assertEquals(FudgeListWrapper.of(targetMap.values()), test.getEntity());
+  }
+
 }
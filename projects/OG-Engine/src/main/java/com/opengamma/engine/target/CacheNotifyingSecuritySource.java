@@ -73,6 +73,15 @@ public class CacheNotifyingSecuritySource implements SecuritySource {
     return security;
   }
 
+  @Override
+  public Map<ObjectId, Security> get(final Collection<ObjectId> objectIds, final VersionCorrection versionCorrection) {
+    final Map<ObjectId, Security> securities = getUnderlying().get(objectIds, versionCorrection);
+    if (!securities.isEmpty()) {
+      getCache().cacheSecurities(securities.values());
+    }
+    return securities;
+  }
+
   @Override
   public Collection<Security> get(final ExternalIdBundle bundle, final VersionCorrection versionCorrection) {
     final Collection<Security> securities = getUnderlying().get(bundle, versionCorrection);
@@ -7,6 +7,9 @@ package com.opengamma.engine.view.compilation;
 
 import java.util.concurrent.ExecutorService;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.opengamma.DataNotFoundException;
 import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.core.position.Portfolio;
@@ -29,6 +32,8 @@ import com.opengamma.id.VersionCorrection;
  */
 public final class PortfolioCompiler {
 
+  private static final Logger s_logger = LoggerFactory.getLogger(PortfolioCompiler.class);
+
   private PortfolioCompiler() {
   }
 
@@ -97,7 +102,12 @@ public final class PortfolioCompiler {
   /**
    * Fully resolves the portfolio structure for a view. A fully resolved structure has resolved
    * {@link Security} objects for each {@link Position} within the portfolio. Note however that
-   * any underlying or related data referenced by a security will not be resolved at this stage. 
+   * any underlying or related data referenced by a security will not be resolved at this stage.
+   * <p>
+   * The securities are resolved in bulk so that the later parallel traversals of the portfolio do not need
+   * to query the security source for each position in turn. The links of a copy of the portfolio are resolved,
+   * leaving the portfolio from the position source unchanged. If the bulk resolution fails, the unchanged
+   * portfolio is returned and its securities are resolved individually as they are used.
    * 
    * @param compilationContext  the compilation context containing the view being compiled, not null
    * @param versionCorrection  the version-correction at which the portfolio is required, not null
@@ -127,7 +137,16 @@ public final class PortfolioCompiler {
       throw new OpenGammaRuntimeException("Unable to resolve portfolio '" + portfolioId + "' in position source '" + positionSource +
           "' used by view definition '" + compilationContext.getViewDefinition().getName() + "'", ex);
     }
-    return portfolio;
+    // Resolve the security links in bulk now rather than one at a time as the positions are visited in parallel.
+    // The portfolio from the position source may be cached and shared, so a copy is resolved.
+    final Portfolio resolved = new SimplePortfolio(portfolio);
+    try {
+      new SecurityLinkResolver(compilationContext, versionCorrection).resolveSecurities(resolved.getRootNode());
+    } catch (RuntimeException ex) {
+      s_logger.warn("Unable to resolve all securities in portfolio " + portfolioId + ", securities will be resolved individually", ex);
+      return portfolio;
+    }
+    return resolved;
   }
 
   /**
@@ -7,7 +7,10 @@ package com.opengamma.engine.view.compilation;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
@@ -46,6 +49,10 @@ public final class SecurityLinkResolver {
 
   /** Logger. */
   private static final Logger s_logger = LoggerFactory.getLogger(SecurityLinkResolver.class);
+  /**
+   * The maximum number of securities fetched by each bulk resolution job.
+   */
+  private static final int BULK_RESOLUTION_SIZE = 1000;
 
   /**
    * The executor service.
@@ -97,7 +104,6 @@ public final class SecurityLinkResolver {
   @SuppressWarnings("unchecked")
   public void resolveSecurities(final Collection<SecurityLink> securityLinks) {
     ArgumentChecker.noNulls(securityLinks, "securityLinks");
-    final ExecutorCompletionService<Pair<ObjectId, ExternalIdBundle>> completionService = new ExecutorCompletionService<Pair<ObjectId, ExternalIdBundle>>(_executorService);
     // Filter the links down to collections of "identical" ones; resolving the same underlying.
     final Map<Pair<ObjectId, ExternalIdBundle>, Object> securityLinkMap = new HashMap<Pair<ObjectId, ExternalIdBundle>, Object>();
     for (SecurityLink link : securityLinks) {
@@ -107,19 +113,10 @@ public final class SecurityLinkResolver {
         if (securityLinkMap.containsKey(key)) {
           final Object sameLinkObject = securityLinkMap.get(key);
           if (sameLinkObject instanceof Collection<?>) {
-            final Collection<SecurityLink> sameLinks = (Collection<SecurityLink>) sameLinkObject;
-            for (SecurityLink sameLink : sameLinks) {
-              if (sameLink == link) {
-                link = null;
-                break;
-              }
-            }
-            if (link != null) {
-              sameLinks.add(link);
-            }
+            ((Collection<SecurityLink>) sameLinkObject).add(link);
           } else {
             if (sameLinkObject != link) {
-              final Collection<SecurityLink> sameLinks = new ArrayList<SecurityLink>();
+              final Collection<SecurityLink> sameLinks = Collections.newSetFromMap(new IdentityHashMap<SecurityLink, Boolean>());
               final SecurityLink sameLink = (SecurityLink) sameLinkObject;
               sameLinks.add(sameLink);
               sameLinks.add(link);
@@ -133,27 +130,32 @@ public final class SecurityLinkResolver {
         _securitySource.addToCache(security);
       }
     }
-    s_logger.debug("Submitting {} resolution jobs for {} links", securityLinkMap.size(), securityLinks.size());
-    // Submit a job for each "unique" link. The job will serially resolve all "identical" links as they will
-    // be in the cache at that point.
-    for (Map.Entry<Pair<ObjectId, ExternalIdBundle>, Object> linkEntry : securityLinkMap.entrySet()) {
-      final Callable<Pair<ObjectId, ExternalIdBundle>> job;
-      if (linkEntry.getValue() instanceof Collection<?>) {
-        job = new MultipleSecurityResolutionJob(linkEntry.getKey(), (Collection<SecurityLink>) linkEntry.getValue(), _securitySource, _versionCorrection);
+    s_logger.debug("Submitting resolution jobs for {} unique links from {} links", securityLinkMap.size(), securityLinks.size());
+    // Links by object identifier are fetched in bulk at the version-correction; a job for each chunk fetches its securities
+    // in one call, then resolves its links from the cache. Links by external identifier bundle can't be fetched in bulk so
+    // there is a job for each "unique" link. Each job serially resolves all "identical" links as they will be in the cache.
+    final ExecutorCompletionService<Integer> completionService = new ExecutorCompletionService<Integer>(_executorService);
+    final List<Future<Integer>> jobs = new ArrayList<Future<Integer>>();
+    List<Object> bulk = new ArrayList<Object>();
+    for (Object links : securityLinkMap.values()) {
+      if (getLink(links).getObjectId() != null) {
+        bulk.add(links);
+        if (bulk.size() == BULK_RESOLUTION_SIZE) {
+          jobs.add(completionService.submit(new BulkSecurityResolutionJob(bulk, _securitySource, _versionCorrection)));
+          bulk = new ArrayList<Object>();
+        }
       } else {
-        job = new SingleSecurityResolutionJob(linkEntry.getKey(), (SecurityLink) linkEntry.getValue(), _securitySource, _versionCorrection);
+        jobs.add(completionService.submit(new SecurityResolutionJob(links, _securitySource, _versionCorrection)));
       }
-      linkEntry.setValue(completionService.submit(job));
+    }
+    if (!bulk.isEmpty()) {
+      jobs.add(completionService.submit(new BulkSecurityResolutionJob(bulk, _securitySource, _versionCorrection)));
     }
     // Wait for the jobs to complete.
-    while (!securityLinkMap.isEmpty()) {
+    int resolved = 0;
+    for (int i = 0; i < jobs.size(); i++) {
       try {
-        final Future<Pair<ObjectId, ExternalIdBundle>> future = completionService.take();
-        final Pair<ObjectId, ExternalIdBundle> key = future.get();
-        if (securityLinkMap.remove(key) == null) {
-          s_logger.warn("Completion key {} wasn't in the job map {}", key, securityLinkMap);
-          throw new OpenGammaRuntimeException("Internal error resolving securities");
-        }
+        resolved += completionService.take().get();
       } catch (InterruptedException ex) {
         Thread.interrupted();
         s_logger.warn("Interrupted, so didn't finish resolution");
@@ -163,9 +165,9 @@ public final class SecurityLinkResolver {
         break;
       }
     }
-    if (!securityLinkMap.isEmpty()) {
-      for (Object future : securityLinkMap.values()) {
-        ((Future<SecurityLink>) future).cancel(false);
+    if (resolved != securityLinkMap.size()) {
+      for (Future<Integer> job : jobs) {
+        job.cancel(false);
       }
       throw new OpenGammaRuntimeException("Unable to resolve all securities");
     }
@@ -243,54 +245,83 @@ public final class SecurityLinkResolver {
   }
 
   //-------------------------------------------------------------------------
+  /**
+   * Gets one of a single link or a collection of links that resolve the same security.
+   * 
+   * @param links  the link or collection of links, not null
+   * @return a link, not null
+   */
+  @SuppressWarnings("unchecked")
+  private static SecurityLink getLink(final Object links) {
+    return (links instanceof Collection<?>) ? ((Collection<SecurityLink>) links).iterator().next() : (SecurityLink) links;
+  }
+
+  /**
+   * Resolves a single link or a collection of links that resolve the same security.
+   * 
+   * @param links  the link or collection of links, not null
+   * @param securitySource  the security source, not null
+   * @param versionCorrection  the version-correction, not null
+   */
+  @SuppressWarnings("unchecked")
+  private static void resolve(final Object links, final SecuritySource securitySource, final VersionCorrection versionCorrection) {
+    if (links instanceof Collection<?>) {
+      for (SecurityLink link : (Collection<SecurityLink>) links) {
+        link.resolve(securitySource, versionCorrection);
+      }
+    } else {
+      ((SecurityLink) links).resolve(securitySource, versionCorrection);
+    }
+  }
+
   /**
    * A small job that can be run in an executor to resolve a security against a security source.
    */
-  private static final class SingleSecurityResolutionJob implements Callable<Pair<ObjectId, ExternalIdBundle>> {
-    private final Pair<ObjectId, ExternalIdBundle> _key;
-    private final SecurityLink _link;
+  private static final class SecurityResolutionJob implements Callable<Integer> {
+    private final Object _links;
     private final SecuritySource _securitySource;
     private final VersionCorrection _versionCorrection;
 
-    private SingleSecurityResolutionJob(Pair<ObjectId, ExternalIdBundle> key, SecurityLink link, SecuritySource securitySource, VersionCorrection versionCorrection) {
-      _key = key;
+    private SecurityResolutionJob(final Object links, final SecuritySource securitySource, final VersionCorrection versionCorrection) {
+      _links = links;
       _securitySource = securitySource;
-      _link = link;
       _versionCorrection = versionCorrection;
     }
 
     @Override
-    public Pair<ObjectId, ExternalIdBundle> call() {
-      _link.resolve(_securitySource, _versionCorrection);
-      return _key;
+    public Integer call() {
+      resolve(_links, _securitySource, _versionCorrection);
+      return 1;
     }
   }
 
   /**
-   * Resolves a sequence of links.
+   * A job that can be run in an executor to resolve links by object identifier, fetching their securities in one
+   * bulk call at the version-correction before the links are resolved from the cache.
    */
-  private static final class MultipleSecurityResolutionJob implements Callable<Pair<ObjectId, ExternalIdBundle>> {
-    private final Pair<ObjectId, ExternalIdBundle> _key;
-    private final Collection<SecurityLink> _links;
-    private final SecuritySource _securitySource;
+  private static final class BulkSecurityResolutionJob implements Callable<Integer> {
+    private final List<Object> _bulk;
+    private final CachedSecuritySource _securitySource;
     private final VersionCorrection _versionCorrection;
 
-    private MultipleSecurityResolutionJob(final Pair<ObjectId, ExternalIdBundle> key, final Collection<SecurityLink> link, final SecuritySource securitySource,
-        final VersionCorrection versionCorrection) {
-      _key = key;
-      _links = link;
+    private BulkSecurityResolutionJob(final List<Object> bulk, final CachedSecuritySource securitySource, final VersionCorrection versionCorrection) {
+      _bulk = bulk;
       _securitySource = securitySource;
       _versionCorrection = versionCorrection;
     }
 
     @Override
-    public Pair<ObjectId, ExternalIdBundle> call() {
-      for (SecurityLink link : _links) {
-        link.resolve(_securitySource, _versionCorrection);
+    public Integer call() {
+      final List<ObjectId> objectIds = new ArrayList<ObjectId>(_bulk.size());
+      for (Object links : _bulk) {
+        objectIds.add(getLink(links).getObjectId());
+      }
+      _securitySource.get(objectIds, _versionCorrection);
+      for (Object links : _bulk) {
+        resolve(links, _securitySource, _versionCorrection);
       }
-      return _key;
+      return _bulk.size();
     }
-
   }
 
   //-------------------------------------------------------------------------
@@ -325,6 +356,29 @@ public final class SecurityLinkResolver {
       return security;
     }
 
+    @Override
+    public Map<UniqueId, Security> get(Collection<UniqueId> uniqueIds) {
+      final Map<UniqueId, Security> result = new HashMap<UniqueId, Security>();
+      final List<UniqueId> missing = new ArrayList<UniqueId>(uniqueIds.size());
+      for (UniqueId uniqueId : uniqueIds) {
+        final Security security = _objectIdCache.get(uniqueId.getObjectId());
+        if (security != null) {
+          result.put(uniqueId, security);
+        } else {
+          missing.add(uniqueId);
+        }
+      }
+      if (!missing.isEmpty()) {
+        for (Map.Entry<UniqueId, Security> security : _underlying.get(missing).entrySet()) {
+          if (security.getValue() != null) {
+            final Security existing = _objectIdCache.putIfAbsent(security.getKey().getObjectId(), security.getValue());
+            result.put(security.getKey(), (existing != null) ? existing : security.getValue());
+          }
+        }
+      }
+      return result;
+    }
+
     @Override
     public Security get(ObjectId objectId, VersionCorrection versionCorrection) {
       Security security = _objectIdCache.get(objectId);
@@ -335,6 +389,29 @@ public final class SecurityLinkResolver {
       return security;
     }
 
+    @Override
+    public Map<ObjectId, Security> get(Collection<ObjectId> objectIds, VersionCorrection versionCorrection) {
+      final Map<ObjectId, Security> result = new HashMap<ObjectId, Security>();
+      final List<ObjectId> missing = new ArrayList<ObjectId>(objectIds.size());
+      for (ObjectId objectId : objectIds) {
+        final Security security = _objectIdCache.get(objectId);
+        if (security != null) {
+          result.put(objectId, security);
+        } else {
+          missing.add(objectId);
+        }
+      }
+      if (!missing.isEmpty()) {
+        for (Map.Entry<ObjectId, Security> security : _underlying.get(missing, versionCorrection).entrySet()) {
+          if (security.getValue() != null) {
+            final Security existing = _objectIdCache.putIfAbsent(security.getKey(), security.getValue());
+            result.put(security.getKey(), (existing != null) ? existing : security.getValue());
+          }
+        }
+      }
+      return result;
+    }
+
     @Override
     public Collection<Security> get(ExternalIdBundle bundle) {
       return _underlying.get(bundle);
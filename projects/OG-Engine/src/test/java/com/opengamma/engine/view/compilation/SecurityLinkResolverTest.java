@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.compilation;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.time.Instant;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.DataNotFoundException;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.core.security.Security;
+import com.opengamma.core.security.SecurityLink;
+import com.opengamma.core.security.impl.SimpleSecurity;
+import com.opengamma.core.security.impl.SimpleSecurityLink;
+import com.opengamma.core.security.impl.test.MockSecuritySource;
+import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.id.ExternalScheme;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+
+/**
+ * Tests the {@link SecurityLinkResolver} class.
+ */
+@Test
+public class SecurityLinkResolverTest {
+
+  private static final int SECURITIES = 120;
+  private static final ExternalScheme BUNDLE_SCHEME = ExternalScheme.of("Ticker");
+
+  private static class CountingSecuritySource extends MockSecuritySource {
+
+    private final AtomicInteger _bulkCalls = new AtomicInteger();
+    private final AtomicInteger _singleCalls = new AtomicInteger();
+    private final AtomicInteger _bundleCalls = new AtomicInteger();
+    private volatile VersionCorrection _versionCorrection;
+
+    @Override
+    public Map<ObjectId, Security> get(final Collection<ObjectId> objectIds, final VersionCorrection versionCorrection) {
+      _bulkCalls.incrementAndGet();
+      _versionCorrection = versionCorrection;
+      final Map<ObjectId, Security> result = new HashMap<ObjectId, Security>();
+      for (ObjectId objectId : objectIds) {
+        result.put(objectId, security(objectId));
+      }
+      return result;
+    }
+
+    @Override
+    public Security get(final ObjectId objectId, final VersionCorrection versionCorrection) {
+      _singleCalls.incrementAndGet();
+      return security(objectId);
+    }
+
+    @Override
+    public Security getSingle(final ExternalIdBundle bundle, final VersionCorrection versionCorrection) {
+      _bundleCalls.incrementAndGet();
+      return new SimpleSecurity(UniqueId.of("Sec", bundle.getValue(BUNDLE_SCHEME), "1"), bundle, "TEST", bundle.getValue(BUNDLE_SCHEME));
+    }
+
+    private static Security security(final ObjectId objectId) {
+      return new SimpleSecurity(objectId.atVersion("1"), ExternalIdBundle.EMPTY, "TEST", objectId.getValue());
+    }
+
+  }
+
+  private static List<SecurityLink> links() {
+    final List<SecurityLink> links = new ArrayList<SecurityLink>();
+    for (int i = 0; i < SECURITIES; i++) {
+      final ObjectId objectId = ObjectId.of("Sec", Integer.toString(i));
+      final SecurityLink link = new SimpleSecurityLink(objectId);
+      links.add(link);
+      links.add(link);
+      links.add(new SimpleSecurityLink(objectId));
+    }
+    return links;
+  }
+
+  private static void assertResolvedInBulk(final VersionCorrection versionCorrection) {
+    final CountingSecuritySource source = new CountingSecuritySource();
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<SecurityLink> links = links();
+      new SecurityLinkResolver(executor, source, versionCorrection).resolveSecurities(links);
+      for (SecurityLink link : links) {
+        assertNotNull(link.getTarget());
+        assertEquals(link.getTarget().getUniqueId().getObjectId(), link.getObjectId());
+      }
+      assertEquals(source._bulkCalls.get(), 1);
+      assertEquals(source._singleCalls.get(), 0);
+      assertSame(source._versionCorrection, versionCorrection);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testResolveSecurities_latest() {
+    assertResolvedInBulk(VersionCorrection.LATEST);
+  }
+
+  public void testResolveSecurities_fixedInstant() {
+    // view compilation resolves at the latest version-correction fixed at the compilation instant
+    assertResolvedInBulk(VersionCorrection.LATEST.withLatestFixed(Instant.now()));
+  }
+
+  public void testResolveSecurities_versioned() {
+    assertResolvedInBulk(VersionCorrection.ofVersionAsOf(Instant.ofEpochSeconds(0)));
+  }
+
+  public void testResolveSecurities_bundles() {
+    final CountingSecuritySource source = new CountingSecuritySource();
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<SecurityLink> links = new ArrayList<SecurityLink>();
+      for (int i = 0; i < SECURITIES; i++) {
+        final ExternalIdBundle bundle = ExternalIdBundle.of(BUNDLE_SCHEME, Integer.toString(i));
+        links.add(new SimpleSecurityLink(bundle));
+        links.add(new SimpleSecurityLink(bundle));
+      }
+      new SecurityLinkResolver(executor, source, VersionCorrection.LATEST.withLatestFixed(Instant.now())).resolveSecurities(links);
+      for (SecurityLink link : links) {
+        assertNotNull(link.getTarget());
+      }
+      assertEquals(source._bulkCalls.get(), 0);
+      assertEquals(source._bundleCalls.get(), SECURITIES);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test(expectedExceptions = OpenGammaRuntimeException.class)
+  public void testResolveSecurities_missing() {
+    final CountingSecuritySource source = new CountingSecuritySource() {
+      @Override
+      public Map<ObjectId, Security> get(final Collection<ObjectId> objectIds, final VersionCorrection versionCorrection) {
+        return new HashMap<ObjectId, Security>();
+      }
+
+      @Override
+      public Security get(final ObjectId objectId, final VersionCorrection versionCorrection) {
+        throw new DataNotFoundException(objectId.toString());
+      }
+    };
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      final List<SecurityLink> links = links();
+      new SecurityLinkResolver(executor, source, VersionCorrection.ofVersionAsOf(Instant.ofEpochSeconds(0))).resolveSecurities(links);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}
@@ -8,6 +8,7 @@ package com.opengamma.engine.view.compilation;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertTrue;
 import static org.testng.AssertJUnit.fail;
 
@@ -136,6 +137,9 @@ public class ViewDefinitionCompilerTest {
     assertEquals(1, compiledViewDefinition.getAllDependencyGraphs().size());
     assertNotNull(compiledViewDefinition.getDependencyGraph("Fibble"));
     assertTargets(compiledViewDefinition, pn.getUniqueId());
+    // a copy of the portfolio is resolved, leaving the instance held by the position source unchanged
+    assertNull(pos.getSecurityLink().getTarget());
+    assertEquals("My Sec", compiledViewDefinition.getPortfolio().getRootNode().getPositions().get(0).getSecurity().getName());
   }
 
   public void testSingleValueExternalDependency() {
@@ -5,8 +5,11 @@
  */
 package com.opengamma.financial.security;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
@@ -17,6 +20,8 @@ import org.slf4j.LoggerFactory;
 
 import com.opengamma.core.AbstractEHCachingSourceWithExternalBundle;
 import com.opengamma.core.security.Security;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.VersionCorrection;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.ehcache.EHCacheUtils;
 
@@ -54,6 +59,48 @@ public class EHCachingFinancialSecuritySource
   }
 
   //-------------------------------------------------------------------------
+  @Override
+  public Map<ObjectId, Security> get(final Collection<ObjectId> objectIds, final VersionCorrection versionCorrection) {
+    ArgumentChecker.notNull(objectIds, "objectIds");
+    ArgumentChecker.notNull(versionCorrection, "versionCorrection");
+    final Map<ObjectId, Security> result = new HashMap<ObjectId, Security>();
+    final long changeCount = getNearCache().getChangeCount();
+    final Collection<ObjectId> missed = new ArrayList<ObjectId>();
+    for (ObjectId objectId : objectIds) {
+      Security security = getNearCache().get(objectId, versionCorrection);
+      if (security == null) {
+        final Map<VersionCorrection, Security> items = getObjectIdCacheEntry(objectId);
+        if (items != null) {
+          security = items.get(versionCorrection);
+        }
+        if (security == null) {
+          missed.add(objectId);
+          continue;
+        }
+        final Security existing = getNearCache().putIfAbsent(objectId, versionCorrection, security, changeCount);
+        if (existing != null) {
+          security = existing;
+        }
+      }
+      result.put(objectId, security);
+    }
+    if (!missed.isEmpty()) {
+      // all misses can be passed to underlying as one request
+      for (Map.Entry<ObjectId, Security> underlying : getUnderlying().get(missed, versionCorrection).entrySet()) {
+        Security security = underlying.getValue();
+        final Security existing = getNearCache().putIfAbsent(underlying.getKey(), versionCorrection, security, changeCount);
+        if (existing != null) {
+          security = existing;
+        } else {
+          getUidCache().put(new Element(security.getUniqueId(), security));
+          cacheObjectIdEntry(underlying.getKey(), versionCorrection, security);
+        }
+        result.put(underlying.getKey(), security);
+      }
+    }
+    return result;
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public Collection<Security> getBondsWithIssuerName(String issuerType) {
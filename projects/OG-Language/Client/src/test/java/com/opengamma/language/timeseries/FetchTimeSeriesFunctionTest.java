@@ -53,6 +53,11 @@ public class FetchTimeSeriesFunctionTest {
       throw new UnsupportedOperationException();
     }
 
+    @Override
+    public Map<UniqueId, HistoricalTimeSeries> getHistoricalTimeSeries(Set<UniqueId> uniqueIds, LocalDate start, boolean inclusiveStart, LocalDate end, boolean inclusiveEnd) {
+      throw new UnsupportedOperationException();
+    }
+
     @Override
     public Pair<LocalDate, Double> getLatestDataPoint(UniqueId uniqueId) {
       throw new UnsupportedOperationException();
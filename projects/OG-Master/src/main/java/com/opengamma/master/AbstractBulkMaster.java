@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.master;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.opengamma.DataNotFoundException;
+
+/**
+ * A master that can write a number of documents in one operation.
+ * <p>
+ * Callers that hold a plain {@link AbstractMaster} should use {@link MasterUtils#addAll},
+ * {@link MasterUtils#updateAll} and {@link MasterUtils#correctAll}, which use the bulk
+ * methods when the master implements this interface and write one document at a time otherwise.
+ *
+ * @param <D>  the document type managed by the master
+ */
+public interface AbstractBulkMaster<D extends AbstractDocument> extends AbstractMaster<D> {
+
+  /**
+   * Adds a number of documents to the data store.
+   * <p>
+   * This is equivalent to calling {@link #add} for each document.
+   *
+   * @param documents  the documents to add, not null
+   * @return the added documents, in the order of the input, not null
+   * @throws IllegalArgumentException if the request is invalid
+   */
+  List<D> addAll(Collection<D> documents);
+
+  /**
+   * Updates a number of documents in the data store.
+   * <p>
+   * This is equivalent to calling {@link #update} for each document.
+   *
+   * @param documents  the documents to update, each with a versioned unique identifier, not null
+   * @return the updated documents, in the order of the input, not null
+   * @throws IllegalArgumentException if the request is invalid
+   * @throws DataNotFoundException if a document is not found
+   */
+  List<D> updateAll(Collection<D> documents);
+
+  /**
+   * Corrects a number of documents in the data store.
+   * <p>
+   * This is equivalent to calling {@link #correct} for each document.
+   *
+   * @param documents  the documents to correct, each with a versioned unique identifier, not null
+   * @return the corrected documents, in the order of the input, not null
+   * @throws IllegalArgumentException if the request is invalid
+   * @throws DataNotFoundException if a document is not found
+   */
+  List<D> correctAll(Collection<D> documents);
+
+}
@@ -8,6 +8,7 @@ package com.opengamma.master;
 import static com.google.common.collect.Lists.newArrayList;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
@@ -20,6 +21,7 @@ import javax.time.Instant;
 
 import com.opengamma.id.UniqueId;
 import com.opengamma.id.UniqueIdentifiable;
+import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.functional.Function1;
 import com.opengamma.util.functional.Functional;
 
@@ -99,4 +101,68 @@ public class MasterUtils {
     });
   }
 
+  //-------------------------------------------------------------------------
+  /**
+   * Adds a number of documents to a master, in one operation if the master is an {@link AbstractBulkMaster}.
+   * 
+   * @param <D>  the document type
+   * @param master  the master, not null
+   * @param documents  the documents to add, not null
+   * @return the added documents, in the order of the input, not null
+   */
+  public static <D extends AbstractDocument> List<D> addAll(AbstractMaster<D> master, Collection<D> documents) {
+    ArgumentChecker.notNull(master, "master");
+    ArgumentChecker.notNull(documents, "documents");
+    if (master instanceof AbstractBulkMaster) {
+      return ((AbstractBulkMaster<D>) master).addAll(documents);
+    }
+    List<D> result = new ArrayList<D>(documents.size());
+    for (D document : documents) {
+      result.add(master.add(document));
+    }
+    return result;
+  }
+
+  /**
+   * Updates a number of documents in a master, in one operation if the master is an {@link AbstractBulkMaster}.
+   * 
+   * @param <D>  the document type
+   * @param master  the master, not null
+   * @param documents  the documents to update, not null
+   * @return the updated documents, in the order of the input, not null
+   */
+  public static <D extends AbstractDocument> List<D> updateAll(AbstractMaster<D> master, Collection<D> documents) {
+    ArgumentChecker.notNull(master, "master");
+    ArgumentChecker.notNull(documents, "documents");
+    if (master instanceof AbstractBulkMaster) {
+      return ((AbstractBulkMaster<D>) master).updateAll(documents);
+    }
+    List<D> result = new ArrayList<D>(documents.size());
+    for (D document : documents) {
+      result.add(master.update(document));
+    }
+    return result;
+  }
+
+  /**
+   * Corrects a number of documents in a master, in one operation if the master is an {@link AbstractBulkMaster}.
+   * 
+   * @param <D>  the document type
+   * @param master  the master, not null
+   * @param documents  the documents to correct, not null
+   * @return the corrected documents, in the order of the input, not null
+   */
+  public static <D extends AbstractDocument> List<D> correctAll(AbstractMaster<D> master, Collection<D> documents) {
+    ArgumentChecker.notNull(master, "master");
+    ArgumentChecker.notNull(documents, "documents");
+    if (master instanceof AbstractBulkMaster) {
+      return ((AbstractBulkMaster<D>) master).correctAll(documents);
+    }
+    List<D> result = new ArrayList<D>(documents.size());
+    for (D document : documents) {
+      result.add(master.correct(document));
+    }
+    return result;
+  }
+
 }
@@ -5,10 +5,14 @@
  */
 package com.opengamma.master.historicaltimeseries;
 
+import java.util.Collection;
+import java.util.Map;
+
 import javax.time.calendar.LocalDate;
 
 import com.opengamma.DataNotFoundException;
 import com.opengamma.core.change.ChangeProvider;
+import com.opengamma.id.ObjectId;
 import com.opengamma.id.ObjectIdentifiable;
 import com.opengamma.id.UniqueId;
 import com.opengamma.id.VersionCorrection;
@@ -114,6 +118,23 @@ public interface HistoricalTimeSeriesMaster extends AbstractChangeProvidingMaste
    */
   ManageableHistoricalTimeSeries getTimeSeries(ObjectIdentifiable objectId, VersionCorrection versionCorrection, HistoricalTimeSeriesGetFilter filter);
 
+  /**
+   * Returns the data points of many time-series over a date range.
+   * <p>
+   * This is equivalent to calling {@link #getTimeSeries(ObjectIdentifiable, VersionCorrection, HistoricalTimeSeriesGetFilter)}
+   * for each object identifier, however a master may read the series together.
+   * Time-series that are not found are omitted from the result.
+   * 
+   * @param objectIds  the time-series data points object identifiers, not null
+   * @param versionCorrection  the version-correction locator to search at, not null
+   * @param fromDateInclusive  the inclusive start date, null for far past
+   * @param toDateInclusive  the inclusive end date, null for far future
+   * @return the time-series data points keyed by object identifier, not null
+   * @throws IllegalArgumentException if the request is invalid
+   */
+  Map<ObjectId, ManageableHistoricalTimeSeries> getTimeSeries(
+      Collection<? extends ObjectIdentifiable> objectIds, VersionCorrection versionCorrection, LocalDate fromDateInclusive, LocalDate toDateInclusive);
+
   //-------------------------------------------------------------------------
   /**
    * Adds to the time-series by appending new data points.
@@ -6,9 +6,12 @@
 package com.opengamma.master.historicaltimeseries.impl;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -307,6 +310,33 @@ public class InMemoryHistoricalTimeSeriesMaster
     return result;
   }
 
+  /**
+   * Returns the data points of many time-series over a date range.
+   * <p>
+   * The series are held in memory, so each is read separately.
+   * 
+   * @param objectIds  the time-series data points object identifiers, not null
+   * @param versionCorrection  the version-correction locator to search at, not null
+   * @param fromDateInclusive  the inclusive start date, null for far past
+   * @param toDateInclusive  the inclusive end date, null for far future
+   * @return the time-series data points keyed by object identifier, not found series omitted, not null
+   */
+  @Override
+  public Map<ObjectId, ManageableHistoricalTimeSeries> getTimeSeries(
+      Collection<? extends ObjectIdentifiable> objectIds, VersionCorrection versionCorrection, LocalDate fromDateInclusive, LocalDate toDateInclusive) {
+    ArgumentChecker.noNulls(objectIds, "objectIds");
+    final HistoricalTimeSeriesGetFilter filter = HistoricalTimeSeriesGetFilter.ofRange(fromDateInclusive, toDateInclusive);
+    final Map<ObjectId, ManageableHistoricalTimeSeries> result = new HashMap<ObjectId, ManageableHistoricalTimeSeries>();
+    for (ObjectIdentifiable objectId : objectIds) {
+      try {
+        result.put(objectId.getObjectId(), getTimeSeries(objectId, versionCorrection, filter));
+      } catch (DataNotFoundException ex) {
+        // omitted from the result
+      }
+    }
+    return result;
+  }
+
 
   //-------------------------------------------------------------------------
   @Override
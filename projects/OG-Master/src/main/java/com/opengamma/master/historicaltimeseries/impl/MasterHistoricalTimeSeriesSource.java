@@ -5,6 +5,9 @@
  */
 package com.opengamma.master.historicaltimeseries.impl;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -32,6 +35,7 @@ import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesInfoDocumen
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesMaster;
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesResolutionResult;
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesResolver;
+import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeries;
 import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeriesInfo;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.OpenGammaClock;
@@ -472,6 +476,44 @@ public class MasterHistoricalTimeSeriesSource
     return result;
   }
 
+  @Override
+  public Map<UniqueId, HistoricalTimeSeries> getHistoricalTimeSeries(
+      Set<UniqueId> uniqueIds, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    ArgumentChecker.notNull(uniqueIds, "uniqueIds");
+    if (start != null && !includeStart) {
+      start = start.plusDays(1);
+    }
+    if (end != null && !includeEnd) {
+      end = end.minusDays(1);
+    }
+    final VersionCorrection vc = getVersionCorrection();  // lock against change
+    Map<UniqueId, HistoricalTimeSeries> result = Maps.newHashMapWithExpectedSize(uniqueIds.size());
+    // versioned identifiers carry their own instants unless overridden, so are read one by one
+    List<UniqueId> bulkIds = new ArrayList<UniqueId>(uniqueIds.size());
+    Set<ObjectId> objectIds = new HashSet<ObjectId>();
+    for (UniqueId uniqueId : uniqueIds) {
+      if (vc != null || uniqueId.isLatest()) {
+        bulkIds.add(uniqueId);
+        objectIds.add(uniqueId.getObjectId());
+      } else {
+        HistoricalTimeSeries historicalTimeSeries = doGetHistoricalTimeSeries(uniqueId, start, end, null);
+        if (historicalTimeSeries != null) {
+          result.put(uniqueId, historicalTimeSeries);
+        }
+      }
+    }
+    if (!bulkIds.isEmpty()) {
+      Map<ObjectId, ManageableHistoricalTimeSeries> series = getMaster().getTimeSeries(objectIds, Objects.firstNonNull(vc, VersionCorrection.LATEST), start, end);
+      for (UniqueId uniqueId : bulkIds) {
+        HistoricalTimeSeries historicalTimeSeries = series.get(uniqueId.getObjectId());
+        if (historicalTimeSeries != null) {
+          result.put(uniqueId, historicalTimeSeries);
+        }
+      }
+    }
+    return result;
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public String toString() {
@@ -6,11 +6,16 @@
 package com.opengamma.master.historicaltimeseries.impl;
 
 import java.net.URI;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.time.calendar.LocalDate;
 
+import com.opengamma.DataNotFoundException;
 import com.opengamma.core.change.ChangeManager;
+import com.opengamma.id.ObjectId;
 import com.opengamma.id.ObjectIdentifiable;
 import com.opengamma.id.UniqueId;
 import com.opengamma.id.VersionCorrection;
@@ -187,6 +192,23 @@ public class RemoteHistoricalTimeSeriesMaster
     return accessRemote(uri).get(ManageableHistoricalTimeSeries.class);
   }
 
+  @Override
+  public Map<ObjectId, ManageableHistoricalTimeSeries> getTimeSeries(
+      Collection<? extends ObjectIdentifiable> objectIds, VersionCorrection versionCorrection, LocalDate fromDateInclusive, LocalDate toDateInclusive) {
+    ArgumentChecker.noNulls(objectIds, "objectIds");
+
+    HistoricalTimeSeriesGetFilter filter = HistoricalTimeSeriesGetFilter.ofRange(fromDateInclusive, toDateInclusive);
+    Map<ObjectId, ManageableHistoricalTimeSeries> result = new HashMap<ObjectId, ManageableHistoricalTimeSeries>();
+    for (ObjectIdentifiable objectId : objectIds) {
+      try {
+        result.put(objectId.getObjectId(), getTimeSeries(objectId, versionCorrection, filter));
+      } catch (DataNotFoundException ex) {
+        // omitted from the result
+      }
+    }
+    return result;
+  }
+
   @Override
   public UniqueId updateTimeSeriesDataPoints(ObjectIdentifiable objectId, LocalDateDoubleTimeSeries series) {
     ArgumentChecker.notNull(objectId, "objectId");
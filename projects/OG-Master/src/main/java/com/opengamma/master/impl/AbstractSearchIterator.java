@@ -14,6 +14,7 @@ import com.opengamma.master.AbstractMaster;
 import com.opengamma.master.AbstractSearchRequest;
 import com.opengamma.master.AbstractSearchResult;
 import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.paging.Paging;
 import com.opengamma.util.paging.PagingRequest;
 
 /**
@@ -22,6 +23,10 @@ import com.opengamma.util.paging.PagingRequest;
  * Large systems may store a large amount of data in each master.
  * A simple search request that pulls back the entire database is unrealistic.
  * This remote iterator allows the database to be queried in a consistent way remotely.
+ * <p>
+ * Batches are requested using cursor paging, so a master that supports it can seek directly
+ * to each batch rather than counting and skipping all the earlier documents.
+ * If the master does not support cursors, or a batch fails to load, index paging is used instead.
  * 
  * @param <D>  the type of the document
  * @param <M>  the type of the master
@@ -30,6 +35,11 @@ import com.opengamma.util.paging.PagingRequest;
 public abstract class AbstractSearchIterator<D extends AbstractDocument, M extends AbstractMaster<D>, R extends AbstractSearchRequest>
     implements Iterator<D> {
 
+  /**
+   * The default number of documents to fetch in each search.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 20;
+
   /**
    * The master that is being used.
    */
@@ -38,6 +48,10 @@ public abstract class AbstractSearchIterator<D extends AbstractDocument, M exten
    * The request object that is being used.
    */
   private final R _request;
+  /**
+   * The number of documents to fetch in each search.
+   */
+  private final int _batchSize;
   /**
    * The last result object.
    */
@@ -54,6 +68,18 @@ public abstract class AbstractSearchIterator<D extends AbstractDocument, M exten
    * The overall index of the last retrieved object.
    */
   private int _overallIndex;
+  /**
+   * Whether cursor paging is being used.
+   */
+  private boolean _cursorPaging = true;
+  /**
+   * The cursor of the next batch, null for the first batch or at the end.
+   */
+  private String _cursor;
+  /**
+   * Whether the last batch has been fetched using cursor paging.
+   */
+  private boolean _exhausted;
 
   /**
    * Creates an instance based on a request.
@@ -64,10 +90,25 @@ public abstract class AbstractSearchIterator<D extends AbstractDocument, M exten
    * @param request  the request object, not null
    */
   protected AbstractSearchIterator(M master, R request) {
+    this(master, request, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Creates an instance based on a request, fetching documents in batches of the given size.
+   * <p>
+   * The request will be altered during the iteration.
+   * 
+   * @param master  the underlying master, not null
+   * @param request  the request object, not null
+   * @param batchSize  the number of documents to fetch in each search, greater than zero
+   */
+  protected AbstractSearchIterator(M master, R request, int batchSize) {
     ArgumentChecker.notNull(master, "master");
     ArgumentChecker.notNull(request, "request");
+    ArgumentChecker.notNegativeOrZero(batchSize, "batchSize");
     _master = master;
     _request = request;
+    _batchSize = batchSize;
   }
 
   //-------------------------------------------------------------------------
@@ -109,12 +150,20 @@ public abstract class AbstractSearchIterator<D extends AbstractDocument, M exten
   }
 
   private void doFetch() {
+    if (_exhausted) {
+      return;
+    }
     try {
-      // try to fetch a batch of 20 documents
-      _request.setPagingRequest(PagingRequest.ofIndex(_overallIndex, 20));
+      // try to fetch a batch of documents
+      if (_cursorPaging) {
+        _request.setPagingRequest(PagingRequest.ofCursor(_cursor, _batchSize));
+      } else {
+        _request.setPagingRequest(PagingRequest.ofIndex(_overallIndex, _batchSize));
+      }
       _currentBatch = doSearch(_request);
       
     } catch (RuntimeException ex) {
+      _cursorPaging = false;
       doFetchOne(ex);
     }
     
@@ -122,7 +171,17 @@ public abstract class AbstractSearchIterator<D extends AbstractDocument, M exten
     _request.setVersionCorrection(_currentBatch.getVersionCorrection());
     
     // check results
-    if (_currentBatch.getPaging().getFirstItem() < _overallIndex) {
+    final Paging paging = _currentBatch.getPaging();
+    if (_cursorPaging) {
+      if (paging.isCursorPaging()) {
+        _cursor = paging.getNextCursor();
+        _exhausted = (_cursor == null);
+        _currentBatchIndex = 0;
+        return;
+      }
+      _cursorPaging = false;  // cursor not supported by master, continue using index
+    }
+    if (paging.getFirstItem() < _overallIndex) {
       _currentBatchIndex = (_overallIndex - _currentBatch.getPaging().getFirstItem());
     } else {
       _currentBatchIndex = 0;
@@ -137,7 +196,7 @@ public abstract class AbstractSearchIterator<D extends AbstractDocument, M exten
   private void doFetchOne(RuntimeException ex) {
     // try to load just the next document
     int maxFailures = 5;
-    if (_currentBatch != null) {
+    if (_currentBatch != null && _currentBatch.getPaging().isCursorPaging() == false) {
       maxFailures = _currentBatch.getPaging().getTotalItems() - _overallIndex;  // if we have results, use maximum count
       maxFailures = Math.min(maxFailures, 20);
     }
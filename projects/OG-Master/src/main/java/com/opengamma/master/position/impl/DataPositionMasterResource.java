@@ -12,6 +12,7 @@ import javax.ws.rs.HEAD;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
@@ -22,6 +23,7 @@ import com.opengamma.master.position.PositionDocument;
 import com.opengamma.master.position.PositionMaster;
 import com.opengamma.master.position.PositionSearchRequest;
 import com.opengamma.master.position.PositionSearchResult;
+import com.opengamma.transport.jaxrs.FudgeRest;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.rest.AbstractDataResource;
 
@@ -33,6 +35,11 @@ import com.opengamma.util.rest.AbstractDataResource;
 @Path("positionMaster")
 public class DataPositionMasterResource extends AbstractDataResource {
 
+  /**
+   * The number of documents fetched from the master at a time when streaming search results.
+   */
+  private static final int STREAM_BATCH_SIZE = 500;
+
   /**
    * The position master.
    */
@@ -78,6 +85,13 @@ public class DataPositionMasterResource extends AbstractDataResource {
     return responseOkFudge(result);
   }
 
+  @POST
+  @Path("positionSearches/stream")
+  @Produces(FudgeRest.STREAM_MEDIA)
+  public Response searchStream(PositionSearchRequest request) {
+    return responseOkFudgeStream(new PositionSearchIterator(getPositionMaster(), request, STREAM_BATCH_SIZE));
+  }
+
   @POST
   @Path("positions")
   public Response add(@Context UriInfo uriInfo, PositionDocument request) {
@@ -111,6 +125,17 @@ public class DataPositionMasterResource extends AbstractDataResource {
     return bld.build();
   }
 
+  /**
+   * Builds a URI for a streamed search.
+   * 
+   * @param baseUri  the base URI, not null
+   * @return the URI, not null
+   */
+  public static URI uriSearchStream(URI baseUri) {
+    UriBuilder bld = UriBuilder.fromUri(baseUri).path("positionSearches/stream");
+    return bld.build();
+  }
+
   /**
    * Builds a URI.
    * 
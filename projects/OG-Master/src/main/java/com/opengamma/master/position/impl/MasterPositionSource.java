@@ -5,6 +5,8 @@
  */
 package com.opengamma.master.position.impl;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -54,6 +56,11 @@ public class MasterPositionSource implements PositionSource, VersionedSource {
 
   private static final Logger s_logger = LoggerFactory.getLogger(MasterPositionSource.class);
 
+  /**
+   * The maximum number of positions to fetch in a single search when loading a portfolio.
+   */
+  private static final int POSITION_SEARCH_BATCH_SIZE = 1000;
+
   /**
    * The portfolio master.
    */
@@ -253,16 +260,11 @@ public class MasterPositionSource implements PositionSource, VersionedSource {
     return manTrade;
   }
 
-  private static int populatePositionSearchRequest(final PositionSearchRequest positionSearch, final ManageablePortfolioNode node) {
-    int count = 0;
-    for (ObjectId positionId : node.getPositionIds()) {
-      positionSearch.addPositionObjectId(positionId);
-      count++;
-    }
+  private static void collectPositionIds(final ManageablePortfolioNode node, final List<ObjectId> positionIds) {
+    positionIds.addAll(node.getPositionIds());
     for (ManageablePortfolioNode child : node.getChildNodes()) {
-      count += populatePositionSearchRequest(positionSearch, child);
+      collectPositionIds(child, positionIds);
     }
-    return count;
   }
 
   /**
@@ -273,15 +275,20 @@ public class MasterPositionSource implements PositionSource, VersionedSource {
    * @param sourceNode the source node, not null
    */
   protected void convertNode(final ManageablePortfolioNode manNode, final SimplePortfolioNode sourceNode, VersionCorrection versionCorrection) {
-    PositionSearchRequest positionSearch = new PositionSearchRequest();
+    final List<ObjectId> positionIds = new ArrayList<ObjectId>();
+    collectPositionIds(manNode, positionIds);
     final Map<ObjectId, ManageablePosition> positionCache;
-    final int positionCount = populatePositionSearchRequest(positionSearch, manNode);
-    if (positionCount > 0) {
-      positionCache = Maps.newHashMapWithExpectedSize(positionCount);
-      positionSearch.setVersionCorrection(versionCorrection);
-      final PositionSearchResult positions = getPositionMaster().search(positionSearch);
-      for (PositionDocument position : positions.getDocuments()) {
-        positionCache.put(position.getObjectId(), position.getPosition());
+    if (positionIds.size() > 0) {
+      positionCache = Maps.newHashMapWithExpectedSize(positionIds.size());
+      // Fetch the whole tree in a few set-based searches, bounding the size of each query
+      for (int i = 0; i < positionIds.size(); i += POSITION_SEARCH_BATCH_SIZE) {
+        final PositionSearchRequest positionSearch = new PositionSearchRequest();
+        positionSearch.setPositionObjectIds(positionIds.subList(i, Math.min(i + POSITION_SEARCH_BATCH_SIZE, positionIds.size())));
+        positionSearch.setVersionCorrection(versionCorrection);
+        final PositionSearchResult positions = getPositionMaster().search(positionSearch);
+        for (PositionDocument position : positions.getDocuments()) {
+          positionCache.put(position.getObjectId(), position.getPosition());
+        }
       }
     } else {
       positionCache = null;
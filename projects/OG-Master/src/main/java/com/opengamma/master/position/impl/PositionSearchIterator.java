@@ -55,6 +55,19 @@ public class PositionSearchIterator extends AbstractSearchIterator<PositionDocum
     super(master, request);
   }
 
+  /**
+   * Creates an instance based on a request, fetching documents in batches of the given size.
+   * <p>
+   * The request will be altered during the iteration.
+   * 
+   * @param master  the underlying master, not null
+   * @param request  the request object, not null
+   * @param batchSize  the number of documents to fetch in each search, greater than zero
+   */
+  public PositionSearchIterator(PositionMaster master, PositionSearchRequest request, int batchSize) {
+    super(master, request, batchSize);
+  }
+
   //-------------------------------------------------------------------------
   @Override
   protected PositionSearchResult doSearch(PositionSearchRequest request) {
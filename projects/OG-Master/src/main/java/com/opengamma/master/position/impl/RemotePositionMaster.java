@@ -21,6 +21,7 @@ import com.opengamma.master.position.PositionHistoryResult;
 import com.opengamma.master.position.PositionMaster;
 import com.opengamma.master.position.PositionSearchRequest;
 import com.opengamma.master.position.PositionSearchResult;
+import com.opengamma.transport.jaxrs.FudgeStreamReader;
 import com.opengamma.util.ArgumentChecker;
 import com.sun.jersey.api.client.GenericType;
 
@@ -59,6 +60,23 @@ public class RemotePositionMaster
     return accessRemote(uri).post(PositionSearchResult.class, request);
   }
 
+  /**
+   * Searches for positions matching the specified search criteria, streaming the matching documents.
+   * <p>
+   * All matching documents are returned, the paging of the request is ignored. The documents are
+   * decoded as they arrive so the whole result is never held in memory. The caller must read to
+   * the end of the stream, or close it, to release the connection.
+   * 
+   * @param request  the search request, not null
+   * @return the matching documents, not null
+   */
+  public FudgeStreamReader<PositionDocument> searchStream(final PositionSearchRequest request) {
+    ArgumentChecker.notNull(request, "request");
+
+    URI uri = DataPositionMasterResource.uriSearchStream(getBaseUri());
+    return accessRemoteStream(uri, request, PositionDocument.class);
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public PositionDocument get(final UniqueId uniqueId) {
@@ -12,6 +12,7 @@ import javax.ws.rs.HEAD;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
@@ -24,6 +25,7 @@ import com.opengamma.master.security.SecurityMetaDataRequest;
 import com.opengamma.master.security.SecurityMetaDataResult;
 import com.opengamma.master.security.SecuritySearchRequest;
 import com.opengamma.master.security.SecuritySearchResult;
+import com.opengamma.transport.jaxrs.FudgeRest;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.rest.AbstractDataResource;
 import com.opengamma.util.rest.RestUtils;
@@ -36,6 +38,11 @@ import com.opengamma.util.rest.RestUtils;
 @Path("securityMaster")
 public class DataSecurityMasterResource extends AbstractDataResource {
 
+  /**
+   * The number of documents fetched from the master at a time when streaming search results.
+   */
+  private static final int STREAM_BATCH_SIZE = 500;
+
   /**
    * The security master.
    */
@@ -89,6 +96,13 @@ public class DataSecurityMasterResource extends AbstractDataResource {
     return responseOkFudge(result);
   }
 
+  @POST
+  @Path("securitySearches/stream")
+  @Produces(FudgeRest.STREAM_MEDIA)
+  public Response searchStream(SecuritySearchRequest request) {
+    return responseOkFudgeStream(new SecuritySearchIterator(getSecurityMaster(), request, STREAM_BATCH_SIZE));
+  }
+
   @POST
   @Path("securities")
   public Response add(@Context UriInfo uriInfo, SecurityDocument request) {
@@ -131,6 +145,17 @@ public class DataSecurityMasterResource extends AbstractDataResource {
     return bld.build();
   }
 
+  /**
+   * Builds a URI for a streamed search.
+   * 
+   * @param baseUri  the base URI, not null
+   * @return the URI, not null
+   */
+  public static URI uriSearchStream(URI baseUri) {
+    UriBuilder bld = UriBuilder.fromUri(baseUri).path("securitySearches/stream");
+    return bld.build();
+  }
+
   /**
    * Builds a URI.
    * 
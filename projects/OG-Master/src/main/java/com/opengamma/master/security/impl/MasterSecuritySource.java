@@ -7,11 +7,14 @@ package com.opengamma.master.security.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 import com.opengamma.core.change.ChangeManager;
 import com.opengamma.core.security.Security;
 import com.opengamma.core.security.SecuritySource;
 import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.id.ObjectId;
 import com.opengamma.id.VersionCorrection;
 import com.opengamma.master.AbstractMasterSource;
 import com.opengamma.master.security.ManageableSecurity;
@@ -51,6 +54,24 @@ public class MasterSecuritySource extends AbstractMasterSource<Security, Securit
   }
 
   //-------------------------------------------------------------------------
+  @Override
+  public Map<ObjectId, Security> get(final Collection<ObjectId> objectIds, final VersionCorrection versionCorrection) {
+    ArgumentChecker.notNull(objectIds, "objectIds");
+    ArgumentChecker.notNull(versionCorrection, "versionCorrection");
+    final Map<ObjectId, Security> result = new HashMap<ObjectId, Security>(objectIds.size());
+    if (objectIds.isEmpty()) {
+      return result;
+    }
+    VersionCorrection overrideVersionCorrection = getVersionCorrection();
+    final SecuritySearchRequest request = new SecuritySearchRequest();
+    request.setObjectIds(objectIds);
+    request.setVersionCorrection(overrideVersionCorrection != null ? overrideVersionCorrection : versionCorrection);
+    for (ManageableSecurity security : search(request).getSecurities()) {
+      result.put(security.getUniqueId().getObjectId(), security);
+    }
+    return result;
+  }
+
   @Override
   public Collection<Security> get(final ExternalIdBundle bundle) {
     ArgumentChecker.notNull(bundle, "bundle");
@@ -21,6 +21,7 @@ import com.opengamma.master.security.SecurityMetaDataRequest;
 import com.opengamma.master.security.SecurityMetaDataResult;
 import com.opengamma.master.security.SecuritySearchRequest;
 import com.opengamma.master.security.SecuritySearchResult;
+import com.opengamma.transport.jaxrs.FudgeStreamReader;
 import com.opengamma.util.ArgumentChecker;
 import com.sun.jersey.api.client.GenericType;
 
@@ -68,6 +69,23 @@ public class RemoteSecurityMaster
     return accessRemote(uri).post(SecuritySearchResult.class, request);
   }
 
+  /**
+   * Searches for securities matching the specified search criteria, streaming the matching documents.
+   * <p>
+   * All matching documents are returned, the paging of the request is ignored. The documents are
+   * decoded as they arrive so the whole result is never held in memory. The caller must read to
+   * the end of the stream, or close it, to release the connection.
+   * 
+   * @param request  the search request, not null
+   * @return the matching documents, not null
+   */
+  public FudgeStreamReader<SecurityDocument> searchStream(final SecuritySearchRequest request) {
+    ArgumentChecker.notNull(request, "request");
+
+    URI uri = DataSecurityMasterResource.uriSearchStream(getBaseUri());
+    return accessRemoteStream(uri, request, SecurityDocument.class);
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public SecurityDocument get(final UniqueId uniqueId) {
@@ -55,6 +55,19 @@ public class SecuritySearchIterator extends AbstractSearchIterator<SecurityDocum
     super(master, request);
   }
 
+  /**
+   * Creates an instance based on a request, fetching documents in batches of the given size.
+   * <p>
+   * The request will be altered during the iteration.
+   * 
+   * @param master  the underlying master, not null
+   * @param request  the request object, not null
+   * @param batchSize  the number of documents to fetch in each search, greater than zero
+   */
+  public SecuritySearchIterator(SecurityMaster master, SecuritySearchRequest request, int batchSize) {
+    super(master, request, batchSize);
+  }
+
   //-------------------------------------------------------------------------
   @Override
   protected SecuritySearchResult doSearch(SecuritySearchRequest request) {
@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.master;
+
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.mockito.Matchers;
+import org.testng.annotations.Test;
+
+import com.opengamma.id.UniqueId;
+import com.opengamma.master.security.ManageableSecurity;
+import com.opengamma.master.security.SecurityDocument;
+import com.opengamma.master.security.SecurityMaster;
+
+/**
+ * Test {@link MasterUtils}.
+ */
+@Test
+public class MasterUtilsTest {
+
+  private static final SecurityDocument DOC1 = new SecurityDocument(new ManageableSecurity(UniqueId.of("Test", "1", "V"), "One", "Type", null));
+  private static final SecurityDocument DOC2 = new SecurityDocument(new ManageableSecurity(UniqueId.of("Test", "2", "V"), "Two", "Type", null));
+  private static final SecurityDocument RESULT1 = new SecurityDocument(new ManageableSecurity(UniqueId.of("Test", "1", "W"), "One", "Type", null));
+  private static final SecurityDocument RESULT2 = new SecurityDocument(new ManageableSecurity(UniqueId.of("Test", "2", "W"), "Two", "Type", null));
+
+  /**
+   * A security master that supports bulk writes.
+   */
+  private interface BulkSecurityMaster extends SecurityMaster, AbstractBulkMaster<SecurityDocument> {
+  }
+
+  public void test_addAll_bulk() {
+    final List<SecurityDocument> documents = Arrays.asList(DOC1, DOC2);
+    final BulkSecurityMaster master = mock(BulkSecurityMaster.class);
+    when(master.addAll(same(documents))).thenReturn(Arrays.asList(RESULT1, RESULT2));
+    assertEquals(Arrays.asList(RESULT1, RESULT2), MasterUtils.addAll(master, documents));
+    verify(master, never()).add(Matchers.<SecurityDocument>any());
+  }
+
+  public void test_addAll_single() {
+    final SecurityMaster master = mock(SecurityMaster.class);
+    when(master.add(same(DOC1))).thenReturn(RESULT1);
+    when(master.add(same(DOC2))).thenReturn(RESULT2);
+    final List<SecurityDocument> test = MasterUtils.addAll(master, Arrays.asList(DOC1, DOC2));
+    assertEquals(2, test.size());
+    assertSame(RESULT1, test.get(0));
+    assertSame(RESULT2, test.get(1));
+  }
+
+  public void test_updateAll_bulk() {
+    final List<SecurityDocument> documents = Arrays.asList(DOC1, DOC2);
+    final BulkSecurityMaster master = mock(BulkSecurityMaster.class);
+    when(master.updateAll(same(documents))).thenReturn(Arrays.asList(RESULT1, RESULT2));
+    assertEquals(Arrays.asList(RESULT1, RESULT2), MasterUtils.updateAll(master, documents));
+    verify(master, never()).update(Matchers.<SecurityDocument>any());
+  }
+
+  public void test_updateAll_single() {
+    final SecurityMaster master = mock(SecurityMaster.class);
+    when(master.update(same(DOC1))).thenReturn(RESULT1);
+    when(master.update(same(DOC2))).thenReturn(RESULT2);
+    final List<SecurityDocument> test = MasterUtils.updateAll(master, Arrays.asList(DOC1, DOC2));
+    assertEquals(2, test.size());
+    assertSame(RESULT1, test.get(0));
+    assertSame(RESULT2, test.get(1));
+  }
+
+  public void test_correctAll_single() {
+    final SecurityMaster master = mock(SecurityMaster.class);
+    when(master.correct(same(DOC1))).thenReturn(RESULT1);
+    when(master.correct(same(DOC2))).thenReturn(RESULT2);
+    final List<SecurityDocument> test = MasterUtils.correctAll(master, Arrays.asList(DOC1, DOC2));
+    assertEquals(2, test.size());
+    assertSame(RESULT1, test.get(0));
+    assertSame(RESULT2, test.get(1));
+  }
+
+}
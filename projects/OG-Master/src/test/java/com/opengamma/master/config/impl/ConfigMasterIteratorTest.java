@@ -10,6 +10,11 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testng.AssertJUnit.assertEquals;
 
+import java.util.Arrays;
+import java.util.List;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -20,7 +25,10 @@ import com.opengamma.id.ExternalId;
 import com.opengamma.master.config.ConfigDocument;
 import com.opengamma.master.config.ConfigMaster;
 import com.opengamma.master.config.ConfigSearchRequest;
+import com.opengamma.master.config.ConfigSearchResult;
 import com.opengamma.master.config.ConfigSearchSortOrder;
+import com.opengamma.util.paging.Paging;
+import com.opengamma.util.paging.PagingRequest;
 
 /**
  * Test {@link ConfigSearchIterator}.
@@ -96,6 +104,44 @@ public class ConfigMasterIteratorTest {
     assertEquals(4, iterator.nextIndex());
   }
 
+  @SuppressWarnings("unchecked")
+  public void iterateCursor() throws Exception {
+    ConfigSearchRequest<ExternalId> request = new ConfigSearchRequest<ExternalId>();
+    request.setType(ExternalId.class);
+    
+    ConfigMaster mockMaster = mock(ConfigMaster.class);
+    when(mockMaster.search(any(ConfigSearchRequest.class))).thenAnswer(new Answer<ConfigSearchResult<ExternalId>>() {
+      @Override
+      public ConfigSearchResult<ExternalId> answer(InvocationOnMock invocation) throws Throwable {
+        PagingRequest pagingRequest = ((ConfigSearchRequest<ExternalId>) invocation.getArguments()[0]).getPagingRequest();
+        assertEquals(true, pagingRequest.isCursorPaging());
+        ConfigSearchResult<ExternalId> result = new ConfigSearchResult<ExternalId>();
+        List<ConfigDocument> docs;
+        String nextCursor;
+        if (pagingRequest.getCursor().equals("")) {
+          docs = Arrays.asList(_doc1, _doc2);
+          nextCursor = "2";
+        } else if (pagingRequest.getCursor().equals("2")) {
+          docs = Arrays.asList(_doc3, _doc4);
+          nextCursor = null;
+        } else {
+          throw new IllegalStateException();
+        }
+        result.getDocuments().addAll(docs);
+        result.setPaging(Paging.ofCursor(pagingRequest, docs.size(), nextCursor));
+        return result;
+      }
+    });
+    
+    ConfigSearchIterator<ExternalId> iterator = new ConfigSearchIterator<ExternalId>(mockMaster, request);
+    assertEquals(_doc1, iterator.next());
+    assertEquals(_doc2, iterator.next());
+    assertEquals(_doc3, iterator.next());
+    assertEquals(_doc4, iterator.next());
+    assertEquals(false, iterator.hasNext());
+    assertEquals(4, iterator.nextIndex());
+  }
+
   @SuppressWarnings("unchecked")
   @Test(expectedExceptions = OpenGammaRuntimeException.class)
   public void iterateError() throws Exception {
@@ -12,14 +12,20 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.AssertJUnit.assertEquals;
 
+import java.util.Map;
+import java.util.Set;
+
 import javax.time.calendar.LocalDate;
 
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.opengamma.core.historicaltimeseries.HistoricalTimeSeries;
 import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.id.ObjectId;
 import com.opengamma.id.UniqueId;
 import com.opengamma.id.VersionCorrection;
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesGetFilter;
@@ -198,6 +204,31 @@ public class MasterHistoricalTimeSeriesSourceTest {
     assertEquals(hts.getTimeSeries().values(), test.getTimeSeries().values());
   }
 
+  public void getHistoricalTimeSeriesByUIDs() throws Exception {
+    LocalDate end = DateUtils.previousWeekDay();
+    LocalDate start = end.minusDays(7);
+    UniqueId versionedUid = UniqueId.of("A", "2", "V");
+    UniqueId missingUid = UniqueId.of("A", "3");
+    ManageableHistoricalTimeSeries hts = new ManageableHistoricalTimeSeries();
+    hts.setUniqueId(UID);
+    hts.setTimeSeries(randomTimeSeries());
+    ManageableHistoricalTimeSeries versionedHts = new ManageableHistoricalTimeSeries();
+    versionedHts.setUniqueId(versionedUid);
+    versionedHts.setTimeSeries(randomTimeSeries());
+    Set<ObjectId> objectIds = Sets.newHashSet(UID.getObjectId(), missingUid.getObjectId());
+    Map<ObjectId, ManageableHistoricalTimeSeries> found = Maps.newHashMap();
+    found.put(UID.getObjectId(), hts);
+    when(_mockMaster.getTimeSeries(objectIds, VersionCorrection.LATEST, start.plusDays(1), end)).thenReturn(found);
+    when(_mockMaster.getTimeSeries(versionedUid, HistoricalTimeSeriesGetFilter.ofRange(start.plusDays(1), end, null))).thenReturn(versionedHts);
+    
+    Map<UniqueId, HistoricalTimeSeries> test = _tsSource.getHistoricalTimeSeries(Sets.newHashSet(UID, versionedUid, missingUid), start, false, end, true);
+    verify(_mockMaster, times(1)).getTimeSeries(objectIds, VersionCorrection.LATEST, start.plusDays(1), end);
+    
+    assertEquals(2, test.size());
+    assertEquals(hts, test.get(UID));
+    assertEquals(versionedHts, test.get(versionedUid));
+  }
+
   private LocalDateDoubleTimeSeries randomTimeSeries() {
     return RandomTimeSeriesGenerator.makeRandomTimeSeries(200);
   }
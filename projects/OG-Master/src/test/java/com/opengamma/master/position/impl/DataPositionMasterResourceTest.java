@@ -9,8 +9,12 @@ import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
 import java.net.URI;
 
@@ -25,6 +29,11 @@ import com.opengamma.id.UniqueId;
 import com.opengamma.master.position.ManageablePosition;
 import com.opengamma.master.position.PositionDocument;
 import com.opengamma.master.position.PositionMaster;
+import com.opengamma.master.position.PositionSearchRequest;
+import com.opengamma.transport.jaxrs.FudgeRest;
+import com.opengamma.transport.jaxrs.FudgeStreamReader;
+import com.opengamma.transport.jaxrs.FudgeStreamingOutput;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
 import com.sun.jersey.api.client.ClientResponse.Status;
 
 /**
@@ -61,6 +70,48 @@ public class DataPositionMasterResourceTest {
     assertSame(result, test.getEntity());
   }
 
+  @Test
+  public void testSearchStream() {
+    final PositionSearchRequest request = new PositionSearchRequest();
+    Response test = _resource.searchStream(request);
+    assertEquals(Status.OK.getStatusCode(), test.getStatus());
+    assertTrue(test.getEntity() instanceof FudgeStreamingOutput);
+    assertEquals(FudgeRest.STREAM_MEDIA_TYPE, test.getMetadata().getFirst("Content-Type"));
+  }
+
+  @Test
+  public void testSearchStreamContent() throws Exception {
+    final InMemoryPositionMaster master = new InMemoryPositionMaster();
+    final PositionDocument[] added = new PositionDocument[3];
+    for (int i = 0; i < added.length; i++) {
+      final ManageablePosition position = new ManageablePosition();
+      position.setQuantity(BigDecimal.valueOf(i + 1));
+      added[i] = master.add(new PositionDocument(position));
+    }
+    final Response response = new DataPositionMasterResource(master).searchStream(new PositionSearchRequest());
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ((FudgeStreamingOutput) response.getEntity()).write(output);
+    
+    final FudgeStreamReader<PositionDocument> reader = new FudgeStreamReader<PositionDocument>(
+        OpenGammaFudgeContext.getInstance(), new ByteArrayInputStream(output.toByteArray()), PositionDocument.class);
+    final BigDecimal[] quantities = new BigDecimal[added.length];
+    int count = 0;
+    while (reader.hasNext()) {
+      final PositionDocument doc = reader.next();
+      for (int i = 0; i < added.length; i++) {
+        if (added[i].getUniqueId().equals(doc.getUniqueId())) {
+          quantities[i] = doc.getPosition().getQuantity();
+        }
+      }
+      count++;
+    }
+    assertEquals(added.length, count);
+    for (int i = 0; i < added.length; i++) {
+      assertEquals(0, added[i].getPosition().getQuantity().compareTo(quantities[i]));
+    }
+    assertFalse(reader.hasNext());
+  }
+
   @Test
   public void testFindPosition() {
     DataPositionResource test = _resource.findPosition("Test~A");
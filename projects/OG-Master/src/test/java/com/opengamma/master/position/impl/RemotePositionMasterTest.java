@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.master.position.impl;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.ws.rs.core.Response;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.id.UniqueId;
+import com.opengamma.master.position.ManageablePosition;
+import com.opengamma.master.position.PositionDocument;
+import com.opengamma.master.position.PositionSearchRequest;
+import com.opengamma.transport.jaxrs.FudgeRest;
+import com.opengamma.transport.jaxrs.FudgeStreamReader;
+import com.opengamma.transport.jaxrs.FudgeStreamingOutput;
+import com.opengamma.util.rest.FudgeRestClient;
+import com.sun.jersey.api.client.WebResource;
+
+/**
+ * Test the streamed search of {@link RemotePositionMaster} against {@link DataPositionMasterResource}.
+ */
+@Test
+public class RemotePositionMasterTest {
+
+  private static final URI BASE_URI = URI.create("http://localhost/test");
+
+  public void test_searchStream_roundTrip() throws Exception {
+    final InMemoryPositionMaster master = new InMemoryPositionMaster();
+    final List<UniqueId> added = new ArrayList<UniqueId>();
+    for (int i = 0; i < 1200; i++) {
+      final ManageablePosition position = new ManageablePosition();
+      position.setQuantity(BigDecimal.valueOf(i));
+      added.add(master.add(new PositionDocument(position)).getUniqueId());
+    }
+    final PositionSearchRequest request = new PositionSearchRequest();
+    final RemotePositionMaster remote = createRemote(request, serve(master, request));
+
+    final FudgeStreamReader<PositionDocument> reader = remote.searchStream(request);
+    final List<UniqueId> received = new ArrayList<UniqueId>();
+    while (reader.hasNext()) {
+      received.add(reader.next().getUniqueId());
+    }
+    reader.close();
+    assertEquals(added.size(), received.size());
+    assertEquals(new HashSet<UniqueId>(added), new HashSet<UniqueId>(received));
+  }
+
+  public void test_searchStream_empty() throws Exception {
+    final InMemoryPositionMaster master = new InMemoryPositionMaster();
+    final PositionSearchRequest request = new PositionSearchRequest();
+    final RemotePositionMaster remote = createRemote(request, serve(master, request));
+
+    final FudgeStreamReader<PositionDocument> reader = remote.searchStream(request);
+    assertFalse(reader.hasNext());
+    reader.close();
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Writes the streamed response of the resource, as the server would.
+   */
+  private static byte[] serve(final InMemoryPositionMaster master, final PositionSearchRequest request) throws Exception {
+    final Response response = new DataPositionMasterResource(master).searchStream(request);
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ((FudgeStreamingOutput) response.getEntity()).write(output);
+    return output.toByteArray();
+  }
+
+  /**
+   * Creates a remote master whose client receives the given bytes in reply to the streamed search.
+   */
+  private static RemotePositionMaster createRemote(final PositionSearchRequest request, final byte[] reply) {
+    final FudgeRestClient client = mock(FudgeRestClient.class);
+    final WebResource resource = mock(WebResource.class);
+    final WebResource.Builder builder = mock(WebResource.Builder.class);
+    when(client.access(DataPositionMasterResource.uriSearchStream(BASE_URI))).thenReturn(resource);
+    when(resource.type(FudgeRest.MEDIA_TYPE)).thenReturn(builder);
+    when(builder.accept(FudgeRest.STREAM_MEDIA_TYPE)).thenReturn(builder);
+    when(builder.post(InputStream.class, request)).thenReturn(new ByteArrayInputStream(reply));
+    return new RemotePositionMaster(BASE_URI) {
+      @Override
+      public FudgeRestClient getRestClient() {
+        return client;
+      }
+    };
+  }
+
+}
@@ -10,6 +10,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
 
 import java.net.URI;
 
@@ -25,6 +26,9 @@ import com.opengamma.id.UniqueId;
 import com.opengamma.master.security.ManageableSecurity;
 import com.opengamma.master.security.SecurityDocument;
 import com.opengamma.master.security.SecurityMaster;
+import com.opengamma.master.security.SecuritySearchRequest;
+import com.opengamma.transport.jaxrs.FudgeRest;
+import com.opengamma.transport.jaxrs.FudgeStreamingOutput;
 import com.sun.jersey.api.client.ClientResponse.Status;
 
 /**
@@ -60,6 +64,15 @@ public class DataSecurityMasterResourceTest {
     assertSame(result, test.getEntity());
   }
 
+  @Test
+  public void testSearchStream() {
+    final SecuritySearchRequest request = new SecuritySearchRequest();
+    Response test = _resource.searchStream(request);
+    assertEquals(Status.OK.getStatusCode(), test.getStatus());
+    assertTrue(test.getEntity() instanceof FudgeStreamingOutput);
+    assertEquals(FudgeRest.STREAM_MEDIA_TYPE, test.getMetadata().getFirst("Content-Type"));
+  }
+
   @Test
   public void testFindSecurity() {
     DataSecurityResource test = _resource.findSecurity("Test~A");
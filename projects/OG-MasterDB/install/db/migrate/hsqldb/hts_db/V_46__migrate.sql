@@ -0,0 +1,14 @@
+START TRANSACTION;
+  UPDATE hts_schema_version SET version_value='46' WHERE version_key='schema_patch';
+
+  CREATE TABLE hts_point_block (
+      doc_oid bigint NOT NULL,
+      block_start date NOT NULL,
+      block_end date NOT NULL,
+      entry_count int NOT NULL,
+      max_ver_instant timestamp without time zone NOT NULL,
+      max_corr_instant timestamp without time zone NOT NULL,
+      point_data blob NOT NULL,
+      PRIMARY KEY (doc_oid, block_start)
+  );
+COMMIT;
@@ -8,6 +8,7 @@ package com.opengamma.masterdb;
 import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 
 import javax.time.Instant;
 import javax.time.TimeSource;
@@ -15,6 +16,7 @@ import javax.time.TimeSource;
 import org.hibernate.SessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.jdbc.core.simple.SimpleJdbcTemplate;
 import org.springframework.orm.hibernate3.HibernateTemplate;
@@ -163,6 +165,38 @@ public abstract class AbstractDbMaster {
     return getJdbcTemplate().queryForLong(getDialect().sqlNextSequenceValueSelect(sequenceName));
   }
 
+  /**
+   * Gets a block of database ids.
+   * <p>
+   * The ids are selected in one query if the dialect supports it.
+   * 
+   * @param sequenceName  the name of the sequence to query, not null
+   * @param count  the number of ids required, zero or greater
+   * @return the database ids, not null
+   */
+  protected long[] nextIds(String sequenceName, int count) {
+    ArgumentChecker.notNegative(count, "count");
+    final long[] ids = new long[count];
+    if (count == 0) {
+      return ids;
+    }
+    final String sql = getDialect().sqlNextSequenceValuesSelect(sequenceName, count);
+    if (sql != null) {
+      final List<Long> values = getJdbcTemplate().getJdbcOperations().queryForList(sql, Long.class);
+      if (values.size() != count) {
+        throw new IncorrectResultSizeDataAccessException(count, values.size());
+      }
+      for (int i = 0; i < count; i++) {
+        ids[i] = values.get(i);
+      }
+    } else {
+      for (int i = 0; i < count; i++) {
+        ids[i] = nextId(sequenceName);
+      }
+    }
+    return ids;
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Gets the time-source that determines the current time.
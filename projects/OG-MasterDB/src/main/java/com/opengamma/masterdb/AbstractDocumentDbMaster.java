@@ -9,10 +9,13 @@ import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Maps.newHashMap;
 import static com.opengamma.util.functional.Functional.functional;
 
+import java.sql.Statement;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import javax.time.Instant;
@@ -25,6 +28,7 @@ import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.TransactionCallback;
 
+import com.google.common.collect.Lists;
 import com.opengamma.DataNotFoundException;
 import com.opengamma.core.change.BasicChangeManager;
 import com.opengamma.core.change.ChangeManager;
@@ -33,11 +37,11 @@ import com.opengamma.id.ObjectId;
 import com.opengamma.id.ObjectIdentifiable;
 import com.opengamma.id.UniqueId;
 import com.opengamma.id.VersionCorrection;
+import com.opengamma.master.AbstractBulkMaster;
 import com.opengamma.master.AbstractDocument;
 import com.opengamma.master.AbstractDocumentsResult;
 import com.opengamma.master.AbstractHistoryRequest;
 import com.opengamma.master.AbstractHistoryResult;
-import com.opengamma.master.AbstractMaster;
 import com.opengamma.master.MasterUtils;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.db.DbConnector;
@@ -50,16 +54,20 @@ import com.opengamma.util.paging.PagingRequest;
  * An abstract master for rapid implementation of a standard version-correction
  * document database backed master.
  * <p>
- * This provides common implementations of methods in a standard {@link AbstractMaster}.
+ * This provides common implementations of methods in a standard {@link AbstractBulkMaster}.
  * <p>
  * This class is mutable but must be treated as immutable after configuration.
  *
  * @param <D>  the type of the document
  */
-public abstract class AbstractDocumentDbMaster<D extends AbstractDocument> extends AbstractDbMaster implements AbstractMaster<D> {
+public abstract class AbstractDocumentDbMaster<D extends AbstractDocument> extends AbstractDbMaster implements AbstractBulkMaster<D> {
 
   /** Logger. */
   private static final Logger s_logger = LoggerFactory.getLogger(AbstractDocumentDbMaster.class);
+  /**
+   * The maximum number of row identifiers in one get by identifiers query.
+   */
+  private static final int GET_BY_IDS_SIZE = 1000;
 
   /**
    * The change manager.
@@ -193,6 +201,47 @@ public abstract class AbstractDocumentDbMaster<D extends AbstractDocument> exten
     return docs.get(0);
   }
 
+  /**
+   * Performs a standard get of a number of documents by versioned unique identifier.
+   * <p>
+   * The documents are loaded using one query per chunk of identifiers.
+   * The master's SQL bundle must define a {@code GetByIds} query taking a list of {@code doc_ids}.
+   *
+   * @param uniqueIds  the versioned unique identifiers, not null
+   * @param extractor  the extractor to use, not null
+   * @param masterName  a name describing the contents of the master for an error message, not null
+   * @return the documents, in the order of the identifiers, not null
+   * @throws DataNotFoundException if any document is not found
+   */
+  protected List<D> doGetAllById(final List<UniqueId> uniqueIds, final ResultSetExtractor<List<D>> extractor, final String masterName) {
+    ArgumentChecker.noNulls(uniqueIds, "uniqueIds");
+    ArgumentChecker.notNull(extractor, "extractor");
+    s_logger.debug("getAllById {}", uniqueIds.size());
+
+    final NamedParameterJdbcOperations namedJdbc = getJdbcTemplate().getNamedParameterJdbcOperations();
+    final Map<Long, D> found = newHashMap();
+    for (final List<UniqueId> chunk : Lists.partition(uniqueIds, GET_BY_IDS_SIZE)) {
+      final List<Long> docIds = newArrayList();
+      for (final UniqueId uniqueId : chunk) {
+        docIds.add(extractRowId(uniqueId));
+      }
+      final DbMapSqlParameterSource args = new DbMapSqlParameterSource().addValue("doc_ids", docIds);
+      final String sql = getElSqlBundle().getSql("GetByIds", args);
+      for (final D doc : namedJdbc.query(sql, args, extractor)) {
+        found.put(extractRowId(doc.getUniqueId()), doc);
+      }
+    }
+    final List<D> docs = newArrayList();
+    for (final UniqueId uniqueId : uniqueIds) {
+      final D doc = found.get(extractRowId(uniqueId));
+      if (doc == null || extractOid(doc.getUniqueId()) != extractOid(uniqueId)) {
+        throw new DataNotFoundException(masterName + " not found: " + uniqueId);
+      }
+      docs.add(doc);
+    }
+    return docs;
+  }
+
   /**
    * Gets the SQL arguments to use for a standard get by versioned unique identifier.
    *
@@ -277,6 +326,9 @@ public abstract class AbstractDocumentDbMaster<D extends AbstractDocument> exten
     final PagingRequest pagingRequest, final String[] sql, final DbMapSqlParameterSource args,
     final ResultSetExtractor<List<T>> extractor, final AbstractDocumentsResult<T> result) {
 
+    if (pagingRequest.isCursorPaging() && pagingRequest.getCursor().length() > 0) {
+      throw new IllegalArgumentException("Cursor paging is not supported by this search: " + pagingRequest);
+    }
     s_logger.debug("with args {}", args);
     final NamedParameterJdbcOperations namedJdbc = getDbConnector().getJdbcTemplate().getNamedParameterJdbcOperations();
     if (pagingRequest.equals(PagingRequest.ALL)) {
@@ -293,6 +345,63 @@ public abstract class AbstractDocumentDbMaster<D extends AbstractDocument> exten
     }
   }
 
+  /**
+   * Adds the SQL arguments to use for searching with cursor paging.
+   * <p>
+   * Cursor paging seeks past the object identifier held in the cursor rather than counting
+   * and skipping the earlier rows, so each page costs the same however far through the results it is.
+   * The search SQL must order by object identifier and apply the {@code paging_after_oid} argument.
+   *
+   * @param args  the query arguments to add to, not null
+   * @param pagingRequest  the cursor paging request, not null
+   * @throws IllegalArgumentException if the cursor is invalid
+   */
+  protected void argsCursorPaging(final DbMapSqlParameterSource args, final PagingRequest pagingRequest) {
+    ArgumentChecker.isTrue(pagingRequest.isCursorPaging(), "Paging request must be cursor based");
+    args.addValue("paging_offset", 0);
+    args.addValue("paging_fetch", pagingRequest.getPagingSize());
+    if (pagingRequest.getCursor().length() > 0) {
+      try {
+        args.addValue("paging_after_oid", Long.parseLong(pagingRequest.getCursor(), Character.MAX_RADIX));
+      } catch (NumberFormatException ex) {
+        throw new IllegalArgumentException("Invalid paging cursor: " + pagingRequest.getCursor(), ex);
+      }
+    }
+  }
+
+  /**
+   * Searches for documents with cursor paging.
+   * <p>
+   * No count query is run. The next cursor is the highest object identifier in the page,
+   * and is only returned if the page is full.
+   *
+   * @param <T>  the type of the document
+   * @param pagingRequest  the cursor paging request, not null
+   * @param sql  the query SQL, using arguments from {@link #argsCursorPaging}, not null
+   * @param args  the query arguments, not null
+   * @param extractor  the extractor of results, not null
+   * @param result  the object to populate, not null
+   */
+  protected <T extends AbstractDocument> void searchWithCursorPaging(
+    final PagingRequest pagingRequest, final String sql, final DbMapSqlParameterSource args,
+    final ResultSetExtractor<List<T>> extractor, final AbstractDocumentsResult<T> result) {
+
+    s_logger.debug("with args {}", args);
+    s_logger.debug("executing sql {}", sql);
+    final NamedParameterJdbcOperations namedJdbc = getDbConnector().getJdbcTemplate().getNamedParameterJdbcOperations();
+    final List<T> documents = namedJdbc.query(sql, args, extractor);
+    result.getDocuments().addAll(documents);
+    String nextCursor = null;
+    if (documents.size() >= pagingRequest.getPagingSize()) {
+      long lastOid = Long.MIN_VALUE;
+      for (T document : documents) {
+        lastOid = Math.max(lastOid, extractOid(document.getUniqueId()));
+      }
+      nextCursor = Long.toString(lastOid, Character.MAX_RADIX);
+    }
+    result.setPaging(Paging.ofCursor(pagingRequest, documents.size(), nextCursor));
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public D add(final D document) {
@@ -451,6 +560,234 @@ public abstract class AbstractDocumentDbMaster<D extends AbstractDocument> exten
     return document;
   }
 
+  //-------------------------------------------------------------------------
+  /**
+   * Adds a number of documents to the data store.
+   * <p>
+   * This is equivalent to calling {@link #add} for each document, however all the
+   * documents are written in one transaction with the same version instant.
+   * Masters that override {@link #insertAll} write the rows using JDBC batches.
+   * The change events are sent once the transaction has completed.
+   *
+   * @param documents  the documents to add, not null
+   * @return the added documents, in the order of the input, not null
+   */
+  @Override
+  public List<D> addAll(final Collection<D> documents) {
+    ArgumentChecker.noNulls(documents, "documents");
+    s_logger.debug("addAll {} documents", documents.size());
+    final List<D> docs = newArrayList(documents);
+    if (docs.isEmpty()) {
+      return docs;
+    }
+    final List<D> added = getTransactionTemplateRetrying(getMaxRetries()).execute(new TransactionCallback<List<D>>() {
+      @Override
+      public List<D> doInTransaction(final TransactionStatus status) {
+        return doAddAllInTransaction(docs);
+      }
+    });
+    final Instant now = now();
+    for (final D document : added) {
+      changeManager().entityChanged(ChangeType.ADDED, document.getObjectId(), document.getVersionFromInstant(), document.getVersionToInstant(), now);
+    }
+    return added;
+  }
+
+  /**
+   * Processes the addition of a number of documents, within a retrying transaction.
+   *
+   * @param documents  the documents to add, not null
+   * @return the added documents, not null
+   */
+  protected List<D> doAddAllInTransaction(final List<D> documents) {
+    // insert new rows
+    final Instant now = now();
+    for (final D document : documents) {
+      document.setVersionFromInstant(now);
+      document.setVersionToInstant(null);
+      document.setCorrectionFromInstant(now);
+      document.setCorrectionToInstant(null);
+      document.setUniqueId(null);
+    }
+    insertAll(documents);
+    return documents;
+  }
+
+  /**
+   * Updates a number of documents in the data store.
+   * <p>
+   * This is equivalent to calling {@link #update} for each document, however all the
+   * documents are written in one transaction with the same version instant.
+   * Masters that override {@link #insertAll} write the rows using JDBC batches.
+   * The change events are sent once the transaction has completed.
+   *
+   * @param documents  the documents to update, each with a versioned unique identifier, not null
+   * @return the updated documents, in the order of the input, not null
+   * @throws IllegalArgumentException if two documents have the same object identifier
+   */
+  @Override
+  public List<D> updateAll(final Collection<D> documents) {
+    final List<UniqueId> beforeIds = checkBeforeIds(documents);
+    s_logger.debug("updateAll {} documents", documents.size());
+    final List<D> docs = newArrayList(documents);
+    if (docs.isEmpty()) {
+      return docs;
+    }
+    final List<D> updated = getTransactionTemplateRetrying(getMaxRetries()).execute(new TransactionCallback<List<D>>() {
+      @Override
+      public List<D> doInTransaction(final TransactionStatus status) {
+        return doUpdateAllInTransaction(beforeIds, docs);
+      }
+    });
+    final Instant now = now();
+    for (final D document : updated) {
+      changeManager().entityChanged(ChangeType.CHANGED, document.getObjectId(), document.getVersionFromInstant(), document.getVersionToInstant(), now);
+    }
+    return updated;
+  }
+
+  /**
+   * Processes the update of a number of documents, within a retrying transaction.
+   *
+   * @param beforeIds  the original identifiers of the documents, not null
+   * @param documents  the documents to update, not null
+   * @return the updated documents, not null
+   */
+  protected List<D> doUpdateAllInTransaction(final List<UniqueId> beforeIds, final List<D> documents) {
+    // load old rows
+    final Instant now = now();
+    final List<D> oldDocs = getAll(beforeIds);
+    for (final D oldDoc : oldDocs) {
+      if (oldDoc.getVersionToInstant() != null) {
+        throw new IllegalArgumentException("UniqueId is not latest version: " + oldDoc.getUniqueId());
+      }
+      oldDoc.setVersionToInstant(now);
+      oldDoc.setCorrectionToInstant(now);
+    }
+    // update old rows
+    updateVersionToInstants(oldDocs);
+    // insert new rows
+    for (int i = 0; i < documents.size(); i++) {
+      final D document = documents.get(i);
+      final D oldDoc = oldDocs.get(i);
+      document.setVersionFromInstant(now);
+      document.setVersionToInstant(null);
+      document.setCorrectionFromInstant(now);
+      document.setCorrectionToInstant(null);
+      document.setUniqueId(oldDoc.getUniqueId().toLatest());
+      mergeNonUpdatedFields(document, oldDoc);
+    }
+    insertAll(documents);
+    return documents;
+  }
+
+  /**
+   * Corrects a number of documents in the data store.
+   * <p>
+   * This is equivalent to calling {@link #correct} for each document, however all the
+   * documents are written in one transaction with the same correction instant.
+   * Masters that override {@link #insertAll} write the rows using JDBC batches.
+   * The change events are sent once the transaction has completed.
+   *
+   * @param documents  the documents to correct, each with a versioned unique identifier, not null
+   * @return the corrected documents, in the order of the input, not null
+   * @throws IllegalArgumentException if two documents have the same object identifier
+   */
+  @Override
+  public List<D> correctAll(final Collection<D> documents) {
+    final List<UniqueId> beforeIds = checkBeforeIds(documents);
+    s_logger.debug("correctAll {} documents", documents.size());
+    final List<D> docs = newArrayList(documents);
+    if (docs.isEmpty()) {
+      return docs;
+    }
+    final List<D> corrected = getTransactionTemplateRetrying(getMaxRetries()).execute(new TransactionCallback<List<D>>() {
+      @Override
+      public List<D> doInTransaction(final TransactionStatus status) {
+        return doCorrectAllInTransaction(beforeIds, docs);
+      }
+    });
+    final Instant now = now();
+    for (final D document : corrected) {
+      changeManager().entityChanged(ChangeType.CHANGED, document.getObjectId(), document.getVersionFromInstant(), document.getVersionToInstant(), now);
+    }
+    return corrected;
+  }
+
+  /**
+   * Processes the correction of a number of documents, within a retrying transaction.
+   *
+   * @param beforeIds  the original identifiers of the documents, not null
+   * @param documents  the documents to correct, not null
+   * @return the corrected documents, not null
+   */
+  protected List<D> doCorrectAllInTransaction(final List<UniqueId> beforeIds, final List<D> documents) {
+    // load old rows
+    final Instant now = now();
+    final List<D> oldDocs = getAll(beforeIds);
+    for (final D oldDoc : oldDocs) {
+      if (oldDoc.getCorrectionToInstant() != null) {
+        throw new IllegalArgumentException("UniqueId is not latest correction: " + oldDoc.getUniqueId());
+      }
+      oldDoc.setCorrectionToInstant(now);
+    }
+    // update old rows
+    updateCorrectionToInstants(oldDocs);
+    // insert new rows
+    for (int i = 0; i < documents.size(); i++) {
+      final D document = documents.get(i);
+      final D oldDoc = oldDocs.get(i);
+      document.setVersionFromInstant(oldDoc.getVersionFromInstant());
+      document.setVersionToInstant(oldDoc.getVersionToInstant());
+      document.setCorrectionFromInstant(now);
+      document.setCorrectionToInstant(null);
+      document.setUniqueId(oldDoc.getUniqueId().toLatest());
+      mergeNonUpdatedFields(document, oldDoc);
+    }
+    insertAll(documents);
+    return documents;
+  }
+
+  /**
+   * Gets a number of documents by versioned unique identifier.
+   * <p>
+   * This is used to load the old documents in {@link #updateAll} and {@link #correctAll}.
+   * The default implementation calls {@link #get(UniqueId)} for each identifier.
+   * Masters that define a {@code GetByIds} query override this to call {@link #doGetAllById}.
+   *
+   * @param uniqueIds  the versioned unique identifiers, not null
+   * @return the documents, in the order of the identifiers, not null
+   * @throws DataNotFoundException if any document is not found
+   */
+  protected List<D> getAll(final List<UniqueId> uniqueIds) {
+    final List<D> docs = newArrayList();
+    for (final UniqueId uniqueId : uniqueIds) {
+      docs.add(get(uniqueId));
+    }
+    return docs;
+  }
+
+  /**
+   * Checks the documents to be updated or corrected, returning their unique identifiers.
+   *
+   * @param documents  the documents, not null
+   * @return the versioned unique identifiers of the documents, not null
+   */
+  private List<UniqueId> checkBeforeIds(final Collection<D> documents) {
+    ArgumentChecker.noNulls(documents, "documents");
+    final List<UniqueId> beforeIds = newArrayList();
+    final Set<ObjectId> objectIds = new HashSet<ObjectId>();
+    for (final D document : documents) {
+      final UniqueId beforeId = document.getUniqueId();
+      ArgumentChecker.notNull(beforeId, "document.uniqueId");
+      checkScheme(beforeId);
+      ArgumentChecker.isTrue(beforeId.isVersioned(), "UniqueId must be versioned");
+      ArgumentChecker.isTrue(objectIds.add(beforeId.getObjectId()), "Documents must have different object identifiers");
+      beforeIds.add(beforeId);
+    }
+    return beforeIds;
+  }
+
   @Override
   public List<UniqueId> replaceVersion(final UniqueId uniqueId, final List<D> replacementDocuments) {
     ArgumentChecker.notNull(replacementDocuments, "replacementDocuments");
@@ -838,6 +1175,20 @@ public abstract class AbstractDocumentDbMaster<D extends AbstractDocument> exten
 
   //-------------------------------------------------------------------------
 
+  /**
+   * Inserts a number of new documents.
+   * <p>
+   * The default implementation calls {@link #insert} for each document.
+   * Subclasses may override this to allocate ids in blocks and write using JDBC batches.
+   *
+   * @param documents  the documents to insert, not null
+   */
+  protected void insertAll(final List<D> documents) {
+    for (final D document : documents) {
+      insert(document);
+    }
+  }
+
   /**
    * Gets the document ensuring that it is the latest version.
    *
@@ -869,6 +1220,24 @@ public abstract class AbstractDocumentDbMaster<D extends AbstractDocument> exten
     }
   }
 
+  /**
+   * Updates the document rows to mark the versions as ended, using a JDBC batch.
+   *
+   * @param documents  the documents to update, not null
+   */
+  protected void updateVersionToInstants(final List<D> documents) {
+    final DbMapSqlParameterSource[] argsArray = new DbMapSqlParameterSource[documents.size()];
+    for (int i = 0; i < argsArray.length; i++) {
+      final D document = documents.get(i);
+      argsArray[i] = new DbMapSqlParameterSource()
+        .addValue("doc_id", extractRowId(document.getUniqueId()))
+        .addTimestamp("ver_to_instant", document.getVersionToInstant())
+        .addValue("max_instant", DbDateUtils.MAX_SQL_TIMESTAMP);
+    }
+    final String sql = getElSqlBundle().getSql("UpdateVersionToInstant");
+    checkBatchUpdated(getJdbcTemplate().batchUpdate(sql, argsArray), "Update end version instant failed, rows updated: ");
+  }
+
   //-------------------------------------------------------------------------
 
   /**
@@ -902,6 +1271,38 @@ public abstract class AbstractDocumentDbMaster<D extends AbstractDocument> exten
     }
   }
 
+  /**
+   * Updates the document rows to mark the corrections as ended, using a JDBC batch.
+   *
+   * @param documents  the documents to update, not null
+   */
+  protected void updateCorrectionToInstants(final List<D> documents) {
+    final DbMapSqlParameterSource[] argsArray = new DbMapSqlParameterSource[documents.size()];
+    for (int i = 0; i < argsArray.length; i++) {
+      final D document = documents.get(i);
+      argsArray[i] = new DbMapSqlParameterSource()
+        .addValue("doc_id", extractRowId(document.getUniqueId()))
+        .addTimestamp("corr_to_instant", document.getCorrectionToInstant())
+        .addValue("max_instant", DbDateUtils.MAX_SQL_TIMESTAMP);
+    }
+    final String sql = getElSqlBundle().getSql("UpdateCorrectionToInstant");
+    checkBatchUpdated(getJdbcTemplate().batchUpdate(sql, argsArray), "Update end correction instant failed, rows updated: ");
+  }
+
+  /**
+   * Checks that each statement in a batch updated exactly one row.
+   *
+   * @param rowsUpdated  the update counts of the batch, not null
+   * @param message  the message of the exception, not null
+   */
+  private static void checkBatchUpdated(final int[] rowsUpdated, final String message) {
+    for (final int rows : rowsUpdated) {
+      if (rows != 1 && rows != Statement.SUCCESS_NO_INFO) {
+        throw new IncorrectUpdateSemanticsDataAccessException(message + rows);
+      }
+    }
+  }
+
   @Override
   public abstract D get(ObjectIdentifiable objectId, VersionCorrection versionCorrection);
 
@@ -0,0 +1,484 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.masterdb.historicaltimeseries;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import javax.time.Instant;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.timeseries.compressed.CompressedDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.DateTimeNumericEncoding;
+import com.opengamma.util.timeseries.fast.longint.FastLongDoubleTimeSeries;
+
+/**
+ * A block of stored data points, holding every version of every point in a date range.
+ * <p>
+ * Each entry is a point date, the version and correction instants it was stored at, and
+ * either a value or a marker that the point was removed. This is the same information as
+ * a row of {@code hts_point}, and the same rules select the visible value of each date:
+ * of the entries with version and correction instants at or before those requested, the
+ * one with the latest correction instant wins.
+ * <p>
+ * Entries are kept in order of date, then correction instant. Dates are held as epoch days
+ * and instants as epoch microseconds, the precision of the database timestamps.
+ * <p>
+ * The binary form stores the dates as deltas, the instants as indices into a sorted table
+ * of the distinct instants, and the values using {@link CompressedDoubleTimeSeries}.
+ * <p>
+ * This class is mutable and not thread-safe.
+ */
+public final class DataPointsBlock {
+
+  /**
+   * The version of the binary format.
+   */
+  private static final byte FORMAT_VERSION = 1;
+  /**
+   * The number of microseconds in a second.
+   */
+  private static final long MICROS_PER_SECOND = 1000000L;
+
+  /**
+   * The number of entries.
+   */
+  private int _size;
+  /**
+   * The point dates, as epoch days.
+   */
+  private int[] _dates;
+  /**
+   * The version instants, as epoch microseconds.
+   */
+  private long[] _versions;
+  /**
+   * The correction instants, as epoch microseconds.
+   */
+  private long[] _corrections;
+  /**
+   * The values, zero for removed entries.
+   */
+  private double[] _values;
+  /**
+   * Whether each entry marks a removed point.
+   */
+  private boolean[] _removed;
+
+  /**
+   * Creates an empty block.
+   */
+  public DataPointsBlock() {
+    this(16);
+  }
+
+  private DataPointsBlock(final int capacity) {
+    _dates = new int[capacity];
+    _versions = new long[capacity];
+    _corrections = new long[capacity];
+    _values = new double[capacity];
+    _removed = new boolean[capacity];
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Converts an instant to epoch microseconds, truncating any finer precision.
+   *
+   * @param instant  the instant, not null
+   * @return the epoch microseconds
+   */
+  public static long toEpochMicros(final Instant instant) {
+    return instant.getEpochSeconds() * MICROS_PER_SECOND + instant.getNanoOfSecond() / 1000;
+  }
+
+  /**
+   * Converts epoch microseconds to an instant.
+   *
+   * @param epochMicros  the epoch microseconds
+   * @return the instant, not null
+   */
+  public static Instant toInstant(final long epochMicros) {
+    long seconds = epochMicros / MICROS_PER_SECOND;
+    long micros = epochMicros % MICROS_PER_SECOND;
+    if (micros < 0) {
+      seconds--;
+      micros += MICROS_PER_SECOND;
+    }
+    return Instant.ofEpochSeconds(seconds, micros * 1000);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the number of entries.
+   *
+   * @return the number of entries
+   */
+  public int size() {
+    return _size;
+  }
+
+  /**
+   * Checks if the block has no entries.
+   *
+   * @return true if empty
+   */
+  public boolean isEmpty() {
+    return _size == 0;
+  }
+
+  /**
+   * Gets the latest version instant of any entry.
+   *
+   * @return the epoch microseconds, Long.MIN_VALUE if empty
+   */
+  public long getMaxVersion() {
+    long max = Long.MIN_VALUE;
+    for (int i = 0; i < _size; i++) {
+      max = Math.max(max, _versions[i]);
+    }
+    return max;
+  }
+
+  /**
+   * Gets the latest correction instant of any entry.
+   *
+   * @return the epoch microseconds, Long.MIN_VALUE if empty
+   */
+  public long getMaxCorrection() {
+    long max = Long.MIN_VALUE;
+    for (int i = 0; i < _size; i++) {
+      max = Math.max(max, _corrections[i]);
+    }
+    return max;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Adds an entry holding a value.
+   *
+   * @param date  the point date, as epoch days
+   * @param version  the version instant, as epoch microseconds
+   * @param correction  the correction instant, as epoch microseconds
+   * @param value  the value
+   */
+  public void addValue(final int date, final long version, final long correction, final double value) {
+    add(date, version, correction, value, false);
+  }
+
+  /**
+   * Adds an entry marking the point as removed.
+   *
+   * @param date  the point date, as epoch days
+   * @param version  the version instant, as epoch microseconds
+   * @param correction  the correction instant, as epoch microseconds
+   */
+  public void addRemoved(final int date, final long version, final long correction) {
+    add(date, version, correction, 0d, true);
+  }
+
+  private void add(final int date, final long version, final long correction, final double value, final boolean removed) {
+    if (_size == _dates.length) {
+      final int capacity = _size * 2;
+      _dates = Arrays.copyOf(_dates, capacity);
+      _versions = Arrays.copyOf(_versions, capacity);
+      _corrections = Arrays.copyOf(_corrections, capacity);
+      _values = Arrays.copyOf(_values, capacity);
+      _removed = Arrays.copyOf(_removed, capacity);
+    }
+    // entries are normally added in order, so search backwards for the insertion point
+    int index = _size;
+    while (index > 0 && (_dates[index - 1] > date || (_dates[index - 1] == date && _corrections[index - 1] > correction))) {
+      index--;
+    }
+    final int moved = _size - index;
+    if (moved > 0) {
+      System.arraycopy(_dates, index, _dates, index + 1, moved);
+      System.arraycopy(_versions, index, _versions, index + 1, moved);
+      System.arraycopy(_corrections, index, _corrections, index + 1, moved);
+      System.arraycopy(_values, index, _values, index + 1, moved);
+      System.arraycopy(_removed, index, _removed, index + 1, moved);
+    }
+    _dates[index] = date;
+    _versions[index] = version;
+    _corrections[index] = correction;
+    _values[index] = value;
+    _removed[index] = removed;
+    _size++;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the latest date of any entry.
+   * <p>
+   * Removed points are included, as they are when checking the rows of {@code hts_point}.
+   *
+   * @param versionAsOf  the version instant to view at, as epoch microseconds
+   * @param correctedTo  the correction instant to view at, as epoch microseconds
+   * @return the epoch day, Integer.MIN_VALUE if no entry is visible
+   */
+  public int getLatestDate(final long versionAsOf, final long correctedTo) {
+    for (int i = _size - 1; i >= 0; i--) {
+      if (_versions[i] <= versionAsOf && _corrections[i] <= correctedTo) {
+        return _dates[i];
+      }
+    }
+    return Integer.MIN_VALUE;
+  }
+
+  /**
+   * Gets the version instant a point was first stored at.
+   * <p>
+   * Corrections to a point keep the version instant of the original point.
+   *
+   * @param date  the point date, as epoch days
+   * @return the epoch microseconds, Long.MIN_VALUE if the point has never been stored
+   */
+  public long getOriginalVersion(final int date) {
+    long result = Long.MIN_VALUE;
+    for (int i = firstIndexOf(date); i < _size && _dates[i] == date; i++) {
+      if (_versions[i] == _corrections[i] && (result == Long.MIN_VALUE || _versions[i] < result)) {
+        result = _versions[i];
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Gets the distinct dates of all entries in a range, whatever their instants.
+   *
+   * @param startDate  the first date, inclusive, as epoch days
+   * @param endDate  the last date, inclusive, as epoch days
+   * @return the dates in order, not null
+   */
+  public int[] getDates(final int startDate, final int endDate) {
+    final int[] result = new int[_size];
+    int count = 0;
+    for (int i = firstIndexOf(startDate); i < _size && _dates[i] <= endDate; i++) {
+      if (count == 0 || result[count - 1] != _dates[i]) {
+        result[count++] = _dates[i];
+      }
+    }
+    return Arrays.copyOf(result, count);
+  }
+
+  /**
+   * Gets the latest version and correction instants of the entries visible at the given instants.
+   *
+   * @param versionAsOf  the version instant to view at, as epoch microseconds
+   * @param correctedTo  the correction instant to view at, as epoch microseconds
+   * @return the version and correction epoch microseconds, null if no entry is visible
+   */
+  public long[] getMaxInstants(final long versionAsOf, final long correctedTo) {
+    long maxVersion = Long.MIN_VALUE;
+    long maxCorrection = Long.MIN_VALUE;
+    for (int i = 0; i < _size; i++) {
+      if (_versions[i] <= versionAsOf && _corrections[i] <= correctedTo) {
+        maxVersion = Math.max(maxVersion, _versions[i]);
+        maxCorrection = Math.max(maxCorrection, _corrections[i]);
+      }
+    }
+    return (maxVersion == Long.MIN_VALUE ? null : new long[] {maxVersion, maxCorrection});
+  }
+
+  /**
+   * Selects the visible point of each date in a range.
+   * <p>
+   * For each date, the entry with the latest correction instant of those at or before the
+   * requested instants is selected. Dates where that entry marks a removal are omitted.
+   *
+   * @param versionAsOf  the version instant to view at, as epoch microseconds
+   * @param correctedTo  the correction instant to view at, as epoch microseconds
+   * @param startDate  the first date, inclusive, as epoch days
+   * @param endDate  the last date, inclusive, as epoch days
+   * @param dates  receives the dates, at least as long as the number of entries
+   * @param values  receives the values, at least as long as the number of entries
+   * @param offset  the index in the arrays of the first point
+   * @return the number of points selected
+   */
+  public int select(final long versionAsOf, final long correctedTo, final int startDate, final int endDate,
+      final int[] dates, final double[] values, final int offset) {
+    int count = 0;
+    int i = firstIndexOf(startDate);
+    while (i < _size && _dates[i] <= endDate) {
+      final int date = _dates[i];
+      int selected = -1;
+      for (; i < _size && _dates[i] == date; i++) {
+        if (_versions[i] <= versionAsOf && _corrections[i] <= correctedTo) {
+          selected = i;
+        }
+      }
+      if (selected >= 0 && _removed[selected] == false) {
+        dates[offset + count] = date;
+        values[offset + count] = _values[selected];
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private int firstIndexOf(final int date) {
+    int low = 0;
+    int high = _size;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (_dates[mid] < date) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Writes the block as bytes for the database.
+   *
+   * @return the bytes, not null
+   */
+  public byte[] toByteArray() {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(16 + _size * 6);
+    out.write(FORMAT_VERSION);
+    writeVarLong(out, _size);
+    // distinct instants
+    final long[] instants = new long[_size * 2];
+    System.arraycopy(_versions, 0, instants, 0, _size);
+    System.arraycopy(_corrections, 0, instants, _size, _size);
+    Arrays.sort(instants);
+    int instantCount = 0;
+    for (int i = 0; i < instants.length; i++) {
+      if (instantCount == 0 || instants[instantCount - 1] != instants[i]) {
+        instants[instantCount++] = instants[i];
+      }
+    }
+    writeVarLong(out, instantCount);
+    for (int i = 0; i < instantCount; i++) {
+      writeVarLong(out, (i == 0 ? zigZag(instants[0]) : instants[i] - instants[i - 1]));
+    }
+    // dates and instants of each entry, the version relative to the previous entry and the correction relative to the version
+    for (int i = 0, lastVersion = 0; i < _size; i++) {
+      final int version = Arrays.binarySearch(instants, 0, instantCount, _versions[i]);
+      final int correction = Arrays.binarySearch(instants, 0, instantCount, _corrections[i]);
+      writeVarLong(out, (i == 0 ? zigZag(_dates[0]) : _dates[i] - _dates[i - 1]));
+      writeVarLong(out, zigZag(version - lastVersion));
+      writeVarLong(out, zigZag(correction - version));
+      lastVersion = version;
+    }
+    // removed entries
+    int removedCount = 0;
+    for (int i = 0; i < _size; i++) {
+      if (_removed[i]) {
+        removedCount++;
+      }
+    }
+    writeVarLong(out, removedCount);
+    for (int i = 0, last = 0; i < _size; i++) {
+      if (_removed[i]) {
+        writeVarLong(out, i - last);
+        last = i;
+      }
+    }
+    // values, keyed by entry index
+    if (_size > 0) {
+      final long[] indices = new long[_size];
+      for (int i = 0; i < _size; i++) {
+        indices[i] = i;
+      }
+      final byte[] values = CompressedDoubleTimeSeries.of(
+          DateTimeNumericEncoding.DATE_EPOCH_DAYS, indices, Arrays.copyOf(_values, _size), _size).toByteArray();
+      writeVarLong(out, values.length);
+      out.write(values, 0, values.length);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Reads a block written by {@link #toByteArray}.
+   *
+   * @param bytes  the bytes, not null
+   * @return the block, not null
+   */
+  public static DataPointsBlock fromByteArray(final byte[] bytes) {
+    ArgumentChecker.notNull(bytes, "bytes");
+    try {
+      final ByteBuffer in = ByteBuffer.wrap(bytes);
+      final byte version = in.get();
+      if (version != FORMAT_VERSION) {
+        throw new OpenGammaRuntimeException("Unsupported data points block format " + version);
+      }
+      final int size = (int) readVarLong(in);
+      final DataPointsBlock block = new DataPointsBlock(Math.max(size, 1));
+      block._size = size;
+      final long[] instants = new long[(int) readVarLong(in)];
+      for (int i = 0; i < instants.length; i++) {
+        instants[i] = (i == 0 ? unZigZag(readVarLong(in)) : instants[i - 1] + readVarLong(in));
+      }
+      for (int i = 0, index = 0; i < size; i++) {
+        block._dates[i] = (int) (i == 0 ? unZigZag(readVarLong(in)) : block._dates[i - 1] + readVarLong(in));
+        index += (int) unZigZag(readVarLong(in));
+        block._versions[i] = instants[index];
+        block._corrections[i] = instants[index + (int) unZigZag(readVarLong(in))];
+      }
+      final int removedCount = (int) readVarLong(in);
+      for (int i = 0, index = 0; i < removedCount; i++) {
+        index += (int) readVarLong(in);
+        block._removed[index] = true;
+      }
+      if (size > 0) {
+        final byte[] values = new byte[(int) readVarLong(in)];
+        in.get(values);
+        final FastLongDoubleTimeSeries series = CompressedDoubleTimeSeries.fromByteArray(values).toFastLongDoubleTimeSeries();
+        System.arraycopy(series.valuesArrayFast(), 0, block._values, 0, size);
+      }
+      return block;
+    } catch (BufferUnderflowException ex) {
+      throw new OpenGammaRuntimeException("Truncated data points block", ex);
+    } catch (ArrayIndexOutOfBoundsException ex) {
+      throw new OpenGammaRuntimeException("Invalid data points block", ex);
+    } catch (IllegalArgumentException ex) {
+      // the compressed values are invalid
+      throw new OpenGammaRuntimeException("Invalid data points block", ex);
+    }
+  }
+
+  private static long zigZag(final long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unZigZag(final long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static void writeVarLong(final ByteArrayOutputStream out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  private static long readVarLong(final ByteBuffer in) {
+    long result = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      final byte b = in.get();
+      result |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return result;
+      }
+    }
+    throw new OpenGammaRuntimeException("Invalid data points block");
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public String toString() {
+    return "DataPointsBlock[size=" + _size + "]";
+  }
+
+}
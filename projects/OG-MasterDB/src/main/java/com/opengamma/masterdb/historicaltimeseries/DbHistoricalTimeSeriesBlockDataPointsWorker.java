@@ -0,0 +1,546 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.masterdb.historicaltimeseries;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.time.Instant;
+import javax.time.calendar.LocalDate;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.support.SqlLobValue;
+
+import com.opengamma.DataNotFoundException;
+import com.opengamma.id.ObjectIdentifiable;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesGetFilter;
+import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeries;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.db.DbDateUtils;
+import com.opengamma.util.db.DbMapSqlParameterSource;
+import com.opengamma.util.timeseries.localdate.ArrayLocalDateDoubleTimeSeries;
+import com.opengamma.util.timeseries.localdate.LocalDateDoubleTimeSeries;
+
+/**
+ * A worker that stores the data points of the time-series master in compressed yearly blocks.
+ * <p>
+ * Each row of {@code hts_point_block} holds every stored version of the data points of one
+ * time-series in one calendar year, encoded by {@link DataPointsBlock}. Reading a series
+ * decodes one row per year rather than one row per point. The version-correction rules are
+ * the same as those applied to the rows of {@code hts_point}, but are resolved after decoding.
+ * <p>
+ * Changes rewrite the blocks of the years they touch. The entry count of a block is checked
+ * when it is rewritten, and a concurrent change causes the transaction to be retried.
+ * <p>
+ * This class is mutable but must be treated as immutable after configuration.
+ */
+public class DbHistoricalTimeSeriesBlockDataPointsWorker extends DbHistoricalTimeSeriesDataPointsWorker {
+
+  /**
+   * Creates an instance.
+   *
+   * @param master  the database master, not null
+   */
+  public DbHistoricalTimeSeriesBlockDataPointsWorker(final DbHistoricalTimeSeriesMaster master) {
+    super(master);
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public ManageableHistoricalTimeSeries getTimeSeries(ObjectIdentifiable objectId, VersionCorrection versionCorrection, HistoricalTimeSeriesGetFilter filter) {
+    final long oid = extractOid(objectId);
+    final VersionCorrection vc = versionCorrection.withLatestFixed(now());
+    final List<Long> docOids = Collections.singletonList(oid);
+
+    // Get version metadata from the blocks, falling back to the document if there are no visible data points
+    final long[] instants = selectMaxInstants(docOids, vc).get(oid);
+    if (instants == null) {
+      final Map<Long, ManageableHistoricalTimeSeries> existing = new HashMap<Long, ManageableHistoricalTimeSeries>();
+      selectExistentials(docOids, vc, existing);
+      if (existing.isEmpty()) {
+        throw new DataNotFoundException("Unable to find time-series: " + objectId);
+      }
+      return existing.get(oid);
+    }
+    final ManageableHistoricalTimeSeries result = createManageableTimeSeries(
+        oid, DataPointsBlock.toInstant(instants[0]), DataPointsBlock.toInstant(instants[1]));
+
+    // Read blocks from the start or the end of the range until enough points are found
+    final Integer maxPoints = filter.getMaxPoints();
+    if ((maxPoints != null && maxPoints == 0) || isRangeEmpty(filter.getEarliestDate(), filter.getLatestDate())) {
+      result.setTimeSeries(new ArrayLocalDateDoubleTimeSeries());
+      return result;
+    }
+    final DbMapSqlParameterSource args = createBlockArgs(docOids, filter.getEarliestDate(), filter.getLatestDate(),
+        (maxPoints == null || maxPoints > 0) ? "ASC" : "DESC");
+    final String sql = getElSqlBundle().getSql("SelectDataPointBlocks", args);
+    final DataPointBlocksExtractor extractor = new DataPointBlocksExtractor(
+        vc, filter.getEarliestDate(), filter.getLatestDate(), (maxPoints != null ? maxPoints : 0));
+    result.setTimeSeries(getNamedJdbc().query(sql, args, extractor));
+    return result;
+  }
+
+  @Override
+  protected Map<Long, ManageableHistoricalTimeSeries> selectTimeSeries(final List<Long> docOids, final VersionCorrection vc,
+      final LocalDate fromDateInclusive, final LocalDate toDateInclusive) {
+    final Map<Long, ManageableHistoricalTimeSeries> result = new HashMap<Long, ManageableHistoricalTimeSeries>();
+    for (Entry<Long, long[]> entry : selectMaxInstants(docOids, vc).entrySet()) {
+      result.put(entry.getKey(), createManageableTimeSeries(
+          entry.getKey(), DataPointsBlock.toInstant(entry.getValue()[0]), DataPointsBlock.toInstant(entry.getValue()[1])));
+    }
+    if (result.isEmpty() == false && isRangeEmpty(fromDateInclusive, toDateInclusive) == false) {
+      final DbMapSqlParameterSource args = createBlockArgs(new ArrayList<Long>(result.keySet()), fromDateInclusive, toDateInclusive, "ASC");
+      final String sql = getElSqlBundle().getSql("SelectDataPointBlocks", args);
+      final Map<Long, LocalDateDoubleTimeSeries> points = getNamedJdbc().query(sql, args,
+          new DataPointBlocksMapExtractor(vc, fromDateInclusive, toDateInclusive));
+      for (Entry<Long, ManageableHistoricalTimeSeries> entry : result.entrySet()) {
+        final LocalDateDoubleTimeSeries series = points.get(entry.getKey());
+        entry.getValue().setTimeSeries(series != null ? series : new ArrayLocalDateDoubleTimeSeries());
+      }
+    }
+    selectExistentials(docOids, vc, result);
+    return result;
+  }
+
+  /**
+   * Selects the latest version and correction instants of the visible data points of each time-series.
+   * <p>
+   * The instants stored with each block are used where the whole block is visible.
+   * Otherwise, all the blocks of the time-series are decoded.
+   *
+   * @param docOids  the object row ids, not null
+   * @param vc  the version-correction with the latest fixed, not null
+   * @return the version and correction epoch microseconds keyed by object row id, not null
+   */
+  protected Map<Long, long[]> selectMaxInstants(final List<Long> docOids, final VersionCorrection vc) {
+    final long versionAsOf = DataPointsBlock.toEpochMicros(vc.getVersionAsOf());
+    final long correctedTo = DataPointsBlock.toEpochMicros(vc.getCorrectedTo());
+    final Map<Long, long[]> result = new HashMap<Long, long[]>();
+    final Set<Long> partial = new HashSet<Long>();
+    final DbMapSqlParameterSource args = new DbMapSqlParameterSource().addValue("doc_oids", docOids);
+    final String sqlInstants = getElSqlBundle().getSql("SelectDataPointBlockInstants", args);
+    getNamedJdbc().query(sqlInstants, args, new ResultSetExtractor<Void>() {
+      @Override
+      public Void extractData(final ResultSet rs) throws SQLException, DataAccessException {
+        while (rs.next()) {
+          final long docOid = rs.getLong("DOC_OID");
+          final long version = DataPointsBlock.toEpochMicros(DbDateUtils.fromSqlTimestamp(rs.getTimestamp("MAX_VER_INSTANT")));
+          final long correction = DataPointsBlock.toEpochMicros(DbDateUtils.fromSqlTimestamp(rs.getTimestamp("MAX_CORR_INSTANT")));
+          if (version <= versionAsOf && correction <= correctedTo) {
+            mergeMaxInstants(result, docOid, new long[] {version, correction});
+          } else {
+            partial.add(docOid);
+          }
+        }
+        return null;
+      }
+    });
+    if (partial.isEmpty() == false) {
+      final DbMapSqlParameterSource blockArgs = createBlockArgs(new ArrayList<Long>(partial), null, null, "ASC");
+      final String sqlBlocks = getElSqlBundle().getSql("SelectDataPointBlocks", blockArgs);
+      getNamedJdbc().query(sqlBlocks, blockArgs, new ResultSetExtractor<Void>() {
+        @Override
+        public Void extractData(final ResultSet rs) throws SQLException, DataAccessException {
+          while (rs.next()) {
+            final long[] instants = readBlock(rs).getMaxInstants(versionAsOf, correctedTo);
+            if (instants != null) {
+              mergeMaxInstants(result, rs.getLong("DOC_OID"), instants);
+            }
+          }
+          return null;
+        }
+      });
+    }
+    return result;
+  }
+
+  private static void mergeMaxInstants(final Map<Long, long[]> result, final long docOid, final long[] instants) {
+    final long[] existing = result.get(docOid);
+    if (existing == null) {
+      result.put(docOid, instants);
+    } else {
+      existing[0] = Math.max(existing[0], instants[0]);
+      existing[1] = Math.max(existing[1], instants[1]);
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  protected LocalDate selectMaxPointDate(final UniqueId uniqueId) {
+    final long docOid = extractOid(uniqueId);
+    final VersionCorrection vc = getMaster().extractTimeSeriesInstants(uniqueId);
+    final long versionAsOf = DataPointsBlock.toEpochMicros(vc.getVersionAsOf());
+    final long correctedTo = DataPointsBlock.toEpochMicros(vc.getCorrectedTo());
+    final DbMapSqlParameterSource args = createBlockArgs(Collections.singletonList(docOid), null, null, "DESC");
+    final String sql = getElSqlBundle().getSql("SelectDataPointBlocks", args);
+    final Integer result = getNamedJdbc().query(sql, args, new ResultSetExtractor<Integer>() {
+      @Override
+      public Integer extractData(final ResultSet rs) throws SQLException, DataAccessException {
+        while (rs.next()) {
+          final int date = readBlock(rs).getLatestDate(versionAsOf, correctedTo);
+          if (date != Integer.MIN_VALUE) {
+            return date;
+          }
+        }
+        return null;
+      }
+    });
+    return (result != null ? LocalDate.ofEpochDays(result) : null);
+  }
+
+  @Override
+  protected UniqueId insertDataPoints(final UniqueId uniqueId, final LocalDateDoubleTimeSeries series, final Instant now) {
+    final long docOid = extractOid(uniqueId);
+    final long nowMicros = DataPointsBlock.toEpochMicros(now);
+    final Map<LocalDate, StoredBlock> blocks = selectBlocks(docOid, series.getEarliestTime(), series.getLatestTime());
+    for (Entry<LocalDate, Double> entry : series) {
+      LocalDate date = entry.getKey();
+      Double value = entry.getValue();
+      if (date == null || value == null) {
+        throw new IllegalArgumentException("Time-series must not contain a null value");
+      }
+      getBlockForUpdate(blocks, date).addValue((int) date.toEpochDays(), nowMicros, nowMicros, value);
+    }
+    storeBlocks(docOid, blocks.values());
+    return createTimeSeriesUniqueId(docOid, now, now);
+  }
+
+  @Override
+  protected UniqueId correctDataPoints(UniqueId uniqueId, LocalDateDoubleTimeSeries series, Instant now) {
+    final long docOid = extractOid(uniqueId);
+    final long nowMicros = DataPointsBlock.toEpochMicros(now);
+    final Map<LocalDate, StoredBlock> blocks = selectBlocks(docOid, series.getEarliestTime(), series.getLatestTime());
+    for (Entry<LocalDate, Double> entry : series) {
+      LocalDate date = entry.getKey();
+      Double value = entry.getValue();
+      if (date == null || value == null) {
+        throw new IllegalArgumentException("Time-series must not contain a null value");
+      }
+      // a correction keeps the version instant of the original point
+      final DataPointsBlock block = getBlockForUpdate(blocks, date);
+      final int day = (int) date.toEpochDays();
+      final long original = block.getOriginalVersion(day);
+      block.addValue(day, (original != Long.MIN_VALUE ? original : nowMicros), nowMicros, value);
+    }
+    storeBlocks(docOid, blocks.values());
+    return resolveObjectId(uniqueId, VersionCorrection.of(now, now));
+  }
+
+  @Override
+  protected UniqueId removeDataPoints(UniqueId uniqueId, LocalDate fromDateInclusive, LocalDate toDateInclusive, Instant now) {
+    final long docOid = extractOid(uniqueId);
+    final long nowMicros = DataPointsBlock.toEpochMicros(now);
+    final int startDate = toEpochDaysNullFarPast(fromDateInclusive);
+    final int endDate = toEpochDaysNullFarFuture(toDateInclusive);
+    final Map<LocalDate, StoredBlock> blocks = selectBlocks(docOid, fromDateInclusive, toDateInclusive);
+    for (StoredBlock stored : blocks.values()) {
+      final DataPointsBlock block = stored.getBlock();
+      for (int date : block.getDates(startDate, endDate)) {
+        final long original = block.getOriginalVersion(date);
+        block.addRemoved(date, (original != Long.MIN_VALUE ? original : nowMicros), nowMicros);
+        stored.setChanged();
+      }
+    }
+    storeBlocks(docOid, blocks.values());
+    return resolveObjectId(uniqueId, VersionCorrection.of(now, now));
+  }
+
+  /**
+   * Selects the stored blocks of a time-series that overlap a date range.
+   *
+   * @param docOid  the object row id
+   * @param fromDateInclusive  the start date, null means far past
+   * @param toDateInclusive  the end date, null means far future
+   * @return the blocks keyed by start date, not null
+   */
+  protected Map<LocalDate, StoredBlock> selectBlocks(final long docOid, final LocalDate fromDateInclusive, final LocalDate toDateInclusive) {
+    final DbMapSqlParameterSource args = createBlockArgs(Collections.singletonList(docOid), fromDateInclusive, toDateInclusive, "ASC");
+    final String sql = getElSqlBundle().getSql("SelectDataPointBlocks", args);
+    return getNamedJdbc().query(sql, args, new ResultSetExtractor<Map<LocalDate, StoredBlock>>() {
+      @Override
+      public Map<LocalDate, StoredBlock> extractData(final ResultSet rs) throws SQLException, DataAccessException {
+        final Map<LocalDate, StoredBlock> result = new TreeMap<LocalDate, StoredBlock>();
+        while (rs.next()) {
+          final LocalDate start = DbDateUtils.fromSqlDateAllowNull(rs.getDate("BLOCK_START"));
+          result.put(start, new StoredBlock(start, readBlock(rs), rs.getInt("ENTRY_COUNT")));
+        }
+        return result;
+      }
+    });
+  }
+
+  /**
+   * Gets the block holding a date, creating it if necessary, and marks it as changed.
+   *
+   * @param blocks  the blocks keyed by start date, not null
+   * @param date  the point date, not null
+   * @return the block, not null
+   */
+  private static DataPointsBlock getBlockForUpdate(final Map<LocalDate, StoredBlock> blocks, final LocalDate date) {
+    final LocalDate start = LocalDate.of(date.getYear(), 1, 1);
+    StoredBlock stored = blocks.get(start);
+    if (stored == null) {
+      stored = new StoredBlock(start, new DataPointsBlock(), -1);
+      blocks.put(start, stored);
+    }
+    stored.setChanged();
+    return stored.getBlock();
+  }
+
+  /**
+   * Stores the changed blocks of a time-series.
+   *
+   * @param docOid  the object row id
+   * @param blocks  the blocks, not null
+   * @throws DataIntegrityViolationException if a block was changed concurrently, so that the transaction is retried
+   */
+  protected void storeBlocks(final long docOid, final Collection<StoredBlock> blocks) {
+    final List<DbMapSqlParameterSource> insertList = new ArrayList<DbMapSqlParameterSource>();
+    final List<DbMapSqlParameterSource> updateList = new ArrayList<DbMapSqlParameterSource>();
+    for (StoredBlock stored : blocks) {
+      if (stored.isChanged() == false) {
+        continue;
+      }
+      final DataPointsBlock block = stored.getBlock();
+      final DbMapSqlParameterSource args = new DbMapSqlParameterSource()
+        .addValue("doc_oid", docOid)
+        .addDate("block_start", stored.getStart())
+        .addDate("block_end", stored.getStart().plusYears(1).minusDays(1))
+        .addValue("entry_count", block.size())
+        .addTimestamp("max_ver_instant", DataPointsBlock.toInstant(block.getMaxVersion()))
+        .addTimestamp("max_corr_instant", DataPointsBlock.toInstant(block.getMaxCorrection()))
+        .addValue("point_data", new SqlLobValue(block.toByteArray(), getDialect().getLobHandler()), Types.BLOB);
+      if (stored.getStoredCount() < 0) {
+        insertList.add(args);
+      } else {
+        args.addValue("old_entry_count", stored.getStoredCount());
+        updateList.add(args);
+      }
+    }
+    if (insertList.size() > 0) {
+      final String sqlInsert = getElSqlBundle().getSql("InsertDataPointBlock");
+      getJdbcTemplate().batchUpdate(sqlInsert, insertList.toArray(new DbMapSqlParameterSource[insertList.size()]));
+    }
+    if (updateList.size() > 0) {
+      final String sqlUpdate = getElSqlBundle().getSql("UpdateDataPointBlock");
+      final int[] counts = getJdbcTemplate().batchUpdate(sqlUpdate, updateList.toArray(new DbMapSqlParameterSource[updateList.size()]));
+      for (int count : counts) {
+        if (count == 0) {
+          throw new DataIntegrityViolationException("Concurrent modification of data points of time-series " + docOid);
+        }
+      }
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  protected UniqueId resolveObjectId(ObjectIdentifiable objectId, VersionCorrection versionCorrection) {
+    ArgumentChecker.notNull(objectId, "objectId");
+    ArgumentChecker.notNull(versionCorrection, "versionCorrection");
+    checkScheme(objectId);
+    final long oid = extractOid(objectId);
+    final VersionCorrection vc = versionCorrection.withLatestFixed(now());
+    final List<Long> docOids = Collections.singletonList(oid);
+    final Map<Long, ManageableHistoricalTimeSeries> existing = new HashMap<Long, ManageableHistoricalTimeSeries>();
+    selectExistentials(docOids, vc, existing);
+    if (existing.isEmpty()) {
+      throw new DataNotFoundException("Unable to find time-series: " + objectId.getObjectId());
+    }
+    final long[] instants = selectMaxInstants(docOids, vc).get(oid);
+    if (instants == null) {
+      return existing.get(oid).getUniqueId();
+    }
+    return createTimeSeriesUniqueId(oid, DataPointsBlock.toInstant(instants[0]), DataPointsBlock.toInstant(instants[1]));
+  }
+
+  //-------------------------------------------------------------------------
+  private NamedParameterJdbcOperations getNamedJdbc() {
+    return getDbConnector().getJdbcTemplate().getNamedParameterJdbcOperations();
+  }
+
+  private DbMapSqlParameterSource createBlockArgs(final List<Long> docOids, final LocalDate fromDateInclusive, final LocalDate toDateInclusive,
+      final String order) {
+    return new DbMapSqlParameterSource()
+      .addValue("doc_oids", docOids)
+      .addValue("start_date", DbDateUtils.toSqlDateNullFarPast(fromDateInclusive))
+      .addValue("end_date", DbDateUtils.toSqlDateNullFarFuture(toDateInclusive))
+      .addValue("order", order);
+  }
+
+  private DataPointsBlock readBlock(final ResultSet rs) throws SQLException {
+    return DataPointsBlock.fromByteArray(getDialect().getLobHandler().getBlobAsBytes(rs, "POINT_DATA"));
+  }
+
+  private static int toEpochDaysNullFarPast(final LocalDate date) {
+    return (date != null ? (int) date.toEpochDays() : Integer.MIN_VALUE);
+  }
+
+  private static int toEpochDaysNullFarFuture(final LocalDate date) {
+    return (date != null ? (int) date.toEpochDays() : Integer.MAX_VALUE);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * A block read from the database for update.
+   */
+  protected static final class StoredBlock {
+    private final LocalDate _start;
+    private final DataPointsBlock _block;
+    private final int _storedCount;
+    private boolean _changed;
+    StoredBlock(final LocalDate start, final DataPointsBlock block, final int storedCount) {
+      _start = start;
+      _block = block;
+      _storedCount = storedCount;
+    }
+    LocalDate getStart() {
+      return _start;
+    }
+    DataPointsBlock getBlock() {
+      return _block;
+    }
+    int getStoredCount() {
+      return _storedCount;
+    }
+    boolean isChanged() {
+      return _changed;
+    }
+    void setChanged() {
+      _changed = true;
+    }
+  }
+
+  /**
+   * The points selected from a sequence of blocks.
+   */
+  private static final class SelectedPoints {
+    private final List<int[]> _dates = new ArrayList<int[]>();
+    private final List<double[]> _values = new ArrayList<double[]>();
+    private int _size;
+    void add(final DataPointsBlock block, final long versionAsOf, final long correctedTo, final int startDate, final int endDate) {
+      final int[] dates = new int[block.size()];
+      final double[] values = new double[block.size()];
+      final int count = block.select(versionAsOf, correctedTo, startDate, endDate, dates, values, 0);
+      if (count > 0) {
+        _dates.add(count == dates.length ? dates : Arrays.copyOf(dates, count));
+        _values.add(count == values.length ? values : Arrays.copyOf(values, count));
+        _size += count;
+      }
+    }
+    int size() {
+      return _size;
+    }
+    LocalDateDoubleTimeSeries toTimeSeries(final boolean reversed, final int from, final int to) {
+      if (reversed) {
+        Collections.reverse(_dates);
+        Collections.reverse(_values);
+      }
+      final int[] dates = new int[_size];
+      final double[] values = new double[_size];
+      int offset = 0;
+      for (int i = 0; i < _dates.size(); i++) {
+        System.arraycopy(_dates.get(i), 0, dates, offset, _dates.get(i).length);
+        System.arraycopy(_values.get(i), 0, values, offset, _values.get(i).length);
+        offset += _dates.get(i).length;
+      }
+      final int size = to - from;
+      System.arraycopy(dates, from, dates, 0, size);
+      System.arraycopy(values, from, values, 0, size);
+      return createTimeSeries(dates, values, size);
+    }
+  }
+
+  /**
+   * Mapper from SQL rows of blocks of one time-series to a LocalDateDoubleTimeSeries.
+   * Reading stops once the maximum number of points has been found.
+   */
+  protected final class DataPointBlocksExtractor implements ResultSetExtractor<LocalDateDoubleTimeSeries> {
+    private final long _versionAsOf;
+    private final long _correctedTo;
+    private final int _startDate;
+    private final int _endDate;
+    private final int _maxPoints;
+    public DataPointBlocksExtractor(final VersionCorrection vc, final LocalDate fromDateInclusive, final LocalDate toDateInclusive, final int maxPoints) {
+      _versionAsOf = DataPointsBlock.toEpochMicros(vc.getVersionAsOf());
+      _correctedTo = DataPointsBlock.toEpochMicros(vc.getCorrectedTo());
+      _startDate = toEpochDaysNullFarPast(fromDateInclusive);
+      _endDate = toEpochDaysNullFarFuture(toDateInclusive);
+      _maxPoints = maxPoints;
+    }
+    @Override
+    public LocalDateDoubleTimeSeries extractData(final ResultSet rs) throws SQLException, DataAccessException {
+      final int limit = Math.abs(_maxPoints);
+      final SelectedPoints points = new SelectedPoints();
+      while (rs.next()) {
+        points.add(readBlock(rs), _versionAsOf, _correctedTo, _startDate, _endDate);
+        if (limit > 0 && points.size() >= limit) {
+          break;
+        }
+      }
+      final int size = points.size();
+      if (limit == 0 || size <= limit) {
+        return points.toTimeSeries(_maxPoints < 0, 0, size);
+      }
+      // return the first or last few points
+      return (_maxPoints > 0 ? points.toTimeSeries(false, 0, limit) : points.toTimeSeries(true, size - limit, size));
+    }
+  }
+
+  /**
+   * Mapper from SQL rows of blocks of many time-series to a LocalDateDoubleTimeSeries for each object row id.
+   */
+  protected final class DataPointBlocksMapExtractor implements ResultSetExtractor<Map<Long, LocalDateDoubleTimeSeries>> {
+    private final long _versionAsOf;
+    private final long _correctedTo;
+    private final int _startDate;
+    private final int _endDate;
+    public DataPointBlocksMapExtractor(final VersionCorrection vc, final LocalDate fromDateInclusive, final LocalDate toDateInclusive) {
+      _versionAsOf = DataPointsBlock.toEpochMicros(vc.getVersionAsOf());
+      _correctedTo = DataPointsBlock.toEpochMicros(vc.getCorrectedTo());
+      _startDate = toEpochDaysNullFarPast(fromDateInclusive);
+      _endDate = toEpochDaysNullFarFuture(toDateInclusive);
+    }
+    @Override
+    public Map<Long, LocalDateDoubleTimeSeries> extractData(final ResultSet rs) throws SQLException, DataAccessException {
+      final Map<Long, LocalDateDoubleTimeSeries> result = new HashMap<Long, LocalDateDoubleTimeSeries>();
+      SelectedPoints points = null;
+      long lastOid = -1;
+      while (rs.next()) {
+        final long docOid = rs.getLong("DOC_OID");
+        if (docOid != lastOid) {
+          if (points != null) {
+            result.put(lastOid, points.toTimeSeries(false, 0, points.size()));
+          }
+          points = new SelectedPoints();
+          lastOid = docOid;
+        }
+        points.add(readBlock(rs), _versionAsOf, _correctedTo, _startDate, _endDate);
+      }
+      if (points != null) {
+        result.put(lastOid, points.toTimeSeries(false, 0, points.size()));
+      }
+      return result;
+    }
+  }
+
+}
@@ -11,6 +11,10 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -31,6 +35,7 @@ import com.opengamma.DataNotFoundException;
 import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.core.change.ChangeType;
 import com.opengamma.elsql.ElSqlBundle;
+import com.opengamma.id.ObjectId;
 import com.opengamma.id.ObjectIdentifiable;
 import com.opengamma.id.UniqueId;
 import com.opengamma.id.VersionCorrection;
@@ -41,6 +46,8 @@ import com.opengamma.masterdb.AbstractDbMaster;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.db.DbDateUtils;
 import com.opengamma.util.db.DbMapSqlParameterSource;
+import com.opengamma.util.timeseries.fast.DateTimeNumericEncoding;
+import com.opengamma.util.timeseries.fast.integer.FastArrayIntDoubleTimeSeries;
 import com.opengamma.util.timeseries.localdate.ArrayLocalDateDoubleTimeSeries;
 import com.opengamma.util.timeseries.localdate.LocalDateDoubleTimeSeries;
 import com.opengamma.util.tuple.Pair;
@@ -67,6 +74,10 @@ public class DbHistoricalTimeSeriesDataPointsWorker extends AbstractDbMaster {
    * The prefix used for data point unique identifiers.
    */
   protected static final String DATA_POINT_PREFIX = "DP";
+  /**
+   * The maximum number of time-series read by one query.
+   */
+  protected static final int BULK_QUERY_SIZE = 1000;
 
   /**
    * The master.
@@ -165,6 +176,120 @@ public class DbHistoricalTimeSeriesDataPointsWorker extends AbstractDbMaster {
     }
     return result;
   }
+
+  /**
+   * Gets the data points of many time-series in a date range.
+   * <p>
+   * The series are read in batches of {@link #BULK_QUERY_SIZE}, each by a single query for
+   * the data points. Series that do not exist at the version-correction are omitted.
+   * 
+   * @param objectIds  the time-series object identifiers, not null
+   * @param versionCorrection  the version-correction locator to search at, not null
+   * @param fromDateInclusive  the start date, null means far past
+   * @param toDateInclusive  the end date, null means far future
+   * @return the time-series keyed by object identifier, not null
+   */
+  public Map<ObjectId, ManageableHistoricalTimeSeries> getTimeSeries(final Collection<? extends ObjectIdentifiable> objectIds,
+      final VersionCorrection versionCorrection, final LocalDate fromDateInclusive, final LocalDate toDateInclusive) {
+    ArgumentChecker.noNulls(objectIds, "objectIds");
+    ArgumentChecker.notNull(versionCorrection, "versionCorrection");
+    s_logger.debug("get time-series data points for {} series", objectIds.size());
+    
+    final VersionCorrection vc = versionCorrection.withLatestFixed(now());
+    final Map<Long, ObjectId> oids = new LinkedHashMap<Long, ObjectId>();
+    for (ObjectIdentifiable objectId : objectIds) {
+      checkScheme(objectId);
+      oids.put(extractOid(objectId), objectId.getObjectId());
+    }
+    final List<Long> oidList = new ArrayList<Long>(oids.keySet());
+    final Map<ObjectId, ManageableHistoricalTimeSeries> result = new HashMap<ObjectId, ManageableHistoricalTimeSeries>();
+    for (int i = 0; i < oidList.size(); i += BULK_QUERY_SIZE) {
+      final List<Long> docOids = oidList.subList(i, Math.min(oidList.size(), i + BULK_QUERY_SIZE));
+      final Map<Long, ManageableHistoricalTimeSeries> found = selectTimeSeries(docOids, vc, fromDateInclusive, toDateInclusive);
+      for (Entry<Long, ManageableHistoricalTimeSeries> entry : found.entrySet()) {
+        result.put(oids.get(entry.getKey()), entry.getValue());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Selects the data points of a batch of time-series in a date range.
+   * 
+   * @param docOids  the object row ids, not empty, not null
+   * @param vc  the version-correction with the latest fixed, not null
+   * @param fromDateInclusive  the start date, null means far past
+   * @param toDateInclusive  the end date, null means far future
+   * @return the time-series keyed by object row id, not null
+   */
+  protected Map<Long, ManageableHistoricalTimeSeries> selectTimeSeries(final List<Long> docOids, final VersionCorrection vc,
+      final LocalDate fromDateInclusive, final LocalDate toDateInclusive) {
+    final DbMapSqlParameterSource args = new DbMapSqlParameterSource()
+      .addValue("doc_oids", docOids)
+      .addTimestamp("version_as_of_instant", vc.getVersionAsOf())
+      .addTimestamp("corrected_to_instant", vc.getCorrectedTo())
+      .addValue("start_date", DbDateUtils.toSqlDateNullFarPast(fromDateInclusive))
+      .addValue("end_date", DbDateUtils.toSqlDateNullFarFuture(toDateInclusive));
+    final NamedParameterJdbcOperations namedJdbc = getDbConnector().getJdbcTemplate().getNamedParameterJdbcOperations();
+    final String sqlVersions = getElSqlBundle().getSql("SelectDataPointsVersions", args);
+    final Map<Long, ManageableHistoricalTimeSeries> result = namedJdbc.query(sqlVersions, args, new ManageableHTSMapExtractor());
+    if (result.isEmpty() == false && isRangeEmpty(fromDateInclusive, toDateInclusive) == false) {
+      final String sqlPoints = getElSqlBundle().getSql("SelectDataPointsMultiple", args);
+      final Map<Long, LocalDateDoubleTimeSeries> points = namedJdbc.query(sqlPoints, args, new DataPointsMapExtractor());
+      for (Entry<Long, ManageableHistoricalTimeSeries> entry : result.entrySet()) {
+        final LocalDateDoubleTimeSeries series = points.get(entry.getKey());
+        entry.getValue().setTimeSeries(series != null ? series : new ArrayLocalDateDoubleTimeSeries());
+      }
+    }
+    selectExistentials(docOids, vc, result);
+    return result;
+  }
+
+  /**
+   * Completes the time-series of a batch with empty data points where none were selected.
+   * <p>
+   * Time-series with no visible data points are added if the document exists at the
+   * version-correction, as is done when getting a single time-series.
+   * 
+   * @param docOids  the object row ids, not null
+   * @param vc  the version-correction with the latest fixed, not null
+   * @param result  the time-series found so far, updated with the empty series, not null
+   */
+  protected void selectExistentials(final List<Long> docOids, final VersionCorrection vc, final Map<Long, ManageableHistoricalTimeSeries> result) {
+    final List<Long> missing = new ArrayList<Long>();
+    for (Long docOid : docOids) {
+      final ManageableHistoricalTimeSeries series = result.get(docOid);
+      if (series == null) {
+        missing.add(docOid);
+      } else if (series.getTimeSeries() == null) {
+        series.setTimeSeries(new ArrayLocalDateDoubleTimeSeries());
+      }
+    }
+    if (missing.isEmpty()) {
+      return;
+    }
+    final DbMapSqlParameterSource args = new DbMapSqlParameterSource()
+      .addValue("doc_oids", missing)
+      .addTimestamp("version_as_of_instant", vc.getVersionAsOf())
+      .addTimestamp("corrected_to_instant", vc.getCorrectedTo());
+    final NamedParameterJdbcOperations namedJdbc = getDbConnector().getJdbcTemplate().getNamedParameterJdbcOperations();
+    final String sql = getElSqlBundle().getSql("SelectExistentials", args);
+    for (Entry<Long, ManageableHistoricalTimeSeries> entry : namedJdbc.query(sql, args, new ManageableHTSMapExtractor()).entrySet()) {
+      entry.getValue().setTimeSeries(new ArrayLocalDateDoubleTimeSeries());
+      result.put(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Checks if a date range contains no dates.
+   * 
+   * @param fromDateInclusive  the start date, null means far past
+   * @param toDateInclusive  the end date, null means far future
+   * @return true if the end is before the start
+   */
+  protected static boolean isRangeEmpty(final LocalDate fromDateInclusive, final LocalDate toDateInclusive) {
+    return fromDateInclusive != null && toDateInclusive != null && toDateInclusive.isBefore(fromDateInclusive);
+  }
     
   //-------------------------------------------------------------------------
   public UniqueId updateTimeSeriesDataPoints(final ObjectIdentifiable objectId, final LocalDateDoubleTimeSeries series) {
@@ -195,6 +320,23 @@ public class DbHistoricalTimeSeriesDataPointsWorker extends AbstractDbMaster {
    * @param series  the time-series data points, not empty, not null
    */
   protected void insertDataPointsCheckMaxDate(final UniqueId uniqueId, final LocalDateDoubleTimeSeries series) {
+    final LocalDate maxDate = selectMaxPointDate(uniqueId);
+    if (maxDate != null) {
+      if (series.getTimeAt(0).isAfter(maxDate) == false) {
+        throw new IllegalArgumentException("Unable to update data points of time-series " + uniqueId +
+            " as the update starts at " + series.getTimeAt(0) +
+            " which is before the latest data point in the database at " + maxDate);
+      }
+    }
+  }
+
+  /**
+   * Selects the latest date of any data point, including removed points.
+   * 
+   * @param uniqueId  the unique identifier, not null
+   * @return the date, null if no data points
+   */
+  protected LocalDate selectMaxPointDate(final UniqueId uniqueId) {
     final Long docOid = extractOid(uniqueId);
     final VersionCorrection vc = getMaster().extractTimeSeriesInstants(uniqueId);
     final DbMapSqlParameterSource queryArgs = new DbMapSqlParameterSource()
@@ -202,15 +344,8 @@ public class DbHistoricalTimeSeriesDataPointsWorker extends AbstractDbMaster {
       .addTimestamp("ver_instant", vc.getVersionAsOf())
       .addTimestamp("corr_instant", vc.getCorrectedTo());
     final String sql = getElSqlBundle().getSql("SelectMaxPointDate", queryArgs);
-    Date result = getDbConnector().getJdbcTemplate().queryForObject(sql, Date.class, queryArgs);
-    if (result != null) {
-      LocalDate maxDate = DbDateUtils.fromSqlDateAllowNull(result);
-      if (series.getTimeAt(0).isAfter(maxDate) == false) {
-        throw new IllegalArgumentException("Unable to update data points of time-series " + uniqueId +
-            " as the update starts at " + series.getTimeAt(0) +
-            " which is before the latest data point in the database at " + maxDate);
-      }
-    }
+    final Date result = getDbConnector().getJdbcTemplate().queryForObject(sql, Date.class, queryArgs);
+    return DbDateUtils.fromSqlDateAllowNull(result);
   }
 
   /**
@@ -375,6 +510,22 @@ public class DbHistoricalTimeSeriesDataPointsWorker extends AbstractDbMaster {
     return UniqueId.of(getUniqueIdScheme(), oidStr, verStr);
   }
 
+  /**
+   * Creates a time-series without data points.
+   * 
+   * @param oid  the object identifier
+   * @param verInstant  the version instant, not null
+   * @param corrInstant  the correction instant, not null
+   * @return the time-series, not null
+   */
+  protected ManageableHistoricalTimeSeries createManageableTimeSeries(long oid, Instant verInstant, Instant corrInstant) {
+    ManageableHistoricalTimeSeries hts = new ManageableHistoricalTimeSeries();
+    hts.setUniqueId(createTimeSeriesUniqueId(oid, verInstant, corrInstant));
+    hts.setVersionInstant(verInstant);
+    hts.setCorrectionInstant(corrInstant);
+    return hts;
+  }
+
   @Override
   protected long extractRowId(UniqueId uniqueId) {
     int pos = uniqueId.getVersion().indexOf('P');
@@ -442,6 +593,66 @@ public class DbHistoricalTimeSeriesDataPointsWorker extends AbstractDbMaster {
     }
   }
 
+  //-------------------------------------------------------------------------
+  /**
+   * Mapper from SQL rows to a LocalDateDoubleTimeSeries for each object row id.
+   */
+  protected final class DataPointsMapExtractor implements ResultSetExtractor<Map<Long, LocalDateDoubleTimeSeries>> {
+    @Override
+    public Map<Long, LocalDateDoubleTimeSeries> extractData(final ResultSet rs) throws SQLException, DataAccessException {
+      final Map<Long, LocalDateDoubleTimeSeries> result = new HashMap<Long, LocalDateDoubleTimeSeries>();
+      int[] dates = new int[256];
+      double[] values = new double[256];
+      int size = 0;
+      long lastOid = -1;
+      int lastDate = Integer.MIN_VALUE;
+      while (rs.next()) {
+        final long docOid = rs.getLong("DOC_OID");
+        if (docOid != lastOid) {
+          if (size > 0) {
+            result.put(lastOid, createTimeSeries(dates, values, size));
+          }
+          lastOid = docOid;
+          lastDate = Integer.MIN_VALUE;
+          size = 0;
+        }
+        final int date = (int) DbDateUtils.fromSqlDateAllowNull(rs.getDate("POINT_DATE")).toEpochDays();
+        if (date == lastDate) {
+          // The data points query should return no more than one value per date
+          throw new OpenGammaRuntimeException("Unexpected duplicate data point entry");
+        }
+        lastDate = date;
+        final double value = rs.getDouble("POINT_VALUE");
+        if (rs.wasNull() == false) {
+          if (size == dates.length) {
+            dates = Arrays.copyOf(dates, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+          }
+          dates[size] = date;
+          values[size] = value;
+          size++;
+        }
+      }
+      if (size > 0) {
+        result.put(lastOid, createTimeSeries(dates, values, size));
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Creates a time-series from arrays of epoch days and values.
+   * 
+   * @param dates  the dates as epoch days, not null
+   * @param values  the values, not null
+   * @param size  the number of points to use from the start of the arrays
+   * @return the time-series, not null
+   */
+  protected static LocalDateDoubleTimeSeries createTimeSeries(final int[] dates, final double[] values, final int size) {
+    return new ArrayLocalDateDoubleTimeSeries(new FastArrayIntDoubleTimeSeries(
+        DateTimeNumericEncoding.DATE_EPOCH_DAYS, Arrays.copyOf(dates, size), Arrays.copyOf(values, size)));
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Mapper from SQL rows to a UniqueId.
@@ -484,16 +695,33 @@ public class DbHistoricalTimeSeriesDataPointsWorker extends AbstractDbMaster {
         Timestamp corr = rs.getTimestamp("max_corr_instant");
         Instant verInstant = ver != null ? DbDateUtils.fromSqlTimestamp(ver) : null;
         Instant corrInstant = (corr != null ? DbDateUtils.fromSqlTimestamp(corr) : verInstant);
-        ManageableHistoricalTimeSeries hts = new ManageableHistoricalTimeSeries();
-        hts.setUniqueId(createTimeSeriesUniqueId(_objectId, verInstant, corrInstant));
-        hts.setVersionInstant(verInstant);
-        hts.setCorrectionInstant(corrInstant);
-        
-        return hts;
+        return createManageableTimeSeries(_objectId, verInstant, corrInstant);
       }
       return null;
     }
   }
 
+  //-------------------------------------------------------------------------
+  /**
+   * Mapper from SQL rows to a ManageableHistoricalTimeSeries for each object row id.
+   * Only the first row of each object row id is used.
+   */
+  protected final class ManageableHTSMapExtractor implements ResultSetExtractor<Map<Long, ManageableHistoricalTimeSeries>> {
+    @Override
+    public Map<Long, ManageableHistoricalTimeSeries> extractData(final ResultSet rs) throws SQLException, DataAccessException {
+      final Map<Long, ManageableHistoricalTimeSeries> result = new HashMap<Long, ManageableHistoricalTimeSeries>();
+      while (rs.next()) {
+        final long docOid = rs.getLong("DOC_OID");
+        if (result.containsKey(docOid) == false) {
+          Instant verInstant = DbDateUtils.fromSqlTimestamp(rs.getTimestamp("MAX_VER_INSTANT"));
+          Timestamp corr = rs.getTimestamp("MAX_CORR_INSTANT");
+          Instant corrInstant = (corr != null ? DbDateUtils.fromSqlTimestamp(corr) : verInstant);
+          result.put(docOid, createManageableTimeSeries(docOid, verInstant, corrInstant));
+        }
+      }
+      return result;
+    }
+  }
+
 
 }
@@ -9,7 +9,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import javax.time.Duration;
 import javax.time.Instant;
@@ -107,7 +109,7 @@ public class DbHistoricalTimeSeriesMaster extends AbstractDocumentDbMaster<Histo
   /**
    * Worker.
    */
-  private final DbHistoricalTimeSeriesDataPointsWorker _dataPointsWorker;
+  private DbHistoricalTimeSeriesDataPointsWorker _dataPointsWorker;
 
   /**
    * Creates an instance.
@@ -181,6 +183,33 @@ public class DbHistoricalTimeSeriesMaster extends AbstractDocumentDbMaster<Histo
     return _dataPointsWorker;
   }
 
+  /**
+   * Checks whether data points are stored in compressed yearly blocks.
+   *
+   * @return true if data points are stored in {@code hts_point_block}, false if stored in {@code hts_point}
+   */
+  public boolean isBlockStorage() {
+    return _dataPointsWorker instanceof DbHistoricalTimeSeriesBlockDataPointsWorker;
+  }
+
+  /**
+   * Sets whether data points are stored in compressed yearly blocks.
+   * <p>
+   * Block storage holds one row per time-series per year rather than one row per point,
+   * which makes reading long or many time-series much faster.
+   * The two storage modes do not share data, so the mode must be chosen when the
+   * database is created and must be the same for every master using the database.
+   *
+   * @param blockStorage  true to store data points in {@code hts_point_block}
+   */
+  public void setBlockStorage(final boolean blockStorage) {
+    if (blockStorage) {
+      _dataPointsWorker = new DbHistoricalTimeSeriesBlockDataPointsWorker(this);
+    } else {
+      _dataPointsWorker = new DbHistoricalTimeSeriesDataPointsWorker(this);
+    }
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public HistoricalTimeSeriesInfoMetaDataResult metaData(HistoricalTimeSeriesInfoMetaDataRequest request) {
@@ -435,6 +464,25 @@ public class DbHistoricalTimeSeriesMaster extends AbstractDocumentDbMaster<Histo
     return getDataPointsWorker().getTimeSeries(objectId, versionCorrection, filter);
   }
 
+  /**
+   * Gets the data points of many time-series over a date range.
+   * <p>
+   * The data points are read with one query for each thousand time-series, rather than
+   * one query per time-series. Time-series that do not exist at the version-correction
+   * are omitted from the result.
+   *
+   * @param objectIds  the time-series object identifiers, not null
+   * @param versionCorrection  the version-correction locator to search at, not null
+   * @param fromDateInclusive  the start date, null means far past
+   * @param toDateInclusive  the end date, null means far future
+   * @return the time-series keyed by object identifier, not null
+   */
+  @Override
+  public Map<ObjectId, ManageableHistoricalTimeSeries> getTimeSeries(final Collection<? extends ObjectIdentifiable> objectIds,
+      final VersionCorrection versionCorrection, final LocalDate fromDateInclusive, final LocalDate toDateInclusive) {
+    return getDataPointsWorker().getTimeSeries(objectIds, versionCorrection, fromDateInclusive, toDateInclusive);
+  }
+
   //-------------------------------------------------------------------------
 
   @Override
@@ -160,6 +160,11 @@ public class DbPositionMaster
       buf.setLength(buf.length() - 2);
       args.addValue("sql_search_trade_ids", buf.toString());
     }
+    if (request.getPagingRequest().isCursorPaging()) {
+      argsCursorPaging(args, request.getPagingRequest());
+      searchWithCursorPaging(request.getPagingRequest(), getElSqlBundle().getSql("Search", args), args, new PositionDocumentExtractor(), result);
+      return result;
+    }
     args.addValue("paging_offset", request.getPagingRequest().getFirstItem());
     args.addValue("paging_fetch", request.getPagingRequest().getPagingSize());
     
@@ -13,14 +13,18 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.support.SqlLobValue;
 import org.springframework.jdbc.support.lob.LobHandler;
 
@@ -71,6 +75,10 @@ public class DbSecurityMaster
 
   /** Logger. */
   private static final Logger s_logger = LoggerFactory.getLogger(DbSecurityMaster.class);
+  /**
+   * The maximum number of identifier values to query for in one statement.
+   */
+  private static final int ID_KEY_SELECT_SIZE = 500;
 
   /**
    * The default scheme for unique identifiers.
@@ -188,16 +196,25 @@ public class DbSecurityMaster
       args.addValue("sql_search_object_ids", buf.toString());
     }
     args.addValue("sort_order", ORDER_BY_MAP.get(request.getSortOrder()));
-    args.addValue("paging_offset", request.getPagingRequest().getFirstItem());
-    args.addValue("paging_fetch", request.getPagingRequest().getPagingSize());
+    final boolean cursorPaging = request.getPagingRequest().isCursorPaging() && request.getSortOrder() == SecuritySearchSortOrder.OBJECT_ID_ASC;
+    if (cursorPaging) {
+      argsCursorPaging(args, request.getPagingRequest());
+    } else {
+      args.addValue("paging_offset", request.getPagingRequest().getFirstItem());
+      args.addValue("paging_fetch", request.getPagingRequest().getPagingSize());
+    }
     
     final SecurityMasterDetailProvider detailProvider = getDetailProvider();  // lock against change
     if (detailProvider != null) {
       detailProvider.extendSearch(request, args);
     }
     
-    String[] sql = {getElSqlBundle().getSql("Search", args), getElSqlBundle().getSql("SearchCount", args)};
-    searchWithPaging(request.getPagingRequest(), sql, args, new SecurityDocumentExtractor(), result);
+    if (cursorPaging) {
+      searchWithCursorPaging(request.getPagingRequest(), getElSqlBundle().getSql("Search", args), args, new SecurityDocumentExtractor(), result);
+    } else {
+      String[] sql = {getElSqlBundle().getSql("Search", args), getElSqlBundle().getSql("SearchCount", args)};
+      searchWithPaging(request.getPagingRequest(), sql, args, new SecurityDocumentExtractor(), result);
+    }
     if (request.isFullDetail()) {
       loadDetail(detailProvider, result.getDocuments());
     }
@@ -236,6 +253,14 @@ public class DbSecurityMaster
     return doc;
   }
 
+  //-------------------------------------------------------------------------
+  @Override
+  protected List<SecurityDocument> getAll(final List<UniqueId> uniqueIds) {
+    final List<SecurityDocument> docs = doGetAllById(uniqueIds, new SecurityDocumentExtractor(), "Security");
+    loadDetail(getDetailProvider(), docs);
+    return docs;
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public SecurityHistoryResult history(final SecurityHistoryRequest request) {
@@ -277,22 +302,7 @@ public class DbSecurityMaster
     final long docId = nextId("sec_security_seq");
     final long docOid = (document.getUniqueId() != null ? extractOid(document.getUniqueId()) : docId);
     // the arguments for inserting into the security table
-    final DbMapSqlParameterSource docArgs = new DbMapSqlParameterSource()
-      .addValue("doc_id", docId)
-      .addValue("doc_oid", docOid)
-      .addTimestamp("ver_from_instant", document.getVersionFromInstant())
-      .addTimestampNullFuture("ver_to_instant", document.getVersionToInstant())
-      .addTimestamp("corr_from_instant", document.getCorrectionFromInstant())
-      .addTimestampNullFuture("corr_to_instant", document.getCorrectionToInstant())
-      .addValue("name", document.getSecurity().getName())
-      .addValue("sec_type", document.getSecurity().getSecurityType());
-    if (document.getSecurity() instanceof RawSecurity) {
-      docArgs.addValue("detail_type", "R");
-    } else if (document.getSecurity().getClass() == ManageableSecurity.class) {
-      docArgs.addValue("detail_type", "M");
-    } else {
-      docArgs.addValue("detail_type", "D");
-    }
+    final DbMapSqlParameterSource docArgs = argsInsert(document, docId, docOid);
     // the arguments for inserting into the idkey tables
     final List<DbMapSqlParameterSource> assocList = new ArrayList<DbMapSqlParameterSource>();
     final List<DbMapSqlParameterSource> idKeyList = new ArrayList<DbMapSqlParameterSource>();
@@ -325,14 +335,7 @@ public class DbSecurityMaster
     document.setUniqueId(uniqueId);
     
     // store the detail
-    if (document.getSecurity() instanceof RawSecurity) {
-      storeRawSecurityDetail((RawSecurity) document.getSecurity());
-    } else {
-      final SecurityMasterDetailProvider detailProvider = getDetailProvider();
-      if (detailProvider != null) {
-        detailProvider.storeSecurityDetail(document.getSecurity());
-      }
-    }
+    storeDetail(getDetailProvider(), document.getSecurity());
     
     // store attributes
     Map<String, String> attributes = new HashMap<String, String>(document.getSecurity().getAttributes());
@@ -352,6 +355,154 @@ public class DbSecurityMaster
     return document;
   }
 
+  /**
+   * Inserts a number of new documents.
+   * <p>
+   * The ids are allocated in blocks and the rows are written using JDBC batches.
+   * The detail of each security is still stored individually.
+   * 
+   * @param documents  the documents, not null
+   */
+  @Override
+  protected void insertAll(final List<SecurityDocument> documents) {
+    for (SecurityDocument document : documents) {
+      ArgumentChecker.notNull(document.getSecurity(), "document.security");
+    }
+    final long[] docIds = nextIds("sec_security_seq", documents.size());
+    final List<DbMapSqlParameterSource> docList = new ArrayList<DbMapSqlParameterSource>(documents.size());
+    final List<DbMapSqlParameterSource> assocList = new ArrayList<DbMapSqlParameterSource>();
+    final List<DbMapSqlParameterSource> securityAttributeList = new ArrayList<DbMapSqlParameterSource>();
+    final Set<ExternalId> externalIds = new LinkedHashSet<ExternalId>();
+    for (int i = 0; i < documents.size(); i++) {
+      final SecurityDocument document = documents.get(i);
+      final long docId = docIds[i];
+      final long docOid = (document.getUniqueId() != null ? extractOid(document.getUniqueId()) : docId);
+      docList.add(argsInsert(document, docId, docOid));
+      for (ExternalId id : document.getSecurity().getExternalIdBundle()) {
+        assocList.add(new DbMapSqlParameterSource()
+          .addValue("doc_id", docId)
+          .addValue("key_scheme", id.getScheme().getName())
+          .addValue("key_value", id.getValue()));
+        externalIds.add(id);
+      }
+      for (Map.Entry<String, String> entry : document.getSecurity().getAttributes().entrySet()) {
+        securityAttributeList.add(new DbMapSqlParameterSource()
+          .addValue("security_id", docId)
+          .addValue("security_oid", docOid)
+          .addValue("key", entry.getKey())
+          .addValue("value", entry.getValue()));
+      }
+      final UniqueId uniqueId = createUniqueId(docOid, docId);
+      document.getSecurity().setUniqueId(uniqueId);
+      document.setUniqueId(uniqueId);
+    }
+    // only insert the id keys that do not already exist
+    externalIds.removeAll(selectIdKeys(externalIds));
+    final long[] idKeyIds = nextIds("sec_idkey_seq", externalIds.size());
+    final List<DbMapSqlParameterSource> idKeyList = new ArrayList<DbMapSqlParameterSource>(externalIds.size());
+    int idKeyIndex = 0;
+    for (ExternalId id : externalIds) {
+      idKeyList.add(new DbMapSqlParameterSource()
+        .addValue("idkey_id", idKeyIds[idKeyIndex++])
+        .addValue("key_scheme", id.getScheme().getName())
+        .addValue("key_value", id.getValue()));
+    }
+    final long[] securityAttrIds = nextIds("sec_security_attr_seq", securityAttributeList.size());
+    for (int i = 0; i < securityAttrIds.length; i++) {
+      securityAttributeList.get(i).addValue("attr_id", securityAttrIds[i]);
+    }
+    getJdbcTemplate().batchUpdate(getElSqlBundle().getSql("Insert"), docList.toArray(new DbMapSqlParameterSource[docList.size()]));
+    getJdbcTemplate().batchUpdate(getElSqlBundle().getSql("InsertIdKey"), idKeyList.toArray(new DbMapSqlParameterSource[idKeyList.size()]));
+    getJdbcTemplate().batchUpdate(getElSqlBundle().getSql("InsertDoc2IdKey"), assocList.toArray(new DbMapSqlParameterSource[assocList.size()]));
+    getJdbcTemplate().batchUpdate(getElSqlBundle().getSql("InsertAttributes"),
+        securityAttributeList.toArray(new DbMapSqlParameterSource[securityAttributeList.size()]));
+    
+    // store the detail
+    final SecurityMasterDetailProvider detailProvider = getDetailProvider();  // lock against change
+    for (SecurityDocument document : documents) {
+      storeDetail(detailProvider, document.getSecurity());
+    }
+  }
+
+  /**
+   * Gets the arguments for inserting a row into the security table.
+   * 
+   * @param document  the document, not null
+   * @param docId  the row id
+   * @param docOid  the object id
+   * @return the arguments, not null
+   */
+  private DbMapSqlParameterSource argsInsert(final SecurityDocument document, final long docId, final long docOid) {
+    final DbMapSqlParameterSource docArgs = new DbMapSqlParameterSource()
+      .addValue("doc_id", docId)
+      .addValue("doc_oid", docOid)
+      .addTimestamp("ver_from_instant", document.getVersionFromInstant())
+      .addTimestampNullFuture("ver_to_instant", document.getVersionToInstant())
+      .addTimestamp("corr_from_instant", document.getCorrectionFromInstant())
+      .addTimestampNullFuture("corr_to_instant", document.getCorrectionToInstant())
+      .addValue("name", document.getSecurity().getName())
+      .addValue("sec_type", document.getSecurity().getSecurityType());
+    if (document.getSecurity() instanceof RawSecurity) {
+      docArgs.addValue("detail_type", "R");
+    } else if (document.getSecurity().getClass() == ManageableSecurity.class) {
+      docArgs.addValue("detail_type", "M");
+    } else {
+      docArgs.addValue("detail_type", "D");
+    }
+    return docArgs;
+  }
+
+  /**
+   * Selects those of the external identifiers that are already stored as id keys.
+   * <p>
+   * The identifiers are queried by scheme in chunks to limit the size of the SQL.
+   * 
+   * @param externalIds  the identifiers to look for, not null
+   * @return the identifiers that are already stored, not null
+   */
+  private Set<ExternalId> selectIdKeys(final Set<ExternalId> externalIds) {
+    final Map<String, List<String>> valuesByScheme = new HashMap<String, List<String>>();
+    for (ExternalId id : externalIds) {
+      List<String> values = valuesByScheme.get(id.getScheme().getName());
+      if (values == null) {
+        values = new ArrayList<String>();
+        valuesByScheme.put(id.getScheme().getName(), values);
+      }
+      values.add(id.getValue());
+    }
+    final String sql = getElSqlBundle().getSql("SelectIdKeys");
+    final RowMapper<ExternalId> mapper = new RowMapper<ExternalId>() {
+      @Override
+      public ExternalId mapRow(final ResultSet rs, final int rowNum) throws SQLException {
+        return ExternalId.of(rs.getString("KEY_SCHEME"), rs.getString("KEY_VALUE"));
+      }
+    };
+    final Set<ExternalId> result = new HashSet<ExternalId>();
+    for (Map.Entry<String, List<String>> entry : valuesByScheme.entrySet()) {
+      for (List<String> values : Lists.partition(entry.getValue(), ID_KEY_SELECT_SIZE)) {
+        final DbMapSqlParameterSource args = new DbMapSqlParameterSource()
+          .addValue("key_scheme", entry.getKey())
+          .addValue("key_values", values);
+        result.addAll(getJdbcTemplate().getNamedParameterJdbcOperations().query(sql, args, mapper));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Stores the detail of a security.
+   * 
+   * @param detailProvider  the detail provider, null if none
+   * @param security  the security, not null
+   */
+  private void storeDetail(final SecurityMasterDetailProvider detailProvider, final ManageableSecurity security) {
+    if (security instanceof RawSecurity) {
+      storeRawSecurityDetail((RawSecurity) security);
+    } else if (detailProvider != null) {
+      detailProvider.storeSecurityDetail(security);
+    }
+  }
+
   private void storeRawSecurityDetail(RawSecurity security) {
     final DbMapSqlParameterSource rawArgs = new DbMapSqlParameterSource()
       .addValue("security_id", extractRowId(security.getUniqueId()))
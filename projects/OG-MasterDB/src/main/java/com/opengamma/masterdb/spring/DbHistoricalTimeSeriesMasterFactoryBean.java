@@ -11,7 +11,10 @@ import org.joda.beans.BeanBuilder;
 import org.joda.beans.BeanDefinition;
 import org.joda.beans.JodaBeanUtils;
 import org.joda.beans.MetaProperty;
+import org.joda.beans.Property;
+import org.joda.beans.PropertyDefinition;
 import org.joda.beans.impl.direct.DirectBeanBuilder;
+import org.joda.beans.impl.direct.DirectMetaProperty;
 import org.joda.beans.impl.direct.DirectMetaPropertyMap;
 
 import com.opengamma.core.change.JmsChangeManager;
@@ -23,6 +26,12 @@ import com.opengamma.masterdb.historicaltimeseries.DbHistoricalTimeSeriesMaster;
 @BeanDefinition
 public class DbHistoricalTimeSeriesMasterFactoryBean extends AbstractDbMasterFactoryBean<DbHistoricalTimeSeriesMaster> {
 
+  /**
+   * The flag determining whether the data points are stored in compressed yearly blocks (default false).
+   */
+  @PropertyDefinition
+  private boolean _blockStorage;
+
   /**
    * Creates an instance.
    */
@@ -40,6 +49,7 @@ public class DbHistoricalTimeSeriesMasterFactoryBean extends AbstractDbMasterFac
     if (getMaxRetries() != null) {
       master.setMaxRetries(getMaxRetries());
     }
+    master.setBlockStorage(isBlockStorage());
     if (getJmsConnector() != null) {
       JmsChangeManager cm = new JmsChangeManager(getJmsConnector().ensureTopicName(getJmsChangeManagerTopic()));
       master.setChangeManager(cm);
@@ -69,11 +79,20 @@ public class DbHistoricalTimeSeriesMasterFactoryBean extends AbstractDbMasterFac
 
   @Override
   protected Object propertyGet(String propertyName, boolean quiet) {
+    switch (propertyName.hashCode()) {
+      case 1657949486:  // blockStorage
+        return isBlockStorage();
+    }
     return super.propertyGet(propertyName, quiet);
   }
 
   @Override
   protected void propertySet(String propertyName, Object newValue, boolean quiet) {
+    switch (propertyName.hashCode()) {
+      case 1657949486:  // blockStorage
+        setBlockStorage((Boolean) newValue);
+        return;
+    }
     super.propertySet(propertyName, newValue, quiet);
   }
 
@@ -83,7 +102,9 @@ public class DbHistoricalTimeSeriesMasterFactoryBean extends AbstractDbMasterFac
       return true;
     }
     if (obj != null && obj.getClass() == this.getClass()) {
-      return super.equals(obj);
+      DbHistoricalTimeSeriesMasterFactoryBean other = (DbHistoricalTimeSeriesMasterFactoryBean) obj;
+      return JodaBeanUtils.equal(isBlockStorage(), other.isBlockStorage()) &&
+          super.equals(obj);
     }
     return false;
   }
@@ -91,9 +112,35 @@ public class DbHistoricalTimeSeriesMasterFactoryBean extends AbstractDbMasterFac
   @Override
   public int hashCode() {
     int hash = 7;
+    hash += hash * 31 + JodaBeanUtils.hashCode(isBlockStorage());
     return hash ^ super.hashCode();
   }
 
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the flag determining whether the data points are stored in compressed yearly blocks (default false).
+   * @return the value of the property
+   */
+  public boolean isBlockStorage() {
+    return _blockStorage;
+  }
+
+  /**
+   * Sets the flag determining whether the data points are stored in compressed yearly blocks (default false).
+   * @param blockStorage  the new value of the property
+   */
+  public void setBlockStorage(boolean blockStorage) {
+    this._blockStorage = blockStorage;
+  }
+
+  /**
+   * Gets the the {@code blockStorage} property.
+   * @return the property, not null
+   */
+  public final Property<Boolean> blockStorage() {
+    return metaBean().blockStorage().createProperty(this);
+  }
+
   //-----------------------------------------------------------------------
   /**
    * The meta-bean for {@code DbHistoricalTimeSeriesMasterFactoryBean}.
@@ -104,11 +151,17 @@ public class DbHistoricalTimeSeriesMasterFactoryBean extends AbstractDbMasterFac
      */
     static final Meta INSTANCE = new Meta();
 
+    /**
+     * The meta-property for the {@code blockStorage} property.
+     */
+    private final MetaProperty<Boolean> _blockStorage = DirectMetaProperty.ofReadWrite(
+        this, "blockStorage", DbHistoricalTimeSeriesMasterFactoryBean.class, Boolean.TYPE);
     /**
      * The meta-properties.
      */
     private final Map<String, MetaProperty<?>> _metaPropertyMap$ = new DirectMetaPropertyMap(
-      this, (DirectMetaPropertyMap) super.metaPropertyMap());
+      this, (DirectMetaPropertyMap) super.metaPropertyMap(),
+        "blockStorage");
 
     /**
      * Restricted constructor.
@@ -116,6 +169,15 @@ public class DbHistoricalTimeSeriesMasterFactoryBean extends AbstractDbMasterFac
     protected Meta() {
     }
 
+    @Override
+    protected MetaProperty<?> metaPropertyGet(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case 1657949486:  // blockStorage
+          return _blockStorage;
+      }
+      return super.metaPropertyGet(propertyName);
+    }
+
     @Override
     public BeanBuilder<? extends DbHistoricalTimeSeriesMasterFactoryBean> builder() {
       return new DirectBeanBuilder<DbHistoricalTimeSeriesMasterFactoryBean>(new DbHistoricalTimeSeriesMasterFactoryBean());
@@ -132,6 +194,14 @@ public class DbHistoricalTimeSeriesMasterFactoryBean extends AbstractDbMasterFac
     }
 
     //-----------------------------------------------------------------------
+    /**
+     * The meta-property for the {@code blockStorage} property.
+     * @return the meta-property, not null
+     */
+    public final MetaProperty<Boolean> blockStorage() {
+      return _blockStorage;
+    }
+
   }
 
   ///CLOVER:ON
@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.masterdb.historicaltimeseries;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.OpenGammaRuntimeException;
+
+/**
+ * Test DataPointsBlock.
+ */
+@Test
+public class DataPointsBlockTest {
+
+  private static final long V1 = 1000;
+  private static final long V2 = 2000;
+  private static final long V3 = 3000;
+  private static final long V4 = 4000;
+  private static final int D1 = 15000;
+  private static final int D2 = 15001;
+  private static final int D3 = 15002;
+
+  // the same data points as the database tests, with 1 Jan removed at a later correction
+  private static DataPointsBlock makeBlock() {
+    final DataPointsBlock block = new DataPointsBlock();
+    block.addValue(D1, V1, V1, 3.1d);
+    block.addValue(D2, V2, V2, 3.2d);
+    block.addValue(D3, V2, V2, 3.3d);
+    block.addValue(D2, V2, V3, 3.21d);
+    block.addValue(D2, V2, V4, 3.22d);
+    block.addValue(D3, V2, V4, 3.33d);
+    block.addRemoved(D1, V1, V4 + 1);
+    return block;
+  }
+
+  private static double[] select(final DataPointsBlock block, final long versionAsOf, final long correctedTo, final int startDate, final int endDate) {
+    final int[] dates = new int[block.size()];
+    final double[] values = new double[block.size()];
+    final int count = block.select(versionAsOf, correctedTo, startDate, endDate, dates, values, 0);
+    return Arrays.copyOf(values, count);
+  }
+
+  //-------------------------------------------------------------------------
+  public void test_select() {
+    final DataPointsBlock block = DataPointsBlock.fromByteArray(makeBlock().toByteArray());
+    assertEquals(7, block.size());
+    assertTrue(Arrays.equals(new double[] {3.22d, 3.33d}, select(block, Long.MAX_VALUE, Long.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE)));
+    assertTrue(Arrays.equals(new double[] {3.1d, 3.22d, 3.33d}, select(block, V4, V4, Integer.MIN_VALUE, Integer.MAX_VALUE)));
+    assertTrue(Arrays.equals(new double[] {3.1d, 3.21d, 3.3d}, select(block, V2, V3, Integer.MIN_VALUE, Integer.MAX_VALUE)));
+    assertTrue(Arrays.equals(new double[] {3.1d}, select(block, V1, V1, Integer.MIN_VALUE, Integer.MAX_VALUE)));
+    assertTrue(Arrays.equals(new double[] {3.33d}, select(block, Long.MAX_VALUE, Long.MAX_VALUE, D3, D3)));
+    assertEquals(0, select(block, V1 - 1, V1 - 1, Integer.MIN_VALUE, Integer.MAX_VALUE).length);
+  }
+
+  public void test_versions() {
+    final DataPointsBlock block = makeBlock();
+    assertEquals(V2, block.getOriginalVersion(D2));
+    assertEquals(Long.MIN_VALUE, block.getOriginalVersion(D3 + 1));
+    assertTrue(Arrays.equals(new int[] {D2, D3}, block.getDates(D2, D3 + 5)));
+    assertEquals(D1, block.getLatestDate(V1, V1));
+    assertEquals(D3, block.getLatestDate(V2, V2));
+    assertEquals(Integer.MIN_VALUE, block.getLatestDate(0, 0));
+    assertTrue(Arrays.equals(new long[] {V2, V3}, block.getMaxInstants(V2, V3)));
+    assertNull(block.getMaxInstants(0, 0));
+    assertEquals(V2, block.getMaxVersion());
+    assertEquals(V4 + 1, block.getMaxCorrection());
+  }
+
+  public void test_empty() {
+    final DataPointsBlock block = DataPointsBlock.fromByteArray(new DataPointsBlock().toByteArray());
+    assertTrue(block.isEmpty());
+    assertEquals(Long.MIN_VALUE, block.getMaxVersion());
+  }
+
+  public void test_roundTrip_year() {
+    final Random random = new Random(1);
+    final long now = 1350000000000000L;
+    final long day = 86400000000L;
+    final DataPointsBlock block = new DataPointsBlock();
+    for (int i = 0; i < 366; i++) {
+      block.addValue(-400 + i, now + i * day, now + i * day, 100d + random.nextGaussian());
+    }
+    for (int i = 0; i < 20; i++) {
+      block.addValue(-400 + i * 3, now + i * 3 * day, now + 999999999999L + i, random.nextDouble());
+    }
+    final byte[] bytes = block.toByteArray();
+    final DataPointsBlock test = DataPointsBlock.fromByteArray(bytes);
+    assertTrue(Arrays.equals(bytes, test.toByteArray()));
+    final double[] expected = select(block, Long.MAX_VALUE, Long.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    assertEquals(366, expected.length);
+    assertTrue(Arrays.equals(expected, select(test, Long.MAX_VALUE, Long.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE)));
+    // well under the size of one row per entry
+    assertTrue(bytes.length < 386 * 24);
+  }
+
+  public void test_instants() {
+    final long now = 1350000000123456L;
+    assertEquals(now, DataPointsBlock.toEpochMicros(DataPointsBlock.toInstant(now)));
+    assertEquals(-1L, DataPointsBlock.toEpochMicros(DataPointsBlock.toInstant(-1L)));
+  }
+
+  @Test(expectedExceptions = OpenGammaRuntimeException.class)
+  public void test_fromByteArray_truncated() {
+    final byte[] bytes = makeBlock().toByteArray();
+    DataPointsBlock.fromByteArray(Arrays.copyOf(bytes, bytes.length / 2));
+  }
+
+}
@@ -0,0 +1,218 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.masterdb.historicaltimeseries;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.time.Instant;
+import javax.time.TimeSource;
+import javax.time.calendar.LocalDate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Factory;
+import org.testng.annotations.Test;
+
+import com.opengamma.id.ExternalId;
+import com.opengamma.id.ExternalIdBundleWithDates;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesGetFilter;
+import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesInfoDocument;
+import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeries;
+import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeriesInfo;
+import com.opengamma.util.test.DbTest;
+import com.opengamma.util.timeseries.localdate.ArrayLocalDateDoubleTimeSeries;
+import com.opengamma.util.timeseries.localdate.LocalDateDoubleTimeSeries;
+
+/**
+ * Tests DbHistoricalTimeSeriesMaster with block storage against the same changes made with row storage.
+ */
+public class DbHistoricalTimeSeriesMasterWorkerBlockStorageTest extends AbstractDbHistoricalTimeSeriesMasterWorkerTest {
+  // superclass sets up dummy database
+
+  private static final Logger s_logger = LoggerFactory.getLogger(DbHistoricalTimeSeriesMasterWorkerBlockStorageTest.class);
+
+  private DbHistoricalTimeSeriesMaster _blockMaster;
+  private ObjectId _rowOid;
+  private ObjectId _blockOid;
+  private final List<Instant> _instants = new ArrayList<Instant>();
+  private final List<UniqueId> _rowUids = new ArrayList<UniqueId>();
+  private final List<UniqueId> _blockUids = new ArrayList<UniqueId>();
+
+  @Factory(dataProvider = "databases", dataProviderClass = DbTest.class)
+  public DbHistoricalTimeSeriesMasterWorkerBlockStorageTest(String databaseType, String databaseVersion) {
+    super(databaseType, databaseVersion);
+    s_logger.info("running testcases for {}", databaseType);
+  }
+
+  @BeforeMethod
+  public void setUpBlocks() throws Exception {
+    _blockMaster = new DbHistoricalTimeSeriesMaster(_htsMaster.getDbConnector());
+    _blockMaster.setBlockStorage(true);
+    _blockMaster.setTimeSource(TimeSource.fixed(_now.toInstant()));
+    _rowOid = addSeries(_htsMaster, "R");
+    _blockOid = addSeries(_blockMaster, "B");
+    _instants.clear();
+    _rowUids.clear();
+    _blockUids.clear();
+
+    update(ts(new int[] {1, 2, 3, 4, 5, 367}, new double[] {1d, 2d, 3d, 4d, 5d, 6d}));
+    update(ts(new int[] {368}, new double[] {7d}));
+    correct(ts(new int[] {2, 10}, new double[] {2.5d, 10d}));
+    remove(LocalDate.of(2011, 1, 3), LocalDate.of(2011, 1, 4));
+    correct(ts(new int[] {3, 367}, new double[] {3.5d, 6.5d}));
+  }
+
+  @AfterMethod
+  public void tearDownBlocks() throws Exception {
+    _htsMaster.getDataPointsWorker().resetTimeSource();
+    _blockMaster = null;
+  }
+
+  private static ObjectId addSeries(final DbHistoricalTimeSeriesMaster master, final String name) {
+    ManageableHistoricalTimeSeriesInfo info = new ManageableHistoricalTimeSeriesInfo();
+    info.setName(name);
+    info.setDataField("DF");
+    info.setDataSource("DS");
+    info.setDataProvider("DP");
+    info.setObservationTime("OT");
+    info.setExternalIdBundle(ExternalIdBundleWithDates.of(ExternalId.of("A", name).toBundle()));
+    return master.add(new HistoricalTimeSeriesInfoDocument(info)).getInfo().getTimeSeriesObjectId();
+  }
+
+  // days after 31 Dec 2010, so that 367 onwards is in the next year's block
+  private static LocalDateDoubleTimeSeries ts(final int[] days, final double[] values) {
+    final List<LocalDate> dates = new ArrayList<LocalDate>();
+    final List<Double> valueList = new ArrayList<Double>();
+    for (int i = 0; i < days.length; i++) {
+      dates.add(LocalDate.of(2010, 12, 31).plusDays(days[i]));
+      valueList.add(values[i]);
+    }
+    return new ArrayLocalDateDoubleTimeSeries(dates, valueList);
+  }
+
+  private void nextInstant() {
+    final Instant instant = _now.toInstant().plusSeconds(_instants.size() + 1);
+    _instants.add(instant);
+    _htsMaster.getDataPointsWorker().setTimeSource(TimeSource.fixed(instant));
+    _blockMaster.getDataPointsWorker().setTimeSource(TimeSource.fixed(instant));
+  }
+
+  private void update(final LocalDateDoubleTimeSeries series) {
+    nextInstant();
+    _rowUids.add(_htsMaster.updateTimeSeriesDataPoints(_rowOid, series));
+    _blockUids.add(_blockMaster.updateTimeSeriesDataPoints(_blockOid, series));
+  }
+
+  private void correct(final LocalDateDoubleTimeSeries series) {
+    nextInstant();
+    _rowUids.add(_htsMaster.correctTimeSeriesDataPoints(_rowOid, series));
+    _blockUids.add(_blockMaster.correctTimeSeriesDataPoints(_blockOid, series));
+  }
+
+  private void remove(final LocalDate fromDateInclusive, final LocalDate toDateInclusive) {
+    nextInstant();
+    _rowUids.add(_htsMaster.removeTimeSeriesDataPoints(_rowOid, fromDateInclusive, toDateInclusive));
+    _blockUids.add(_blockMaster.removeTimeSeriesDataPoints(_blockOid, fromDateInclusive, toDateInclusive));
+  }
+
+  private void assertSame(final ManageableHistoricalTimeSeries expected, final ManageableHistoricalTimeSeries test) {
+    assertEquals(_blockOid, test.getUniqueId().getObjectId());
+    assertEquals(expected.getUniqueId().getVersion(), test.getUniqueId().getVersion());
+    assertEquals(expected.getVersionInstant(), test.getVersionInstant());
+    assertEquals(expected.getCorrectionInstant(), test.getCorrectionInstant());
+    assertEquals(expected.getTimeSeries(), test.getTimeSeries());
+  }
+
+  //-------------------------------------------------------------------------
+  @Test
+  public void test_changes_uniqueIds() {
+    assertEquals(_rowUids.size(), _blockUids.size());
+    for (int i = 0; i < _rowUids.size(); i++) {
+      assertEquals(_rowUids.get(i).getVersion(), _blockUids.get(i).getVersion());
+      assertSame(_htsMaster.getTimeSeries(_rowUids.get(i)), _blockMaster.getTimeSeries(_blockUids.get(i)));
+    }
+  }
+
+  @Test
+  public void test_get_versionCorrections() {
+    for (Instant version : _instants) {
+      for (Instant correction : _instants) {
+        final VersionCorrection vc = VersionCorrection.of(version, correction);
+        assertSame(_htsMaster.getTimeSeries(_rowOid, vc), _blockMaster.getTimeSeries(_blockOid, vc));
+      }
+    }
+    final VersionCorrection beforeChanges = VersionCorrection.ofVersionAsOf(_now.toInstant());
+    final ManageableHistoricalTimeSeries test = _blockMaster.getTimeSeries(_blockOid, beforeChanges);
+    assertSame(_htsMaster.getTimeSeries(_rowOid, beforeChanges), test);
+    assertTrue(test.getTimeSeries().isEmpty());
+  }
+
+  @Test
+  public void test_get_latest() {
+    final LocalDateDoubleTimeSeries test = _blockMaster.getTimeSeries(_blockOid, VersionCorrection.LATEST).getTimeSeries();
+    assertEquals(ts(new int[] {1, 2, 3, 5, 10, 367, 368}, new double[] {1d, 2.5d, 3.5d, 5d, 10d, 6.5d, 7d}), test);
+  }
+
+  @Test
+  public void test_get_filters() {
+    final List<HistoricalTimeSeriesGetFilter> filters = Arrays.asList(
+        HistoricalTimeSeriesGetFilter.ofEarliestPoint(),
+        HistoricalTimeSeriesGetFilter.ofLatestPoint(),
+        HistoricalTimeSeriesGetFilter.ofRange(null, LocalDate.of(2011, 12, 31), -1),
+        HistoricalTimeSeriesGetFilter.ofRange(LocalDate.of(2011, 1, 3), null, 3),
+        HistoricalTimeSeriesGetFilter.ofRange(LocalDate.of(2011, 1, 3), LocalDate.of(2012, 1, 1), -4),
+        HistoricalTimeSeriesGetFilter.ofRange(LocalDate.of(2011, 1, 3), LocalDate.of(2011, 1, 2)),
+        HistoricalTimeSeriesGetFilter.ofRange(LocalDate.of(2011, 1, 4), LocalDate.of(2011, 1, 9)));
+    for (HistoricalTimeSeriesGetFilter filter : filters) {
+      for (Instant instant : _instants) {
+        final VersionCorrection vc = VersionCorrection.of(instant, instant);
+        assertSame(_htsMaster.getTimeSeries(_rowOid, vc, filter), _blockMaster.getTimeSeries(_blockOid, vc, filter));
+      }
+    }
+  }
+
+  @Test
+  public void test_get_multiple() {
+    final ObjectId missing = ObjectId.of("DbHts", "DP999");
+    for (Instant instant : _instants) {
+      final VersionCorrection vc = VersionCorrection.of(instant, instant);
+      final Map<ObjectId, ManageableHistoricalTimeSeries> rows = _htsMaster.getTimeSeries(
+          Arrays.asList(_rowOid, missing), vc, LocalDate.of(2011, 1, 2), LocalDate.of(2012, 1, 2));
+      final Map<ObjectId, ManageableHistoricalTimeSeries> blocks = _blockMaster.getTimeSeries(
+          Arrays.asList(_blockOid, missing), vc, LocalDate.of(2011, 1, 2), LocalDate.of(2012, 1, 2));
+      assertEquals(1, blocks.size());
+      assertFalse(blocks.containsKey(missing));
+      assertSame(rows.get(_rowOid), blocks.get(_blockOid));
+      assertSame(_blockMaster.getTimeSeries(_blockOid, vc, HistoricalTimeSeriesGetFilter.ofRange(LocalDate.of(2011, 1, 2), LocalDate.of(2012, 1, 2))),
+          blocks.get(_blockOid));
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void test_update_beforeLatest() {
+    nextInstant();
+    _blockMaster.updateTimeSeriesDataPoints(_blockOid, ts(new int[] {300}, new double[] {1d}));
+  }
+
+  @Test
+  public void test_isBlockStorage() {
+    assertTrue(_blockMaster.isBlockStorage());
+    assertFalse(_htsMaster.isBlockStorage());
+  }
+
+}
@@ -8,6 +8,9 @@ package com.opengamma.masterdb.historicaltimeseries;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
 
+import java.util.Arrays;
+import java.util.Map;
+
 import javax.time.calendar.LocalDate;
 
 import org.slf4j.Logger;
@@ -265,6 +268,37 @@ public class DbHistoricalTimeSeriesMasterWorkerGetTimeSeriesTest extends Abstrac
     assertEquals(3.21d, timeSeries.getValueAt(0), 0.0001d);
   }
 
+  //-------------------------------------------------------------------------
+  @Test
+  public void test_get_multiple() {
+    ObjectId oid101 = ObjectId.of("DbHts", "DP101");
+    ObjectId oid102 = ObjectId.of("DbHts", "DP102");
+    ObjectId oid201 = ObjectId.of("DbHts", "DP201");
+    ObjectId oid999 = ObjectId.of("DbHts", "DP999");
+    VersionCorrection vc = VersionCorrection.of(_version2Instant.plusSeconds(1), _version3Instant.plusSeconds(1));
+    Map<ObjectId, ManageableHistoricalTimeSeries> test = _htsMaster.getTimeSeries(
+        Arrays.asList(oid101, oid102, oid201, oid999), vc, LocalDate.of(2011, 1, 2), null);
+    assertEquals(3, test.size());
+    assertEquals(_htsMaster.getTimeSeries(oid101, vc, HistoricalTimeSeriesGetFilter.ofRange(LocalDate.of(2011, 1, 2), null)), test.get(oid101));
+    LocalDateDoubleTimeSeries timeSeries = test.get(oid101).getTimeSeries();
+    assertEquals(2, timeSeries.size());
+    assertEquals(LocalDate.of(2011, 1, 2), timeSeries.getTimeAt(0));
+    assertEquals(3.21d, timeSeries.getValueAt(0), 0.0001d);
+    assertEquals(LocalDate.of(2011, 1, 3), timeSeries.getTimeAt(1));
+    assertEquals(3.3d, timeSeries.getValueAt(1), 0.0001d);
+    assertEquals(0, test.get(oid102).getTimeSeries().size());
+    assertEquals(_htsMaster.getTimeSeries(oid201, vc).getUniqueId(), test.get(oid201).getUniqueId());
+    assertEquals(0, test.get(oid201).getTimeSeries().size());
+  }
+
+  @Test
+  public void test_get_multiple_pre1() {
+    ObjectId oid101 = ObjectId.of("DbHts", "DP101");
+    Map<ObjectId, ManageableHistoricalTimeSeries> test = _htsMaster.getTimeSeries(
+        Arrays.asList(oid101), VersionCorrection.ofVersionAsOf(_version1Instant.minusSeconds(1)), null, null);
+    assertEquals(0, test.size());
+  }
+
   //-------------------------------------------------------------------------
   @Test
   public void test_toString() {
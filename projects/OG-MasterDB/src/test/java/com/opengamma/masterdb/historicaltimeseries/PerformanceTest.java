@@ -5,6 +5,12 @@
  */
 package com.opengamma.masterdb.historicaltimeseries;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.time.calendar.LocalDate;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ConfigurableApplicationContext;
@@ -17,7 +23,10 @@ import com.google.common.collect.Lists;
 import com.opengamma.id.ExternalId;
 import com.opengamma.id.ExternalIdBundle;
 import com.opengamma.id.ExternalIdBundleWithDates;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.VersionCorrection;
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesInfoDocument;
+import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeries;
 import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeriesInfo;
 import com.opengamma.master.historicaltimeseries.impl.RandomTimeSeriesGenerator;
 import com.opengamma.masterdb.DbMasterTestUtils;
@@ -95,4 +104,63 @@ public class PerformanceTest extends DbTest {
         new Object[] { NUM_SERIES, NUM_POINTS, (end - start) / 1E6 }); 
   }
 
+  //-------------------------------------------------------------------------
+  public void readLotsOfTimeSeriesRowsVersusBlocks() {
+    int NUM_SERIES = 500;
+    int NUM_POINTS = 2500;
+    int NUM_READS = 5;
+    
+    DbHistoricalTimeSeriesMaster blockMaster = new DbHistoricalTimeSeriesMaster(_htsMaster.getDbConnector());
+    blockMaster.setBlockStorage(true);
+    List<ObjectId> rowOids = createTimeSeries(_htsMaster, "row", NUM_SERIES, NUM_POINTS);
+    List<ObjectId> blockOids = createTimeSeries(blockMaster, "block", NUM_SERIES, NUM_POINTS);
+    
+    for (int i = 0; i < NUM_READS; i++) {
+      readTimeSeries("row", _htsMaster, rowOids);
+      readTimeSeries("block", blockMaster, blockOids);
+    }
+  }
+
+  private List<ObjectId> createTimeSeries(DbHistoricalTimeSeriesMaster master, String storage, int numSeries, int numPoints) {
+    long start = System.nanoTime();
+    List<ObjectId> oids = new ArrayList<ObjectId>();
+    for (int i = 0; i < numSeries; i++) {
+      ManageableHistoricalTimeSeriesInfo info = new ManageableHistoricalTimeSeriesInfo();
+      info.setName(storage + i);
+      info.setDataField("CLOSE");
+      info.setDataProvider("CMPL");
+      info.setDataSource("BLOOMBERG");
+      info.setObservationTime("LDN_CLOSE");
+      info.setExternalIdBundle(ExternalIdBundleWithDates.of(ExternalIdBundle.of(ExternalId.of(storage, "id" + i))));
+      HistoricalTimeSeriesInfoDocument doc = master.add(new HistoricalTimeSeriesInfoDocument(info));
+      ObjectId oid = doc.getInfo().getTimeSeriesObjectId();
+      master.updateTimeSeriesDataPoints(oid, RandomTimeSeriesGenerator.makeRandomTimeSeries(LocalDate.now().minusYears(10), numPoints));
+      oids.add(oid);
+    }
+    long end = System.nanoTime();
+    s_logger.info("Creating {} series with {} points each using {} storage took {} ms",
+        new Object[] {numSeries, numPoints, storage, (end - start) / 1E6 });
+    return oids;
+  }
+
+  private void readTimeSeries(String storage, DbHistoricalTimeSeriesMaster master, List<ObjectId> oids) {
+    LocalDate from = LocalDate.now().minusYears(5);
+    long start = System.nanoTime();
+    int points = 0;
+    for (ObjectId oid : oids) {
+      points += master.getTimeSeries(oid, VersionCorrection.LATEST).getTimeSeries().size();
+    }
+    long mid = System.nanoTime();
+    Map<ObjectId, ManageableHistoricalTimeSeries> result = master.getTimeSeries(oids, VersionCorrection.LATEST, from, null);
+    int bulkPoints = 0;
+    for (ManageableHistoricalTimeSeries series : result.values()) {
+      bulkPoints += series.getTimeSeries().size();
+    }
+    long end = System.nanoTime();
+    s_logger.info("Reading {} series ({} points) one at a time using {} storage took {} ms",
+        new Object[] {oids.size(), points, storage, (mid - start) / 1E6 });
+    s_logger.info("Reading {} series ({} points) from {} in bulk using {} storage took {} ms",
+        new Object[] {result.size(), bulkPoints, from, storage, (end - mid) / 1E6 });
+  }
+
 }
@@ -107,6 +107,89 @@ public class QueryPositionDbPositionMasterWorkerSearchTest extends AbstractDbPos
     assert222(test.getDocuments().get(1));
   }
 
+  //-------------------------------------------------------------------------
+  @Test
+  public void test_search_cursor() {
+    PositionSearchRequest request = new PositionSearchRequest();
+    request.setPagingRequest(PagingRequest.ofCursor(null, 4));
+    PositionSearchResult test = _posMaster.search(request);
+    
+    assertEquals(true, test.getPaging().isCursorPaging());
+    assertEquals(4, test.getDocuments().size());
+    assert100(test.getDocuments().get(0));
+    assert120(test.getDocuments().get(1));
+    assert121(test.getDocuments().get(2));
+    assert122(test.getDocuments().get(3));
+    assertEquals(true, test.getPaging().isNextPage());
+    
+    request.setPagingRequest(test.getPaging().nextPagingRequest());
+    test = _posMaster.search(request);
+    
+    assertEquals(true, test.getPaging().isCursorPaging());
+    assertEquals(2, test.getDocuments().size());
+    assert123(test.getDocuments().get(0));
+    assert222(test.getDocuments().get(1));
+    assertEquals(false, test.getPaging().isNextPage());
+  }
+
+  @Test
+  public void test_search_cursor_emptyLastPage() {
+    PositionSearchRequest request = new PositionSearchRequest();
+    request.setPagingRequest(PagingRequest.ofCursor(null, 3));
+    PositionSearchResult test = _posMaster.search(request);
+    
+    assertEquals(3, test.getDocuments().size());
+    assert100(test.getDocuments().get(0));
+    assert120(test.getDocuments().get(1));
+    assert121(test.getDocuments().get(2));
+    assertEquals(true, test.getPaging().isNextPage());
+    
+    request.setPagingRequest(test.getPaging().nextPagingRequest());
+    test = _posMaster.search(request);
+    
+    assertEquals(3, test.getDocuments().size());
+    assert122(test.getDocuments().get(0));
+    assert123(test.getDocuments().get(1));
+    assert222(test.getDocuments().get(2));
+    // a full page always has a cursor, so the end is only found by an empty page
+    assertEquals(true, test.getPaging().isNextPage());
+    
+    request.setPagingRequest(test.getPaging().nextPagingRequest());
+    test = _posMaster.search(request);
+    
+    assertEquals(true, test.getPaging().isCursorPaging());
+    assertEquals(0, test.getDocuments().size());
+    assertEquals(false, test.getPaging().isNextPage());
+  }
+
+  @Test
+  public void test_search_cursor_positionIds() {
+    PositionSearchRequest request = new PositionSearchRequest();
+    request.addPositionObjectId(ObjectId.of("DbPos", "120"));
+    request.addPositionObjectId(ObjectId.of("DbPos", "122"));
+    request.addPositionObjectId(ObjectId.of("DbPos", "221"));
+    request.setPagingRequest(PagingRequest.ofCursor(null, 2));
+    PositionSearchResult test = _posMaster.search(request);
+    
+    assertEquals(2, test.getDocuments().size());
+    assert120(test.getDocuments().get(0));
+    assert122(test.getDocuments().get(1));
+    
+    request.setPagingRequest(test.getPaging().nextPagingRequest());
+    test = _posMaster.search(request);
+    
+    assertEquals(1, test.getDocuments().size());
+    assert222(test.getDocuments().get(0));
+    assertEquals(false, test.getPaging().isNextPage());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void test_search_cursorInvalid() {
+    PositionSearchRequest request = new PositionSearchRequest();
+    request.setPagingRequest(PagingRequest.ofCursor("?", 2));
+    _posMaster.search(request);
+  }
+
   //-------------------------------------------------------------------------
   @Test
   public void test_search_positionIds_none() {
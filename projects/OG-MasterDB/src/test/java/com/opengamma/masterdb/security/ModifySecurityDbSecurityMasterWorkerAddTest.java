@@ -9,6 +9,9 @@ import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.Arrays;
+import java.util.List;
+
 import javax.time.Instant;
 
 import org.slf4j.Logger;
@@ -90,4 +93,35 @@ public class ModifySecurityDbSecurityMasterWorkerAddTest extends AbstractDbSecur
     assertEquals(added, test);
   }
 
+  @Test
+  public void test_addAll_addThenGet() {
+    Instant now = Instant.now(_secMaster.getTimeSource());
+    
+    ManageableSecurity security1 = new ManageableSecurity(null, "TestSecurity1", "EQUITY", ExternalIdBundle.of("A", "B"));
+    security1.addAttribute("Key", "Value1");
+    ManageableSecurity security2 = new ManageableSecurity(null, "TestSecurity2", "EQUITY",
+        ExternalIdBundle.of(ExternalId.of("A", "B"), ExternalId.of("A", "C")));
+    ManageableSecurity security3 = new ManageableSecurity(null, "TestSecurity3", "BOND", ExternalIdBundle.EMPTY);
+    security3.addAttribute("Key", "Value3");
+    List<SecurityDocument> added = _secMaster.addAll(Arrays.asList(
+        new SecurityDocument(security1), new SecurityDocument(security2), new SecurityDocument(security3)));
+    
+    assertEquals(3, added.size());
+    assertEquals("TestSecurity1", added.get(0).getSecurity().getName());
+    assertEquals("TestSecurity2", added.get(1).getSecurity().getName());
+    assertEquals("TestSecurity3", added.get(2).getSecurity().getName());
+    for (SecurityDocument doc : added) {
+      assertNotNull(doc.getUniqueId());
+      assertEquals(now, doc.getVersionFromInstant());
+      assertEquals(now, doc.getCorrectionFromInstant());
+      assertEquals(doc.getUniqueId(), doc.getSecurity().getUniqueId());
+      assertEquals(doc, _secMaster.get(doc.getUniqueId()));
+    }
+  }
+
+  @Test
+  public void test_addAll_empty() {
+    assertEquals(0, _secMaster.addAll(Arrays.<SecurityDocument>asList()).size());
+  }
+
 }
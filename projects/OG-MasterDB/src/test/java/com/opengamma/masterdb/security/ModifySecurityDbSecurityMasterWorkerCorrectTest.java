@@ -7,6 +7,9 @@ package com.opengamma.masterdb.security;
 
 import static org.testng.AssertJUnit.assertEquals;
 
+import java.util.Arrays;
+import java.util.List;
+
 import javax.time.Instant;
 
 import org.slf4j.Logger;
@@ -106,4 +109,43 @@ public class ModifySecurityDbSecurityMasterWorkerCorrectTest extends AbstractDbS
     assertEquals(2, searchResult.getDocuments().size());
   }
 
+  @Test
+  public void test_correctAll_getUpdateGet() {
+    Instant now = Instant.now(_secMaster.getTimeSource());
+    
+    UniqueId uniqueId1 = UniqueId.of("DbSec", "101", "0");
+    UniqueId uniqueId2 = UniqueId.of("DbSec", "102", "0");
+    SecurityDocument base1 = _secMaster.get(uniqueId1);
+    SecurityDocument base2 = _secMaster.get(uniqueId2);
+    SecurityDocument input1 = new SecurityDocument(new ManageableSecurity(uniqueId1, "Name1", "Type", ExternalIdBundle.of("A", "B")));
+    SecurityDocument input2 = new SecurityDocument(new ManageableSecurity(uniqueId2, "Name2", "Type", ExternalIdBundle.of("A", "B")));
+    
+    List<SecurityDocument> corrected = _secMaster.correctAll(Arrays.asList(input1, input2));
+    assertEquals(2, corrected.size());
+    assertEquals(uniqueId1.getObjectId(), corrected.get(0).getUniqueId().getObjectId());
+    assertEquals(uniqueId2.getObjectId(), corrected.get(1).getUniqueId().getObjectId());
+    assertEquals(base1.getVersionFromInstant(), corrected.get(0).getVersionFromInstant());
+    assertEquals(base2.getVersionFromInstant(), corrected.get(1).getVersionFromInstant());
+    for (SecurityDocument doc : corrected) {
+      assertEquals(now, doc.getCorrectionFromInstant());
+      assertEquals(null, doc.getCorrectionToInstant());
+      assertEquals(doc, _secMaster.get(doc.getUniqueId()));
+    }
+    assertEquals("Name1", corrected.get(0).getSecurity().getName());
+    assertEquals("Name2", corrected.get(1).getSecurity().getName());
+    
+    SecurityDocument old1 = _secMaster.get(uniqueId1);
+    assertEquals(base1.getVersionToInstant(), old1.getVersionToInstant());
+    assertEquals(now, old1.getCorrectionToInstant());  // old correction ended
+    assertEquals(base1.getSecurity(), old1.getSecurity());
+    assertEquals(now, _secMaster.get(uniqueId2).getCorrectionToInstant());  // old correction ended
+  }
+
+  @Test(expectedExceptions = DataNotFoundException.class)
+  public void test_correctAll_notFound() {
+    SecurityDocument input1 = new SecurityDocument(new ManageableSecurity(UniqueId.of("DbSec", "101", "0"), "Name1", "Type", ExternalIdBundle.of("A", "B")));
+    SecurityDocument input2 = new SecurityDocument(new ManageableSecurity(UniqueId.of("DbSec", "0", "0"), "Name2", "Type", ExternalIdBundle.of("A", "B")));
+    _secMaster.correctAll(Arrays.asList(input1, input2));
+  }
+
 }
@@ -7,6 +7,9 @@ package com.opengamma.masterdb.security;
 
 import static org.testng.AssertJUnit.assertEquals;
 
+import java.util.Arrays;
+import java.util.List;
+
 import javax.time.Instant;
 
 import org.slf4j.Logger;
@@ -110,6 +113,68 @@ public class ModifySecurityDbSecurityMasterWorkerUpdateTest extends AbstractDbSe
     assertEquals(2, searchResult.getDocuments().size());
   }
 
+  @Test
+  public void test_updateAll_getUpdateGet() {
+    Instant now = Instant.now(_secMaster.getTimeSource());
+    
+    UniqueId uniqueId1 = UniqueId.of("DbSec", "101", "0");
+    UniqueId uniqueId2 = UniqueId.of("DbSec", "102", "0");
+    SecurityDocument base1 = _secMaster.get(uniqueId1);
+    SecurityDocument base2 = _secMaster.get(uniqueId2);
+    SecurityDocument input1 = new SecurityDocument(new ManageableSecurity(uniqueId1, "Name1", "Type", ExternalIdBundle.of("A", "B")));
+    SecurityDocument input2 = new SecurityDocument(new ManageableSecurity(uniqueId2, "Name2", "Type", ExternalIdBundle.of("A", "B")));
+    
+    List<SecurityDocument> updated = _secMaster.updateAll(Arrays.asList(input1, input2));
+    assertEquals(2, updated.size());
+    assertEquals(uniqueId1.getObjectId(), updated.get(0).getUniqueId().getObjectId());
+    assertEquals(uniqueId2.getObjectId(), updated.get(1).getUniqueId().getObjectId());
+    for (SecurityDocument doc : updated) {
+      assertEquals(now, doc.getVersionFromInstant());
+      assertEquals(null, doc.getVersionToInstant());
+      assertEquals(doc, _secMaster.get(doc.getUniqueId()));
+    }
+    assertEquals("Name1", updated.get(0).getSecurity().getName());
+    assertEquals("Name2", updated.get(1).getSecurity().getName());
+    
+    assertEquals(now, _secMaster.get(uniqueId1).getVersionToInstant());  // old version ended
+    assertEquals(now, _secMaster.get(uniqueId2).getVersionToInstant());  // old version ended
+    assertEquals(base1.getSecurity(), _secMaster.get(uniqueId1).getSecurity());
+    assertEquals(base2.getSecurity(), _secMaster.get(uniqueId2).getSecurity());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void test_updateAll_sameObjectId() {
+    UniqueId uniqueId = UniqueId.of("DbSec", "101", "0");
+    SecurityDocument input1 = new SecurityDocument(new ManageableSecurity(uniqueId, "Name1", "Type", ExternalIdBundle.of("A", "B")));
+    SecurityDocument input2 = new SecurityDocument(new ManageableSecurity(uniqueId, "Name2", "Type", ExternalIdBundle.of("A", "B")));
+    _secMaster.updateAll(Arrays.asList(input1, input2));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void test_updateAll_notLatestVersion() {
+    SecurityDocument input1 = new SecurityDocument(new ManageableSecurity(UniqueId.of("DbSec", "101", "0"), "Name1", "Type", ExternalIdBundle.of("A", "B")));
+    SecurityDocument input2 = new SecurityDocument(new ManageableSecurity(UniqueId.of("DbSec", "201", "0"), "Name2", "Type", ExternalIdBundle.of("A", "B")));
+    _secMaster.updateAll(Arrays.asList(input1, input2));
+  }
+
+  @Test
+  public void test_updateAll_rollback() {
+    DbSecurityMaster w = new DbSecurityMaster(_secMaster.getDbConnector());
+    w.setElSqlBundle(ElSqlBundle.of(new ElSqlConfig("TestRollback"), DbSecurityMaster.class));
+    final SecurityDocument base1 = _secMaster.get(UniqueId.of("DbSec", "101", "0"));
+    final SecurityDocument base2 = _secMaster.get(UniqueId.of("DbSec", "102", "0"));
+    SecurityDocument input1 = new SecurityDocument(new ManageableSecurity(base1.getUniqueId(), "Name1", "Type", ExternalIdBundle.of("A", "B")));
+    SecurityDocument input2 = new SecurityDocument(new ManageableSecurity(base2.getUniqueId(), "Name2", "Type", ExternalIdBundle.of("A", "B")));
+    try {
+      w.updateAll(Arrays.asList(input1, input2));
+      Assert.fail();
+    } catch (BadSqlGrammarException ex) {
+      // expected
+    }
+    assertEquals(base1, _secMaster.get(UniqueId.of("DbSec", "101", "0")));
+    assertEquals(base2, _secMaster.get(UniqueId.of("DbSec", "102", "0")));
+  }
+
   @Test
   public void test_update_rollback() {
     DbSecurityMaster w = new DbSecurityMaster(_secMaster.getDbConnector());
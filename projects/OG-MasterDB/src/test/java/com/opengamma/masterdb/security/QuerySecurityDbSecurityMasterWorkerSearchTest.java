@@ -99,6 +99,34 @@ public class QuerySecurityDbSecurityMasterWorkerSearchTest extends AbstractDbSec
     assertEquals(0, test.getDocuments().size());
   }
 
+  @Test
+  public void test_search_cursor() {
+    SecuritySearchRequest request = new SecuritySearchRequest();
+    request.setPagingRequest(PagingRequest.ofCursor(null, 2));
+    SecuritySearchResult test = _secMaster.search(request);
+    
+    assertEquals(true, test.getPaging().isCursorPaging());
+    assertEquals(2, test.getDocuments().size());
+    assert101(test.getDocuments().get(0));
+    assert102(test.getDocuments().get(1));
+    assertEquals(true, test.getPaging().isNextPage());
+    
+    request.setPagingRequest(test.getPaging().nextPagingRequest());
+    test = _secMaster.search(request);
+    
+    assertEquals(true, test.getPaging().isCursorPaging());
+    assertEquals(1, test.getDocuments().size());
+    assert202(test.getDocuments().get(0));
+    assertEquals(false, test.getPaging().isNextPage());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void test_search_cursorInvalid() {
+    SecuritySearchRequest request = new SecuritySearchRequest();
+    request.setPagingRequest(PagingRequest.ofCursor("?", 2));
+    _secMaster.search(request);
+  }
+
   @Test
   public void test_search_identifier() {
     SecuritySearchRequest request = new SecuritySearchRequest();
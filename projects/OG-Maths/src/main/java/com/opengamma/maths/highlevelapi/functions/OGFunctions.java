@@ -11,6 +11,7 @@ import com.opengamma.maths.highlevelapi.datatypes.primitive.OGIndexType;
 import com.opengamma.maths.lowlevelapi.functions.utilities.Min;
 import com.opengamma.maths.lowlevelapi.functions.utilities.Reverse;
 import com.opengamma.maths.lowlevelapi.linearalgebra.blas.BLAS2;
+import com.opengamma.maths.lowlevelapi.linearalgebra.blas.BLAS3;
 
 /**
  * This wraps all the functions for the high level API such that they are just exposed as is.
@@ -50,7 +51,7 @@ public class OGFunctions {
         answer[0][i] = tmp[i];
       }
     } else { // BLAS3.DGEMM
-      throw new MathsExceptionGeneric("BLAS3 DGEMM not implemented yet");
+      answer = BLAS3.dgemm(thisArray, thatArray).toArray();
     }
     return new OGArrayType(answer);
   }
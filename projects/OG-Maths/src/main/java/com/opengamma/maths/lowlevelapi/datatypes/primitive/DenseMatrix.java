@@ -11,6 +11,7 @@ import org.apache.commons.lang.NotImplementedException;
 import org.apache.commons.lang.Validate;
 
 import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.StridedDoubleMatrix2D;
 
 /**
  * The DenseMatrix class provides access to the typically understood notion of a matrix, i.e. A Fully populated array.
@@ -32,6 +33,27 @@ public class DenseMatrix implements MatrixPrimitive {
    * @param aMatrix is an n columns x m rows matrix stored as a row major array of arrays
    */
   public DenseMatrix(double[][] aMatrix) {
+    flatten(aMatrix);
+  }
+
+  // construct from DoubleMatrix2D
+  public DenseMatrix(DoubleMatrix2D aMatrix) {
+    flatten(aMatrix.getData());
+  }
+
+  // construct from StridedDoubleMatrix2D, which is already flat so is copied in one go
+  public DenseMatrix(StridedDoubleMatrix2D aMatrix) {
+    _rows = aMatrix.getNumberOfRows();
+    _cols = aMatrix.getNumberOfColumns();
+    _data = new double[_rows * _cols];
+    aMatrix.copyTo(_data);
+    _rowPtr = new int[_rows];
+    for (int i = 0; i < _rows; i++) {
+      _rowPtr[i] = i * _cols;
+    }
+  }
+
+  private void flatten(double[][] aMatrix) {
     // test if ragged
     if (MatrixPrimitiveUtils.isRagged(aMatrix)) {
       throw new NotImplementedException("Construction from ragged array not implemented");
@@ -60,11 +82,6 @@ public class DenseMatrix implements MatrixPrimitive {
     }
   }
 
-  // construct from DoubleMatrix2D
-  public DenseMatrix(DoubleMatrix2D aMatrix) {
-    this(aMatrix.toArray());
-  }
-
   /**
    * A blank dense matrix; contains nothing, nothing is set.
    */
@@ -0,0 +1,206 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.maths.lowlevelapi.linearalgebra.blas;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.maths.highlevelapi.datatypes.primitive.OGArrayType;
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.CompressedSparseColumnFormatMatrix;
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.CompressedSparseRowFormatMatrix;
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.DenseMatrix;
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.DenseSymmetricMatrix;
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.MatrixPrimitive;
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.PackedMatrix;
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.SparseCoordinateFormatMatrix;
+import com.opengamma.maths.lowlevelapi.linearalgebra.blas.blas3kernelabstractions.BLAS3DGEMMKernelAbstraction;
+import com.opengamma.maths.lowlevelapi.linearalgebra.blas.blas3kernelimplementations.DGEMMForCOOMatrix;
+import com.opengamma.maths.lowlevelapi.linearalgebra.blas.blas3kernelimplementations.DGEMMForCSCMatrix;
+import com.opengamma.maths.lowlevelapi.linearalgebra.blas.blas3kernelimplementations.DGEMMForCSRMatrix;
+import com.opengamma.maths.lowlevelapi.linearalgebra.blas.blas3kernelimplementations.DGEMMForDenseMatrix;
+import com.opengamma.maths.lowlevelapi.linearalgebra.blas.blas3kernelimplementations.DGEMMForDenseSymmetricMatrix;
+import com.opengamma.maths.lowlevelapi.linearalgebra.blas.blas3kernelimplementations.DGEMMForPackedMatrix;
+
+/**
+ * Provides the BLAS level 3 behaviour for the OG matrix library.
+ * Massive amounts of overloading goes on, beware and only use if confident.
+ * METHODS: DGEMM
+ */
+public class BLAS3 {
+  /**
+   * orientation: Enumeration based for the orientation of matrices A and B in the scheme
+   * C := alpha*A*B + beta*C
+   */
+  public enum orientation {
+    /** orientation is "normal" */
+    normal,
+    /** orientation is "transposed" */
+    transposed
+  }
+
+  /**
+  * DGEMM  performs one of the following matrix matrix operations
+  *
+  *  C := alpha*op(A)*op(B) + beta*C,
+  *
+  *  where op(X) is X or X^T, alpha and beta are scalars, A is an m by k matrix of any of the supported types and
+  *  B and C are dense. The ^T indicates transposition.
+  *
+  *  For speed, the method is overloaded such that simplified calls can be
+  *  made when different parts of the DGEMM operation are not needed.
+  *
+  */
+
+  /**
+   * DGEMM hashmapped function pointers
+   */
+  private static Map<Class<?>, BLAS3DGEMMKernelAbstraction<?>> s_dgemmFunctionPointers = new HashMap<Class<?>, BLAS3DGEMMKernelAbstraction<?>>();
+  static {
+    s_dgemmFunctionPointers.put(OGArrayType.class, DGEMMForDenseMatrix.getInstance()); // this is the wrapper for the high level API
+    s_dgemmFunctionPointers.put(DenseMatrix.class, DGEMMForDenseMatrix.getInstance());
+    s_dgemmFunctionPointers.put(CompressedSparseRowFormatMatrix.class, DGEMMForCSRMatrix.getInstance());
+    s_dgemmFunctionPointers.put(CompressedSparseColumnFormatMatrix.class, DGEMMForCSCMatrix.getInstance());
+    s_dgemmFunctionPointers.put(SparseCoordinateFormatMatrix.class, DGEMMForCOOMatrix.getInstance());
+    s_dgemmFunctionPointers.put(PackedMatrix.class, DGEMMForPackedMatrix.getInstance());
+    s_dgemmFunctionPointers.put(DenseSymmetricMatrix.class, DGEMMForDenseSymmetricMatrix.getInstance());
+  }
+
+  public Map<Class<?>, BLAS3DGEMMKernelAbstraction<?>> getHashMap() {
+    return s_dgemmFunctionPointers;
+  }
+
+  /* GROUP1:: A*B */
+  /**
+   * DGEMM simplified: returns:=A*B
+   * @param aMatrix a Matrix implementing the MatrixPrimitive interface
+   * @param bMatrix a dense matrix
+   * @param <T> a matrix that implements {@link MatrixPrimitive}
+   * @return a new dense matrix
+   */
+  public static <T extends MatrixPrimitive> DenseMatrix dgemm(T aMatrix, DenseMatrix bMatrix) {
+    return dgemm(1, aMatrix, bMatrix, orientation.normal, orientation.normal);
+  }
+
+  /* GROUP2:: op(A)*op(B) */
+  /**
+   * DGEMM simplified: returns:=op(A)*op(B) depending on the enum orientations.
+   * @param aMatrix a Matrix implementing the MatrixPrimitive interface
+   * @param bMatrix a dense matrix
+   * @param oA orientation of A
+   * @param oB orientation of B
+   * @param <T> a matrix that implements {@link MatrixPrimitive}
+   * @return a new dense matrix
+   */
+  public static <T extends MatrixPrimitive> DenseMatrix dgemm(T aMatrix, DenseMatrix bMatrix, BLAS3.orientation oA, BLAS3.orientation oB) {
+    return dgemm(1, aMatrix, bMatrix, oA, oB);
+  }
+
+  /* GROUP3:: alpha*op(A)*op(B) */
+  /**
+   * DGEMM simplified: returns:=alpha*op(A)*op(B) depending on the enum orientations.
+   * @param alpha a double indicating the scaling of op(A)*op(B)
+   * @param aMatrix a Matrix implementing the MatrixPrimitive interface
+   * @param bMatrix a dense matrix
+   * @param oA orientation of A
+   * @param oB orientation of B
+   * @param <T> a matrix that implements {@link MatrixPrimitive}
+   * @return a new dense matrix
+   */
+  public static <T extends MatrixPrimitive> DenseMatrix dgemm(double alpha, T aMatrix, DenseMatrix bMatrix, BLAS3.orientation oA, BLAS3.orientation oB) {
+    Validate.notNull(aMatrix);
+    Validate.notNull(bMatrix);
+    final int rows = oA == orientation.normal ? aMatrix.getNumberOfRows() : aMatrix.getNumberOfColumns();
+    final int cols = oB == orientation.normal ? bMatrix.getNumberOfColumns() : bMatrix.getNumberOfRows();
+    final DenseMatrix cMatrix = new DenseMatrix().noCopyOnContructFromRowVector(new double[rows * cols], rows, cols);
+    dgemmInplace(cMatrix, alpha, aMatrix, bMatrix, 0, oA, oB);
+    return cMatrix;
+  }
+
+  /* GROUP4:: C := alpha*A*B + beta*C */
+  /**
+   * DGEMM in place: C:=alpha*A*B + beta*C
+   * @param cMatrix the dense matrix C, overwritten with the result
+   * @param alpha a double indicating the scaling of A*B
+   * @param aMatrix a Matrix implementing the MatrixPrimitive interface
+   * @param bMatrix a dense matrix
+   * @param beta a double indicating the scaling of C, if zero C is not read
+   * @param <T> a matrix that implements {@link MatrixPrimitive}
+   */
+  public static <T extends MatrixPrimitive> void dgemmInplace(DenseMatrix cMatrix, double alpha, T aMatrix, DenseMatrix bMatrix, double beta) {
+    dgemmInplace(cMatrix, alpha, aMatrix, bMatrix, beta, orientation.normal, orientation.normal);
+  }
+
+  /* GROUP5:: C := alpha*op(A)*op(B) + beta*C */
+  /**
+   * DGEMM in place: C:=alpha*op(A)*op(B) + beta*C depending on the enum orientations.
+   * @param cMatrix the dense matrix C, overwritten with the result
+   * @param alpha a double indicating the scaling of op(A)*op(B)
+   * @param aMatrix a Matrix implementing the MatrixPrimitive interface
+   * @param bMatrix a dense matrix
+   * @param beta a double indicating the scaling of C, if zero C is not read
+   * @param oA orientation of A
+   * @param oB orientation of B
+   * @param <T> a matrix that implements {@link MatrixPrimitive}
+   */
+  @SuppressWarnings("unchecked")
+  public static <T extends MatrixPrimitive> void dgemmInplace(DenseMatrix cMatrix, double alpha, T aMatrix, DenseMatrix bMatrix, double beta, BLAS3.orientation oA,
+      BLAS3.orientation oB) {
+    Validate.notNull(aMatrix);
+    Validate.notNull(bMatrix);
+    Validate.notNull(cMatrix);
+    Validate.notNull(oA);
+    Validate.notNull(oB);
+    // OGArrayType hands out copies of its data so can't be written to in place
+    Validate.isTrue(cMatrix.getClass() == DenseMatrix.class, "BLAS3 DGEMM can only write to a DenseMatrix, C is a " + cMatrix.getClass());
+    BLAS3DGEMMKernelAbstraction<T> use = (BLAS3DGEMMKernelAbstraction<T>) s_dgemmFunctionPointers.get(aMatrix.getClass());
+    Validate.notNull(use, "BLAS3 DGEMM was called with an unknown Matrix type: " + aMatrix.getClass() + ". If this type is needed the implement a BLAS3DGEMMKernelAbstraction.");
+    final DenseMatrix b = oB == orientation.normal ? bMatrix : transpose(bMatrix);
+    dgemmInputSanityChecker(cMatrix, aMatrix, b, oA);
+    switch (oA) {
+      case normal:
+        use.dm_inplace_alpha_times_A_times_B_plus_beta_times_C(alpha, aMatrix, b, beta, cMatrix);
+        break;
+      case transposed:
+        use.dm_inplace_alpha_times_AT_times_B_plus_beta_times_C(alpha, aMatrix, b, beta, cMatrix);
+        break;
+      default:
+        throw new IllegalArgumentException("BLAS3.orientation should be enumerated to either normal or transpose.");
+    }
+  }
+
+  /**
+   * Ensures that the inputs to DGEMM routines are sane, B has already been transposed if needed.
+   * @param cMatrix the matrix C
+   * @param aMatrix the matrix A
+   * @param bMatrix the matrix B
+   * @param oA the orientation of A
+   */
+  public static void dgemmInputSanityChecker(DenseMatrix cMatrix, MatrixPrimitive aMatrix, DenseMatrix bMatrix, BLAS3.orientation oA) {
+    final int aRows = oA == orientation.normal ? aMatrix.getNumberOfRows() : aMatrix.getNumberOfColumns();
+    final int aCols = oA == orientation.normal ? aMatrix.getNumberOfColumns() : aMatrix.getNumberOfRows();
+    Validate.isTrue(aCols == bMatrix.getNumberOfRows(), "Matrices do not conform: op(A) is " + aRows + "x" + aCols + ", op(B) is " + bMatrix.getNumberOfRows() + "x"
+        + bMatrix.getNumberOfColumns());
+    Validate.isTrue(aRows == cMatrix.getNumberOfRows() && bMatrix.getNumberOfColumns() == cMatrix.getNumberOfColumns(), "C is " + cMatrix.getNumberOfRows() + "x"
+        + cMatrix.getNumberOfColumns() + " but op(A)*op(B) is " + aRows + "x" + bMatrix.getNumberOfColumns());
+  }
+
+  private static DenseMatrix transpose(DenseMatrix aMatrix) {
+    final int rows = aMatrix.getNumberOfRows();
+    final int cols = aMatrix.getNumberOfColumns();
+    final double[] data = aMatrix.getData();
+    final double[] tmp = new double[data.length];
+    for (int i = 0; i < rows; i++) {
+      final int row = i * cols;
+      for (int j = 0; j < cols; j++) {
+        tmp[j * rows + i] = data[row + j];
+      }
+    }
+    return new DenseMatrix().noCopyOnContructFromRowVector(tmp, cols, rows);
+  }
+
+}
@@ -5,333 +5,71 @@
  */
 package com.opengamma.maths.lowlevelapi.linearalgebra.blas.blas3kernelabstractions;
 
-import com.opengamma.analytics.math.matrix.Matrix;
+import java.util.Arrays;
+
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.DenseMatrix;
 import com.opengamma.maths.lowlevelapi.datatypes.primitive.MatrixPrimitive;
 
 /**
- * BLAS2*KernelAbstraction classes are used to kinda emulate function pointer passing.
+ * BLAS3*KernelAbstraction classes are used to kinda emulate function pointer passing.
  * We want a unified set of BLAS templates with Matrix type, machine and performance specific kernels.
  * This class helps the class hierarchy mangle achieve this for DGEMM.
  *
- * If you want to add a new BLAS3 DGEMM kernel set for matrix types of your choice then just implement this
+ * If you want to add a new BLAS3 DGEMM kernel set for a matrix type of your choice then just implement this
  * and update the corresponding hashmap in BLAS3.
- * @param <TYPEA> a kind of matrix A
- * @param <TYPEB> a kind of matrix B
- * @param <TYPEC> a kind of matrix C
- * @param <TYPER> return type. TODO: Fix this, needs to happen via visitors or similar. 
+ * @param <T> a kind of matrix A, B and C are always {@link DenseMatrix}
+ *
  * Function names starting with "dm_" are "direct mathematics" functions, their names are deliberately written with
  * underscores in to split out the mathematical operations they perform for ease of reading.
- * 
+ *
+ * Rather than have every kernel implement every one of the 24 combinations of alpha, beta and transposition
+ * (A*B, AT*B, A*BT, alpha*A*B + C ...) the kernels only implement the two in place forms below.
+ * BLAS3 builds the rest from these; transposing B is an O(k*n) copy, which is cheap against the O(m*k*n) product.
+ * All matrices are row major, C is m x n, B is k x n and A is m x k (or k x m if transposed).
  */
-public abstract class BLAS3DGEMMKernelAbstraction<TYPER extends Matrix<Double>, TYPEA extends Matrix<Double>, TYPEB extends Matrix<Double>, TYPEC extends Matrix<Double>> {
-  // yet another everything with everything combo magic situation, think we have something like 8 types which means 8!/(6!)=56 variants to implement!
-  //GROUP1:: A*B
-  //GROUP2:: AT*B
-  //GROUP3:: A*BT
-  //GROUP4:: AT*BT
-  //GROUP5:: alpha*A*B
-  //GROUP6:: alpha*AT*B
-  //GROUP7:: alpha*A*BT
-  //GROUP8:: alpha*AT*BT
-  //GROUP9:: A*B + C
-  //GROUP10:: AT*B + C
-  //GROUP11:: A*BT + C
-  //GROUP12:: AT*BT + C
-  //GROUP13:: alpha*A*B + C
-  //GROUP14:: alpha*AT*B + C
-  //GROUP15:: alpha*A*BT + C
-  //GROUP16:: alpha*AT*BT + C
-  //GROUP17:: A*B + beta*C
-  //GROUP18:: AT*B + beta*C
-  //GROUP19:: A*BT + beta*C
-  //GROUP20:: AT*BT + beta*C
-  //GROUP21:: alpha*A*B + beta*C
-  //GROUP22:: alpha*AT*B + beta*C
-  //GROUP23:: alpha*A*BT + beta*C
-  //GROUP24:: alpha*AT*BT + beta*C
-
-  /* Stateless manipulators */
-  //  {
-
-  /* GROUP1:: A*B */
-  /**
-   * Stateless DGEMM:: returns A*B
-   */
-  public abstract MatrixPrimitive dm_stateless_A_times_B(TYPEA A, TYPEB B); //CSIGNORE
-
-  /* GROUP2:: AT*B */
-  /**
-   * Stateless DGEMM:: returns AT*B
-   */
-  public abstract double[] dm_stateless_AT_times_B(TYPEA A, TYPEB B); //CSIGNORE
-
-  /* GROUP3:: A*BT */
-  /**
-   * Stateless DGEMM:: returns A*BT
-   */
-  public abstract double[] dm_stateless_A_times_BT(TYPEA A, TYPEB B); //CSIGNORE
-
-  /* GROUP4:: AT*BT */
-  /**
-   * Stateless DGEMM:: returns AT*BT
-   */
-  public abstract double[] dm_stateless_AT_times_BT(TYPEA A, TYPEB B); //CSIGNORE
-
-  /* GROUP5:: alpha*A*B */
-  /**
-   * Stateless DGEMM:: returns alpha*A*B
-   */
-  public abstract double[] dm_stateless_alpha_A_times_B(TYPEA A, TYPEB B); //CSIGNORE
-
-  /* GROUP6:: alpha*AT*B */
-  /**
-   * Stateless DGEMM:: returns alpha*AT*B
-   */
-  public abstract double[] dm_stateless_alpha_AT_times_B(TYPEA A, TYPEB B); //CSIGNORE
-
-  /* GROUP7:: alpha*A*BT */
-  /**
-   * Stateless DGEMM:: returns alpha*A*BT
-   */
-  public abstract double[] dm_stateless_alpha_A_times_BT(TYPEA A, TYPEB B); //CSIGNORE
-
-  /* GROUP8:: alpha*AT*BT */
-  /**
-   * Stateless DGEMM:: returns alpha*AT*BT
-   */
-  public abstract double[] dm_stateless_alpha_AT_times_BT(TYPEA A, TYPEB B); //CSIGNORE
-
-  /* GROUP9:: A*B+C */
-  /**
-   * Stateless DGEMM:: returns A*B+C
-   */
-  public abstract double[] dm_stateless_A_times_B_plus_C(TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
-
-  /* GROUP10:: AT*B+C */
-  /**
-   * Stateless DGEMM:: returns AT*B+C
-   */
-  public abstract double[] dm_stateless_AT_times_B_plus_C(TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
-
-  /* GROUP11:: A*BT+C */
-  /**
-   * Stateless DGEMM:: returns A*BT+C
-   */
-  public abstract double[] dm_stateless_A_times_BT_plus_C(TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
-
-  /* GROUP12:: AT*BT+C */
-  /**
-   * Stateless DGEMM:: returns AT*BT+C
-   */
-  public abstract double[] dm_stateless_AT_times_BT_plus_C(TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
-
-  /* GROUP13:: alpha*A*B+C */
-  /**
-   * Stateless DGEMM:: returns alpha*A*B+C
-   */
-  public abstract double[] dm_stateless_alpha_A_times_B_plus_C(TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
-
-  /* GROUP14:: alpha*AT*B+C */
-  /**
-   * Stateless DGEMM:: returns alpha*AT*B+C
-   */
-  public abstract double[] dm_stateless_alpha_AT_times_B_plus_C(TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
-
-  /* GROUP15:: alpha*A*BT+C */
-  /**
-   * Stateless DGEMM:: returns alpha*A*BT+C
-   */
-  public abstract double[] dm_stateless_alpha_A_times_BT_plus_C(TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
-
-  /* GROUP16:: alpha*AT*BT+C */
-  /**
-   * Stateless DGEMM:: returns alpha*AT*BT+C
-   */
-  public abstract double[] dm_stateless_alpha_AT_times_BT_plus_C(TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
-
-  /* GROUP17:: A*B+beta*C */
-  /**
-   * Stateless DGEMM:: returns A*B+beta*C
-   */
-  public abstract double[] dm_stateless_A_times_B_plus_beta_times_C(TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
-
-  /* GROUP18:: AT*B+beta*C */
-  /**
-   * Stateless DGEMM:: returns AT*B+beta*C
-   */
-  public abstract double[] dm_stateless_AT_times_B_plus_beta_times_C(TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
+public abstract class BLAS3DGEMMKernelAbstraction<T extends MatrixPrimitive> {
 
-  /* GROUP19:: A*BT+beta*C */
+  /* In place manipulators */
   /**
-   * Stateless DGEMM:: returns A*BT+beta*C
+   * In place DGEMM:: C := alpha*A*B + beta*C
    */
-  public abstract double[] dm_stateless_A_times_BT_plus_beta_times_C(TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
+  public abstract void dm_inplace_alpha_times_A_times_B_plus_beta_times_C(double alpha, T A, DenseMatrix B, double beta, DenseMatrix C); //CSIGNORE
 
-  /* GROUP20:: AT*BT+beta*C */
   /**
-   * Stateless DGEMM:: returns AT*BT+beta*C
+   * In place DGEMM:: C := alpha*A^T*B + beta*C
    */
-  public abstract double[] dm_stateless_AT_times_BT_plus_beta_times_C(TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
+  public abstract void dm_inplace_alpha_times_AT_times_B_plus_beta_times_C(double alpha, T A, DenseMatrix B, double beta, DenseMatrix C); //CSIGNORE
 
-  /* GROUP21:: alpha*A*B+beta*C */
+  /* Helpers for the kernels */
   /**
-   * Stateless DGEMM:: returns alpha*A*B+beta*C
+   * Scales C by beta, as in the reference BLAS C is not read if beta is zero.
+   * @param beta the scaling
+   * @param c the data of C
    */
-  public abstract double[] dm_stateless_alpha_times_A_times_B_plus_beta_times_C(TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
+  protected static void scale(final double beta, final double[] c) {
+    if (beta == 0) {
+      Arrays.fill(c, 0);
+    } else if (beta != 1) {
+      for (int i = 0; i < c.length; i++) {
+        c[i] *= beta;
+      }
+    }
+  }
 
-  /* GROUP22:: alpha*AT*B+beta*C */
   /**
-   * Stateless DGEMM:: returns alpha*AT*B+beta*C
+   * Row update used by the sparse kernels, C[cOffset:cOffset+n] += a*B[bOffset:bOffset+n].
+   * A zero a is not skipped, so that NaN and infinite entries of B propagate into C as they do in the dense kernel.
+   * @param a the scaling
+   * @param b the data of B
+   * @param bOffset the start of the row of B
+   * @param c the data of C
+   * @param cOffset the start of the row of C
+   * @param n the row length
    */
-  public abstract double[] dm_stateless_alpha_times_AT_times_B_plus_beta_times_C(TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
-
-  /* GROUP23:: alpha*A*BT+beta*C */
-  /**
-   * Stateless DGEMM:: returns alpha*A*BT+beta*C
-   */
-  public abstract double[] dm_stateless_alpha_times_A_times_BT_plus_beta_times_C(TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
-
-  /* GROUP24:: alpha*AT*BT+beta*C */
-  /**
-   * Stateless DGEMM:: returns alpha*AT*BT+beta*C
-   */
-  public abstract double[] dm_stateless_alpha_times_AT_times_BT_plus_beta_times_C(TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
-
-  //} end stateless
-
-  //{ Stateful
-  //GROUP1:: A*B
-  //GROUP2:: AT*B
-  //GROUP3:: A*BT
-  //GROUP4:: AT*BT
-  //GROUP5:: alpha*A*B
-  //GROUP6:: alpha*AT*B
-  //GROUP7:: alpha*A*BT
-  //GROUP8:: alpha*AT*BT
-  //GROUP9:: A*B + C
-  //GROUP10:: AT*B + C
-  //GROUP11:: A*BT + C
-  //GROUP12:: AT*BT + C
-  //GROUP13:: alpha*A*B + C
-  //GROUP14:: alpha*AT*B + C
-  //GROUP15:: alpha*A*BT + C
-  //GROUP16:: alpha*AT*BT + C
-  //GROUP17:: A*B + beta*C
-  //GROUP18:: AT*B + beta*C
-  //GROUP19:: A*BT + beta*C
-  //GROUP20:: AT*BT + beta*C
-  //GROUP21:: alpha*A*B + beta*C
-  //GROUP22:: alpha*AT*B + beta*C
-  //GROUP23:: alpha*A*BT + beta*C
-  //GROUP24:: alpha*AT*BT + beta*C
-
-  /* groups 1-8 are meaningless for inplace ops as it is C that is modified inplace and groups 1-8 do not contain C.
-  //GROUP1:: A*B
-  //GROUP2:: AT*B
-  //GROUP3:: A*BT
-  //GROUP4:: AT*BT
-  //GROUP5:: alpha*A*B
-  //GROUP6:: alpha*AT*B
-  //GROUP7:: alpha*A*BT
-  //GROUP8:: alpha*AT*BT
-  */
-
-  /* GROUP9:: performs C:= A*B+C */
-  /**
-   * In place DGEMM::  performs C:= A*B+C
-   */
-  public abstract void dm_inplace_A_times_B_plus_C(TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
-
-  /* GROUP10:: performs C:=  AT*B+C */
-  /**
-   * In place DGEMM::  performs C:= AT*B+C
-   */
-  public abstract void dm_inplace_AT_times_B_plus_C(TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
-
-  /* GROUP11:: performs C:=  A*BT+C */
-  /**
-   * In place DGEMM::  performs C:= A*BT+C
-   */
-  public abstract void dm_inplace_A_times_BT_plus_C(TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
-
-  /* GROUP12:: performs C:=  AT*BT+C */
-  /**
-   * In place DGEMM::  performs C:= AT*BT+C
-   */
-  public abstract void dm_inplace_AT_times_BT_plus_C(TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
-
-  /* GROUP13:: performs C:=  alpha*A*B+C */
-  /**
-   * In place DGEMM::  performs C:= alpha*A*B+C
-   */
-  public abstract void dm_inplace_alpha_A_times_B_plus_C(double alpha, TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
-
-  /* GROUP14:: performs C:=  alpha*AT*B+C */
-  /**
-   * In place DGEMM::  performs C:= alpha*AT*B+C
-   */
-  public abstract void dm_inplace_alpha_AT_times_B_plus_C(double alpha, TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
-
-  /* GROUP15:: performs C:=  alpha*A*BT+C */
-  /**
-   * In place DGEMM::  performs C:= alpha*A*BT+C
-   */
-  public abstract void dm_inplace_alpha_A_times_BT_plus_C(double alpha, TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
-
-  /* GROUP16:: alpha*AT*BT+C */
-  /**
-   * In place DGEMM::  performs C:= alpha*AT*BT+C
-   */
-  public abstract void dm_inplace_alpha_AT_times_BT_plus_C(double alpha, TYPEA A, TYPEB B, TYPEC C); //CSIGNORE
-
-  /* GROUP17:: A*B+beta*C */
-  /**
-   * In place DGEMM::  performs C:= A*B+beta*C
-   */
-  public abstract void dm_inplace_A_times_B_plus_beta_times_C(TYPEA A, TYPEB B, double beta, TYPEC C); //CSIGNORE
-
-  /* GROUP18:: AT*B+beta*C */
-  /**
-   * In place DGEMM::  performs C:= AT*B+beta*C
-   */
-  public abstract void dm_inplace_AT_times_B_plus_beta_times_C(TYPEA A, TYPEB B, double beta, TYPEC C); //CSIGNORE
-
-  /* GROUP19:: A*BT+beta*C */
-  /**
-   * In place DGEMM::  performs C:= A*BT+beta*C
-   */
-  public abstract void dm_inplace_A_times_BT_plus_beta_times_C(TYPEA A, TYPEB B, double beta, TYPEC C); //CSIGNORE
-
-  /* GROUP20:: AT*BT+beta*C */
-  /**
-   * In place DGEMM:: returns AT*BT+beta*C
-   */
-  public abstract void dm_inplace_AT_times_BT_plus_beta_times_C(TYPEA A, TYPEB B, double beta, TYPEC C); //CSIGNORE
-
-  /* GROUP21:: alpha*A*B+beta*C */
-  /**
-   * In place DGEMM::  performs C:= alpha*A*B+beta*C
-   */
-  public abstract void dm_inplace_alpha_times_A_times_B_plus_beta_times_C(double alpha, TYPEA A, TYPEB B, double beta, TYPEC C); //CSIGNORE
-
-  /* GROUP22:: alpha*AT*B+beta*C */
-  /**
-   * In place DGEMM::  performs C:= alpha*AT*B+beta*C
-   */
-  public abstract void dm_inplace_alpha_times_AT_times_B_plus_beta_times_C(double alpha, TYPEA A, TYPEB B, double beta, TYPEC C); //CSIGNORE
-
-  /* GROUP23:: alpha*A*BT+beta*C */
-  /**
-   * In place DGEMM::  performs C:= alpha*A*BT+beta*C
-   */
-  public abstract void dm_inplace_alpha_times_A_times_BT_plus_beta_times_C(double alpha, TYPEA A, TYPEB B, double beta, TYPEC C); //CSIGNORE
-
-  /* GROUP24:: alpha*AT*BT+beta*C */
-  /**
-   * In place DGEMM::  performs C:= alpha*AT*BT+beta*C
-   */
-  public abstract void dm_inplace_alpha_times_AT_times_BT_plus_beta_times_C(double alpha, TYPEA A, TYPEB B, double beta, TYPEC C); //CSIGNORE
-
-  //} end stateful
+  protected static void axpy(final double a, final double[] b, final int bOffset, final double[] c, final int cOffset, final int n) {
+    for (int j = 0; j < n; j++) {
+      c[cOffset + j] += a * b[bOffset + j];
+    }
+  }
 
 }
@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.maths.lowlevelapi.linearalgebra.blas.blas3kernelimplementations;
+
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.SparseCoordinateFormatMatrix;
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.DenseMatrix;
+import com.opengamma.maths.lowlevelapi.linearalgebra.blas.blas3kernelabstractions.BLAS3DGEMMKernelAbstraction;
+
+/**
+ * Does DGEMM like operations on the {@link SparseCoordinateFormatMatrix} type.
+ * Each non-zero A(i,k) adds a multiple of row k of B to row i of C, so B and C are only ever walked along their rows.
+ */
+public final class DGEMMForCOOMatrix extends BLAS3DGEMMKernelAbstraction<SparseCoordinateFormatMatrix> {
+  private static DGEMMForCOOMatrix s_instance = new DGEMMForCOOMatrix();
+
+  public static DGEMMForCOOMatrix getInstance() {
+    return s_instance;
+  }
+
+  private DGEMMForCOOMatrix() {
+  }
+
+  @Override
+  public void dm_inplace_alpha_times_A_times_B_plus_beta_times_C(final double alpha, final SparseCoordinateFormatMatrix A, final DenseMatrix B, final double beta, final DenseMatrix C) { //CSIGNORE
+    final double[] c = C.getData();
+    scale(beta, c);
+    if (alpha == 0) {
+      return;
+    }
+    final double[] b = B.getData();
+    final int n = C.getNumberOfColumns();
+    final int[] rowIdx = A.getRowCoordinates();
+    final int[] colIdx = A.getColumnCoordinates();
+    final double[] values = A.getNonZeroEntries();
+    for (int ptr = 0; ptr < values.length; ptr++) {
+      axpy(alpha * values[ptr], b, colIdx[ptr] * n, c, rowIdx[ptr] * n, n);
+    }
+  }
+
+  @Override
+  public void dm_inplace_alpha_times_AT_times_B_plus_beta_times_C(final double alpha, final SparseCoordinateFormatMatrix A, final DenseMatrix B, final double beta, final DenseMatrix C) { //CSIGNORE
+    final double[] c = C.getData();
+    scale(beta, c);
+    if (alpha == 0) {
+      return;
+    }
+    final double[] b = B.getData();
+    final int n = C.getNumberOfColumns();
+    final int[] rowIdx = A.getRowCoordinates();
+    final int[] colIdx = A.getColumnCoordinates();
+    final double[] values = A.getNonZeroEntries();
+    for (int ptr = 0; ptr < values.length; ptr++) {
+      axpy(alpha * values[ptr], b, rowIdx[ptr] * n, c, colIdx[ptr] * n, n);
+    }
+  }
+
+}
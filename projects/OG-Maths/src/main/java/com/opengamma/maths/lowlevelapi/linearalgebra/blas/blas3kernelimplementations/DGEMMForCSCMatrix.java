@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.maths.lowlevelapi.linearalgebra.blas.blas3kernelimplementations;
+
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.CompressedSparseColumnFormatMatrix;
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.DenseMatrix;
+import com.opengamma.maths.lowlevelapi.linearalgebra.blas.blas3kernelabstractions.BLAS3DGEMMKernelAbstraction;
+
+/**
+ * Does DGEMM like operations on the {@link CompressedSparseColumnFormatMatrix} type.
+ * Each non-zero A(i,k) adds a multiple of row k of B to row i of C, so B and C are only ever walked along their rows.
+ */
+public final class DGEMMForCSCMatrix extends BLAS3DGEMMKernelAbstraction<CompressedSparseColumnFormatMatrix> {
+  private static DGEMMForCSCMatrix s_instance = new DGEMMForCSCMatrix();
+
+  public static DGEMMForCSCMatrix getInstance() {
+    return s_instance;
+  }
+
+  private DGEMMForCSCMatrix() {
+  }
+
+  @Override
+  public void dm_inplace_alpha_times_A_times_B_plus_beta_times_C(final double alpha, final CompressedSparseColumnFormatMatrix A, final DenseMatrix B, final double beta, final DenseMatrix C) { //CSIGNORE
+    final double[] c = C.getData();
+    scale(beta, c);
+    if (alpha == 0) {
+      return;
+    }
+    final double[] b = B.getData();
+    final int n = C.getNumberOfColumns();
+    final int[] colPtr = A.getColumnPtr();
+    final int[] rowIdx = A.getRowIndex();
+    final double[] values = A.getNonZeroElements();
+    final int cols = A.getNumberOfColumns();
+    for (int k = 0; k < cols; k++) {
+      for (int ptr = colPtr[k]; ptr < colPtr[k + 1]; ptr++) {
+        axpy(alpha * values[ptr], b, k * n, c, rowIdx[ptr] * n, n);
+      }
+    }
+  }
+
+  @Override
+  public void dm_inplace_alpha_times_AT_times_B_plus_beta_times_C(final double alpha, final CompressedSparseColumnFormatMatrix A, final DenseMatrix B, final double beta, final DenseMatrix C) { //CSIGNORE
+    final double[] c = C.getData();
+    scale(beta, c);
+    if (alpha == 0) {
+      return;
+    }
+    final double[] b = B.getData();
+    final int n = C.getNumberOfColumns();
+    final int[] colPtr = A.getColumnPtr();
+    final int[] rowIdx = A.getRowIndex();
+    final double[] values = A.getNonZeroElements();
+    final int cols = A.getNumberOfColumns();
+    for (int i = 0; i < cols; i++) {
+      for (int ptr = colPtr[i]; ptr < colPtr[i + 1]; ptr++) {
+        axpy(alpha * values[ptr], b, rowIdx[ptr] * n, c, i * n, n);
+      }
+    }
+  }
+
+}
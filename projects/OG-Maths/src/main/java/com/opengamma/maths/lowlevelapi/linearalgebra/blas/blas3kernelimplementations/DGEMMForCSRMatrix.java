@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.maths.lowlevelapi.linearalgebra.blas.blas3kernelimplementations;
+
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.CompressedSparseRowFormatMatrix;
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.DenseMatrix;
+import com.opengamma.maths.lowlevelapi.linearalgebra.blas.blas3kernelabstractions.BLAS3DGEMMKernelAbstraction;
+
+/**
+ * Does DGEMM like operations on the {@link CompressedSparseRowFormatMatrix} type.
+ * Each non-zero A(i,k) adds a multiple of row k of B to row i of C, so B and C are only ever walked along their rows.
+ */
+public final class DGEMMForCSRMatrix extends BLAS3DGEMMKernelAbstraction<CompressedSparseRowFormatMatrix> {
+  private static DGEMMForCSRMatrix s_instance = new DGEMMForCSRMatrix();
+
+  public static DGEMMForCSRMatrix getInstance() {
+    return s_instance;
+  }
+
+  private DGEMMForCSRMatrix() {
+  }
+
+  @Override
+  public void dm_inplace_alpha_times_A_times_B_plus_beta_times_C(final double alpha, final CompressedSparseRowFormatMatrix A, final DenseMatrix B, final double beta, final DenseMatrix C) { //CSIGNORE
+    final double[] c = C.getData();
+    scale(beta, c);
+    if (alpha == 0) {
+      return;
+    }
+    final double[] b = B.getData();
+    final int n = C.getNumberOfColumns();
+    final int[] rowPtr = A.getRowPtr();
+    final int[] colIdx = A.getColumnIndex();
+    final double[] values = A.getNonZeroElements();
+    final int rows = A.getNumberOfRows();
+    for (int i = 0; i < rows; i++) {
+      for (int ptr = rowPtr[i]; ptr < rowPtr[i + 1]; ptr++) {
+        axpy(alpha * values[ptr], b, colIdx[ptr] * n, c, i * n, n);
+      }
+    }
+  }
+
+  @Override
+  public void dm_inplace_alpha_times_AT_times_B_plus_beta_times_C(final double alpha, final CompressedSparseRowFormatMatrix A, final DenseMatrix B, final double beta, final DenseMatrix C) { //CSIGNORE
+    final double[] c = C.getData();
+    scale(beta, c);
+    if (alpha == 0) {
+      return;
+    }
+    final double[] b = B.getData();
+    final int n = C.getNumberOfColumns();
+    final int[] rowPtr = A.getRowPtr();
+    final int[] colIdx = A.getColumnIndex();
+    final double[] values = A.getNonZeroElements();
+    final int rows = A.getNumberOfRows();
+    for (int k = 0; k < rows; k++) {
+      for (int ptr = rowPtr[k]; ptr < rowPtr[k + 1]; ptr++) {
+        axpy(alpha * values[ptr], b, k * n, c, colIdx[ptr] * n, n);
+      }
+    }
+  }
+
+}
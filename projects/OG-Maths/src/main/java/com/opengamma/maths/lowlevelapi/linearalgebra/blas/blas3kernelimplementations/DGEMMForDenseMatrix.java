@@ -0,0 +1,215 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.maths.lowlevelapi.linearalgebra.blas.blas3kernelimplementations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.opengamma.maths.commonapi.exceptions.MathsExceptionGeneric;
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.DenseMatrix;
+import com.opengamma.maths.lowlevelapi.linearalgebra.blas.blas3kernelabstractions.BLAS3DGEMMKernelAbstraction;
+import com.opengamma.util.NamedThreadPoolFactory;
+
+/**
+ * Does DGEMM like operations on the {@link DenseMatrix} type.
+ * The product is cache blocked (a KC x NC panel of B is copied out and reused by every row of A) and register tiled (four rows of C are
+ * updated from each row of the panel, so each element of B is loaded once per four multiplies).
+ * Products of more than PARALLEL_THRESHOLD multiplies are split into bands of rows of C which are computed in parallel.
+ * Within each element of C the sum runs over k in ascending order, so the result is independent of the blocking and threading.
+ * The thread pool is created on the first parallel product; {@link #shutdown()} releases its threads.
+ */
+public final class DGEMMForDenseMatrix extends BLAS3DGEMMKernelAbstraction<DenseMatrix> {
+  private static DGEMMForDenseMatrix s_instance = new DGEMMForDenseMatrix();
+  /** rows of B in a panel */
+  private static final int KC = 128;
+  /** columns of B in a panel, a full panel is 256KB */
+  private static final int NC = 256;
+  /** the number of rows of C updated at once */
+  private static final int MR = 4;
+  /** the number of multiplies (m*k*n) above which the product is done in parallel, roughly a 128 x 128 x 128 product */
+  private static final long PARALLEL_THRESHOLD = 1L << 21;
+  private static final int NTHREADS = Runtime.getRuntime().availableProcessors();
+  private static ExecutorService s_executor;
+
+  public static DGEMMForDenseMatrix getInstance() {
+    return s_instance;
+  }
+
+  private DGEMMForDenseMatrix() {
+  }
+
+  /**
+   * Shuts down the thread pool used for parallel products. A later parallel product starts a new pool.
+   */
+  public static synchronized void shutdown() {
+    if (s_executor != null) {
+      s_executor.shutdown();
+      s_executor = null;
+    }
+  }
+
+  private static synchronized ExecutorService getExecutor() {
+    if (s_executor == null) {
+      s_executor = Executors.newFixedThreadPool(NTHREADS, new NamedThreadPoolFactory("DGEMM", true));
+    }
+    return s_executor;
+  }
+
+  @Override
+  public void dm_inplace_alpha_times_A_times_B_plus_beta_times_C(final double alpha, final DenseMatrix A, final DenseMatrix B, final double beta, final DenseMatrix C) { //CSIGNORE
+    final double[] c = C.getData();
+    scale(beta, c);
+    if (alpha == 0) {
+      return;
+    }
+    dgemm(alpha, A.getData(), B.getData(), c, C.getNumberOfRows(), A.getNumberOfColumns(), C.getNumberOfColumns());
+  }
+
+  @Override
+  public void dm_inplace_alpha_times_AT_times_B_plus_beta_times_C(final double alpha, final DenseMatrix A, final DenseMatrix B, final double beta, final DenseMatrix C) { //CSIGNORE
+    final double[] c = C.getData();
+    scale(beta, c);
+    if (alpha == 0) {
+      return;
+    }
+    // A^T is formed explicitly so that the kernel streams along rows of both A and B, this is O(m*k) against the O(m*k*n) product
+    final int k = A.getNumberOfRows();
+    final int m = A.getNumberOfColumns();
+    final double[] a = A.getData();
+    final double[] aT = new double[a.length];
+    for (int i = 0; i < k; i++) {
+      final int row = i * m;
+      for (int j = 0; j < m; j++) {
+        aT[j * k + i] = a[row + j];
+      }
+    }
+    dgemm(alpha, aT, B.getData(), c, m, k, C.getNumberOfColumns());
+  }
+
+  /**
+   * C += alpha*A*B, all row major
+   * @param alpha the scaling
+   * @param a the data of A, m x k
+   * @param b the data of B, k x n
+   * @param c the data of C, m x n
+   * @param m rows of C
+   * @param k the inner dimension
+   * @param n columns of C
+   */
+  static void dgemm(final double alpha, final double[] a, final double[] b, final double[] c, final int m, final int k, final int n) {
+    if ((long) m * k * n < PARALLEL_THRESHOLD || NTHREADS < 2 || m < 2 * MR) {
+      kernel(alpha, a, b, c, k, n, 0, m);
+      return;
+    }
+    // bands are a whole number of register tiles
+    final int nBands = Math.min(NTHREADS, m / MR);
+    final int bandSize = ((m / nBands + MR - 1) / MR) * MR;
+    final ExecutorService executor = getExecutor();
+    final List<Future<?>> futures = new ArrayList<Future<?>>(nBands);
+    for (int start = 0; start < m; start += bandSize) {
+      final int rowStart = start;
+      final int rowEnd = Math.min(m, start + bandSize);
+      try {
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() {
+            kernel(alpha, a, b, c, k, n, rowStart, rowEnd);
+            return null;
+          }
+        }));
+      } catch (final RejectedExecutionException e) {
+        // the pool was shut down while submitting, the band is done in this thread
+        kernel(alpha, a, b, c, k, n, rowStart, rowEnd);
+      }
+    }
+    try {
+      for (final Future<?> future : futures) {
+        future.get();
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MathsExceptionGeneric("Interrupted during DGEMM");
+    } catch (final ExecutionException e) {
+      throw new MathsExceptionGeneric("DGEMM failed", e.getCause());
+    }
+  }
+
+  /**
+   * C[rowStart:rowEnd, :] += alpha*A[rowStart:rowEnd, :]*B
+   */
+  private static void kernel(final double alpha, final double[] a, final double[] b, final double[] c, final int k, final int n, final int rowStart, final int rowEnd) {
+    final int tiledEnd = rowStart + ((rowEnd - rowStart) / MR) * MR;
+    // the panel of B and the rows of C being updated are copied out to separate arrays, this keeps the panel contiguous
+    // and lets the JIT see that the rows don't overlap B or each other. They are no bigger than the matrices need.
+    final int panelWidth = Math.min(NC, n);
+    final double[][] panel = new double[Math.min(KC, k)][panelWidth];
+    final double[] r0 = new double[panelWidth];
+    final double[] r1 = new double[panelWidth];
+    final double[] r2 = new double[panelWidth];
+    final double[] r3 = new double[panelWidth];
+    for (int kk = 0; kk < k; kk += KC) {
+      final int kEnd = Math.min(k, kk + KC);
+      for (int jj = 0; jj < n; jj += NC) {
+        final int width = Math.min(n, jj + NC) - jj;
+        for (int p = kk; p < kEnd; p++) {
+          System.arraycopy(b, p * n + jj, panel[p - kk], 0, width);
+        }
+        for (int i = rowStart; i < tiledEnd; i += MR) {
+          final int c0 = i * n + jj;
+          final int c1 = c0 + n;
+          final int c2 = c1 + n;
+          final int c3 = c2 + n;
+          System.arraycopy(c, c0, r0, 0, width);
+          System.arraycopy(c, c1, r1, 0, width);
+          System.arraycopy(c, c2, r2, 0, width);
+          System.arraycopy(c, c3, r3, 0, width);
+          final int a0 = i * k;
+          final int a1 = a0 + k;
+          final int a2 = a1 + k;
+          final int a3 = a2 + k;
+          for (int p = kk; p < kEnd; p++) {
+            final double s0 = alpha * a[a0 + p];
+            final double s1 = alpha * a[a1 + p];
+            final double s2 = alpha * a[a2 + p];
+            final double s3 = alpha * a[a3 + p];
+            final double[] bp = panel[p - kk];
+            for (int j = 0; j < width; j++) {
+              final double bpj = bp[j];
+              r0[j] += s0 * bpj;
+              r1[j] += s1 * bpj;
+              r2[j] += s2 * bpj;
+              r3[j] += s3 * bpj;
+            }
+          }
+          System.arraycopy(r0, 0, c, c0, width);
+          System.arraycopy(r1, 0, c, c1, width);
+          System.arraycopy(r2, 0, c, c2, width);
+          System.arraycopy(r3, 0, c, c3, width);
+        }
+        for (int i = tiledEnd; i < rowEnd; i++) {
+          final int c0 = i * n + jj;
+          System.arraycopy(c, c0, r0, 0, width);
+          final int a0 = i * k;
+          for (int p = kk; p < kEnd; p++) {
+            final double s0 = alpha * a[a0 + p];
+            final double[] bp = panel[p - kk];
+            for (int j = 0; j < width; j++) {
+              r0[j] += s0 * bp[j];
+            }
+          }
+          System.arraycopy(r0, 0, c, c0, width);
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.maths.lowlevelapi.linearalgebra.blas.blas3kernelimplementations;
+
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.DenseSymmetricMatrix;
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.DenseMatrix;
+import com.opengamma.maths.lowlevelapi.linearalgebra.blas.blas3kernelabstractions.BLAS3DGEMMKernelAbstraction;
+
+/**
+ * Does DGEMM like operations on the {@link DenseSymmetricMatrix} type.
+ * Only the upper triangle is stored, each off diagonal element A(i,k) is used twice, for row i and for row k of C.
+ * As A is symmetric A^T*B is just A*B.
+ */
+public final class DGEMMForDenseSymmetricMatrix extends BLAS3DGEMMKernelAbstraction<DenseSymmetricMatrix> {
+  private static DGEMMForDenseSymmetricMatrix s_instance = new DGEMMForDenseSymmetricMatrix();
+
+  public static DGEMMForDenseSymmetricMatrix getInstance() {
+    return s_instance;
+  }
+
+  private DGEMMForDenseSymmetricMatrix() {
+  }
+
+  @Override
+  public void dm_inplace_alpha_times_A_times_B_plus_beta_times_C(final double alpha, final DenseSymmetricMatrix A, final DenseMatrix B, final double beta, final DenseMatrix C) { //CSIGNORE
+    final double[] c = C.getData();
+    scale(beta, c);
+    if (alpha == 0) {
+      return;
+    }
+    final double[] b = B.getData();
+    final int n = C.getNumberOfColumns();
+    final int[] colCount = A.getColCount();
+    final int[] rowPtr = A.getRowPointer();
+    final double[] data = A.getData();
+    final int rows = A.getNumberOfRows();
+    for (int i = 0; i < rows; i++) {
+      int k = rowPtr[i];
+      for (int ptr = colCount[i]; ptr < colCount[i + 1]; ptr++) {
+        final double s = alpha * data[ptr];
+        axpy(s, b, k * n, c, i * n, n);
+        if (k != i) {
+          axpy(s, b, i * n, c, k * n, n);
+        }
+        k++;
+      }
+    }
+  }
+
+  @Override
+  public void dm_inplace_alpha_times_AT_times_B_plus_beta_times_C(final double alpha, final DenseSymmetricMatrix A, final DenseMatrix B, final double beta, final DenseMatrix C) { //CSIGNORE
+    dm_inplace_alpha_times_A_times_B_plus_beta_times_C(alpha, A, B, beta, C);
+  }
+
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.maths.lowlevelapi.linearalgebra.blas.blas3kernelimplementations;
+
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.PackedMatrix;
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.DenseMatrix;
+import com.opengamma.maths.lowlevelapi.linearalgebra.blas.blas3kernelabstractions.BLAS3DGEMMKernelAbstraction;
+
+/**
+ * Does DGEMM like operations on the {@link PackedMatrix} type.
+ * Each stored A(i,k) adds a multiple of row k of B to row i of C, so B and C are only ever walked along their rows.
+ */
+public final class DGEMMForPackedMatrix extends BLAS3DGEMMKernelAbstraction<PackedMatrix> {
+  private static DGEMMForPackedMatrix s_instance = new DGEMMForPackedMatrix();
+
+  public static DGEMMForPackedMatrix getInstance() {
+    return s_instance;
+  }
+
+  private DGEMMForPackedMatrix() {
+  }
+
+  @Override
+  public void dm_inplace_alpha_times_A_times_B_plus_beta_times_C(final double alpha, final PackedMatrix A, final DenseMatrix B, final double beta, final DenseMatrix C) { //CSIGNORE
+    final double[] c = C.getData();
+    scale(beta, c);
+    if (alpha == 0) {
+      return;
+    }
+    final double[] b = B.getData();
+    final int n = C.getNumberOfColumns();
+    final int[] colCount = A.getColCount();
+    final int[] rowPtr = A.getRowPointer();
+    final double[] data = A.getData();
+    final int rows = A.getNumberOfRows();
+    for (int i = 0; i < rows; i++) {
+      int k = rowPtr[i];
+      for (int ptr = colCount[i]; ptr < colCount[i + 1]; ptr++) {
+        axpy(alpha * data[ptr], b, k * n, c, i * n, n);
+        k++;
+      }
+    }
+  }
+
+  @Override
+  public void dm_inplace_alpha_times_AT_times_B_plus_beta_times_C(final double alpha, final PackedMatrix A, final DenseMatrix B, final double beta, final DenseMatrix C) { //CSIGNORE
+    final double[] c = C.getData();
+    scale(beta, c);
+    if (alpha == 0) {
+      return;
+    }
+    final double[] b = B.getData();
+    final int n = C.getNumberOfColumns();
+    final int[] colCount = A.getColCount();
+    final int[] rowPtr = A.getRowPointer();
+    final double[] data = A.getData();
+    final int rows = A.getNumberOfRows();
+    for (int k = 0; k < rows; k++) {
+      int i = rowPtr[k];
+      for (int ptr = colCount[k]; ptr < colCount[k + 1]; ptr++) {
+        axpy(alpha * data[ptr], b, k * n, c, i * n, n);
+        i++;
+      }
+    }
+  }
+
+}
@@ -5,9 +5,17 @@
  */
 package com.opengamma.maths.lowlevelapi.linearalgebra.blas;
 
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Arrays;
+
 import org.testng.annotations.Test;
 
+import com.opengamma.maths.highlevelapi.datatypes.primitive.OGArrayType;
+import com.opengamma.maths.highlevelapi.functions.OGFunctions;
 import com.opengamma.maths.lowlevelapi.datatypes.primitive.DenseMatrix;
+import com.opengamma.maths.lowlevelapi.linearalgebra.blas.blas3kernelimplementations.DGEMMForDenseMatrix;
 
 /**
  * tests the BLAS3 DGEMM kernel on A=dense, B=dense, C=dense matrices.
@@ -18,11 +26,150 @@ public class BLAS3DGEMMDenseDenseDenseMatrixTest {
   double[][] bData5x5={{1,2,3,4,5},{6,7,8,9,10},{11,12,13,14,15},{16,17,18,19,20},{21,22,23,24,25}};
   DenseMatrix aMatrix5by5 = new DenseMatrix(aData5x5);
   DenseMatrix bMatrix5by5 = new DenseMatrix(bData5x5);
+  double[][] ans5x5 = {{215,230,245,260,275},{490,530,570,610,650},{765,830,895,960,1025},{1040,1130,1220,1310,1400},{1315,1430,1545,1660,1775}};
+  double[][] ansT5x5 = {{855,910,965,1020,1075},{910,970,1030,1090,1150},{965,1030,1095,1160,1225},{1020,1090,1160,1230,1300},{1075,1150,1225,1300,1375}};
+
+  double alpha = 7.0;
+  double beta = -3.0;
+
+  @Test
+  public void testDGEMM_ans_eq_A5x5_times_B5x5() {
+    assertTrue(Arrays.deepEquals(ans5x5, BLAS3.dgemm(aMatrix5by5, bMatrix5by5).toArray()));
+  }
+
+  @Test
+  public void testDGEMM_ans_eq_AT5x5_times_B5x5() {
+    assertTrue(Arrays.deepEquals(ansT5x5, BLAS3.dgemm(aMatrix5by5, bMatrix5by5, BLAS3.orientation.transposed, BLAS3.orientation.normal).toArray()));
+  }
+
+  @Test
+  public void testDGEMM_ans_eq_alpha_times_A5x5_times_B5x5_plus_beta_times_C() {
+    final double[][] c = new double[5][5];
+    final double[][] expected = new double[5][5];
+    for (int i = 0; i < 5; i++) {
+      for (int j = 0; j < 5; j++) {
+        c[i][j] = i - 2 * j;
+        expected[i][j] = alpha * ans5x5[i][j] + beta * c[i][j];
+      }
+    }
+    final DenseMatrix cMatrix = new DenseMatrix(c);
+    BLAS3.dgemmInplace(cMatrix, alpha, aMatrix5by5, bMatrix5by5, beta);
+    assertTrue(Arrays.deepEquals(expected, cMatrix.toArray()));
+  }
+
+  @Test
+  public void testDGEMM_beta_zero_ignores_C() {
+    final double[][] c = new double[5][5];
+    for (double[] row : c) {
+      Arrays.fill(row, Double.NaN);
+    }
+    final DenseMatrix cMatrix = new DenseMatrix(c);
+    BLAS3.dgemmInplace(cMatrix, 1, aMatrix5by5, bMatrix5by5, 0);
+    assertTrue(Arrays.deepEquals(ans5x5, cMatrix.toArray()));
+  }
+
+  /**
+   * All four orientations, with sizes that leave remainders in each of the row tile, the panel depth and the panel width
+   */
+  @Test
+  public void testDGEMM_rectangular_all_orientations() {
+    final int m = 7;
+    final int k = 131;
+    final int n = 259;
+    final double[][] a = getMatrix(m, k, 1);
+    final double[][] b = getMatrix(k, n, 2);
+    final double[][] expected = naive(alpha, a, b);
+    final DenseMatrix aT = new DenseMatrix(transpose(a));
+    final DenseMatrix bT = new DenseMatrix(transpose(b));
+    assertMatrixEquals(expected, BLAS3.dgemm(alpha, new DenseMatrix(a), new DenseMatrix(b), BLAS3.orientation.normal, BLAS3.orientation.normal).toArray(), 0);
+    assertMatrixEquals(expected, BLAS3.dgemm(alpha, aT, new DenseMatrix(b), BLAS3.orientation.transposed, BLAS3.orientation.normal).toArray(), 0);
+    assertMatrixEquals(expected, BLAS3.dgemm(alpha, new DenseMatrix(a), bT, BLAS3.orientation.normal, BLAS3.orientation.transposed).toArray(), 0);
+    assertMatrixEquals(expected, BLAS3.dgemm(alpha, aT, bT, BLAS3.orientation.transposed, BLAS3.orientation.transposed).toArray(), 0);
+  }
 
+  /**
+   * Big enough to be split into bands of rows if there is more than one processor
+   */
   @Test
-  public void testDGEMV_ans_eq_A5x5_times_x5() {
+  public void testDGEMM_large() {
+    final double[][] a = getMatrix(203, 150, 3);
+    final double[][] b = getMatrix(150, 170, 4);
+    assertMatrixEquals(naive(1, a, b), BLAS3.dgemm(new DenseMatrix(a), new DenseMatrix(b)).toArray(), 0);
+  }
+
+  @Test
+  public void testDGEMM_large_after_shutdown() {
+    final double[][] a = getMatrix(203, 150, 5);
+    final double[][] b = getMatrix(150, 170, 6);
+    DGEMMForDenseMatrix.shutdown();
+    assertMatrixEquals(naive(1, a, b), BLAS3.dgemm(new DenseMatrix(a), new DenseMatrix(b)).toArray(), 0);
+    DGEMMForDenseMatrix.shutdown();
+    DGEMMForDenseMatrix.shutdown();
+  }
+
+  @Test
+  public void testHighLevelMultiply() {
+    final OGArrayType answer = OGFunctions.multiply(new OGArrayType(aData5x5), new OGArrayType(bData5x5));
+    assertTrue(Arrays.deepEquals(ans5x5, answer.toArray()));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testDGEMM_nonconformant() {
+    BLAS3.dgemm(aMatrix5by5, new DenseMatrix(new double[4][5]));
+  }
 
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testDGEMM_wrong_size_C() {
+    BLAS3.dgemmInplace(new DenseMatrix(new double[5][4]), 1, aMatrix5by5, bMatrix5by5, 1);
   }
 
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testDGEMM_C_not_writable() {
+    BLAS3.dgemmInplace(new OGArrayType(aData5x5), 1, aMatrix5by5, bMatrix5by5, 1);
+  }
+
+  static void assertMatrixEquals(final double[][] expected, final double[][] actual, final double tol) {
+    assertEquals(expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i].length, actual[i].length);
+      for (int j = 0; j < expected[i].length; j++) {
+        assertEquals(expected[i][j], actual[i][j], tol);
+      }
+    }
+  }
+
+  static double[][] getMatrix(final int rows, final int cols, final int seed) {
+    final double[][] res = new double[rows][cols];
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < cols; j++) {
+        res[i][j] = Math.sin(seed + 0.37 * i + 1.13 * j);
+      }
+    }
+    return res;
+  }
+
+  static double[][] transpose(final double[][] a) {
+    final double[][] res = new double[a[0].length][a.length];
+    for (int i = 0; i < a.length; i++) {
+      for (int j = 0; j < a[0].length; j++) {
+        res[j][i] = a[i][j];
+      }
+    }
+    return res;
+  }
+
+  static double[][] naive(final double alpha, final double[][] a, final double[][] b) {
+    final double[][] res = new double[a.length][b[0].length];
+    for (int i = 0; i < a.length; i++) {
+      for (int j = 0; j < b[0].length; j++) {
+        double sum = 0;
+        for (int p = 0; p < b.length; p++) {
+          sum += alpha * a[i][p] * b[p][j];
+        }
+        res[i][j] = sum;
+      }
+    }
+    return res;
+  }
 
 }
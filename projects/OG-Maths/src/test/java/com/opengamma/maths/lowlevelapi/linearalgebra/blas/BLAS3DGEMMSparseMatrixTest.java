@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.maths.lowlevelapi.linearalgebra.blas;
+
+import static com.opengamma.maths.lowlevelapi.linearalgebra.blas.BLAS3DGEMMDenseDenseDenseMatrixTest.assertMatrixEquals;
+import static com.opengamma.maths.lowlevelapi.linearalgebra.blas.BLAS3DGEMMDenseDenseDenseMatrixTest.getMatrix;
+import static com.opengamma.maths.lowlevelapi.linearalgebra.blas.BLAS3DGEMMDenseDenseDenseMatrixTest.naive;
+import static com.opengamma.maths.lowlevelapi.linearalgebra.blas.BLAS3DGEMMDenseDenseDenseMatrixTest.transpose;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.CompressedSparseColumnFormatMatrix;
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.CompressedSparseRowFormatMatrix;
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.DenseMatrix;
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.DenseSymmetricMatrix;
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.MatrixPrimitive;
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.PackedMatrix;
+import com.opengamma.maths.lowlevelapi.datatypes.primitive.SparseCoordinateFormatMatrix;
+
+/**
+ * Tests the BLAS3 DGEMM kernels for the sparse and packed types of A against the dense result, B and C are dense.
+ */
+public class BLAS3DGEMMSparseMatrixTest {
+  private static final double TOL = 1e-12;
+  private static final double ALPHA = 7.0;
+  private static final double BETA = -3.0;
+  private static final double[][] SPARSE = {{1, 0, 0, 2, 0, 0}, {0, 0, 3, 0, 0, 0}, {0, 4, 0, 0, 5, 0}, {0, 0, 0, 0, 0, 0}, {6, 0, 0, 7, 0, 8}};
+  private static final double[][] BANDED = {{1, 2, 0, 0, 0}, {3, 4, 5, 0, 0}, {0, 6, 7, 8, 0}, {0, 0, 9, 10, 11}, {0, 0, 0, 12, 13}};
+  private static final double[][] SYMMETRIC = {{1, 2, 3, 0}, {2, 4, 0, 5}, {3, 0, 6, 7}, {0, 5, 7, 8}};
+
+  @Test
+  public void testCSR() {
+    testAllOrientations(SPARSE, new CompressedSparseRowFormatMatrix(SPARSE));
+  }
+
+  @Test
+  public void testCSC() {
+    testAllOrientations(SPARSE, new CompressedSparseColumnFormatMatrix(SPARSE));
+  }
+
+  @Test
+  public void testCOO() {
+    testAllOrientations(SPARSE, new SparseCoordinateFormatMatrix(SPARSE));
+  }
+
+  @Test
+  public void testPacked() {
+    testAllOrientations(BANDED, new PackedMatrix(BANDED));
+  }
+
+  @Test
+  public void testDenseSymmetric() {
+    testAllOrientations(SYMMETRIC, new DenseSymmetricMatrix(SYMMETRIC));
+  }
+
+  /**
+   * A stored zero in A times a NaN in B is NaN, as in the dense kernel
+   */
+  @Test
+  public void testNaNPropagates() {
+    final double[][] b = getMatrix(SYMMETRIC.length, 3, 1);
+    b[1][2] = Double.NaN;
+    final double[][] expected = BLAS3.dgemm(new DenseMatrix(SYMMETRIC), new DenseMatrix(b)).toArray();
+    final double[][] actual = BLAS3.dgemm(new DenseSymmetricMatrix(SYMMETRIC), new DenseMatrix(b)).toArray();
+    for (int i = 0; i < expected.length; i++) {
+      for (int j = 0; j < expected[i].length; j++) {
+        assertEquals(Double.isNaN(expected[i][j]), Double.isNaN(actual[i][j]));
+        if (!Double.isNaN(expected[i][j])) {
+          assertEquals(expected[i][j], actual[i][j], TOL);
+        }
+      }
+    }
+    // row 2 stores the zero at (2, 1)
+    assertEquals(true, Double.isNaN(actual[2][2]));
+  }
+
+  private static void testAllOrientations(final double[][] a, final MatrixPrimitive aMatrix) {
+    final int n = 3;
+    final double[][] b = getMatrix(a[0].length, n, 1);
+    final double[][] bT = getMatrix(a.length, n, 2);
+    final double[][] c = getMatrix(a.length, n, 3);
+    final double[][] expected = naive(ALPHA, a, b);
+    for (int i = 0; i < expected.length; i++) {
+      for (int j = 0; j < n; j++) {
+        expected[i][j] += BETA * c[i][j];
+      }
+    }
+    final DenseMatrix cMatrix = new DenseMatrix(c);
+    BLAS3.dgemmInplace(cMatrix, ALPHA, aMatrix, new DenseMatrix(b), BETA);
+    assertMatrixEquals(expected, cMatrix.toArray(), TOL);
+    assertMatrixEquals(naive(1, transpose(a), bT), BLAS3.dgemm(aMatrix, new DenseMatrix(bT), BLAS3.orientation.transposed, BLAS3.orientation.normal).toArray(), TOL);
+    assertMatrixEquals(naive(1, a, b), BLAS3.dgemm(aMatrix, new DenseMatrix(transpose(b)), BLAS3.orientation.normal, BLAS3.orientation.transposed).toArray(), TOL);
+    assertMatrixEquals(naive(ALPHA, transpose(a), bT), BLAS3.dgemm(ALPHA, aMatrix, new DenseMatrix(transpose(bT)), BLAS3.orientation.transposed, BLAS3.orientation.transposed)
+        .toArray(), TOL);
+  }
+
+}
@@ -20,6 +20,16 @@ public final class FudgeRest {
    * Media type for Fudge.
    */
   public static final MediaType MEDIA_TYPE = MediaType.valueOf(MEDIA);
+  /**
+   * Media type for a stream of Fudge messages.
+   * <p>
+   * The content is a GZIP compressed sequence of Fudge messages, one for each object, ending at the end of the stream.
+   */
+  public static final String STREAM_MEDIA = "application/vnd.fudgemsg-stream";
+  /**
+   * Media type for a stream of Fudge messages.
+   */
+  public static final MediaType STREAM_MEDIA_TYPE = MediaType.valueOf(STREAM_MEDIA);
 
   /**
    * Restricted constructor.
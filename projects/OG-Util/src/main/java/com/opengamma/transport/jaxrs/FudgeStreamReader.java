@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.transport.jaxrs;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.wire.FudgeDataInputStreamReader;
+import org.fudgemsg.wire.FudgeMsgReader;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * An iterator over the objects in a stream of Fudge messages written by {@link FudgeStreamingOutput}.
+ * <p>
+ * Each object is decoded as it is requested, so the objects can be processed as they arrive without
+ * the whole stream being held in memory. The stream is closed when the last object has been read;
+ * a caller that stops early must call {@link #close()}.
+ *
+ * @param <T>  the type of the objects
+ */
+public class FudgeStreamReader<T> implements Iterator<T>, Closeable {
+
+  /**
+   * The underlying stream.
+   */
+  private final InputStream _input;
+  /**
+   * The Fudge message reader.
+   */
+  private final FudgeMsgReader _reader;
+  /**
+   * The deserializer.
+   */
+  private final FudgeDeserializer _deserializer;
+  /**
+   * The type of the objects.
+   */
+  private final Class<T> _type;
+  /**
+   * Whether the stream has been closed.
+   */
+  private boolean _closed;
+
+  /**
+   * Creates an instance.
+   *
+   * @param fudgeContext  the Fudge context, not null
+   * @param input  the compressed stream of Fudge messages, not null
+   * @param type  the type of the objects, not null
+   */
+  public FudgeStreamReader(final FudgeContext fudgeContext, final InputStream input, final Class<T> type) {
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    ArgumentChecker.notNull(input, "input");
+    ArgumentChecker.notNull(type, "type");
+    _input = input;
+    try {
+      _reader = new FudgeMsgReader(new FudgeDataInputStreamReader(fudgeContext, new GZIPInputStream(input)));
+    } catch (IOException ex) {
+      close();
+      throw new OpenGammaRuntimeException("Unable to read stream", ex);
+    }
+    _deserializer = new FudgeDeserializer(fudgeContext);
+    _type = type;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public boolean hasNext() {
+    if (_closed) {
+      return false;
+    }
+    if (_reader.hasNext()) {
+      return true;
+    }
+    close();
+    return false;
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException("No more elements found");
+    }
+    final FudgeMsg msg = _reader.nextMessage();
+    return _deserializer.fudgeMsgToObject(_type, msg);
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Closes the underlying stream.
+   */
+  @Override
+  public void close() {
+    if (!_closed) {
+      _closed = true;
+      try {
+        _input.close();
+      } catch (IOException ex) {
+        // ignore
+      }
+    }
+  }
+
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.transport.jaxrs;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.wire.FudgeDataOutputStreamWriter;
+import org.fudgemsg.wire.FudgeMsgWriter;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A RESTful response entity that writes a sequence of objects as a stream of Fudge messages.
+ * <p>
+ * Each object is converted to a Fudge message and written as soon as it is taken from the iterator,
+ * so only the objects the iterator itself holds are in memory at once. The stream is GZIP compressed
+ * and is read by {@link FudgeStreamReader}. The media type is {@link FudgeRest#STREAM_MEDIA}.
+ */
+public class FudgeStreamingOutput implements StreamingOutput {
+
+  /**
+   * The size of the compression buffer.
+   */
+  private static final int BUFFER_SIZE = 65536;
+
+  /**
+   * The Fudge context.
+   */
+  private final FudgeContext _fudgeContext;
+  /**
+   * The objects to write.
+   */
+  private final Iterator<?> _objects;
+
+  /**
+   * Creates an instance.
+   *
+   * @param fudgeContext  the Fudge context, not null
+   * @param objects  the objects to write, not null
+   */
+  public FudgeStreamingOutput(final FudgeContext fudgeContext, final Iterator<?> objects) {
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    ArgumentChecker.notNull(objects, "objects");
+    _fudgeContext = fudgeContext;
+    _objects = objects;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public void write(final OutputStream output) throws IOException, WebApplicationException {
+    final GZIPOutputStream compressed = new GZIPOutputStream(output, BUFFER_SIZE);
+    final FudgeMsgWriter writer = new FudgeMsgWriter(new FudgeDataOutputStreamWriter(_fudgeContext, compressed));
+    while (_objects.hasNext()) {
+      writer.writeMessageEnvelope(_fudgeContext.toFudgeMsg(_objects.next()), 0);
+    }
+    writer.flush();
+    compressed.finish();
+    output.flush();
+  }
+
+}
@@ -191,7 +191,7 @@ public abstract class AbstractServerSocketProcess implements Lifecycle, EndPoint
    */
   public static final String PORT_KEY = "port";
 
-  private void loadInterfaceAddress(final NetworkInterface iface, final MutableFudgeMsg message) {
+  private static void loadInterfaceAddress(final NetworkInterface iface, final MutableFudgeMsg message) {
     final Enumeration<NetworkInterface> ni = iface.getSubInterfaces();
     while (ni.hasMoreElements()) {
       loadInterfaceAddress(ni.nextElement(), message);
@@ -210,9 +210,20 @@ public abstract class AbstractServerSocketProcess implements Lifecycle, EndPoint
 
   @Override
   public FudgeMsg getEndPointDescription(final FudgeContext fudgeContext) {
+    return getEndPointDescription(fudgeContext, _serverSocket.getInetAddress(), _serverSocket.getLocalPort());
+  }
+
+  /**
+   * Describes a server socket bound to the given address and port.
+   * 
+   * @param fudgeContext the Fudge context
+   * @param addr the bound address, null if not bound
+   * @param port the bound port
+   * @return the end point description
+   */
+  /* package */static FudgeMsg getEndPointDescription(final FudgeContext fudgeContext, final InetAddress addr, final int port) {
     final MutableFudgeMsg desc = fudgeContext.newMessage();
     desc.add(TYPE_KEY, TYPE_VALUE);
-    final InetAddress addr = _serverSocket.getInetAddress();
     if (addr != null) {
       if (addr.isAnyLocalAddress()) {
         try {
@@ -227,7 +238,7 @@ public abstract class AbstractServerSocketProcess implements Lifecycle, EndPoint
         desc.add(ADDRESS_KEY, addr.getHostAddress());
       }
     }
-    desc.add(PORT_KEY, _serverSocket.getLocalPort());
+    desc.add(PORT_KEY, port);
     return desc;
   }
 
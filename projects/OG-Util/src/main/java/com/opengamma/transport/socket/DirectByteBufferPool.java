@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.transport.socket;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A pool of fixed size direct buffers. Allocating a direct buffer is expensive and the memory is only reclaimed
+ * when the buffer is garbage collected, so buffers used for socket I/O are recycled through the pool rather than
+ * allocated per operation.
+ * <p>
+ * The pool is thread-safe.
+ */
+public final class DirectByteBufferPool {
+
+  private final int _bufferSize;
+  private final int _maxPooled;
+  private final Queue<ByteBuffer> _buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+  private final AtomicInteger _pooled = new AtomicInteger();
+
+  /**
+   * Creates a pool.
+   *
+   * @param bufferSize the size of each buffer in bytes
+   * @param maxPooled the maximum number of idle buffers to keep, buffers released beyond this are discarded
+   */
+  public DirectByteBufferPool(final int bufferSize, final int maxPooled) {
+    ArgumentChecker.isTrue(bufferSize > 0, "bufferSize");
+    ArgumentChecker.isTrue(maxPooled >= 0, "maxPooled");
+    _bufferSize = bufferSize;
+    _maxPooled = maxPooled;
+  }
+
+  public int getBufferSize() {
+    return _bufferSize;
+  }
+
+  public int getMaxPooled() {
+    return _maxPooled;
+  }
+
+  /**
+   * Takes a cleared buffer from the pool, allocating a new one if the pool is empty.
+   *
+   * @return the buffer, not null
+   */
+  public ByteBuffer acquire() {
+    final ByteBuffer buffer = _buffers.poll();
+    if (buffer == null) {
+      return ByteBuffer.allocateDirect(_bufferSize);
+    }
+    _pooled.decrementAndGet();
+    return buffer;
+  }
+
+  /**
+   * Returns a buffer to the pool. The caller must not use the buffer afterwards.
+   *
+   * @param buffer the buffer, not null
+   */
+  public void release(final ByteBuffer buffer) {
+    ArgumentChecker.notNull(buffer, "buffer");
+    if (!buffer.isDirect() || (buffer.capacity() != _bufferSize)) {
+      return;
+    }
+    if (_pooled.incrementAndGet() <= _maxPooled) {
+      buffer.clear();
+      _buffers.add(buffer);
+    } else {
+      _pooled.decrementAndGet();
+    }
+  }
+
+}
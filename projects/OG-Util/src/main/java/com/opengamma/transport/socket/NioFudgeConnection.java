@@ -0,0 +1,554 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.transport.socket;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.FudgeMsgEnvelope;
+import org.fudgemsg.wire.FudgeRuntimeIOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.transport.FudgeConnection;
+import com.opengamma.transport.FudgeConnectionReceiver;
+import com.opengamma.transport.FudgeConnectionStateListener;
+import com.opengamma.transport.FudgeMessageReceiver;
+import com.opengamma.transport.FudgeMessageSender;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A {@link FudgeConnection} over a non-blocking socket channel serviced by {@link NioSelectorThreads}. No thread is
+ * dedicated to the connection.
+ * <p>
+ * Messages are encoded by the sending thread and queued. The selector thread copies as many queued messages as will
+ * fit into pooled direct buffers and writes them with a single gathering write, so a burst of messages from any number
+ * of senders costs a few system calls rather than one per message. As with {@link SocketFudgeConnection}, successful
+ * completion of a {@link FudgeMessageSender#send} does not guarantee the message has been passed to the transport.
+ * If the remote end stops reading, at most {@link #getMaximumQueuedBytes()} of encoded messages are held and further
+ * sends fail with a {@link FudgeRuntimeIOException} until the queue drains.
+ * <p>
+ * Received messages are framed using the size in the Fudge envelope header and decoded on the selector thread. They are
+ * then passed to the message receiver, via the executor service if there is one. While no receiver is set, messages
+ * are passed to the underlying {@link FudgeConnectionReceiver} on the selector thread, which must therefore not block.
+ * A message larger than {@link #getMaximumFrameSize()} closes the connection.
+ */
+public class NioFudgeConnection implements FudgeConnection {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(NioFudgeConnection.class);
+
+  /**
+   * Size of the Fudge envelope header; the total envelope size is held in the last four bytes.
+   */
+  /* package */static final int HEADER_SIZE = 8;
+  /**
+   * Maximum number of buffers passed to a single gathering write.
+   */
+  private static final int MAX_GATHER = 16;
+  /**
+   * Timeout when connecting to a remote server.
+   */
+  private static final int CONNECT_TIMEOUT = 3000;
+  /**
+   * Default limit on the size of a received message.
+   */
+  public static final int DEFAULT_MAXIMUM_FRAME_SIZE = 64 * 1024 * 1024;
+  /**
+   * Default limit on the encoded messages waiting to be written.
+   */
+  public static final int DEFAULT_MAXIMUM_QUEUED_BYTES = 64 * 1024 * 1024;
+
+  private final FudgeContext _fudgeContext;
+  private final SocketChannel _channel;
+  private final NioSelectorThreads.SelectorThread _selectorThread;
+  private final FudgeConnectionReceiver _underlying;
+  private final ExecutorService _executorService;
+  private final Collection<NioFudgeConnection> _openConnections;
+  private final SocketAddress _remoteAddress;
+
+  private final Queue<byte[]> _outbound = new ConcurrentLinkedQueue<byte[]>();
+  private final AtomicLong _queuedBytes = new AtomicLong();
+  private volatile int _maximumQueuedBytes = DEFAULT_MAXIMUM_QUEUED_BYTES;
+  private volatile int _maximumFrameSize = DEFAULT_MAXIMUM_FRAME_SIZE;
+  private final AtomicBoolean _flushScheduled = new AtomicBoolean();
+  private final AtomicBoolean _closed = new AtomicBoolean();
+  private volatile FudgeMessageReceiver _receiver;
+  private volatile FudgeConnectionStateListener _stateListener;
+
+  // The remaining state is only used from the selector thread
+  private SelectionKey _key;
+  private final ByteBuffer[] _gather = new ByteBuffer[MAX_GATHER];
+  private int _gatherCount;
+  private byte[] _current;
+  private int _currentOffset;
+  private final byte[] _header = new byte[HEADER_SIZE];
+  private int _headerBytes;
+  private byte[] _frame;
+  private int _frameBytes;
+
+  private final Runnable _flush = new Runnable() {
+    @Override
+    public void run() {
+      try {
+        flush();
+      } catch (IOException e) {
+        terminateWithError("Unable to write message to underlying channel - terminating connection", e);
+      }
+    }
+  };
+
+  private final Runnable _releaseBuffers = new Runnable() {
+    @Override
+    public void run() {
+      releaseGather();
+    }
+  };
+
+  private final NioSelectorThreads.Handler _handler = new NioSelectorThreads.Handler() {
+
+    @Override
+    public void registered(final SelectionKey key) {
+      _key = key;
+      if (_closed.get()) {
+        key.cancel();
+      }
+    }
+
+    @Override
+    public void selected(final SelectionKey key) throws IOException {
+      if (key.isReadable()) {
+        read();
+      }
+      if (key.isValid() && key.isWritable()) {
+        flush();
+      }
+    }
+
+    @Override
+    public void failed(final Exception cause) {
+      terminateWithError("Unable to read message from underlying channel - terminating connection", cause);
+    }
+
+    @Override
+    public void stopped() {
+      terminateWithError("Selector thread stopped - terminating connection", null);
+      // The buffer release task queued by the termination will never run
+      releaseGather();
+    }
+
+  };
+
+  private final FudgeMessageSender _sender = new FudgeMessageSender() {
+
+    @Override
+    public FudgeContext getFudgeContext() {
+      return _fudgeContext;
+    }
+
+    @Override
+    public void send(final FudgeMsg message) {
+      if (_closed.get()) {
+        throw new FudgeRuntimeIOException(new IOException("Connection to " + _remoteAddress + " is closed"));
+      }
+      final byte[] bytes = _fudgeContext.toByteArray(message);
+      final long queued = _queuedBytes.addAndGet(bytes.length);
+      // A message larger than the limit is still sent if nothing else is waiting
+      if ((queued > _maximumQueuedBytes) && (queued != bytes.length)) {
+        _queuedBytes.addAndGet(-bytes.length);
+        throw new FudgeRuntimeIOException(new IOException("Outbound queue to " + _remoteAddress + " is full - " + (queued - bytes.length) + " bytes waiting"));
+      }
+      _outbound.add(bytes);
+      if (_flushScheduled.compareAndSet(false, true)) {
+        _selectorThread.execute(_flush);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return String.valueOf(_remoteAddress);
+    }
+
+  };
+
+  /**
+   * Creates a connection over an open channel. The connection does not start reading until {@link #open} is called.
+   *
+   * @param fudgeContext the Fudge context, not null
+   * @param channel the connected, non-blocking, channel, not null
+   * @param selectorThread the thread to service the channel, not null
+   * @param underlying the receiver to pass messages to while no message receiver is set, null to discard them
+   * @param executorService the executor to dispatch to the message receiver with, null to dispatch on the selector thread
+   * @param openConnections the collection to remove this connection from when closed, null if none
+   */
+  /* package */NioFudgeConnection(final FudgeContext fudgeContext, final SocketChannel channel, final NioSelectorThreads.SelectorThread selectorThread,
+      final FudgeConnectionReceiver underlying, final ExecutorService executorService, final Collection<NioFudgeConnection> openConnections) {
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    ArgumentChecker.notNull(channel, "channel");
+    ArgumentChecker.notNull(selectorThread, "selectorThread");
+    _fudgeContext = fudgeContext;
+    _channel = channel;
+    _selectorThread = selectorThread;
+    _underlying = underlying;
+    _executorService = executorService;
+    _openConnections = openConnections;
+    _remoteAddress = channel.socket().getRemoteSocketAddress();
+  }
+
+  /**
+   * Opens a connection to a remote server. Received messages are dispatched on the selector thread.
+   *
+   * @param fudgeContext the Fudge context, not null
+   * @param selectorThreads the selector threads to service the connection, not null and started
+   * @param address the address of the server, not null
+   * @return the connection, not null
+   */
+  public static NioFudgeConnection connect(final FudgeContext fudgeContext, final NioSelectorThreads selectorThreads, final InetSocketAddress address) {
+    return connect(fudgeContext, selectorThreads, address, null);
+  }
+
+  /**
+   * Opens a connection to a remote server.
+   *
+   * @param fudgeContext the Fudge context, not null
+   * @param selectorThreads the selector threads to service the connection, not null and started
+   * @param address the address of the server, not null
+   * @param executorService an executor service to run received messages via, null to run them on the selector thread
+   * @return the connection, not null
+   */
+  public static NioFudgeConnection connect(final FudgeContext fudgeContext, final NioSelectorThreads selectorThreads, final InetSocketAddress address,
+      final ExecutorService executorService) {
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    ArgumentChecker.notNull(selectorThreads, "selectorThreads");
+    ArgumentChecker.notNull(address, "address");
+    s_logger.info("Opening remote connection to {}", address);
+    SocketChannel channel = null;
+    try {
+      channel = SocketChannel.open();
+      channel.socket().connect(address, CONNECT_TIMEOUT);
+      channel.socket().setTcpNoDelay(true);
+      channel.configureBlocking(false);
+    } catch (IOException e) {
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException ex) {
+          // Ignore
+        }
+      }
+      throw new OpenGammaRuntimeException("Unable to connect to " + address, e);
+    }
+    final NioFudgeConnection connection = new NioFudgeConnection(fudgeContext, channel, selectorThreads.next(), null, executorService, null);
+    connection.open();
+    return connection;
+  }
+
+  /**
+   * Registers the channel with its selector thread so that messages start being read.
+   */
+  /* package */void open() {
+    _selectorThread.register(_channel, SelectionKey.OP_READ, _handler);
+  }
+
+  public FudgeContext getFudgeContext() {
+    return _fudgeContext;
+  }
+
+  /**
+   * @return the address of the remote end of the connection
+   */
+  public SocketAddress getRemoteAddress() {
+    return _remoteAddress;
+  }
+
+  /**
+   * Note that the message sender may be called concurrently, and that messages are written by the selector thread
+   * after {@link FudgeMessageSender#send} returns.
+   *
+   * @return the Fudge message sender component of the connection
+   */
+  @Override
+  public FudgeMessageSender getFudgeMessageSender() {
+    return _sender;
+  }
+
+  @Override
+  public void setFudgeMessageReceiver(final FudgeMessageReceiver receiver) {
+    _receiver = receiver;
+  }
+
+  @Override
+  public void setConnectionStateListener(final FudgeConnectionStateListener listener) {
+    _stateListener = listener;
+  }
+
+  /**
+   * @return the largest message, in bytes, that will be accepted before closing the connection
+   */
+  public int getMaximumFrameSize() {
+    return _maximumFrameSize;
+  }
+
+  /**
+   * Sets the largest message that will be accepted. A larger message closes the connection rather than allocate a buffer
+   * for whatever size the remote end claims.
+   *
+   * @param maximumFrameSize the maximum size in bytes, greater than the envelope header size
+   */
+  public void setMaximumFrameSize(final int maximumFrameSize) {
+    ArgumentChecker.isTrue(maximumFrameSize > HEADER_SIZE, "maximumFrameSize");
+    _maximumFrameSize = maximumFrameSize;
+  }
+
+  /**
+   * @return the number of bytes that may be waiting to be written before sends fail
+   */
+  public int getMaximumQueuedBytes() {
+    return _maximumQueuedBytes;
+  }
+
+  /**
+   * Sets the number of encoded bytes that may be waiting to be written. A send that would exceed this fails, unless
+   * nothing else is waiting.
+   *
+   * @param maximumQueuedBytes the maximum size in bytes, greater than zero
+   */
+  public void setMaximumQueuedBytes(final int maximumQueuedBytes) {
+    ArgumentChecker.isTrue(maximumQueuedBytes > 0, "maximumQueuedBytes");
+    _maximumQueuedBytes = maximumQueuedBytes;
+  }
+
+  /**
+   * @return true if the connection has been closed, locally or by the remote end
+   */
+  public boolean isClosed() {
+    return _closed.get();
+  }
+
+  /**
+   * Closes the connection. Any messages not yet written are discarded and the state listener is not notified.
+   */
+  public void close() {
+    if (shutdown()) {
+      s_logger.debug("Closed connection to {}", _remoteAddress);
+    }
+  }
+
+  private boolean shutdown() {
+    if (!_closed.compareAndSet(false, true)) {
+      return false;
+    }
+    try {
+      _channel.close();
+    } catch (IOException e) {
+      s_logger.warn("Couldn't close channel", e);
+    }
+    if (_openConnections != null) {
+      _openConnections.remove(this);
+    }
+    _outbound.clear();
+    _queuedBytes.set(0);
+    _selectorThread.execute(_releaseBuffers);
+    return true;
+  }
+
+  private void terminateWithError(final String errorMessage, final Exception cause) {
+    if (!shutdown()) {
+      // Closed locally, or already failed
+      return;
+    }
+    if (cause != null) {
+      s_logger.warn(errorMessage, cause);
+    } else {
+      s_logger.info(errorMessage);
+    }
+    final FudgeConnectionStateListener listener = _stateListener;
+    if (listener != null) {
+      try {
+        listener.connectionFailed(this, cause);
+      } catch (Exception e) {
+        s_logger.warn("Error notifying state listener of connection failure", e);
+      }
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  // Selector thread
+
+  private void read() throws IOException {
+    final ByteBuffer buffer = _selectorThread.getReadBuffer();
+    buffer.clear();
+    final int bytes = _channel.read(buffer);
+    if (bytes < 0) {
+      terminateWithError("Nothing available on stream - terminating connection", null);
+      return;
+    }
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      if (_frame == null) {
+        final int length = Math.min(buffer.remaining(), HEADER_SIZE - _headerBytes);
+        buffer.get(_header, _headerBytes, length);
+        _headerBytes += length;
+        if (_headerBytes < HEADER_SIZE) {
+          break;
+        }
+        final int size = ((_header[4] & 0xFF) << 24) | ((_header[5] & 0xFF) << 16) | ((_header[6] & 0xFF) << 8) | (_header[7] & 0xFF);
+        if (size < HEADER_SIZE) {
+          throw new IOException("Invalid Fudge envelope size " + size + " from " + _remoteAddress);
+        }
+        if (size > _maximumFrameSize) {
+          throw new IOException("Fudge envelope size " + size + " from " + _remoteAddress + " exceeds the maximum of " + _maximumFrameSize);
+        }
+        _frame = new byte[size];
+        System.arraycopy(_header, 0, _frame, 0, HEADER_SIZE);
+        _frameBytes = HEADER_SIZE;
+        _headerBytes = 0;
+      } else {
+        final int length = Math.min(buffer.remaining(), _frame.length - _frameBytes);
+        buffer.get(_frame, _frameBytes, length);
+        _frameBytes += length;
+      }
+      if (_frameBytes == _frame.length) {
+        final byte[] frame = _frame;
+        _frame = null;
+        messageReceived(_fudgeContext.deserialize(frame));
+        if (_closed.get()) {
+          return;
+        }
+      }
+    }
+  }
+
+  private void messageReceived(final FudgeMsgEnvelope envelope) {
+    final FudgeMessageReceiver receiver = _receiver;
+    if (receiver != null) {
+      if (_executorService != null) {
+        _executorService.execute(new Runnable() {
+          @Override
+          public void run() {
+            dispatch(receiver, envelope);
+          }
+        });
+      } else {
+        dispatch(receiver, envelope);
+      }
+    } else if (_underlying != null) {
+      try {
+        _underlying.connectionReceived(_fudgeContext, envelope, this);
+      } catch (Exception e) {
+        s_logger.warn("Unable to dispatch connection to receiver", e);
+      }
+    }
+  }
+
+  private void dispatch(final FudgeMessageReceiver receiver, final FudgeMsgEnvelope envelope) {
+    try {
+      receiver.messageReceived(_fudgeContext, envelope);
+    } catch (Exception e) {
+      s_logger.warn("Unable to dispatch message to receiver", e);
+    }
+  }
+
+  private void flush() throws IOException {
+    if (_closed.get()) {
+      return;
+    }
+    while (true) {
+      if (_gatherCount == 0) {
+        fillGather();
+        if (_gatherCount == 0) {
+          _flushScheduled.set(false);
+          // A sender may have queued a message after the queue was found empty but before the flag was cleared
+          if (_outbound.isEmpty() || !_flushScheduled.compareAndSet(false, true)) {
+            setWriteInterest(false);
+            return;
+          }
+          continue;
+        }
+      }
+      _channel.write(_gather, 0, _gatherCount);
+      if (_gather[_gatherCount - 1].hasRemaining()) {
+        // Socket buffer is full; carry on when the channel is writable again
+        setWriteInterest(true);
+        return;
+      }
+      releaseGather();
+    }
+  }
+
+  private void fillGather() {
+    ByteBuffer buffer = null;
+    while (true) {
+      if (_current == null) {
+        _current = _outbound.poll();
+        if (_current == null) {
+          break;
+        }
+        _queuedBytes.addAndGet(-_current.length);
+        _currentOffset = 0;
+      }
+      if ((buffer == null) || !buffer.hasRemaining()) {
+        if (_gatherCount == MAX_GATHER) {
+          break;
+        }
+        buffer = _selectorThread.getBufferPool().acquire();
+        _gather[_gatherCount++] = buffer;
+      }
+      final int length = Math.min(buffer.remaining(), _current.length - _currentOffset);
+      buffer.put(_current, _currentOffset, length);
+      _currentOffset += length;
+      if (_currentOffset == _current.length) {
+        _current = null;
+      }
+    }
+    for (int i = 0; i < _gatherCount; i++) {
+      _gather[i].flip();
+    }
+  }
+
+  private void releaseGather() {
+    for (int i = 0; i < _gatherCount; i++) {
+      _selectorThread.getBufferPool().release(_gather[i]);
+      _gather[i] = null;
+    }
+    _gatherCount = 0;
+  }
+
+  private void setWriteInterest(final boolean write) {
+    final SelectionKey key = _key;
+    if ((key == null) || !key.isValid()) {
+      return;
+    }
+    final int ops = write ? (SelectionKey.OP_READ | SelectionKey.OP_WRITE) : SelectionKey.OP_READ;
+    if (key.interestOps() != ops) {
+      key.interestOps(ops);
+    }
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("FudgeConnection to ");
+    sb.append(_remoteAddress);
+    if (isClosed()) {
+      sb.append(" (closed)");
+    }
+    return sb.toString();
+  }
+
+}
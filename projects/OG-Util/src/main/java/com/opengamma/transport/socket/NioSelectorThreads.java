@@ -0,0 +1,342 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.transport.socket;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.Lifecycle;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.ThreadUtils;
+
+/**
+ * A fixed set of threads, each running a {@link Selector}, that service any number of non-blocking channels. Channels
+ * are assigned to the threads round-robin and stay on the same thread for their lifetime, so all I/O for a channel is
+ * single threaded.
+ * <p>
+ * An instance may be shared by several servers and client connections. Stopping the threads closes every channel
+ * still registered with them.
+ */
+public class NioSelectorThreads implements Lifecycle {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(NioSelectorThreads.class);
+
+  /**
+   * Default size of the pooled buffers.
+   */
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Callback from a selector thread for a registered channel.
+   */
+  /* package */interface Handler {
+
+    /**
+     * Called on the selector thread once the channel is registered.
+     *
+     * @param key the selection key of the channel
+     */
+    void registered(SelectionKey key);
+
+    /**
+     * Called on the selector thread when the channel is ready for one or more of its operations.
+     *
+     * @param key the selection key of the channel
+     * @throws IOException if the channel failed
+     */
+    void selected(SelectionKey key) throws IOException;
+
+    /**
+     * Called on the selector thread if registration or a call to {@link #selected} failed.
+     *
+     * @param cause the failure
+     */
+    void failed(Exception cause);
+
+    /**
+     * Called on the selector thread when the thread is stopped. The channel is closed after this returns.
+     */
+    void stopped();
+
+  }
+
+  private final int _threadCount;
+  private final DirectByteBufferPool _bufferPool;
+  private final AtomicInteger _nextThread = new AtomicInteger();
+  private boolean _isDaemon = true;
+  private SelectorThread[] _threads;
+
+  /**
+   * Creates an instance with a thread per processor.
+   */
+  public NioSelectorThreads() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param threadCount the number of selector threads, at least one
+   */
+  public NioSelectorThreads(final int threadCount) {
+    this(threadCount, new DirectByteBufferPool(DEFAULT_BUFFER_SIZE, 64 * threadCount));
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param threadCount the number of selector threads, at least one
+   * @param bufferPool the pool to take read and write buffers from, not null
+   */
+  public NioSelectorThreads(final int threadCount, final DirectByteBufferPool bufferPool) {
+    ArgumentChecker.isTrue(threadCount > 0, "threadCount");
+    ArgumentChecker.notNull(bufferPool, "bufferPool");
+    _threadCount = threadCount;
+    _bufferPool = bufferPool;
+  }
+
+  public int getThreadCount() {
+    return _threadCount;
+  }
+
+  public DirectByteBufferPool getBufferPool() {
+    return _bufferPool;
+  }
+
+  /**
+   * @param isDaemon  true if the selector threads should be run as daemon threads, false otherwise
+   */
+  public void setDaemon(final boolean isDaemon) {
+    _isDaemon = isDaemon;
+  }
+
+  /**
+   * @return true if the selector threads should be run as daemon threads, false otherwise
+   */
+  public boolean isDaemon() {
+    return _isDaemon;
+  }
+
+  @Override
+  public synchronized boolean isRunning() {
+    return _threads != null;
+  }
+
+  @Override
+  public synchronized void start() {
+    if (_threads != null) {
+      return;
+    }
+    final SelectorThread[] threads = new SelectorThread[_threadCount];
+    try {
+      for (int i = 0; i < threads.length; i++) {
+        threads[i] = new SelectorThread(Selector.open(), _bufferPool);
+      }
+    } catch (IOException e) {
+      for (SelectorThread thread : threads) {
+        if (thread != null) {
+          thread.closeSelector();
+        }
+      }
+      throw new OpenGammaRuntimeException("Unable to open selector", e);
+    }
+    for (int i = 0; i < threads.length; i++) {
+      final Thread thread = new Thread(threads[i], "NIO Selector " + i);
+      thread.setDaemon(_isDaemon);
+      threads[i].start(thread);
+    }
+    _threads = threads;
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (_threads == null) {
+      return;
+    }
+    for (SelectorThread thread : _threads) {
+      thread.terminate();
+    }
+    _threads = null;
+  }
+
+  /**
+   * Picks the thread that will service a new channel.
+   *
+   * @return the selector thread, not null
+   */
+  /* package */synchronized SelectorThread next() {
+    if (_threads == null) {
+      throw new IllegalStateException("Selector threads have not been started");
+    }
+    return _threads[(_nextThread.getAndIncrement() & Integer.MAX_VALUE) % _threads.length];
+  }
+
+  /**
+   * A single selector and the thread that runs it.
+   */
+  /* package */static final class SelectorThread implements Runnable {
+
+    private final Selector _selector;
+    private final DirectByteBufferPool _bufferPool;
+    private final Queue<Runnable> _tasks = new ConcurrentLinkedQueue<Runnable>();
+    private final ByteBuffer _readBuffer;
+    private volatile boolean _terminated;
+    private Thread _thread;
+
+    private SelectorThread(final Selector selector, final DirectByteBufferPool bufferPool) {
+      _selector = selector;
+      _bufferPool = bufferPool;
+      _readBuffer = bufferPool.acquire();
+    }
+
+    private void start(final Thread thread) {
+      _thread = thread;
+      thread.start();
+    }
+
+    private void terminate() {
+      _terminated = true;
+      _selector.wakeup();
+      if (Thread.currentThread() != _thread) {
+        ThreadUtils.safeJoin(_thread, 60 * 1000L);
+      }
+    }
+
+    private void closeSelector() {
+      try {
+        _selector.close();
+      } catch (IOException e) {
+        s_logger.warn("Unable to close selector", e);
+      }
+    }
+
+    /**
+     * @return the pool to take write buffers from
+     */
+    DirectByteBufferPool getBufferPool() {
+      return _bufferPool;
+    }
+
+    /**
+     * Returns the buffer to read into. It is shared by all channels on this thread so must only be used from
+     * the thread, and must be emptied before returning to the selector.
+     *
+     * @return the read buffer
+     */
+    ByteBuffer getReadBuffer() {
+      return _readBuffer;
+    }
+
+    /**
+     * Queues a task to run on this thread after the current selection.
+     *
+     * @param task the task, not null
+     */
+    void execute(final Runnable task) {
+      _tasks.add(task);
+      _selector.wakeup();
+    }
+
+    /**
+     * Registers a channel with this thread's selector.
+     *
+     * @param channel the non-blocking channel, not null
+     * @param ops the initial interest set
+     * @param handler the handler to call when the channel is ready, not null
+     */
+    void register(final SelectableChannel channel, final int ops, final Handler handler) {
+      execute(new Runnable() {
+        @Override
+        public void run() {
+          final SelectionKey key;
+          try {
+            key = channel.register(_selector, ops, handler);
+          } catch (IOException e) {
+            handler.failed(e);
+            return;
+          }
+          handler.registered(key);
+        }
+      });
+    }
+
+    private void closeChannels() {
+      for (SelectionKey key : new ArrayList<SelectionKey>(_selector.keys())) {
+        final Handler handler = (Handler) key.attachment();
+        try {
+          handler.stopped();
+        } catch (RuntimeException e) {
+          s_logger.warn("Error stopping channel handler", e);
+        }
+        try {
+          key.channel().close();
+        } catch (IOException e) {
+          s_logger.warn("Unable to close channel", e);
+        }
+      }
+    }
+
+    private void runTasks() {
+      Runnable task = _tasks.poll();
+      while (task != null) {
+        try {
+          task.run();
+        } catch (RuntimeException e) {
+          s_logger.warn("Error running selector task", e);
+        }
+        task = _tasks.poll();
+      }
+    }
+
+    @Override
+    public void run() {
+      while (!_terminated) {
+        try {
+          _selector.select();
+        } catch (IOException e) {
+          s_logger.warn("Error during select", e);
+        }
+        runTasks();
+        final Iterator<SelectionKey> itr = _selector.selectedKeys().iterator();
+        while (itr.hasNext()) {
+          final SelectionKey key = itr.next();
+          itr.remove();
+          final Handler handler = (Handler) key.attachment();
+          try {
+            if (key.isValid()) {
+              handler.selected(key);
+            }
+          } catch (CancelledKeyException e) {
+            // Channel closed by another thread
+          } catch (IOException e) {
+            handler.failed(e);
+          } catch (RuntimeException e) {
+            handler.failed(e);
+          }
+        }
+      }
+      runTasks();
+      closeChannels();
+      closeSelector();
+      _bufferPool.release(_readBuffer);
+    }
+
+  }
+
+}
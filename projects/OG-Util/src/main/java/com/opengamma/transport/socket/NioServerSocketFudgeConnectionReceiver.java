@@ -0,0 +1,300 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.transport.socket;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.Lifecycle;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.transport.EndPointDescriptionProvider;
+import com.opengamma.transport.FudgeConnectionReceiver;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Listens on a non-blocking server socket and passes {@link NioFudgeConnection}s to an underlying
+ * {@link FudgeConnectionReceiver}. This is a drop-in alternative to {@link ServerSocketFudgeConnectionReceiver}
+ * for servers with many clients; accepting and all connection I/O run on a fixed set of {@link NioSelectorThreads}
+ * rather than a thread per connection.
+ * <p>
+ * The underlying receiver is called on a selector thread, so should set a message receiver on the connection
+ * and return rather than block. Messages for the connection's receiver are dispatched via the executor service
+ * if there is one, otherwise also on the selector thread.
+ */
+public class NioServerSocketFudgeConnectionReceiver implements Lifecycle, EndPointDescriptionProvider {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(NioServerSocketFudgeConnectionReceiver.class);
+
+  private final FudgeContext _fudgeContext;
+  private final FudgeConnectionReceiver _underlying;
+  private final ExecutorService _executorService;
+  private final NioSelectorThreads _selectorThreads;
+  private final boolean _ownSelectorThreads;
+  private final Set<NioFudgeConnection> _connections = Collections.newSetFromMap(new ConcurrentHashMap<NioFudgeConnection, Boolean>());
+
+  private int _portNumber;
+  private InetAddress _bindAddress;
+  private int _maximumFrameSize = NioFudgeConnection.DEFAULT_MAXIMUM_FRAME_SIZE;
+  private int _maximumQueuedBytes = NioFudgeConnection.DEFAULT_MAXIMUM_QUEUED_BYTES;
+
+  private ServerSocketChannel _serverChannel;
+  private boolean _started;
+
+  /**
+   * Creates a receiver with its own selector threads, started and stopped with the receiver.
+   *
+   * @param fudgeContext the Fudge context, not null
+   * @param underlying the receiver for new connections, not null
+   */
+  public NioServerSocketFudgeConnectionReceiver(final FudgeContext fudgeContext, final FudgeConnectionReceiver underlying) {
+    this(fudgeContext, underlying, new NioSelectorThreads(), true, null);
+  }
+
+  /**
+   * Creates a receiver using shared selector threads, which must be started before the receiver.
+   *
+   * @param fudgeContext the Fudge context, not null
+   * @param underlying the receiver for new connections, not null
+   * @param selectorThreads the selector threads, not null
+   */
+  public NioServerSocketFudgeConnectionReceiver(final FudgeContext fudgeContext, final FudgeConnectionReceiver underlying,
+      final NioSelectorThreads selectorThreads) {
+    this(fudgeContext, underlying, selectorThreads, false, null);
+  }
+
+  /**
+   * Creates a receiver using shared selector threads, which must be started before the receiver.
+   *
+   * @param fudgeContext the Fudge context, not null
+   * @param underlying the receiver for new connections, not null
+   * @param selectorThreads the selector threads, not null
+   * @param executorService an executor service to run received messages via, not null
+   */
+  public NioServerSocketFudgeConnectionReceiver(final FudgeContext fudgeContext, final FudgeConnectionReceiver underlying,
+      final NioSelectorThreads selectorThreads, final ExecutorService executorService) {
+    this(fudgeContext, underlying, selectorThreads, false, executorService);
+    ArgumentChecker.notNull(executorService, "executorService");
+  }
+
+  private NioServerSocketFudgeConnectionReceiver(final FudgeContext fudgeContext, final FudgeConnectionReceiver underlying,
+      final NioSelectorThreads selectorThreads, final boolean ownSelectorThreads, final ExecutorService executorService) {
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    ArgumentChecker.notNull(underlying, "underlying");
+    ArgumentChecker.notNull(selectorThreads, "selectorThreads");
+    _fudgeContext = fudgeContext;
+    _underlying = underlying;
+    _selectorThreads = selectorThreads;
+    _ownSelectorThreads = ownSelectorThreads;
+    _executorService = executorService;
+  }
+
+  public FudgeContext getFudgeContext() {
+    return _fudgeContext;
+  }
+
+  public FudgeConnectionReceiver getUnderlying() {
+    return _underlying;
+  }
+
+  public NioSelectorThreads getSelectorThreads() {
+    return _selectorThreads;
+  }
+
+  /**
+   * @return the portNumber
+   */
+  public int getPortNumber() {
+    return _portNumber;
+  }
+
+  /**
+   * @param portNumber the portNumber to set
+   */
+  public void setPortNumber(int portNumber) {
+    _portNumber = portNumber;
+  }
+
+  /**
+   * @return the bindAddress
+   */
+  public InetAddress getBindAddress() {
+    return _bindAddress;
+  }
+
+  /**
+   * @param bindAddress the bindAddress to set
+   */
+  public void setBindAddress(InetAddress bindAddress) {
+    _bindAddress = bindAddress;
+  }
+
+  /**
+   * @return the largest message, in bytes, that connections will accept before closing
+   */
+  public int getMaximumFrameSize() {
+    return _maximumFrameSize;
+  }
+
+  /**
+   * Sets the largest message that new connections will accept. A client sending a larger message has its connection closed.
+   *
+   * @param maximumFrameSize the maximum size in bytes, greater than the envelope header size
+   */
+  public void setMaximumFrameSize(final int maximumFrameSize) {
+    ArgumentChecker.isTrue(maximumFrameSize > NioFudgeConnection.HEADER_SIZE, "maximumFrameSize");
+    _maximumFrameSize = maximumFrameSize;
+  }
+
+  /**
+   * @return the number of bytes that may be waiting to be written on each connection before sends fail
+   */
+  public int getMaximumQueuedBytes() {
+    return _maximumQueuedBytes;
+  }
+
+  /**
+   * Sets the number of encoded bytes that may be waiting to be written to each new connection. Sends beyond this fail.
+   *
+   * @param maximumQueuedBytes the maximum size in bytes, greater than zero
+   */
+  public void setMaximumQueuedBytes(final int maximumQueuedBytes) {
+    ArgumentChecker.isTrue(maximumQueuedBytes > 0, "maximumQueuedBytes");
+    _maximumQueuedBytes = maximumQueuedBytes;
+  }
+
+  /**
+   * @return the number of connections currently open
+   */
+  public int getConnectionCount() {
+    return _connections.size();
+  }
+
+  @Override
+  public synchronized boolean isRunning() {
+    return _started;
+  }
+
+  @Override
+  public synchronized void start() {
+    if (_started) {
+      return;
+    }
+    if (_ownSelectorThreads) {
+      _selectorThreads.start();
+    }
+    s_logger.info("Binding to {}:{}", getBindAddress(), getPortNumber());
+    try {
+      _serverChannel = ServerSocketChannel.open();
+      // Backlog of 50 as for ServerSocketFudgeConnectionReceiver
+      _serverChannel.socket().bind(new InetSocketAddress(getBindAddress(), getPortNumber()), 50);
+      _serverChannel.configureBlocking(false);
+      if (getPortNumber() == 0) {
+        s_logger.info("Received inbound port {}", _serverChannel.socket().getLocalPort());
+      }
+      setPortNumber(_serverChannel.socket().getLocalPort());
+    } catch (IOException ioe) {
+      closeServerChannel();
+      throw new OpenGammaRuntimeException("Unable to bind to " + getBindAddress() + " port " + getPortNumber(), ioe);
+    }
+    final ServerSocketChannel serverChannel = _serverChannel;
+    _selectorThreads.next().register(serverChannel, SelectionKey.OP_ACCEPT, new NioSelectorThreads.Handler() {
+
+      @Override
+      public void registered(final SelectionKey key) {
+      }
+
+      @Override
+      public void selected(final SelectionKey key) throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        while (channel != null) {
+          socketOpened(channel);
+          channel = serverChannel.accept();
+        }
+      }
+
+      @Override
+      public void failed(final Exception cause) {
+        if (serverChannel.isOpen()) {
+          s_logger.warn("Unable to accept a new connection", cause);
+        }
+      }
+
+      @Override
+      public void stopped() {
+        s_logger.info("Selector thread stopped - no longer accepting connections on port {}", serverChannel.socket().getLocalPort());
+      }
+
+    });
+    _started = true;
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (!_started) {
+      return;
+    }
+    closeServerChannel();
+    for (NioFudgeConnection connection : new ArrayList<NioFudgeConnection>(_connections)) {
+      connection.close();
+    }
+    if (_ownSelectorThreads) {
+      _selectorThreads.stop();
+    }
+    _started = false;
+  }
+
+  private void closeServerChannel() {
+    if (_serverChannel != null) {
+      try {
+        _serverChannel.close();
+      } catch (IOException e) {
+        s_logger.warn("Unable to close server socket on lifecycle stop", e);
+      }
+    }
+  }
+
+  private void socketOpened(final SocketChannel channel) {
+    s_logger.info("Opened socket to remote side {}", channel.socket().getRemoteSocketAddress());
+    try {
+      channel.configureBlocking(false);
+      channel.socket().setTcpNoDelay(true);
+    } catch (IOException e) {
+      s_logger.warn("Unable to configure channel {}", new Object[] {channel}, e);
+      try {
+        channel.close();
+      } catch (IOException ex) {
+        // Ignore
+      }
+      return;
+    }
+    final NioFudgeConnection connection = new NioFudgeConnection(getFudgeContext(), channel, _selectorThreads.next(), getUnderlying(), _executorService,
+        _connections);
+    connection.setMaximumFrameSize(getMaximumFrameSize());
+    connection.setMaximumQueuedBytes(getMaximumQueuedBytes());
+    _connections.add(connection);
+    connection.open();
+  }
+
+  @Override
+  public FudgeMsg getEndPointDescription(final FudgeContext fudgeContext) {
+    return AbstractServerSocketProcess.getEndPointDescription(fudgeContext, _serverChannel.socket().getInetAddress(), _serverChannel.socket().getLocalPort());
+  }
+
+}
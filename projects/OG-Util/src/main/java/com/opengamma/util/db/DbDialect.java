@@ -203,6 +203,23 @@ public abstract class DbDialect {
     return "SELECT NEXT VALUE FOR " + sequenceName;
   }
 
+  /**
+   * Builds SQL to query a block of values from a sequence (typically created with CREATE SEQUENCE).
+   * <p>
+   * The SQL returns one row for each value, with the value in the first column.
+   * This is used to allocate identifiers for many rows in one round trip.
+   * The default implementation returns null, meaning that the dialect cannot
+   * do this and each value should be selected using {@link #sqlNextSequenceValueSelect(String)}.
+   * The Postgres, HSQL and SQL Server dialects support it.
+   * 
+   * @param sequenceName  the sequence name, not null
+   * @param count  the number of values to select, greater than zero
+   * @return the SQL, not space terminated, null if not supported
+   */
+  public String sqlNextSequenceValuesSelect(final String sequenceName, final int count) {
+    return null;
+  }
+
   /**
    * Builds SQL to query a sequence (typically created with CREATE SEQUENCE).
    * 
@@ -56,6 +56,17 @@ public class HSQLDbDialect extends DbDialect {
     return "CALL NEXT VALUE FOR " + sequenceName;
   }
 
+  @Override
+  public String sqlNextSequenceValuesSelect(final String sequenceName, final int count) {
+    // HSQL takes a new value for each row selected
+    final StringBuilder buf = new StringBuilder(count * 4 + sequenceName.length() + 50);
+    buf.append("SELECT NEXT VALUE FOR ").append(sequenceName).append(" FROM (VALUES(0)");
+    for (int i = 1; i < count; i++) {
+      buf.append(",(0)");
+    }
+    return buf.append(") AS V(X)").toString();
+  }
+
   @Override
   public String sqlSelectNow() {
     return "SELECT * FROM (VALUES(current_timestamp)) AS V(NOW_TIMESTAMP)";
@@ -52,6 +52,11 @@ public class PostgresDbDialect extends DbDialect {
     return "SELECT nextval('" + sequenceName + "')";
   }
 
+  @Override
+  public String sqlNextSequenceValuesSelect(final String sequenceName, final int count) {
+    return "SELECT nextval('" + sequenceName + "') FROM generate_series(1, " + count + ")";
+  }
+
   @Override
   public String sqlNextSequenceValueInline(final String sequenceName) {
     return "nextval('" + sequenceName + "')";
@@ -77,6 +77,15 @@ public class SqlServer2008DbDialect extends DbDialect {
         " WITH (READPAST); SELECT nextval = @NewSeqValue; SET NOCOUNT OFF";
   }
 
+  @Override
+  public String sqlNextSequenceValuesSelect(final String sequenceName, final int count) {
+    // one identity row is inserted for each value required, the cross join supplies enough source rows
+    return
+        "SET NOCOUNT ON; INSERT INTO " + sequenceName + " (SeqVal) OUTPUT inserted.SeqID SELECT TOP (" + count +
+        ") 'a' FROM sys.all_columns a CROSS JOIN sys.all_columns b; DELETE FROM " + sequenceName +
+        " WITH (READPAST); SET NOCOUNT OFF";
+  }
+
   @Override
   public String sqlNextSequenceValueInline(final String sequenceName) {
     throw new OpenGammaRuntimeException("sqlNextSequenceValueInline is not currently supported in the SQL Server 2008 dialect");
@@ -16,6 +16,10 @@ import com.opengamma.util.ArgumentChecker;
  * This class is the result of using {@link PagingRequest} to obtain an indexed subset of results.
  * This may represent traditional fixed paging or arbitrary paging starting from an index.
  * <p>
+ * When created by {@link #ofCursor(PagingRequest, int, String)} the total number of items is not
+ * known. The total is then the number of items in this page and the next page is identified by an
+ * opaque cursor, see {@link #getNextCursor()}. Cursor paging only moves forwards.
+ * <p>
  * This class is immutable and thread-safe.
  */
 public final class Paging {
@@ -28,6 +32,14 @@ public final class Paging {
    * The total number of items.
    */
   private final int _totalItems;
+  /**
+   * Whether the paging is cursor based.
+   */
+  private final boolean _cursorPaging;
+  /**
+   * The cursor for the next page, null if no next page or not cursor based.
+   */
+  private final String _nextCursor;
 
   /**
    * Creates an instance from a paging request and total number of items.
@@ -71,6 +83,25 @@ public final class Paging {
     return new Paging(pagingRequest, coll.size());
   }
 
+  /**
+   * Creates an instance based on a cursor paging request.
+   * <p>
+   * This is used when the results were obtained by seeking to the cursor, so the total number
+   * of items was not counted. The next cursor should be null once the end of the results is known
+   * to have been reached, although a cursor may be returned that leads to an empty page.
+   * 
+   * @param pagingRequest  the cursor paging request to base the result on, not null
+   * @param itemCount  the number of items in this page, zero or greater
+   * @param nextCursor  the opaque cursor of the next page, null if no next page
+   * @return the created paging, not null
+   * @throws IllegalArgumentException if the request is not cursor based
+   */
+  public static Paging ofCursor(final PagingRequest pagingRequest, final int itemCount, final String nextCursor) {
+    ArgumentChecker.notNull(pagingRequest, "pagingRequest");
+    ArgumentChecker.isTrue(pagingRequest.isCursorPaging(), "Paging request must be cursor based");
+    return new Paging(pagingRequest, itemCount, true, nextCursor);
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Creates an instance.
@@ -79,10 +110,24 @@ public final class Paging {
    * @param totalItems  the total number of items, zero or greater
    */
   private Paging(final PagingRequest pagingRequest, final int totalItems) {
+    this(pagingRequest, totalItems, false, null);
+  }
+
+  /**
+   * Creates an instance.
+   * 
+   * @param pagingRequest  the request, not null
+   * @param totalItems  the total number of items, zero or greater
+   * @param cursorPaging  whether the paging is cursor based
+   * @param nextCursor  the cursor of the next page, null if none
+   */
+  private Paging(final PagingRequest pagingRequest, final int totalItems, final boolean cursorPaging, final String nextCursor) {
     ArgumentChecker.notNull(pagingRequest, "pagingRequest");
     ArgumentChecker.notNegative(totalItems, "totalItems");
     _request = pagingRequest;
     _totalItems = totalItems;
+    _cursorPaging = cursorPaging;
+    _nextCursor = (cursorPaging ? nextCursor : null);
   }
 
   //-------------------------------------------------------------------------
@@ -109,6 +154,27 @@ public final class Paging {
     return _totalItems;
   }
 
+  /**
+   * Checks if the paging is cursor based.
+   * <p>
+   * This is false if a cursor paging request was handled by a system that does not
+   * support cursors, in which case the result is the first page.
+   * 
+   * @return true if cursor based
+   */
+  public boolean isCursorPaging() {
+    return _cursorPaging;
+  }
+
+  /**
+   * Gets the opaque cursor identifying the next page.
+   * 
+   * @return the cursor of the next page, null if no next page or not cursor based
+   */
+  public String getNextCursor() {
+    return _nextCursor;
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Gets the first item, using a zero-based index.
@@ -199,6 +265,9 @@ public final class Paging {
    */
   public boolean isNextPage() {
     checkPaging();
+    if (_cursorPaging) {
+      return _nextCursor != null;
+    }
     return getPageNumber() < getTotalPages();
   }
 
@@ -211,6 +280,9 @@ public final class Paging {
    */
   public boolean isLastPage() {
     checkPaging();
+    if (_cursorPaging) {
+      return _nextCursor == null;
+    }
     return getPageNumber() == getTotalPages();
   }
 
@@ -250,6 +322,9 @@ public final class Paging {
     if (isSizeOnly()) {
       return PagingRequest.NONE;
     }
+    if (_cursorPaging) {
+      return _request;
+    }
     return PagingRequest.ofPage(getPageNumber(), getPagingSize());
   }
 
@@ -265,6 +340,9 @@ public final class Paging {
     if (isLastPage()) {
       throw new NoSuchElementException("Unable to return next page as this is the last page");
     }
+    if (_cursorPaging) {
+      return PagingRequest.ofCursor(_nextCursor, getPagingSize());
+    }
     return PagingRequest.ofPage(getPageNumber() + 1, getPagingSize());
   }
 
@@ -299,18 +377,24 @@ public final class Paging {
   public boolean equals(Object obj) {
     if (obj instanceof Paging) {
       Paging other = (Paging) obj;
-      return _request.equals(other._request) && _totalItems == other._totalItems;
+      return _request.equals(other._request) && _totalItems == other._totalItems &&
+          _cursorPaging == other._cursorPaging &&
+          (_nextCursor != null ? _nextCursor.equals(other._nextCursor) : other._nextCursor == null);
     }
     return false;
   }
 
   @Override
   public int hashCode() {
-    return _request.hashCode() ^ _totalItems;
+    return _request.hashCode() ^ _totalItems ^ (_nextCursor != null ? _nextCursor.hashCode() : 0);
   }
 
   @Override
   public String toString() {
+    if (_cursorPaging) {
+      return getClass().getSimpleName() + "[cursor=" + _request.getCursor() + ", size=" + getPagingSize() +
+          ", items=" + _totalItems + ", nextCursor=" + _nextCursor + "]";
+    }
     return getClass().getSimpleName() + "[first=" + getFirstItem() + ", size=" + getPagingSize() + ", totalItems=" + _totalItems + "]";
   }
 
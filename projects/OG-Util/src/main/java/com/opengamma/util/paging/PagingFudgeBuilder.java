@@ -26,6 +26,10 @@ public final class PagingFudgeBuilder extends AbstractFudgeBuilder implements Fu
   public static final String SIZE_FIELD_NAME = "size";
   /** Field name. */
   public static final String TOTAL_FIELD_NAME = "total";
+  /** Field name. */
+  public static final String CURSOR_FIELD_NAME = "cursor";
+  /** Field name. */
+  public static final String NEXT_CURSOR_FIELD_NAME = "nextCursor";
 
   //-------------------------------------------------------------------------
   @Override
@@ -48,6 +52,10 @@ public final class PagingFudgeBuilder extends AbstractFudgeBuilder implements Fu
     addToMessage(msg, FIRST_FIELD_NAME, object.getRequest().getFirstItem());
     addToMessage(msg, SIZE_FIELD_NAME, object.getRequest().getPagingSize());
     addToMessage(msg, TOTAL_FIELD_NAME, object.getTotalItems());
+    if (object.isCursorPaging()) {
+      addToMessage(msg, CURSOR_FIELD_NAME, object.getRequest().getCursor());
+      addToMessage(msg, NEXT_CURSOR_FIELD_NAME, object.getNextCursor());
+    }
   }
 
   //-------------------------------------------------------------------------
@@ -63,6 +71,10 @@ public final class PagingFudgeBuilder extends AbstractFudgeBuilder implements Fu
     final int first = msg.getInt(FIRST_FIELD_NAME);
     final int size = msg.getInt(SIZE_FIELD_NAME);
     final int total = msg.getInt(TOTAL_FIELD_NAME);
+    final String cursor = msg.getString(CURSOR_FIELD_NAME);
+    if (cursor != null) {
+      return Paging.ofCursor(PagingRequest.ofCursor(cursor, size), total, msg.getString(NEXT_CURSOR_FIELD_NAME));
+    }
     return Paging.of(PagingRequest.ofIndex(first, size), total);
   }
 
@@ -17,6 +17,10 @@ import com.opengamma.util.PublicAPI;
  * This class is follows the design of SQL OFFSET and FETCH/LIMIT, exposed as a first-item/size data model.
  * This can be used to implement traditional fixed paging or arbitrary paging starting from an index.
  * <p>
+ * A request may instead be based on an opaque cursor, see {@link #ofCursor(String, int)}.
+ * Cursor paging seeks directly to the item following the previous page, avoiding the cost
+ * of counting and skipping earlier items, and is intended for walking large result sets in order.
+ * <p>
  * This class is immutable and thread-safe.
  */
 @PublicAPI
@@ -51,6 +55,10 @@ public final class PagingRequest {
    * The requested number of items.
    */
   private final int _size;
+  /**
+   * The cursor, empty for the first page, null if not cursor based.
+   */
+  private final String _cursor;
 
   /**
    * Obtains an instance based on a zero-based index and requested size.
@@ -103,6 +111,26 @@ public final class PagingRequest {
     return PagingRequest.ofPage(page, pagingSize);
   }
 
+  /**
+   * Obtains an instance based on an opaque cursor and requested size.
+   * <p>
+   * The cursor is obtained from {@link Paging#getNextCursor()} on the previous page of results.
+   * Its content is defined by the system that returned it and must not be interpreted.
+   * A null cursor requests the first page.
+   * <p>
+   * Not all systems support cursor paging. Those that do not will treat the request as
+   * the first page and return a {@code Paging} where {@link Paging#isCursorPaging()} is false.
+   * 
+   * @param cursor  the cursor returned with the previous page, null for the first page
+   * @param size  the number of items to request, greater than zero
+   * @return the paging request, not null
+   * @throws IllegalArgumentException if the size is invalid
+   */
+  public static PagingRequest ofCursor(String cursor, int size) {
+    ArgumentChecker.notNegativeOrZero(size, "size");
+    return new PagingRequest(0, size, cursor != null ? cursor : "");
+  }
+
   /**
    * Creates an instance without using defaults.
    * <p>
@@ -114,10 +142,23 @@ public final class PagingRequest {
    * @throws IllegalArgumentException if either input is invalid
    */
   private PagingRequest(final int index, final int size) {
+    this(index, size, null);
+  }
+
+  /**
+   * Creates an instance without using defaults.
+   * 
+   * @param index  the zero-based start index, zero or greater
+   * @param size  the number of items to request, zero or greater
+   * @param cursor  the cursor, empty for the first page, null if not cursor based
+   * @throws IllegalArgumentException if either input is invalid
+   */
+  private PagingRequest(final int index, final int size, final String cursor) {
     ArgumentChecker.notNegative(index, "index");
     ArgumentChecker.notNegative(size, "size");
     _index = (size != 0 ? index : 0);
     _size = size;
+    _cursor = cursor;
   }
 
   //-------------------------------------------------------------------------
@@ -143,6 +184,28 @@ public final class PagingRequest {
     return _size;
   }
 
+  /**
+   * Gets the cursor identifying the page.
+   * <p>
+   * This is the opaque cursor returned with the previous page, or empty for the first page.
+   * 
+   * @return the cursor, empty for the first page, null if not cursor based
+   */
+  public String getCursor() {
+    return _cursor;
+  }
+
+  /**
+   * Checks if this request is based on a cursor rather than an index.
+   * <p>
+   * The first item of a cursor based request is always zero.
+   * 
+   * @return true if cursor based
+   */
+  public boolean isCursorPaging() {
+    return _cursor != null;
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Gets the first item, using a one-based index.
@@ -199,18 +262,22 @@ public final class PagingRequest {
   public boolean equals(Object obj) {
     if (obj instanceof PagingRequest) {
       PagingRequest other = (PagingRequest) obj;
-      return _index == other._index && _size == other._size;
+      return _index == other._index && _size == other._size &&
+          (_cursor != null ? _cursor.equals(other._cursor) : other._cursor == null);
     }
     return false;
   }
 
   @Override
   public int hashCode() {
-    return _index << 16 + _size;
+    return (_index << 16 + _size) ^ (_cursor != null ? _cursor.hashCode() : 0);
   }
 
   @Override
   public String toString() {
+    if (_cursor != null) {
+      return getClass().getSimpleName() + "[cursor=" + _cursor + ", size=" + _size + "]";
+    }
     return getClass().getSimpleName() + "[first=" + _index + ", size=" + _size + "]";
   }
 
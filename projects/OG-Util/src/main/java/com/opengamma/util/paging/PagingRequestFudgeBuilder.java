@@ -24,6 +24,8 @@ public final class PagingRequestFudgeBuilder extends AbstractFudgeBuilder implem
   public static final String FIRST_FIELD_NAME = "first";
   /** Field name. */
   public static final String SIZE_FIELD_NAME = "size";
+  /** Field name. */
+  public static final String CURSOR_FIELD_NAME = "cursor";
 
   //-------------------------------------------------------------------------
   @Override
@@ -45,6 +47,7 @@ public final class PagingRequestFudgeBuilder extends AbstractFudgeBuilder implem
   public static void toFudgeMsg(final FudgeSerializer serializer, final PagingRequest object, final MutableFudgeMsg msg) {
     addToMessage(msg, FIRST_FIELD_NAME, object.getFirstItem());
     addToMessage(msg, SIZE_FIELD_NAME, object.getPagingSize());
+    addToMessage(msg, CURSOR_FIELD_NAME, object.getCursor());
   }
 
   //-------------------------------------------------------------------------
@@ -59,6 +62,10 @@ public final class PagingRequestFudgeBuilder extends AbstractFudgeBuilder implem
     }
     final int first = msg.getInt(FIRST_FIELD_NAME);
     final int size = msg.getInt(SIZE_FIELD_NAME);
+    final String cursor = msg.getString(CURSOR_FIELD_NAME);
+    if (cursor != null) {
+      return PagingRequest.ofCursor(cursor, size);
+    }
     return PagingRequest.ofIndex(first, size);
   }
 
@@ -7,6 +7,7 @@ package com.opengamma.util.rest;
 
 import java.lang.reflect.Method;
 import java.net.URI;
+import java.util.Iterator;
 
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -22,6 +23,9 @@ import org.fudgemsg.FudgeMsgEnvelope;
 import org.joda.beans.Bean;
 
 import com.opengamma.transport.jaxrs.FudgeResponse;
+import com.opengamma.transport.jaxrs.FudgeRest;
+import com.opengamma.transport.jaxrs.FudgeStreamingOutput;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
 
 /**
  * Abstract base class for RESTful resources.
@@ -101,6 +105,19 @@ public abstract class AbstractDataResource {
     return Response.created(uri).entity(encode(value)).build();
   }
 
+  /**
+   * Creates the RESTful "ok" response object streaming a sequence of values using Fudge.
+   * <p>
+   * Each value is written as a separate Fudge message as it is taken from the iterator,
+   * allowing large results to be sent without being held in memory.
+   * 
+   * @param values  the values to stream, not null
+   * @return the response, not null
+   */
+  protected Response responseOkFudgeStream(final Iterator<?> values) {
+    return Response.ok(new FudgeStreamingOutput(OpenGammaFudgeContext.getInstance(), values), FudgeRest.STREAM_MEDIA_TYPE).build();
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Checks if the value is null and throws a 404 exception.
@@ -5,10 +5,13 @@
  */
 package com.opengamma.util.rest;
 
+import java.io.InputStream;
 import java.net.URI;
 
 import org.fudgemsg.FudgeContext;
 
+import com.opengamma.transport.jaxrs.FudgeRest;
+import com.opengamma.transport.jaxrs.FudgeStreamReader;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
 import com.sun.jersey.api.client.UniformInterface;
@@ -77,6 +80,23 @@ public abstract class AbstractRemoteClient {
     return getRestClient().accessFudge(uri);
   }
 
+  /**
+   * Posts a request to the remote master, reading the response as a stream of objects.
+   * <p>
+   * The objects are decoded as they arrive. The caller must read to the end of the stream,
+   * or close it, to release the connection.
+   * 
+   * @param <T>  the type of the objects
+   * @param uri  the URI to call, not null
+   * @param request  the request to post, not null
+   * @param type  the type of the objects, not null
+   * @return the stream of objects, not null
+   */
+  protected <T> FudgeStreamReader<T> accessRemoteStream(URI uri, Object request, Class<T> type) {
+    InputStream input = getRestClient().access(uri).type(FudgeRest.MEDIA_TYPE).accept(FudgeRest.STREAM_MEDIA_TYPE).post(InputStream.class, request);
+    return new FudgeStreamReader<T>(getFudgeContext(), input, type);
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Returns a string summary of this client.
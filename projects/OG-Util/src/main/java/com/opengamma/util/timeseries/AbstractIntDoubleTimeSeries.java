@@ -186,6 +186,11 @@ public abstract class AbstractIntDoubleTimeSeries<DATE_TYPE> extends AbstractFas
     return _converter.convertFromInt(getFastSeries().timesArrayFast());
   }
 
+  @Override
+  public FastBackedDoubleTimeSeries<DATE_TYPE> lag(final int days) {
+    return (FastBackedDoubleTimeSeries<DATE_TYPE>) getConverter().convertFromInt(this, getFastSeries().lag(days));
+  }
+
   public FastBackedDoubleTimeSeries<DATE_TYPE> operate(final UnaryOperator operator) {
     FastTimeSeries<Integer> fastResult = getFastSeries().operate(operator);
     return (FastBackedDoubleTimeSeries<DATE_TYPE>) getConverter().convertFromInt(this, (FastIntDoubleTimeSeries) fastResult);
@@ -187,6 +187,11 @@ public abstract class AbstractLongDoubleTimeSeries<DATE_TYPE> extends AbstractFa
     return _converter.convertFromLong(getFastSeries().timesArrayFast());
   }
 
+  @Override
+  public FastBackedDoubleTimeSeries<DATE_TYPE> lag(final int days) {
+    return (FastBackedDoubleTimeSeries<DATE_TYPE>) getConverter().convertFromLong(this, getFastSeries().lag(days));
+  }
+
   public FastBackedDoubleTimeSeries<DATE_TYPE> operate(final UnaryOperator operator) {
     FastTimeSeries<Long> fastResult = getFastSeries().operate(operator);
     return (FastBackedDoubleTimeSeries<DATE_TYPE>) getConverter().convertFromLong(this, (FastLongDoubleTimeSeries) fastResult);
@@ -8,9 +8,15 @@ package com.opengamma.util.timeseries;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.commons.lang.ArrayUtils;
+
+import com.opengamma.util.timeseries.fast.FastTimeSeries;
+import com.opengamma.util.timeseries.fast.FastTimeSeriesKernels;
+import com.opengamma.util.timeseries.fast.integer.FastIntDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.longint.FastLongDoubleTimeSeries;
+
 /**
- * 
- *
+ * Operations over whole time series, using the primitive arrays of fast backed series where possible.
  */
 public class BulkTimeSeriesOperations {
   @SuppressWarnings("unchecked")
@@ -22,7 +28,10 @@ public class BulkTimeSeriesOperations {
       }
       return results;
     }
-   
+    if (intersectionFast(inputs, results)) {
+      return results;
+    }
+
     DoubleTimeSeries<E> intersection = inputs[0];
     for (int i = 1; i < inputs.length; i++) {
       intersection = intersection.intersectionFirstValue(inputs[i]);
@@ -32,9 +41,172 @@ public class BulkTimeSeriesOperations {
     }
     return results;
   }
-  
+
   @SuppressWarnings("unchecked")
   public <E> List<DoubleTimeSeries<E>> intersection(List<DoubleTimeSeries<E>> inputs) {
     return Arrays.asList(intersection((DoubleTimeSeries<E>[]) inputs.toArray()));
   }
+
+  /**
+   * Restricts each series to the times common to all of them in a single merge pass over their time arrays.
+   * This is only possible if all of the series are backed by fast series of the same type and encoding.
+   *
+   * @param inputs the series to intersect, not null
+   * @param results receives the restricted series, the same length as the inputs
+   * @return true if the results were written, false if the inputs must be intersected pairwise instead
+   */
+  @SuppressWarnings("unchecked")
+  static boolean intersectionFast(final DoubleTimeSeries<?>[] inputs, final DoubleTimeSeries<?>[] results) {
+    final FastTimeSeries<?>[] fast = new FastTimeSeries<?>[inputs.length];
+    int shortest = Integer.MAX_VALUE;
+    for (int i = 0; i < inputs.length; i++) {
+      fast[i] = getFastSeries(inputs[i]);
+      if (fast[i] == null || fast[i].getEncoding() != fast[0].getEncoding()
+          || (fast[i] instanceof FastIntDoubleTimeSeries) != (fast[0] instanceof FastIntDoubleTimeSeries)) {
+        return false;
+      }
+      shortest = Math.min(shortest, fast[i].size());
+    }
+    final int[][] indices = new int[inputs.length][shortest];
+    if (fast[0] instanceof FastIntDoubleTimeSeries) {
+      final int[][] times = new int[inputs.length][];
+      for (int i = 0; i < inputs.length; i++) {
+        times[i] = ((FastIntDoubleTimeSeries) fast[i]).timesArrayFast();
+      }
+      final int count = FastTimeSeriesKernels.intersect(times, indices);
+      for (int i = 0; i < inputs.length; i++) {
+        final FastIntDoubleTimeSeries series = (FastIntDoubleTimeSeries) fast[i];
+        results[i] = fromFast((DoubleTimeSeries<Object>) inputs[i], series.newInstanceFast(FastTimeSeriesKernels.gather(times[i], indices[i], count),
+            FastTimeSeriesKernels.gather(series.valuesArrayFast(), indices[i], count)));
+      }
+    } else {
+      final long[][] times = new long[inputs.length][];
+      for (int i = 0; i < inputs.length; i++) {
+        times[i] = ((FastLongDoubleTimeSeries) fast[i]).timesArrayFast();
+      }
+      final int count = FastTimeSeriesKernels.intersect(times, indices);
+      for (int i = 0; i < inputs.length; i++) {
+        final FastLongDoubleTimeSeries series = (FastLongDoubleTimeSeries) fast[i];
+        results[i] = fromFast((DoubleTimeSeries<Object>) inputs[i], series.newInstanceFast(FastTimeSeriesKernels.gather(times[i], indices[i], count),
+            FastTimeSeriesKernels.gather(series.valuesArrayFast(), indices[i], count)));
+      }
+    }
+    return true;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Calculates the simple returns, {@code x(t) / x(t - 1) - 1}, of a series.
+   *
+   * @param <E> the type of the dates or times
+   * @param ts the series of values, not null
+   * @return the returns at the second and subsequent times of the series, not null
+   */
+  public static <E> DoubleTimeSeries<E> simpleReturns(final DoubleTimeSeries<E> ts) {
+    return withValues(ts, 1, FastTimeSeriesKernels.simpleReturns(valuesArray(ts)));
+  }
+
+  /**
+   * Calculates the continuously compounded returns, {@code ln(x(t) / x(t - 1))}, of a series.
+   *
+   * @param <E> the type of the dates or times
+   * @param ts the series of values, not null
+   * @return the returns at the second and subsequent times of the series, not null
+   */
+  public static <E> DoubleTimeSeries<E> logReturns(final DoubleTimeSeries<E> ts) {
+    return withValues(ts, 1, FastTimeSeriesKernels.logReturns(valuesArray(ts)));
+  }
+
+  /**
+   * Calculates the sum of each window of consecutive points of a series.
+   *
+   * @param <E> the type of the dates or times
+   * @param ts the series of values, not null
+   * @param window the number of points in each window, greater than zero
+   * @return the sums at the last time of each window, not null
+   */
+  public static <E> DoubleTimeSeries<E> rollingSum(final DoubleTimeSeries<E> ts, final int window) {
+    return withValues(ts, window - 1, FastTimeSeriesKernels.rollingSum(valuesArray(ts), window));
+  }
+
+  /**
+   * Calculates the mean of each window of consecutive points of a series.
+   *
+   * @param <E> the type of the dates or times
+   * @param ts the series of values, not null
+   * @param window the number of points in each window, greater than zero
+   * @return the means at the last time of each window, not null
+   */
+  public static <E> DoubleTimeSeries<E> rollingMean(final DoubleTimeSeries<E> ts, final int window) {
+    return withValues(ts, window - 1, FastTimeSeriesKernels.rollingMean(valuesArray(ts), window));
+  }
+
+  /**
+   * Calculates the sample standard deviation of each window of consecutive points of a series.
+   *
+   * @param <E> the type of the dates or times
+   * @param ts the series of values, not null
+   * @param window the number of points in each window, greater than one
+   * @return the standard deviations at the last time of each window, not null
+   */
+  public static <E> DoubleTimeSeries<E> rollingStandardDeviation(final DoubleTimeSeries<E> ts, final int window) {
+    return withValues(ts, window - 1, FastTimeSeriesKernels.rollingStandardDeviation(valuesArray(ts), window));
+  }
+
+  //-------------------------------------------------------------------------
+  private static FastTimeSeries<?> getFastSeries(final DoubleTimeSeries<?> ts) {
+    if (ts instanceof FastBackedDoubleTimeSeries<?>) {
+      return ((FastBackedDoubleTimeSeries<?>) ts).getFastSeries();
+    } else if (ts instanceof FastIntDoubleTimeSeries || ts instanceof FastLongDoubleTimeSeries) {
+      return (FastTimeSeries<?>) ts;
+    } else {
+      return null;
+    }
+  }
+
+  private static double[] valuesArray(final DoubleTimeSeries<?> ts) {
+    final FastTimeSeries<?> fast = getFastSeries(ts);
+    if (fast instanceof FastIntDoubleTimeSeries) {
+      return ((FastIntDoubleTimeSeries) fast).valuesArrayFast();
+    } else if (fast instanceof FastLongDoubleTimeSeries) {
+      return ((FastLongDoubleTimeSeries) fast).valuesArrayFast();
+    } else {
+      return ArrayUtils.toPrimitive(ts.valuesArray());
+    }
+  }
+
+  /**
+   * Creates a series with the given values at a contiguous range of the times of another.
+   */
+  private static <E> DoubleTimeSeries<E> withValues(final DoubleTimeSeries<E> ts, final int offset, final double[] values) {
+    final int start = (values.length == 0) ? 0 : offset;
+    final int end = start + values.length;
+    final FastTimeSeries<?> fast = getFastSeries(ts);
+    if (fast instanceof FastIntDoubleTimeSeries) {
+      final FastIntDoubleTimeSeries series = (FastIntDoubleTimeSeries) fast;
+      return fromFast(ts, series.newInstanceFast(Arrays.copyOfRange(series.timesArrayFast(), start, end), values));
+    } else if (fast instanceof FastLongDoubleTimeSeries) {
+      final FastLongDoubleTimeSeries series = (FastLongDoubleTimeSeries) fast;
+      return fromFast(ts, series.newInstanceFast(Arrays.copyOfRange(series.timesArrayFast(), start, end), values));
+    } else {
+      return ts.newInstance(Arrays.copyOfRange(ts.timesArray(), start, end), ArrayUtils.toObject(values));
+    }
+  }
+
+  /**
+   * Converts a fast series to the same type as a template series.
+   */
+  @SuppressWarnings("unchecked")
+  private static <E> DoubleTimeSeries<E> fromFast(final DoubleTimeSeries<E> template, final FastTimeSeries<?> fast) {
+    if (template instanceof FastBackedDoubleTimeSeries<?>) {
+      final DateTimeConverter<E> converter = ((FastBackedDoubleTimeSeries<E>) template).getConverter();
+      if (fast instanceof FastIntDoubleTimeSeries) {
+        return converter.convertFromInt(template, (FastIntDoubleTimeSeries) fast);
+      } else {
+        return converter.convertFromLong(template, (FastLongDoubleTimeSeries) fast);
+      }
+    }
+    return (DoubleTimeSeries<E>) fast;
+  }
+
 }
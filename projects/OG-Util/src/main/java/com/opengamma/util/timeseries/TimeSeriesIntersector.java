@@ -14,6 +14,9 @@ public final class TimeSeriesIntersector {
     if (series.length <= 1) {
       return series;
     }
+    if (BulkTimeSeriesOperations.intersectionFast(series, series)) {
+      return series;
+    }
     
     //Make the smallest series we can
     for (int i = 1; i < series.length; i++) {
@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.timeseries.compressed;
+
+/**
+ * Reads values written by {@link BitWriter}, starting from any bit offset.
+ */
+/* package */final class BitReader {
+
+  private final byte[] _data;
+  private long _bits;
+
+  BitReader(final byte[] data, final long bitOffset) {
+    _data = data;
+    _bits = bitOffset;
+  }
+
+  boolean readBit() {
+    final boolean bit = (_data[(int) (_bits >>> 3)] & (0x80 >>> (int) (_bits & 7))) != 0;
+    _bits++;
+    return bit;
+  }
+
+  /**
+   * Reads an unsigned value.
+   *
+   * @param count the number of bits to read, from 0 to 64
+   * @return the value
+   */
+  long readBits(int count) {
+    long value = 0;
+    while (count > 0) {
+      final int index = (int) (_bits >>> 3);
+      final int available = 8 - (int) (_bits & 7);
+      final int n = Math.min(available, count);
+      final int chunk = ((_data[index] & 0xFF) >>> (available - n)) & ((1 << n) - 1);
+      value = (value << n) | chunk;
+      _bits += n;
+      count -= n;
+    }
+    return value;
+  }
+
+  /**
+   * Reads a two's complement value.
+   *
+   * @param count the number of bits to read, from 1 to 64
+   * @return the sign extended value
+   */
+  long readSignedBits(final int count) {
+    final long value = readBits(count);
+    return (value << (64 - count)) >> (64 - count);
+  }
+
+}
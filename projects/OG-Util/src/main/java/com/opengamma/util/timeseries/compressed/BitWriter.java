@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.timeseries.compressed;
+
+import java.util.Arrays;
+
+/**
+ * Appends values of up to 64 bits to a growable byte array, most significant bit first.
+ */
+/* package */final class BitWriter {
+
+  private byte[] _data = new byte[64];
+  private long _bits;
+
+  /**
+   * @return the number of bits written
+   */
+  long getBitCount() {
+    return _bits;
+  }
+
+  void writeBit(final boolean bit) {
+    final int index = (int) (_bits >>> 3);
+    ensureCapacity(index + 1);
+    if (bit) {
+      _data[index] |= 0x80 >>> (int) (_bits & 7);
+    }
+    _bits++;
+  }
+
+  /**
+   * Writes the low bits of a value.
+   *
+   * @param value the value
+   * @param count the number of low bits to write, from 0 to 64
+   */
+  void writeBits(final long value, int count) {
+    ensureCapacity((int) ((_bits + count + 7) >>> 3));
+    while (count > 0) {
+      final int index = (int) (_bits >>> 3);
+      final int free = 8 - (int) (_bits & 7);
+      final int n = Math.min(free, count);
+      final int chunk = (int) ((value >>> (count - n)) & ((1 << n) - 1));
+      _data[index] |= chunk << (free - n);
+      _bits += n;
+      count -= n;
+    }
+  }
+
+  private void ensureCapacity(final int bytes) {
+    if (bytes > _data.length) {
+      _data = Arrays.copyOf(_data, Math.max(bytes, 2 * _data.length));
+    }
+  }
+
+  /**
+   * @return the bits written, padded with zeroes to a whole number of bytes
+   */
+  byte[] toByteArray() {
+    return Arrays.copyOf(_data, (int) ((_bits + 7) >>> 3));
+  }
+
+}
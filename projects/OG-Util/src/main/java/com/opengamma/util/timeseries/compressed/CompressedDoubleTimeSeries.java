@@ -0,0 +1,475 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.timeseries.compressed;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.timeseries.fast.DateTimeNumericEncoding;
+import com.opengamma.util.timeseries.fast.integer.FastArrayIntDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.integer.FastIntDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.longint.FastArrayLongDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.longint.FastLongDoubleTimeSeries;
+
+/**
+ * An immutable time series held in compressed form.
+ * <p>
+ * The points are split into blocks. The first time and value of each block are held uncompressed in an index, together with
+ * the position of the rest of the block in a bit stream. Within a block, times are held as the difference between
+ * successive deltas, which is zero for regularly spaced points, and values as the XOR with the previous value, which is
+ * zero for repeated values. Business day times take one or two bits per point. Values vary more; an unchanged value takes
+ * one bit, while a random walk in decimal prices still takes around six bytes, against twelve for an uncompressed point.
+ * <p>
+ * Only the blocks that are needed are decoded, so {@link #subSeriesFast} and {@link #getDataPointFast} on a long series
+ * do not pay for decoding all of it. {@link #toByteArray} gives a compact form for storage which {@link #fromByteArray}
+ * reads back.
+ */
+public final class CompressedDoubleTimeSeries {
+
+  /**
+   * Default number of points in each block.
+   */
+  public static final int DEFAULT_BLOCK_SIZE = 128;
+
+  private static final byte FORMAT_VERSION = 1;
+
+  private static final DateTimeNumericEncoding[] ENCODINGS = DateTimeNumericEncoding.values();
+
+  private final DateTimeNumericEncoding _encoding;
+  private final int _size;
+  private final int _blockSize;
+  private final long[] _blockTimes;
+  private final long[] _blockValues;
+  private final long[] _blockOffsets;
+  private final long _latestTime;
+  private final byte[] _data;
+
+  private CompressedDoubleTimeSeries(final DateTimeNumericEncoding encoding, final int size, final int blockSize, final long[] blockTimes,
+      final long[] blockValues, final long[] blockOffsets, final long latestTime, final byte[] data) {
+    _encoding = encoding;
+    _size = size;
+    _blockSize = blockSize;
+    _blockTimes = blockTimes;
+    _blockValues = blockValues;
+    _blockOffsets = blockOffsets;
+    _latestTime = latestTime;
+    _data = data;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Compresses a time series.
+   *
+   * @param series the series, not null
+   * @return the compressed series, not null
+   */
+  public static CompressedDoubleTimeSeries of(final FastLongDoubleTimeSeries series) {
+    ArgumentChecker.notNull(series, "series");
+    return of(series.getEncoding(), series.timesArrayFast(), series.valuesArrayFast(), DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * Compresses a time series.
+   *
+   * @param series the series, not null
+   * @return the compressed series, not null
+   */
+  public static CompressedDoubleTimeSeries of(final FastIntDoubleTimeSeries series) {
+    ArgumentChecker.notNull(series, "series");
+    final int[] intTimes = series.timesArrayFast();
+    final long[] times = new long[intTimes.length];
+    for (int i = 0; i < times.length; i++) {
+      times[i] = intTimes[i];
+    }
+    return of(series.getEncoding(), times, series.valuesArrayFast(), DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * Compresses a time series.
+   *
+   * @param encoding the encoding of the times, not null
+   * @param times the times, in ascending order, not null
+   * @param values the values, not null and the same length as the times
+   * @param blockSize the number of points in each block, larger blocks compress slightly better but decode more points for a look up
+   * @return the compressed series, not null
+   */
+  public static CompressedDoubleTimeSeries of(final DateTimeNumericEncoding encoding, final long[] times, final double[] values, final int blockSize) {
+    ArgumentChecker.notNull(encoding, "encoding");
+    ArgumentChecker.notNull(times, "times");
+    ArgumentChecker.notNull(values, "values");
+    ArgumentChecker.isTrue(times.length == values.length, "times and values must be the same length");
+    ArgumentChecker.isTrue(blockSize > 0, "blockSize");
+    final int size = times.length;
+    final int blocks = (size + blockSize - 1) / blockSize;
+    final long[] blockTimes = new long[blocks];
+    final long[] blockValues = new long[blocks];
+    final long[] blockOffsets = new long[blocks];
+    final BitWriter writer = new BitWriter();
+    for (int block = 0; block < blocks; block++) {
+      final int start = block * blockSize;
+      final int end = Math.min(size, start + blockSize);
+      blockTimes[block] = times[start];
+      blockValues[block] = Double.doubleToRawLongBits(values[start]);
+      blockOffsets[block] = writer.getBitCount();
+      long previousTime = times[start];
+      long previousDelta = 0;
+      long previousValue = blockValues[block];
+      int previousLeading = -1;
+      int previousTrailing = 0;
+      for (int i = start + 1; i < end; i++) {
+        if (times[i] <= previousTime) {
+          throw new IllegalArgumentException("Times must be in ascending order");
+        }
+        final long delta = times[i] - previousTime;
+        writeDeltaOfDelta(writer, delta - previousDelta);
+        previousTime = times[i];
+        previousDelta = delta;
+        final long value = Double.doubleToRawLongBits(values[i]);
+        final long xor = value ^ previousValue;
+        previousValue = value;
+        if (xor == 0) {
+          writer.writeBit(false);
+          continue;
+        }
+        writer.writeBit(true);
+        final int leading = Long.numberOfLeadingZeros(xor);
+        final int trailing = Long.numberOfTrailingZeros(xor);
+        if ((previousLeading >= 0) && (leading >= previousLeading) && (trailing >= previousTrailing)) {
+          // Significant bits fit in the previous window
+          writer.writeBit(false);
+          writer.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+        } else {
+          final int significant = 64 - leading - trailing;
+          writer.writeBit(true);
+          writer.writeBits(leading, 6);
+          writer.writeBits(significant - 1, 6);
+          writer.writeBits(xor >>> trailing, significant);
+          previousLeading = leading;
+          previousTrailing = trailing;
+        }
+      }
+    }
+    return new CompressedDoubleTimeSeries(encoding, size, blockSize, blockTimes, blockValues, blockOffsets, (size > 0) ? times[size - 1] : 0,
+        writer.toByteArray());
+  }
+
+  private static void writeDeltaOfDelta(final BitWriter writer, final long deltaOfDelta) {
+    if (deltaOfDelta == 0) {
+      writer.writeBit(false);
+    } else if ((deltaOfDelta >= -64) && (deltaOfDelta < 64)) {
+      writer.writeBits(0x2, 2);
+      writer.writeBits(deltaOfDelta, 7);
+    } else if ((deltaOfDelta >= -256) && (deltaOfDelta < 256)) {
+      writer.writeBits(0x6, 3);
+      writer.writeBits(deltaOfDelta, 9);
+    } else if ((deltaOfDelta >= -2048) && (deltaOfDelta < 2048)) {
+      writer.writeBits(0xE, 4);
+      writer.writeBits(deltaOfDelta, 12);
+    } else {
+      writer.writeBits(0xF, 4);
+      writer.writeBits(deltaOfDelta, 64);
+    }
+  }
+
+  private static long readDeltaOfDelta(final BitReader reader) {
+    if (!reader.readBit()) {
+      return 0;
+    }
+    if (!reader.readBit()) {
+      return reader.readSignedBits(7);
+    }
+    if (!reader.readBit()) {
+      return reader.readSignedBits(9);
+    }
+    if (!reader.readBit()) {
+      return reader.readSignedBits(12);
+    }
+    return reader.readBits(64);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Decodes points from one block.
+   *
+   * @param block the block index
+   * @param count the number of points to decode from the start of the block
+   * @param times receives the times
+   * @param values receives the values
+   * @param offset the index in the arrays of the first point
+   */
+  private void decodeBlock(final int block, final int count, final long[] times, final double[] values, final int offset) {
+    if (count == 0) {
+      return;
+    }
+    final BitReader reader = new BitReader(_data, _blockOffsets[block]);
+    long time = _blockTimes[block];
+    long value = _blockValues[block];
+    long delta = 0;
+    int leading = 0;
+    int trailing = 0;
+    times[offset] = time;
+    values[offset] = Double.longBitsToDouble(value);
+    for (int i = 1; i < count; i++) {
+      delta += readDeltaOfDelta(reader);
+      time += delta;
+      if (reader.readBit()) {
+        if (reader.readBit()) {
+          leading = (int) reader.readBits(6);
+          trailing = 64 - leading - ((int) reader.readBits(6) + 1);
+        }
+        value ^= reader.readBits(64 - leading - trailing) << trailing;
+      }
+      times[offset + i] = time;
+      values[offset + i] = Double.longBitsToDouble(value);
+    }
+  }
+
+  private int blockLength(final int block) {
+    return Math.min(_blockSize, _size - block * _blockSize);
+  }
+
+  /**
+   * Finds the block that would contain a time.
+   *
+   * @param time the time
+   * @return the block index, -1 if before the first point
+   */
+  private int findBlock(final long time) {
+    final int index = Arrays.binarySearch(_blockTimes, time);
+    return (index >= 0) ? index : -index - 2;
+  }
+
+  //-------------------------------------------------------------------------
+  public DateTimeNumericEncoding getEncoding() {
+    return _encoding;
+  }
+
+  public int size() {
+    return _size;
+  }
+
+  public boolean isEmpty() {
+    return _size == 0;
+  }
+
+  public int getBlockSize() {
+    return _blockSize;
+  }
+
+  /**
+   * @return the number of bytes used by the compressed points and their index
+   */
+  public int getCompressedSize() {
+    return _data.length + _blockTimes.length * 24;
+  }
+
+  public long getEarliestTimeFast() {
+    if (_size == 0) {
+      throw new NoSuchElementException("Series is empty");
+    }
+    return _blockTimes[0];
+  }
+
+  public long getLatestTimeFast() {
+    if (_size == 0) {
+      throw new NoSuchElementException("Series is empty");
+    }
+    return _latestTime;
+  }
+
+  /**
+   * Looks up a single value, decoding only the block that contains it.
+   *
+   * @param time the time
+   * @return the value
+   * @throws NoSuchElementException if there is no point at the time
+   */
+  public double getDataPointFast(final long time) {
+    final int block = findBlock(time);
+    if (block >= 0) {
+      final int count = blockLength(block);
+      final long[] times = new long[count];
+      final double[] values = new double[count];
+      decodeBlock(block, count, times, values, 0);
+      final int index = Arrays.binarySearch(times, time);
+      if (index >= 0) {
+        return values[index];
+      }
+    }
+    throw new NoSuchElementException();
+  }
+
+  /**
+   * Decodes the points from a start time, inclusive, to an end time, exclusive. Only the blocks that overlap the range
+   * are decoded.
+   *
+   * @param startTime the start time, inclusive
+   * @param endTime the end time, exclusive
+   * @return the points in the range, not null
+   */
+  public FastLongDoubleTimeSeries subSeriesFast(final long startTime, final long endTime) {
+    if ((_size == 0) || (endTime <= startTime)) {
+      return new FastArrayLongDoubleTimeSeries(_encoding, new long[0], new double[0]);
+    }
+    final int firstBlock = Math.max(0, findBlock(startTime));
+    final int lastBlock = findBlock(endTime);
+    if (lastBlock < firstBlock) {
+      return new FastArrayLongDoubleTimeSeries(_encoding, new long[0], new double[0]);
+    }
+    final int firstIndex = firstBlock * _blockSize;
+    final int count = lastBlock * _blockSize + blockLength(lastBlock) - firstIndex;
+    final long[] times = new long[count];
+    final double[] values = new double[count];
+    for (int block = firstBlock; block <= lastBlock; block++) {
+      decodeBlock(block, blockLength(block), times, values, block * _blockSize - firstIndex);
+    }
+    int from = Arrays.binarySearch(times, startTime);
+    from = (from >= 0) ? from : -from - 1;
+    int to = Arrays.binarySearch(times, endTime);
+    to = (to >= 0) ? to : -to - 1;
+    if ((from == 0) && (to == count)) {
+      return new FastArrayLongDoubleTimeSeries(_encoding, times, values);
+    }
+    return new FastArrayLongDoubleTimeSeries(_encoding, Arrays.copyOfRange(times, from, to), Arrays.copyOfRange(values, from, to));
+  }
+
+  /**
+   * Decodes all of the points.
+   *
+   * @return the series, not null
+   */
+  public FastLongDoubleTimeSeries toFastLongDoubleTimeSeries() {
+    final long[] times = new long[_size];
+    final double[] values = new double[_size];
+    decodeAll(times, values);
+    return new FastArrayLongDoubleTimeSeries(_encoding, times, values);
+  }
+
+  /**
+   * Decodes all of the points into an integer time series.
+   *
+   * @return the series, not null
+   * @throws IllegalStateException if the encoding needs long times
+   */
+  public FastIntDoubleTimeSeries toFastIntDoubleTimeSeries() {
+    if (!_encoding.isIntegerBigEnough()) {
+      throw new IllegalStateException("Encoding " + _encoding + " requires long times");
+    }
+    final long[] times = new long[_size];
+    final double[] values = new double[_size];
+    decodeAll(times, values);
+    final int[] intTimes = new int[_size];
+    for (int i = 0; i < _size; i++) {
+      intTimes[i] = (int) times[i];
+    }
+    return new FastArrayIntDoubleTimeSeries(_encoding, intTimes, values);
+  }
+
+  private void decodeAll(final long[] times, final double[] values) {
+    for (int block = 0; block < _blockTimes.length; block++) {
+      decodeBlock(block, blockLength(block), times, values, block * _blockSize);
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Writes the compressed series as bytes, for example for a database column.
+   *
+   * @return the bytes, not null
+   */
+  public byte[] toByteArray() {
+    final int blocks = _blockTimes.length;
+    final ByteBuffer buffer = ByteBuffer.allocate(1 + 1 + 4 + 4 + 8 + blocks * 24 + 4 + _data.length);
+    buffer.put(FORMAT_VERSION);
+    buffer.put((byte) _encoding.ordinal());
+    buffer.putInt(_size);
+    buffer.putInt(_blockSize);
+    buffer.putLong(_latestTime);
+    for (int i = 0; i < blocks; i++) {
+      buffer.putLong(_blockTimes[i]);
+      buffer.putLong(_blockValues[i]);
+      buffer.putLong(_blockOffsets[i]);
+    }
+    buffer.putInt(_data.length);
+    buffer.put(_data);
+    return buffer.array();
+  }
+
+  /**
+   * Reads a compressed series written by {@link #toByteArray}. The header and index are checked, so bytes that were not
+   * written by {@link #toByteArray} are rejected rather than causing large allocations or arithmetic errors.
+   *
+   * @param bytes the bytes, not null
+   * @return the compressed series, not null
+   * @throws IllegalArgumentException if the bytes are not a valid compressed series
+   */
+  public static CompressedDoubleTimeSeries fromByteArray(final byte[] bytes) {
+    ArgumentChecker.notNull(bytes, "bytes");
+    try {
+      final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      final byte version = buffer.get();
+      ArgumentChecker.isTrue(version == FORMAT_VERSION, "Unsupported compressed time series format {}", version);
+      final int encoding = buffer.get();
+      ArgumentChecker.isTrue(encoding >= 0 && encoding < ENCODINGS.length, "Invalid time encoding {}", encoding);
+      final int size = buffer.getInt();
+      ArgumentChecker.isTrue(size >= 0, "Invalid size {}", size);
+      final int blockSize = buffer.getInt();
+      ArgumentChecker.isTrue(blockSize > 0, "Invalid block size {}", blockSize);
+      final long latestTime = buffer.getLong();
+      final int blocks = (size == 0) ? 0 : (size - 1) / blockSize + 1;
+      // the index and the data length must fit in what is left
+      ArgumentChecker.isTrue(blocks * 24L + 4 <= buffer.remaining(), "Truncated compressed time series, {} blocks of {} points", blocks, blockSize);
+      final long[] blockTimes = new long[blocks];
+      final long[] blockValues = new long[blocks];
+      final long[] blockOffsets = new long[blocks];
+      for (int i = 0; i < blocks; i++) {
+        blockTimes[i] = buffer.getLong();
+        blockValues[i] = buffer.getLong();
+        blockOffsets[i] = buffer.getLong();
+      }
+      final int dataLength = buffer.getInt();
+      ArgumentChecker.isTrue(dataLength == buffer.remaining(), "Invalid compressed data length {}, {} bytes remaining", dataLength, buffer.remaining());
+      final byte[] data = new byte[dataLength];
+      buffer.get(data);
+      for (int i = 0; i < blocks; i++) {
+        ArgumentChecker.isTrue(blockOffsets[i] >= (i == 0 ? 0 : blockOffsets[i - 1]) && blockOffsets[i] <= dataLength * 8L, "Invalid offset of block {}", i);
+        ArgumentChecker.isTrue(i == 0 || blockTimes[i] > blockTimes[i - 1], "Block {} is out of order", i);
+      }
+      ArgumentChecker.isTrue(blocks == 0 || latestTime >= blockTimes[blocks - 1], "Invalid latest time {}", latestTime);
+      return new CompressedDoubleTimeSeries(ENCODINGS[encoding], size, blockSize, blockTimes, blockValues, blockOffsets, latestTime, data);
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("Truncated compressed time series", e);
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof CompressedDoubleTimeSeries)) {
+      return false;
+    }
+    final CompressedDoubleTimeSeries other = (CompressedDoubleTimeSeries) obj;
+    return _encoding == other._encoding && _size == other._size && _blockSize == other._blockSize && Arrays.equals(_blockTimes, other._blockTimes)
+        && Arrays.equals(_blockValues, other._blockValues) && Arrays.equals(_data, other._data);
+  }
+
+  @Override
+  public int hashCode() {
+    return _encoding.hashCode() ^ (_size * 31) ^ Arrays.hashCode(_blockTimes) ^ Arrays.hashCode(_data);
+  }
+
+  @Override
+  public String toString() {
+    return "CompressedDoubleTimeSeries[" + _encoding + ", " + _size + " points, " + getCompressedSize() + " bytes]";
+  }
+
+}
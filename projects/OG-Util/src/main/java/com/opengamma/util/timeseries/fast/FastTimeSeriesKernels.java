@@ -0,0 +1,492 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.timeseries.fast;
+
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.timeseries.DoubleTimeSeriesOperators;
+import com.opengamma.util.timeseries.DoubleTimeSeriesOperators.BinaryOperator;
+import com.opengamma.util.timeseries.DoubleTimeSeriesOperators.UnaryOperator;
+
+/**
+ * Bulk operations over the primitive time and value arrays of the fast time series.
+ * <p>
+ * The arithmetic operations are simple counted loops over arrays with no calls or branches in their
+ * bodies, which the JIT can unroll and vectorise. Operations on two series are split into an
+ * intersection pass, which finds the indices of the common times, a gather of the values at those
+ * indices and an arithmetic pass over the aligned values. Where an operator is one of the standard instances in
+ * {@link DoubleTimeSeriesOperators} a specialised loop is used instead of calling the operator for
+ * each point.
+ */
+public final class FastTimeSeriesKernels {
+
+  /**
+   * Restricted constructor.
+   */
+  private FastTimeSeriesKernels() {
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Finds the times common to two sorted arrays.
+   *
+   * @param aTimes the first times, sorted ascending, not null
+   * @param bTimes the second times, sorted ascending, not null
+   * @param aIndices receives the indices into the first array of the common times, at least as long as the shorter input
+   * @param bIndices receives the indices into the second array of the common times, at least as long as the shorter input
+   * @return the number of common times
+   */
+  public static int intersect(final int[] aTimes, final int[] bTimes, final int[] aIndices, final int[] bIndices) {
+    int a = 0;
+    int b = 0;
+    int count = 0;
+    while (a < aTimes.length && b < bTimes.length) {
+      final int aTime = aTimes[a];
+      final int bTime = bTimes[b];
+      if (aTime == bTime) {
+        aIndices[count] = a++;
+        bIndices[count++] = b++;
+      } else if (aTime < bTime) {
+        a++;
+      } else {
+        b++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Finds the times common to two sorted arrays.
+   *
+   * @param aTimes the first times, sorted ascending, not null
+   * @param bTimes the second times, sorted ascending, not null
+   * @param aIndices receives the indices into the first array of the common times, at least as long as the shorter input
+   * @param bIndices receives the indices into the second array of the common times, at least as long as the shorter input
+   * @return the number of common times
+   */
+  public static int intersect(final long[] aTimes, final long[] bTimes, final int[] aIndices, final int[] bIndices) {
+    int a = 0;
+    int b = 0;
+    int count = 0;
+    while (a < aTimes.length && b < bTimes.length) {
+      final long aTime = aTimes[a];
+      final long bTime = bTimes[b];
+      if (aTime == bTime) {
+        aIndices[count] = a++;
+        bIndices[count++] = b++;
+      } else if (aTime < bTime) {
+        a++;
+      } else {
+        b++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Finds the times common to any number of sorted arrays in a single pass over all of them.
+   *
+   * @param times the times of each series, each sorted ascending, not null
+   * @param indices receives, for each series, the indices of the common times, each at least as long as the shortest input
+   * @return the number of common times
+   */
+  public static int intersect(final int[][] times, final int[][] indices) {
+    final int n = times.length;
+    if (n == 0) {
+      return 0;
+    } else if (n == 1) {
+      for (int i = 0; i < times[0].length; i++) {
+        indices[0][i] = i;
+      }
+      return times[0].length;
+    }
+    final int[] cursors = new int[n];
+    int count = 0;
+    int candidate = Integer.MIN_VALUE;
+    int matched = 0;
+    int series = 0;
+    while (true) {
+      final int[] seriesTimes = times[series];
+      int cursor = cursors[series];
+      while (cursor < seriesTimes.length && seriesTimes[cursor] < candidate) {
+        cursor++;
+      }
+      if (cursor == seriesTimes.length) {
+        return count;
+      }
+      cursors[series] = cursor;
+      if (seriesTimes[cursor] == candidate) {
+        if (++matched == n) {
+          for (int i = 0; i < n; i++) {
+            indices[i][count] = cursors[i]++;
+          }
+          count++;
+          if (cursors[series] == seriesTimes.length) {
+            return count;
+          }
+          candidate = seriesTimes[cursors[series]];
+          matched = 1;
+        }
+      } else {
+        candidate = seriesTimes[cursor];
+        matched = 1;
+      }
+      series = (series + 1) % n;
+    }
+  }
+
+  /**
+   * Finds the times common to any number of sorted arrays in a single pass over all of them.
+   *
+   * @param times the times of each series, each sorted ascending, not null
+   * @param indices receives, for each series, the indices of the common times, each at least as long as the shortest input
+   * @return the number of common times
+   */
+  public static int intersect(final long[][] times, final int[][] indices) {
+    final int n = times.length;
+    if (n == 0) {
+      return 0;
+    } else if (n == 1) {
+      for (int i = 0; i < times[0].length; i++) {
+        indices[0][i] = i;
+      }
+      return times[0].length;
+    }
+    final int[] cursors = new int[n];
+    int count = 0;
+    long candidate = Long.MIN_VALUE;
+    int matched = 0;
+    int series = 0;
+    while (true) {
+      final long[] seriesTimes = times[series];
+      int cursor = cursors[series];
+      while (cursor < seriesTimes.length && seriesTimes[cursor] < candidate) {
+        cursor++;
+      }
+      if (cursor == seriesTimes.length) {
+        return count;
+      }
+      cursors[series] = cursor;
+      if (seriesTimes[cursor] == candidate) {
+        if (++matched == n) {
+          for (int i = 0; i < n; i++) {
+            indices[i][count] = cursors[i]++;
+          }
+          count++;
+          if (cursors[series] == seriesTimes.length) {
+            return count;
+          }
+          candidate = seriesTimes[cursors[series]];
+          matched = 1;
+        }
+      } else {
+        candidate = seriesTimes[cursor];
+        matched = 1;
+      }
+      series = (series + 1) % n;
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Copies the elements at the given indices to a new array.
+   *
+   * @param values the source array, not null
+   * @param indices the indices to copy, not null
+   * @param count the number of indices to use
+   * @return the gathered elements, not null
+   */
+  public static double[] gather(final double[] values, final int[] indices, final int count) {
+    final double[] result = new double[count];
+    for (int i = 0; i < count; i++) {
+      result[i] = values[indices[i]];
+    }
+    return result;
+  }
+
+  /**
+   * Copies the elements at the given indices to a new array.
+   *
+   * @param times the source array, not null
+   * @param indices the indices to copy, not null
+   * @param count the number of indices to use
+   * @return the gathered elements, not null
+   */
+  public static int[] gather(final int[] times, final int[] indices, final int count) {
+    final int[] result = new int[count];
+    for (int i = 0; i < count; i++) {
+      result[i] = times[indices[i]];
+    }
+    return result;
+  }
+
+  /**
+   * Copies the elements at the given indices to a new array.
+   *
+   * @param times the source array, not null
+   * @param indices the indices to copy, not null
+   * @param count the number of indices to use
+   * @return the gathered elements, not null
+   */
+  public static long[] gather(final long[] times, final int[] indices, final int count) {
+    final long[] result = new long[count];
+    for (int i = 0; i < count; i++) {
+      result[i] = times[indices[i]];
+    }
+    return result;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Applies a binary operator element-wise to two aligned arrays, writing the result over the first.
+   *
+   * @param operator the operator, not null
+   * @param a the first operands, replaced by the results, not null
+   * @param b the second operands, at least as long as the first, not null
+   */
+  public static void apply(final BinaryOperator operator, final double[] a, final double[] b) {
+    if (operator == DoubleTimeSeriesOperators.ADD_OPERATOR) {
+      add(a, b);
+    } else if (operator == DoubleTimeSeriesOperators.SUBTRACT_OPERATOR) {
+      subtract(a, b);
+    } else if (operator == DoubleTimeSeriesOperators.MULTIPLY_OPERATOR) {
+      multiply(a, b);
+    } else if (operator == DoubleTimeSeriesOperators.DIVIDE_OPERATOR) {
+      divide(a, b);
+    } else if (operator == DoubleTimeSeriesOperators.FIRST_OPERATOR) {
+      return;
+    } else if (operator == DoubleTimeSeriesOperators.SECOND_OPERATOR) {
+      System.arraycopy(b, 0, a, 0, a.length);
+    } else {
+      for (int i = 0; i < a.length; i++) {
+        a[i] = operator.operate(a[i], b[i]);
+      }
+    }
+  }
+
+  /**
+   * Applies a binary operator with a constant second operand element-wise, writing the result over the input.
+   *
+   * @param operator the operator, not null
+   * @param a the first operands, replaced by the results, not null
+   * @param b the second operand
+   */
+  public static void apply(final BinaryOperator operator, final double[] a, final double b) {
+    if (operator == DoubleTimeSeriesOperators.ADD_OPERATOR) {
+      for (int i = 0; i < a.length; i++) {
+        a[i] += b;
+      }
+    } else if (operator == DoubleTimeSeriesOperators.SUBTRACT_OPERATOR) {
+      for (int i = 0; i < a.length; i++) {
+        a[i] -= b;
+      }
+    } else if (operator == DoubleTimeSeriesOperators.MULTIPLY_OPERATOR) {
+      for (int i = 0; i < a.length; i++) {
+        a[i] *= b;
+      }
+    } else if (operator == DoubleTimeSeriesOperators.DIVIDE_OPERATOR) {
+      for (int i = 0; i < a.length; i++) {
+        a[i] /= b;
+      }
+    } else {
+      for (int i = 0; i < a.length; i++) {
+        a[i] = operator.operate(a[i], b);
+      }
+    }
+  }
+
+  /**
+   * Applies a unary operator element-wise, writing the result over the input.
+   *
+   * @param operator the operator, not null
+   * @param a the operands, replaced by the results, not null
+   */
+  public static void apply(final UnaryOperator operator, final double[] a) {
+    if (operator == DoubleTimeSeriesOperators.NEGATE_OPERATOR) {
+      for (int i = 0; i < a.length; i++) {
+        a[i] = -a[i];
+      }
+    } else if (operator == DoubleTimeSeriesOperators.RECIPROCAL_OPERATOR) {
+      for (int i = 0; i < a.length; i++) {
+        a[i] = 1 / a[i];
+      }
+    } else {
+      for (int i = 0; i < a.length; i++) {
+        a[i] = operator.operate(a[i]);
+      }
+    }
+  }
+
+  /**
+   * Adds the second array to the first element-wise.
+   *
+   * @param a the first operands, replaced by the results, not null
+   * @param b the second operands, at least as long as the first, not null
+   */
+  public static void add(final double[] a, final double[] b) {
+    for (int i = 0; i < a.length; i++) {
+      a[i] += b[i];
+    }
+  }
+
+  /**
+   * Subtracts the second array from the first element-wise.
+   *
+   * @param a the first operands, replaced by the results, not null
+   * @param b the second operands, at least as long as the first, not null
+   */
+  public static void subtract(final double[] a, final double[] b) {
+    for (int i = 0; i < a.length; i++) {
+      a[i] -= b[i];
+    }
+  }
+
+  /**
+   * Multiplies the first array by the second element-wise.
+   *
+   * @param a the first operands, replaced by the results, not null
+   * @param b the second operands, at least as long as the first, not null
+   */
+  public static void multiply(final double[] a, final double[] b) {
+    for (int i = 0; i < a.length; i++) {
+      a[i] *= b[i];
+    }
+  }
+
+  /**
+   * Divides the first array by the second element-wise.
+   *
+   * @param a the first operands, replaced by the results, not null
+   * @param b the second operands, at least as long as the first, not null
+   */
+  public static void divide(final double[] a, final double[] b) {
+    for (int i = 0; i < a.length; i++) {
+      a[i] /= b[i];
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Calculates the simple returns, {@code x[i + 1] / x[i] - 1}, of a sequence of values.
+   *
+   * @param values the values, not null
+   * @return the returns, one shorter than the values, not null
+   */
+  public static double[] simpleReturns(final double[] values) {
+    final int n = Math.max(values.length - 1, 0);
+    final double[] result = new double[n];
+    for (int i = 0; i < n; i++) {
+      result[i] = values[i + 1] / values[i] - 1;
+    }
+    return result;
+  }
+
+  /**
+   * Calculates the continuously compounded returns, {@code ln(x[i + 1] / x[i])}, of a sequence of values.
+   *
+   * @param values the values, not null
+   * @return the returns, one shorter than the values, not null
+   */
+  public static double[] logReturns(final double[] values) {
+    final int n = Math.max(values.length - 1, 0);
+    final double[] result = new double[n];
+    for (int i = 0; i < n; i++) {
+      result[i] = values[i + 1] / values[i];
+    }
+    for (int i = 0; i < n; i++) {
+      result[i] = Math.log(result[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Calculates the sums of each window of consecutive values.
+   * <p>
+   * Element {@code i} of the result is the sum of {@code values[i]} to {@code values[i + window - 1]}.
+   *
+   * @param values the values, not null
+   * @param window the number of values in each window, greater than zero
+   * @return the sums, not null
+   */
+  public static double[] rollingSum(final double[] values, final int window) {
+    ArgumentChecker.isTrue(window > 0, "window must be positive");
+    final int n = Math.max(values.length - window + 1, 0);
+    final double[] result = new double[n];
+    if (n == 0) {
+      return result;
+    }
+    double sum = 0;
+    for (int i = 0; i < window; i++) {
+      sum += values[i];
+    }
+    result[0] = sum;
+    for (int i = 1; i < n; i++) {
+      sum += values[i + window - 1] - values[i - 1];
+      result[i] = sum;
+    }
+    return result;
+  }
+
+  /**
+   * Calculates the means of each window of consecutive values.
+   * <p>
+   * Element {@code i} of the result is the mean of {@code values[i]} to {@code values[i + window - 1]}.
+   *
+   * @param values the values, not null
+   * @param window the number of values in each window, greater than zero
+   * @return the means, not null
+   */
+  public static double[] rollingMean(final double[] values, final int window) {
+    final double[] result = rollingSum(values, window);
+    final double scale = 1d / window;
+    for (int i = 0; i < result.length; i++) {
+      result[i] *= scale;
+    }
+    return result;
+  }
+
+  /**
+   * Calculates the sample standard deviations of each window of consecutive values.
+   * <p>
+   * Element {@code i} of the result is the standard deviation of {@code values[i]} to {@code values[i + window - 1]}
+   * using the {@code window - 1} denominator. The mean and sum of squared deviations are updated as the window
+   * slides rather than accumulating raw sums of squares, so the result stays accurate for values far from zero.
+   *
+   * @param values the values, not null
+   * @param window the number of values in each window, greater than one
+   * @return the standard deviations, not null
+   */
+  public static double[] rollingStandardDeviation(final double[] values, final int window) {
+    ArgumentChecker.isTrue(window > 1, "window must be greater than one");
+    final int n = Math.max(values.length - window + 1, 0);
+    final double[] result = new double[n];
+    if (n == 0) {
+      return result;
+    }
+    double mean = 0;
+    double m2 = 0;
+    for (int i = 0; i < window; i++) {
+      final double x = values[i];
+      final double delta = x - mean;
+      mean += delta / (i + 1);
+      m2 += delta * (x - mean);
+    }
+    final double denominator = window - 1;
+    result[0] = m2;
+    for (int i = 1; i < n; i++) {
+      final double in = values[i + window - 1];
+      final double out = values[i - 1];
+      final double newMean = mean + (in - out) / window;
+      m2 += (in - out) * (in - newMean + out - mean);
+      mean = newMean;
+      result[i] = m2;
+    }
+    for (int i = 0; i < n; i++) {
+      result[i] = Math.sqrt(Math.max(result[i], 0) / denominator);
+    }
+    return result;
+  }
+
+}
@@ -20,6 +20,7 @@ import com.opengamma.util.timeseries.fast.AbstractFastTimeSeries;
 import com.opengamma.util.timeseries.fast.DateTimeNumericEncoding;
 import com.opengamma.util.timeseries.fast.DateTimeResolution;
 import com.opengamma.util.timeseries.fast.FastTimeSeries;
+import com.opengamma.util.timeseries.fast.FastTimeSeriesKernels;
 import com.opengamma.util.timeseries.fast.longint.FastArrayLongDoubleTimeSeries;
 import com.opengamma.util.timeseries.fast.longint.FastListLongDoubleTimeSeries;
 import com.opengamma.util.timeseries.fast.longint.FastLongDoubleTimeSeries;
@@ -144,21 +145,15 @@ public abstract class AbstractFastIntDoubleTimeSeries
 
   public FastIntDoubleTimeSeries operate(final UnaryOperator operator) {
     final int[] aTimes = timesArrayFast();
-    final double[] aValues = valuesArrayFast();
-    final double[] results = new double[aValues.length]; // could modify in place, but will probably switch to in-place view of backing array.
-    for (int i = 0; i < aValues.length; i++) {
-      results[i] = operator.operate(aValues[i]);
-    }
+    final double[] results = valuesArrayFast(); // already a copy, so can be modified in place
+    FastTimeSeriesKernels.apply(operator, results);
     return newInstanceFast(aTimes, results);
   }
 
   public FastIntDoubleTimeSeries operate(final double other, final BinaryOperator operator) {
     final int[] aTimes = timesArrayFast();
-    final double[] aValues = valuesArrayFast();
-    final double[] results = new double[aValues.length]; // could modify in place, but will probably switch to in-place view of backing array.
-    for (int i = 0; i < aValues.length; i++) {
-      results[i] = operator.operate(aValues[i], other);
-    }
+    final double[] results = valuesArrayFast(); // already a copy, so can be modified in place
+    FastTimeSeriesKernels.apply(operator, results, other);
     return newInstanceFast(aTimes, results);
   }
 
@@ -174,8 +169,6 @@ public abstract class AbstractFastIntDoubleTimeSeries
   @Override
   public FastIntDoubleTimeSeries operate(final FastLongDoubleTimeSeries other, final BinaryOperator operator) {
     final int[] aTimes = timesArrayFast();
-    final double[] aValues = valuesArrayFast();
-    int aCount = 0;
     final long[] bTimesLong = other.timesArrayFast();
     final int[] bTimes = new int[bTimesLong.length];
     if (getEncoding() != other.getEncoding()) { // convert to a's format -- NOTE: if we switch to using an underlying array rather than a copy, we can't modify it in-place like we're doing here.
@@ -189,36 +182,17 @@ public abstract class AbstractFastIntDoubleTimeSeries
         bTimes[i] = (int) bTimesLong[i];
       }
     }
-    final double[] bValues = other.valuesArrayFast();
-    int bCount = 0;
-    final int[] resTimes = new int[aTimes.length + bTimes.length];
-    final double[] resValues = new double[resTimes.length];
-    int resCount = 0;
-    while (aCount < aTimes.length && bCount < bTimes.length) {
-      if (aTimes[aCount] == bTimes[bCount]) {
-        resTimes[resCount] = aTimes[aCount];
-        resValues[resCount] = operator.operate(aValues[aCount], bValues[bCount]);
-        resCount++;
-        aCount++;
-        bCount++;
-      } else if (aTimes[aCount] < bTimes[bCount]) {
-        aCount++;
-      } else { // if (aTimes[aCount] > bTimes[bCount]) {
-        bCount++;
-      }
-    }
-    int[] trimmedTimes = new int[resCount];
-    double[] trimmedValues = new double[resCount];
-    System.arraycopy(resTimes, 0, trimmedTimes, 0, resCount);
-    System.arraycopy(resValues, 0, trimmedValues, 0, resCount);
-    return newInstanceFast(trimmedTimes, trimmedValues);
+    final int[] aIndices = new int[Math.min(aTimes.length, bTimes.length)];
+    final int[] bIndices = new int[aIndices.length];
+    final int count = FastTimeSeriesKernels.intersect(aTimes, bTimes, aIndices, bIndices);
+    final double[] resValues = FastTimeSeriesKernels.gather(valuesArrayFast(), aIndices, count);
+    FastTimeSeriesKernels.apply(operator, resValues, FastTimeSeriesKernels.gather(other.valuesArrayFast(), bIndices, count));
+    return newInstanceFast(FastTimeSeriesKernels.gather(aTimes, aIndices, count), resValues);
   }
 
   @Override
   public FastIntDoubleTimeSeries operate(final FastIntDoubleTimeSeries other, final BinaryOperator operator) {
     final int[] aTimes = timesArrayFast();
-    final double[] aValues = valuesArrayFast();
-    int aCount = 0;
     final int[] bTimes = other.timesArrayFast();
     if (getEncoding() != other.getEncoding()) { // convert to a's format -- NOTE: if we switch to using an underlying array rather than a copy, we can't modify it in-place like we're doing here.
       DateTimeNumericEncoding aEncoding = getEncoding();
@@ -227,29 +201,12 @@ public abstract class AbstractFastIntDoubleTimeSeries
         bTimes[i] = bEncoding.convertToInt(bTimes[i], aEncoding);
       }
     }
-    final double[] bValues = other.valuesArrayFast();
-    int bCount = 0;
-    final int[] resTimes = new int[aTimes.length + bTimes.length];
-    final double[] resValues = new double[resTimes.length];
-    int resCount = 0;
-    while (aCount < aTimes.length && bCount < bTimes.length) {
-      if (aTimes[aCount] == bTimes[bCount]) {
-        resTimes[resCount] = aTimes[aCount];
-        resValues[resCount] = operator.operate(aValues[aCount], bValues[bCount]);
-        resCount++;
-        aCount++;
-        bCount++;
-      } else if (aTimes[aCount] < bTimes[bCount]) {
-        aCount++;
-      } else { // if (aTimes[aCount] > bTimes[bCount]) {
-        bCount++;
-      }
-    }
-    int[] trimmedTimes = new int[resCount];
-    double[] trimmedValues = new double[resCount];
-    System.arraycopy(resTimes, 0, trimmedTimes, 0, resCount);
-    System.arraycopy(resValues, 0, trimmedValues, 0, resCount);
-    return newInstanceFast(trimmedTimes, trimmedValues);
+    final int[] aIndices = new int[Math.min(aTimes.length, bTimes.length)];
+    final int[] bIndices = new int[aIndices.length];
+    final int count = FastTimeSeriesKernels.intersect(aTimes, bTimes, aIndices, bIndices);
+    final double[] resValues = FastTimeSeriesKernels.gather(valuesArrayFast(), aIndices, count);
+    FastTimeSeriesKernels.apply(operator, resValues, FastTimeSeriesKernels.gather(other.valuesArrayFast(), bIndices, count));
+    return newInstanceFast(FastTimeSeriesKernels.gather(aTimes, aIndices, count), resValues);
   }
 
   @Override
@@ -381,22 +338,24 @@ public abstract class AbstractFastIntDoubleTimeSeries
 
   @Override
   public FastIntDoubleTimeSeries lag(final int days) {
-    int[] times = timesArrayFast();
-    double[] values = valuesArrayFast();
+    final int[] times = timesArrayFast();
+    final double[] values = valuesArrayFast();
     if (days == 0) {
       return newInstanceFast(times, values);
     } else if (days < 0) {
-      int[] resultTimes = new int[times.length + days]; // remember days is -ve
-      System.arraycopy(times, 0, resultTimes, 0, times.length + days);
-      Double[] resultValues = new Double[times.length + days];
-      System.arraycopy(values, -days, resultValues, 0, times.length + days);
-      return newInstanceFast(times, values);
+      final int length = Math.max(times.length + days, 0); // remember days is -ve
+      final int[] resultTimes = new int[length];
+      System.arraycopy(times, 0, resultTimes, 0, length);
+      final double[] resultValues = new double[length];
+      System.arraycopy(values, times.length - length, resultValues, 0, length);
+      return newInstanceFast(resultTimes, resultValues);
     } else { // if (days > 0) {
-      int[] resultTimes = new int[times.length - days]; // remember days is +ve
-      System.arraycopy(times, days, resultTimes, 0, times.length - days);
-      Double[] resultValues = new Double[times.length - days];
-      System.arraycopy(values, 0, resultValues, 0, times.length - days);
-      return newInstanceFast(times, values);
+      final int length = Math.max(times.length - days, 0); // remember days is +ve
+      final int[] resultTimes = new int[length];
+      System.arraycopy(times, times.length - length, resultTimes, 0, length);
+      final double[] resultValues = new double[length];
+      System.arraycopy(values, 0, resultValues, 0, length);
+      return newInstanceFast(resultTimes, resultValues);
     }
   }
 
@@ -19,6 +19,7 @@ import com.opengamma.util.timeseries.fast.AbstractFastTimeSeries;
 import com.opengamma.util.timeseries.fast.DateTimeNumericEncoding;
 import com.opengamma.util.timeseries.fast.DateTimeResolution;
 import com.opengamma.util.timeseries.fast.FastTimeSeries;
+import com.opengamma.util.timeseries.fast.FastTimeSeriesKernels;
 import com.opengamma.util.timeseries.fast.integer.FastArrayIntDoubleTimeSeries;
 import com.opengamma.util.timeseries.fast.integer.FastIntDoubleTimeSeries;
 import com.opengamma.util.timeseries.fast.integer.FastListIntDoubleTimeSeries;
@@ -137,21 +138,15 @@ public abstract class AbstractFastLongDoubleTimeSeries
 
   public FastLongDoubleTimeSeries operate(final UnaryOperator operator) {
     final long[] aTimes = timesArrayFast();
-    final double[] aValues = valuesArrayFast();
-    final double[] results = new double[aValues.length]; // could modify in place, but will probably switch to in-place view of backing array.
-    for (int i = 0; i < aValues.length; i++) {
-      results[i] = operator.operate(aValues[i]);
-    }
+    final double[] results = valuesArrayFast(); // already a copy, so can be modified in place
+    FastTimeSeriesKernels.apply(operator, results);
     return newInstanceFast(aTimes, results);
   }
 
   public FastLongDoubleTimeSeries operate(final double other, final BinaryOperator operator) {
     final long[] aTimes = timesArrayFast();
-    final double[] aValues = valuesArrayFast();
-    final double[] results = new double[aValues.length]; // could modify in place, but will probably switch to in-place view of backing array.
-    for (int i = 0; i < aValues.length; i++) {
-      results[i] = operator.operate(aValues[i], other);
-    }
+    final double[] results = valuesArrayFast(); // already a copy, so can be modified in place
+    FastTimeSeriesKernels.apply(operator, results, other);
     return newInstanceFast(aTimes, results);
   }
 
@@ -167,8 +162,6 @@ public abstract class AbstractFastLongDoubleTimeSeries
   @Override
   public FastLongDoubleTimeSeries operate(final FastLongDoubleTimeSeries other, final BinaryOperator operator) { 
     final long[] aTimes = timesArrayFast();
-    final double[] aValues = valuesArrayFast();
-    int aCount = 0;
     final long[] bTimes = other.timesArrayFast();
     if (getEncoding() != other.getEncoding()) { // convert to a's format -- NOTE: if we switch to using an underlying array rather than a copy, we can't modify it in-place like we're doing here.
       DateTimeNumericEncoding aEncoding = getEncoding();
@@ -177,32 +170,12 @@ public abstract class AbstractFastLongDoubleTimeSeries
         bTimes[i] = bEncoding.convertToLong(bTimes[i], aEncoding);
       }
     }
-    final double[] bValues = other.valuesArrayFast();
-    int bCount = 0;
-    final long[] resTimes = new long[Math.min(aTimes.length, bTimes.length)];
-    final double[] resValues = new double[resTimes.length];
-    int resCount = 0;
-    while (aCount < aTimes.length && bCount < bTimes.length) {
-      if (aTimes[aCount] == bTimes[bCount]) {
-        resTimes[resCount] = aTimes[aCount];
-        resValues[resCount] = operator.operate(aValues[aCount], bValues[bCount]);
-        resCount++;
-        aCount++;
-        bCount++;
-      } else if (aTimes[aCount] < bTimes[bCount]) {
-        aCount++;
-      } else { // if (aTimes[aCount] > bTimes[bCount]) {
-        bCount++;
-      }
-    }
-    if (resTimes.length == resCount) {
-      return newInstanceFast(resTimes, resValues);
-    }
-    long[] trimmedTimes = new long[resCount];
-    double[] trimmedValues = new double[resCount];
-    System.arraycopy(resTimes, 0, trimmedTimes, 0, resCount);
-    System.arraycopy(resValues, 0, trimmedValues, 0, resCount);
-    return newInstanceFast(trimmedTimes, trimmedValues);
+    final int[] aIndices = new int[Math.min(aTimes.length, bTimes.length)];
+    final int[] bIndices = new int[aIndices.length];
+    final int count = FastTimeSeriesKernels.intersect(aTimes, bTimes, aIndices, bIndices);
+    final double[] resValues = FastTimeSeriesKernels.gather(valuesArrayFast(), aIndices, count);
+    FastTimeSeriesKernels.apply(operator, resValues, FastTimeSeriesKernels.gather(other.valuesArrayFast(), bIndices, count));
+    return newInstanceFast(FastTimeSeriesKernels.gather(aTimes, aIndices, count), resValues);
   }
 
   @Override
@@ -250,8 +223,6 @@ public abstract class AbstractFastLongDoubleTimeSeries
   @Override
   public FastLongDoubleTimeSeries operate(final FastIntDoubleTimeSeries other, final BinaryOperator operator) { 
     final long[] aTimes = timesArrayFast();
-    final double[] aValues = valuesArrayFast();
-    int aCount = 0;
     final int[] bTimesInt = other.timesArrayFast();
     final long[] bTimes = new long[bTimesInt.length];
     if (getEncoding() != other.getEncoding()) { // convert to a's format -- NOTE: if we switch to using an underlying array rather than a copy, we can't modify it in-place like we're doing here.
@@ -265,29 +236,12 @@ public abstract class AbstractFastLongDoubleTimeSeries
         bTimes[i] = bTimesInt[i];
       }      
     }
-    final double[] bValues = other.valuesArrayFast();
-    int bCount = 0;
-    final long[] resTimes = new long[aTimes.length + bTimes.length];
-    final double[] resValues = new double[resTimes.length];
-    int resCount = 0;
-    while (aCount < aTimes.length && bCount < bTimes.length) {
-      if (aTimes[aCount] == bTimes[bCount]) {
-        resTimes[resCount] = aTimes[aCount];
-        resValues[resCount] = operator.operate(aValues[aCount], bValues[bCount]);
-        resCount++;
-        aCount++;
-        bCount++;
-      } else if (aTimes[aCount] < bTimes[bCount]) {
-        aCount++;
-      } else { // if (aTimes[aCount] > bTimes[bCount]) {
-        bCount++;
-      }
-    }
-    long[] trimmedTimes = new long[resCount];
-    double[] trimmedValues = new double[resCount];
-    System.arraycopy(resTimes, 0, trimmedTimes, 0, resCount);
-    System.arraycopy(resValues, 0, trimmedValues, 0, resCount);
-    return newInstanceFast(trimmedTimes, trimmedValues);
+    final int[] aIndices = new int[Math.min(aTimes.length, bTimes.length)];
+    final int[] bIndices = new int[aIndices.length];
+    final int count = FastTimeSeriesKernels.intersect(aTimes, bTimes, aIndices, bIndices);
+    final double[] resValues = FastTimeSeriesKernels.gather(valuesArrayFast(), aIndices, count);
+    FastTimeSeriesKernels.apply(operator, resValues, FastTimeSeriesKernels.gather(other.valuesArrayFast(), bIndices, count));
+    return newInstanceFast(FastTimeSeriesKernels.gather(aTimes, aIndices, count), resValues);
   }
 
   @Override
@@ -419,22 +373,24 @@ public abstract class AbstractFastLongDoubleTimeSeries
 
   @Override
   public FastLongDoubleTimeSeries lag(final int days) {
-    long[] times = timesArrayFast();
-    double[] values = valuesArrayFast();
+    final long[] times = timesArrayFast();
+    final double[] values = valuesArrayFast();
     if (days == 0) {
       return newInstanceFast(times, values);
     } else if (days < 0) {
-      long[] resultTimes = new long[times.length + days]; // remember days is -ve
-      System.arraycopy(times, 0, resultTimes, 0, times.length + days);
-      Double[] resultValues = new Double[times.length + days];
-      System.arraycopy(values, -days, resultValues, 0, times.length + days);
-      return newInstanceFast(times, values);
+      final int length = Math.max(times.length + days, 0); // remember days is -ve
+      final long[] resultTimes = new long[length];
+      System.arraycopy(times, 0, resultTimes, 0, length);
+      final double[] resultValues = new double[length];
+      System.arraycopy(values, times.length - length, resultValues, 0, length);
+      return newInstanceFast(resultTimes, resultValues);
     } else { // if (days > 0) {
-      long[] resultTimes = new long[times.length - days]; // remember days is +ve
-      System.arraycopy(times, days, resultTimes, 0, times.length - days);
-      Double[] resultValues = new Double[times.length - days];
-      System.arraycopy(values, 0, resultValues, 0, times.length - days);
-      return newInstanceFast(times, values);
+      final int length = Math.max(times.length - days, 0); // remember days is +ve
+      final long[] resultTimes = new long[length];
+      System.arraycopy(times, times.length - length, resultTimes, 0, length);
+      final double[] resultValues = new double[length];
+      System.arraycopy(values, 0, resultValues, 0, length);
+      return newInstanceFast(resultTimes, resultValues);
     }
   }
 
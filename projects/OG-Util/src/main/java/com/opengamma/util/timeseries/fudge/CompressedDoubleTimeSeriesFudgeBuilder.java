@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.timeseries.fudge;
+
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeBuilder;
+import org.fudgemsg.mapping.FudgeBuilderFor;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+
+import com.opengamma.util.timeseries.compressed.CompressedDoubleTimeSeries;
+
+/**
+ * Fudge message builder (serializer/deserializer) for CompressedDoubleTimeSeries. The series is sent in its compressed
+ * form, so it is not decoded on either side of the wire.
+ */
+@FudgeBuilderFor(CompressedDoubleTimeSeries.class)
+public class CompressedDoubleTimeSeriesFudgeBuilder implements FudgeBuilder<CompressedDoubleTimeSeries> {
+
+  @Override
+  public MutableFudgeMsg buildMessage(FudgeSerializer serializer, CompressedDoubleTimeSeries object) {
+    final MutableFudgeMsg message = serializer.newMessage();
+    serializer.addToMessage(message, null, 0, object.getClass().getName());
+    message.add(null, 1, object.toByteArray());
+    return message;
+  }
+
+  @Override
+  public CompressedDoubleTimeSeries buildObject(FudgeDeserializer deserializer, FudgeMsg message) {
+    return CompressedDoubleTimeSeries.fromByteArray((byte[]) message.getValue(1));
+  }
+
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.transport.jaxrs;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.wire.FudgeDataOutputStreamWriter;
+import org.fudgemsg.wire.FudgeMsgWriter;
+import org.testng.annotations.Test;
+
+import com.opengamma.id.ExternalId;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+
+/**
+ * Test FudgeStreamingOutput and FudgeStreamReader.
+ */
+@Test
+public class FudgeStreamingOutputTest {
+
+  private static final FudgeContext FUDGE_CONTEXT = OpenGammaFudgeContext.getInstance();
+
+  private static byte[] write(final List<?> objects) throws Exception {
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new FudgeStreamingOutput(FUDGE_CONTEXT, objects.iterator()).write(output);
+    return output.toByteArray();
+  }
+
+  public void test_roundTrip() throws Exception {
+    final List<ExternalId> objects = new ArrayList<ExternalId>();
+    for (int i = 0; i < 1000; i++) {
+      objects.add(ExternalId.of("Test", Integer.toString(i)));
+    }
+    final FudgeStreamReader<ExternalId> reader = new FudgeStreamReader<ExternalId>(FUDGE_CONTEXT, new ByteArrayInputStream(write(objects)), ExternalId.class);
+    final List<ExternalId> result = new ArrayList<ExternalId>();
+    while (reader.hasNext()) {
+      result.add(reader.next());
+    }
+    assertEquals(objects, result);
+    assertFalse(reader.hasNext());
+  }
+
+  public void test_empty() throws Exception {
+    final FudgeStreamReader<ExternalId> reader = new FudgeStreamReader<ExternalId>(FUDGE_CONTEXT,
+        new ByteArrayInputStream(write(Collections.emptyList())), ExternalId.class);
+    assertFalse(reader.hasNext());
+  }
+
+  public void test_close() throws Exception {
+    final FudgeStreamReader<ExternalId> reader = new FudgeStreamReader<ExternalId>(FUDGE_CONTEXT,
+        new ByteArrayInputStream(write(Collections.singletonList(ExternalId.of("Test", "A")))), ExternalId.class);
+    assertTrue(reader.hasNext());
+    reader.close();
+    assertFalse(reader.hasNext());
+  }
+
+  public void test_compressed() throws Exception {
+    final List<ExternalId> objects = Collections.nCopies(1000, ExternalId.of("Test", "A"));
+    final byte[] compressed = write(objects);
+    final ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+    final FudgeMsgWriter writer = new FudgeMsgWriter(new FudgeDataOutputStreamWriter(FUDGE_CONTEXT, uncompressed));
+    for (ExternalId object : objects) {
+      writer.writeMessageEnvelope(FUDGE_CONTEXT.toFudgeMsg(object), 0);
+    }
+    writer.flush();
+    assertTrue(compressed.length < uncompressed.size() / 10);
+  }
+
+}
@@ -0,0 +1,379 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.transport.socket;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.FudgeMsgEnvelope;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.wire.FudgeRuntimeIOException;
+import org.testng.annotations.Test;
+
+import com.opengamma.transport.CollectingFudgeMessageReceiver;
+import com.opengamma.transport.FudgeConnection;
+import com.opengamma.transport.FudgeConnectionReceiver;
+import com.opengamma.transport.FudgeConnectionStateListener;
+import com.opengamma.transport.FudgeMessageReceiver;
+import com.opengamma.transport.FudgeMessageSender;
+import com.opengamma.util.test.Timeout;
+
+/**
+ * Tests the NioFudgeConnection and NioServerSocketFudgeConnectionReceiver classes
+ */
+@Test(singleThreaded = true)
+public class NioFudgeConnectionTest {
+
+  private final AtomicInteger _counter = new AtomicInteger();
+
+  private FudgeMsg createMessage() {
+    final MutableFudgeMsg message = FudgeContext.GLOBAL_DEFAULT.newMessage();
+    message.add("counter", _counter.incrementAndGet());
+    return message;
+  }
+
+  private static FudgeConnectionReceiver echoReceiver() {
+    return new FudgeConnectionReceiver() {
+      @Override
+      public void connectionReceived(final FudgeContext fudgeContext, final FudgeMsgEnvelope envelope, final FudgeConnection connection) {
+        connection.getFudgeMessageSender().send(envelope.getMessage());
+        connection.setFudgeMessageReceiver(new FudgeMessageReceiver() {
+          @Override
+          public void messageReceived(final FudgeContext fudgeContext, final FudgeMsgEnvelope msgEnvelope) {
+            connection.getFudgeMessageSender().send(msgEnvelope.getMessage());
+          }
+        });
+      }
+    };
+  }
+
+  private static class FailureCounter implements FudgeConnectionStateListener {
+
+    private int _failures;
+
+    @Override
+    public void connectionReset(final FudgeConnection connection) {
+    }
+
+    @Override
+    public synchronized void connectionFailed(final FudgeConnection connection, final Exception cause) {
+      _failures++;
+      notify();
+    }
+
+    public synchronized int waitForFailure() throws InterruptedException {
+      if (_failures == 0) {
+        wait(Timeout.standardTimeoutMillis());
+      }
+      return _failures;
+    }
+
+  }
+
+  public void blockingClientTest() throws Exception {
+    final FudgeMsg testMessage1 = createMessage();
+    final FudgeMsg testMessage2 = createMessage();
+    // receiver will respond to testMessage1 with testMessage2
+    final FudgeConnectionReceiver serverReceiver = new FudgeConnectionReceiver() {
+      @Override
+      public void connectionReceived(FudgeContext fudgeContext, FudgeMsgEnvelope message, FudgeConnection connection) {
+        assertNotNull(fudgeContext);
+        assertNotNull(message);
+        assertNotNull(connection);
+        assertEquals(testMessage1, message.getMessage());
+        connection.getFudgeMessageSender().send(testMessage2);
+      }
+    };
+    final NioServerSocketFudgeConnectionReceiver server = new NioServerSocketFudgeConnectionReceiver(FudgeContext.GLOBAL_DEFAULT, serverReceiver);
+    server.start();
+    final SocketFudgeConnection client = new SocketFudgeConnection(FudgeContext.GLOBAL_DEFAULT);
+    client.setInetAddress(InetAddress.getLocalHost());
+    client.setPortNumber(server.getPortNumber());
+    final CollectingFudgeMessageReceiver clientReceiver = new CollectingFudgeMessageReceiver();
+    client.setFudgeMessageReceiver(clientReceiver);
+    client.getFudgeMessageSender().send(testMessage1);
+    final FudgeMsgEnvelope envelope = clientReceiver.waitForMessage(Timeout.standardTimeoutMillis());
+    assertNotNull(envelope);
+    assertEquals(testMessage2, envelope.getMessage());
+    client.stop();
+    server.stop();
+  }
+
+  public void messageReceiverTest() throws Exception {
+    final FudgeMsg testMessage1 = createMessage();
+    final FudgeMsg testMessage2 = createMessage();
+    final FudgeMsg testMessage3 = createMessage();
+    final CollectingFudgeMessageReceiver message3Receiver = new CollectingFudgeMessageReceiver();
+    // after receiving testMessage2, will set the message receiver on the connection
+    final FudgeConnectionReceiver serverReceiver = new FudgeConnectionReceiver() {
+      private int _count;
+      @Override
+      public void connectionReceived(final FudgeContext fudgeContext, final FudgeMsgEnvelope message, final FudgeConnection connection) {
+        switch (_count++) {
+          case 0:
+            assertEquals(testMessage1, message.getMessage());
+            break;
+          case 1:
+            assertEquals(testMessage2, message.getMessage());
+            connection.setFudgeMessageReceiver(message3Receiver);
+            break;
+          default:
+            fail("Shouldn't have been called a third time");
+            break;
+        }
+      }
+    };
+    final NioSelectorThreads threads = new NioSelectorThreads(2);
+    threads.start();
+    final NioServerSocketFudgeConnectionReceiver server = new NioServerSocketFudgeConnectionReceiver(FudgeContext.GLOBAL_DEFAULT, serverReceiver, threads);
+    server.start();
+    final NioFudgeConnection client = NioFudgeConnection.connect(FudgeContext.GLOBAL_DEFAULT, threads, new InetSocketAddress(InetAddress.getLocalHost(),
+        server.getPortNumber()));
+    client.getFudgeMessageSender().send(testMessage1);
+    client.getFudgeMessageSender().send(testMessage2);
+    client.getFudgeMessageSender().send(testMessage3);
+    final FudgeMsgEnvelope envelope = message3Receiver.waitForMessage(Timeout.standardTimeoutMillis());
+    assertNotNull(envelope);
+    assertEquals(testMessage3, envelope.getMessage());
+    assertEquals(1, server.getConnectionCount());
+    client.close();
+    server.stop();
+    threads.stop();
+  }
+
+  public void largeMessageTest() throws Exception {
+    final NioSelectorThreads threads = new NioSelectorThreads(1);
+    threads.start();
+    final NioServerSocketFudgeConnectionReceiver server = new NioServerSocketFudgeConnectionReceiver(FudgeContext.GLOBAL_DEFAULT, echoReceiver(), threads);
+    server.start();
+    final NioFudgeConnection client = NioFudgeConnection.connect(FudgeContext.GLOBAL_DEFAULT, threads, new InetSocketAddress(InetAddress.getLocalHost(),
+        server.getPortNumber()));
+    final CollectingFudgeMessageReceiver clientReceiver = new CollectingFudgeMessageReceiver();
+    client.setFudgeMessageReceiver(clientReceiver);
+    // larger than all the buffers of a single gathering write so must span several writes and reads
+    final byte[] data = new byte[NioSelectorThreads.DEFAULT_BUFFER_SIZE * 20 + 17];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+    final MutableFudgeMsg message = FudgeContext.GLOBAL_DEFAULT.newMessage();
+    message.add("data", data);
+    client.getFudgeMessageSender().send(message);
+    client.getFudgeMessageSender().send(FudgeContext.EMPTY_MESSAGE);
+    FudgeMsgEnvelope envelope = clientReceiver.waitForMessage(Timeout.standardTimeoutMillis());
+    assertNotNull(envelope);
+    assertTrue(Arrays.equals(data, envelope.getMessage().getValue(byte[].class, "data")));
+    envelope = clientReceiver.waitForMessage(Timeout.standardTimeoutMillis());
+    assertNotNull(envelope);
+    assertEquals(0, envelope.getMessage().getNumFields());
+    client.close();
+    server.stop();
+    threads.stop();
+  }
+
+  private class MessageWriter extends Thread implements FudgeMessageReceiver {
+
+    private static final int NUM_MESSAGES = 1000;
+
+    private final FudgeMessageSender _sender;
+    private final int _expected;
+    private int _received;
+
+    public MessageWriter(final FudgeMessageSender sender, final int expected) {
+      _sender = sender;
+      _expected = expected;
+    }
+
+    @Override
+    public void run() {
+      for (int i = 0; i < NUM_MESSAGES; i++) {
+        _sender.send(createMessage());
+      }
+    }
+
+    @Override
+    public synchronized void messageReceived(FudgeContext fudgeContext, FudgeMsgEnvelope msgEnvelope) {
+      _received++;
+      if (_received == _expected) {
+        notify();
+      } else if (_received > _expected) {
+        fail("Too many messages received");
+      }
+    }
+
+    public synchronized boolean waitForMessages() throws InterruptedException {
+      final long period = Timeout.standardTimeoutMillis();
+      final long timeout = System.currentTimeMillis() + period;
+      while ((_received < _expected) && (System.currentTimeMillis() < timeout)) {
+        wait(period);
+      }
+      return _received == _expected;
+    }
+
+  }
+
+  public void manyClientsTest() throws Exception {
+    final int clients = 20;
+    final int writersPerClient = 4;
+    final NioSelectorThreads threads = new NioSelectorThreads(2);
+    threads.start();
+    final NioServerSocketFudgeConnectionReceiver server = new NioServerSocketFudgeConnectionReceiver(FudgeContext.GLOBAL_DEFAULT, echoReceiver(), threads);
+    server.start();
+    final NioFudgeConnection[] connections = new NioFudgeConnection[clients];
+    final MessageWriter[][] writers = new MessageWriter[clients][writersPerClient];
+    for (int i = 0; i < clients; i++) {
+      connections[i] = NioFudgeConnection.connect(FudgeContext.GLOBAL_DEFAULT, threads, new InetSocketAddress(InetAddress.getLocalHost(),
+          server.getPortNumber()));
+      // one receiver per connection collects the echoes of all its writers
+      final MessageWriter receiver = new MessageWriter(null, MessageWriter.NUM_MESSAGES * writersPerClient);
+      connections[i].setFudgeMessageReceiver(receiver);
+      writers[i][0] = receiver;
+      for (int j = 1; j < writersPerClient; j++) {
+        writers[i][j] = new MessageWriter(connections[i].getFudgeMessageSender(), 0);
+      }
+    }
+    for (int i = 0; i < clients; i++) {
+      for (int j = 1; j < writersPerClient; j++) {
+        writers[i][j].start();
+      }
+      for (int k = 0; k < MessageWriter.NUM_MESSAGES; k++) {
+        connections[i].getFudgeMessageSender().send(createMessage());
+      }
+    }
+    for (int i = 0; i < clients; i++) {
+      assertTrue(writers[i][0].waitForMessages());
+    }
+    assertEquals(clients, server.getConnectionCount());
+    for (int i = 0; i < clients; i++) {
+      connections[i].close();
+    }
+    server.stop();
+    threads.stop();
+  }
+
+  public void connectionFailedTest() throws Exception {
+    final NioSelectorThreads threads = new NioSelectorThreads(1);
+    threads.start();
+    final NioServerSocketFudgeConnectionReceiver server = new NioServerSocketFudgeConnectionReceiver(FudgeContext.GLOBAL_DEFAULT, echoReceiver(), threads);
+    server.start();
+    final NioFudgeConnection client = NioFudgeConnection.connect(FudgeContext.GLOBAL_DEFAULT, threads, new InetSocketAddress(InetAddress.getLocalHost(),
+        server.getPortNumber()));
+    final CollectingFudgeMessageReceiver clientReceiver = new CollectingFudgeMessageReceiver();
+    client.setFudgeMessageReceiver(clientReceiver);
+    final AtomicInteger failures = new AtomicInteger();
+    client.setConnectionStateListener(new FudgeConnectionStateListener() {
+      @Override
+      public void connectionReset(final FudgeConnection connection) {
+      }
+
+      @Override
+      public void connectionFailed(final FudgeConnection connection, final Exception cause) {
+        synchronized (failures) {
+          failures.incrementAndGet();
+          failures.notify();
+        }
+      }
+    });
+    client.getFudgeMessageSender().send(createMessage());
+    assertNotNull(clientReceiver.waitForMessage(Timeout.standardTimeoutMillis()));
+    // stopping the server closes its end of the connection
+    server.stop();
+    synchronized (failures) {
+      if (failures.get() == 0) {
+        failures.wait(Timeout.standardTimeoutMillis());
+      }
+    }
+    assertEquals(1, failures.get());
+    assertTrue(client.isClosed());
+    threads.stop();
+  }
+
+  public void frameTooLargeTest() throws Exception {
+    final NioSelectorThreads threads = new NioSelectorThreads(1);
+    threads.start();
+    final NioServerSocketFudgeConnectionReceiver server = new NioServerSocketFudgeConnectionReceiver(FudgeContext.GLOBAL_DEFAULT, echoReceiver(), threads);
+    server.setMaximumFrameSize(1024);
+    server.start();
+    final NioFudgeConnection client = NioFudgeConnection.connect(FudgeContext.GLOBAL_DEFAULT, threads, new InetSocketAddress(InetAddress.getLocalHost(),
+        server.getPortNumber()));
+    final CollectingFudgeMessageReceiver clientReceiver = new CollectingFudgeMessageReceiver();
+    client.setFudgeMessageReceiver(clientReceiver);
+    final FailureCounter failures = new FailureCounter();
+    client.setConnectionStateListener(failures);
+    client.getFudgeMessageSender().send(createMessage());
+    assertNotNull(clientReceiver.waitForMessage(Timeout.standardTimeoutMillis()));
+    final MutableFudgeMsg message = FudgeContext.GLOBAL_DEFAULT.newMessage();
+    message.add("data", new byte[2048]);
+    client.getFudgeMessageSender().send(message);
+    // the server closes the connection rather than read the message
+    assertEquals(1, failures.waitForFailure());
+    assertTrue(client.isClosed());
+    server.stop();
+    threads.stop();
+  }
+
+  public void outboundQueueFullTest() throws Exception {
+    final NioSelectorThreads threads = new NioSelectorThreads(1);
+    threads.start();
+    // a server that accepts the connection but never reads from it
+    final ServerSocket server = new ServerSocket(0);
+    final NioFudgeConnection client = NioFudgeConnection.connect(FudgeContext.GLOBAL_DEFAULT, threads, new InetSocketAddress(InetAddress.getLocalHost(),
+        server.getLocalPort()));
+    final Socket socket = server.accept();
+    client.setMaximumQueuedBytes(256 * 1024);
+    final MutableFudgeMsg message = FudgeContext.GLOBAL_DEFAULT.newMessage();
+    message.add("data", new byte[64 * 1024]);
+    int sent = 0;
+    try {
+      // far more than the socket buffers can hold
+      for (; sent < 4096; sent++) {
+        client.getFudgeMessageSender().send(message);
+      }
+      fail("Sends should fail once the outbound queue is full");
+    } catch (FudgeRuntimeIOException e) {
+      // expected
+    }
+    assertTrue(sent >= 4);
+    assertFalse(client.isClosed());
+    client.close();
+    socket.close();
+    server.close();
+    threads.stop();
+  }
+
+  public void stopClosesChannelsTest() throws Exception {
+    final NioSelectorThreads threads = new NioSelectorThreads(1);
+    threads.start();
+    final NioServerSocketFudgeConnectionReceiver server = new NioServerSocketFudgeConnectionReceiver(FudgeContext.GLOBAL_DEFAULT, echoReceiver(), threads);
+    server.start();
+    final NioFudgeConnection client = NioFudgeConnection.connect(FudgeContext.GLOBAL_DEFAULT, threads, new InetSocketAddress(InetAddress.getLocalHost(),
+        server.getPortNumber()));
+    final CollectingFudgeMessageReceiver clientReceiver = new CollectingFudgeMessageReceiver();
+    client.setFudgeMessageReceiver(clientReceiver);
+    final FailureCounter failures = new FailureCounter();
+    client.setConnectionStateListener(failures);
+    client.getFudgeMessageSender().send(createMessage());
+    assertNotNull(clientReceiver.waitForMessage(Timeout.standardTimeoutMillis()));
+    assertEquals(1, server.getConnectionCount());
+    threads.stop();
+    assertTrue(client.isClosed());
+    assertEquals(1, failures.waitForFailure());
+    assertEquals(0, server.getConnectionCount());
+    server.stop();
+  }
+
+}
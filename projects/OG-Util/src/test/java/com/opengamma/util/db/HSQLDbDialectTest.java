@@ -36,6 +36,11 @@ public class HSQLDbDialectTest extends DbDialectTest {
   public void test_sqlNextSequenceValueSelect() {
     assertEquals("CALL NEXT VALUE FOR MySeq", _dialect.sqlNextSequenceValueSelect("MySeq"));
   }
+
+  public void test_sqlNextSequenceValuesSelect() {
+    assertEquals("SELECT NEXT VALUE FOR MySeq FROM (VALUES(0),(0),(0)) AS V(X)", _dialect.sqlNextSequenceValuesSelect("MySeq", 3));
+    assertEquals("SELECT NEXT VALUE FOR MySeq FROM (VALUES(0)) AS V(X)", _dialect.sqlNextSequenceValuesSelect("MySeq", 1));
+  }
   
   //-------------------------------------------------------------------------
   public void test_sqlWildcardQuery() {
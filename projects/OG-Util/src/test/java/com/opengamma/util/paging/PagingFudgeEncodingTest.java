@@ -20,4 +20,9 @@ public class PagingFudgeEncodingTest extends AbstractFudgeBuilderTestCase {
     assertEncodeDecodeCycle(Paging.class, object);
   }
 
+  public void test_cursor() {
+    Paging object = Paging.ofCursor(PagingRequest.ofCursor("abc", 20), 20, "def");
+    assertEncodeDecodeCycle(Paging.class, object);
+  }
+
 }
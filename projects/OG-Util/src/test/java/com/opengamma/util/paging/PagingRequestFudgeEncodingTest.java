@@ -20,4 +20,9 @@ public class PagingRequestFudgeEncodingTest extends AbstractFudgeBuilderTestCase
     assertEncodeDecodeCycle(PagingRequest.class, object);
   }
 
+  public void test_cursor() {
+    PagingRequest object = PagingRequest.ofCursor("abc", 20);
+    assertEncodeDecodeCycle(PagingRequest.class, object);
+  }
+
 }
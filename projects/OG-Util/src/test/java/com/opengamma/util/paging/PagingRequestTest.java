@@ -145,6 +145,30 @@ public final class PagingRequestTest {
     assertEquals(Arrays.asList("Hello", "World", "Test"), coll);
   }
 
+  //-------------------------------------------------------------------------
+  public void test_ofCursor() {
+    PagingRequest test = PagingRequest.ofCursor("abc", 30);
+    assertEquals(true, test.isCursorPaging());
+    assertEquals("abc", test.getCursor());
+    assertEquals(0, test.getFirstItem());
+    assertEquals(30, test.getPagingSize());
+    assertEquals("", PagingRequest.ofCursor(null, 30).getCursor());
+    assertEquals(false, PagingRequest.ofIndex(0, 30).isCursorPaging());
+    assertEquals(null, PagingRequest.ofIndex(0, 30).getCursor());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void test_ofCursor_sizeZero() {
+    PagingRequest.ofCursor("abc", 0);
+  }
+
+  public void test_equals_cursor() {
+    assertEquals(true, PagingRequest.ofCursor("abc", 20).equals(PagingRequest.ofCursor("abc", 20)));
+    assertEquals(false, PagingRequest.ofCursor("abc", 20).equals(PagingRequest.ofCursor("abd", 20)));
+    assertEquals(false, PagingRequest.ofCursor(null, 20).equals(PagingRequest.FIRST_PAGE));
+    assertEquals(false, PagingRequest.FIRST_PAGE.equals(PagingRequest.ofCursor(null, 20)));
+  }
+
   //-------------------------------------------------------------------------
   public void test_equals_equal() {
     PagingRequest test1 = PagingRequest.ofPage(1, 20);
@@ -186,6 +210,7 @@ public final class PagingRequestTest {
   public void test_toString() {
     PagingRequest test = PagingRequest.ofIndex(3, 40);
     assertEquals("PagingRequest[first=3, size=40]", test.toString());
+    assertEquals("PagingRequest[cursor=abc, size=40]", PagingRequest.ofCursor("abc", 40).toString());
   }
 
 }
@@ -138,6 +138,37 @@ public final class PagingTest {
     assertTrue(Paging.of(PagingRequest.ofPage(1, 20), 40).isFirstPage());
   }
 
+  //-------------------------------------------------------------------------
+  public void test_factory_ofCursor() {
+    Paging test = Paging.ofCursor(PagingRequest.ofCursor("abc", 20), 20, "def");
+    assertTrue(test.isCursorPaging());
+    assertEquals("def", test.getNextCursor());
+    assertEquals(20, test.getTotalItems());
+    assertTrue(test.isNextPage());
+    assertFalse(test.isLastPage());
+    assertEquals(PagingRequest.ofCursor("abc", 20), test.toPagingRequest());
+    assertEquals(PagingRequest.ofCursor("def", 20), test.nextPagingRequest());
+  }
+
+  public void test_factory_ofCursor_lastPage() {
+    Paging test = Paging.ofCursor(PagingRequest.ofCursor("abc", 20), 7, null);
+    assertTrue(test.isCursorPaging());
+    assertEquals(null, test.getNextCursor());
+    assertFalse(test.isNextPage());
+    assertTrue(test.isLastPage());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void test_factory_ofCursor_notCursorRequest() {
+    Paging.ofCursor(PagingRequest.ofPage(1, 20), 20, "def");
+  }
+
+  public void test_of_cursorRequest() {
+    Paging test = Paging.of(PagingRequest.ofCursor(null, 20), 39);
+    assertFalse(test.isCursorPaging());
+    assertEquals(null, test.getNextCursor());
+  }
+
   //-------------------------------------------------------------------------
   public void test_toPagingRequest() {
     assertEquals(PagingRequest.ofPage(2, 20), Paging.of(PagingRequest.ofPage(2, 20), 39).toPagingRequest());
@@ -0,0 +1,35 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.timeseries;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.AbstractFudgeBuilderTestCase;
+import com.opengamma.util.timeseries.compressed.CompressedDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.DateTimeNumericEncoding;
+
+/**
+ * Test Fudge encoding.
+ */
+@Test
+public class CompressedDoubleTimeSeriesFudgeEncodingTest extends AbstractFudgeBuilderTestCase {
+
+  public void testCycle() {
+    final long[] times = new long[500];
+    final double[] values = new double[500];
+    for (int i = 0; i < times.length; i++) {
+      times[i] = 15000 + i + 2 * (i / 5);
+      values[i] = 1.5 + 0.01 * (i % 17);
+    }
+    final CompressedDoubleTimeSeries ts = CompressedDoubleTimeSeries.of(DateTimeNumericEncoding.DATE_EPOCH_DAYS, times, values, 64);
+    final CompressedDoubleTimeSeries cycleObject = cycleObject(CompressedDoubleTimeSeries.class, ts);
+    assertEquals(ts, cycleObject);
+    assertEquals(ts.toFastLongDoubleTimeSeries(), cycleObject.toFastLongDoubleTimeSeries());
+  }
+
+}
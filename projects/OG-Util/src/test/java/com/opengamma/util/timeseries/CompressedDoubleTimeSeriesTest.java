@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.timeseries;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.timeseries.compressed.CompressedDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.DateTimeNumericEncoding;
+import com.opengamma.util.timeseries.fast.integer.FastArrayIntDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.integer.FastIntDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.longint.FastArrayLongDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.longint.FastLongDoubleTimeSeries;
+
+/**
+ * Test CompressedDoubleTimeSeries.
+ */
+@Test
+public class CompressedDoubleTimeSeriesTest {
+
+  private static final int SIZE = 2000;
+
+  /**
+   * Business days with a random walk, as typical of a historical series.
+   */
+  private static FastIntDoubleTimeSeries dailySeries() {
+    final Random random = new Random(1);
+    final int[] times = new int[SIZE];
+    final double[] values = new double[SIZE];
+    int day = 14000;
+    double value = 100;
+    for (int i = 0; i < SIZE; i++) {
+      times[i] = day;
+      values[i] = value;
+      day += (day % 7 == 4) ? 3 : 1;
+      value = Math.round((value + random.nextGaussian()) * 100) / 100d;
+    }
+    return new FastArrayIntDoubleTimeSeries(DateTimeNumericEncoding.DATE_EPOCH_DAYS, times, values);
+  }
+
+  /**
+   * Irregular times and arbitrary values.
+   */
+  private static FastLongDoubleTimeSeries randomSeries() {
+    final Random random = new Random(2);
+    final long[] times = new long[SIZE];
+    final double[] values = new double[SIZE];
+    long time = -1000000000L;
+    for (int i = 0; i < SIZE; i++) {
+      time += 1 + ((i % 3 == 0) ? random.nextInt(100) : (long) (random.nextDouble() * Long.MAX_VALUE / (4 * SIZE)));
+      times[i] = time;
+      values[i] = (i % 10 == 0) ? Double.NaN : random.nextDouble() * Math.pow(10, random.nextInt(20) - 10);
+    }
+    return new FastArrayLongDoubleTimeSeries(DateTimeNumericEncoding.TIME_EPOCH_NANOS, times, values);
+  }
+
+  public void testRoundTripDaily() {
+    final FastIntDoubleTimeSeries series = dailySeries();
+    final CompressedDoubleTimeSeries compressed = CompressedDoubleTimeSeries.of(series);
+    assertEquals(SIZE, compressed.size());
+    assertEquals(DateTimeNumericEncoding.DATE_EPOCH_DAYS, compressed.getEncoding());
+    assertEquals(series, compressed.toFastIntDoubleTimeSeries());
+    // an uncompressed point takes 12 bytes
+    assertTrue(compressed.getCompressedSize() < SIZE * 8);
+  }
+
+  public void testRoundTripRandom() {
+    final FastLongDoubleTimeSeries series = randomSeries();
+    for (int blockSize : new int[] {1, 7, CompressedDoubleTimeSeries.DEFAULT_BLOCK_SIZE, 4 * SIZE}) {
+      final CompressedDoubleTimeSeries compressed = CompressedDoubleTimeSeries.of(series.getEncoding(), series.timesArrayFast(), series.valuesArrayFast(),
+          blockSize);
+      final FastLongDoubleTimeSeries decoded = compressed.toFastLongDoubleTimeSeries();
+      assertTrue(Arrays.equals(series.timesArrayFast(), decoded.timesArrayFast()));
+      assertTrue(Arrays.equals(series.valuesArrayFast(), decoded.valuesArrayFast()));
+      assertEquals(series.getEarliestTimeFast(), compressed.getEarliestTimeFast());
+      assertEquals(series.getLatestTimeFast(), compressed.getLatestTimeFast());
+    }
+  }
+
+  public void testSubSeries() {
+    final FastLongDoubleTimeSeries series = randomSeries();
+    final CompressedDoubleTimeSeries compressed = CompressedDoubleTimeSeries.of(series);
+    final long[] times = series.timesArrayFast();
+    final int[][] ranges = new int[][] {{0, SIZE - 1}, {5, 6}, {127, 128}, {128, 129}, {300, 1500}, {1999, 1999}};
+    for (int[] range : ranges) {
+      final long start = times[range[0]];
+      final long end = times[range[1]];
+      assertSubSeries(series, compressed, start, end);
+      assertSubSeries(series, compressed, start - 1, end + 1);
+      assertSubSeries(series, compressed, start + 1, end - 1);
+    }
+    assertSubSeries(series, compressed, Long.MIN_VALUE, times[0]);
+    assertSubSeries(series, compressed, times[SIZE - 1] + 1, Long.MAX_VALUE);
+  }
+
+  private static void assertSubSeries(final FastLongDoubleTimeSeries series, final CompressedDoubleTimeSeries compressed, final long start, final long end) {
+    final FastLongDoubleTimeSeries expected = series.subSeriesFast(start, end);
+    final FastLongDoubleTimeSeries actual = compressed.subSeriesFast(start, end);
+    assertTrue(Arrays.equals(expected.timesArrayFast(), actual.timesArrayFast()));
+    assertTrue(Arrays.equals(expected.valuesArrayFast(), actual.valuesArrayFast()));
+  }
+
+  public void testDataPoint() {
+    final FastIntDoubleTimeSeries series = dailySeries();
+    final CompressedDoubleTimeSeries compressed = CompressedDoubleTimeSeries.of(series);
+    for (int i = 0; i < SIZE; i += 37) {
+      assertEquals(series.getValueAtFast(i), compressed.getDataPointFast(series.getTimeFast(i)), 0);
+    }
+  }
+
+  @Test(expectedExceptions = NoSuchElementException.class)
+  public void testMissingDataPoint() {
+    final FastIntDoubleTimeSeries series = dailySeries();
+    CompressedDoubleTimeSeries.of(series).getDataPointFast(series.getTimeFast(0) - 1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testUnsorted() {
+    CompressedDoubleTimeSeries.of(DateTimeNumericEncoding.DATE_EPOCH_DAYS, new long[] {1, 3, 2}, new double[3], 16);
+  }
+
+  public void testEmpty() {
+    final CompressedDoubleTimeSeries compressed = CompressedDoubleTimeSeries.of(DateTimeNumericEncoding.DATE_EPOCH_DAYS, new long[0], new double[0], 16);
+    assertTrue(compressed.isEmpty());
+    assertTrue(compressed.toFastLongDoubleTimeSeries().isEmpty());
+    assertTrue(compressed.subSeriesFast(0, 10).isEmpty());
+    assertEquals(compressed, CompressedDoubleTimeSeries.fromByteArray(compressed.toByteArray()));
+  }
+
+  public void testBytes() {
+    final CompressedDoubleTimeSeries compressed = CompressedDoubleTimeSeries.of(randomSeries());
+    final CompressedDoubleTimeSeries copy = CompressedDoubleTimeSeries.fromByteArray(compressed.toByteArray());
+    assertEquals(compressed, copy);
+    assertEquals(compressed.toFastLongDoubleTimeSeries(), copy.toFastLongDoubleTimeSeries());
+  }
+
+  private static byte[] header(final int size, final int blockSize) {
+    final byte[] bytes = CompressedDoubleTimeSeries.of(randomSeries()).toByteArray();
+    ByteBuffer.wrap(bytes, 2, 8).putInt(size).putInt(blockSize);
+    return bytes;
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testBytesZeroBlockSize() {
+    CompressedDoubleTimeSeries.fromByteArray(header(SIZE, 0));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testBytesNegativeSize() {
+    CompressedDoubleTimeSeries.fromByteArray(header(-1, 16));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testBytesSizeTooLarge() {
+    // would need an index far larger than the bytes
+    CompressedDoubleTimeSeries.fromByteArray(header(Integer.MAX_VALUE, 1));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testBytesTruncated() {
+    final byte[] bytes = CompressedDoubleTimeSeries.of(randomSeries()).toByteArray();
+    CompressedDoubleTimeSeries.fromByteArray(Arrays.copyOf(bytes, bytes.length - 1));
+  }
+
+}
@@ -0,0 +1,242 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.timeseries;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.timeseries.fast.DateTimeNumericEncoding;
+import com.opengamma.util.timeseries.fast.FastTimeSeriesKernels;
+import com.opengamma.util.timeseries.fast.integer.FastArrayIntDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.integer.FastIntDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.longint.FastArrayLongDoubleTimeSeries;
+import com.opengamma.util.timeseries.fast.longint.FastLongDoubleTimeSeries;
+
+/**
+ * Test FastTimeSeriesKernels and the series operations built on it.
+ */
+@Test
+public class FastTimeSeriesKernelsTest {
+
+  private static final double EPS = 1e-9;
+
+  private static int[] randomTimes(final Random random, final int size) {
+    final int[] times = new int[size];
+    int time = random.nextInt(10);
+    for (int i = 0; i < size; i++) {
+      times[i] = time;
+      time += 1 + random.nextInt(3);
+    }
+    return times;
+  }
+
+  private static double[] randomValues(final Random random, final int size) {
+    final double[] values = new double[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = 100 + random.nextGaussian();
+    }
+    return values;
+  }
+
+  public void testIntersectPair() {
+    final int[] a = {1, 2, 4, 6, 7, 9};
+    final int[] b = {0, 2, 3, 4, 7, 10};
+    final int[] aIndices = new int[6];
+    final int[] bIndices = new int[6];
+    final int count = FastTimeSeriesKernels.intersect(a, b, aIndices, bIndices);
+    assertEquals(3, count);
+    assertTrue(Arrays.equals(new int[] {1, 2, 4}, Arrays.copyOf(aIndices, count)));
+    assertTrue(Arrays.equals(new int[] {1, 3, 4}, Arrays.copyOf(bIndices, count)));
+  }
+
+  public void testIntersectMany() {
+    final Random random = new Random(1);
+    for (int n = 1; n <= 5; n++) {
+      final int[][] times = new int[n][];
+      final long[][] longTimes = new long[n][];
+      final int[][] indices = new int[n][];
+      for (int i = 0; i < n; i++) {
+        times[i] = randomTimes(random, 200 + random.nextInt(50));
+        longTimes[i] = new long[times[i].length];
+        for (int j = 0; j < times[i].length; j++) {
+          longTimes[i][j] = times[i][j] * 1000000000000L;
+        }
+        indices[i] = new int[times[i].length];
+      }
+      // pairwise intersection of the first with each of the others
+      int[] expected = times[0];
+      for (int i = 1; i < n; i++) {
+        final int[] aIndices = new int[expected.length];
+        final int[] bIndices = new int[expected.length];
+        expected = FastTimeSeriesKernels.gather(expected, aIndices, FastTimeSeriesKernels.intersect(expected, times[i], aIndices, bIndices));
+      }
+      final int count = FastTimeSeriesKernels.intersect(times, indices);
+      assertEquals(expected.length, count);
+      for (int i = 0; i < n; i++) {
+        assertTrue(Arrays.equals(expected, FastTimeSeriesKernels.gather(times[i], indices[i], count)));
+      }
+      final int[][] longIndices = new int[n][300];
+      assertEquals(count, FastTimeSeriesKernels.intersect(longTimes, longIndices));
+      for (int i = 0; i < n; i++) {
+        assertTrue(Arrays.equals(Arrays.copyOf(indices[i], count), Arrays.copyOf(longIndices[i], count)));
+      }
+    }
+  }
+
+  public void testIntersectDisjoint() {
+    final int[][] times = {{1, 3, 5}, {2, 4, 6}, {1, 2, 3}};
+    assertEquals(0, FastTimeSeriesKernels.intersect(times, new int[3][3]));
+    assertEquals(0, FastTimeSeriesKernels.intersect(new int[][] {{1, 2}, {}}, new int[2][0]));
+  }
+
+  public void testOperators() {
+    final Random random = new Random(2);
+    final double[] a = randomValues(random, 37);
+    final double[] b = randomValues(random, 37);
+    final DoubleTimeSeriesOperators.BinaryOperator[] operators = {DoubleTimeSeriesOperators.ADD_OPERATOR, DoubleTimeSeriesOperators.SUBTRACT_OPERATOR,
+      DoubleTimeSeriesOperators.MULTIPLY_OPERATOR, DoubleTimeSeriesOperators.DIVIDE_OPERATOR, DoubleTimeSeriesOperators.FIRST_OPERATOR,
+      DoubleTimeSeriesOperators.SECOND_OPERATOR, DoubleTimeSeriesOperators.POWER_OPERATOR };
+    for (DoubleTimeSeriesOperators.BinaryOperator operator : operators) {
+      final double[] result = a.clone();
+      FastTimeSeriesKernels.apply(operator, result, b);
+      final double[] scalar = a.clone();
+      FastTimeSeriesKernels.apply(operator, scalar, 3.5);
+      for (int i = 0; i < a.length; i++) {
+        assertEquals(operator.operate(a[i], b[i]), result[i], 0);
+        assertEquals(operator.operate(a[i], 3.5), scalar[i], 0);
+      }
+    }
+    final DoubleTimeSeriesOperators.UnaryOperator[] unary = {DoubleTimeSeriesOperators.NEGATE_OPERATOR, DoubleTimeSeriesOperators.RECIPROCAL_OPERATOR,
+      DoubleTimeSeriesOperators.LOG_OPERATOR };
+    for (DoubleTimeSeriesOperators.UnaryOperator operator : unary) {
+      final double[] result = a.clone();
+      FastTimeSeriesKernels.apply(operator, result);
+      for (int i = 0; i < a.length; i++) {
+        assertEquals(operator.operate(a[i]), result[i], 0);
+      }
+    }
+  }
+
+  public void testReturns() {
+    final double[] values = {100, 110, 99, 99};
+    final double[] simple = FastTimeSeriesKernels.simpleReturns(values);
+    final double[] log = FastTimeSeriesKernels.logReturns(values);
+    assertEquals(3, simple.length);
+    assertEquals(0.1, simple[0], EPS);
+    assertEquals(-0.1, simple[1], EPS);
+    assertEquals(0, simple[2], EPS);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(Math.log(values[i + 1] / values[i]), log[i], EPS);
+    }
+    assertEquals(0, FastTimeSeriesKernels.simpleReturns(new double[1]).length);
+    assertEquals(0, FastTimeSeriesKernels.logReturns(new double[0]).length);
+  }
+
+  public void testRolling() {
+    final Random random = new Random(3);
+    final double[] values = randomValues(random, 500);
+    for (int window : new int[] {2, 5, 20, 500}) {
+      final double[] sum = FastTimeSeriesKernels.rollingSum(values, window);
+      final double[] mean = FastTimeSeriesKernels.rollingMean(values, window);
+      final double[] stdev = FastTimeSeriesKernels.rollingStandardDeviation(values, window);
+      assertEquals(values.length - window + 1, sum.length);
+      for (int i = 0; i < sum.length; i++) {
+        double s = 0;
+        for (int j = i; j < i + window; j++) {
+          s += values[j];
+        }
+        final double m = s / window;
+        double ss = 0;
+        for (int j = i; j < i + window; j++) {
+          ss += (values[j] - m) * (values[j] - m);
+        }
+        assertEquals(s, sum[i], EPS * window * 100);
+        assertEquals(m, mean[i], EPS);
+        assertEquals(Math.sqrt(ss / (window - 1)), stdev[i], 1e-7);
+      }
+    }
+    assertEquals(0, FastTimeSeriesKernels.rollingSum(values, 501).length);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testRollingStandardDeviationWindow() {
+    FastTimeSeriesKernels.rollingStandardDeviation(new double[10], 1);
+  }
+
+  //-------------------------------------------------------------------------
+  public void testOperate() {
+    final Random random = new Random(4);
+    final int[] aTimes = randomTimes(random, 100);
+    final int[] bTimes = randomTimes(random, 120);
+    final FastIntDoubleTimeSeries a = new FastArrayIntDoubleTimeSeries(DateTimeNumericEncoding.DATE_EPOCH_DAYS, aTimes, randomValues(random, 100));
+    final FastIntDoubleTimeSeries b = new FastArrayIntDoubleTimeSeries(DateTimeNumericEncoding.DATE_EPOCH_DAYS, bTimes, randomValues(random, 120));
+    final FastIntDoubleTimeSeries sum = a.operate(b, DoubleTimeSeriesOperators.ADD_OPERATOR);
+    final FastLongDoubleTimeSeries longSum = a.toFastLongDoubleTimeSeries().operate(b, DoubleTimeSeriesOperators.ADD_OPERATOR);
+    int count = 0;
+    for (int i = 0; i < aTimes.length; i++) {
+      final int j = Arrays.binarySearch(bTimes, aTimes[i]);
+      if (j >= 0) {
+        assertEquals(aTimes[i], sum.getTimeFast(count));
+        assertEquals(a.getValueAtFast(i) + b.getValueAtFast(j), sum.getValueAtFast(count), 0);
+        assertEquals(sum.getValueAtFast(count), longSum.getValueAtFast(count), 0);
+        count++;
+      }
+    }
+    assertEquals(count, sum.size());
+    assertEquals(count, longSum.size());
+  }
+
+  public void testLag() {
+    final FastIntDoubleTimeSeries ts = new FastArrayIntDoubleTimeSeries(DateTimeNumericEncoding.DATE_EPOCH_DAYS, new int[] {1, 2, 3, 4}, new double[] {10, 20, 30, 40});
+    final FastIntDoubleTimeSeries lagged = ts.lag(1);
+    assertTrue(Arrays.equals(new int[] {2, 3, 4}, lagged.timesArrayFast()));
+    assertTrue(Arrays.equals(new double[] {10, 20, 30}, lagged.valuesArrayFast()));
+    final FastIntDoubleTimeSeries led = ts.lag(-1);
+    assertTrue(Arrays.equals(new int[] {1, 2, 3}, led.timesArrayFast()));
+    assertTrue(Arrays.equals(new double[] {20, 30, 40}, led.valuesArrayFast()));
+    assertTrue(ts.lag(5).isEmpty());
+    assertTrue(ts.lag(-5).isEmpty());
+  }
+
+  public void testBulkIntersection() {
+    final Random random = new Random(5);
+    final FastLongDoubleTimeSeries[] inputs = new FastLongDoubleTimeSeries[4];
+    for (int i = 0; i < inputs.length; i++) {
+      final int[] times = randomTimes(random, 80);
+      final long[] longTimes = new long[times.length];
+      for (int j = 0; j < times.length; j++) {
+        longTimes[j] = times[j];
+      }
+      inputs[i] = new FastArrayLongDoubleTimeSeries(DateTimeNumericEncoding.TIME_EPOCH_MILLIS, longTimes, randomValues(random, 80));
+    }
+    final DoubleTimeSeries<Long>[] results = BulkTimeSeriesOperations.intersection(inputs);
+    DoubleTimeSeries<Long> expected = inputs[0];
+    for (int i = 1; i < inputs.length; i++) {
+      expected = expected.intersectionFirstValue(inputs[i]);
+    }
+    assertTrue(expected.size() > 0);
+    for (int i = 0; i < inputs.length; i++) {
+      assertEquals(inputs[i].intersectionFirstValue(expected), results[i]);
+    }
+  }
+
+  public void testRollingSeries() {
+    final FastIntDoubleTimeSeries ts = new FastArrayIntDoubleTimeSeries(DateTimeNumericEncoding.DATE_EPOCH_DAYS, new int[] {1, 2, 3, 4}, new double[] {10, 20, 30, 40});
+    final DoubleTimeSeries<Integer> mean = BulkTimeSeriesOperations.rollingMean(ts, 3);
+    assertEquals(new FastArrayIntDoubleTimeSeries(DateTimeNumericEncoding.DATE_EPOCH_DAYS, new int[] {3, 4}, new double[] {20, 30}), mean);
+    final DoubleTimeSeries<Integer> returns = BulkTimeSeriesOperations.simpleReturns(ts);
+    assertEquals(3, returns.size());
+    assertEquals(2, returns.getTimeAt(0).intValue());
+    assertEquals(1, returns.getValueAt(0), EPS);
+    assertTrue(BulkTimeSeriesOperations.rollingSum(ts, 5).isEmpty());
+  }
+
+}